@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.internal.sim.CalendarFutureEventQueue;
+import com.net2plan.internal.sim.HeapFutureEventQueue;
+import com.net2plan.internal.sim.IFutureEventQueue;
+
+/**
+ * <p>Compares the implementations of the future event list of the simulator under the classical Hold model:
+ * the queue is filled with a number of pending events, and then each operation extracts the first event
+ * and schedules a new one at the extracted time plus a random increment.</p>
+ *
+ * <p>The {@code priorityQueue} implementation is the {@code java.util.PriorityQueue} used by the simulator
+ * before the future event list became pluggable, and is the baseline of the comparison.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FutureEventListBenchmark
+{
+	@Param({"priorityQueue", "heap", "calendar"})
+	public String implementation;
+
+	@Param({"1000", "100000", "1000000"})
+	public int pendingEvents;
+
+	@Param({"exponential", "uniform", "bimodal"})
+	public String increments;
+
+	private IFutureEventQueue queue;
+	private Random rng;
+	private long sequenceNumber;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		switch (implementation)
+		{
+			case "priorityQueue": queue = new PriorityQueueFutureEventQueue(); break;
+			case "heap": queue = new HeapFutureEventQueue(); break;
+			case "calendar": queue = new CalendarFutureEventQueue(); break;
+			default: throw new IllegalArgumentException("Unknown implementation: " + implementation);
+		}
+		rng = new Random(1);
+		sequenceNumber = 0;
+		for (int cont = 0; cont < pendingEvents; cont++)
+			queue.add(newEvent(nextIncrement()), sequenceNumber++);
+	}
+
+	@Benchmark
+	public SimEvent hold()
+	{
+		final SimEvent first = queue.poll();
+		queue.add(newEvent(first.getEventTime() + nextIncrement()), sequenceNumber++);
+		return first;
+	}
+
+	private double nextIncrement()
+	{
+		switch (increments)
+		{
+			case "exponential": return -Math.log(1 - rng.nextDouble());
+			case "uniform": return 2 * rng.nextDouble();
+			case "bimodal": return rng.nextDouble() < 0.9 ? 0.1 * rng.nextDouble() : 10 * rng.nextDouble();
+			default: throw new IllegalArgumentException("Unknown increment distribution: " + increments);
+		}
+	}
+
+	private static SimEvent newEvent(double time)
+	{
+		return new SimEvent(time, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, null);
+	}
+
+	/* Baseline: the heap of events ordered only by SimEvent.compareTo, as used before */
+	private static final class PriorityQueueFutureEventQueue implements IFutureEventQueue
+	{
+		private final PriorityQueue<SimEvent> queue = new PriorityQueue<SimEvent>();
+
+		@Override public void add(SimEvent event, long sequenceNumber) { queue.add(event); }
+		@Override public void clear() { queue.clear(); }
+		@Override public boolean isEmpty() { return queue.isEmpty(); }
+		@Override public SimEvent peek() { return queue.peek(); }
+		@Override public SimEvent poll() { return queue.poll(); }
+		@Override public boolean remove(SimEvent event) { return queue.remove(event); }
+		@Override public int size() { return queue.size(); }
+		@Override public List<SimEvent> toSortedList() { final List<SimEvent> res = new ArrayList<SimEvent>(queue); res.sort(null); return res; }
+	}
+}
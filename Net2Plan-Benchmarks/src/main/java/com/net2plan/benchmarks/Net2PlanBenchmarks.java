@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Entry point of the benchmarks jar ({@code java -jar target/benchmarks.jar}). It accepts the same options as the JMH command line
+ * (e.g. a regular expression with the benchmarks to run, {@code -p nodes=400} to change a parameter, {@code -l} to list the benchmarks,
+ * or {@code -h} for help).</p>
+ *
+ * <p>Unless other result format is indicated (option {@code -rf}), the results are written in JSON format, in the file
+ * {@code jmh-result.json} of the current folder (or in the one given with the option {@code -rff}), so they can be compared between releases.</p>
+ */
+public class Net2PlanBenchmarks
+{
+	private Net2PlanBenchmarks() { }
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args JMH command line options
+	 * @throws Exception if the benchmarks could not be run
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		final List<String> options = new ArrayList<String>(Arrays.asList(args));
+		if (!options.contains("-rf"))
+		{
+			options.add(0, "-rf");
+			options.add(1, "json");
+		}
+		org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+	}
+}
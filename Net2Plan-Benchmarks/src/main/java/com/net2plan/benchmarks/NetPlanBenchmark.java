@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Route;
+
+/**
+ * <p>Basic operations on a design with a {@link SyntheticTopology synthetic topology}, and a full-mesh of demands, each one routed through its shortest path
+ * in km.</p>
+ *
+ * <p>Each operation leaves the design in the state it was, so all the invocations measure the same thing: a route is added and then removed,
+ * and a link (or a node) is set as down, and then back up. The links and nodes are failed in a fixed pseudo-random order.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NetPlanBenchmark
+{
+	@Param({"25", "50", "100"})
+	public int nodes;
+
+	@Param({"4"})
+	public int nodeDegree;
+
+	private NetPlan np;
+	private List<Demand> demands;
+	private List<List<Link>> shortestPaths;
+	private List<Link> links;
+	private List<Node> nodeList;
+	private int demandIndex, linkIndex, nodeIndex;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		final SyntheticTopology topology = new SyntheticTopology(nodes, nodeDegree, 1);
+		np = topology.createNetPlan(1);
+		shortestPaths = SyntheticTopology.addShortestPathRoutes(np);
+		demands = SyntheticTopology.getShuffledDemands(np, 1);
+		links = new ArrayList<Link>(np.getLinks());
+		Collections.shuffle(links, new Random(1));
+		nodeList = new ArrayList<Node>(np.getNodes());
+		Collections.shuffle(nodeList, new Random(1));
+		demandIndex = linkIndex = nodeIndex = 0;
+	}
+
+	@Benchmark
+	public Route addAndRemoveRoute()
+	{
+		final Demand demand = demands.get(demandIndex);
+		demandIndex = (demandIndex + 1) % demands.size();
+		final Route route = np.addRoute(demand, 0, 0, shortestPaths.get(demand.getIndex()), null);
+		route.remove();
+		return route;
+	}
+
+	@Benchmark
+	public NetPlan copy()
+	{
+		return np.copy();
+	}
+
+	@Benchmark
+	public Link failAndRepairLink()
+	{
+		final Link link = links.get(linkIndex);
+		linkIndex = (linkIndex + 1) % links.size();
+		np.setLinksAndNodesFailureState(null, Collections.singleton(link), null, null);
+		np.setLinksAndNodesFailureState(Collections.singleton(link), null, null, null);
+		return link;
+	}
+
+	@Benchmark
+	public Node failAndRepairNode()
+	{
+		final Node node = nodeList.get(nodeIndex);
+		nodeIndex = (nodeIndex + 1) % nodeList.size();
+		np.setLinksAndNodesFailureState(null, null, null, Collections.singleton(node));
+		np.setLinksAndNodesFailureState(null, null, Collections.singleton(node), null);
+		return node;
+	}
+}
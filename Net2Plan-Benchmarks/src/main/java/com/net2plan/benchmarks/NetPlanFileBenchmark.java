@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.net2plan.interfaces.networkDesign.NetPlan;
+
+/**
+ * Saving to and loading from a .n2p file a design with a {@link SyntheticTopology synthetic topology}, and a full-mesh of demands, each one routed through
+ * its shortest path in km. The files are written in the temporary folder, and removed at the end of the trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NetPlanFileBenchmark
+{
+	@Param({"25", "50", "100"})
+	public int nodes;
+
+	@Param({"4"})
+	public int nodeDegree;
+
+	private NetPlan np;
+	private File fileToSave, fileToLoad;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		np = new SyntheticTopology(nodes, nodeDegree, 1).createNetPlan(1);
+		SyntheticTopology.addShortestPathRoutes(np);
+		fileToSave = File.createTempFile("net2plan-benchmark-save", ".n2p");
+		fileToLoad = File.createTempFile("net2plan-benchmark-load", ".n2p");
+		np.saveToFile(fileToLoad);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		fileToSave.delete();
+		fileToLoad.delete();
+	}
+
+	@Benchmark
+	public File saveToFile()
+	{
+		np.saveToFile(fileToSave);
+		return fileToSave;
+	}
+
+	@Benchmark
+	public NetPlan loadFromFile()
+	{
+		return NetPlan.loadFromFile(fileToLoad);
+	}
+}
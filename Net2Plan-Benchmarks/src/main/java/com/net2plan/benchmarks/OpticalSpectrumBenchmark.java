@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.net2plan.niw.OpticalSpectrumManager;
+import com.net2plan.niw.OsmLightpathOccupationInfo;
+import com.net2plan.niw.WFiber;
+import com.net2plan.niw.WLightpath;
+import com.net2plan.niw.WNet;
+import com.net2plan.niw.WNode;
+
+/**
+ * <p>First-fit spectrum assignment in an optical network with a {@link SyntheticTopology synthetic topology}, where the fibers already carry lightpaths
+ * between random node pairs, routed through their shortest paths, until the given fraction of the optical slots is occupied (or no more lightpaths fit).</p>
+ *
+ * <p>Each invocation searches a first-fit assignment, without allocating it, for the shortest path of the next node pair in a fixed pseudo-random list.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OpticalSpectrumBenchmark
+{
+	private static final int NUMBEROFPATHS = 1000;
+
+	@Param({"25", "50", "100"})
+	public int nodes;
+
+	@Param({"4"})
+	public int nodeDegree;
+
+	@Param({"320"})
+	public int opticalSlotsPerFiber;
+
+	@Param({"0.2", "0.8"})
+	public double spectrumOccupation;
+
+	@Param({"4"})
+	public int numContiguousSlots;
+
+	private OpticalSpectrumManager osm;
+	private List<OsmLightpathOccupationInfo> paths;
+	private SortedSet<Integer> noForbiddenSlots;
+	private int pathIndex;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		final WNet net = new SyntheticTopology(nodes, nodeDegree, 1).createWNet(opticalSlotsPerFiber);
+		final List<WNode> nodeList = net.getNodes();
+		final Random rng = new Random(1);
+		osm = OpticalSpectrumManager.createFromRegularLps(net);
+		noForbiddenSlots = new TreeSet<Integer>();
+
+		/* Loads the network with lightpaths */
+		final double totalSlots = (double) net.getFibers().size() * opticalSlotsPerFiber;
+		double occupiedSlots = 0;
+		int consecutiveFailures = 0;
+		while (occupiedSlots / totalSlots < spectrumOccupation && consecutiveFailures < 100)
+		{
+			final OsmLightpathOccupationInfo path = randomShortestPath(net, nodeList, rng);
+			final Optional<SortedSet<Integer>> slots = osm.spectrumAssignment_firstFit(path, numContiguousSlots, Optional.empty(), noForbiddenSlots);
+			if (!slots.isPresent()) { consecutiveFailures++; continue; }
+			consecutiveFailures = 0;
+			final WFiber firstFiber = path.getSeqFibersLegitimateSignal().get(0);
+			final WFiber lastFiber = path.getSeqFibersLegitimateSignal().get(path.getSeqFibersLegitimateSignal().size() - 1);
+			final WLightpath lp = net.addLightpathRequest(firstFiber.getA(), lastFiber.getB(), 100, false).
+					addLightpathUnregenerated(path.getSeqFibersLegitimateSignal(), slots.get(), false);
+			osm.allocateOccupation(lp, Optional.empty());
+			occupiedSlots += numContiguousSlots * path.getSeqFibersLegitimateSignal().size();
+		}
+
+		paths = new ArrayList<OsmLightpathOccupationInfo>(NUMBEROFPATHS);
+		for (int cont = 0; cont < NUMBEROFPATHS; cont++) paths.add(randomShortestPath(net, nodeList, rng));
+		pathIndex = 0;
+	}
+
+	@Benchmark
+	public Optional<SortedSet<Integer>> spectrumAssignment_firstFit()
+	{
+		final OsmLightpathOccupationInfo path = paths.get(pathIndex);
+		pathIndex = (pathIndex + 1) % paths.size();
+		return osm.spectrumAssignment_firstFit(path, numContiguousSlots, Optional.empty(), noForbiddenSlots);
+	}
+
+	private static OsmLightpathOccupationInfo randomShortestPath(WNet net, List<WNode> nodeList, Random rng)
+	{
+		final WNode a = nodeList.get(rng.nextInt(nodeList.size()));
+		WNode b = a;
+		while (b == a) b = nodeList.get(rng.nextInt(nodeList.size()));
+		final List<WFiber> path = net.getKShortestWdmPath(1, a, b, Optional.empty()).get(0);
+		return new OsmLightpathOccupationInfo(path, Optional.empty(), Optional.empty(), Optional.empty());
+	}
+}
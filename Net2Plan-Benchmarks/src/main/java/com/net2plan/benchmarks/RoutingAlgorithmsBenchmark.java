@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.benchmarks;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.libraries.IPUtils;
+import com.net2plan.utils.Pair;
+import com.net2plan.utils.Quadruple;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+/**
+ * <p>Routing computations for all the node pairs of a design with a {@link SyntheticTopology synthetic topology}, and a full-mesh of (non-routed) demands:
+ * the k-shortest path candidate path list, and the traffic carried by OSPF/ECMP routing.</p>
+ *
+ * <p>The link costs are the link lengths in km ({@code km}), or one for all the links ({@code unit}), which gives many paths of the same cost.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoutingAlgorithmsBenchmark
+{
+	@Param({"25", "50", "100"})
+	public int nodes;
+
+	@Param({"4"})
+	public int nodeDegree;
+
+	@Param({"km", "unit"})
+	public String linkCosts;
+
+	private NetPlan np;
+	private DoubleMatrix1D linkCostVector;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		np = new SyntheticTopology(nodes, nodeDegree, 1).createNetPlan(1);
+		switch (linkCosts)
+		{
+			case "km": linkCostVector = SyntheticTopology.getLinkLengthVector(np); break;
+			case "unit": linkCostVector = DoubleFactory1D.dense.make(np.getNumberOfLinks(), 1.0); break;
+			default: throw new IllegalArgumentException("Unknown link costs: " + linkCosts);
+		}
+	}
+
+	/* The number of paths of the candidate path list, a parameter only of that benchmark */
+	@State(Scope.Thread)
+	public static class CandidatePaths
+	{
+		@Param({"1", "5"})
+		public int k;
+	}
+
+	@Benchmark
+	public SortedMap<Pair<Node, Node>, List<List<Link>>> computeUnicastCandidatePathList(CandidatePaths paths)
+	{
+		return np.computeUnicastCandidatePathList(linkCostVector, paths.k, -1, -1, -1, -1, -1, -1, null);
+	}
+
+	@Benchmark
+	public Quadruple<DoubleMatrix2D, DoubleMatrix2D, DoubleMatrix1D, DoubleMatrix1D> computeCarriedTrafficFromIGPWeights()
+	{
+		return IPUtils.computeCarriedTrafficFromIGPWeights(np, linkCostVector);
+	}
+}
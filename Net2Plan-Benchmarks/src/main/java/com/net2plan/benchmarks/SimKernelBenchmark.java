@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.simulation.IEventGenerator;
+import com.net2plan.interfaces.simulation.IEventProcessor;
+import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.internal.CommandLineParser;
+import com.net2plan.internal.sim.SimCore;
+import com.net2plan.internal.sim.SimKernel;
+import com.net2plan.utils.Triple;
+
+/**
+ * <p>Event throughput of the simulator, in a design with a {@link SyntheticTopology synthetic topology}, and a full-mesh of demands, each one routed
+ * through its shortest path in km. Each invocation runs a whole simulation of {@link #SIMEVENTS} events, and the results are given per event.</p>
+ *
+ * <p>The traffic of each demand changes at exponentially distributed intervals (so there is one pending event per demand): the event generator
+ * changes the offered traffic, and forwards the event to the event processor, which updates the traffic carried by the route of the demand.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimKernelBenchmark
+{
+	public static final int SIMEVENTS = 100000;
+
+	@Param({"25", "100"})
+	public int nodes;
+
+	@Param({"4"})
+	public int nodeDegree;
+
+	@Param({"heap", "calendar"})
+	public String futureEventList;
+
+	@Param({"false", "true"})
+	public boolean disableStatistics;
+
+	private NetPlan np;
+	private SimKernel simKernel;
+
+	@Setup(Level.Trial)
+	public void setupDesign()
+	{
+		np = new SyntheticTopology(nodes, nodeDegree, 1).createNetPlan(1);
+		SyntheticTopology.addShortestPathRoutes(np);
+	}
+
+	@Setup(Level.Invocation)
+	public void setupSimulation()
+	{
+		final Properties customSimulationParameters = new Properties();
+		customSimulationParameters.put("simEvents", "" + SIMEVENTS);
+		customSimulationParameters.put("futureEventList", futureEventList);
+		customSimulationParameters.put("disableStatistics", "" + disableStatistics);
+		final Map<String, String> net2planParameters = new HashMap<String, String>();
+		net2planParameters.put("precisionFactor", "0.001");
+
+		simKernel = new SimKernel();
+		simKernel.setNetPlan(np);
+		final TrafficChangeGenerator eventGenerator = new TrafficChangeGenerator();
+		final TrafficChangeProcessor eventProcessor = new TrafficChangeProcessor();
+		simKernel.configureSimulation(CommandLineParser.getParameters(simKernel.getSimulationParameters(), customSimulationParameters), net2planParameters,
+				eventGenerator, CommandLineParser.getParameters(eventGenerator.getParameters(), (Properties) null),
+				eventProcessor, CommandLineParser.getParameters(eventProcessor.getParameters(), (Properties) null));
+		simKernel.initialize();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIMEVENTS)
+	public NetPlan simulate()
+	{
+		simKernel.getSimCore().setSimulationState(SimCore.SimState.RUNNING);
+		simKernel.getSimCore().run();
+		return simKernel.getCurrentNetPlan();
+	}
+
+	/* Changes the offered traffic of each demand at exponentially distributed intervals */
+	public static class TrafficChangeGenerator extends IEventGenerator
+	{
+		private Random rng;
+
+		@Override
+		public String getDescription() { return null; }
+
+		@Override
+		public List<Triple<String, String, String>> getParameters() { return null; }
+
+		@Override
+		public void initialize(NetPlan initialNetPlan, Map<String, String> algorithmParameters, Map<String, String> simulationParameters, Map<String, String> net2planParameters)
+		{
+			rng = new Random(1);
+			for (Demand demand : initialNetPlan.getDemands())
+				scheduleEvent(new SimEvent(-Math.log(1 - rng.nextDouble()), SimEvent.DestinationModule.EVENT_GENERATOR, -1, demand.getIndex()));
+		}
+
+		@Override
+		public void processEvent(NetPlan currentNetPlan, SimEvent event)
+		{
+			final Demand demand = currentNetPlan.getDemand((Integer) event.getEventObject());
+			demand.setOfferedTraffic(rng.nextDouble());
+			scheduleEvent(new SimEvent(event.getEventTime(), SimEvent.DestinationModule.EVENT_PROCESSOR, -1, demand.getIndex()));
+			scheduleEvent(new SimEvent(event.getEventTime() - Math.log(1 - rng.nextDouble()), SimEvent.DestinationModule.EVENT_GENERATOR, -1, demand.getIndex()));
+		}
+	}
+
+	/* Carries in the route of the demand all its offered traffic, up to the link capacity */
+	public static class TrafficChangeProcessor extends IEventProcessor
+	{
+		@Override
+		public String getDescription() { return null; }
+
+		@Override
+		public List<Triple<String, String, String>> getParameters() { return null; }
+
+		@Override
+		public void initialize(NetPlan initialNetPlan, Map<String, String> algorithmParameters, Map<String, String> simulationParameters, Map<String, String> net2planParameters) { }
+
+		@Override
+		public void processEvent(NetPlan currentNetPlan, SimEvent event)
+		{
+			final Demand demand = currentNetPlan.getDemand((Integer) event.getEventObject());
+			final double carriedTraffic = Math.min(demand.getOfferedTraffic(), SyntheticTopology.LINK_CAPACITY);
+			demand.getRoutes().first().setCarriedTraffic(carriedTraffic, carriedTraffic);
+		}
+	}
+}
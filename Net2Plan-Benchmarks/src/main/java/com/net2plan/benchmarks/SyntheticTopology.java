@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.niw.WNet;
+import com.net2plan.niw.WNode;
+import com.net2plan.utils.Constants.RoutingType;
+import com.net2plan.utils.Pair;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+
+/**
+ * <p>Random topology used by the benchmarks: the nodes are placed uniformly in a square of 1000 x 1000 km, connected in a ring
+ * (so the topology is connected), and then each node is connected to its nearest nodes until it has the given number of
+ * neighbors. All the adjacencies are bidirectional, and the length of the links is the euclidean distance between the nodes.</p>
+ *
+ * <p>The same seed always produces the same topology, so the results of different runs and releases are comparable.</p>
+ */
+final class SyntheticTopology
+{
+	static final double LINK_CAPACITY = 100;
+	static final double PROPAGATION_SPEED_KMPERSEC = 200000;
+
+	private final int numNodes;
+	private final double [] xCoord, yCoord;
+	private final List<int []> adjacencies;
+
+	SyntheticTopology(int numNodes, int nodeDegree, long seed)
+	{
+		if (numNodes < 3) throw new IllegalArgumentException("At least three nodes are needed");
+		final Random rng = new Random(seed);
+		this.numNodes = numNodes;
+		this.xCoord = new double [numNodes];
+		this.yCoord = new double [numNodes];
+		for (int n = 0; n < numNodes; n++) { xCoord [n] = 1000 * rng.nextDouble(); yCoord [n] = 1000 * rng.nextDouble(); }
+
+		this.adjacencies = new ArrayList<int []>();
+		final Set<Long> existing = new HashSet<Long>();
+		final int [] degree = new int [numNodes];
+		for (int n = 0; n < numNodes; n++) addAdjacency(n, (n + 1) % numNodes, existing, degree);
+		for (int n = 0; n < numNodes; n++)
+		{
+			final Integer [] otherNodesByDistance = new Integer [numNodes];
+			for (int other = 0; other < numNodes; other++) otherNodesByDistance [other] = other;
+			final int origin = n;
+			Arrays.sort(otherNodesByDistance, (a, b) -> Double.compare(distance(origin, a), distance(origin, b)));
+			for (int other : otherNodesByDistance)
+			{
+				if (degree [n] >= nodeDegree) break;
+				if (other != n && degree [other] < nodeDegree) addAdjacency(n, other, existing, degree);
+			}
+		}
+	}
+
+	/**
+	 * Returns the design with the topology (bidirectional links of {@link #LINK_CAPACITY} Gbps), and a full-mesh of demands with a random offered traffic
+	 * between zero and one, not routed.
+	 *
+	 * @param seed seed of the offered traffic
+	 * @return see above
+	 */
+	NetPlan createNetPlan(long seed)
+	{
+		final Random rng = new Random(seed);
+		final NetPlan np = new NetPlan();
+		for (int n = 0; n < numNodes; n++) np.addNode(xCoord [n], yCoord [n], "n" + n, null);
+		for (int [] adjacency : adjacencies)
+			np.addLinkBidirectional(np.getNode(adjacency [0]), np.getNode(adjacency [1]), LINK_CAPACITY, distance(adjacency [0], adjacency [1]), PROPAGATION_SPEED_KMPERSEC, null);
+		for (Node a : np.getNodes())
+			for (Node b : np.getNodes())
+				if (a != b) np.addDemand(a, b, rng.nextDouble(), RoutingType.SOURCE_ROUTING, null);
+		return np;
+	}
+
+	/**
+	 * Routes each demand of the design through its shortest path in km, carrying all its offered traffic.
+	 *
+	 * @param np the design
+	 * @return the shortest path of each demand, indexed by demand index
+	 */
+	static List<List<Link>> addShortestPathRoutes(NetPlan np)
+	{
+		final SortedMap<Pair<Node, Node>, List<List<Link>>> cpl = np.computeUnicastCandidatePathList(getLinkLengthVector(np), 1, -1, -1, -1, -1, -1, -1, null);
+		final List<List<Link>> res = new ArrayList<List<Link>>(np.getNumberOfDemands());
+		for (Demand d : np.getDemands())
+		{
+			final List<Link> path = cpl.get(Pair.of(d.getIngressNode(), d.getEgressNode())).get(0);
+			np.addRoute(d, d.getOfferedTraffic(), d.getOfferedTraffic(), path, null);
+			res.add(path);
+		}
+		return res;
+	}
+
+	/**
+	 * Returns the length in km of each link of the design, indexed by link index.
+	 *
+	 * @param np the design
+	 * @return see above
+	 */
+	static DoubleMatrix1D getLinkLengthVector(NetPlan np)
+	{
+		final DoubleMatrix1D res = DoubleFactory1D.dense.make(np.getNumberOfLinks());
+		for (Link e : np.getLinks()) res.set(e.getIndex(), e.getLengthInKm());
+		return res;
+	}
+
+	/**
+	 * Returns the design with the topology as an optical network: one bidirectional fiber per adjacency, with the given number of optical slots.
+	 *
+	 * @param numOpticalSlots number of optical slots per fiber
+	 * @return see above
+	 */
+	WNet createWNet(int numOpticalSlots)
+	{
+		final WNet net = WNet.createEmptyDesign(false, true);
+		final List<WNode> nodes = new ArrayList<WNode>(numNodes);
+		for (int n = 0; n < numNodes; n++) nodes.add(net.addNode(xCoord [n], yCoord [n], "n" + n, null));
+		for (int [] adjacency : adjacencies)
+			net.addFiber(nodes.get(adjacency [0]), nodes.get(adjacency [1]), Arrays.asList(Pair.of(0, numOpticalSlots - 1)), distance(adjacency [0], adjacency [1]), true);
+		return net;
+	}
+
+	/**
+	 * Returns the demands of the design in a random order, with a fixed seed.
+	 *
+	 * @param np the design
+	 * @param seed the seed
+	 * @return see above
+	 */
+	static List<Demand> getShuffledDemands(NetPlan np, long seed)
+	{
+		final List<Demand> res = new ArrayList<Demand>(np.getDemands());
+		Collections.shuffle(res, new Random(seed));
+		return res;
+	}
+
+	private void addAdjacency(int a, int b, Set<Long> existing, int [] degree)
+	{
+		final long key = (long) Math.min(a, b) * numNodes + Math.max(a, b);
+		if (!existing.add(key)) return;
+		adjacencies.add(new int [] { a, b });
+		degree [a]++;
+		degree [b]++;
+	}
+
+	private double distance(int a, int b)
+	{
+		return Math.max(1, Math.hypot(xCoord [a] - xCoord [b], yCoord [a] - yCoord [b]));
+	}
+}
@@ -17,6 +17,7 @@ import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.internal.CommandLineParser;
 import com.net2plan.internal.Constants.UserInterface;
 import com.net2plan.internal.ErrorHandling;
+import com.net2plan.internal.Instrumentation;
 import com.net2plan.internal.SystemUtils;
 import com.net2plan.internal.Version;
 import com.net2plan.internal.plugins.ICLIModule;
@@ -25,8 +26,12 @@ import com.net2plan.internal.plugins.PluginSystem;
 import com.net2plan.utils.StringUtils;
 import org.apache.commons.cli.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -77,6 +82,11 @@ public class CLINet2Plan {
 
             options.addOptionGroup(group);
 
+            Option metricsOption = new Option("metrics", true, "Write the execution metrics (counters and timers of algorithms, reports, design changes, file input/output and simulation events) in JSON format, to the given file, or to the standard output if no file is given");
+            metricsOption.setArgName("file");
+            metricsOption.setOptionalArg(true);
+            options.addOption(metricsOption);
+
             CommandLineParser parser = new CommandLineParser();
             CommandLine cli = parser.parse(options, args);
 
@@ -90,6 +100,7 @@ public class CLINet2Plan {
 
                 if (modes.containsKey(mode)) {
                     ICLIModule modeInstance = modes.get(mode).newInstance();
+                    if (cli.hasOption("metrics")) Instrumentation.setEnabled(true);
 
                     try {
                         modeInstance.executeFromCommandLine(args);
@@ -121,6 +132,8 @@ public class CLINet2Plan {
                             ErrorHandling.printStackTrace(ex1);
                         }
                     }
+
+                    if (cli.hasOption("metrics")) writeMetrics(cli.getOptionValue("metrics"));
                 } else {
                     throw new IllegalModeException("Bad mode - " + mode);
                 }
@@ -141,6 +154,21 @@ public class CLINet2Plan {
         }
     }
 
+    private static void writeMetrics(String fileName) {
+        final String metrics = Instrumentation.toJson();
+        if (fileName == null) {
+            System.out.println();
+            System.out.println(metrics);
+            return;
+        }
+
+        try {
+            Files.write(new File(fileName).toPath(), metrics.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new Net2PlanException("Execution metrics could not be written to file " + fileName + ": " + e.getMessage());
+        }
+    }
+
     private String getModeHelp(String mode) {
         if (!modes.containsKey(mode)) throw new IllegalModeException("Bad mode - " + mode);
 
@@ -180,7 +208,7 @@ public class CLINet2Plan {
         } else {
             formatter.printHelp(w, LINE_WIDTH, "java -jar Net2Plan-cli.jar", null, options, 0, 1, null, true);
             formatter.printWrapped(w, LINE_WIDTH, "");
-            formatter.printWrapped(w, LINE_WIDTH, "Select 'help' to show this information, or 'mode' to execute a specific tool. Optionally, if 'help' is accompanied of a mode name, the help information for this mode is shown");
+            formatter.printWrapped(w, LINE_WIDTH, "Select 'help' to show this information, or 'mode' to execute a specific tool. Optionally, if 'help' is accompanied of a mode name, the help information for this mode is shown. Together with 'mode', 'metrics' reports where the execution time was spent");
         }
         w.flush();
         help.append(sw.toString());
@@ -14,6 +14,7 @@ package com.net2plan.cli.plugins;
 
 import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.internal.CommandLineParser;
+import com.net2plan.internal.Instrumentation;
 import com.net2plan.internal.plugins.ICLIModule;
 import com.net2plan.utils.ClassLoaderUtils;
 import com.net2plan.utils.StringUtils;
@@ -92,6 +93,7 @@ public class CLINetworkDesign extends ICLIModule
     }
 
     @Override
+    @SuppressWarnings("try")
     public void executeFromCommandLine(String[] args) throws ParseException
     {
         final CommandLineParser parser = new CommandLineParser();
@@ -156,7 +158,11 @@ public class CLINetworkDesign extends ICLIModule
         System.out.println();
 
         long init = System.nanoTime();
-        String out = algorithm.executeAlgorithm(netPlan, algorithmParameters, net2planParameters);
+        String out;
+        try (Instrumentation.Measurement measurement = Instrumentation.start(Instrumentation.Timer.ALGORITHM_EXECUTION, algorithm.getClass().getName()))
+        {
+            out = algorithm.executeAlgorithm(netPlan, algorithmParameters, net2planParameters);
+        }
         netPlan.saveToFile(outputFile);
         long end = System.nanoTime();
 
@@ -12,6 +12,7 @@
 
 package com.net2plan.cli.plugins;
 
+import static com.net2plan.internal.sim.SimKernel.runReplications;
 import static com.net2plan.internal.sim.SimKernel.runSimulation;
 
 import java.io.File;
@@ -110,6 +111,26 @@ public class CLIOnlineSimulation extends ICLIModule {
         eventProcessorClassName.setArgName("classname");
         eventProcessorClassName.setRequired(true);
         OPTIONS.addOption(eventProcessorClassName);
+
+        Option replications = new Option(null, "replications", true, "(Optional) Number of independent replications of the simulation, run in parallel. The report includes the mean, confidence interval and percentiles of the results among the replications. Default: 1 (single simulation)");
+        replications.setType(PatternOptionBuilder.NUMBER_VALUE);
+        replications.setArgName("number");
+        OPTIONS.addOption(replications);
+
+        Option threads = new Option(null, "threads", true, "(Optional) Maximum number of replications running at the same time. Default: number of available processors");
+        threads.setType(PatternOptionBuilder.NUMBER_VALUE);
+        threads.setArgName("number");
+        OPTIONS.addOption(threads);
+
+        Option seedParameter = new Option(null, "seed-param", true, "(Optional) Name of the " + generatorLabel.toLowerCase(Locale.getDefault()) + " and/or " + processorLabel.toLowerCase(Locale.getDefault()) + " parameter with the random seed. Replication i uses the configured seed plus i. Default: randomSeed");
+        seedParameter.setType(PatternOptionBuilder.STRING_VALUE);
+        seedParameter.setArgName("name");
+        OPTIONS.addOption(seedParameter);
+
+        Option confidenceLevel = new Option(null, "confidence-level", true, "(Optional) Confidence level of the intervals computed among the replications. Default: 0.95");
+        confidenceLevel.setType(PatternOptionBuilder.NUMBER_VALUE);
+        confidenceLevel.setArgName("value");
+        OPTIONS.addOption(confidenceLevel);
     }
 
     @Override
@@ -160,7 +181,19 @@ public class CLIOnlineSimulation extends ICLIModule {
 
 		/* Initialize and run simulation */
         NetPlan aux_netPlan = new NetPlan(inputFile);
-        String html = runSimulation(new SimKernel(), aux_netPlan, aux_eventGenerator, customEventGeneratorParameters, aux_eventProcessor, customEventProcessorParameters, customSimulationParameters, net2planParameters).getSecond();
+        int numReplications = cli.hasOption("replications") ? ((Number) cli.getParsedOptionValue("replications")).intValue() : 1;
+        String html;
+        if (numReplications == 1)
+        {
+            html = runSimulation(new SimKernel(), aux_netPlan, aux_eventGenerator, customEventGeneratorParameters, aux_eventProcessor, customEventProcessorParameters, customSimulationParameters, net2planParameters).getSecond();
+        }
+        else
+        {
+            int numThreads = cli.hasOption("threads") ? ((Number) cli.getParsedOptionValue("threads")).intValue() : Runtime.getRuntime().availableProcessors();
+            String seedParameterName = cli.hasOption("seed-param") ? (String) cli.getParsedOptionValue("seed-param") : "randomSeed";
+            double confidenceLevel = cli.hasOption("confidence-level") ? ((Number) cli.getParsedOptionValue("confidence-level")).doubleValue() : 0.95;
+            html = runReplications(aux_netPlan, aux_eventGenerator, customEventGeneratorParameters, aux_eventProcessor, customEventProcessorParameters, customSimulationParameters, net2planParameters, numReplications, numThreads, seedParameterName, confidenceLevel).getSecond();
+        }
         HTMLUtils.saveToFile(outputFile, html);
     }
 
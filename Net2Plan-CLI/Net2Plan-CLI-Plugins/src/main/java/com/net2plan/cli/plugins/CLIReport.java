@@ -16,6 +16,7 @@ import com.net2plan.interfaces.networkDesign.Configuration;
 import com.net2plan.interfaces.networkDesign.IReport;
 import com.net2plan.interfaces.networkDesign.NetPlan;
 import com.net2plan.internal.CommandLineParser;
+import com.net2plan.internal.Instrumentation;
 import com.net2plan.internal.plugins.ICLIModule;
 import com.net2plan.utils.ClassLoaderUtils;
 import com.net2plan.utils.HTMLUtils;
@@ -71,6 +72,7 @@ public class CLIReport extends ICLIModule {
     }
 
     @Override
+    @SuppressWarnings("try")
     public void executeFromCommandLine(String[] args) throws ParseException
     {
         CommandLineParser parser = new CommandLineParser();
@@ -107,7 +109,11 @@ public class CLIReport extends ICLIModule {
         System.out.println();
 
         long init = System.nanoTime();
-        String html = report.executeReport(netPlan, reportParameters, net2planParameters);
+        String html;
+        try (Instrumentation.Measurement measurement = Instrumentation.start(Instrumentation.Timer.REPORT_EXECUTION, report.getClass().getName()))
+        {
+            html = report.executeReport(netPlan, reportParameters, net2planParameters);
+        }
         long end = System.nanoTime();
 
         HTMLUtils.saveToFile(outputFile, html);
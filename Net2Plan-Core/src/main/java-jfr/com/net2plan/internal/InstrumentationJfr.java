@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal;
+
+import com.net2plan.internal.Instrumentation.Counter;
+import com.net2plan.internal.Instrumentation.Timer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.Timespan;
+
+/* Bridge between the instrumentation and the Java Flight Recorder. Only built with JDK 11 or later, and loaded (by reflection) in the runtimes with JFR */
+final class InstrumentationJfr extends Instrumentation.JfrRecorder
+{
+	@Name("com.net2plan.Operation")
+	@Label("Net2Plan Operation")
+	@Category("Net2Plan")
+	@Description("An algorithm or report execution, a design loaded from or saved to a file, or a consistency check of the design caches")
+	static final class OperationEvent extends Event
+	{
+		@Label("Operation")
+		String operation;
+
+		@Label("Detail")
+		String detail;
+	}
+
+	@Name("com.net2plan.Metrics")
+	@Label("Net2Plan Metrics")
+	@Category("Net2Plan")
+	@Description("Values of the Net2Plan counters, accumulated since the start or the last reset")
+	@Period("1 s")
+	static final class MetricsEvent extends Event
+	{
+		@Label("Routes Added")
+		long routesAdded;
+
+		@Label("Routes Removed")
+		long routesRemoved;
+
+		@Label("Forwarding Rules Set")
+		long forwardingRulesSet;
+
+		@Label("Cache Consistency Checks")
+		long cacheConsistencyChecks;
+
+		@Label("Simulation Events Dispatched")
+		long simulationEventsDispatched;
+
+		@Label("Simulation Event Dispatch Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long simulationEventDispatchTime;
+	}
+
+	InstrumentationJfr ()
+	{
+		FlightRecorder.addPeriodicEvent(MetricsEvent.class , () ->
+		{
+			final MetricsEvent event = new MetricsEvent();
+			event.routesAdded = Instrumentation.getCount(Counter.ROUTES_ADDED);
+			event.routesRemoved = Instrumentation.getCount(Counter.ROUTES_REMOVED);
+			event.forwardingRulesSet = Instrumentation.getCount(Counter.FORWARDING_RULES_SET);
+			event.cacheConsistencyChecks = Instrumentation.getCount(Timer.CACHE_CONSISTENCY_CHECK);
+			event.simulationEventsDispatched = Instrumentation.getCount(Timer.SIMULATION_EVENT_DISPATCH);
+			event.simulationEventDispatchTime = Instrumentation.getTotalNanos(Timer.SIMULATION_EVENT_DISPATCH);
+			event.commit();
+		});
+		FlightRecorder.addListener(new FlightRecorderListener()
+		{
+			@Override
+			public void recorderInitialized (FlightRecorder recorder) { Instrumentation.setJfrRecording(isAnyRecordingRunning(recorder)); }
+
+			@Override
+			public void recordingStateChanged (Recording recording) { Instrumentation.setJfrRecording(isAnyRecordingRunning(FlightRecorder.getFlightRecorder())); }
+		});
+	}
+
+	@Override
+	Object begin (Timer timer , String detail)
+	{
+		final OperationEvent event = new OperationEvent();
+		if (!event.isEnabled()) return null;
+		event.operation = timer.getName();
+		event.detail = detail;
+		event.begin();
+		return event;
+	}
+
+	@Override
+	void end (Object event)
+	{
+		final OperationEvent operationEvent = (OperationEvent) event;
+		operationEvent.end();
+		operationEvent.commit();
+	}
+
+	private static boolean isAnyRecordingRunning (FlightRecorder recorder)
+	{
+		for (Recording recording : recorder.getRecordings())
+			if (recording.getState() == RecordingState.RUNNING) return true;
+		return false;
+	}
+}
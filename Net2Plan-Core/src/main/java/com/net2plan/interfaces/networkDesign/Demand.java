@@ -22,7 +22,9 @@ import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import com.google.common.collect.Sets;
 import com.net2plan.internal.AttributeMap;
+import com.net2plan.internal.Constants.NetworkElementType;
 import com.net2plan.internal.ErrorHandling;
+import com.net2plan.internal.Instrumentation;
 import com.net2plan.libraries.GraphUtils;
 import com.net2plan.libraries.GraphUtils.ClosedCycleRoutingException;
 import com.net2plan.libraries.TrafficPredictor;
@@ -111,7 +113,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	Demand (NetPlan netPlan , long id , int index , NetworkLayer layer , Node ingressNode , Node egressNode , double offeredTraffic , RoutingType routingType , AttributeMap attributes)
 	{
 		super (netPlan , id , index , attributes);
-		this.setName ("Demand-" + index);
+		this.name = "Demand-" + index;
 		
 		if (ingressNode.equals (egressNode)) throw new Net2PlanException("Self-demands are not allowed");
 		if (offeredTraffic < 0) throw new Net2PlanException("Offered traffic must be non-negative");
@@ -123,12 +125,12 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		this.carriedTraffic = 0;
 		this.routingType = routingType;
 		this.routingCycleType = RoutingCycleType.LOOPLESS;
-		this.cache_routes = new TreeSet<Route> ();
+		this.cache_routes = new ElementSortedSet<Route> ();
 		this.coupledUpperOrSameLayerLink = null;
 		this.mandatorySequenceOfTraversedResourceTypes = new ArrayList<String> ();
 		this.recoveryType = IntendedRecoveryType.NOTSPECIFIED;
-		this.cacheHbH_frs = new TreeMap<> ();
-		this.cacheHbH_normCarriedOccupiedPerLinkCurrentState = new TreeMap<> ();
+		this.cacheHbH_frs = new ElementSortedMap<> ();
+		this.cacheHbH_normCarriedOccupiedPerLinkCurrentState = new ElementSortedMap<> ();
 		this.cacheHbH_linksPerNodeWithNonZeroFr = new TreeMap<> ();
 		this.cache_worstCasePropagationTimeMs = 0;
 		this.cache_worstCaseLengthInKm = 0;
@@ -138,7 +140,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		this.qosType = null;
 		final boolean previousDebug = ErrorHandling.DEBUG;
 		ErrorHandling.DEBUG = false;
-		this.setQoSType("");
+		this.updateQoSType("");
 		this.monitoredOrForecastedTraffics = new TrafficSeries ();
 		this.trafficPredictor = null;
 		ErrorHandling.DEBUG = previousDebug;
@@ -160,7 +162,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		this.routingType = origin.routingType;
 		this.routingCycleType = origin.routingCycleType;
 		this.coupledUpperOrSameLayerLink = origin.coupledUpperOrSameLayerLink == null? null : this.netPlan.getLinkFromId (origin.coupledUpperOrSameLayerLink.id);
-		this.cache_routes = new TreeSet<Route> ();
+		this.cache_routes = new ElementSortedSet<Route> ();
 		for (Route r : origin.cache_routes) this.cache_routes.add(this.netPlan.getRouteFromId(r.id));
 		this.mandatorySequenceOfTraversedResourceTypes = new ArrayList<String> (origin.mandatorySequenceOfTraversedResourceTypes);
 		this.recoveryType = origin.recoveryType;
@@ -223,6 +225,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setOfferedTrafficPerPeriodGrowthFactor (double growthFactor)
 	{
+		netPlan.checkIsModifiable();
 		if (growthFactor < -1) throw new Net2PlanException ("The growth factor cannot be lower than -1");
 		this.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = growthFactor;
 	}
@@ -239,6 +242,12 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	 * @param newQosType  see above
 	 */
 	public void setQoSType (String newQosType)
+	{
+		netPlan.checkIsModifiable();
+		updateQoSType (newQosType);
+	}
+
+	private void updateQoSType (String newQosType)
 	{
 		if (newQosType == null) throw new Net2PlanException ("Wrong value");
 		if (this.qosType != null)
@@ -270,6 +279,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setMaximumAcceptableE2EWorstCaseLatencyInMs (double maxLatencyMs)
 	{
+		netPlan.checkIsModifiable();
 		this.maximumAcceptableE2EWorstCaseLatencyInMs = maxLatencyMs;
 	}
 
@@ -303,7 +313,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	/** Sets the intended recovery type for this demand
 	 * @param recoveryType the recovery type
 	 */
-	public void setIntendedRecoveryType (IntendedRecoveryType recoveryType) { this.recoveryType = recoveryType; }
+	public void setIntendedRecoveryType (IntendedRecoveryType recoveryType) { netPlan.checkIsModifiable(); this.recoveryType = recoveryType; }
 	
 	/**
 	 * <p>Returns the routes associated to this demand.</p>
@@ -512,6 +522,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setServiceChainSequenceOfTraversedResourceTypes (List<String> resourceTypesSequence)
 	{
+		netPlan.checkIsModifiable();
 		if (routingType != RoutingType.SOURCE_ROUTING) throw new Net2PlanException ("The routing type must be SOURCE ROUTING");
 		if (!cache_routes.isEmpty()) throw new Net2PlanException ("The demand must not have routes to execute this method");
 		if (resourceTypesSequence == null)
@@ -698,14 +709,18 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setBidirectionalPair(Demand d)
 	{
+		checkAttachedToNetPlanObject();
+		/* the pairs of the routes removed here are not journaled */
+		netPlan.checkIsModifiable(d == null || this.bidirectionalPair == d || this.bidirectionalPair == null || cache_routes.isEmpty());
 		if (d == null)
 		{
+			if (netPlan.journal != null) netPlan.journal.recordBidirectionalPairChange(this, bidirectionalPair, null, null);
 			if (bidirectionalPair != null) { this.bidirectionalPair.bidirectionalPair = null; this.bidirectionalPair = null; }
 			return;
 		}
-		checkAttachedToNetPlanObject();
 		d.checkAttachedToNetPlanObject(this.netPlan);
 		if (this.bidirectionalPair == d) return;
+		if (netPlan.journal != null && (this.bidirectionalPair == null || cache_routes.isEmpty())) netPlan.journal.recordBidirectionalPairChange(this, bidirectionalPair, d, d.bidirectionalPair);
 		if (this.bidirectionalPair != null)
 		    for (Route r : getRoutes()) 
 		        r.bidirectionalPair = null;
@@ -822,6 +837,8 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		link.updateCapacityAndZeroCapacityLinksAndRoutesCaches(carriedTraffic);
 		link.coupledLowerOrThisLayerDemand = this;
 		this.coupledUpperOrSameLayerLink = link;
+		netPlan.notifyStructuralChange(NetworkElementType.DEMAND);
+		netPlan.notifyStructuralChange(NetworkElementType.LINK);
 		link.layer.cache_coupledLinks.add (link);
 		this.layer.cache_coupledDemands.add (this);
 		if (!sameLayerCoupling) coupling_thisLayerPair.put(this, link);
@@ -868,6 +885,8 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 
 		link.coupledLowerOrThisLayerDemand = null;
 		this.coupledUpperOrSameLayerLink = null;
+		netPlan.notifyStructuralChange(NetworkElementType.DEMAND);
+		netPlan.notifyStructuralChange(NetworkElementType.LINK);
 		link.layer.cache_coupledLinks.remove (link);
 		this.layer.cache_coupledDemands.remove(this);
 		if (upperLayer != lowerLayer)
@@ -992,6 +1011,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
 		netPlan.cache_id2DemandMap.remove(id);
+		netPlan.notifyStructureChanged();
 		NetPlan.removeNetworkElementAndShiftIndexes (layer.demands , index);
 		ingressNode.cache_nodeOutgoingDemands.remove (this);
 		egressNode.cache_nodeIncomingDemands.remove (this);
@@ -1015,9 +1035,11 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	{
 		offeredTraffic = NetPlan.adjustToTolerance(offeredTraffic);
 		if (offeredTraffic == this.offeredTraffic) return;
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
 		if (offeredTraffic < 0) throw new Net2PlanException("Offered traffic must be greater or equal than zero");
+		if (netPlan.journal != null) netPlan.journal.recordOfferedTrafficChange(this, this.offeredTraffic, offeredTraffic);
 		this.offeredTraffic = offeredTraffic;
+		netPlan.notifyDemandChanged(this);
 		if (!isSourceRouting()) updateHopByHopRoutingToGivenFrs(this.cacheHbH_frs);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
@@ -1124,7 +1146,29 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		checkRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
 		return this.cacheHbH_frs.keySet().stream().filter(e->cacheHbH_frs.get(e) != 0).collect(Collectors.toCollection(TreeSet::new));
 	}
-	
+
+	/** Returns the number of forwarding rules defined for this demand (with non-zero split factor)
+	 * @return see above
+	 * @since 0.6.6
+	 */
+	public int getNumberOfForwardingRules ()
+	{
+		checkRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+		return cacheHbH_frs.size();
+	}
+
+	/** Returns the splitting factor of the forwarding rule of this demand in the given link, or zero if no rule is defined for it
+	 * @param e the link
+	 * @return see above
+	 * @since 0.6.6
+	 */
+	public double getForwardingRuleSplittingFactor (Link e)
+	{
+		checkRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+		final Double res = cacheHbH_frs.get(e);
+		return res == null? 0.0 : res;
+	}
+
 	/** Returns the set of links in this layer that could potentially carry traffic of this demand, according to the routes/forwarding rules defined, 
 	 * if the routes had carried traffic / (hop-by-hop) the demand had offered traffic different to zero.
 	 * The method returns  a pair of sets (disjoint or not), first set with the set of links potentially carrying primary traffic and 
@@ -1210,31 +1254,92 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	/* Updates all the network state, to the new situation where the hop-by-hop routing of a demand has changed */
 	void updateHopByHopRoutingToGivenFrs (SortedMap<Link,Double> newFrsWithoutZeros)
 	{
-		final SortedSet<Link> affectedLinks = new TreeSet<>(Sets.union(newFrsWithoutZeros.keySet() , cacheHbH_frs.keySet()));
-		
-		/* set 0 in the down links and the link in-out from the down nodes (they do not send traffic) */
-		/* update the cache per node (include failed links if fr > 0) */
-		SortedMap<Link,Double> frsToApply = new TreeMap<> ();
-		SortedMap<Node,SortedSet<Link>> tentativeCacheHbH_linksPerNodeWithNonZeroFr = new TreeMap<> (); // tentative since if closed cycles => not used
-		for (Entry<Link,Double> fr : newFrsWithoutZeros.entrySet())
+		final HopByHopRoutingUpdate update = new HopByHopRoutingUpdate(newFrsWithoutZeros);
+		update.propagation = new HopByHopRoutingPropagation(netPlan, update.frsToApply);
+		applyHopByHopRoutingUpdate(update);
+	}
+
+	/* Updates the hop-by-hop routing of the given demands, as if updateHopByHopRoutingToGivenFrs was called for each demand in order. The demands are
+	 * grouped per egress node, and the traffic propagation of each group is computed in parallel, sharing it among the demands with the same rules. 
+	 * Then, the network state is updated sequentially. The demands with rules that cannot be propagated (e.g. with cycles) are computed then, in order */
+	static void updateHopByHopRoutingOfDemandsToGivenFrs (SortedMap<Demand,SortedMap<Link,Double>> newFrsWithoutZerosPerDemand)
+	{
+		if (newFrsWithoutZerosPerDemand.isEmpty()) return;
+		final NetPlan np = newFrsWithoutZerosPerDemand.firstKey().netPlan;
+		final List<HopByHopRoutingUpdate> updates = new ArrayList<> (newFrsWithoutZerosPerDemand.size());
+		final SortedMap<Node,List<HopByHopRoutingUpdate>> updatesPerEgressNode = new TreeMap<> ();
+		for (Entry<Demand,SortedMap<Link,Double>> entry : newFrsWithoutZerosPerDemand.entrySet())
 		{
-			final Link e = fr.getKey();
-			final Node a_e = e.getOriginNode();
-			final double f_e = fr.getValue();
-			if (f_e == 0) continue;
-			SortedSet<Link> set = tentativeCacheHbH_linksPerNodeWithNonZeroFr.get(a_e); if (set == null) { set = new TreeSet<> (); tentativeCacheHbH_linksPerNodeWithNonZeroFr.put(a_e, set); }
-			set.add(e);
-			if (e.isDown() || e.getOriginNode().isDown() || e.getDestinationNode().isDown()) continue;
-			frsToApply.put(e, f_e);
+			final HopByHopRoutingUpdate update = entry.getKey().new HopByHopRoutingUpdate(entry.getValue());
+			updates.add(update);
+			List<HopByHopRoutingUpdate> list = updatesPerEgressNode.get(entry.getKey().egressNode);
+			if (list == null) { list = new ArrayList<> (); updatesPerEgressNode.put(entry.getKey().egressNode, list); }
+			list.add(update);
 		}
-		
-		Quintuple<DoubleMatrix1D, RoutingCycleType , Double , Double , Double> fundMatrixComputation = 
-				GraphUtils.computeRoutingFundamentalVector(frsToApply, tentativeCacheHbH_linksPerNodeWithNonZeroFr , ingressNode ,  egressNode);
+		final List<List<HopByHopRoutingUpdate>> batches = new ArrayList<> (updatesPerEgressNode.values());
+		(batches.size() > 1? batches.parallelStream() : batches.stream()).forEach(batch -> 
+		{
+			final List<HopByHopRoutingPropagation> propagations = new ArrayList<> (1);
+			for (HopByHopRoutingUpdate update : batch)
+			{
+				HopByHopRoutingPropagation propagation = null;
+				for (HopByHopRoutingPropagation p : propagations) if (p.hasSameForwardingRules(update.frsToApply)) { propagation = p; break; }
+				if (propagation == null) { propagation = new HopByHopRoutingPropagation(np, update.frsToApply); propagations.add(propagation); }
+				update.propagation = propagation;
+				if (propagation.isPropagable(update.getDemand().ingressNode, update.getDemand().egressNode)) update.computeRoutingFundamentalVector();
+			}
+		});
+		for (HopByHopRoutingUpdate update : updates) update.getDemand().applyHopByHopRoutingUpdate(update);
+	}
+
+	/* The new forwarding rules of a demand, and the routing information computed from them, that does not modify the network state */
+	private class HopByHopRoutingUpdate
+	{
+		private final SortedMap<Link,Double> newFrsWithoutZeros;
+		private final SortedMap<Link,Double> frsToApply = new TreeMap<> ();
+		private final SortedMap<Node,SortedSet<Link>> tentativeCacheHbH_linksPerNodeWithNonZeroFr = new TreeMap<> (); // tentative since if closed cycles => not used
+		private HopByHopRoutingPropagation propagation;
+		private Quintuple<DoubleMatrix1D, RoutingCycleType , Double , Double , Double> fundMatrixComputation;
+
+		private HopByHopRoutingUpdate (SortedMap<Link,Double> newFrsWithoutZeros)
+		{
+			this.newFrsWithoutZeros = newFrsWithoutZeros;
+			/* set 0 in the down links and the link in-out from the down nodes (they do not send traffic) */
+			/* update the cache per node (include failed links if fr > 0) */
+			for (Entry<Link,Double> fr : newFrsWithoutZeros.entrySet())
+			{
+				final Link e = fr.getKey();
+				final Node a_e = e.getOriginNode();
+				final double f_e = fr.getValue();
+				if (f_e == 0) continue;
+				SortedSet<Link> set = tentativeCacheHbH_linksPerNodeWithNonZeroFr.get(a_e); if (set == null) { set = new TreeSet<> (); tentativeCacheHbH_linksPerNodeWithNonZeroFr.put(a_e, set); }
+				set.add(e);
+				if (e.isDown() || e.getOriginNode().isDown() || e.getDestinationNode().isDown()) continue;
+				frsToApply.put(e, f_e);
+			}
+		}
+
+		private void computeRoutingFundamentalVector ()
+		{
+			this.fundMatrixComputation = propagation.computeRoutingFundamentalVector(tentativeCacheHbH_linksPerNodeWithNonZeroFr , ingressNode , egressNode);
+		}
+
+		private Demand getDemand () { return Demand.this; }
+	}
+
+	private void applyHopByHopRoutingUpdate (HopByHopRoutingUpdate update)
+	{
+		if (update.fundMatrixComputation == null) update.computeRoutingFundamentalVector();
+		final SortedMap<Link,Double> newFrsWithoutZeros = update.newFrsWithoutZeros;
+		final SortedMap<Link,Double> frsToApply = update.frsToApply;
+		final Quintuple<DoubleMatrix1D, RoutingCycleType , Double , Double , Double> fundMatrixComputation = update.fundMatrixComputation;
+		final SortedSet<Link> affectedLinks = new TreeSet<>(Sets.union(newFrsWithoutZeros.keySet() , cacheHbH_frs.keySet()));
 		if (fundMatrixComputation.getSecond() == RoutingCycleType.CLOSED_CYCLES) 
 		{
 			System.out.println("Demand: " + this + ", ingress: " + ingressNode+ " -> egress: " + egressNode + ", frs: " + newFrsWithoutZeros);
 			throw new ClosedCycleRoutingException("Closed routing cycle for demand " + this);
 		}
+		Instrumentation.add(Instrumentation.Counter.FORWARDING_RULES_SET, newFrsWithoutZeros.size());
 		DoubleMatrix1D M = fundMatrixComputation.getFirst ();
 		this.routingCycleType = fundMatrixComputation.getSecond();
 		double s_egressNode = fundMatrixComputation.getThird();
@@ -1242,8 +1347,9 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 		this.cache_worstCaseLengthInKm = fundMatrixComputation.getFifth();
 
 		/* update different caches */
-		this.cacheHbH_linksPerNodeWithNonZeroFr = tentativeCacheHbH_linksPerNodeWithNonZeroFr;
+		this.cacheHbH_linksPerNodeWithNonZeroFr = update.tentativeCacheHbH_linksPerNodeWithNonZeroFr;
 		carriedTraffic = offeredTraffic * M.get(egressNode.index) * s_egressNode;
+		netPlan.notifyDemandChanged(this);
 		if (coupledUpperOrSameLayerLink != null)
 			coupledUpperOrSameLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(carriedTraffic);
 
@@ -1275,13 +1381,14 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 			}
 			link.cache_totalCarriedTraffic += newXdeOccup - oldXdeOccup; // in hop-by-hop carried traffic is the same as occupied capacity
 			link.cache_totalOccupiedCapacity += newXdeOccup - oldXdeOccup;
+			netPlan.notifyLinkChanged(link);
 			assert !((newXdeNormalized > 1e-3) && (!link.isUp));
 		}
 		
 		/* update the cache_frs in the link and demand */
 		for (Link e : this.cacheHbH_frs.keySet())
 			e.cacheHbH_frs.remove(this);
-		this.cacheHbH_frs = new TreeMap<> (newFrsWithoutZeros);
+		this.cacheHbH_frs = new ElementSortedMap<> (newFrsWithoutZeros);
 		for (Entry<Link,Double> fr : this.cacheHbH_frs.entrySet())
 			fr.getKey().cacheHbH_frs.put(this , fr.getValue());
 		
@@ -1334,7 +1441,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	/** Sets the new time series for the monitored or forecasted offered traffic, eliminating any previous values 
 	 * @param newTimeSeries  see above
 	 */
-	public void setMonitoredOrForecastedOfferedTraffic (TrafficSeries newTimeSeries) { this.monitoredOrForecastedTraffics = new TrafficSeries (newTimeSeries.getValues()); }
+	public void setMonitoredOrForecastedOfferedTraffic (TrafficSeries newTimeSeries) { netPlan.checkIsModifiable(); this.monitoredOrForecastedTraffics = newTimeSeries.getCopy(); }
 
 	@Override
 	public TrafficSeries getMonitoredOrForecastedCarriedTraffic()
@@ -1345,6 +1452,7 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	@Override
 	public void setMonitoredOrForecastedCarriedTraffic(TrafficSeries newTimeSeries) 
 	{
+		netPlan.checkIsModifiable();
 		this.monitoredOrForecastedTraffics = newTimeSeries;
 	}
 
@@ -1375,12 +1483,14 @@ public class Demand extends NetworkElement implements IMonitorizableElement
 	@Override
 	public void setTrafficPredictor(TrafficPredictor tp) 
 	{
+		netPlan.checkIsModifiable();
 		this.trafficPredictor = tp;
 	}
 
 	@Override
 	public void removeTrafficPredictor() 
 	{
+		netPlan.checkIsModifiable();
 		this.trafficPredictor = null;
 	}
 
@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * <p>Map with network elements of the same design as keys, sorted by identifier (the order of {@link NetworkElement#compareTo(NetworkElement)}), used for the internal caches of the elements.</p>
+ * <p>The keys and values are stored in two arrays, and a hash map of primitive identifiers gives the position of each key (small maps just scan the array of keys).
+ * Then, getting, adding and removing a mapping is constant time and does not compare elements, and no entry object is created per mapping. The removed mappings leave a hole in the arrays, which are compacted when
+ * the holes are more than the mappings. Since the identifiers of the elements are increasing, the new keys are usually added in order. If not, the new key is
+ * inserted in its position, moving the larger keys. Then, the arrays are always sorted, and reading or traversing the map never modifies it, so several threads
+ * can read the map at the same time (as long as no thread modifies it).</p>
+ * <p>The key set is an unmodifiable view. The sub-map views ({@code headMap}, {@code tailMap}, {@code subMap}) are unmodifiable copies, not backed by the map.</p>
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+class ElementSortedMap<K extends NetworkElement,V> extends AbstractMap<K,V> implements SortedMap<K,V>
+{
+	private static final NetworkElement [] EMPTY_KEYS = new NetworkElement [0];
+	private static final Object [] EMPTY_VALUES = new Object [0];
+	private static final int MAX_POSITIONS_WITHOUT_HASH = 8;
+
+	private final boolean storeValues;
+	private LongIntHashMap positions = null; // null if the keys array is small
+	private int size = 0;
+	private NetworkElement [] keys = EMPTY_KEYS; // null in the removed positions
+	private Object [] values; // null if the values are not stored
+	private int end = 0; // positions used in the arrays
+	private int modCount = 0;
+	private Set<Map.Entry<K,V>> entrySet = null;
+
+	ElementSortedMap ()
+	{
+		this (true);
+	}
+
+	ElementSortedMap (Map<? extends K,? extends V> m)
+	{
+		this (true);
+		putAll (m);
+	}
+
+	/* If the values are not stored (for the sets), get returns always null */
+	ElementSortedMap (boolean storeValues)
+	{
+		this.storeValues = storeValues;
+		this.values = storeValues? EMPTY_VALUES : null;
+	}
+
+	@Override
+	public int size () { return size; }
+
+	@Override
+	public boolean isEmpty () { return size == 0; }
+
+	@Override
+	public boolean containsKey (Object key)
+	{
+		if (!(key instanceof NetworkElement)) return false;
+		return find(((NetworkElement) key).id) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get (Object key)
+	{
+		if (!storeValues || !(key instanceof NetworkElement)) return null;
+		final int pos = find(((NetworkElement) key).id);
+		return pos < 0? null : (V) values [pos];
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put (K key , V value)
+	{
+		if (key == null) throw new NullPointerException ();
+		final int pos = find(key.id);
+		if (pos >= 0)
+		{
+			if (!storeValues) return null;
+			final V previous = (V) values [pos];
+			values [pos] = value;
+			return previous;
+		}
+		if (end == keys.length)
+		{
+			if (end - size > size) rebuild ();
+			else
+			{
+				final int newLength = Math.max(4 , 2 * keys.length);
+				keys = Arrays.copyOf(keys , newLength);
+				if (storeValues) values = Arrays.copyOf(values , newLength);
+			}
+		}
+		/* The position after the last smaller key. If it is not a hole, the larger keys are moved one position */
+		int insertPos = end;
+		while ((insertPos > 0) && ((keys [insertPos - 1] == null) || (keys [insertPos - 1].id > key.id))) insertPos --;
+		if ((insertPos == end) || (keys [insertPos] != null))
+		{
+			System.arraycopy(keys , insertPos , keys , insertPos + 1 , end - insertPos);
+			if (storeValues) System.arraycopy(values , insertPos , values , insertPos + 1 , end - insertPos);
+			if (positions != null) for (int cont = insertPos + 1; cont <= end ; cont ++) if (keys [cont] != null) positions.put(keys [cont].id , cont);
+			end ++;
+		}
+		keys [insertPos] = key;
+		if (storeValues) values [insertPos] = value;
+		if (positions != null) positions.put(key.id , insertPos);
+		else if (end > MAX_POSITIONS_WITHOUT_HASH) { positions = new LongIntHashMap (); for (int cont = 0; cont < end ; cont ++) if (keys [cont] != null) positions.put(keys [cont].id , cont); }
+		size ++;
+		modCount ++;
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove (Object key)
+	{
+		if (!(key instanceof NetworkElement)) return null;
+		final long id = ((NetworkElement) key).id;
+		final int pos = positions != null? positions.remove(id) : find(id);
+		if (pos < 0) return null;
+		size --;
+		modCount ++;
+		final V previous = storeValues? (V) values [pos] : null;
+		keys [pos] = null;
+		if (storeValues) values [pos] = null;
+		if (size == 0) clearArrays ();
+		else if ((keys.length > 16) && (4 * size < keys.length)) rebuild ();
+		return previous;
+	}
+
+	/* Like remove, but returns if the key was in the map */
+	boolean removeKey (Object key)
+	{
+		if (!containsKey(key)) return false;
+		remove (key);
+		return true;
+	}
+
+	/* The new keys are added in order, so the keys already in the map are moved at most once */
+	@Override
+	public void putAll (Map<? extends K,? extends V> m)
+	{
+		if (m instanceof SortedMap) { super.putAll(m); return; }
+		final List<Map.Entry<? extends K,? extends V>> entries = new ArrayList<> (m.entrySet());
+		entries.sort((e1 , e2) -> Long.compare(e1.getKey().id , e2.getKey().id));
+		for (Map.Entry<? extends K,? extends V> entry : entries) put (entry.getKey() , entry.getValue());
+	}
+
+	@Override
+	public void clear ()
+	{
+		size = 0;
+		clearArrays ();
+		modCount ++;
+	}
+
+	@Override
+	public SortedSet<K> keySet () { return Collections.unmodifiableSortedSet(new KeySet ()); }
+
+	@Override
+	public Set<Map.Entry<K,V>> entrySet ()
+	{
+		if (entrySet == null) entrySet = new AbstractSet<Map.Entry<K,V>> ()
+		{
+			@Override
+			public int size () { return ElementSortedMap.this.size (); }
+
+			@Override
+			public Iterator<Map.Entry<K,V>> iterator () { return new EntryIterator (); }
+		};
+		return entrySet;
+	}
+
+	@Override
+	public Comparator<? super K> comparator () { return null; }
+
+	Iterator<K> keyIterator ()
+	{
+		return new BaseIterator<K> ()
+		{
+			@SuppressWarnings("unchecked")
+			@Override
+			public K next () { return (K) itKeys [nextPosition ()]; }
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public K firstKey ()
+	{
+		if (isEmpty ()) throw new NoSuchElementException ();
+		for (int pos = 0; pos < end ; pos ++) if (keys [pos] != null) return (K) keys [pos];
+		throw new IllegalStateException ("The map has " + size + " keys, but none is stored in its arrays");
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public K lastKey ()
+	{
+		if (isEmpty ()) throw new NoSuchElementException ();
+		for (int pos = end - 1; pos >= 0 ; pos --) if (keys [pos] != null) return (K) keys [pos];
+		throw new IllegalStateException ("The map has " + size + " keys, but none is stored in its arrays");
+	}
+
+	@Override
+	public SortedMap<K,V> subMap (K fromKey , K toKey) { return Collections.unmodifiableSortedMap(new TreeMap<K,V> (this).subMap(fromKey , toKey)); }
+
+	@Override
+	public SortedMap<K,V> headMap (K toKey) { return Collections.unmodifiableSortedMap(new TreeMap<K,V> (this).headMap(toKey)); }
+
+	@Override
+	public SortedMap<K,V> tailMap (K fromKey) { return Collections.unmodifiableSortedMap(new TreeMap<K,V> (this).tailMap(fromKey)); }
+
+	private int find (long id)
+	{
+		if (positions != null) return positions.get(id);
+		for (int pos = 0; pos < end ; pos ++)
+		{
+			final NetworkElement e = keys [pos];
+			if ((e != null) && (e.id == id)) return pos;
+		}
+		return -1;
+	}
+
+	private void clearArrays ()
+	{
+		positions = null;
+		keys = EMPTY_KEYS;
+		if (storeValues) values = EMPTY_VALUES;
+		end = 0;
+	}
+
+	/* Creates new arrays without the removed positions, and updates the positions map */
+	private void rebuild ()
+	{
+		final int newLength = Math.max(4 , size + size / 2);
+		final NetworkElement [] newKeys = new NetworkElement [newLength];
+		final Object [] newValues = storeValues? new Object [newLength] : null;
+		int counter = 0;
+		for (int pos = 0; pos < end ; pos ++)
+		{
+			if (keys [pos] == null) continue;
+			newKeys [counter] = keys [pos];
+			if (storeValues) newValues [counter] = values [pos];
+			counter ++;
+		}
+		if (counter != size) throw new IllegalStateException ("The map size is " + size + ", but " + counter + " keys are stored in its arrays");
+		if (size < MAX_POSITIONS_WITHOUT_HASH) positions = null;
+		else
+		{
+			if (positions == null) positions = new LongIntHashMap ();
+			positions.clear(size);
+			for (int pos = 0; pos < size ; pos ++) positions.put(newKeys [pos].id , pos);
+		}
+		keys = newKeys;
+		values = newValues;
+		end = size;
+	}
+
+	private abstract class BaseIterator<T> implements Iterator<T>
+	{
+		final NetworkElement [] itKeys;
+		final Object [] itValues;
+		final int itEnd;
+		int expectedModCount;
+		int next = 0;
+		int lastReturned = -1;
+
+		/* The iterators keep the arrays they started with, which are not compacted in place, so iterating does not disturb other running iterators */
+		BaseIterator ()
+		{
+			this.itKeys = keys;
+			this.itValues = values;
+			this.itEnd = end;
+			this.expectedModCount = modCount;
+			advance ();
+		}
+
+		private void advance ()
+		{
+			while ((next < itEnd) && (itKeys [next] == null)) next ++;
+		}
+
+		@Override
+		public boolean hasNext () { return next < itEnd; }
+
+		int nextPosition ()
+		{
+			if (modCount != expectedModCount) throw new ConcurrentModificationException ();
+			if (next >= itEnd) throw new NoSuchElementException ();
+			lastReturned = next ++;
+			advance ();
+			return lastReturned;
+		}
+
+		@Override
+		public void remove ()
+		{
+			if (lastReturned < 0) throw new IllegalStateException ();
+			if (modCount != expectedModCount) throw new ConcurrentModificationException ();
+			ElementSortedMap.this.remove(itKeys [lastReturned]);
+			lastReturned = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	private final class EntryIterator extends BaseIterator<Map.Entry<K,V>>
+	{
+		@SuppressWarnings("unchecked")
+		@Override
+		public Map.Entry<K,V> next ()
+		{
+			final int pos = nextPosition ();
+			final K key = (K) itKeys [pos];
+			final V value = storeValues? (V) itValues [pos] : null;
+			return new AbstractMap.SimpleEntry<K,V> (key , value)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public V setValue (V newValue)
+				{
+					if (!containsKey(key)) throw new IllegalStateException ();
+					put (key , newValue);
+					return super.setValue(newValue);
+				}
+			};
+		}
+	}
+
+	/* The key set view */
+	private final class KeySet extends AbstractSet<K> implements SortedSet<K>
+	{
+		@Override
+		public int size () { return ElementSortedMap.this.size (); }
+
+		@Override
+		public boolean isEmpty () { return ElementSortedMap.this.isEmpty (); }
+
+		@Override
+		public boolean contains (Object o) { return containsKey(o); }
+
+		@Override
+		public Iterator<K> iterator () { return keyIterator (); }
+
+		@Override
+		public Comparator<? super K> comparator () { return null; }
+
+		@Override
+		public K first () { return firstKey (); }
+
+		@Override
+		public K last () { return lastKey (); }
+
+		@Override
+		public SortedSet<K> subSet (K fromElement , K toElement) { return Collections.unmodifiableSortedSet(new TreeSet<K> (this).subSet(fromElement , toElement)); }
+
+		@Override
+		public SortedSet<K> headSet (K toElement) { return Collections.unmodifiableSortedSet(new TreeSet<K> (this).headSet(toElement)); }
+
+		@Override
+		public SortedSet<K> tailSet (K fromElement) { return Collections.unmodifiableSortedSet(new TreeSet<K> (this).tailSet(fromElement)); }
+	}
+}
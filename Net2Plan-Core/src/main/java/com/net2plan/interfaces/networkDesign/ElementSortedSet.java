@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Set of network elements of the same design, sorted by identifier, used for the internal caches of the elements. It keeps the elements as the keys
+ * of an {@link ElementSortedMap} that does not store values, so adding, removing and checking an element is constant time and does not compare elements.
+ * The sub-set views ({@code headSet}, {@code tailSet}, {@code subSet}) are unmodifiable copies, not backed by the set.
+ *
+ * @param <E> Type of the elements
+ */
+class ElementSortedSet<E extends NetworkElement> extends AbstractSet<E> implements SortedSet<E>
+{
+	private final ElementSortedMap<E,Object> map = new ElementSortedMap<E,Object> (false);
+
+	ElementSortedSet () { }
+
+	ElementSortedSet (Collection<? extends E> c)
+	{
+		addAll (c);
+	}
+
+	@Override
+	public int size () { return map.size (); }
+
+	@Override
+	public boolean isEmpty () { return map.isEmpty (); }
+
+	@Override
+	public boolean contains (Object o) { return map.containsKey(o); }
+
+	@Override
+	public boolean add (E e)
+	{
+		if (map.containsKey(e)) return false;
+		map.put(e , null);
+		return true;
+	}
+
+	/* The elements are added in order, so the elements already in the set are moved at most once */
+	@Override
+	public boolean addAll (Collection<? extends E> c)
+	{
+		if (c instanceof SortedSet) return super.addAll(c);
+		final List<E> sortedElements = new ArrayList<E> (c);
+		sortedElements.sort(null);
+		return super.addAll(sortedElements);
+	}
+
+	@Override
+	public boolean remove (Object o) { return map.removeKey(o); }
+
+	@Override
+	public void clear () { map.clear (); }
+
+	@Override
+	public Iterator<E> iterator () { return map.keyIterator (); }
+
+	@Override
+	public Comparator<? super E> comparator () { return null; }
+
+	@Override
+	public E first () { return map.firstKey (); }
+
+	@Override
+	public E last () { return map.lastKey (); }
+
+	@Override
+	public SortedSet<E> subSet (E fromElement , E toElement) { return Collections.unmodifiableSortedSet(new TreeSet<E> (this).subSet(fromElement , toElement)); }
+
+	@Override
+	public SortedSet<E> headSet (E toElement) { return Collections.unmodifiableSortedSet(new TreeSet<E> (this).headSet(toElement)); }
+
+	@Override
+	public SortedSet<E> tailSet (E fromElement) { return Collections.unmodifiableSortedSet(new TreeSet<E> (this).tailSet(fromElement)); }
+}
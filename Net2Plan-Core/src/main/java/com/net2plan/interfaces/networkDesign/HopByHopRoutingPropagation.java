@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+
+import com.net2plan.libraries.GraphUtils;
+import com.net2plan.utils.Constants.RoutingCycleType;
+import com.net2plan.utils.Quintuple;
+
+/**
+ * Propagation of the traffic of hop-by-hop routed demands along a set of forwarding rules, used to update the routing of the demands.
+ * If the links with forwarding rules have no cycles, the links are sorted once in topological order, and the traffic of each demand is propagated
+ * along them in one pass, together with the worst case propagation delay and length. Then, the same object is shared by all the demands with
+ * the same rules (e.g. all the demands to the same egress node in destination-based routing).
+ * If the rules have cycles, or the egress node forwards traffic, each demand falls back to {@link GraphUtils#computeRoutingFundamentalVector}.
+ */
+final class HopByHopRoutingPropagation
+{
+	private final SortedMap<Link,Double> frs;
+	private final int numNodes;
+	private final boolean hasCycles;
+	private final int [] numOutRulesPerNode;
+	private final int [] originIndex;
+	private final int [] destinationIndex;
+	private final double [] splitFactor;
+	private final double [] propagationDelayInMs;
+	private final double [] lengthInKm;
+
+	/** Creates the propagation for the given forwarding rules
+	 * @param netPlan the design
+	 * @param frs the non-zero forwarding rules of links that are up, with their end nodes up
+	 */
+	HopByHopRoutingPropagation (NetPlan netPlan , SortedMap<Link,Double> frs)
+	{
+		this.frs = frs;
+		this.numNodes = netPlan.getNumberOfNodes();
+		final int E = frs.size();
+		final Link [] links = frs.keySet().toArray(new Link [E]);
+		this.numOutRulesPerNode = new int [numNodes];
+		final int [] numInRulesPerNode = new int [numNodes];
+		for (Link e : links) { numOutRulesPerNode [e.getOriginNode().getIndex()] ++; numInRulesPerNode [e.getDestinationNode().getIndex()] ++; }
+
+		/* outgoing rules of each node, in compressed form, keeping the order of the links */
+		final int [] firstOutRulePerNode = new int [numNodes + 1];
+		for (int n = 0; n < numNodes ; n ++) firstOutRulePerNode [n + 1] = firstOutRulePerNode [n] + numOutRulesPerNode [n];
+		final int [] outRules = new int [E];
+		final int [] nextFreePosition = new int [numNodes];
+		System.arraycopy(firstOutRulePerNode, 0, nextFreePosition, 0, numNodes);
+		for (int cont = 0; cont < E ; cont ++) outRules [nextFreePosition [links [cont].getOriginNode().getIndex()] ++] = cont;
+
+		/* topological sort of the nodes (Kahn), the links are stored in the order of their origin nodes */
+		this.originIndex = new int [E];
+		this.destinationIndex = new int [E];
+		this.splitFactor = new double [E];
+		this.propagationDelayInMs = new double [E];
+		this.lengthInKm = new double [E];
+		final int [] queue = new int [numNodes];
+		int queueStart = 0, queueEnd = 0;
+		for (int n = 0; n < numNodes ; n ++) if (numInRulesPerNode [n] == 0 && numOutRulesPerNode [n] > 0) queue [queueEnd ++] = n;
+		int numSortedLinks = 0;
+		while (queueStart < queueEnd)
+		{
+			final int n = queue [queueStart ++];
+			for (int pos = firstOutRulePerNode [n] ; pos < firstOutRulePerNode [n + 1] ; pos ++)
+			{
+				final Link e = links [outRules [pos]];
+				final int b_e = e.getDestinationNode().getIndex();
+				originIndex [numSortedLinks] = n;
+				destinationIndex [numSortedLinks] = b_e;
+				splitFactor [numSortedLinks] = frs.get(e);
+				propagationDelayInMs [numSortedLinks] = e.getPropagationDelayInMs();
+				lengthInKm [numSortedLinks] = e.getLengthInKm();
+				numSortedLinks ++;
+				if (-- numInRulesPerNode [b_e] == 0 && numOutRulesPerNode [b_e] > 0) queue [queueEnd ++] = b_e;
+			}
+		}
+		this.hasCycles = numSortedLinks < E;
+	}
+
+	/** Returns the forwarding rules of this propagation
+	 * @return see above
+	 */
+	SortedMap<Link,Double> getForwardingRules () { return frs; }
+
+	/** Returns true if the traffic of a demand with the given end nodes can be propagated along the rules in one pass: the rules have no cycles, and the 
+	 * egress node does not forward traffic. If not, {@link #computeRoutingFundamentalVector} falls back to {@link GraphUtils#computeRoutingFundamentalVector}
+	 * @param ingressNode the ingress node
+	 * @param egressNode the egress node
+	 * @return see above
+	 */
+	boolean isPropagable (Node ingressNode , Node egressNode)
+	{
+		return !hasCycles && ingressNode != egressNode && numOutRulesPerNode [egressNode.getIndex()] == 0;
+	}
+
+	/** Returns the same information as {@link GraphUtils#computeRoutingFundamentalVector} for a demand with the given end nodes
+	 * @param outFrs the links with non-zero forwarding rules, per node, including those of links down
+	 * @param ingressNode the ingress node
+	 * @param egressNode the egress node
+	 * @return see above
+	 */
+	Quintuple<DoubleMatrix1D, RoutingCycleType, Double, Double, Double> computeRoutingFundamentalVector (SortedMap<Node,SortedSet<Link>> outFrs , Node ingressNode , Node egressNode)
+	{
+		if (!isPropagable(ingressNode, egressNode))
+			return GraphUtils.computeRoutingFundamentalVector(frs, outFrs, ingressNode, egressNode);
+		final int ingress = ingressNode.getIndex();
+		final int egress = egressNode.getIndex();
+
+		final double [] M = new double [numNodes];
+		final double [] wcPropDelay = new double [numNodes];
+		final double [] wcLength = new double [numNodes];
+		Arrays.fill(wcPropDelay, Double.NEGATIVE_INFINITY);
+		Arrays.fill(wcLength, Double.NEGATIVE_INFINITY);
+		M [ingress] = 1;
+		wcPropDelay [ingress] = 0;
+		wcLength [ingress] = 0;
+		for (int cont = 0; cont < originIndex.length ; cont ++)
+		{
+			final int a_e = originIndex [cont];
+			final int b_e = destinationIndex [cont];
+			if (wcPropDelay [a_e] == Double.NEGATIVE_INFINITY) continue;
+			M [b_e] += M [a_e] * splitFactor [cont];
+			wcPropDelay [b_e] = Math.max(wcPropDelay [b_e], wcPropDelay [a_e] + propagationDelayInMs [cont]);
+			wcLength [b_e] = Math.max(wcLength [b_e], wcLength [a_e] + lengthInKm [cont]);
+		}
+		final boolean egressReached = wcPropDelay [egress] != Double.NEGATIVE_INFINITY;
+		final double wcPropDelayEgress = egressReached? wcPropDelay [egress] : Double.MAX_VALUE;
+		final double wcLengthEgress = egressReached? wcLength [egress] : Double.MAX_VALUE;
+		return Quintuple.of(new DenseDoubleMatrix1D(M), egressReached? RoutingCycleType.LOOPLESS : RoutingCycleType.OPEN_CYCLES, 1.0, wcPropDelayEgress, wcLengthEgress);
+	}
+
+	/** Returns true if the given forwarding rules are the same as the ones of this propagation
+	 * @param otherFrs the other forwarding rules
+	 * @return see above
+	 */
+	boolean hasSameForwardingRules (SortedMap<Link,Double> otherFrs)
+	{
+		if (otherFrs.size() != frs.size()) return false;
+		for (Entry<Link,Double> fr : otherFrs.entrySet())
+			if (!fr.getValue().equals(frs.get(fr.getKey()))) return false;
+		return true;
+	}
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+/**
+ * <p>Contract that must be fulfilled by the objects that want to be notified of the changes in the state of a {@link com.net2plan.interfaces.networkDesign.NetPlan NetPlan}
+ * object, registered using {@link com.net2plan.interfaces.networkDesign.NetPlan#addChangeListener(INetPlanChangeListener) addChangeListener}.</p>
+ *
+ * <p>Notifications are made synchronously, in the thread that modifies the design, right after the change. The same element may be notified several times
+ * for the same modification. Listeners must not modify the design while being notified.</p>
+ *
+ * @since 0.6.6
+ */
+public interface INetPlanChangeListener
+{
+	/**
+	 * Called when the capacity, the occupied capacity, the length or the failure state of a link may have changed.
+	 *
+	 * @param link The link
+	 */
+	public void linkChanged(Link link);
+
+	/**
+	 * Called when the offered or the carried traffic of a unicast demand may have changed.
+	 *
+	 * @param demand The demand
+	 */
+	public void demandChanged(Demand demand);
+
+	/**
+	 * Called when the failure state of a node has changed. The links affected by the change are notified separately.
+	 *
+	 * @param node The node
+	 */
+	public void nodeChanged(Node node);
+
+	/**
+	 * Called when layers, nodes, links or demands are added or removed, or when the whole design is replaced (e.g. in
+	 * {@link com.net2plan.interfaces.networkDesign.NetPlan#copyFrom(NetPlan) copyFrom}). After this notification, the indexes
+	 * of the elements may have changed.
+	 */
+	public void structureChanged();
+}
@@ -126,7 +126,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	protected Link (NetPlan netPlan , long id , int index , NetworkLayer layer , Node originNode , Node destinationNode , double lengthInKm , double propagationSpeedInKmPerSecond , double capacity , AttributeMap attributes)
 	{
 		super (netPlan , id , index , attributes);
-		this.setName ("Link-" + index);
+		this.name = "Link-" + index;
 
 		if (netPlan != null)
 		{
@@ -145,11 +145,11 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		this.nominalColor = Color.BLACK;
 		this.coupledLowerOrThisLayerDemand = null;
 		this.coupledLowerLayerMulticastDemand = null;
-		this.cache_nonDynamicSrgs = new TreeSet<SharedRiskGroup> ();
-		this.cache_traversingRoutes = new TreeMap<Route,Integer> ();
-		this.cache_traversingTrees = new TreeSet<MulticastTree> ();
-		this.cacheHbH_frs = new TreeMap<> ();
-		this.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState = new TreeMap<> ();
+		this.cache_nonDynamicSrgs = new ElementSortedSet<SharedRiskGroup> ();
+		this.cache_traversingRoutes = new ElementSortedMap<Route,Integer> ();
+		this.cache_traversingTrees = new ElementSortedSet<MulticastTree> ();
+		this.cacheHbH_frs = new ElementSortedMap<> ();
+		this.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState = new ElementSortedMap<> ();
 		this.capacity = capacity;
 		this.bidirectionalPair = null;
 		this.qos2PriorityMaxLinkCapPercentage = new TreeMap<> ();
@@ -169,9 +169,9 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		this.propagationSpeedInKmPerSecond = origin.propagationSpeedInKmPerSecond;
 		this.isUp = origin.isUp;
 		this.nominalColor = origin.nominalColor;
-		this.cache_nonDynamicSrgs = new TreeSet<SharedRiskGroup> ();
-		this.cache_traversingRoutes = new TreeMap<Route,Integer> ();
-		this.cache_traversingTrees = new TreeSet<MulticastTree> ();
+		this.cache_nonDynamicSrgs = new ElementSortedSet<SharedRiskGroup> ();
+		this.cache_traversingRoutes = new ElementSortedMap<Route,Integer> ();
+		this.cache_traversingTrees = new ElementSortedSet<MulticastTree> ();
 		this.qos2PriorityMaxLinkCapPercentage = new TreeMap<> ();
 		for (Entry<String,Pair<Integer,Double>> ee : origin.qos2PriorityMaxLinkCapPercentage.entrySet())
 			this.qos2PriorityMaxLinkCapPercentage.put(ee.getKey(), Pair.of (ee.getValue().getFirst() , ee.getValue().getSecond()));
@@ -271,6 +271,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setQosTypePriorityAndMaxLinkUtilization (String qosType , int priority , double maxLinkUtilization)
 	{
+		netPlan.checkIsModifiable();
 		if (maxLinkUtilization <0  || maxLinkUtilization > 1) throw new Net2PlanException ("Maximum link utilizations must be between zero and one");
 		this.qos2PriorityMaxLinkCapPercentage.put (qosType , Pair.of(priority, maxLinkUtilization));
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
@@ -282,6 +283,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	 */
 	public void removeQosTypePriorityAndMaxLinkUtilization (String qosType)
 	{
+		netPlan.checkIsModifiable();
 		this.qos2PriorityMaxLinkCapPercentage.remove (qosType);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
@@ -450,9 +452,10 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	{
 		newLinkCapacity = NetPlan.adjustToTolerance(newLinkCapacity);
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
 		if (newLinkCapacity < 0) throw new Net2PlanException ("Negative link capacities are not possible");
 		if ((coupledLowerOrThisLayerDemand != null) || (coupledLowerLayerMulticastDemand != null)) throw new Net2PlanException ("Coupled links cannot change its capacity");
+		if (netPlan.journal != null) netPlan.journal.recordLinkChange(this, 0, capacity, newLinkCapacity);
 		updateCapacityAndZeroCapacityLinksAndRoutesCaches (newLinkCapacity);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
@@ -462,6 +465,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		final boolean fromZeroToMore = (this.capacity < Configuration.precisionFactor) && (newCapacity >= Configuration.precisionFactor); 
 		final boolean fromMoreToZero = (this.capacity >= Configuration.precisionFactor) && (newCapacity < Configuration.precisionFactor); 
 		this.capacity = newCapacity;
+		netPlan.notifyLinkChanged(this);
 		if (fromMoreToZero)
 		{
 			layer.cache_linksZeroCap.add(this);
@@ -556,9 +560,11 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		if (this.isCoupled()) throw new Net2PlanException ("The length of coupled links cannot be changed");
 		if (lengthInKm == this.lengthInKm) return;
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
 		if (lengthInKm < 0) throw new Net2PlanException ("Link lengths cannot be negative");
+		if (netPlan.journal != null) netPlan.journal.recordLinkChange(this, 1, this.lengthInKm, lengthInKm);
 		this.lengthInKm = lengthInKm;
+		netPlan.notifyLinkChanged(this);
 		this.updateWorstCasePropagationTraversingUnicastDemandsAndMaybeRoutes();
 	}
 
@@ -598,8 +604,9 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		if (this.isCoupled()) throw new Net2PlanException ("The propagation speed of coupled links cannot be changed");
 		if (this.propagationSpeedInKmPerSecond == speed) return;
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
 		if (speed <= 0) throw new Net2PlanException ("Propagation speeds must be positive");
+		if (netPlan.journal != null) netPlan.journal.recordLinkChange(this, 2, this.propagationSpeedInKmPerSecond, speed);
 		this.propagationSpeedInKmPerSecond = speed;
 		this.updateWorstCasePropagationTraversingUnicastDemandsAndMaybeRoutes();
 	}
@@ -812,16 +819,19 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	 */
 	public void setBidirectionalPair(Link e)
 	{
+		checkAttachedToNetPlanObject();
+		netPlan.checkIsModifiable(true);
 		if (e == null)
 		{
+			if (netPlan.journal != null) netPlan.journal.recordBidirectionalPairChange(this, bidirectionalPair, null, null);
 			if (bidirectionalPair != null) { this.bidirectionalPair.bidirectionalPair = null; this.bidirectionalPair = null; }
 			return;
 		}
 
-		checkAttachedToNetPlanObject();
 		e.checkAttachedToNetPlanObject(this.netPlan);
 		if (e.layer != this.layer) throw new Net2PlanException ("Wrong layer");
 		if (e.originNode != this.destinationNode || this.originNode != e.destinationNode) throw new Net2PlanException ("Wrong end nodes");
+		if (netPlan.journal != null) netPlan.journal.recordBidirectionalPairChange(this, bidirectionalPair, e, e.bidirectionalPair);
 		if (this.bidirectionalPair != null) this.bidirectionalPair.bidirectionalPair = null;
 		if (e.bidirectionalPair != null) e.bidirectionalPair.bidirectionalPair = null;
 		this.bidirectionalPair = e;
@@ -874,6 +884,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 		layer.cache_linksDown.remove (this);
 		layer.cache_linksZeroCap.remove(this);
 		netPlan.cache_id2LinkMap.remove(id);
+		netPlan.notifyStructureChanged();
 		originNode.cache_nodeOutgoingLinks.remove (this);
 		destinationNode.cache_nodeIncomingLinks.remove (this);
 		layer.cache_nodePairLinksThisLayer.get(Pair.of(originNode, destinationNode)).remove(this);
@@ -903,7 +914,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	public boolean setFailureState (boolean setAsUp)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
 		if (this.isUp == setAsUp) return this.isUp;
 		List<Link> aux = new LinkedList<Link> (); aux.add(this);
 		if (setAsUp) netPlan.setLinksAndNodesFailureState (aux , null , null , null); else netPlan.setLinksAndNodesFailureState (null, aux , null , null); 
@@ -1094,6 +1105,8 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	
 	void updateLinkTrafficAndOccupation ()
 	{
+		if (netPlan.cache_linksWithPendingTrafficUpdate != null) { netPlan.cache_linksWithPendingTrafficUpdate.add(this); return; }
+
 		/* Add the info of the demands with traversing routes */
 		this.cache_totalCarriedTraffic = 0;
 		this.cache_totalOccupiedCapacity = 0;
@@ -1122,6 +1135,7 @@ public class Link extends NetworkElement implements IMonitorizableElement
 			this.cache_totalCarriedTraffic += carriedTraffic;
 			this.cache_totalOccupiedCapacity += occupiedCapacity;
 		}
+		netPlan.notifyLinkChanged(this);
 	}
 
 	/** Returns the set of demands that could potentially put traffic in this link, 
@@ -1441,7 +1455,8 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	@Override
 	public void setMonitoredOrForecastedCarriedTraffic(TrafficSeries newTimeSeries) 
 	{
-		this.monitoredOrForecastedTraffics = new TrafficSeries(newTimeSeries.getValues());
+		netPlan.checkIsModifiable();
+		this.monitoredOrForecastedTraffics = newTimeSeries.getCopy();
 	}
 
 	@Override
@@ -1471,12 +1486,14 @@ public class Link extends NetworkElement implements IMonitorizableElement
 	@Override
 	public void setTrafficPredictor(TrafficPredictor tp) 
 	{
+		netPlan.checkIsModifiable();
 		this.trafficPredictor = tp;
 	}
 
 	@Override
 	public void removeTrafficPredictor() 
 	{
+		netPlan.checkIsModifiable();
 		this.trafficPredictor = null;
 	}
 
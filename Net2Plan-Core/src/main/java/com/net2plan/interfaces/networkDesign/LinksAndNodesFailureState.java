@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.util.BitSet;
+
+/**
+ * <p>Snapshot of the failure state (up or down) of the nodes and links of a design, obtained with {@link NetPlan#getLinksAndNodesFailureState()}, or
+ * returned by {@link NetPlan#setSrgsFailureState(java.util.Collection, java.util.Collection)} with the state previous to the change. It is
+ * restored with {@link NetPlan#setLinksAndNodesFailureState(LinksAndNodesFailureState)}, which only updates the elements whose state differs
+ * from the current one. This way, failure sweeps can set the network to each failure state, and go back to the original one, without copying the design.</p>
+ *
+ * <p>The elements down are kept as bitsets of the element indexes, so the snapshot can only be restored in the same design, while no node, link or layer is
+ * added or removed (other changes, e.g. in the routes or the traffic, are allowed).</p>
+ *
+ * @since 0.6.6
+ */
+public final class LinksAndNodesFailureState
+{
+	final NetPlan netPlan;
+	final BitSet nodesDown;
+	final BitSet [] linksDownPerLayer;
+	private final long [] layerIds;
+	private final int numNodes;
+	private final long lastNodeId;
+	private final int [] numLinksPerLayer;
+	private final long [] lastLinkIdPerLayer;
+
+	LinksAndNodesFailureState (NetPlan netPlan)
+	{
+		this.netPlan = netPlan;
+		this.numNodes = netPlan.nodes.size();
+		this.lastNodeId = numNodes == 0? -1 : netPlan.nodes.get(numNodes - 1).id;
+		this.nodesDown = new BitSet (numNodes);
+		for (Node n : netPlan.cache_nodesDown) nodesDown.set(n.index);
+		final int numLayers = netPlan.layers.size();
+		this.layerIds = new long [numLayers];
+		this.numLinksPerLayer = new int [numLayers];
+		this.lastLinkIdPerLayer = new long [numLayers];
+		this.linksDownPerLayer = new BitSet [numLayers];
+		for (NetworkLayer layer : netPlan.layers)
+		{
+			final int numLinks = layer.links.size();
+			layerIds [layer.index] = layer.id;
+			numLinksPerLayer [layer.index] = numLinks;
+			lastLinkIdPerLayer [layer.index] = numLinks == 0? -1 : layer.links.get(numLinks - 1).id;
+			linksDownPerLayer [layer.index] = new BitSet (numLinks);
+			for (Link e : layer.cache_linksDown) linksDownPerLayer [layer.index].set(e.index);
+		}
+	}
+
+	/**
+	 * Returns the number of nodes down in this failure state
+	 * @return see above
+	 */
+	public int getNumberOfNodesDown ()
+	{
+		return nodesDown.cardinality();
+	}
+
+	/**
+	 * Returns the number of links down in this failure state, summing all the layers
+	 * @return see above
+	 */
+	public int getNumberOfLinksDown ()
+	{
+		int res = 0;
+		for (BitSet linksDown : linksDownPerLayer) res += linksDown.cardinality();
+		return res;
+	}
+
+	/* Indicates if the nodes, layers and links of the given design are the same as when the snapshot was taken. Since the element identifiers are never
+	 * reused and grow with the creation order, any removal or addition changes the number of elements of a list, or the identifier of its last element */
+	boolean isApplicableTo (NetPlan np)
+	{
+		if (np != netPlan) return false;
+		if (np.nodes.size() != numNodes) return false;
+		if (numNodes > 0 && np.nodes.get(numNodes - 1).id != lastNodeId) return false;
+		if (np.layers.size() != layerIds.length) return false;
+		for (NetworkLayer layer : np.layers)
+		{
+			if (layer.id != layerIds [layer.index]) return false;
+			final int numLinks = layer.links.size();
+			if (numLinks != numLinksPerLayer [layer.index]) return false;
+			if (numLinks > 0 && layer.links.get(numLinks - 1).id != lastLinkIdPerLayer [layer.index]) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive {@code long} keys to non-negative {@code int} values, using open addressing with linear probing.
+ * Used to map element identifiers to positions in arrays. The arrays are allocated with the first mapping.
+ */
+class LongIntHashMap
+{
+	private static final int MIN_CAPACITY = 4;
+
+	private long [] keys;
+	private int [] values; // -1 if the slot is empty
+	private int size;
+
+	LongIntHashMap () { }
+
+	int size () { return size; }
+
+	boolean isEmpty () { return size == 0; }
+
+	void clear ()
+	{
+		keys = null;
+		values = null;
+		size = 0;
+	}
+
+	/** Removes all the mappings, leaving room for the given number of mappings */
+	void clear (int expectedSize)
+	{
+		int capacity = MIN_CAPACITY;
+		while (expectedSize * 4 > capacity * 3) capacity *= 2;
+		size = 0;
+		if ((values == null) || (values.length < capacity) || (values.length > 4 * capacity))
+		{
+			keys = null;
+			values = null;
+			allocate (capacity);
+		}
+		else Arrays.fill(values , -1);
+	}
+
+	boolean containsKey (long key)
+	{
+		return findSlot (key) >= 0;
+	}
+
+	/** Returns the value, or -1 if the key is not in the map */
+	int get (long key)
+	{
+		final int slot = findSlot (key);
+		return slot < 0? -1 : values [slot];
+	}
+
+	/** Sets the value, returning the previous one or -1 */
+	int put (long key , int value)
+	{
+		if (value < 0) throw new IllegalArgumentException ("The values of the map must be non-negative");
+		if (values == null) allocate (MIN_CAPACITY);
+		else if ((size + 1) * 4 > values.length * 3) allocate (values.length * 2);
+		final int mask = values.length - 1;
+		int slot = hash (key) & mask;
+		while (values [slot] >= 0)
+		{
+			if (keys [slot] == key)
+			{
+				final int previous = values [slot];
+				values [slot] = value;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys [slot] = key;
+		values [slot] = value;
+		size ++;
+		return -1;
+	}
+
+	/** Removes the key, returning its value or -1 */
+	int remove (long key)
+	{
+		int slot = findSlot (key);
+		if (slot < 0) return -1;
+		final int previous = values [slot];
+		size --;
+		/* Backward shift deletion: the entries after the removed one in its probe sequence are moved, so no tombstones are needed */
+		final int mask = values.length - 1;
+		int next = (slot + 1) & mask;
+		while (values [next] >= 0)
+		{
+			final int ideal = hash (keys [next]) & mask;
+			if (((next - ideal) & mask) >= ((next - slot) & mask))
+			{
+				keys [slot] = keys [next];
+				values [slot] = values [next];
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+		values [slot] = -1;
+		return previous;
+	}
+
+	private int findSlot (long key)
+	{
+		if (size == 0) return -1;
+		final int mask = values.length - 1;
+		int slot = hash (key) & mask;
+		while (values [slot] >= 0)
+		{
+			if (keys [slot] == key) return slot;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void allocate (int capacity)
+	{
+		final long [] oldKeys = keys;
+		final int [] oldValues = values;
+		keys = new long [capacity];
+		values = new int [capacity];
+		Arrays.fill(values , -1);
+		if (oldValues == null) return;
+		final int mask = capacity - 1;
+		for (int oldSlot = 0; oldSlot < oldValues.length ; oldSlot ++)
+		{
+			if (oldValues [oldSlot] < 0) continue;
+			int slot = hash (oldKeys [oldSlot]) & mask;
+			while (values [slot] >= 0) slot = (slot + 1) & mask;
+			keys [slot] = oldKeys [oldSlot];
+			values [slot] = oldValues [oldSlot];
+		}
+	}
+
+	private static int hash (long key)
+	{
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
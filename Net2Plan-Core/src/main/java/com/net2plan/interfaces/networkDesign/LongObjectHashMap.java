@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+/**
+ * Hash map with primitive {@code long} keys (the element identifiers), using open addressing with linear probing.
+ * Keys are not boxed, and there is no entry object per mapping. Null values are allowed. The arrays are
+ * allocated with the first mapping, so an empty map takes almost no memory.
+ *
+ * @param <V> Type of the values
+ */
+class LongObjectHashMap<V>
+{
+	private static final Object NULL_VALUE = new Object ();
+	private static final int MIN_CAPACITY = 4;
+
+	private long [] keys;
+	private Object [] values; // null if the slot is empty
+	private int size;
+
+	LongObjectHashMap () { }
+
+	int size () { return size; }
+
+	boolean isEmpty () { return size == 0; }
+
+	void clear ()
+	{
+		keys = null;
+		values = null;
+		size = 0;
+	}
+
+	boolean containsKey (long key)
+	{
+		return findSlot (key) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	V get (long key)
+	{
+		final int slot = findSlot (key);
+		if (slot < 0) return null;
+		final Object val = values [slot];
+		return val == NULL_VALUE? null : (V) val;
+	}
+
+	@SuppressWarnings("unchecked")
+	V put (long key , V value)
+	{
+		if (values == null) allocate (MIN_CAPACITY);
+		else if ((size + 1) * 4 > values.length * 3) allocate (values.length * 2);
+		final int mask = values.length - 1;
+		int slot = hash (key) & mask;
+		while (values [slot] != null)
+		{
+			if (keys [slot] == key)
+			{
+				final Object previous = values [slot];
+				values [slot] = value == null? NULL_VALUE : value;
+				return previous == NULL_VALUE? null : (V) previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys [slot] = key;
+		values [slot] = value == null? NULL_VALUE : value;
+		size ++;
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	V remove (long key)
+	{
+		int slot = findSlot (key);
+		if (slot < 0) return null;
+		final Object previous = values [slot];
+		size --;
+		/* Backward shift deletion: the entries after the removed one in its probe sequence are moved, so no tombstones are needed */
+		final int mask = values.length - 1;
+		int next = (slot + 1) & mask;
+		while (values [next] != null)
+		{
+			final int ideal = hash (keys [next]) & mask;
+			if (((next - ideal) & mask) >= ((next - slot) & mask))
+			{
+				keys [slot] = keys [next];
+				values [slot] = values [next];
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+		values [slot] = null;
+		return previous == NULL_VALUE? null : (V) previous;
+	}
+
+	@Override
+	public String toString ()
+	{
+		final StringBuilder st = new StringBuilder ("{");
+		if (values != null)
+			for (int slot = 0; slot < values.length ; slot ++)
+			{
+				if (values [slot] == null) continue;
+				if (st.length () > 1) st.append (", ");
+				st.append (keys [slot]).append ('=').append (values [slot] == NULL_VALUE? null : values [slot]);
+			}
+		return st.append ('}').toString ();
+	}
+
+	private int findSlot (long key)
+	{
+		if (size == 0) return -1;
+		final int mask = values.length - 1;
+		int slot = hash (key) & mask;
+		while (values [slot] != null)
+		{
+			if (keys [slot] == key) return slot;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void allocate (int capacity)
+	{
+		final long [] oldKeys = keys;
+		final Object [] oldValues = values;
+		keys = new long [capacity];
+		values = new Object [capacity];
+		if (oldValues == null) return;
+		final int mask = capacity - 1;
+		for (int oldSlot = 0; oldSlot < oldValues.length ; oldSlot ++)
+		{
+			if (oldValues [oldSlot] == null) continue;
+			int slot = hash (oldKeys [oldSlot]) & mask;
+			while (values [slot] != null) slot = (slot + 1) & mask;
+			keys [slot] = oldKeys [oldSlot];
+			values [slot] = oldValues [oldSlot];
+		}
+	}
+
+	private static int hash (long key)
+	{
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -54,7 +54,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	MulticastDemand (NetPlan netPlan , long id , int index , NetworkLayer layer , Node ingressNode , Set<Node> egressNodes , double offeredTraffic , AttributeMap attributes)
 	{
 		super (netPlan , id , index , attributes);
-		this.setName ("MulticastDemand-" + index);
+		this.name = "MulticastDemand-" + index;
 
 		if (!netPlan.equals(layer.netPlan)) throw new RuntimeException ("Bad");
 		if (!netPlan.equals(ingressNode.netPlan)) throw new RuntimeException ("Bad");
@@ -68,14 +68,14 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 		this.egressNodes = new TreeSet<Node> (egressNodes);
 		this.offeredTraffic = offeredTraffic;
 		this.carriedTraffic = 0;
-		this.cache_multicastTrees = new TreeSet<MulticastTree> ();
+		this.cache_multicastTrees = new ElementSortedSet<MulticastTree> ();
 		this.coupledUpperLayerLinks = null;
 		this.maximumAcceptableE2EWorstCaseLatencyInMs = -1;
 		this.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = 0;
 		this.qosType = null;
 		this.monitoredOrForecastedTraffics = new TrafficSeries ();
 		this.trafficPredictor = null;
-		setQoSType("");
+		updateQoSType("");
 	}
 
 	void copyFrom (MulticastDemand origin)
@@ -87,7 +87,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 		this.maximumAcceptableE2EWorstCaseLatencyInMs = origin.maximumAcceptableE2EWorstCaseLatencyInMs;
 		this.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = origin.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth;
 		this.qosType = origin.qosType;
-		this.cache_multicastTrees = new TreeSet<MulticastTree> ();
+		this.cache_multicastTrees = new ElementSortedSet<MulticastTree> ();
 		for (MulticastTree t : origin.cache_multicastTrees) this.addMulticastTree((MulticastTree) this.netPlan.getPeerElementInThisNetPlan (t));
 		if (origin.coupledUpperLayerLinks == null)
 			this.coupledUpperLayerLinks = null;
@@ -106,6 +106,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	 */
 	public void setMaximumAcceptableE2EWorstCaseLatencyInMs (double maxLatencyMs)
 	{
+		netPlan.checkIsModifiable();
 		this.maximumAcceptableE2EWorstCaseLatencyInMs = maxLatencyMs;
 	}
 
@@ -122,6 +123,12 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	 * @param newQosType  see above
 	 */
 	public void setQoSType (String newQosType)
+	{
+		netPlan.checkIsModifiable();
+		updateQoSType (newQosType);
+	}
+
+	private void updateQoSType (String newQosType)
 	{
 		if (newQosType == null) throw new Net2PlanException ("Wrong value");
 		if (this.qosType != null)
@@ -154,6 +161,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	 */
 	public void setOfferedTrafficPerPeriodGrowthFactor (double growthFactor)
 	{
+		netPlan.checkIsModifiable();
 		if (growthFactor < -1) throw new Net2PlanException ("The growth factor cannot be lower than -1");
 		this.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = growthFactor;
 	}
@@ -527,8 +535,9 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	{
 		offeredTraffic = NetPlan.adjustToTolerance(offeredTraffic);
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
 		if (offeredTraffic < 0) throw new Net2PlanException("Offered traffic must be greater or equal than zero");
+		if (netPlan.journal != null) netPlan.journal.recordOfferedTrafficChange(this, this.offeredTraffic, offeredTraffic);
 		this.offeredTraffic = offeredTraffic;
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
@@ -608,7 +617,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	/** Sets the new time series for the monitored or forecasted offered traffic, eliminating any previous values 
 	 * @param newTimeSeries  see above
 	 */
-	public void setMonitoredOrForecastedOfferedTraffic (TrafficSeries newTimeSeries) { this.monitoredOrForecastedTraffics = new TrafficSeries (newTimeSeries.getValues()); }
+	public void setMonitoredOrForecastedOfferedTraffic (TrafficSeries newTimeSeries) { netPlan.checkIsModifiable(); this.monitoredOrForecastedTraffics = newTimeSeries.getCopy(); }
 
 	@Override
 	public TrafficSeries getMonitoredOrForecastedCarriedTraffic()
@@ -619,6 +628,7 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	@Override
 	public void setMonitoredOrForecastedCarriedTraffic(TrafficSeries newTimeSeries) 
 	{
+		netPlan.checkIsModifiable();
 		this.monitoredOrForecastedTraffics = newTimeSeries;
 	}
 
@@ -649,12 +659,14 @@ public class MulticastDemand extends NetworkElement implements IMonitorizableEle
 	@Override
 	public void setTrafficPredictor(TrafficPredictor tp) 
 	{
+		netPlan.checkIsModifiable();
 		this.trafficPredictor = tp;
 	}
 
 	@Override
 	public void removeTrafficPredictor() 
 	{
+		netPlan.checkIsModifiable();
 		this.trafficPredictor = null;
 	}
 
@@ -63,7 +63,7 @@ public class MulticastTree extends NetworkElement
 	MulticastTree (NetPlan netPlan , long id , int index,  MulticastDemand demand , Set<Link> links , AttributeMap attributes)
 	{
 		super (netPlan , id , index , attributes);
-		this.setName ("MulticastTree-" + index);
+		this.name = "MulticastTree-" + index;
 
 		this.pathToReachableEgressNode = netPlan.checkMulticastTreeValidityForDemand(links, demand).getFirst();
 		this.layer = demand.layer;
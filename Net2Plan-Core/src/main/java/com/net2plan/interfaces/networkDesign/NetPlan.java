@@ -18,9 +18,12 @@ import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleFactory2D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import com.ctc.wstx.api.WstxInputProperties;
 import com.google.common.collect.Sets;
 import com.net2plan.internal.*;
+import com.net2plan.internal.Constants.NetworkElementType;
 import com.net2plan.libraries.GraphUtils;
+import com.net2plan.libraries.MulticastTreeEngine;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.utils.*;
 import com.net2plan.utils.Constants.RoutingCycleType;
@@ -131,15 +134,15 @@ public class NetPlan extends NetworkElement
     SortedSet<Node> cache_nodesDown;
     SortedSet<SharedRiskGroup> cache_dynamicSrgs;
     SortedMap<String, SortedSet<Resource>> cache_type2Resources;
-    SortedMap<Long, Node> cache_id2NodeMap;
-    SortedMap<Long, Resource> cache_id2ResourceMap;
-    SortedMap<Long, NetworkLayer> cache_id2LayerMap;
-    SortedMap<Long, Link> cache_id2LinkMap;
-    SortedMap<Long, Demand> cache_id2DemandMap;
-    SortedMap<Long, MulticastDemand> cache_id2MulticastDemandMap;
-    SortedMap<Long, Route> cache_id2RouteMap;
-    SortedMap<Long, MulticastTree> cache_id2MulticastTreeMap;
-    SortedMap<Long, SharedRiskGroup> cache_id2srgMap;
+    LongObjectHashMap<Node> cache_id2NodeMap;
+    LongObjectHashMap<Resource> cache_id2ResourceMap;
+    LongObjectHashMap<NetworkLayer> cache_id2LayerMap;
+    LongObjectHashMap<Link> cache_id2LinkMap;
+    LongObjectHashMap<Demand> cache_id2DemandMap;
+    LongObjectHashMap<MulticastDemand> cache_id2MulticastDemandMap;
+    LongObjectHashMap<Route> cache_id2RouteMap;
+    LongObjectHashMap<MulticastTree> cache_id2MulticastTreeMap;
+    LongObjectHashMap<SharedRiskGroup> cache_id2srgMap;
 
     SortedMap<String,SortedSet<NetworkElement>> cache_taggedElements;
     SortedMap<String,SortedSet<Node>> cache_nodesPerSiteName;
@@ -148,6 +151,16 @@ public class NetPlan extends NetworkElement
     DirectedAcyclicGraph<NetworkLayer, DemandLinkMapping> interLayerCoupling;
     
     boolean defaultNodePairDistanceMetricIsHaversine = false;
+
+    /* Listeners of the changes in the design (not copied in copyFrom or assignFrom) */
+    List<INetPlanChangeListener> changeListeners = new ArrayList<INetPlanChangeListener>();
+    /* If not null, the journal recording the changes in the design (not copied in copyFrom or assignFrom) */
+    NetPlanChangeJournal journal = null;
+    /* Number of structural changes per element type (see getNumberOfStructuralChanges), and caches attached by other libraries (not copied in copyFrom or assignFrom) */
+    final long [] cache_numStructuralChangesPerType = new long [NetworkElementType.values().length];
+    private final Map<Object,Object> cache_libraryCaches = new HashMap<> ();
+    /* If not null, the links whose carried traffic and occupied capacity must be updated are collected here, and updated later at once (used when reading a design) */
+    Set<Link> cache_linksWithPendingTrafficUpdate = null;
     
     
     /**
@@ -158,7 +171,7 @@ public class NetPlan extends NetworkElement
     public NetPlan()
     {
         super(null, 0, 0, new AttributeMap());
-		this.setName ("NetPlan");
+		this.name = "NetPlan";
 		this.currentDate = new Date ();
 		
         this.netPlan = this;
@@ -177,18 +190,18 @@ public class NetPlan extends NetworkElement
         srgs = new ArrayList<SharedRiskGroup>();
         resources = new ArrayList<Resource>();
 
-        cache_nodesDown = new TreeSet<Node>();
-        this.cache_dynamicSrgs = new TreeSet<> ();
+        cache_nodesDown = new ElementSortedSet<Node>();
+        this.cache_dynamicSrgs = new ElementSortedSet<> ();
         this.cache_type2Resources = new TreeMap<String, SortedSet<Resource>>();
-        this.cache_id2NodeMap = new TreeMap<Long, Node>();
-        this.cache_id2ResourceMap = new TreeMap<Long, Resource>();
-        this.cache_id2LayerMap = new TreeMap<Long, NetworkLayer>();
-        this.cache_id2srgMap = new TreeMap<Long, SharedRiskGroup>();
-        this.cache_id2LinkMap = new TreeMap<Long, Link>();
-        this.cache_id2DemandMap = new TreeMap<Long, Demand>();
-        this.cache_id2MulticastDemandMap = new TreeMap<Long, MulticastDemand>();
-        this.cache_id2RouteMap = new TreeMap<Long, Route>();
-        this.cache_id2MulticastTreeMap = new TreeMap<Long, MulticastTree>();
+        this.cache_id2NodeMap = new LongObjectHashMap<Node>();
+        this.cache_id2ResourceMap = new LongObjectHashMap<Resource>();
+        this.cache_id2LayerMap = new LongObjectHashMap<NetworkLayer>();
+        this.cache_id2srgMap = new LongObjectHashMap<SharedRiskGroup>();
+        this.cache_id2LinkMap = new LongObjectHashMap<Link>();
+        this.cache_id2DemandMap = new LongObjectHashMap<Demand>();
+        this.cache_id2MulticastDemandMap = new LongObjectHashMap<MulticastDemand>();
+        this.cache_id2RouteMap = new LongObjectHashMap<Route>();
+        this.cache_id2MulticastTreeMap = new LongObjectHashMap<MulticastTree>();
         
         this.cache_taggedElements = new TreeMap<> ();
         this.cache_nodesPerSiteName = new TreeMap<> ();
@@ -224,7 +237,7 @@ public class NetPlan extends NetworkElement
     }
 
     /**
-     * <p>Generates a new network design from an input stream.</p>
+     * <p>Generates a new network design from an input stream, in the XML or in the binary {@code .n2p} format (detected automatically).</p>
      *
      * @param inputStream Input stream
      * @since 0.3.1
@@ -235,7 +248,16 @@ public class NetPlan extends NetworkElement
 
         try
         {
+            if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream);
+            if (ReaderNetPlanN2PBinary.isBinaryFormat(inputStream))
+            {
+                new ReaderNetPlanN2PBinary().create(this, inputStream);
+                return;
+            }
+
             XMLInputFactory2 xmlInputFactory = (XMLInputFactory2) XMLInputFactory2.newInstance();
+            /* the monitored traffic series are written as attributes, that can be much longer than the default limit (512 KB) */
+            xmlInputFactory.setProperty(WstxInputProperties.P_MAX_ATTRIBUTE_SIZE, Integer.MAX_VALUE);
             XMLStreamReader2 xmlStreamReader = (XMLStreamReader2) xmlInputFactory.createXMLStreamReader(inputStream);
 
             while (xmlStreamReader.hasNext())
@@ -341,14 +363,16 @@ public class NetPlan extends NetworkElement
     }
 
     /**
-     * <p>Static factory method to get a {@link com.net2plan.interfaces.networkDesign.NetPlan NetPlan} object from a {@code .n2p} file.</p>
+     * <p>Static factory method to get a {@link com.net2plan.interfaces.networkDesign.NetPlan NetPlan} object from a {@code .n2p} file, in the XML or in the binary format (detected automatically).</p>
      *
      * @param file Input file
      * @return A network design
      */
+    @SuppressWarnings("try")
     public static NetPlan loadFromFile(File file)
     {
-        try (InputStream inputStream = new FileInputStream(file))
+        try (Instrumentation.Measurement measurement = Instrumentation.start(Instrumentation.Timer.FILE_LOAD, file.getPath());
+             InputStream inputStream = new FileInputStream(file))
         {
             NetPlan np = new NetPlan(inputStream);
             if (ErrorHandling.isDebugEnabled()) np.checkCachesConsistency();
@@ -469,7 +493,7 @@ public class NetPlan extends NetworkElement
     Demand addDemand(Long demandId, Node ingressNode, Node egressNode, double offeredTraffic, RoutingType routingType , Map<String, String> attributes, NetworkLayer... optionalLayerParameter)
     {
         offeredTraffic = NetPlan.adjustToTolerance(offeredTraffic);
-        checkIsModifiable();
+        checkIsModifiable(true);
         NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
         checkInThisNetPlan(ingressNode);
         checkInThisNetPlan(egressNode);
@@ -486,11 +510,13 @@ public class NetPlan extends NetworkElement
 
         cache_id2DemandMap.put(demandId, demand);
         layer.demands.add(demand);
+        notifyStructureChanged();
         egressNode.cache_nodeIncomingDemands.add(demand);
         ingressNode.cache_nodeOutgoingDemands.add(demand);
         SortedSet<Demand> setDemandsNodePair = layer.cache_nodePairDemandsThisLayer.get(Pair.of(ingressNode, egressNode));
         if (setDemandsNodePair == null) { setDemandsNodePair = new TreeSet<> (); layer.cache_nodePairDemandsThisLayer.put(Pair.of(ingressNode, egressNode) , setDemandsNodePair); }  
         setDemandsNodePair.add(demand);
+        if (journal != null) journal.recordDemandAdded(demand);
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return demand;
@@ -513,7 +539,7 @@ public class NetPlan extends NetworkElement
     public Pair<Demand, Demand> addDemandBidirectional(Node ingressNode, Node egressNode, double offeredTraffic, RoutingType routingType , Map<String, String> attributes, NetworkLayer... optionalLayerParameter)
     {
         offeredTraffic = NetPlan.adjustToTolerance(offeredTraffic);
-        checkIsModifiable();
+        checkIsModifiable(true);
         NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
         checkInThisNetPlan(ingressNode);
         checkInThisNetPlan(egressNode);
@@ -522,6 +548,7 @@ public class NetPlan extends NetworkElement
 
         Demand d1 = addDemand(ingressNode, egressNode, offeredTraffic, routingType , attributes, layer);
         Demand d2 = addDemand(egressNode, ingressNode, offeredTraffic, routingType , attributes, layer);
+        if (journal != null) journal.recordBidirectionalPairChange(d1, null, d2, null);
         d1.bidirectionalPair = d2;
         d2.bidirectionalPair = d1;
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
@@ -563,6 +590,7 @@ public class NetPlan extends NetworkElement
         interLayerCoupling.addVertex(layer);
         cache_id2LayerMap.put(id, layer);
         layers.add(layer);
+        notifyStructureChanged();
         if (layers.size() == 1) defaultLayer = layer;
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
@@ -653,7 +681,7 @@ public class NetPlan extends NetworkElement
     Link addLink(Long linkId, Node originNode, Node destinationNode, double capacity, double lengthInKm, double propagationSpeedInKmPerSecond, Map<String, String> attributes, NetworkLayer... optionalLayerParameter)
     {
         capacity = NetPlan.adjustToTolerance(capacity);
-        checkIsModifiable();
+        checkIsModifiable(true);
         NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
         checkInThisNetPlan(originNode);
         checkInThisNetPlan(destinationNode);
@@ -672,11 +700,13 @@ public class NetPlan extends NetworkElement
 
         cache_id2LinkMap.put(linkId, link);
         layer.links.add(link);
+        notifyStructureChanged();
         originNode.cache_nodeOutgoingLinks.add(link);
         destinationNode.cache_nodeIncomingLinks.add(link);
         SortedSet<Link> setLinksNodePair = layer.cache_nodePairLinksThisLayer.get(Pair.of(originNode, destinationNode));
         if (setLinksNodePair == null) { setLinksNodePair = new TreeSet<> (); layer.cache_nodePairLinksThisLayer.put(Pair.of(originNode, destinationNode) , setLinksNodePair); }  
         setLinksNodePair.add(link);
+        if (journal != null) journal.recordLinkAdded(link);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return link;
     }
@@ -702,7 +732,7 @@ public class NetPlan extends NetworkElement
     public Pair<Link, Link> addLinkBidirectional(Node originNode, Node destinationNode, double capacity, double lengthInKm, double propagationSpeedInKmPerSecond, Map<String, String> attributes, NetworkLayer... optionalLayerParameter)
     {
         capacity = NetPlan.adjustToTolerance(capacity);
-        checkIsModifiable();
+        checkIsModifiable(true);
         NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
         checkInThisNetPlan(originNode);
         checkInThisNetPlan(destinationNode);
@@ -713,6 +743,7 @@ public class NetPlan extends NetworkElement
 
         Link link1 = addLink(originNode, destinationNode, capacity, lengthInKm, propagationSpeedInKmPerSecond, attributes, layer);
         Link link2 = addLink(destinationNode, originNode, capacity, lengthInKm, propagationSpeedInKmPerSecond, attributes, layer);
+        if (journal != null) journal.recordBidirectionalPairChange(link1, null, link2, null);
         link1.bidirectionalPair = link2;
         link2.bidirectionalPair = link1;
 
@@ -850,7 +881,7 @@ public class NetPlan extends NetworkElement
 
     Node addNode(Long nodeId, double xCoord, double yCoord, String name, Map<String, String> attributes)
     {
-        checkIsModifiable();
+        checkIsModifiable(true);
         if (nodeId == null)
         {
             nodeId = nextElementId.longValue();
@@ -860,6 +891,8 @@ public class NetPlan extends NetworkElement
 
         nodes.add(node);
         cache_id2NodeMap.put(nodeId, node);
+        notifyStructureChanged();
+        if (journal != null) journal.recordNodeAdded(node);
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return node;
@@ -941,6 +974,39 @@ public class NetPlan extends NetworkElement
         return addServiceChain(demand, carriedTraffic, Collections.nCopies(sequenceOfLinks.size(), occupiedLinkCapacity), sequenceOfLinks, attributes);
     }
 
+    /**
+     * <p>Adds one traffic route for each of the given demands, where the occupied capacity in the links is the same as the carried traffic. The traffic of each
+     * link is updated once, after all the routes are added, so this is faster than adding the routes one by one when many routes traverse the same links.
+     * If any route cannot be added, none is added.</p>
+     * <p><b>Important</b>: Routing type must be {@link com.net2plan.utils.Constants.RoutingType#SOURCE_ROUTING SOURCE_ROUTING}.</p>
+     *
+     * @param demands         Demand associated to each route
+     * @param carriedTraffics Carried traffic of each route (and occupied capacity in its links). They must be greater or equal than zero
+     * @param sequencesOfLinks Sequence of links traversed by each route
+     * @return The newly created routes, in the same order
+     * @since 0.6.6
+     */
+    public List<Route> addRoutes(List<Demand> demands, List<Double> carriedTraffics, List<List<Link>> sequencesOfLinks)
+    {
+        checkIsModifiable();
+        if (demands.size() != carriedTraffics.size() || demands.size() != sequencesOfLinks.size()) throw new Net2PlanException("Wrong vector size");
+        final List<Route> routes = new ArrayList<>(demands.size());
+        runDeferringLinkTrafficUpdates(() ->
+        {
+            try
+            {
+                for (int cont = 0; cont < demands.size(); cont++)
+                    routes.add(addRoute(demands.get(cont), carriedTraffics.get(cont), carriedTraffics.get(cont), sequencesOfLinks.get(cont), null));
+            } catch (RuntimeException e)
+            {
+                for (Route r : routes) r.remove();
+                throw e;
+            }
+        });
+        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
+        return routes;
+    }
+
     /**
      * <p>Adds a new traffic service chain, which is a route which also traverses and occupied resources.  </p>
      * <p><b>Important</b>: Routing type must be {@link com.net2plan.utils.Constants.RoutingType#SOURCE_ROUTING SOURCE_ROUTING}.</p>
@@ -1015,6 +1081,7 @@ public class NetPlan extends NetworkElement
         if (!isUpThisRoute) layer.cache_routesDown.add(route);
         if (isTraversingZeroCapLinks) layer.cache_routesTravLinkZeroCap.add(route);
         route.setCarriedTraffic(carriedTraffic, occupiedLinkAndResourceCapacities);
+        Instrumentation.increment(Instrumentation.Counter.ROUTES_ADDED);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return route;
     }
@@ -1248,6 +1315,7 @@ public class NetPlan extends NetworkElement
 
     /**
      * <p>Computes for all the node pairs, a candidate path list in the given layer, composed of the k shortest paths according with the options indicated below.</p>
+     * <p>The graph of the layer is built once and shared by all the node pairs, and the node pairs with different origin nodes are processed in parallel.</p>
      *
      * @param linkCosts                               the cost of each link (if null, all links have cost one), all numbers must be strictly positive
      * @param K                                       Desired nummber of paths (a lower number of paths may be returned if there are less than {@code K} loop-less paths admissible)
@@ -1269,7 +1337,6 @@ public class NetPlan extends NetworkElement
         final NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
         if (linkCosts != null) if (linkCosts.size() != layer.links.size())
             throw new Net2PlanException("The array of costs must have the same length as the number of links in the layer");
-        SortedMap<Pair<Node, Node>, List<List<Link>>> cpl = new TreeMap<>();
         SortedMap<Link, Double> linkCostMap = new TreeMap<Link, Double>();
         for (Link e : layer.links) linkCostMap.put(e, linkCosts == null ? 1.0 : linkCosts.get(e.index));
         if (nodePairs == null)
@@ -1279,9 +1346,7 @@ public class NetPlan extends NetworkElement
                 for (Node n2 : nodes)
                     if (n1 != n2) nodePairs.add(Pair.of(n1, n2));
         }
-        for (Pair<Node, Node> pair : nodePairs)
-            cpl.put(pair, GraphUtils.getKLooplessShortestPaths(nodes, layer.links, pair.getFirst(), pair.getSecond(), linkCostMap, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath));
-        return cpl;
+        return GraphUtils.getKLooplessShortestPaths(nodes, layer.links, nodePairs, linkCostMap, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath);
     }
 
     /**
@@ -1296,16 +1361,19 @@ public class NetPlan extends NetworkElement
         checkIsModifiable();
         NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayer);
         List<Route> routes = new LinkedList<Route>();
-        try
+        runDeferringLinkTrafficUpdates(() ->
         {
-            for (Demand d : getDemands(layer))
-                for (List<Link> path : cpl.get(Pair.of(d.getIngressNode(), d.getEgressNode())))
-                    routes.add(this.addRoute(d, 0, 0, path, null));
-        } catch (Exception e)
-        {
-            for (Route r : routes) r.remove();
-            throw e;
-        }
+            try
+            {
+                for (Demand d : getDemands(layer))
+                    for (List<Link> path : cpl.get(Pair.of(d.getIngressNode(), d.getEgressNode())))
+                        routes.add(this.addRoute(d, 0, 0, path, null));
+            } catch (RuntimeException e)
+            {
+                for (Route r : routes) r.remove();
+                throw e;
+            }
+        });
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -1358,11 +1426,14 @@ public class NetPlan extends NetworkElement
     /**
      * <p>Adds multicast trees specified by those trees that satisfy the options described below. Existing multicast trees will not be removed.</p>
      * <p>The candidate tree list elaborated contains a set of multicast trees (each one is a set of links) computed for each multicast demand
-     * in the network. To compute it, a ILP formulation is solved for each new multicast tree. In general, for every multicast demand k
+     * in the network. To compute it, a ILP formulation is solved for each new multicast tree, or, if the {@code algorithm} option is set to a heuristic,
+     * each tree is computed with that heuristic (see {@link MulticastTreeEngine}), and the multicast demands are processed in parallel. In general, for every multicast demand k
      * trees are computed ranked according to its cost (weight) according to some link weights.</p>
      * <p>The computation of paths can be configured via {@code "parameter=value"} options. There are several options to
      * configure, which can be combined:</p>
      * <ul>
+     * <li>{@code algorithm}: {@code ilp} to solve an ILP per tree, or the name of the heuristic to use: {@code shortestPathTree}, {@code takahashiMatsuyama}, {@code kmb} or {@code mehlhorn}.
+     * The heuristics do not need a solver, but the trees returned are not guaranteed to be the minimum cost ones (default: ilp)</li>
      * <li>{@code K}: Number of desired multicast trees per demand (default: 3). If <i>K'&lt;</i>{@code K} different trees are found for the multicast demand, then only <i>K'</i> are
      * included in the candidate list</li>
      * <li>{@code maxCopyCapability}: the maximum number of copies of an input traffic a node can make. Then, a node can have at most this number of ouput links carrying traffic of a multicast tree (default: Double.MAX_VALUE)</li>
@@ -1376,10 +1447,10 @@ public class NetPlan extends NetworkElement
      *
      * @param layer                            the layer for which the candidate multicast tree list is computed
      * @param linkCosts                        Link weight vector for the shortest path algorithm. If {@code null}, a vector of ones is assumed
-     * @param solverName                       the name of the solver to call for the internal formulation of the algorithm
-     * @param solverLibraryName                the solver library name
+     * @param solverName                       the name of the solver to call for the internal formulation of the algorithm (not used by the heuristics)
+     * @param solverLibraryName                the solver library name (not used by the heuristics)
      * @param maxSolverTimeInSecondsPerTree    the maximum time the solver is allowed for each of the internal formulations (one for each new tree).
-     *                                         The best solution found so far is returned. If non-positive, no time limit is set
+     *                                         The best solution found so far is returned. If non-positive, no time limit is set (not used by the heuristics)
      * @param candidateTreeListParamValuePairs Parameters to be passed to the class to tune its operation. An even number of {@code String} is to be passed. For each {@code String} pair, first {@code String}
      *                                         must be the name of the parameter, second a {@code String} with its value. If no name-value pairs are set, default values are used
      * @return SortedMap with a list of all the computed trees (a tree is a set of links) per multicast demands
@@ -1391,6 +1462,7 @@ public class NetPlan extends NetworkElement
         if (linkCosts.size() != layer.links.size())
             throw new Net2PlanException("The array of costs must have the same length as the number of links in the layer");
         SortedMap<MulticastDemand, List<SortedSet<Link>>> cpl = new TreeMap<MulticastDemand, List<SortedSet<Link>>>();
+        MulticastTreeEngine.Algorithm algorithm = null;
         int K = 3;
         int maxCopyCapability = Integer.MAX_VALUE;
         double maxE2ELengthInKm = Double.MAX_VALUE;
@@ -1409,7 +1481,14 @@ public class NetPlan extends NetworkElement
             String parameter = candidateTreeListParamValuePairs[contParam * 2];
             String value = candidateTreeListParamValuePairs[contParam * 2 + 1];
 
-            if (parameter.equalsIgnoreCase("K"))
+            if (parameter.equalsIgnoreCase("algorithm"))
+            {
+                algorithm = null;
+                if (value.equalsIgnoreCase("ilp")) continue;
+                for (MulticastTreeEngine.Algorithm a : MulticastTreeEngine.Algorithm.values())
+                    if (a.getName().equalsIgnoreCase(value)) algorithm = a;
+                if (algorithm == null) throw new Net2PlanException("Unknown multicast tree algorithm " + value);
+            } else if (parameter.equalsIgnoreCase("K"))
             {
                 K = Integer.parseInt(value);
                 if (K <= 0) throw new Net2PlanException("'K' parameter must be greater than zero");
@@ -1431,6 +1510,20 @@ public class NetPlan extends NetworkElement
                 throw new RuntimeException("Unknown parameter " + parameter);
         }
 
+        if (algorithm != null)
+        {
+            final Map<Link, Double> linkCostMap = new HashMap<Link, Double>();
+            for (Link e : layer.links) linkCostMap.put(e, linkCosts.get(e.index));
+            final List<Pair<Node, Set<Node>>> originAndDestinationNodes = new ArrayList<Pair<Node, Set<Node>>>();
+            for (MulticastDemand d : layer.multicastDemands) originAndDestinationNodes.add(Pair.of(d.getIngressNode(), d.getEgressNodes()));
+            final List<List<SortedSet<Link>>> treesPerDemand = GraphUtils.getKMinimumCostMulticastTrees(nodes, layer.links, originAndDestinationNodes, linkCostMap,
+                    algorithm, K, maxCopyCapability, maxE2ELengthInKm, maxE2ENumHops, maxE2EPropDelayInMs,
+                    maxTreeCost, maxTreeCostFactorRespectToMinimumCostTree, maxTreeCostRespectToMinimumCostTree);
+            for (int contDemand = 0; contDemand < layer.multicastDemands.size(); contDemand++)
+                cpl.put(layer.multicastDemands.get(contDemand), treesPerDemand.get(contDemand));
+            return cpl;
+        }
+
         final DoubleMatrix2D Aout_ne = getMatrixNodeLinkOutgoingIncidence(layer);
         final DoubleMatrix2D Ain_ne = getMatrixNodeLinkIncomingIncidence(layer);
 
@@ -1585,6 +1678,7 @@ public class NetPlan extends NetworkElement
         }
         this.attributes.clear();
         this.attributes.putAll(netPlan.attributes);
+        this.attributesChanged();
         for (Node node : netPlan.nodes) node.netPlan = this;
         for (SharedRiskGroup srg : netPlan.srgs) srg.netPlan = this;
         for (Resource resource : netPlan.resources) resource.netPlan = this;
@@ -1597,6 +1691,8 @@ public class NetPlan extends NetworkElement
             for (Route e : layer.routes) e.netPlan = this;
             for (MulticastTree e : layer.multicastTrees) e.netPlan = this;
         }
+        notifyStructuralChange(null);
+        notifyStructureChanged();
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -1850,8 +1946,15 @@ public class NetPlan extends NetworkElement
      * @since 0.4.0
      */
     void checkIsModifiable()
+    {
+        checkIsModifiable(false);
+    }
+
+    /* The same, indicating if the modification is recorded in the journal of the design (if any) */
+    void checkIsModifiable(boolean isJournaled)
     {
         if (!isModifiable) throw new UnsupportedOperationException(UNMODIFIABLE_EXCEPTION_STRING);
+        if (journal != null) journal.notifyModification(isJournaled);
     }
 
     /**
@@ -2269,23 +2372,24 @@ public class NetPlan extends NetworkElement
 
         this.attributes.clear();
         this.attributes.putAll(originNetPlan.attributes);
+        this.attributesChanged();
         this.netPlan = this;
         this.layers = new ArrayList<NetworkLayer>();
         this.nodes = new ArrayList<Node>();
         this.srgs = new ArrayList<SharedRiskGroup>();
         this.resources = new ArrayList<Resource>();
-        this.cache_nodesDown = new TreeSet<Node>();
-        this.cache_dynamicSrgs = new TreeSet<> ();
+        this.cache_nodesDown = new ElementSortedSet<Node>();
+        this.cache_dynamicSrgs = new ElementSortedSet<> ();
         this.cache_type2Resources = new TreeMap<>();
-        this.cache_id2NodeMap = new TreeMap<Long, Node>();
-        this.cache_id2ResourceMap = new TreeMap<Long, Resource>();
-        this.cache_id2LayerMap = new TreeMap<Long, NetworkLayer>();
-        this.cache_id2srgMap = new TreeMap<Long, SharedRiskGroup>();
-        this.cache_id2LinkMap = new TreeMap<Long, Link>();
-        this.cache_id2DemandMap = new TreeMap<Long, Demand>();
-        this.cache_id2MulticastDemandMap = new TreeMap<Long, MulticastDemand>();
-        this.cache_id2RouteMap = new TreeMap<Long, Route>();
-        this.cache_id2MulticastTreeMap = new TreeMap<Long, MulticastTree>();
+        this.cache_id2NodeMap = new LongObjectHashMap<Node>();
+        this.cache_id2ResourceMap = new LongObjectHashMap<Resource>();
+        this.cache_id2LayerMap = new LongObjectHashMap<NetworkLayer>();
+        this.cache_id2srgMap = new LongObjectHashMap<SharedRiskGroup>();
+        this.cache_id2LinkMap = new LongObjectHashMap<Link>();
+        this.cache_id2DemandMap = new LongObjectHashMap<Demand>();
+        this.cache_id2MulticastDemandMap = new LongObjectHashMap<MulticastDemand>();
+        this.cache_id2RouteMap = new LongObjectHashMap<Route>();
+        this.cache_id2MulticastTreeMap = new LongObjectHashMap<MulticastTree>();
         this.cache_taggedElements = new TreeMap<> ();
         this.cache_nodesPerSiteName = new TreeMap<> ();
         this.cache_planningDomain2nodes = new TreeMap<> (); 
@@ -2445,6 +2549,8 @@ public class NetPlan extends NetworkElement
                 throw new RuntimeException("Bad: " + e);
             }
         }
+        notifyStructuralChange(null);
+        notifyStructureChanged();
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -4028,6 +4134,7 @@ public class NetPlan extends NetworkElement
      */
     public void addPlotNodeLayout (String newPlotNodeLayoutName)
     {
+        checkIsModifiable();
         if (this.cache_definedPlotNodeLayouts.contains(newPlotNodeLayoutName)) throw new Net2PlanException ("The layout name already exists");
         for (Node n : nodes)
         {
@@ -4049,6 +4156,7 @@ public class NetPlan extends NetworkElement
      */
     public void removePlotNodeLayout (String plotLayoutToRemove)
     {
+        checkIsModifiable();
         if (this.currentPlotNodeLayout.equals(plotLayoutToRemove)) throw new Net2PlanException ("The currently active layout cannot be removed");
         if (plotLayoutToRemove.equals(NetPlan.PLOTLAYTOUT_DEFAULTNODELAYOUTNAME)) throw new Net2PlanException ("The default layout cannot be removed");
         if (!this.cache_definedPlotNodeLayouts.contains(plotLayoutToRemove)) throw new Net2PlanException ("The layout name does not exist");
@@ -5271,6 +5379,7 @@ public class NetPlan extends NetworkElement
      */
     public void addGlobalPlanningDomain (String planningDomain)
     {
+    	checkIsModifiable();
     	if (this.cache_planningDomain2nodes.containsKey(planningDomain)) throw new Net2PlanException ("Planning domain " + planningDomain + " already exists");
     	this.cache_planningDomain2nodes.put(planningDomain, new TreeSet <> ());
     }
@@ -5281,6 +5390,7 @@ public class NetPlan extends NetworkElement
      */
     public void removeGlobalPlanningDomain (String planningDomain)
     {
+    	checkIsModifiable();
     	if (!this.cache_planningDomain2nodes.containsKey(planningDomain)) return;
     	if (!this.cache_planningDomain2nodes.get(planningDomain).isEmpty()) throw new Net2PlanException ("Planning domain " + planningDomain + " cannot be removed while having elements in it");
     	this.cache_planningDomain2nodes.remove(planningDomain);
@@ -5615,7 +5725,7 @@ public class NetPlan extends NetworkElement
     /** Sets the current date property of the design
      * @param date see above
      */
-    public void setCurrentDate (Date date) { this.currentDate = date; }
+    public void setCurrentDate (Date date) { checkIsModifiable(); this.currentDate = date; }
     
     /**
      * <p>Returns {@code true} if the network has more than one layer.</p>
@@ -5708,6 +5818,7 @@ public class NetPlan extends NetworkElement
         
         netPlan.interLayerCoupling.removeVertex(layer);
         netPlan.cache_id2LayerMap.remove(layer.id);
+        netPlan.notifyStructureChanged();
         NetPlan.removeNetworkElementAndShiftIndexes(netPlan.layers, layer.index);
         if (netPlan.defaultLayer.equals(layer)) netPlan.defaultLayer = netPlan.layers.get(0);
         layer.removeId();
@@ -5747,6 +5858,7 @@ public class NetPlan extends NetworkElement
         	d.cache_worstCasePropagationTimeMs = Double.MAX_VALUE;
             d.routingCycleType = RoutingCycleType.LOOPLESS;
             d.carriedTraffic = 0;
+            notifyDemandChanged(d);
             if (d.coupledUpperOrSameLayerLink != null)
             	d.coupledUpperOrSameLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(d.carriedTraffic);
         }
@@ -5897,6 +6009,7 @@ public class NetPlan extends NetworkElement
         for (Demand d : netPlan.getDemandsSourceRouted(layer))
         {
         	d.carriedTraffic = 0;
+        	notifyDemandChanged(d);
         	d.routingCycleType = RoutingCycleType.LOOPLESS;
         	if (d.coupledUpperOrSameLayerLink != null)
         		d.coupledUpperOrSameLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(0);
@@ -5925,18 +6038,21 @@ public class NetPlan extends NetworkElement
     {
         checkIsModifiable();
         NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
-        for (Route r : new ArrayList<Route>(layer.routes))
+        runDeferringLinkTrafficUpdates(() ->
         {
-            if (r.currentCarriedTrafficIfNotFailing >= toleranceTrafficAndCapacityValueToConsiderUnusedRoute) continue;
-            boolean emptyRoute = true;
-            for (double val : r.currentLinksAndResourcesOccupationIfNotFailing)
-                if (val >= toleranceTrafficAndCapacityValueToConsiderUnusedRoute)
-                {
-                    emptyRoute = false;
-                    break;
-                }
-            if (emptyRoute) r.remove();
-        }
+            for (Route r : new ArrayList<Route>(layer.routes))
+            {
+                if (r.currentCarriedTrafficIfNotFailing >= toleranceTrafficAndCapacityValueToConsiderUnusedRoute) continue;
+                boolean emptyRoute = true;
+                for (double val : r.currentLinksAndResourcesOccupationIfNotFailing)
+                    if (val >= toleranceTrafficAndCapacityValueToConsiderUnusedRoute)
+                    {
+                        emptyRoute = false;
+                        break;
+                    }
+                if (emptyRoute) r.remove();
+            }
+        });
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -6002,21 +6118,25 @@ public class NetPlan extends NetworkElement
     }
 
     /**
-     * <p>Saves the current network plan to a given file. If extension {@code .n2p}
+     * <p>Saves the current network plan to a given file. If the file name ends with {@code .n2pb}, the design is saved in the binary format
+     * (see {@link #saveToBinaryOutputStream(OutputStream)}). Otherwise, it is saved in the XML format, and if extension {@code .n2p}
      * is not in the file name, it will be added automatically.</p>
      *
      * @param file Output file
      */
+    @SuppressWarnings("try")
     public void saveToFile(File file)
     {
         String filePath = file.getPath();
-        if (!filePath.toLowerCase(Locale.getDefault()).endsWith(".n2p")) file = new File(filePath + ".n2p");
+        final boolean binaryFormat = filePath.toLowerCase(Locale.getDefault()).endsWith(".n2pb");
+        if (!binaryFormat && !filePath.toLowerCase(Locale.getDefault()).endsWith(".n2p")) file = new File(filePath + ".n2p");
 
         FileOutputStream fos = null;
-        try
+        try (Instrumentation.Measurement measurement = Instrumentation.start(Instrumentation.Timer.FILE_SAVE, file.getPath()))
         {
             fos = new FileOutputStream(file);
-            saveToOutputStream(fos);
+            if (binaryFormat) saveToBinaryOutputStream(fos);
+            else saveToOutputStream(fos);
         } catch (FileNotFoundException e)
         {
             throw new Net2PlanException(e.getMessage());
@@ -6035,6 +6155,25 @@ public class NetPlan extends NetworkElement
         }
     }
 
+    /**
+     * <p>Saves the current network plan to a given output stream, in the binary format. It keeps the same information as the XML format,
+     * but the elements are stored by columns, with the numeric fields as arrays of primitives and the strings in a shared table, so it is
+     * much faster to read and write. Both formats are read by {@link #NetPlan(InputStream)} and {@link #loadFromFile(File)}.</p>
+     *
+     * @param outputStream Output stream
+     * @since 0.6.6
+     */
+    public void saveToBinaryOutputStream(OutputStream outputStream)
+    {
+        try
+        {
+            new WriterNetPlanN2PBinary(this).write(outputStream);
+        } catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * <p>Saves the current network plan to a given output stream.</p>
      *
@@ -6519,7 +6658,7 @@ public class NetPlan extends NetworkElement
      */
     public void setAllLinksFailureState(boolean setAsUp, NetworkLayer... optionalLayerParameter)
     {
-        checkIsModifiable();
+        checkIsModifiable(true);
         NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
         if (setAsUp)
             setLinksAndNodesFailureState(layer.links, null, null, null);
@@ -6534,7 +6673,7 @@ public class NetPlan extends NetworkElement
      */
     public void setAllNodesFailureState(boolean setAsUp)
     {
-        checkIsModifiable();
+        checkIsModifiable(true);
         if (setAsUp)
             setLinksAndNodesFailureState(null, null, nodes, null);
         else
@@ -6552,37 +6691,169 @@ public class NetPlan extends NetworkElement
      */
     public void setLinksAndNodesFailureState(Collection<Link> linksToSetAsUp, Collection<Link> linksToSetAsDown, Collection<Node> nodesToSetAsUp, Collection<Node> nodesToSetAsDown)
     {
-        checkIsModifiable();
+        checkIsModifiable(true);
         if (linksToSetAsUp != null) checkInThisNetPlan(linksToSetAsUp);
         if (linksToSetAsDown != null) checkInThisNetPlan(linksToSetAsDown);
         if (nodesToSetAsUp != null) checkInThisNetPlan(nodesToSetAsUp);
         if (nodesToSetAsDown != null) checkInThisNetPlan(nodesToSetAsDown);
-        SortedSet<Link> affectedLinks = new TreeSet<Link>();
-        SortedSet<Node> affectedNodes = new TreeSet<> ();
 
         if (linksToSetAsDown != null && linksToSetAsUp != null)
-            if (!Sets.intersection(new TreeSet<>(linksToSetAsDown), new TreeSet<>(linksToSetAsUp)).isEmpty())
+            if (!Collections.disjoint(new ElementSortedSet<>(linksToSetAsDown), linksToSetAsUp))
                 throw new Net2PlanException("A link is changed to up and to down state in the same call");
         if (nodesToSetAsDown != null && nodesToSetAsUp != null)
-            if (!Sets.intersection(new TreeSet<>(nodesToSetAsDown), new TreeSet<>(nodesToSetAsUp)).isEmpty())
+            if (!Collections.disjoint(new ElementSortedSet<>(nodesToSetAsDown), nodesToSetAsUp))
                 throw new Net2PlanException("A node is changed to up and to down state in the same call");
 
+        updateLinksAndNodesFailureState(linksToSetAsUp, linksToSetAsDown, nodesToSetAsUp, nodesToSetAsDown);
+    }
+
+    /**
+     * <p>Returns a snapshot of the failure state (up or down) of all the nodes and links, that can be restored later with
+     * {@link #setLinksAndNodesFailureState(LinksAndNodesFailureState)}.</p>
+     *
+     * @return see above
+     * @since 0.6.6
+     */
+    public LinksAndNodesFailureState getLinksAndNodesFailureState()
+    {
+        return new LinksAndNodesFailureState(this);
+    }
+
+    /**
+     * <p>Restores the failure state of the nodes and links given by a snapshot taken in this design (see {@link #getLinksAndNodesFailureState()}), updating
+     * the routes/trees and hop-by-hop routing as {@link #setLinksAndNodesFailureState(Collection, Collection, Collection, Collection)}. Only the nodes and links
+     * whose state differs from the snapshot are changed, so going back to a state is as cheap as leaving it.</p>
+     *
+     * @param failureState The failure state to restore
+     * @since 0.6.6
+     */
+    public void setLinksAndNodesFailureState(LinksAndNodesFailureState failureState)
+    {
+        checkIsModifiable(true);
+        if (!failureState.isApplicableTo(this))
+            throw new Net2PlanException("The failure state was not taken in this design, or some nodes, links or layers were added or removed afterwards");
+
+        final List<Node> nodesToSetAsUp = new ArrayList<>(), nodesToSetAsDown = new ArrayList<>();
+        final List<Link> linksToSetAsUp = new ArrayList<>(), linksToSetAsDown = new ArrayList<>();
+        final BitSet nodesChanged = new BitSet(nodes.size());
+        for (Node n : cache_nodesDown) nodesChanged.set(n.index);
+        nodesChanged.xor(failureState.nodesDown);
+        for (int index = nodesChanged.nextSetBit(0); index >= 0; index = nodesChanged.nextSetBit(index + 1))
+        {
+            final Node n = nodes.get(index);
+            if (n.isUp) nodesToSetAsDown.add(n); else nodesToSetAsUp.add(n);
+        }
+        for (NetworkLayer layer : layers)
+        {
+            final BitSet linksChanged = new BitSet(layer.links.size());
+            for (Link e : layer.cache_linksDown) linksChanged.set(e.index);
+            linksChanged.xor(failureState.linksDownPerLayer[layer.index]);
+            for (int index = linksChanged.nextSetBit(0); index >= 0; index = linksChanged.nextSetBit(index + 1))
+            {
+                final Link e = layer.links.get(index);
+                if (e.isUp) linksToSetAsDown.add(e); else linksToSetAsUp.add(e);
+            }
+        }
+        if (nodesToSetAsUp.isEmpty() && nodesToSetAsDown.isEmpty() && linksToSetAsUp.isEmpty() && linksToSetAsDown.isEmpty()) return;
+        updateLinksAndNodesFailureState(linksToSetAsUp, linksToSetAsDown, nodesToSetAsUp, nodesToSetAsDown);
+    }
+
+    /**
+     * <p>Sets as up the nodes and links (in any layer) of the SRGs in {@code srgsToSetAsUp}, and as down the ones of the SRGs in {@code srgsToSetAsDown},
+     * updating the routes/trees and hop-by-hop routing in one pass, as {@link #setLinksAndNodesFailureState(Collection, Collection, Collection, Collection)}.
+     * A node or link in SRGs of both sets is set as down. The previous failure state is returned, so it can be restored afterwards with
+     * {@link #setLinksAndNodesFailureState(LinksAndNodesFailureState)}, e.g. to evaluate a sequence of failure states:</p>
+     * <pre>
+     * for (SharedRiskGroup srg : netPlan.getSRGs())
+     * {
+     *     final LinksAndNodesFailureState previousState = netPlan.setSrgsFailureState(null, Collections.singleton(srg));
+     *     ... // evaluate the network with the SRG failed
+     *     netPlan.setLinksAndNodesFailureState(previousState);
+     * }
+     * </pre>
+     *
+     * @param srgsToSetAsUp   SRGs whose nodes and links are set as up ({@code null} means none)
+     * @param srgsToSetAsDown SRGs whose nodes and links are set as down ({@code null} means none)
+     * @return The failure state of the nodes and links previous to the change
+     * @since 0.6.6
+     */
+    public LinksAndNodesFailureState setSrgsFailureState(Collection<SharedRiskGroup> srgsToSetAsUp, Collection<SharedRiskGroup> srgsToSetAsDown)
+    {
+        checkIsModifiable(true);
+        if (srgsToSetAsUp != null) checkInThisNetPlan(srgsToSetAsUp);
+        if (srgsToSetAsDown != null) checkInThisNetPlan(srgsToSetAsDown);
+        final LinksAndNodesFailureState previousState = getLinksAndNodesFailureState();
+        updateSrgsFailureState(srgsToSetAsUp, srgsToSetAsDown);
+        return previousState;
+    }
+
+    /* Sets the nodes and links of the given SRGs (already checked) as up or down, as in setSrgsFailureState, without returning the previous state */
+    void updateSrgsFailureState(Collection<SharedRiskGroup> srgsToSetAsUp, Collection<SharedRiskGroup> srgsToSetAsDown)
+    {
+        /* The nodes and links of each SRG, marked in bitsets: the union of the ones set as down, and the ones set as up and not down */
+        final BitSet nodesDown = new BitSet(nodes.size()), nodesUp = new BitSet(nodes.size());
+        final BitSet[] linksDown = new BitSet[layers.size()], linksUp = new BitSet[layers.size()];
+        for (NetworkLayer layer : layers) { linksDown[layer.index] = new BitSet(layer.links.size()); linksUp[layer.index] = new BitSet(layer.links.size()); }
+        if (srgsToSetAsDown != null)
+            for (SharedRiskGroup srg : srgsToSetAsDown)
+            {
+                for (Node n : srg.getNodes()) nodesDown.set(n.index);
+                for (Link e : srg.getLinksAllLayers()) linksDown[e.layer.index].set(e.index);
+            }
+        if (srgsToSetAsUp != null)
+            for (SharedRiskGroup srg : srgsToSetAsUp)
+            {
+                for (Node n : srg.getNodes()) nodesUp.set(n.index);
+                for (Link e : srg.getLinksAllLayers()) linksUp[e.layer.index].set(e.index);
+            }
+        nodesUp.andNot(nodesDown);
+
+        final List<Node> nodesToSetAsUp = new ArrayList<>(), nodesToSetAsDown = new ArrayList<>();
+        final List<Link> linksToSetAsUp = new ArrayList<>(), linksToSetAsDown = new ArrayList<>();
+        for (int index = nodesDown.nextSetBit(0); index >= 0; index = nodesDown.nextSetBit(index + 1))
+            if (nodes.get(index).isUp) nodesToSetAsDown.add(nodes.get(index));
+        for (int index = nodesUp.nextSetBit(0); index >= 0; index = nodesUp.nextSetBit(index + 1))
+            if (!nodes.get(index).isUp) nodesToSetAsUp.add(nodes.get(index));
+        for (NetworkLayer layer : layers)
+        {
+            linksUp[layer.index].andNot(linksDown[layer.index]);
+            for (int index = linksDown[layer.index].nextSetBit(0); index >= 0; index = linksDown[layer.index].nextSetBit(index + 1))
+                if (layer.links.get(index).isUp) linksToSetAsDown.add(layer.links.get(index));
+            for (int index = linksUp[layer.index].nextSetBit(0); index >= 0; index = linksUp[layer.index].nextSetBit(index + 1))
+                if (!layer.links.get(index).isUp) linksToSetAsUp.add(layer.links.get(index));
+        }
+        if (nodesToSetAsUp.isEmpty() && nodesToSetAsDown.isEmpty() && linksToSetAsUp.isEmpty() && linksToSetAsDown.isEmpty()) return;
+        updateLinksAndNodesFailureState(linksToSetAsUp, linksToSetAsDown, nodesToSetAsUp, nodesToSetAsDown);
+    }
+
+    /* Changes the failure state of the given links and nodes (already checked), and updates the routes, trees and hop-by-hop routing affected. The
+     * affected links, nodes, routes, trees and demands are marked in bitsets of their indexes (one per layer), so each one is updated once, in index order.
+     * The traffic of the links traversed by them is updated at the end, in one pass */
+    private void updateLinksAndNodesFailureState(Collection<Link> linksToSetAsUp, Collection<Link> linksToSetAsDown, Collection<Node> nodesToSetAsUp, Collection<Node> nodesToSetAsDown)
+    {
+        if (journal != null) journal.recordFailureStateChange(linksToSetAsUp, linksToSetAsDown, nodesToSetAsUp, nodesToSetAsDown);
+
 //		System.out.println ("setLinksAndNodesFailureState : links to up: " + linksToSetAsUp + ", links to down: " + linksToSetAsDown + ", nodes up: " + nodesToSetAsUp + ", nodes down: " + nodesToSetAsDown);
 
+        final int numLayers = layers.size();
+        final BitSet[] affectedLinks = new BitSet[numLayers];
+        final BitSet affectedNodes = new BitSet(nodes.size());
+        for (NetworkLayer layer : layers) affectedLinks[layer.index] = new BitSet(layer.links.size());
+
 		/* Take all the affected links, including the in/out links of nodes. Update their state up/down and the cache of links and nodes up down, but not the routes, trees etc. */
         if (linksToSetAsUp != null) for (Link e : linksToSetAsUp)
             if (!e.isUp)
             {
                 e.isUp = true;
                 e.layer.cache_linksDown.remove(e);
-                affectedLinks.add(e);
+                affectedLinks[e.layer.index].set(e.index);
             }
         if (linksToSetAsDown != null) for (Link e : linksToSetAsDown)
             if (e.isUp)
             {
                 e.isUp = false;
                 e.layer.cache_linksDown.add(e);
-                affectedLinks.add(e);
+                affectedLinks[e.layer.index].set(e.index);
             }
         if (nodesToSetAsUp != null)
             for (Node node : nodesToSetAsUp)
@@ -6590,9 +6861,9 @@ public class NetPlan extends NetworkElement
                 {
                     node.isUp = true;
                     cache_nodesDown.remove(node);
-                    affectedLinks.addAll(node.cache_nodeOutgoingLinks);
-                    affectedLinks.addAll(node.cache_nodeIncomingLinks);
-                    affectedNodes.add(node);
+                    for (Link e : node.cache_nodeOutgoingLinks) affectedLinks[e.layer.index].set(e.index);
+                    for (Link e : node.cache_nodeIncomingLinks) affectedLinks[e.layer.index].set(e.index);
+                    affectedNodes.set(node.index);
                 }
         if (nodesToSetAsDown != null)
             for (Node node : nodesToSetAsDown)
@@ -6600,29 +6871,72 @@ public class NetPlan extends NetworkElement
                 {
                     node.isUp = false;
                     cache_nodesDown.add(node);
-                    affectedLinks.addAll(node.cache_nodeOutgoingLinks);
-                    affectedLinks.addAll(node.cache_nodeIncomingLinks);
-                    affectedNodes.add(node);
+                    for (Link e : node.cache_nodeOutgoingLinks) affectedLinks[e.layer.index].set(e.index);
+                    for (Link e : node.cache_nodeIncomingLinks) affectedLinks[e.layer.index].set(e.index);
+                    affectedNodes.set(node.index);
                 }
 
-        SortedSet<Demand> affectedDemandsHopByHopRouting = new TreeSet<>();
-        SortedSet<Route> affectedRoutesSourceRouting = new TreeSet<Route>();
-        SortedSet<MulticastTree> affectedTrees = new TreeSet<MulticastTree>();
-
-        for (Link link : affectedLinks)
+        final BitSet[] affectedDemandsHopByHopRouting = new BitSet[numLayers];
+        final BitSet[] affectedRoutesSourceRouting = new BitSet[numLayers];
+        final BitSet[] affectedTrees = new BitSet[numLayers];
+        for (NetworkLayer layer : layers)
         {
-        	affectedDemandsHopByHopRouting.addAll(link.cacheHbH_frs.keySet());
-        	affectedRoutesSourceRouting.addAll(link.cache_traversingRoutes.keySet());
-            affectedTrees.addAll(link.cache_traversingTrees);
+            affectedDemandsHopByHopRouting[layer.index] = new BitSet(layer.demands.size());
+            affectedRoutesSourceRouting[layer.index] = new BitSet(layer.routes.size());
+            affectedTrees[layer.index] = new BitSet(layer.multicastTrees.size());
+        }
+        for (NetworkLayer layer : layers)
+        {
+            final BitSet linksThisLayer = affectedLinks[layer.index];
+            for (int index = linksThisLayer.nextSetBit(0); index >= 0; index = linksThisLayer.nextSetBit(index + 1))
+            {
+                final Link link = layer.links.get(index);
+                notifyLinkChanged(link);
+                for (Demand d : link.cacheHbH_frs.keySet()) affectedDemandsHopByHopRouting[d.layer.index].set(d.index);
+                for (Route r : link.cache_traversingRoutes.keySet()) affectedRoutesSourceRouting[r.layer.index].set(r.index);
+                for (MulticastTree t : link.cache_traversingTrees) affectedTrees[t.layer.index].set(t.index);
+            }
+        }
+        for (int index = affectedNodes.nextSetBit(0); index >= 0; index = affectedNodes.nextSetBit(index + 1))
+        {
+            final Node n = nodes.get(index);
+            notifyNodeChanged(n);
+            for (MulticastDemand md : n.cache_nodeOutgoingMulticastDemands) // for trees without links, only ingress node
+                for (MulticastTree t : md.cache_multicastTrees) affectedTrees[t.layer.index].set(t.index);
         }
-        for (Node n : affectedNodes)
-            for (NetworkLayer layer : layers)
-                affectedTrees.addAll(n.getOutgoingMulticastTrees(layer)); // for trees without links, only ingress node
 
-        //		System.out.println ("affected routes: " + affectedRoutesSourceRouting);
-        for (Demand d : affectedDemandsHopByHopRouting) d.updateHopByHopRoutingToGivenFrs(d.cacheHbH_frs);
-        netPlan.updateFailureStateRoutesAndTrees(affectedRoutesSourceRouting);
-        netPlan.updateFailureStateRoutesAndTrees(affectedTrees);
+        /* The traffic of each link is computed once, after all the affected routes, trees and demands are updated (and not once per route traversing it) */
+        final boolean deferLinkTrafficUpdates = cache_linksWithPendingTrafficUpdate == null;
+        final Set<Link> linksToUpdate = new ElementSortedSet<>();
+        if (deferLinkTrafficUpdates) cache_linksWithPendingTrafficUpdate = linksToUpdate;
+        try
+        {
+            final SortedMap<Demand,SortedMap<Link,Double>> frsAffectedDemandsHopByHopRouting = new TreeMap<> ();
+            for (NetworkLayer layer : layers)
+            {
+                final BitSet demandsThisLayer = affectedDemandsHopByHopRouting[layer.index];
+                for (int index = demandsThisLayer.nextSetBit(0); index >= 0; index = demandsThisLayer.nextSetBit(index + 1))
+                    frsAffectedDemandsHopByHopRouting.put(layer.demands.get(index), layer.demands.get(index).cacheHbH_frs);
+            }
+            Demand.updateHopByHopRoutingOfDemandsToGivenFrs(frsAffectedDemandsHopByHopRouting);
+            for (NetworkLayer layer : layers)
+            {
+                final BitSet routesThisLayer = affectedRoutesSourceRouting[layer.index];
+                for (int index = routesThisLayer.nextSetBit(0); index >= 0; index = routesThisLayer.nextSetBit(index + 1))
+                    updateFailureStateRoutesAndTrees(layer.routes.get(index));
+            }
+            for (NetworkLayer layer : layers)
+            {
+                final BitSet treesThisLayer = affectedTrees[layer.index];
+                for (int index = treesThisLayer.nextSetBit(0); index >= 0; index = treesThisLayer.nextSetBit(index + 1))
+                    updateFailureStateRoutesAndTrees(layer.multicastTrees.get(index));
+            }
+        } finally
+        {
+            if (deferLinkTrafficUpdates) cache_linksWithPendingTrafficUpdate = null;
+            for (Link e : linksToUpdate) e.updateLinkTrafficAndOccupation();
+        }
+        if (journal != null) journal.endCompoundChange();
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
@@ -6770,8 +7084,7 @@ public class NetPlan extends NetworkElement
         for (double val : sumOutFrs.values()) if (val > 1 + Configuration.precisionFactor)
         	throw new Net2PlanException ();
 
-        for (Demand d : newForwardingRules.keySet())
-        	d.updateHopByHopRoutingToGivenFrs(newForwardingRules.get(d));
+        Demand.updateHopByHopRoutingOfDemandsToGivenFrs(newForwardingRules);
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
@@ -6798,17 +7111,37 @@ public class NetPlan extends NetworkElement
         if ((D == 0) || (E == 0))
             return;
         
-        if ((D > 0) && (E > 0))
-            if ((f_de.getMinLocation()[0] < -1e-3) || (f_de.getMaxLocation()[0] > 1 + 1e-3))
-                throw new Net2PlanException("Splitting ratios must be greater or equal than zero and lower or equal than one");
-        final DoubleMatrix2D Aout_ne = netPlan.getMatrixNodeLinkOutgoingIncidence(layer);
-        final DoubleMatrix2D A_dn = f_de.zMult(Aout_ne, null, 1, 0, false, true); // traffic of demand d that leaves node n
-        if (A_dn.size() > 0) if (A_dn.getMaxLocation()[0] > 1 + Configuration.precisionFactor)
-            throw new Net2PlanException("The sum of the splitting factors of the output links of a node cannot exceed one");
         IntArrayList ds = new IntArrayList();
         IntArrayList es = new IntArrayList();
         DoubleArrayList splits = new DoubleArrayList();
         f_de.getNonZeros(ds, es, splits);
+        for (int cont = 0; cont < ds.size() ; cont ++)
+            if ((splits.get(cont) < -1e-3) || (splits.get(cont) > 1 + 1e-3))
+                throw new Net2PlanException("Splitting ratios must be greater or equal than zero and lower or equal than one");
+
+        /* traffic of demand d that leaves node n, from the non-zero rules sorted by demand */
+        final int [] firstNonZeroPerDemand = new int [D + 1];
+        for (int cont = 0; cont < ds.size() ; cont ++) firstNonZeroPerDemand [ds.get(cont) + 1] ++;
+        for (int d = 0; d < D ; d ++) firstNonZeroPerDemand [d + 1] += firstNonZeroPerDemand [d];
+        final int [] nextNonZeroPosition = Arrays.copyOf(firstNonZeroPerDemand, D);
+        final int [] nonZerosSortedByDemand = new int [ds.size()];
+        for (int cont = 0; cont < ds.size() ; cont ++) nonZerosSortedByDemand [nextNonZeroPosition [ds.get(cont)] ++] = cont;
+        final double [] A_n = new double [nodes.size()];
+        for (int d = 0; d < D ; d ++)
+        {
+            for (int pos = firstNonZeroPerDemand [d] ; pos < firstNonZeroPerDemand [d + 1] ; pos ++)
+            {
+                final int cont = nonZerosSortedByDemand [pos];
+                A_n [layer.links.get(es.get(cont)).originNode.index] += splits.get(cont);
+            }
+            for (int pos = firstNonZeroPerDemand [d] ; pos < firstNonZeroPerDemand [d + 1] ; pos ++)
+            {
+                final int n = layer.links.get(es.get(nonZerosSortedByDemand [pos])).originNode.index;
+                if (A_n [n] > 1 + Configuration.precisionFactor)
+                    throw new Net2PlanException("The sum of the splitting factors of the output links of a node cannot exceed one");
+                A_n [n] = 0;
+            }
+        }
         for (int cont = 0; cont < ds.size() ; cont ++)
         {
             final Demand demand = layer.demands.get(ds.get(cont));
@@ -6837,9 +7170,11 @@ public class NetPlan extends NetworkElement
             frMap.put(link, splittingFactor);
         }
 
+        final SortedMap<Demand,SortedMap<Link,Double>> newFrsHopByHopDemands = new TreeMap<> ();
         for (Demand d : demandsToUpdate)
         	if (!d.isSourceRouting()) 
-        		d.updateHopByHopRoutingToGivenFrs(newFrs.containsKey(d)? newFrs.get(d) : new TreeMap<> ());
+        		newFrsHopByHopDemands.put(d, newFrs.containsKey(d)? newFrs.get(d) : new TreeMap<> ());
+        Demand.updateHopByHopRoutingOfDemandsToGivenFrs(newFrsHopByHopDemands);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -6875,6 +7210,7 @@ public class NetPlan extends NetworkElement
      */
     public void setNetworkLayerDefault(NetworkLayer layer)
     {
+        checkIsModifiable();
         checkInThisNetPlan(layer);
         this.defaultLayer = layer;
     }
@@ -7096,11 +7432,8 @@ public class NetPlan extends NetworkElement
             {
             	SortedMap<Demand,SortedMap<Link,Double>> newFrs = GraphUtils.convert_xp2fdeMap(layer.routes);
                 removeAllRoutes(layer);
-                for (Demand d : layer.demands)
-                {
-                	d.routingType = RoutingType.HOP_BY_HOP_ROUTING;
-                	if (newFrs.containsKey(d)) d.updateHopByHopRoutingToGivenFrs(newFrs.get(d));
-                }
+                for (Demand d : layer.demands) d.routingType = RoutingType.HOP_BY_HOP_ROUTING;
+                Demand.updateHopByHopRoutingOfDemandsToGivenFrs(newFrs);
                 break;
             }
 
@@ -7193,11 +7526,14 @@ public class NetPlan extends NetworkElement
         if (offeredTrafficVector.size() != layer.demands.size()) throw new Net2PlanException("Wrong veector size");
         if (offeredTrafficVector.size() > 0) if (offeredTrafficVector.getMinLocation()[0] < 0)
             throw new Net2PlanException("Offered traffic must be greater or equal than zero");
+        final SortedMap<Demand,SortedMap<Link,Double>> frsHopByHopDemands = new TreeMap<> ();
         for (Demand d : layer.demands)
         {
             d.offeredTraffic = offeredTrafficVector.get(d.index);
-            if (d.routingType == RoutingType.HOP_BY_HOP_ROUTING) d.updateHopByHopRoutingToGivenFrs(d.cacheHbH_frs);
+            notifyDemandChanged(d);
+            if (d.routingType == RoutingType.HOP_BY_HOP_ROUTING) frsHopByHopDemands.put(d, d.cacheHbH_frs);
         }
+        Demand.updateHopByHopRoutingOfDemandsToGivenFrs(frsHopByHopDemands);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -7291,11 +7627,31 @@ public class NetPlan extends NetworkElement
             throw new Net2PlanException("Carried traffics must be greater or equal than zero");
         if (occupiedLinkCapacity.size() > 0) if (occupiedLinkCapacity.getMinLocation()[0] < 0)
             throw new Net2PlanException("Occupied link capacities must be greater or equal than zero");
-        for (Route r : layer.routes)
-            r.setCarriedTraffic(carriedTraffic.get(r.index), occupiedLinkCapacity.get(r.index));
+        final DoubleMatrix1D finalCarriedTraffic = carriedTraffic, finalOccupiedLinkCapacity = occupiedLinkCapacity;
+        runDeferringLinkTrafficUpdates(() ->
+        {
+            for (Route r : layer.routes)
+                r.setCarriedTraffic(finalCarriedTraffic.get(r.index), finalOccupiedLinkCapacity.get(r.index));
+        });
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
+    /* Runs the given change computing the traffic of each affected link once at the end, and not once per route traversing it */
+    private void runDeferringLinkTrafficUpdates(Runnable change)
+    {
+        if (cache_linksWithPendingTrafficUpdate != null) { change.run(); return; }
+        final Set<Link> linksToUpdate = new ElementSortedSet<>();
+        cache_linksWithPendingTrafficUpdate = linksToUpdate;
+        try
+        {
+            change.run();
+        } finally
+        {
+            cache_linksWithPendingTrafficUpdate = null;
+            for (Link e : linksToUpdate) e.updateLinkTrafficAndOccupation();
+        }
+    }
+
     /**
      * Returns a {@code String} representation of the network design.
      *
@@ -7570,6 +7926,98 @@ public class NetPlan extends NetworkElement
         return isModifiable;
     }
 
+    /**
+     * <p>Registers a listener to be notified of the changes in the state of this design (see {@link com.net2plan.interfaces.networkDesign.INetPlanChangeListener INetPlanChangeListener}).
+     * Listeners are not copied to other designs in {@link #copy() copy}, {@link #copyFrom(NetPlan) copyFrom} or {@link #assignFrom(NetPlan) assignFrom}.</p>
+     *
+     * @param listener The listener
+     * @since 0.6.6
+     */
+    public void addChangeListener(INetPlanChangeListener listener)
+    {
+        if (listener == null) throw new Net2PlanException("A listener must be provided");
+        if (!changeListeners.contains(listener)) changeListeners.add(listener);
+    }
+
+    /**
+     * <p>Unregisters a listener previously registered with {@link #addChangeListener(INetPlanChangeListener) addChangeListener}. Nothing is done if the listener was not registered.</p>
+     *
+     * @param listener The listener
+     * @since 0.6.6
+     */
+    public void removeChangeListener(INetPlanChangeListener listener)
+    {
+        changeListeners.remove(listener);
+    }
+
+    void notifyLinkChanged(Link link)
+    {
+        for (int cont = 0; cont < changeListeners.size(); cont++) changeListeners.get(cont).linkChanged(link);
+    }
+
+    void notifyDemandChanged(Demand demand)
+    {
+        for (int cont = 0; cont < changeListeners.size(); cont++) changeListeners.get(cont).demandChanged(demand);
+    }
+
+    void notifyNodeChanged(Node node)
+    {
+        for (int cont = 0; cont < changeListeners.size(); cont++) changeListeners.get(cont).nodeChanged(node);
+    }
+
+    void notifyStructureChanged()
+    {
+        for (int cont = 0; cont < changeListeners.size(); cont++) changeListeners.get(cont).structureChanged();
+    }
+
+    /* Called when the elements of the given type are added, removed or reclassified. If the type is null, the change affects all the types */
+    void notifyStructuralChange(NetworkElementType type)
+    {
+        if (type != null) { cache_numStructuralChangesPerType [type.ordinal()] ++; return; }
+        for (int cont = 0; cont < cache_numStructuralChangesPerType.length; cont++) cache_numStructuralChangesPerType [cont] ++;
+    }
+
+    /**
+     * <p>Returns a counter of the structural changes in the elements of the given type. It is increased each time one of them is added or removed, when their
+     * tags change, when a unicast demand is coupled or decoupled (for demands and links), or when a layer is renamed. It is increased for all the types when the whole design
+     * is replaced in {@link #copyFrom(NetPlan) copyFrom} or {@link #assignFrom(NetPlan) assignFrom}. Libraries keeping information derived from the set of elements of some
+     * type (e.g. the list of elements of some class) can compare it with the value when the information was computed, to know if it is still valid.</p>
+     *
+     * @param type The element type
+     * @return see above
+     * @since 0.6.6
+     */
+    public long getNumberOfStructuralChanges(NetworkElementType type)
+    {
+        return cache_numStructuralChangesPerType [type.ordinal()];
+    }
+
+    /**
+     * <p>Returns the object attached to this design with {@link #setLibraryCache(Object, Object) setLibraryCache} for the given key, or null if none.</p>
+     *
+     * @param key The key
+     * @return see above
+     * @since 0.6.6
+     */
+    public Object getLibraryCache(Object key)
+    {
+        return cache_libraryCaches.get(key);
+    }
+
+    /**
+     * <p>Attaches to this design an object with information derived from it, kept by other libraries (e.g. the wrappers of the network elements), so it lives
+     * as long as the design. These objects are not copied to other designs in {@link #copy() copy}, {@link #copyFrom(NetPlan) copyFrom} or {@link #assignFrom(NetPlan) assignFrom},
+     * and are not saved. If the object is null, the previous one is detached.</p>
+     *
+     * @param key The key (typically, the class of the library)
+     * @param cache The object
+     * @since 0.6.6
+     */
+    public void setLibraryCache(Object key, Object cache)
+    {
+        if (cache == null) cache_libraryCaches.remove(key); else cache_libraryCaches.put(key, cache);
+    }
+
     /**
      * <p>Checks if the given layer is valid and belongs to this {@code NetPlan} design. Throws and exception if the input is invalid.</p>
      *
@@ -7697,7 +8145,7 @@ public class NetPlan extends NetworkElement
 //		return m;
 //	}
 
-    void checkCachesConsistency(List<? extends NetworkElement> list, SortedMap<Long, ? extends NetworkElement> cache, boolean mustBeSameSize)
+    void checkCachesConsistency(List<? extends NetworkElement> list, LongObjectHashMap<? extends NetworkElement> cache, boolean mustBeSameSize)
     {
         if (mustBeSameSize)
             if (cache.size() != list.size()) throw new RuntimeException("Bad: cache: " + cache + ", list: " + list);
@@ -7717,7 +8165,17 @@ public class NetPlan extends NetworkElement
      * inconsistency is found an exception is thrown.</p>
      */
     @Override
+    @SuppressWarnings("try")
     public void checkCachesConsistency()
+    {
+        if (cache_linksWithPendingTrafficUpdate != null) return; // checked after the pending link traffic updates
+        try (Instrumentation.Measurement measurement = Instrumentation.start(Instrumentation.Timer.CACHE_CONSISTENCY_CHECK, null))
+        {
+            checkCachesConsistencyOfThisDesign();
+        }
+    }
+
+    private void checkCachesConsistencyOfThisDesign()
     {
 		super.checkCachesConsistency ();
 
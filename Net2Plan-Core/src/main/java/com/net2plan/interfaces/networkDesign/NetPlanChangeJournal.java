@@ -0,0 +1,619 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.net2plan.internal.UnmodifiablePoint2D;
+import com.net2plan.utils.Constants.RoutingType;
+
+/**
+ * <p>Journal of the changes made to a {@link com.net2plan.interfaces.networkDesign.NetPlan NetPlan} object, recorded as the design is modified, so they can be
+ * undone and redone applying the inverse deltas, instead of keeping full copies of the design. The changes are grouped in steps: each call to
+ * {@link #closeStep() closeStep} returns the changes since the previous call.</p>
+ *
+ * <p>The changes journaled are: adding nodes, links and unicast demands, setting the attributes, tags, name and description of any element, the position of the
+ * nodes, the capacity, length and propagation speed of the links, the offered traffic of the demands, the bidirectional pairs of links and demands, and the
+ * failure state of links and nodes. Any other modification of the design (e.g. removing elements, changing the routing) is detected, and makes the step
+ * not invertible. The same happens if the number of changes in a step exceeds the given limit. Right before the first of these modifications in a step,
+ * the journal makes a copy of the design, in the state before the step (see {@link Step#getNetPlanBeforeChanges() getNetPlanBeforeChanges}). Then,
+ * the design is copied only when needed to undo a step, and no copy is kept while the steps are invertible.
+ * The changes refer to the elements by their identifiers, so a step can be applied to any design with the same identifiers (e.g. a copy).</p>
+ *
+ * @since 0.6.6
+ */
+public class NetPlanChangeJournal
+{
+	private final NetPlan netPlan;
+	private final int maxNumChangesPerStep;
+	private List<Change> changes;
+	private int numNonJournaledModifications;
+	private boolean inCompoundChange;
+	private boolean tooManyChanges;
+	private boolean replaying;
+	private NetPlan netPlanBeforeChanges; // copy of the design before the changes of the step, made if the step is not invertible
+
+	/**
+	 * Creates a journal of the changes of the given design, and attaches it to the design. Any journal previously attached to the design is detached.
+	 *
+	 * @param netPlan The design
+	 * @param maxNumChangesPerStep Maximum number of changes recorded in a step. Steps with more changes are not invertible
+	 */
+	public NetPlanChangeJournal(NetPlan netPlan, int maxNumChangesPerStep)
+	{
+		if (netPlan == null) throw new Net2PlanException("A NetPlan object must be provided");
+		this.netPlan = netPlan;
+		this.maxNumChangesPerStep = maxNumChangesPerStep;
+		this.changes = new ArrayList<>();
+		netPlan.journal = this;
+	}
+
+	/**
+	 * Returns the design journaled
+	 *
+	 * @return see above
+	 */
+	public NetPlan getNetPlan()
+	{
+		return netPlan;
+	}
+
+	/**
+	 * Detaches this journal from the design, that is not journaled any more
+	 */
+	public void detach()
+	{
+		if (netPlan.journal == this) netPlan.journal = null;
+	}
+
+	/**
+	 * Returns true if this journal is attached to its design
+	 *
+	 * @return see above
+	 */
+	public boolean isAttached()
+	{
+		return netPlan.journal == this;
+	}
+
+	/**
+	 * Returns true if the design has been modified since the last call to {@link #closeStep() closeStep} (or since the journal was created)
+	 *
+	 * @return see above
+	 */
+	public boolean hasChanges()
+	{
+		return numNonJournaledModifications > 0 || tooManyChanges || !changes.isEmpty();
+	}
+
+	/**
+	 * Returns the step with the changes since the previous call (or since the journal was created), and starts a new one.
+	 *
+	 * @return see above
+	 */
+	public Step closeStep()
+	{
+		final boolean isInvertible = !tooManyChanges && numNonJournaledModifications == 0;
+		final Step step = isInvertible ? new Step(changes, null) : new Step(Collections.<Change>emptyList(), netPlanBeforeChanges);
+		this.changes = new ArrayList<>();
+		this.numNonJournaledModifications = 0;
+		this.inCompoundChange = false;
+		this.tooManyChanges = false;
+		this.netPlanBeforeChanges = null;
+		return step;
+	}
+
+	/**
+	 * The changes made to a design in a journal step
+	 */
+	public static final class Step
+	{
+		private final List<Change> changes;
+		private final boolean isInvertible;
+		private final NetPlan netPlanBeforeChanges;
+
+		private Step(List<Change> changes, NetPlan netPlanBeforeChanges)
+		{
+			this.changes = changes;
+			this.isInvertible = netPlanBeforeChanges == null;
+			this.netPlanBeforeChanges = netPlanBeforeChanges;
+		}
+
+		/**
+		 * Returns true if all the changes in the step were journaled, so it can be undone and redone
+		 *
+		 * @return see above
+		 */
+		public boolean isInvertible()
+		{
+			return isInvertible;
+		}
+
+		/**
+		 * Returns the number of changes in the step (zero if the step is not invertible)
+		 *
+		 * @return see above
+		 */
+		public int getNumberOfChanges()
+		{
+			return changes.size();
+		}
+
+		/**
+		 * Returns a copy of the design in the state before the changes of this step, if the step is not invertible (null otherwise). The copy is not journaled
+		 *
+		 * @return see above
+		 */
+		public NetPlan getNetPlanBeforeChanges()
+		{
+			return netPlanBeforeChanges;
+		}
+
+		/**
+		 * Undoes the changes of this step in the given design, that must be in the state right after them. The changes are not journaled
+		 *
+		 * @param np The design (the one journaled, or another design with the same identifiers)
+		 */
+		public void undo(NetPlan np)
+		{
+			if (!isInvertible) throw new Net2PlanException("The step cannot be undone");
+			final NetPlanChangeJournal journal = np.journal;
+			if (journal != null) journal.replaying = true;
+			try { for (int cont = changes.size() - 1; cont >= 0; cont--) changes.get(cont).undo(np); }
+			finally { if (journal != null) journal.replaying = false; }
+		}
+
+		/**
+		 * Redoes the changes of this step in the given design, that must be in the state right before them. The changes are not journaled
+		 *
+		 * @param np The design (the one journaled, or another design with the same identifiers)
+		 */
+		public void redo(NetPlan np)
+		{
+			if (!isInvertible) throw new Net2PlanException("The step cannot be redone");
+			final NetPlanChangeJournal journal = np.journal;
+			if (journal != null) journal.replaying = true;
+			try { for (Change change : changes) change.redo(np); }
+			finally { if (journal != null) journal.replaying = false; }
+		}
+	}
+
+	/* Called from NetPlan.checkIsModifiable, at the beginning of any modification of the design. Before the first modification that cannot be undone in
+	 * the step, the design is copied, and the changes journaled in the step are undone in the copy */
+	void notifyModification(boolean isJournaled)
+	{
+		if (replaying || inCompoundChange) return;
+		if (isJournaled && (tooManyChanges || changes.size() < maxNumChangesPerStep)) return;
+		if (netPlanBeforeChanges == null)
+		{
+			final NetPlan copy = netPlan.copy();
+			for (int cont = changes.size() - 1; cont >= 0; cont--) changes.get(cont).undo(copy);
+			this.netPlanBeforeChanges = copy;
+		}
+		if (isJournaled) { tooManyChanges = true; changes = new ArrayList<>(); } else numNonJournaledModifications++;
+	}
+
+	void recordAttributeChange(NetworkElement e, String key, String oldValue, String newValue)
+	{
+		record(new AttributeChange(e.id, key, oldValue, newValue));
+	}
+
+	void recordAttributeMapChange(NetworkElement e, Map<String, String> oldMap, Map<String, String> newMap)
+	{
+		record(new AttributeMapChange(e.id, new TreeMap<>(oldMap), newMap == null ? new TreeMap<String, String>() : new TreeMap<>(newMap)));
+	}
+
+	void recordNameOrDescriptionChange(NetworkElement e, boolean isName, String oldValue, String newValue)
+	{
+		record(new NameOrDescriptionChange(e.id, isName, oldValue, newValue));
+	}
+
+	void recordNodePositionChange(Node n, String layout, Point2D oldPosition, Point2D newPosition)
+	{
+		record(new NodePositionChange(n.id, layout, oldPosition, newPosition));
+	}
+
+	void recordLinkChange(Link e, int type_0Capacity_1Length_2Speed, double oldValue, double newValue)
+	{
+		record(new LinkValueChange(e.id, type_0Capacity_1Length_2Speed, oldValue, newValue));
+	}
+
+	void recordOfferedTrafficChange(NetworkElement d, double oldValue, double newValue)
+	{
+		record(new OfferedTrafficChange(d.id, oldValue, newValue));
+	}
+
+	void recordBidirectionalPairChange(NetworkElement e, NetworkElement oldPair, NetworkElement newPair, NetworkElement oldPairOfNewPair)
+	{
+		record(new BidirectionalPairChange(e.id, oldPair == null ? -1 : oldPair.id, newPair == null ? -1 : newPair.id, oldPairOfNewPair == null ? -1 : oldPairOfNewPair.id));
+	}
+
+	void recordTagChange(NetworkElement e, String tag, boolean hadTag, boolean hasTag)
+	{
+		record(new TagChange(e.id, tag, hadTag, hasTag, netPlan.cache_taggedElements.containsKey(tag)));
+	}
+
+	/* Called before the failure state is changed: only the links and nodes that change their state are recorded */
+	void recordFailureStateChange(Collection<Link> linksToUp, Collection<Link> linksToDown, Collection<Node> nodesToUp, Collection<Node> nodesToDown)
+	{
+		if (replaying) return;
+		final SortedSet<Link> linksChangedToUp = new TreeSet<>(), linksChangedToDown = new TreeSet<>();
+		final SortedSet<Node> nodesChangedToUp = new TreeSet<>(), nodesChangedToDown = new TreeSet<>();
+		if (linksToUp != null) for (Link e : linksToUp) if (!e.isUp) linksChangedToUp.add(e);
+		if (linksToDown != null) for (Link e : linksToDown) if (e.isUp) linksChangedToDown.add(e);
+		if (nodesToUp != null) for (Node n : nodesToUp) if (!n.isUp) nodesChangedToUp.add(n);
+		if (nodesToDown != null) for (Node n : nodesToDown) if (n.isUp) nodesChangedToDown.add(n);
+		record(new FailureStateChange(getIds(linksChangedToUp), getIds(linksChangedToDown), getIds(nodesChangedToUp), getIds(nodesChangedToDown)));
+		inCompoundChange = true;
+	}
+
+	/* Called at the end of a change recorded as one, e.g. the failure state: the modifications made inside it (e.g. in the routes) are not counted */
+	void endCompoundChange()
+	{
+		inCompoundChange = false;
+	}
+
+	void recordNodeAdded(Node n)
+	{
+		record(new NodeAdded(n.id, n.getXYPositionMap(), n.getName(), new TreeMap<>(n.attributes)));
+	}
+
+	void recordLinkAdded(Link e)
+	{
+		record(new LinkAdded(e.id, e.originNode.id, e.destinationNode.id, e.capacity, e.lengthInKm, e.propagationSpeedInKmPerSecond, new TreeMap<>(e.attributes), e.layer.id));
+	}
+
+	void recordDemandAdded(Demand d)
+	{
+		record(new DemandAdded(d.id, d.ingressNode.id, d.egressNode.id, d.offeredTraffic, d.routingType, new TreeMap<>(d.attributes), d.layer.id));
+	}
+
+	private void record(Change change)
+	{
+		if (replaying || tooManyChanges) return;
+		changes.add(change);
+	}
+
+	private static long[] getIds(Collection<? extends NetworkElement> elements)
+	{
+		final long[] res = new long[elements.size()];
+		int cont = 0;
+		for (NetworkElement e : elements) res[cont++] = e.id;
+		return res;
+	}
+
+	/* The elements added again keep their identifiers, so the next identifier must be above them */
+	private static void updateNextElementId(NetPlan np, long id)
+	{
+		if (np.nextElementId.longValue() <= id) np.nextElementId.setValue(id + 1);
+	}
+
+	/* Undoing the last element added, its identifier can be used again */
+	private static void restoreNextElementId(NetPlan np, long id)
+	{
+		if (np.nextElementId.longValue() == id + 1) np.nextElementId.setValue(id);
+	}
+
+	private static NetworkElement getElement(NetPlan np, long id)
+	{
+		if (id == np.id) return np;
+		final NetworkElement e = np.getNetworkElement(id);
+		if (e == null) throw new Net2PlanException("The design does not have an element with id " + id);
+		return e;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends NetworkElement> List<T> getElements(NetPlan np, long[] ids)
+	{
+		final List<T> res = new ArrayList<>(ids.length);
+		for (long id : ids) res.add((T) getElement(np, id));
+		return res;
+	}
+
+	private interface Change
+	{
+		void undo(NetPlan np);
+
+		void redo(NetPlan np);
+	}
+
+	private static final class AttributeChange implements Change
+	{
+		private final long id;
+		private final String key, oldValue, newValue;
+
+		private AttributeChange(long id, String key, String oldValue, String newValue)
+		{
+			this.id = id;
+			this.key = key;
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+		}
+
+		public void undo(NetPlan np) { set(getElement(np, id), oldValue); }
+
+		public void redo(NetPlan np) { set(getElement(np, id), newValue); }
+
+		private void set(NetworkElement e, String value)
+		{
+			if (value == null) e.removeAttribute(key);
+			else e.setAttribute(key, value);
+		}
+	}
+
+	private static final class AttributeMapChange implements Change
+	{
+		private final long id;
+		private final Map<String, String> oldMap, newMap;
+
+		private AttributeMapChange(long id, Map<String, String> oldMap, Map<String, String> newMap)
+		{
+			this.id = id;
+			this.oldMap = oldMap;
+			this.newMap = newMap;
+		}
+
+		public void undo(NetPlan np) { getElement(np, id).setAttributeMap(oldMap); }
+
+		public void redo(NetPlan np) { getElement(np, id).setAttributeMap(newMap); }
+	}
+
+	private static final class NameOrDescriptionChange implements Change
+	{
+		private final long id;
+		private final boolean isName;
+		private final String oldValue, newValue;
+
+		private NameOrDescriptionChange(long id, boolean isName, String oldValue, String newValue)
+		{
+			this.id = id;
+			this.isName = isName;
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+		}
+
+		public void undo(NetPlan np) { set(getElement(np, id), oldValue); }
+
+		public void redo(NetPlan np) { set(getElement(np, id), newValue); }
+
+		private void set(NetworkElement e, String value)
+		{
+			if (isName) e.setName(value);
+			else e.setDescription(value);
+		}
+	}
+
+	private static final class NodePositionChange implements Change
+	{
+		private final long id;
+		private final String layout;
+		private final Point2D oldPosition, newPosition;
+
+		private NodePositionChange(long id, String layout, Point2D oldPosition, Point2D newPosition)
+		{
+			this.id = id;
+			this.layout = layout;
+			this.oldPosition = oldPosition;
+			this.newPosition = newPosition;
+		}
+
+		public void undo(NetPlan np) { set((Node) getElement(np, id), oldPosition); }
+
+		public void redo(NetPlan np) { set((Node) getElement(np, id), newPosition); }
+
+		private void set(Node n, Point2D position)
+		{
+			if (position == null) n.mapLayout2NodeXYPositionMap.remove(layout);
+			else n.mapLayout2NodeXYPositionMap.put(layout, new UnmodifiablePoint2D(position.getX(), position.getY()));
+		}
+	}
+
+	private static final class LinkValueChange implements Change
+	{
+		private final long id;
+		private final int type_0Capacity_1Length_2Speed;
+		private final double oldValue, newValue;
+
+		private LinkValueChange(long id, int type_0Capacity_1Length_2Speed, double oldValue, double newValue)
+		{
+			this.id = id;
+			this.type_0Capacity_1Length_2Speed = type_0Capacity_1Length_2Speed;
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+		}
+
+		public void undo(NetPlan np) { set((Link) getElement(np, id), oldValue); }
+
+		public void redo(NetPlan np) { set((Link) getElement(np, id), newValue); }
+
+		private void set(Link e, double value)
+		{
+			if (type_0Capacity_1Length_2Speed == 0) e.setCapacity(value);
+			else if (type_0Capacity_1Length_2Speed == 1) e.setLengthInKm(value);
+			else e.setPropagationSpeedInKmPerSecond(value);
+		}
+	}
+
+	private static final class OfferedTrafficChange implements Change
+	{
+		private final long id;
+		private final double oldValue, newValue;
+
+		private OfferedTrafficChange(long id, double oldValue, double newValue)
+		{
+			this.id = id;
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+		}
+
+		public void undo(NetPlan np) { set(getElement(np, id), oldValue); }
+
+		public void redo(NetPlan np) { set(getElement(np, id), newValue); }
+
+		private void set(NetworkElement d, double value)
+		{
+			if (d instanceof Demand) ((Demand) d).setOfferedTraffic(value);
+			else ((MulticastDemand) d).setOfferedTraffic(value);
+		}
+	}
+
+	private static final class BidirectionalPairChange implements Change
+	{
+		private final long id, oldPairId, newPairId, oldPairOfNewPairId;
+
+		private BidirectionalPairChange(long id, long oldPairId, long newPairId, long oldPairOfNewPairId)
+		{
+			this.id = id;
+			this.oldPairId = oldPairId;
+			this.newPairId = newPairId;
+			this.oldPairOfNewPairId = oldPairOfNewPairId;
+		}
+
+		public void undo(NetPlan np)
+		{
+			set(np, id, -1);
+			if (oldPairId != -1) set(np, id, oldPairId);
+			if (oldPairOfNewPairId != -1) set(np, newPairId, oldPairOfNewPairId);
+		}
+
+		public void redo(NetPlan np) { set(np, id, newPairId); }
+
+		private static void set(NetPlan np, long id, long pairId)
+		{
+			final NetworkElement e = getElement(np, id);
+			final NetworkElement pair = pairId == -1 ? null : getElement(np, pairId);
+			if (e instanceof Link) ((Link) e).setBidirectionalPair((Link) pair);
+			else ((Demand) e).setBidirectionalPair((Demand) pair);
+		}
+	}
+
+	private static final class TagChange implements Change
+	{
+		private final long id;
+		private final String tag;
+		private final boolean hadTag, hasTag, tagExisted;
+
+		private TagChange(long id, String tag, boolean hadTag, boolean hasTag, boolean tagExisted)
+		{
+			this.id = id;
+			this.tag = tag;
+			this.hadTag = hadTag;
+			this.hasTag = hasTag;
+			this.tagExisted = tagExisted;
+		}
+
+		public void undo(NetPlan np)
+		{
+			set(getElement(np, id), hadTag);
+			if (!tagExisted && np.cache_taggedElements.containsKey(tag) && np.cache_taggedElements.get(tag).isEmpty()) np.cache_taggedElements.remove(tag);
+		}
+
+		public void redo(NetPlan np) { set(getElement(np, id), hasTag); }
+
+		private void set(NetworkElement e, boolean withTag)
+		{
+			if (withTag) e.addTag(tag);
+			else e.removeTag(tag);
+		}
+	}
+
+	private static final class FailureStateChange implements Change
+	{
+		private final long[] linksToUp, linksToDown, nodesToUp, nodesToDown;
+
+		private FailureStateChange(long[] linksToUp, long[] linksToDown, long[] nodesToUp, long[] nodesToDown)
+		{
+			this.linksToUp = linksToUp;
+			this.linksToDown = linksToDown;
+			this.nodesToUp = nodesToUp;
+			this.nodesToDown = nodesToDown;
+		}
+
+		public void undo(NetPlan np) { np.setLinksAndNodesFailureState(getElements(np, linksToDown), getElements(np, linksToUp), getElements(np, nodesToDown), getElements(np, nodesToUp)); }
+
+		public void redo(NetPlan np) { np.setLinksAndNodesFailureState(getElements(np, linksToUp), getElements(np, linksToDown), getElements(np, nodesToUp), getElements(np, nodesToDown)); }
+	}
+
+	private static final class NodeAdded implements Change
+	{
+		private final long id;
+		private final Point2D position;
+		private final String name;
+		private final Map<String, String> attributes;
+
+		private NodeAdded(long id, Point2D position, String name, Map<String, String> attributes)
+		{
+			this.id = id;
+			this.position = position;
+			this.name = name;
+			this.attributes = attributes;
+		}
+
+		public void undo(NetPlan np) { ((Node) getElement(np, id)).remove(); restoreNextElementId(np, id); }
+
+		public void redo(NetPlan np) { updateNextElementId(np, id); np.addNode(id, position.getX(), position.getY(), name, attributes); }
+	}
+
+	private static final class LinkAdded implements Change
+	{
+		private final long id, originNodeId, destinationNodeId, layerId;
+		private final double capacity, lengthInKm, propagationSpeedInKmPerSecond;
+		private final Map<String, String> attributes;
+
+		private LinkAdded(long id, long originNodeId, long destinationNodeId, double capacity, double lengthInKm, double propagationSpeedInKmPerSecond, Map<String, String> attributes, long layerId)
+		{
+			this.id = id;
+			this.originNodeId = originNodeId;
+			this.destinationNodeId = destinationNodeId;
+			this.capacity = capacity;
+			this.lengthInKm = lengthInKm;
+			this.propagationSpeedInKmPerSecond = propagationSpeedInKmPerSecond;
+			this.attributes = attributes;
+			this.layerId = layerId;
+		}
+
+		public void undo(NetPlan np) { ((Link) getElement(np, id)).remove(); restoreNextElementId(np, id); }
+
+		public void redo(NetPlan np) { updateNextElementId(np, id); np.addLink(id, (Node) getElement(np, originNodeId), (Node) getElement(np, destinationNodeId), capacity, lengthInKm, propagationSpeedInKmPerSecond, attributes, np.getNetworkLayerFromId(layerId)); }
+	}
+
+	private static final class DemandAdded implements Change
+	{
+		private final long id, ingressNodeId, egressNodeId, layerId;
+		private final double offeredTraffic;
+		private final RoutingType routingType;
+		private final Map<String, String> attributes;
+
+		private DemandAdded(long id, long ingressNodeId, long egressNodeId, double offeredTraffic, RoutingType routingType, Map<String, String> attributes, long layerId)
+		{
+			this.id = id;
+			this.ingressNodeId = ingressNodeId;
+			this.egressNodeId = egressNodeId;
+			this.offeredTraffic = offeredTraffic;
+			this.routingType = routingType;
+			this.attributes = attributes;
+			this.layerId = layerId;
+		}
+
+		public void undo(NetPlan np) { ((Demand) getElement(np, id)).remove(); restoreNextElementId(np, id); }
+
+		public void redo(NetPlan np) { updateNextElementId(np, id); np.addDemand(id, (Node) getElement(np, ingressNodeId), (Node) getElement(np, egressNodeId), offeredTraffic, routingType, attributes, np.getNetworkLayerFromId(layerId)); }
+	}
+}
@@ -13,12 +13,14 @@ package com.net2plan.interfaces.networkDesign;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.Function;
 
 import com.net2plan.internal.AttributeMap;
 import com.net2plan.internal.Constants.NetworkElementType;
@@ -47,6 +49,10 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	protected String description;
     protected String name;
     private final NetworkElementType elementType;
+    /* Number of changes in the attributes of this element (see getNumberOfAttributeChanges) */
+    long cache_numAttributeChanges = 0;
+    /* Objects derived from the attributes (see getAttributesDerivedObject), discarded each time the attributes change. Replaced (never modified) when an object is added, so it can be read by several threads */
+    private volatile Map<Object,Object> cache_attributesDerivedObjects = null;
     
 	NetworkElement (NetPlan netPlan , long id , int index , AttributeMap attributes) 
 	{ 
@@ -58,6 +64,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 		this.description = "";
 		this.tags = new TreeSet<> (); 
 		this.elementType = NetworkElement.getNetworkElementType(this);
+		if (netPlan != null) netPlan.notifyStructuralChange(elementType);
 	}
 
 	public NetworkElementType getNeType () { return this.elementType; }
@@ -65,7 +72,17 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	/** Sets this element name
 	 * @param name  see above
 	 */
-	public final void setName (String name) { this.name = name == null? "" : name; }
+	public final void setName (String name) 
+	{ 
+		if (name == null) name = "";
+		if (netPlan != null) 
+		{
+			netPlan.checkIsModifiable(true);
+			if (netPlan.journal != null) netPlan.journal.recordNameOrDescriptionChange(this, true, this.name, name);
+			if (elementType == NetworkElementType.LAYER) netPlan.notifyStructuralChange(NetworkElementType.LAYER);
+		}
+		this.name = name; 
+	}
 
 	/** Returns current element name String
 	 * @return see above
@@ -75,7 +92,16 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
     /** Sets this element description
      * @param description  see above
      */
-    public final void setDescription (String description) { this.description = description == null? "" : description; }
+    public final void setDescription (String description) 
+    { 
+    	if (description == null) description = "";
+    	if (netPlan != null) 
+    	{
+    		netPlan.checkIsModifiable(true);
+    		if (netPlan.journal != null) netPlan.journal.recordNameOrDescriptionChange(this, false, this.description, description);
+    	}
+    	this.description = description; 
+    }
 
     /** Returns current element description String
      * @return see above
@@ -318,7 +344,10 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	 */
 	public void addTag (String tag)
 	{
-		this.tags.add (tag);
+		netPlan.checkIsModifiable(true);
+		final boolean added = this.tags.add (tag);
+		if (netPlan.journal != null) netPlan.journal.recordTagChange(this, tag, !added, true);
+		if (added) netPlan.notifyStructuralChange(elementType);
 		SortedSet<NetworkElement> setElements = netPlan.cache_taggedElements.get (tag);
 		if (setElements == null) { setElements = new TreeSet<> (); netPlan.cache_taggedElements.put (tag , setElements); }
 		setElements.add (this);
@@ -339,7 +368,10 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	 */
 	public boolean removeTag (String tag)
 	{
+		netPlan.checkIsModifiable(true);
 		final boolean removed = this.tags.remove (tag);
+		if (netPlan.journal != null) netPlan.journal.recordTagChange(this, tag, removed, false);
+		if (removed) netPlan.notifyStructuralChange(elementType);
 		if (removed)
 			netPlan.cache_taggedElements.get (tag).remove (this);
 		return removed;
@@ -361,6 +393,44 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	 */
 	final public SortedMap<String,String> getAttributes () { return Collections.unmodifiableSortedMap(attributes); }
 
+	/**
+	 * <p>Returns a counter of the changes in the attributes of this element. It is increased each time an attribute is set or removed. Libraries keeping
+	 * information derived from the attributes of some elements can compare it with the value when the information was computed, to know if it is still valid.</p>
+	 * @return see above
+	 * @since 0.6.6
+	 */
+	final public long getNumberOfAttributeChanges () { return cache_numAttributeChanges; }
+
+	/**
+	 * <p>Returns an object computed from the attributes of this element, identified by the given key. The object is computed with the given function the first time, 
+	 * and kept in the element until any of its attributes is set or removed, so libraries that read the same attributes many times (e.g. the RSA of the lightpaths 
+	 * in {@link com.net2plan.libraries.WDMUtils}) parse them only once. The function must depend only on the attributes of the element, and must not return {@code null}. 
+	 * The returned object is shared by all the callers, and must not be modified.</p>
+	 * @param key the key identifying the object (e.g. the library and the attributes it is derived from)
+	 * @param computeFunction the function computing the object from this element
+	 * @param <T> the type of the object
+	 * @return see above
+	 * @since 0.6.6
+	 */
+	@SuppressWarnings("unchecked")
+	final public <T> T getAttributesDerivedObject (Object key , Function<? super NetworkElement,? extends T> computeFunction)
+	{
+		final long numAttributeChangesBefore = cache_numAttributeChanges;
+		final Map<Object,Object> cached = cache_attributesDerivedObjects;
+		if (cached != null)
+		{
+			final Object value = cached.get(key);
+			if (value != null) return (T) value;
+		}
+		final T value = computeFunction.apply(this);
+		if (value == null) throw new NullPointerException("The object derived from the attributes cannot be null");
+		if (cache_numAttributeChanges != numAttributeChangesBefore) return value; // the attributes were changed while computing it
+		final Map<Object,Object> updated = cached == null? new HashMap<> () : new HashMap<> (cached);
+		updated.put(key , value);
+		cache_attributesDerivedObjects = updated;
+		return value;
+	}
+
 	/**
 	 * <p>Returns the unique identifier</p>
 	 * @return The unique id
@@ -390,8 +460,10 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	final public void removeAllAttributes ()
 	{ 
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
+		if (netPlan.journal != null) netPlan.journal.recordAttributeMapChange(this, attributes, null);
 		attributes.clear();
+		attributesChanged();
 	}
 
 	/**
@@ -402,8 +474,8 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	final public void removeAttribute (String key)
 	{ 
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
-		attributes.remove(key);
+		netPlan.checkIsModifiable(true);
+		putAttributeValue(key, null);
 	}
 
 	/**
@@ -416,8 +488,8 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttribute (String key, String value)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
-		attributes.put (key,value);
+		netPlan.checkIsModifiable(true);
+		putAttributeValue (key,value);
 	}
 
 	/**
@@ -429,8 +501,8 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttribute (String key, Number value)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
-		attributes.put (key,value.toString());
+		netPlan.checkIsModifiable(true);
+		putAttributeValue (key,value.toString());
 	}
 
 	/**
@@ -442,7 +514,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttributeAsNumberList (String key, List<? extends Number> valueList)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
 		final StringBuffer st = new StringBuffer ();
 		boolean firstTime = true;
 		for (Number val : valueList)
@@ -450,7 +522,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 			if (firstTime) { firstTime = false; } else { st.append(MATRIX_COLSEPARATOR); }
 			st.append(val.toString()); 
 		}
-		attributes.put (key,st.toString());
+		putAttributeValue (key,st.toString());
 	}
 
 	/**
@@ -463,8 +535,8 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttributeAsStringList (String key, List<String> vals)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
-		attributes.put (key, StringUtils.createEscapedString_asStringList (vals));
+		netPlan.checkIsModifiable(true);
+		putAttributeValue (key, StringUtils.createEscapedString_asStringList (vals));
 	}
 
 	/**
@@ -476,10 +548,10 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	 */
 	public void setAttributeAsStringMatrix (String key, List<List<String>> vals)
 	{
-		if (vals.isEmpty()) { attributes.put (key,""); return; }
 		for (List<String> row : vals) if (row.isEmpty()) throw new Net2PlanException ("One of the rows of the matrix is empty");
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
+		if (vals.isEmpty()) { putAttributeValue (key,""); return; }
 		final StringBuffer st = new StringBuffer ();
 		boolean firstRow = true;
 		for (List<String> row : vals)
@@ -492,7 +564,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 				st.append(StringUtils.escapedStringToWrite(cell));
 			}
 		}
-		attributes.put (key,st.toString());
+		putAttributeValue (key,st.toString());
 	}
 
 	/**
@@ -504,7 +576,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttributeAsNumberMatrix (String key, DoubleMatrix2D vals)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
 		final StringBuffer st = new StringBuffer ();
 		for (int row = 0; row < vals.rows() ; row ++)
 		{
@@ -515,7 +587,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
     		}
 			if (row != vals.rows()-1) st.append(MATRIX_ROWSEPARATOR);
 		}
-		attributes.put (key,st.toString());
+		putAttributeValue (key,st.toString());
 	}
 	
     /**
@@ -527,7 +599,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
     public void setAttributeAsNumberMatrix (String key, List<List<Number>> vals)
     {
         checkAttachedToNetPlanObject();
-        netPlan.checkIsModifiable();
+        netPlan.checkIsModifiable(true);
         final StringBuffer st = new StringBuffer ();
         for (int row = 0; row < vals.size() ; row ++)
         {
@@ -539,7 +611,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
             }
             if (row != vals.size()-1) st.append(MATRIX_ROWSEPARATOR);
         }
-        attributes.put (key,st.toString());
+        putAttributeValue (key,st.toString());
     }
 
     /**
@@ -549,11 +621,28 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 	public void setAttributeMap (Map<String,String> map)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
+		if (netPlan.journal != null) netPlan.journal.recordAttributeMapChange(this, attributes, map);
 		attributes.clear(); 
 		if (map != null) 
 			for (SortedMap.Entry<String,String> e : map.entrySet())
 				attributes.put (e.getKey() , e.getValue());
+		attributesChanged();
+	}
+
+	/* Sets the value of an attribute (null removes it), recording the change in the journal of the design, if any */
+	private void putAttributeValue (String key, String value)
+	{
+		if (netPlan.journal != null) netPlan.journal.recordAttributeChange(this, key, attributes.get(key), value);
+		if (value == null) attributes.remove(key); else attributes.put(key, value);
+		attributesChanged();
+	}
+
+	/* Counts a change in the attributes, and discards the objects derived from them */
+	void attributesChanged ()
+	{
+		cache_numAttributeChanges ++;
+		cache_attributesDerivedObjects = null;
 	}
 
 	/**
@@ -584,6 +673,7 @@ public abstract class NetworkElement implements Comparable<NetworkElement>
 
 	final protected void removeId () 
 	{ 
+		if (netPlan != null) netPlan.notifyStructuralChange(elementType == NetworkElementType.LAYER? null : elementType);
 		this.netPlan = null;
 	} // called when the element is removed from the net2plan object
 
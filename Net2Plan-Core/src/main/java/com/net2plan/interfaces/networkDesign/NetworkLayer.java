@@ -66,7 +66,7 @@ public class NetworkLayer extends NetworkElement
 	NetworkLayer(NetPlan netPlan, long id, int index , String demandTrafficUnitsName, String description, String name, String linkCapacityUnitsName, URL defaultNodeIconURL , AttributeMap attributes)
 	{
 		super(netPlan, id , index , attributes);
-		this.setName ("Layer-" + index);
+		this.name = "Layer-" + index;
 
 		this.demandTrafficUnitsName = (demandTrafficUnitsName == null)? "" : demandTrafficUnitsName;
 		this.description =  (description == null)? "" : description;
@@ -80,16 +80,16 @@ public class NetworkLayer extends NetworkElement
 		this.routes = new ArrayList<Route> ();
 		this.multicastTrees = new ArrayList<MulticastTree> ();
 
-		this.cache_linksDown = new TreeSet<Link> ();
-		this.cache_linksZeroCap = new TreeSet<>();
-		this.cache_coupledLinks = new TreeSet<Link> ();
-		this.cache_coupledDemands = new TreeSet<Demand> ();
-		this.cache_coupledMulticastDemands = new TreeSet<MulticastDemand> ();
+		this.cache_linksDown = new ElementSortedSet<Link> ();
+		this.cache_linksZeroCap = new ElementSortedSet<>();
+		this.cache_coupledLinks = new ElementSortedSet<Link> ();
+		this.cache_coupledDemands = new ElementSortedSet<Demand> ();
+		this.cache_coupledMulticastDemands = new ElementSortedSet<MulticastDemand> ();
 
-		this.cache_routesDown = new TreeSet<Route> ();
-		this.cache_routesTravLinkZeroCap = new TreeSet<>();
-		this.cache_multicastTreesDown = new TreeSet<MulticastTree> ();
-		this.cache_multicastTreesTravLinkZeroCap = new TreeSet<> ();
+		this.cache_routesDown = new ElementSortedSet<Route> ();
+		this.cache_routesTravLinkZeroCap = new ElementSortedSet<>();
+		this.cache_multicastTreesDown = new ElementSortedSet<MulticastTree> ();
+		this.cache_multicastTreesTravLinkZeroCap = new ElementSortedSet<> ();
 		this.cache_nodePairLinksThisLayer = new TreeMap<> ();
 		this.cache_nodePairDemandsThisLayer = new TreeMap<> ();
 		this.cache_qosTypes2DemandMap = new TreeMap<> ();
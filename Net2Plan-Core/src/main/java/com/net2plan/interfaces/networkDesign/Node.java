@@ -88,16 +88,16 @@ public class Node extends NetworkElement
 		this.name = name == null? "" : name;
 		this.isUp = true;
 		
-		this.cache_nodeIncomingLinks = new TreeSet<Link> ();
-		this.cache_nodeOutgoingLinks = new TreeSet<Link> ();
-		this.cache_nodeIncomingDemands = new TreeSet<Demand> ();
-		this.cache_nodeOutgoingDemands = new TreeSet<Demand> ();
-		this.cache_nodeIncomingMulticastDemands = new TreeSet<MulticastDemand> ();
-		this.cache_nodeOutgoingMulticastDemands = new TreeSet<MulticastDemand> ();
-		this.cache_nodeNonDynamicSRGs = new TreeSet<SharedRiskGroup> ();
-		this.cache_nodeResources = new TreeSet<Resource> ();
-		this.cache_nodeAssociatedRoutes = new TreeSet<Route> ();
-		this.cache_nodeAssociatedulticastTrees = new TreeSet<MulticastTree> ();
+		this.cache_nodeIncomingLinks = new ElementSortedSet<Link> ();
+		this.cache_nodeOutgoingLinks = new ElementSortedSet<Link> ();
+		this.cache_nodeIncomingDemands = new ElementSortedSet<Demand> ();
+		this.cache_nodeOutgoingDemands = new ElementSortedSet<Demand> ();
+		this.cache_nodeIncomingMulticastDemands = new ElementSortedSet<MulticastDemand> ();
+		this.cache_nodeOutgoingMulticastDemands = new ElementSortedSet<MulticastDemand> ();
+		this.cache_nodeNonDynamicSRGs = new ElementSortedSet<SharedRiskGroup> ();
+		this.cache_nodeResources = new ElementSortedSet<Resource> ();
+		this.cache_nodeAssociatedRoutes = new ElementSortedSet<Route> ();
+		this.cache_nodeAssociatedulticastTrees = new ElementSortedSet<MulticastTree> ();
 		this.mapLayer2URLSpecificIcon = new TreeMap <> ();
 		this.planningDomains = new TreeSet<> ();
 		this.population = 0;
@@ -158,6 +158,7 @@ public class Node extends NetworkElement
 	 */
 	public void setSiteName (String site)
 	{
+		netPlan.checkIsModifiable();
 		if  ((site == null) && (this.siteName == null)) return;
 		if (site == null) 
 		{
@@ -466,14 +467,12 @@ public class Node extends NetworkElement
 	{
         checkAttachedToNetPlanObject();
 	    if (layout.length > 1) throw new Net2PlanException ("At most one layout can be set");
-		netPlan.checkIsModifiable();
-		if (layout.length == 0)
-		    this.mapLayout2NodeXYPositionMap.put(netPlan.getPlotNodeLayoutCurrentlyActive() , new UnmodifiablePoint2D (pos.getX() , pos.getY()));
-		else
-		{
-		    if (!netPlan.cache_definedPlotNodeLayouts.contains(layout [0])) throw new Net2PlanException ("The layout *" + (layout[0]) + "* does not exist. Current layouts: " + netPlan.cache_definedPlotNodeLayouts);
-            this.mapLayout2NodeXYPositionMap.put(layout [0] , new UnmodifiablePoint2D (pos.getX() , pos.getY()));
-		}
+		netPlan.checkIsModifiable(true);
+		if (layout.length > 0 && !netPlan.cache_definedPlotNodeLayouts.contains(layout [0])) throw new Net2PlanException ("The layout *" + (layout[0]) + "* does not exist. Current layouts: " + netPlan.cache_definedPlotNodeLayouts);
+		final String layoutToSet = layout.length == 0? netPlan.getPlotNodeLayoutCurrentlyActive() : layout [0];
+		final Point2D newPos = new UnmodifiablePoint2D (pos.getX() , pos.getY());
+		final Point2D oldPos = this.mapLayout2NodeXYPositionMap.put(layoutToSet , newPos);
+		if (netPlan.journal != null) netPlan.journal.recordNodePositionChange(this, layoutToSet, oldPos, newPos);
 	}
 
 	/**
@@ -639,7 +638,7 @@ public class Node extends NetworkElement
 	public boolean setFailureState (boolean setAsUp)
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.checkIsModifiable();
+		netPlan.checkIsModifiable(true);
 		
 		if (isUp == setAsUp) return isUp;
 		List<Node> aux = new LinkedList<Node> (); aux.add(this);
@@ -846,6 +845,7 @@ public class Node extends NetworkElement
 		for (MulticastDemand demand : new LinkedList<MulticastDemand> (cache_nodeOutgoingMulticastDemands)) demand.remove ();
 		
 		netPlan.cache_id2NodeMap.remove (id);
+		netPlan.notifyStructureChanged();
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
 		NetPlan.removeNetworkElementAndShiftIndexes(netPlan.nodes , this.index);
         final NetPlan npOld = this.netPlan;
@@ -977,6 +977,7 @@ public class Node extends NetworkElement
 	 */
 	public void removeFromPlanningDomain (String planningDomain)
 	{
+		netPlan.checkIsModifiable();
 		if (!this.planningDomains.contains(planningDomain)) return;
 		this.planningDomains.remove(planningDomain);
 		netPlan.cache_planningDomain2nodes.get(planningDomain).remove(this);
@@ -988,6 +989,7 @@ public class Node extends NetworkElement
 	 */
 	public void addToPlanningDomain (String planningDomain)
 	{
+		netPlan.checkIsModifiable();
 		if (!netPlan.cache_planningDomain2nodes.keySet().contains(planningDomain)) throw new Net2PlanException ("Wrong planning domain");
 		if (this.planningDomains.contains(planningDomain)) return;
 		this.planningDomains.add(planningDomain);
@@ -0,0 +1,640 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+
+import com.net2plan.internal.ErrorHandling;
+import com.net2plan.internal.UnmodifiablePoint2D;
+import com.net2plan.libraries.TrafficPredictor;
+import com.net2plan.libraries.TrafficPredictor.TRAFFICPREDICTORTYPE;
+import com.net2plan.libraries.TrafficSeries;
+import com.net2plan.utils.Constants.RoutingType;
+
+/**
+ * Reads a design in the binary columnar format written by {@link WriterNetPlanN2PBinary}. The file starts with the {@link #MAGIC} bytes
+ * and the format version, followed by the string table and the element blocks. The elements are created in the same order and with the same
+ * calls as in the XML reader, so both formats produce the same design.
+ */
+class ReaderNetPlanN2PBinary
+{
+	static final byte [] MAGIC = { 'N' , '2' , 'P' , 'B' };
+	/* Version 2: the traffic series are written with TrafficSeries.toByteArray, instead of as date and value list columns */
+	static final int FORMAT_VERSION = 2;
+
+	private ByteBuffer buffer;
+	private int version;
+	private String [] strings;
+	private long nextElementId;
+
+	/* Returns true if the stream starts with the binary format header. The stream must support mark and reset, and is left at its initial position */
+	static boolean isBinaryFormat (InputStream inputStream) throws IOException
+	{
+		inputStream.mark(MAGIC.length);
+		final byte [] header = new byte [MAGIC.length];
+		int numRead = 0;
+		while (numRead < header.length)
+		{
+			final int n = inputStream.read(header , numRead , header.length - numRead);
+			if (n < 0) break;
+			numRead += n;
+		}
+		inputStream.reset();
+		return numRead == header.length && Arrays.equals(header , MAGIC);
+	}
+
+	void create (NetPlan netPlan , InputStream inputStream) throws IOException
+	{
+		this.buffer = ByteBuffer.wrap(readAllBytes (inputStream));
+		try
+		{
+			final byte [] header = new byte [MAGIC.length];
+			buffer.get(header);
+			if (!Arrays.equals(header , MAGIC)) throw new Net2PlanException ("Not a valid binary .n2p file");
+			this.version = buffer.getInt();
+			if (version < 1 || version > FORMAT_VERSION) throw new Net2PlanException("Wrong version number");
+			readStringTable ();
+			readNetwork (netPlan);
+			readLayers (netPlan);
+			readNodes (netPlan);
+			readResources (netPlan);
+			/* the traffic of each link is computed once, after all the routes, trees and forwarding rules traversing it are created */
+			final Set<Link> linksToUpdate = new HashSet<> ();
+			netPlan.cache_linksWithPendingTrafficUpdate = linksToUpdate;
+			try
+			{
+				for (NetworkLayer layer : netPlan.layers)
+				{
+					readLinks (netPlan , layer);
+					readDemands (netPlan , layer);
+					readMulticastDemands (netPlan , layer);
+					readMulticastTrees (netPlan , layer);
+					readRoutes (netPlan , layer);
+					readForwardingRules (netPlan , layer);
+				}
+			} finally
+			{
+				netPlan.cache_linksWithPendingTrafficUpdate = null;
+			}
+			for (Link e : linksToUpdate) e.updateLinkTrafficAndOccupation();
+			readSRGs (netPlan);
+			readCouplings (netPlan);
+			if (buffer.hasRemaining()) throw new Net2PlanException ("Not a valid binary .n2p file");
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e)
+		{
+			throw new Net2PlanException ("Not a valid binary .n2p file (unexpected end of file)");
+		}
+		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
+	}
+
+	private void readStringTable ()
+	{
+		final int numStrings = buffer.getInt();
+		final int [] lengths = readIntColumn (numStrings);
+		this.strings = new String [numStrings];
+		for (int cont = 0; cont < numStrings ; cont ++)
+		{
+			strings [cont] = new String (buffer.array() , buffer.position() , lengths [cont] , StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + lengths [cont]);
+		}
+	}
+
+	private void readNetwork (NetPlan netPlan)
+	{
+		netPlan.setDescription(readString ());
+		netPlan.setName(readString ());
+		netPlan.setCurrentDate(new Date (buffer.getLong()));
+		netPlan.currentPlotNodeLayout = readString ();
+		netPlan.cache_definedPlotNodeLayouts = new TreeSet<> (Arrays.asList(readStrings ()));
+		this.nextElementId = buffer.getLong();
+		if (nextElementId <= 0) throw new Net2PlanException ("A network element has an id higher than the nextElementId");
+		netPlan.nextElementId = new MutableLong(nextElementId);
+		for (String pd : readStrings ()) netPlan.addGlobalPlanningDomain(pd);
+		for (String tag : readStrings ()) netPlan.addTag(tag);
+		final String [] attributes = readStrings ();
+		for (int cont = 0; cont < attributes.length ; cont += 2) netPlan.setAttribute(attributes [cont] , attributes [cont + 1]);
+	}
+
+	private void readLayers (NetPlan netPlan)
+	{
+		final CommonColumns common = new CommonColumns ();
+		final String [] linkCapacityUnitsName = readStringColumn (common.num);
+		final String [] demandTrafficUnitsName = readStringColumn (common.num);
+		final String [] defaultNodeIconURL = readStringColumn (common.num);
+		final int defaultLayerIndex = buffer.getInt();
+		if (common.num == 0) throw new Net2PlanException ("At least one layer must exist");
+		if (netPlan.layers.size() != 1) throw new RuntimeException ("Bad");
+		for (int index = 0; index < common.num ; index ++)
+		{
+			final long layerId = common.ids [index];
+			NetworkLayer newLayer;
+			if (index == 0 && netPlan.layers.get (0).id == layerId)
+			{
+				newLayer = netPlan.layers.get (0); // it already has the right Id
+				newLayer.demandTrafficUnitsName = demandTrafficUnitsName [index];
+				newLayer.linkCapacityUnitsName = linkCapacityUnitsName [index];
+				newLayer.defaultNodeIconURL = toUrl (defaultNodeIconURL [index]);
+				for (int cont = 0; cont < common.attributes [index].length ; cont += 2) newLayer.setAttribute(common.attributes [index][cont] , common.attributes [index][cont + 1]);
+			}
+			else
+			{
+				newLayer = netPlan.addLayer(layerId , common.names [index] , common.descriptions [index] , linkCapacityUnitsName [index] , demandTrafficUnitsName [index] , toUrl (defaultNodeIconURL [index]) , common.getAttributes(index));
+				if (index == 0) netPlan.removeNetworkLayer(netPlan.layers.get (0)); // the Id of first layer is different => remove the existing
+			}
+			common.setNameDescriptionAndTags(newLayer , index);
+		}
+		netPlan.setNetworkLayerDefault(netPlan.layers.get(defaultLayerIndex));
+	}
+
+	private void readNodes (NetPlan netPlan)
+	{
+		final CommonColumns common = new CommonColumns ();
+		final int N = common.num;
+		final double [] xCoord = readDoubleColumn (N);
+		final double [] yCoord = readDoubleColumn (N);
+		final double [] population = readDoubleColumn (N);
+		final String [] siteName = readStringColumn (N);
+		final boolean [] isUp = readBooleanColumn (N);
+		final String [][] planningDomains = readStringListColumn (N);
+		final String [][] layoutNames = readStringListColumn (N);
+		final double [][] layoutXCoord = readDoubleListColumn (N);
+		final double [][] layoutYCoord = readDoubleListColumn (N);
+		final int [][] iconLayerIndexes = readIntListColumn (N);
+		final String [][] iconUrls = readStringListColumn (N);
+		final double [][] iconRelativeSizes = readDoubleListColumn (N);
+
+		for (int index = 0; index < N ; index ++)
+		{
+			final Node newNode = netPlan.addNode(common.ids [index] , xCoord [index] , yCoord [index] , common.names [index] , common.getAttributes(index));
+			common.setNameDescriptionAndTags(newNode , index);
+			for (int cont = 0; cont < layoutNames [index].length ; cont ++)
+				newNode.setXYPositionMap(new UnmodifiablePoint2D(layoutXCoord [index][cont] , layoutYCoord [index][cont]) , layoutNames [index][cont]);
+			for (String pd : planningDomains [index]) newNode.addToPlanningDomain(pd);
+			newNode.setFailureState(isUp [index]);
+			newNode.setPopulation(population [index]);
+			if (siteName [index] != null) newNode.setSiteName(siteName [index]);
+			/* the layers are read before the nodes, so the icons can be set here */
+			for (int cont = 0; cont < iconLayerIndexes [index].length ; cont ++)
+				newNode.setUrlNodeIcon(netPlan.layers.get(iconLayerIndexes [index][cont]) , toUrl (iconUrls [index][cont]) , iconRelativeSizes [index][cont]);
+		}
+	}
+
+	private void readResources (NetPlan netPlan)
+	{
+		final CommonColumns common = new CommonColumns ();
+		final int R = common.num;
+		final int [] hostNodeIndex = readIntColumn (R);
+		final String [] type = readStringColumn (R);
+		final String [] capacityMeasurementUnits = readStringColumn (R);
+		final double [] processingTimeToTraversingTrafficInMs = readDoubleColumn (R);
+		final double [] capacity = readDoubleColumn (R);
+		final String [] urlIcon = readStringColumn (R);
+		final int [][] baseResourceIndexes = readIntListColumn (R);
+		final double [][] baseResourceOccupiedCapacities = readDoubleListColumn (R);
+		for (int index = 0; index < R ; index ++)
+		{
+			final SortedMap<Resource,Double> occupiedCapacitiesInBaseResources = new TreeMap<> ();
+			for (int cont = 0; cont < baseResourceIndexes [index].length ; cont ++)
+				occupiedCapacitiesInBaseResources.put(netPlan.resources.get(baseResourceIndexes [index][cont]) , baseResourceOccupiedCapacities [index][cont]);
+			final Optional<Node> hostNode = hostNodeIndex [index] == -1? Optional.empty() : Optional.of(netPlan.nodes.get(hostNodeIndex [index]));
+			final Resource newResource = netPlan.addResource(common.ids [index] , type [index] , common.names [index] , hostNode , capacity [index] , capacityMeasurementUnits [index] ,
+					occupiedCapacitiesInBaseResources , processingTimeToTraversingTrafficInMs [index] , common.getAttributes(index));
+			newResource.setUrlIcon(toUrl (urlIcon [index]));
+			common.setNameDescriptionAndTags(newResource , index);
+		}
+	}
+
+	private void readLinks (NetPlan netPlan , NetworkLayer layer)
+	{
+		final CommonColumns common = new CommonColumns ();
+		final int E = common.num;
+		final int [] originNodeIndex = readIntColumn (E);
+		final int [] destinationNodeIndex = readIntColumn (E);
+		final double [] capacity = readDoubleColumn (E);
+		final double [] lengthInKm = readDoubleColumn (E);
+		final double [] propagationSpeedInKmPerSecond = readDoubleColumn (E);
+		final int [] bidirectionalPairIndex = readIntColumn (E);
+		final int [] nominalColor = readIntColumn (E);
+		final boolean [] isUp = readBooleanColumn (E);
+		final TrafficSeries [] monitoredOrForecastedTraffics = readTrafficSeriesColumns (E);
+		final String [][] trafficPredictor = readStringListColumn (E);
+		for (int index = 0; index < E ; index ++)
+		{
+			final Link newLink = netPlan.addLink(common.ids [index] , netPlan.nodes.get(originNodeIndex [index]) , netPlan.nodes.get(destinationNodeIndex [index]) ,
+					capacity [index] , lengthInKm [index] , propagationSpeedInKmPerSecond [index] , common.getAttributes(index) , layer);
+			newLink.setNominalColor(new Color (nominalColor [index]));
+			newLink.setFailureState(isUp [index]);
+			common.setNameDescriptionAndTags(newLink , index);
+			if (monitoredOrForecastedTraffics [index] != null) newLink.setMonitoredOrForecastedCarriedTraffic(monitoredOrForecastedTraffics [index]);
+			final TrafficPredictor tp = toTrafficPredictor (trafficPredictor [index]);
+			if (tp != null) newLink.setTrafficPredictor(tp);
+			if (bidirectionalPairIndex [index] != -1 && bidirectionalPairIndex [index] < index)
+			{
+				final Link bidirPairLink = layer.links.get(bidirectionalPairIndex [index]);
+				if (bidirPairLink.isBidirectional()) throw new RuntimeException ();
+				bidirPairLink.setBidirectionalPair(newLink);
+			}
+		}
+	}
+
+	private void readDemands (NetPlan netPlan , NetworkLayer layer)
+	{
+		final CommonColumns common = new CommonColumns ();
+		final int D = common.num;
+		final int [] ingressNodeIndex = readIntColumn (D);
+		final int [] egressNodeIndex = readIntColumn (D);
+		final double [] offeredTraffic = readDoubleColumn (D);
+		final String [] recoveryType = readStringColumn (D);
+		final String [] routingType = readStringColumn (D);
+		final int [] bidirectionalPairIndex = readIntColumn (D);
+		final double [] maximumAcceptableE2EWorstCaseLatencyInMs = readDoubleColumn (D);
+		final double [] offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = readDoubleColumn (D);
+		final TrafficSeries [] monitoredOrForecastedTraffics = readTrafficSeriesColumns (D);
+		final String [][] trafficPredictor = readStringListColumn (D);
+		final String [] qosType = readStringColumn (D);
+		final String [][] mandatorySequenceOfTraversedResourceTypes = readStringListColumn (D);
+		for (int index = 0; index < D ; index ++)
+		{
+			final Demand newDemand = netPlan.addDemand(common.ids [index] , netPlan.nodes.get(ingressNodeIndex [index]) , netPlan.nodes.get(egressNodeIndex [index]) , offeredTraffic [index] ,
+					RoutingType.valueOf(routingType [index]) , common.getAttributes(index) , layer);
+			newDemand.setIntendedRecoveryType(Demand.IntendedRecoveryType.valueOf(recoveryType [index]));
+			newDemand.setOfferedTrafficPerPeriodGrowthFactor(offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth [index]);
+			newDemand.setMaximumAcceptableE2EWorstCaseLatencyInMs(maximumAcceptableE2EWorstCaseLatencyInMs [index]);
+			newDemand.setQoSType(qosType [index]);
+			common.setNameDescriptionAndTags(newDemand , index);
+			if (monitoredOrForecastedTraffics [index] != null) newDemand.setMonitoredOrForecastedOfferedTraffic(monitoredOrForecastedTraffics [index]);
+			final TrafficPredictor tp = toTrafficPredictor (trafficPredictor [index]);
+			if (tp != null) newDemand.setTrafficPredictor(tp);
+			if (bidirectionalPairIndex [index] != -1 && bidirectionalPairIndex [index] < index)
+			{
+				final Demand bidirPairDemand = layer.demands.get(bidirectionalPairIndex [index]);
+				if (bidirPairDemand.isBidirectional()) throw new RuntimeException ();
+				bidirPairDemand.setBidirectionalPair(newDemand);
+			}
+			if (mandatorySequenceOfTraversedResourceTypes [index].length > 0)
+				newDemand.setServiceChainSequenceOfTraversedResourceTypes(Arrays.asList(mandatorySequenceOfTraversedResourceTypes [index]));
+		}
+	}
+
+	private void readMulticastDemands (NetPlan netPlan , NetworkLayer layer)
+	{
+		final CommonColumns common = new CommonColumns ();
+		final int MD = common.num;
+		final int [] ingressNodeIndex = readIntColumn (MD);
+		final int [][] egressNodeIndexes = readIntListColumn (MD);
+		final double [] offeredTraffic = readDoubleColumn (MD);
+		final double [] maximumAcceptableE2EWorstCaseLatencyInMs = readDoubleColumn (MD);
+		final double [] offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth = readDoubleColumn (MD);
+		final String [] qosType = readStringColumn (MD);
+		final TrafficSeries [] monitoredOrForecastedTraffics = readTrafficSeriesColumns (MD);
+		final String [][] trafficPredictor = readStringListColumn (MD);
+		for (int index = 0; index < MD ; index ++)
+		{
+			final SortedSet<Node> egressNodes = new TreeSet<> ();
+			for (int nodeIndex : egressNodeIndexes [index]) egressNodes.add(netPlan.nodes.get(nodeIndex));
+			final MulticastDemand newDemand = netPlan.addMulticastDemand(common.ids [index] , netPlan.nodes.get(ingressNodeIndex [index]) , egressNodes , offeredTraffic [index] , common.getAttributes(index) , layer);
+			newDemand.setMaximumAcceptableE2EWorstCaseLatencyInMs(maximumAcceptableE2EWorstCaseLatencyInMs [index]);
+			newDemand.setOfferedTrafficPerPeriodGrowthFactor(offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth [index]);
+			newDemand.setQoSType(qosType [index]);
+			common.setNameDescriptionAndTags(newDemand , index);
+			if (monitoredOrForecastedTraffics [index] != null) newDemand.setMonitoredOrForecastedOfferedTraffic(monitoredOrForecastedTraffics [index]);
+			final TrafficPredictor tp = toTrafficPredictor (trafficPredictor [index]);
+			if (tp != null) newDemand.setTrafficPredictor(tp);
+		}
+	}
+
+	private void readMulticastTrees (NetPlan netPlan , NetworkLayer layer)
+	{
+		final CommonColumns common = new CommonColumns ();
+		final int T = common.num;
+		final int [] demandIndex = readIntColumn (T);
+		final double [] carriedTrafficIfNotFailing = readDoubleColumn (T);
+		final double [] occupiedLinkCapacityIfNotFailing = readDoubleColumn (T);
+		final int [][] currentSetLinks = readIntListColumn (T);
+		final int [][] initialSetLinks = readIntListColumn (T);
+		for (int index = 0; index < T ; index ++)
+		{
+			final SortedSet<Link> initialLinks = toLinkSet (layer , initialSetLinks [index]);
+			final SortedSet<Link> currentLinks = toLinkSet (layer , currentSetLinks [index]);
+			final MulticastTree newTree = netPlan.addMulticastTree(common.ids [index] , layer.multicastDemands.get(demandIndex [index]) , carriedTrafficIfNotFailing [index] ,
+					occupiedLinkCapacityIfNotFailing [index] , initialLinks , common.getAttributes(index));
+			if (!currentLinks.equals(initialLinks)) newTree.setLinks(currentLinks);
+			common.setNameDescriptionAndTags(newTree , index);
+		}
+	}
+
+	private void readRoutes (NetPlan netPlan , NetworkLayer layer)
+	{
+		final CommonColumns common = new CommonColumns ();
+		final int R = common.num;
+		final int [] demandIndex = readIntColumn (R);
+		final double [] currentCarriedTrafficIfNotFailing = readDoubleColumn (R);
+		final double [][] currentOccupationIfNotFailing = readDoubleListColumn (R);
+		final int [][] currentPath = readIntListColumn (R);
+		final int [] bidirectionalPairIndex = readIntColumn (R);
+		final double [] initialStateCarriedTrafficIfNotFailing = readDoubleColumn (R);
+		final double [][] initialStateOccupationIfNotFailing = readDoubleListColumn (R);
+		final int [][] initialStatePath = readIntListColumn (R);
+		final int [][] backupRouteIndexes = readIntListColumn (R);
+		for (int index = 0; index < R ; index ++)
+		{
+			final Demand demand = layer.demands.get(demandIndex [index]);
+			final Route newRoute = netPlan.addServiceChain(common.ids [index] , demand , initialStateCarriedTrafficIfNotFailing [index] ,
+					toList (initialStateOccupationIfNotFailing [index]) , toPath (netPlan , layer , initialStatePath [index]) , common.getAttributes(index));
+			/* the current state is only set if it is different from the initial one */
+			if (currentCarriedTrafficIfNotFailing [index] != initialStateCarriedTrafficIfNotFailing [index] || !Arrays.equals(currentPath [index] , initialStatePath [index])
+					|| !Arrays.equals(currentOccupationIfNotFailing [index] , initialStateOccupationIfNotFailing [index]))
+				newRoute.setPath(currentCarriedTrafficIfNotFailing [index] , toPath (netPlan , layer , currentPath [index]) , toList (currentOccupationIfNotFailing [index]));
+			common.setNameDescriptionAndTags(newRoute , index);
+			if (bidirectionalPairIndex [index] != -1 && bidirectionalPairIndex [index] < index)
+			{
+				final Route bidirPairRoute = layer.routes.get(bidirectionalPairIndex [index]);
+				if (bidirPairRoute.isBidirectional()) throw new RuntimeException ();
+				bidirPairRoute.setBidirectionalPair(newRoute);
+			}
+		}
+		/* backup routes are added at the end, since they may not exist when the primary is created */
+		for (int index = 0; index < R ; index ++)
+			for (int backupIndex : backupRouteIndexes [index])
+				layer.routes.get(index).addBackupRoute(layer.routes.get(backupIndex));
+	}
+
+	private void readForwardingRules (NetPlan netPlan , NetworkLayer layer)
+	{
+		final int F = buffer.getInt();
+		final int [] demandIndex = readIntColumn (F);
+		final int [] linkIndex = readIntColumn (F);
+		final double [] splittingRatio = readDoubleColumn (F);
+		final List<Demand> demands = new ArrayList<> (F);
+		final List<Link> links = new ArrayList<> (F);
+		for (int cont = 0; cont < F ; cont ++)
+		{
+			demands.add(layer.demands.get(demandIndex [cont]));
+			links.add(layer.links.get(linkIndex [cont]));
+		}
+		netPlan.setForwardingRules(demands , links , toList (splittingRatio) , false);
+	}
+
+	private void readSRGs (NetPlan netPlan)
+	{
+		final CommonColumns common = new CommonColumns ();
+		final int S = common.num;
+		final double [] meanTimeToFailInHours = readDoubleColumn (S);
+		final double [] meanTimeToRepairInHours = readDoubleColumn (S);
+		final boolean [] isDynamic = readBooleanColumn (S);
+		final String [] dynamicSrgClassName = readStringColumn (S);
+		final String [] dynamicSrgConfigString = readStringColumn (S);
+		final int [][] nodeIndexes = readIntListColumn (S);
+		final int [][] linkLayerIndexes = readIntListColumn (S);
+		final int [][] linkIndexes = readIntListColumn (S);
+		for (int index = 0; index < S ; index ++)
+		{
+			SharedRiskGroup newSRG;
+			if (isDynamic [index])
+				newSRG = netPlan.addSRGDynamic(common.ids [index] , meanTimeToFailInHours [index] , meanTimeToRepairInHours [index] , dynamicSrgClassName [index] , dynamicSrgConfigString [index] , common.getAttributes(index));
+			else
+			{
+				newSRG = netPlan.addSRG(common.ids [index] , meanTimeToFailInHours [index] , meanTimeToRepairInHours [index] , common.getAttributes(index));
+				for (int nodeIndex : nodeIndexes [index]) newSRG.addNode(netPlan.nodes.get(nodeIndex));
+				for (int cont = 0; cont < linkIndexes [index].length ; cont ++) newSRG.addLink(netPlan.layers.get(linkLayerIndexes [index][cont]).links.get(linkIndexes [index][cont]));
+			}
+			common.setNameDescriptionAndTags(newSRG , index);
+		}
+	}
+
+	private void readCouplings (NetPlan netPlan)
+	{
+		final int C = buffer.getInt();
+		final int [] demandLayerIndex = readIntColumn (C);
+		final int [] demandIndex = readIntColumn (C);
+		final int [] linkLayerIndex = readIntColumn (C);
+		final int [] linkIndex = readIntColumn (C);
+		for (int cont = 0; cont < C ; cont ++)
+			netPlan.layers.get(demandLayerIndex [cont]).demands.get(demandIndex [cont]).coupleToUpperOrSameLayerLink(netPlan.layers.get(linkLayerIndex [cont]).links.get(linkIndex [cont]));
+
+		final int MC = buffer.getInt();
+		final int [] multicastDemandLayerIndex = readIntColumn (MC);
+		final int [] multicastDemandIndex = readIntColumn (MC);
+		final int [] upperLinksLayerIndex = readIntColumn (MC);
+		final int [][] upperLinkIndexes = readIntListColumn (MC);
+		for (int cont = 0; cont < MC ; cont ++)
+			netPlan.layers.get(multicastDemandLayerIndex [cont]).multicastDemands.get(multicastDemandIndex [cont]).couple(toLinkSet (netPlan.layers.get(upperLinksLayerIndex [cont]) , upperLinkIndexes [cont]));
+	}
+
+	/* Number of elements, ids, names, descriptions, tags and attributes: common to all the element types */
+	private class CommonColumns
+	{
+		private final int num;
+		private final long [] ids;
+		private final String [] names;
+		private final String [] descriptions;
+		private final String [][] tags;
+		private final String [][] attributes;
+
+		private CommonColumns ()
+		{
+			this.num = buffer.getInt();
+			this.ids = readLongColumn (num);
+			for (long id : ids) if (id >= nextElementId) throw new Net2PlanException ("A network element has an id higher than the nextElementId");
+			this.names = readStringColumn (num);
+			this.descriptions = readStringColumn (num);
+			this.tags = readStringListColumn (num);
+			this.attributes = readStringListColumn (num);
+		}
+
+		private SortedMap<String,String> getAttributes (int index)
+		{
+			final SortedMap<String,String> res = new TreeMap<> ();
+			for (int cont = 0; cont < attributes [index].length ; cont += 2) res.put(attributes [index][cont] , attributes [index][cont + 1]);
+			return res;
+		}
+
+		private void setNameDescriptionAndTags (NetworkElement e , int index)
+		{
+			e.setName(names [index]);
+			e.setDescription(descriptions [index]);
+			for (String tag : tags [index]) e.addTag(tag);
+		}
+	}
+
+	/* Returns null for the empty series, that do not need to be set */
+	private TrafficSeries [] readTrafficSeriesColumns (int num)
+	{
+		final TrafficSeries [] res = new TrafficSeries [num];
+		if (version >= 2)
+		{
+			final int [] numBytes = readIntColumn (num);
+			for (int index = 0; index < num ; index ++)
+			{
+				final byte [] bytes = new byte [numBytes [index]];
+				buffer.get(bytes);
+				final TrafficSeries series = TrafficSeries.createFromByteArray(bytes);
+				if (series.getSize() > 0) res [index] = series;
+			}
+			return res;
+		}
+		final long [][] dates = readLongListColumn (num);
+		final double [][] values = readDoubleListColumn (num);
+		for (int index = 0; index < num ; index ++)
+			if (dates [index].length > 0) res [index] = new TrafficSeries (dates [index] , values [index]);
+		return res;
+	}
+
+	private long [] readLongColumn (int num)
+	{
+		final long [] res = new long [num];
+		buffer.asLongBuffer().get(res);
+		buffer.position(buffer.position() + 8 * num);
+		return res;
+	}
+
+	private int [] readIntColumn (int num)
+	{
+		final int [] res = new int [num];
+		buffer.asIntBuffer().get(res);
+		buffer.position(buffer.position() + 4 * num);
+		return res;
+	}
+
+	private double [] readDoubleColumn (int num)
+	{
+		final double [] res = new double [num];
+		buffer.asDoubleBuffer().get(res);
+		buffer.position(buffer.position() + 8 * num);
+		return res;
+	}
+
+	private boolean [] readBooleanColumn (int num)
+	{
+		final boolean [] res = new boolean [num];
+		for (int cont = 0; cont < num ; cont ++) res [cont] = buffer.get() != 0;
+		return res;
+	}
+
+	private String [] readStringColumn (int num)
+	{
+		final String [] res = new String [num];
+		final int [] indexes = readIntColumn (num);
+		for (int cont = 0; cont < num ; cont ++) res [cont] = indexes [cont] == -1? null : strings [indexes [cont]];
+		return res;
+	}
+
+	private int [][] readIntListColumn (int num)
+	{
+		final int [] sizes = readIntColumn (num);
+		final int [][] res = new int [num][];
+		for (int cont = 0; cont < num ; cont ++) res [cont] = readIntColumn (sizes [cont]);
+		return res;
+	}
+
+	private long [][] readLongListColumn (int num)
+	{
+		final int [] sizes = readIntColumn (num);
+		final long [][] res = new long [num][];
+		for (int cont = 0; cont < num ; cont ++) res [cont] = readLongColumn (sizes [cont]);
+		return res;
+	}
+
+	private double [][] readDoubleListColumn (int num)
+	{
+		final int [] sizes = readIntColumn (num);
+		final double [][] res = new double [num][];
+		for (int cont = 0; cont < num ; cont ++) res [cont] = readDoubleColumn (sizes [cont]);
+		return res;
+	}
+
+	private String [][] readStringListColumn (int num)
+	{
+		final int [] sizes = readIntColumn (num);
+		final String [][] res = new String [num][];
+		for (int cont = 0; cont < num ; cont ++) res [cont] = readStringColumn (sizes [cont]);
+		return res;
+	}
+
+	private String [] readStrings ()
+	{
+		return readStringColumn (buffer.getInt());
+	}
+
+	private String readString ()
+	{
+		final int index = buffer.getInt();
+		return index == -1? null : strings [index];
+	}
+
+	/* Links are written as non-negative indexes in the layer, and resources as negative numbers: -1 - index of the resource */
+	private static List<NetworkElement> toPath (NetPlan netPlan , NetworkLayer layer , int [] indexes)
+	{
+		final List<NetworkElement> res = new ArrayList<> (indexes.length);
+		for (int index : indexes) res.add(index >= 0? layer.links.get(index) : netPlan.resources.get(-1 - index));
+		return res;
+	}
+
+	private static SortedSet<Link> toLinkSet (NetworkLayer layer , int [] indexes)
+	{
+		final SortedSet<Link> res = new TreeSet<> ();
+		for (int index : indexes) res.add(layer.links.get(index));
+		return res;
+	}
+
+	private static List<Double> toList (double [] values)
+	{
+		final List<Double> res = new ArrayList<> (values.length);
+		for (double val : values) res.add(val);
+		return res;
+	}
+
+	private static URL toUrl (String s)
+	{
+		if (s == null) return null;
+		try { return new URL (s); } catch (Exception e) { return null; }
+	}
+
+	/* The same three strings as in the XML format: type, initialization string and statistics initialization string */
+	private static TrafficPredictor toTrafficPredictor (String [] rows)
+	{
+		if (rows.length < 2) return null;
+		try
+		{
+			return TrafficPredictor.createFromInitStrings(TRAFFICPREDICTORTYPE.valueOf(rows [0]) , rows [1] , rows.length >= 3? Optional.of(rows [2]) : Optional.empty()).orElse(null);
+		} catch (Exception e) { return null; }
+	}
+
+	private static byte [] readAllBytes (InputStream inputStream) throws IOException
+	{
+		final ByteArrayOutputStream res = new ByteArrayOutputStream ();
+		final byte [] chunk = new byte [1 << 16];
+		int n;
+		while ((n = inputStream.read(chunk)) >= 0) res.write(chunk , 0 , n);
+		return res.toByteArray();
+	}
+}
@@ -81,7 +81,7 @@ public class Resource extends NetworkElement
 			entry.getKey().capacityUpperResourcesOccupyInMe.put(this , entry.getValue());
 			entry.getKey().updateTotalOccupiedCapacity();
 		}
-		this.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute = new TreeMap<> ();
+		this.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute = new ElementSortedMap<> ();
 	}
 
 	void copyFrom (Resource origin)
@@ -110,7 +110,7 @@ public class Resource extends NetworkElement
 			if (resourceThisNp == null) throw new RuntimeException ("Bad");
 			this.capacityIOccupyInBaseResource.put(resourceThisNp , entry.getValue());
 		}
-		this.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute = new TreeMap<Route,Double> ();
+		this.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute = new ElementSortedMap<Route,Double> ();
 		for (Entry<Route,Double> originRoute : origin.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute.entrySet())
 		{
 			final Route routeThisNp = this.netPlan.getRouteFromId(originRoute.getKey().id);
@@ -170,6 +170,7 @@ public class Resource extends NetworkElement
 	 */
 	public void setProcessingTimeToTraversingTrafficInMs (double time)
 	{
+		netPlan.checkIsModifiable();
 		if (time < 0) throw new Net2PlanException ("The processing time cannot be negative");
 		this.processingTimeToTraversingTrafficInMs = time;
 	}
@@ -228,6 +229,7 @@ public class Resource extends NetworkElement
 	 */
 	public void setCapacityMeasurementUnits(String units) 
 	{
+		netPlan.checkIsModifiable();
 		this.capacityMeasurementUnits = units;
 	}
 	
@@ -30,6 +30,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.net2plan.internal.AttributeMap;
 import com.net2plan.internal.ErrorHandling;
+import com.net2plan.internal.Instrumentation;
 import com.net2plan.utils.Constants.RoutingCycleType;
 import com.net2plan.utils.Pair;
 import com.net2plan.utils.Triple;
@@ -75,7 +76,7 @@ public class Route extends NetworkElement
 	Route (NetPlan netPlan , long id , int index , Demand demand , List<? extends NetworkElement> seqLinksAndResourcesTraversed , AttributeMap attributes)
 	{
 		super (netPlan , id , index , attributes);
-		this.setName ("Route-" + index);
+		this.name = "Route-" + index;
 
 		if (!netPlan.equals(demand.netPlan)) throw new RuntimeException ("Bad");
 		for (NetworkElement e : seqLinksAndResourcesTraversed)
@@ -102,7 +103,7 @@ public class Route extends NetworkElement
 		this.cache_seqLinksRealPath = Route.getSeqLinks(seqLinksAndResourcesTraversed);
 		this.cache_seqNodesRealPath = Route.listTraversedNodes(cache_seqLinksRealPath);
 		this.cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap = updateLinkResourceOccupationCache ();
-		this.cache_routesIAmBackUp = new TreeSet<Route> ();
+		this.cache_routesIAmBackUp = new ElementSortedSet<Route> ();
 		this.cache_hasLoops = hasLoops (cache_seqNodesRealPath);
 		if (cache_hasLoops) demand.routingCycleType = RoutingCycleType.OPEN_CYCLES;
 		this.cache_propagationDelayMs = 0;
@@ -172,6 +173,7 @@ public class Route extends NetworkElement
      */
     public void setBidirectionalPair(Route r)
     {
+		netPlan.checkIsModifiable();
 		if (r == null)
 		{
 			if (bidirectionalPair != null) { this.bidirectionalPair.bidirectionalPair = null; this.bidirectionalPair = null; }
@@ -649,6 +651,7 @@ public class Route extends NetworkElement
 
         final NetPlan npOld = this.netPlan;
         removeId();
+        Instrumentation.increment(Instrumentation.Counter.ROUTES_REMOVED);
         if (ErrorHandling.isDebugEnabled()) npOld.checkCachesConsistency();
 	}
 
@@ -704,6 +707,7 @@ public class Route extends NetworkElement
 		this.cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap = updateLinkResourceOccupationCache ();
 
 		demand.carriedTraffic = 0; for (Route r : demand.cache_routes) demand.carriedTraffic += r.getCarriedTraffic();
+		netPlan.notifyDemandChanged(demand);
 		if (demand.coupledUpperOrSameLayerLink != null)
 			demand.coupledUpperOrSameLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(demand.carriedTraffic);
 
@@ -985,7 +989,7 @@ public class Route extends NetworkElement
 
 	private SortedSet<? extends NetworkElement> getInThisNetPlan (SortedSet<? extends NetworkElement> list)
 	{
-		SortedSet<NetworkElement> res = new TreeSet<> ();
+		SortedSet<NetworkElement> res = new ElementSortedSet<> ();
 		for (NetworkElement e : list)
 		{
 			NetworkElement ee = null;
@@ -1002,7 +1006,7 @@ public class Route extends NetworkElement
 
 	private SortedMap<NetworkElement,Double> updateLinkResourceOccupationCache ()
 	{
-		SortedMap<NetworkElement,Double> res = new TreeMap<NetworkElement,Double> ();
+		SortedMap<NetworkElement,Double> res = new ElementSortedMap<NetworkElement,Double> ();
 		for (int step = 0; step < currentPath.size() ; step ++)
 		{
 			final NetworkElement e = currentPath.get(step);
@@ -48,7 +48,7 @@ public class SharedRiskGroup extends NetworkElement
 	SharedRiskGroup (NetPlan netPlan , long id , int index , SortedSet<Node> nodes , SortedSet<Link> links , double meanTimeToFailInHours ,  double meanTimeToRepairInHours , AttributeMap attributes)
 	{
 		super (netPlan , id , index , attributes);
-		this.setName ("Srg-" + index);
+		this.name = "Srg-" + index;
 
 		if (links == null) links = new TreeSet<Link> ();
 		if (nodes == null) nodes = new TreeSet<Node> ();
@@ -68,7 +68,7 @@ public class SharedRiskGroup extends NetworkElement
     SharedRiskGroup (NetPlan netPlan , long id , int index , String className , String dynamicInitializationString , double meanTimeToFailInHours ,  double meanTimeToRepairInHours , AttributeMap attributes)
     {
         super (netPlan , id , index , attributes);
-		this.setName ("Srg-" + index);
+		this.name = "Srg-" + index;
         this.nodesIfNonDynamic = new TreeSet<> ();
         this.linksIfNonDynamic = new TreeSet<> ();
         this.meanTimeToFailInHours = meanTimeToFailInHours;
@@ -86,6 +86,7 @@ public class SharedRiskGroup extends NetworkElement
 
     public void setDynamicImplementation (DynamicSrgImplementation impl)
     {
+        netPlan.checkIsModifiable();
         if (!isDynamicSrg()) throw new Net2PlanException ("The SRG is not dynamic");
         this.dynamicSrgImplementation = impl;
     }
@@ -313,6 +314,7 @@ public class SharedRiskGroup extends NetworkElement
 	 */
 	public void setMeanTimeToFailInHours(double value)
 	{
+		netPlan.checkIsModifiable();
 		if (value <= 0) throw new Net2PlanException ("A positive value is expected");
 		this.meanTimeToFailInHours = value;
 	}
@@ -332,6 +334,7 @@ public class SharedRiskGroup extends NetworkElement
 	 */
 	public void setMeanTimeToRepairInHours(double value)
 	{
+		netPlan.checkIsModifiable();
 		if (value < 0) throw new Net2PlanException ("A positive value is expected");
 		this.meanTimeToRepairInHours = value;
 	}
@@ -353,7 +356,8 @@ public class SharedRiskGroup extends NetworkElement
 	public void setAsDown ()
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.setLinksAndNodesFailureState (null , getLinksAllLayers() , null , getNodes ());
+		netPlan.checkIsModifiable(true);
+		netPlan.updateSrgsFailureState (null , Collections.singleton(this));
 	}
 	
 	/**
@@ -363,7 +367,8 @@ public class SharedRiskGroup extends NetworkElement
 	public void setAsUp ()
 	{
 		checkAttachedToNetPlanObject();
-		netPlan.setLinksAndNodesFailureState (getLinksAllLayers() , null , getNodes (), null);
+		netPlan.checkIsModifiable(true);
+		netPlan.updateSrgsFailureState (Collections.singleton(this) , null);
 	}
 
 	/**
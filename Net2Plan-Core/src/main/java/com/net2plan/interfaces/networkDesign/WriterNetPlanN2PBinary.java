@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import com.net2plan.libraries.TrafficPredictor;
+import com.net2plan.libraries.TrafficSeries;
+
+/**
+ * Writes a design in the binary columnar format read by {@link ReaderNetPlanN2PBinary}. After the header and the string table, each element type
+ * is written as a block with the number of elements, followed by one column per field. Numeric fields are written as arrays of primitives, strings
+ * (names, descriptions, tags, attributes...) as indexes in the string table, and references to other elements as element indexes.
+ */
+class WriterNetPlanN2PBinary
+{
+	private final NetPlan netPlan;
+	private final Map<String,Integer> stringIndexes = new HashMap<> ();
+	private final List<String> strings = new ArrayList<> ();
+	private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream ();
+	private final DataOutputStream body = new DataOutputStream (bodyBytes);
+
+	WriterNetPlanN2PBinary (NetPlan netPlan)
+	{
+		this.netPlan = netPlan;
+	}
+
+	void write (OutputStream outputStream) throws IOException
+	{
+		writeNetwork ();
+		writeLayers ();
+		writeNodes ();
+		writeResources ();
+		for (NetworkLayer layer : netPlan.layers)
+		{
+			writeLinks (layer);
+			writeDemands (layer);
+			writeMulticastDemands (layer);
+			writeMulticastTrees (layer);
+			writeRoutes (layer);
+			writeForwardingRules (layer);
+		}
+		writeSRGs ();
+		writeCouplings ();
+		body.flush();
+
+		final DataOutputStream out = new DataOutputStream (new BufferedOutputStream (outputStream));
+		out.write(ReaderNetPlanN2PBinary.MAGIC);
+		out.writeInt(ReaderNetPlanN2PBinary.FORMAT_VERSION);
+		final byte [][] encodedStrings = new byte [strings.size()][];
+		for (int cont = 0; cont < encodedStrings.length ; cont ++) encodedStrings [cont] = strings.get(cont).getBytes(StandardCharsets.UTF_8);
+		out.writeInt(encodedStrings.length);
+		for (byte [] s : encodedStrings) out.writeInt(s.length);
+		for (byte [] s : encodedStrings) out.write(s);
+		bodyBytes.writeTo(out);
+		out.flush();
+	}
+
+	private void writeNetwork () throws IOException
+	{
+		writeString (netPlan.getDescription());
+		writeString (netPlan.getName());
+		body.writeLong(netPlan.getCurrentDate().getTime());
+		writeString (netPlan.currentPlotNodeLayout);
+		writeStrings (netPlan.cache_definedPlotNodeLayouts);
+		body.writeLong(netPlan.nextElementId.longValue());
+		writeStrings (netPlan.getGlobalPlanningDomains());
+		writeStrings (netPlan.tags);
+		writeStrings (flattenAttributes (netPlan.attributes));
+	}
+
+	private void writeLayers () throws IOException
+	{
+		final List<NetworkLayer> layers = netPlan.layers;
+		writeCommonColumns (layers);
+		writeStringColumn (layers , l -> l.linkCapacityUnitsName);
+		writeStringColumn (layers , l -> l.demandTrafficUnitsName);
+		writeStringColumn (layers , l -> l.defaultNodeIconURL == null? null : l.defaultNodeIconURL.toString());
+		body.writeInt(netPlan.getNetworkLayerDefault().index);
+	}
+
+	private void writeNodes () throws IOException
+	{
+		final List<Node> nodes = netPlan.nodes;
+		writeCommonColumns (nodes);
+		writeDoubleColumn (nodes , n -> n.getXYPositionMap().getX());
+		writeDoubleColumn (nodes , n -> n.getXYPositionMap().getY());
+		writeDoubleColumn (nodes , n -> n.population);
+		writeStringColumn (nodes , n -> n.siteName);
+		writeBooleanColumn (nodes , n -> n.isUp);
+		writeStringListColumn (nodes , n -> n.getPlanningDomains());
+		writeStringListColumn (nodes , n -> n.mapLayout2NodeXYPositionMap.keySet());
+		writeDoubleListColumn (nodes , n -> n.mapLayout2NodeXYPositionMap.values().stream().mapToDouble(p -> p.getX()).toArray());
+		writeDoubleListColumn (nodes , n -> n.mapLayout2NodeXYPositionMap.values().stream().mapToDouble(p -> p.getY()).toArray());
+		final Function<Node,List<NetworkLayer>> layersWithIcon = n -> { final List<NetworkLayer> res = new ArrayList<> (); for (NetworkLayer layer : netPlan.layers) if (n.getUrlNodeIcon(layer) != null) res.add(layer); return res; };
+		writeIntListColumn (nodes , n -> layersWithIcon.apply(n).stream().mapToInt(l -> l.index).toArray());
+		writeStringListColumn (nodes , n -> layersWithIcon.apply(n).stream().map(l -> n.getUrlNodeIcon(l).toString()).collect(Collectors.toList()));
+		writeDoubleListColumn (nodes , n -> layersWithIcon.apply(n).stream().mapToDouble(l -> n.getNodeIconRelativeSize(l)).toArray());
+	}
+
+	private void writeResources () throws IOException
+	{
+		final List<Resource> resources = netPlan.resources;
+		writeCommonColumns (resources);
+		writeIntColumn (resources , r -> r.iAttachedToANode()? r.hostNode.get().index : -1);
+		writeStringColumn (resources , r -> r.type);
+		writeStringColumn (resources , r -> r.capacityMeasurementUnits);
+		writeDoubleColumn (resources , r -> r.processingTimeToTraversingTrafficInMs);
+		writeDoubleColumn (resources , r -> r.capacity);
+		writeStringColumn (resources , r -> r.urlIcon == null? null : r.urlIcon.toString());
+		writeIntListColumn (resources , r -> r.capacityIOccupyInBaseResource.keySet().stream().mapToInt(b -> b.index).toArray());
+		writeDoubleListColumn (resources , r -> r.capacityIOccupyInBaseResource.values().stream().mapToDouble(v -> v).toArray());
+	}
+
+	private void writeLinks (NetworkLayer layer) throws IOException
+	{
+		final List<Link> links = layer.links;
+		writeCommonColumns (links);
+		writeIntColumn (links , e -> e.originNode.index);
+		writeIntColumn (links , e -> e.destinationNode.index);
+		writeDoubleColumn (links , e -> e.capacity);
+		writeDoubleColumn (links , e -> e.lengthInKm);
+		writeDoubleColumn (links , e -> e.propagationSpeedInKmPerSecond);
+		writeIntColumn (links , e -> e.bidirectionalPair == null? -1 : e.bidirectionalPair.index);
+		writeIntColumn (links , e -> e.getNominalColor().getRGB());
+		writeBooleanColumn (links , e -> e.isUp);
+		writeTrafficSeriesColumns (links , e -> e.getMonitoredOrForecastedCarriedTraffic());
+		writeStringListColumn (links , e -> trafficPredictorStrings (e.getTrafficPredictor()));
+	}
+
+	private void writeDemands (NetworkLayer layer) throws IOException
+	{
+		final List<Demand> demands = layer.demands;
+		writeCommonColumns (demands);
+		writeIntColumn (demands , d -> d.ingressNode.index);
+		writeIntColumn (demands , d -> d.egressNode.index);
+		writeDoubleColumn (demands , d -> d.offeredTraffic);
+		writeStringColumn (demands , d -> d.recoveryType.name());
+		writeStringColumn (demands , d -> d.routingType.name());
+		writeIntColumn (demands , d -> d.bidirectionalPair == null? -1 : d.bidirectionalPair.index);
+		writeDoubleColumn (demands , d -> d.maximumAcceptableE2EWorstCaseLatencyInMs);
+		writeDoubleColumn (demands , d -> d.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth);
+		writeTrafficSeriesColumns (demands , d -> d.getMonitoredOrForecastedOfferedTraffic());
+		writeStringListColumn (demands , d -> trafficPredictorStrings (d.getTrafficPredictor()));
+		writeStringColumn (demands , d -> d.qosType);
+		writeStringListColumn (demands , d -> d.mandatorySequenceOfTraversedResourceTypes);
+	}
+
+	private void writeMulticastDemands (NetworkLayer layer) throws IOException
+	{
+		final List<MulticastDemand> demands = layer.multicastDemands;
+		writeCommonColumns (demands);
+		writeIntColumn (demands , d -> d.ingressNode.index);
+		writeIntListColumn (demands , d -> d.egressNodes.stream().mapToInt(n -> n.index).toArray());
+		writeDoubleColumn (demands , d -> d.offeredTraffic);
+		writeDoubleColumn (demands , d -> d.maximumAcceptableE2EWorstCaseLatencyInMs);
+		writeDoubleColumn (demands , d -> d.offeredTrafficGrowthFactorPerPeriodZeroIsNoGrowth);
+		writeStringColumn (demands , d -> d.qosType);
+		writeTrafficSeriesColumns (demands , d -> d.getMonitoredOrForecastedOfferedTraffic());
+		writeStringListColumn (demands , d -> trafficPredictorStrings (d.getTrafficPredictor()));
+	}
+
+	private void writeMulticastTrees (NetworkLayer layer) throws IOException
+	{
+		final List<MulticastTree> trees = layer.multicastTrees;
+		writeCommonColumns (trees);
+		writeIntColumn (trees , t -> t.demand.index);
+		writeDoubleColumn (trees , t -> t.carriedTrafficIfNotFailing);
+		writeDoubleColumn (trees , t -> t.occupiedLinkCapacityIfNotFailing);
+		writeIntListColumn (trees , t -> t.linkSet.stream().mapToInt(e -> e.index).toArray());
+		/* If the original link set was removed, it is replaced by the current link set */
+		writeIntListColumn (trees , t -> (t.initialSetLinksWhenWasCreated.stream().anyMatch(e -> e.netPlan == null)? t.linkSet : t.initialSetLinksWhenWasCreated).stream().mapToInt(e -> e.index).toArray());
+	}
+
+	private void writeRoutes (NetworkLayer layer) throws IOException
+	{
+		final List<Route> routes = layer.routes;
+		/* If some link or resource of the initial path was removed, the initial state is replaced by the current one */
+		final Predicate<Route> initialStateRemoved = r -> r.initialStatePath.stream().anyMatch(e -> e.netPlan == null);
+		writeCommonColumns (routes);
+		writeIntColumn (routes , r -> r.demand.index);
+		writeDoubleColumn (routes , r -> r.currentCarriedTrafficIfNotFailing);
+		writeDoubleListColumn (routes , r -> r.currentLinksAndResourcesOccupationIfNotFailing.stream().mapToDouble(v -> v).toArray());
+		writeIntListColumn (routes , r -> pathIndexes (r.currentPath));
+		writeIntColumn (routes , r -> r.bidirectionalPair == null? -1 : r.bidirectionalPair.index);
+		writeDoubleColumn (routes , r -> initialStateRemoved.test(r)? r.currentCarriedTrafficIfNotFailing : r.initialStateCarriedTrafficIfNotFailing);
+		writeDoubleListColumn (routes , r -> (initialStateRemoved.test(r)? r.currentLinksAndResourcesOccupationIfNotFailing : r.initialStateOccupationIfNotFailing).stream().mapToDouble(v -> v).toArray());
+		writeIntListColumn (routes , r -> pathIndexes (initialStateRemoved.test(r)? r.currentPath : r.initialStatePath));
+		writeIntListColumn (routes , r -> r.backupRoutes.stream().mapToInt(b -> b.index).toArray());
+	}
+
+	private void writeForwardingRules (NetworkLayer layer) throws IOException
+	{
+		final List<Demand> frDemands = new ArrayList<> ();
+		final List<Entry<Link,Double>> frs = new ArrayList<> ();
+		for (Demand d : layer.demands)
+			for (Entry<Link,Double> fr : d.cacheHbH_frs.entrySet())
+			{
+				frDemands.add(d);
+				frs.add(fr);
+			}
+		body.writeInt(frs.size());
+		for (Demand d : frDemands) body.writeInt(d.index);
+		for (Entry<Link,Double> fr : frs) body.writeInt(fr.getKey().index);
+		for (Entry<Link,Double> fr : frs) body.writeDouble(fr.getValue());
+	}
+
+	private void writeSRGs () throws IOException
+	{
+		final List<SharedRiskGroup> srgs = netPlan.srgs;
+		writeCommonColumns (srgs);
+		writeDoubleColumn (srgs , s -> s.meanTimeToFailInHours);
+		writeDoubleColumn (srgs , s -> s.meanTimeToRepairInHours);
+		writeBooleanColumn (srgs , s -> s.isDynamicSrg());
+		writeStringColumn (srgs , s -> s.isDynamicSrg()? s.getDynamicSrgImplementation().getClass().getName() : null);
+		writeStringColumn (srgs , s -> s.isDynamicSrg()? s.getDynamicSrgImplementation().getInitializationString() : null);
+		writeIntListColumn (srgs , s -> s.isDynamicSrg()? new int [0] : s.getNodes().stream().mapToInt(n -> n.index).toArray());
+		writeIntListColumn (srgs , s -> s.isDynamicSrg()? new int [0] : s.getLinksAllLayers().stream().mapToInt(e -> e.layer.index).toArray());
+		writeIntListColumn (srgs , s -> s.isDynamicSrg()? new int [0] : s.getLinksAllLayers().stream().mapToInt(e -> e.index).toArray());
+	}
+
+	private void writeCouplings () throws IOException
+	{
+		final List<Demand> coupledDemands = new ArrayList<> ();
+		final List<MulticastDemand> coupledMulticastDemands = new ArrayList<> ();
+		/* As in the XML format, the couplings between layers go first, and then the ones in the same layer */
+		for (NetworkLayer layer : netPlan.layers)
+		{
+			for (Demand d : layer.demands) if (d.coupledUpperOrSameLayerLink != null && !d.isCoupledInSameLayer()) coupledDemands.add(d);
+			for (MulticastDemand d : layer.multicastDemands) if (d.coupledUpperLayerLinks != null) coupledMulticastDemands.add(d);
+		}
+		for (NetworkLayer layer : netPlan.layers)
+			for (Demand d : layer.demands) if (d.isCoupledInSameLayer()) coupledDemands.add(d);
+		body.writeInt(coupledDemands.size());
+		for (Demand d : coupledDemands) body.writeInt(d.layer.index);
+		for (Demand d : coupledDemands) body.writeInt(d.index);
+		for (Demand d : coupledDemands) body.writeInt(d.coupledUpperOrSameLayerLink.layer.index);
+		for (Demand d : coupledDemands) body.writeInt(d.coupledUpperOrSameLayerLink.index);
+		body.writeInt(coupledMulticastDemands.size());
+		for (MulticastDemand d : coupledMulticastDemands) body.writeInt(d.layer.index);
+		for (MulticastDemand d : coupledMulticastDemands) body.writeInt(d.index);
+		for (MulticastDemand d : coupledMulticastDemands) body.writeInt(d.coupledUpperLayerLinks.values().iterator().next().layer.index);
+		writeIntListColumn (coupledMulticastDemands , d -> d.coupledUpperLayerLinks.values().stream().mapToInt(e -> e.index).toArray());
+	}
+
+	/* Number of elements, ids, names, descriptions, tags and attributes: common to all the element types */
+	private void writeCommonColumns (List<? extends NetworkElement> elements) throws IOException
+	{
+		body.writeInt(elements.size());
+		writeLongColumn (elements , e -> e.id);
+		writeStringColumn (elements , e -> e.name);
+		writeStringColumn (elements , e -> e.description);
+		writeStringListColumn (elements , e -> e.tags);
+		writeStringListColumn (elements , e -> flattenAttributes (e.attributes));
+	}
+
+	/* The series are written as a column with the number of bytes of each one, followed by the concatenation of the compact encodings */
+	private <T> void writeTrafficSeriesColumns (List<T> elements , Function<T,TrafficSeries> series) throws IOException
+	{
+		final List<byte []> encodings = new ArrayList<> (elements.size());
+		for (T e : elements) { final byte [] bytes = series.apply(e).toByteArray(); encodings.add(bytes); body.writeInt(bytes.length); }
+		for (byte [] bytes : encodings) body.write(bytes);
+	}
+
+	private <T> void writeLongColumn (List<T> elements , ToLongFunction<T> f) throws IOException
+	{
+		for (T e : elements) body.writeLong(f.applyAsLong(e));
+	}
+
+	private <T> void writeIntColumn (List<T> elements , ToIntFunction<T> f) throws IOException
+	{
+		for (T e : elements) body.writeInt(f.applyAsInt(e));
+	}
+
+	private <T> void writeDoubleColumn (List<T> elements , ToDoubleFunction<T> f) throws IOException
+	{
+		for (T e : elements) body.writeDouble(f.applyAsDouble(e));
+	}
+
+	private <T> void writeBooleanColumn (List<T> elements , Predicate<T> f) throws IOException
+	{
+		for (T e : elements) body.writeBoolean(f.test(e));
+	}
+
+	private <T> void writeStringColumn (List<T> elements , Function<T,String> f) throws IOException
+	{
+		for (T e : elements) writeString (f.apply(e));
+	}
+
+	/* List columns are written as a column with the list sizes, followed by the concatenation of all the lists */
+	private <T> void writeIntListColumn (List<T> elements , Function<T,int []> f) throws IOException
+	{
+		final List<int []> lists = new ArrayList<> (elements.size());
+		for (T e : elements) { final int [] list = f.apply(e); lists.add(list); body.writeInt(list.length); }
+		for (int [] list : lists) for (int val : list) body.writeInt(val);
+	}
+
+	private <T> void writeDoubleListColumn (List<T> elements , Function<T,double []> f) throws IOException
+	{
+		final List<double []> lists = new ArrayList<> (elements.size());
+		for (T e : elements) { final double [] list = f.apply(e); lists.add(list); body.writeInt(list.length); }
+		for (double [] list : lists) for (double val : list) body.writeDouble(val);
+	}
+
+	private <T> void writeStringListColumn (List<T> elements , Function<T,Collection<String>> f) throws IOException
+	{
+		final List<Collection<String>> lists = new ArrayList<> (elements.size());
+		for (T e : elements) { final Collection<String> list = f.apply(e); lists.add(list); body.writeInt(list.size()); }
+		for (Collection<String> list : lists) for (String s : list) writeString (s);
+	}
+
+	private void writeStrings (Collection<String> list) throws IOException
+	{
+		body.writeInt(list.size());
+		for (String s : list) writeString (s);
+	}
+
+	private void writeString (String s) throws IOException
+	{
+		if (s == null) { body.writeInt(-1); return; }
+		Integer index = stringIndexes.get(s);
+		if (index == null) { index = strings.size(); strings.add(s); stringIndexes.put(s , index); }
+		body.writeInt(index);
+	}
+
+	/* Links are written as non-negative indexes in the layer, and resources as negative numbers: -1 - index of the resource */
+	private static int [] pathIndexes (List<? extends NetworkElement> path)
+	{
+		final int [] res = new int [path.size()];
+		int counter = 0;
+		for (NetworkElement e : path) res [counter ++] = e instanceof Link? e.index : -1 - e.index;
+		return res;
+	}
+
+	private static List<String> flattenAttributes (Map<String,String> attributes)
+	{
+		final List<String> res = new ArrayList<> (2 * attributes.size());
+		for (Entry<String,String> entry : attributes.entrySet()) { res.add(entry.getKey()); res.add(entry.getValue()); }
+		return res;
+	}
+
+	/* The same three strings as in the XML format: type, initialization string and statistics initialization string */
+	private static List<String> trafficPredictorStrings (Optional<TrafficPredictor> tp)
+	{
+		if (!tp.isPresent()) return Collections.emptyList();
+		return Arrays.asList(tp.get().getTpType().toString() , tp.get().computeInitializationString() ,
+				tp.get().getTpType().isManual() || tp.get().getStatistics() == null? "" : tp.get().getStatistics().getInitializationString());
+	}
+}
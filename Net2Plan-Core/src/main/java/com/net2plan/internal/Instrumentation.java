@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Counters and timers of the main operations of Net2Plan: execution of algorithms and reports, changes in the designs, file input/output and
+ * event dispatching in the simulator. They are process-wide, and can be safely updated from several threads.</p>
+ *
+ * <p>The instrumentation is active when it is enabled ({@link #setEnabled(boolean) programmatically}, with the CLI option {@code --metrics},
+ * or with the system property {@code -Dnet2plan.metrics=true}), or while a Java Flight Recorder (JFR) recording is running. When it is not
+ * active, the cost of each call is the check of a flag. The values are exported as a JSON object ({@link #toJson()}), and, in the
+ * Java runtimes with JFR, as JFR events: one event per timed operation ({@code com.net2plan.Operation}) and a periodic snapshot of the
+ * counters ({@code com.net2plan.Metrics}). The JFR events need the bridge class in {@code src/main/java-jfr}, which is only built with
+ * JDK 11 or later (profile {@code jfr}).</p>
+ *
+ * @since 0.6.6
+ */
+public final class Instrumentation
+{
+	/**
+	 * The counters of events.
+	 *
+	 * @since 0.6.6
+	 */
+	public enum Counter
+	{
+		ROUTES_ADDED ("netPlan.routesAdded"),
+		ROUTES_REMOVED ("netPlan.routesRemoved"),
+		FORWARDING_RULES_SET ("netPlan.forwardingRulesSet");
+
+		private final String name;
+
+		Counter (String name) { this.name = name; }
+
+		/**
+		 * Returns the name of the counter in the exported metrics
+		 * @return see above
+		 */
+		public String getName () { return name; }
+	}
+
+	/**
+	 * The timed operations. For each one, the number of operations, and the total and maximum time are kept.
+	 *
+	 * @since 0.6.6
+	 */
+	public enum Timer
+	{
+		ALGORITHM_EXECUTION ("algorithm.execution" , true),
+		REPORT_EXECUTION ("report.execution" , true),
+		FILE_LOAD ("netPlan.fileLoad" , true),
+		FILE_SAVE ("netPlan.fileSave" , true),
+		CACHE_CONSISTENCY_CHECK ("netPlan.cacheConsistencyCheck" , true),
+		SIMULATION_EVENT_DISPATCH ("simulation.eventDispatch" , false);
+
+		private final String name;
+		private final boolean oneJfrEventPerOperation;
+
+		Timer (String name , boolean oneJfrEventPerOperation) { this.name = name; this.oneJfrEventPerOperation = oneJfrEventPerOperation; }
+
+		/**
+		 * Returns the name of the timer in the exported metrics
+		 * @return see above
+		 */
+		public String getName () { return name; }
+	}
+
+	/**
+	 * An operation being timed, to be closed when it finishes (typically, in a try-with-resources block).
+	 *
+	 * @since 0.6.6
+	 */
+	public static final class Measurement implements AutoCloseable
+	{
+		private final Timer timer;
+		private final long startNanos;
+		private final Object jfrEvent;
+
+		private Measurement (Timer timer , long startNanos , Object jfrEvent) { this.timer = timer; this.startNanos = startNanos; this.jfrEvent = jfrEvent; }
+
+		/**
+		 * Stops the timer, and accumulates the time elapsed since it was started
+		 */
+		@Override
+		public void close ()
+		{
+			if (timer == null) return;
+			record(timer , System.nanoTime() - startNanos);
+			if (jfrEvent != null) jfr.end(jfrEvent);
+		}
+	}
+
+	/* The bridge to the Java Flight Recorder, implemented in a separate source folder so this one can be built and loaded without JFR */
+	static abstract class JfrRecorder
+	{
+		abstract Object begin (Timer timer , String detail);
+		abstract void end (Object event);
+	}
+
+	private static final Measurement NOMEASUREMENT = new Measurement(null , 0 , null);
+	private static final Map<Counter,LongAdder> counters = new EnumMap<> (Counter.class);
+	private static final Map<Timer,LongAdder> timerCounts = new EnumMap<> (Timer.class);
+	private static final Map<Timer,LongAdder> timerTotalNanos = new EnumMap<> (Timer.class);
+	private static final Map<Timer,LongAccumulator> timerMaxNanos = new EnumMap<> (Timer.class);
+	private static final JfrRecorder jfr;
+	private static volatile boolean enabled = Boolean.getBoolean("net2plan.metrics");
+	private static volatile boolean jfrRecording = false;
+	private static volatile boolean active = enabled;
+
+	static
+	{
+		for (Counter counter : Counter.values()) counters.put(counter , new LongAdder());
+		for (Timer timer : Timer.values())
+		{
+			timerCounts.put(timer , new LongAdder());
+			timerTotalNanos.put(timer , new LongAdder());
+			timerMaxNanos.put(timer , new LongAccumulator(Long::max , 0));
+		}
+		JfrRecorder recorder = null;
+		try
+		{
+			Class.forName("jdk.jfr.FlightRecorder");
+			recorder = (JfrRecorder) Class.forName("com.net2plan.internal.InstrumentationJfr").getDeclaredConstructor().newInstance();
+		} catch (Throwable e) { recorder = null; }
+		jfr = recorder;
+	}
+
+	private Instrumentation () { }
+
+	/**
+	 * Indicates whether the instrumentation was enabled (if not, it is still active while a JFR recording is running)
+	 * @return see above
+	 */
+	public static boolean isEnabled () { return enabled; }
+
+	/**
+	 * Indicates whether the instrumentation is active, that is, it is enabled or a JFR recording is running
+	 * @return see above
+	 */
+	public static boolean isActive () { return active; }
+
+	/**
+	 * Enables or disables the instrumentation
+	 * @param enable {@code true} to enable it, {@code false} to disable it
+	 */
+	public static void setEnabled (boolean enable)
+	{
+		enabled = enable;
+		active = enabled || jfrRecording;
+	}
+
+	/* Called by the JFR bridge when a recording starts or stops */
+	static void setJfrRecording (boolean recording)
+	{
+		jfrRecording = recording;
+		active = enabled || jfrRecording;
+	}
+
+	/**
+	 * Increments the given counter by one, if the instrumentation is active
+	 * @param counter the counter
+	 */
+	public static void increment (Counter counter)
+	{
+		if (active) counters.get(counter).increment();
+	}
+
+	/**
+	 * Increments the given counter, if the instrumentation is active
+	 * @param counter the counter
+	 * @param amount the increment
+	 */
+	public static void add (Counter counter , long amount)
+	{
+		if (active) counters.get(counter).add(amount);
+	}
+
+	/**
+	 * Starts timing an operation. The returned measurement must be closed when the operation finishes. If the instrumentation is not active,
+	 * nothing is measured
+	 * @param timer the timer
+	 * @param detail a description of the particular operation (e.g. the algorithm class name, or the file), reported in the JFR events. It can be {@code null}
+	 * @return the measurement
+	 */
+	public static Measurement start (Timer timer , String detail)
+	{
+		if (!active) return NOMEASUREMENT;
+		final Object jfrEvent = jfr != null && jfrRecording && timer.oneJfrEventPerOperation? jfr.begin(timer , detail) : null;
+		return new Measurement(timer , System.nanoTime() , jfrEvent);
+	}
+
+	/**
+	 * Accumulates in the given timer an operation already timed by the caller, if the instrumentation is active
+	 * @param timer the timer
+	 * @param elapsedNanos the duration of the operation in nanoseconds
+	 */
+	public static void record (Timer timer , long elapsedNanos)
+	{
+		if (!active) return;
+		timerCounts.get(timer).increment();
+		timerTotalNanos.get(timer).add(elapsedNanos);
+		timerMaxNanos.get(timer).accumulate(elapsedNanos);
+	}
+
+	/**
+	 * Returns the current value of the given counter
+	 * @param counter the counter
+	 * @return see above
+	 */
+	public static long getCount (Counter counter) { return counters.get(counter).sum(); }
+
+	/**
+	 * Returns the number of operations accumulated in the given timer
+	 * @param timer the timer
+	 * @return see above
+	 */
+	public static long getCount (Timer timer) { return timerCounts.get(timer).sum(); }
+
+	/**
+	 * Returns the total time in nanoseconds accumulated in the given timer
+	 * @param timer the timer
+	 * @return see above
+	 */
+	public static long getTotalNanos (Timer timer) { return timerTotalNanos.get(timer).sum(); }
+
+	/**
+	 * Returns the time in nanoseconds of the longest operation accumulated in the given timer
+	 * @param timer the timer
+	 * @return see above
+	 */
+	public static long getMaxNanos (Timer timer) { return timerMaxNanos.get(timer).get(); }
+
+	/**
+	 * Sets all the counters and timers to zero
+	 */
+	public static void reset ()
+	{
+		for (LongAdder counter : counters.values()) counter.reset();
+		for (Timer timer : Timer.values())
+		{
+			timerCounts.get(timer).reset();
+			timerTotalNanos.get(timer).reset();
+			timerMaxNanos.get(timer).reset();
+		}
+	}
+
+	/**
+	 * Returns the current values of the counters and timers as a JSON object, with two members: {@code counters} (the value of each counter),
+	 * and {@code timers} (for each timer, the number of operations, and the total, mean and maximum time in milliseconds)
+	 * @return see above
+	 */
+	public static String toJson ()
+	{
+		final StringBuilder st = new StringBuilder();
+		st.append("{\n  \"counters\" : {");
+		boolean first = true;
+		for (Counter counter : Counter.values())
+		{
+			st.append(first? "\n" : ",\n").append("    \"").append(counter.getName()).append("\" : ").append(getCount(counter));
+			first = false;
+		}
+		st.append("\n  },\n  \"timers\" : {");
+		first = true;
+		for (Timer timer : Timer.values())
+		{
+			final long count = getCount(timer);
+			final long totalNanos = getTotalNanos(timer);
+			st.append(first? "\n" : ",\n").append("    \"").append(timer.getName()).append("\" : { ");
+			st.append("\"count\" : ").append(count);
+			st.append(", \"totalMs\" : ").append(toMs(totalNanos));
+			st.append(", \"meanMs\" : ").append(toMs(count == 0? 0 : totalNanos / (double) count));
+			st.append(", \"maxMs\" : ").append(toMs(getMaxNanos(timer)));
+			st.append(" }");
+			first = false;
+		}
+		st.append("\n  }\n}");
+		return st.toString();
+	}
+
+	private static String toMs (double nanos) { return String.format(Locale.US , "%.3f" , nanos / 1e6); }
+}
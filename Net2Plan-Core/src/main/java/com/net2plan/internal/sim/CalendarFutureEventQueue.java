@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+/**
+ * <p>Future event queue based on a calendar queue. Events are hashed by time into an array of
+ * buckets (days) of a fixed width, each one keeping its events in a sorted list. The number of buckets
+ * and their width are adapted as the number of pending events grows or shrinks, so that insertions
+ * and extractions take amortized O(1) time for the usual event time distributions (e.g. the
+ * exponential inter-arrival and holding times of the online simulations). The bucket width is also
+ * recomputed when the cost of the operations shows that it no longer fits the distribution of the pending
+ * events (too many events per bucket, or too many empty buckets between consecutive events).</p>
+ *
+ * <p>Reference: {@code R. Brown, "Calendar queues: a fast O(1) priority queue implementation for the simulation event set problem," <i>Communications of the ACM</i>, vol. 31, no. 10, pp. 1220-1227, Oct. 1988}</p>
+ *
+ * @since 0.6.6
+ */
+public final class CalendarFutureEventQueue implements IFutureEventQueue
+{
+	private final static int MIN_NUMBER_OF_BUCKETS = 2;
+	private final static int NUMBER_OF_SAMPLES_FOR_WIDTH = 25;
+	private final static int MAX_AVERAGE_STEPS_PER_OPERATION = 4;
+
+	private Entry[] buckets;
+	private int bucketMask;
+	private double bucketWidth;
+	private long currentVirtualBucket;
+	private int size;
+	private long stepsInWindow;
+	private int operationsInWindow;
+
+	/**
+	 * Default constructor.
+	 */
+	public CalendarFutureEventQueue()
+	{
+		clear();
+	}
+
+	@Override
+	public void add(SimEvent event, long sequenceNumber)
+	{
+		insert(new Entry(event, sequenceNumber, getVirtualBucket(event.getEventTime())));
+		size++;
+		if (size > 2 * buckets.length) resize(2 * buckets.length);
+		else endOperation();
+	}
+
+	@Override
+	public void clear()
+	{
+		buckets = new Entry[MIN_NUMBER_OF_BUCKETS];
+		bucketMask = MIN_NUMBER_OF_BUCKETS - 1;
+		bucketWidth = 1;
+		currentVirtualBucket = 0;
+		size = 0;
+		stepsInWindow = 0;
+		operationsInWindow = 0;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public SimEvent peek()
+	{
+		final Entry first = findFirst();
+		return first == null ? null : first.event;
+	}
+
+	@Override
+	public SimEvent poll()
+	{
+		final Entry first = findFirst();
+		if (first == null) return null;
+		final int bucket = (int) (first.virtualBucket & bucketMask);
+		buckets[bucket] = first.next;
+		size--;
+		if (size < buckets.length / 2 && buckets.length > MIN_NUMBER_OF_BUCKETS) resize(buckets.length / 2);
+		else endOperation();
+		return first.event;
+	}
+
+	@Override
+	public boolean remove(SimEvent event)
+	{
+		final int bucket = (int) (getVirtualBucket(event.getEventTime()) & bucketMask);
+		Entry previous = null;
+		for (Entry entry = buckets[bucket]; entry != null; previous = entry, entry = entry.next)
+		{
+			if (entry.event != event) continue;
+			if (previous == null) buckets[bucket] = entry.next;
+			else previous.next = entry.next;
+			size--;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public List<SimEvent> toSortedList()
+	{
+		final Entry[] entries = getAllEntries();
+		Arrays.sort(entries);
+		final List<SimEvent> res = new ArrayList<SimEvent>(entries.length);
+		for (Entry entry : entries) res.add(entry.event);
+		return res;
+	}
+
+	/* Returns the first entry, leaving the current bucket pointing to it. All the entries are in virtual buckets
+	 * equal or after the current one, so the first entry found in the current virtual bucket is the first one
+	 * overall. If no entry is found in a whole year (one round over the buckets), a direct search is made */
+	private Entry findFirst()
+	{
+		if (size == 0) return null;
+		for (int cont = 0; cont < buckets.length; cont++)
+		{
+			final Entry head = buckets[(int) (currentVirtualBucket & bucketMask)];
+			if (head != null && head.virtualBucket <= currentVirtualBucket) return head;
+			currentVirtualBucket++;
+			stepsInWindow++;
+		}
+		Entry first = null;
+		for (Entry head : buckets)
+			if (head != null && (first == null || head.compareTo(first) < 0)) first = head;
+		currentVirtualBucket = first.virtualBucket;
+		return first;
+	}
+
+	private void insert(Entry newEntry)
+	{
+		if (newEntry.virtualBucket < currentVirtualBucket) currentVirtualBucket = newEntry.virtualBucket;
+		final int bucket = (int) (newEntry.virtualBucket & bucketMask);
+		Entry previous = null;
+		Entry entry = buckets[bucket];
+		while (entry != null && entry.compareTo(newEntry) <= 0)
+		{
+			previous = entry;
+			entry = entry.next;
+			stepsInWindow++;
+		}
+		newEntry.next = entry;
+		if (previous == null) buckets[bucket] = newEntry;
+		else previous.next = newEntry;
+	}
+
+	/* Every time the number of operations equals the number of buckets, checks the average number of steps
+	 * (entries traversed in the insertions, and empty buckets traversed in the extractions) per operation.
+	 * If it is too high, the bucket width is recomputed */
+	private void endOperation()
+	{
+		if (++operationsInWindow < buckets.length) return;
+		final boolean recomputeWidth = stepsInWindow > MAX_AVERAGE_STEPS_PER_OPERATION * (long) operationsInWindow;
+		stepsInWindow = 0;
+		operationsInWindow = 0;
+		if (recomputeWidth) resize(buckets.length);
+	}
+
+	private long getVirtualBucket(double eventTime)
+	{
+		return (long) Math.floor(eventTime / bucketWidth);
+	}
+
+	private Entry[] getAllEntries()
+	{
+		final Entry[] entries = new Entry[size];
+		int cont = 0;
+		for (Entry head : buckets)
+			for (Entry entry = head; entry != null; entry = entry.next)
+				entries[cont++] = entry;
+		return entries;
+	}
+
+	/* Rebuilds the calendar with the given number of buckets. The new bucket width is three times the average
+	 * separation between the first events, after discarding the separations larger than twice the average */
+	private void resize(int newNumberOfBuckets)
+	{
+		final Entry[] entries = getAllEntries();
+		final int numSamples = Math.min(NUMBER_OF_SAMPLES_FOR_WIDTH, entries.length);
+		if (numSamples > 1)
+		{
+			final List<Entry> samples = new ArrayList<Entry>(numSamples + 1);
+			for (Entry entry : entries)
+			{
+				if (samples.size() == numSamples && entry.compareTo(samples.get(numSamples - 1)) >= 0) continue;
+				int pos = Collections.binarySearch(samples, entry);
+				samples.add(pos < 0 ? -pos - 1 : pos, entry);
+				if (samples.size() > numSamples) samples.remove(numSamples);
+			}
+			final double totalSeparation = samples.get(numSamples - 1).event.getEventTime() - samples.get(0).event.getEventTime();
+			final double averageSeparation = totalSeparation / (numSamples - 1);
+			double sumSeparations = 0;
+			int numSeparations = 0;
+			for (int cont = 1; cont < numSamples; cont++)
+			{
+				final double separation = samples.get(cont).event.getEventTime() - samples.get(cont - 1).event.getEventTime();
+				if (separation > 2 * averageSeparation) continue;
+				sumSeparations += separation;
+				numSeparations++;
+			}
+			final double newWidth = numSeparations == 0 ? 0 : 3 * sumSeparations / numSeparations;
+			if (newWidth > 0 && !Double.isInfinite(newWidth)) bucketWidth = newWidth;
+		}
+
+		buckets = new Entry[newNumberOfBuckets];
+		bucketMask = newNumberOfBuckets - 1;
+		currentVirtualBucket = Long.MAX_VALUE;
+		for (Entry entry : entries)
+		{
+			entry.virtualBucket = getVirtualBucket(entry.event.getEventTime());
+			entry.next = null;
+			insert(entry);
+		}
+		if (entries.length == 0) currentVirtualBucket = 0;
+		stepsInWindow = 0;
+		operationsInWindow = 0;
+	}
+
+	private static final class Entry implements Comparable<Entry>
+	{
+		private final SimEvent event;
+		private final long sequenceNumber;
+		private long virtualBucket;
+		private Entry next;
+
+		private Entry(SimEvent event, long sequenceNumber, long virtualBucket)
+		{
+			this.event = event;
+			this.sequenceNumber = sequenceNumber;
+			this.virtualBucket = virtualBucket;
+		}
+
+		@Override
+		public int compareTo(Entry o)
+		{
+			return FutureEventList.compare(event, sequenceNumber, o.event, o.sequenceNumber);
+		}
+	}
+}
@@ -23,7 +23,8 @@ import com.net2plan.interfaces.simulation.SimEvent;
 import com.net2plan.utils.StringUtils;
 
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.List;
 import java.util.PriorityQueue;
 
 /**
@@ -37,33 +38,102 @@ import java.util.PriorityQueue;
  * <li>3. Insertion order (first in, first out)</li>
  * </ul>
  *
+ * <p>The pending events are stored in a {@link com.net2plan.internal.sim.IFutureEventQueue IFutureEventQueue},
+ * whose implementation is selected with {@link #setImplementation(Implementation) setImplementation()}: a binary
+ * heap (default) or a calendar queue.</p>
+ *
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  * @since 0.2.0
  */
 public final class FutureEventList
 {
-	private final PriorityQueue<SimEvent> futureEventList;
+	/**
+	 * Available implementations of the future event list.
+	 *
+	 * @since 0.6.6
+	 */
+	public enum Implementation
+	{
+		/**
+		 * Binary heap: O(log n) per insertion and extraction.
+		 *
+		 * @since 0.6.6
+		 */
+		HEAP,
+
+		/**
+		 * Calendar queue: amortized O(1) per insertion and extraction. Recommended
+		 * for simulations with a large number of pending events.
+		 *
+		 * @since 0.6.6
+		 */
+		CALENDAR;
+
+		/**
+		 * Returns the implementation from its name (case insensitive), as used in the simulation parameters.
+		 *
+		 * @param name Implementation name ("heap" or "calendar")
+		 * @return Implementation
+		 * @since 0.6.6
+		 */
+		public static Implementation fromName(String name)
+		{
+			for (Implementation implementation : values())
+				if (implementation.name().equalsIgnoreCase(name.trim())) return implementation;
+			throw new Net2PlanException("Unknown future event list implementation: " + name);
+		}
+	}
+
+	private IFutureEventQueue futureEventList;
+	private Implementation implementation;
 	private double currentTime;
 	private long eventsProcessed;
+	private long eventsAdded;
 
 	/**
-	 * Default constructor.
+	 * Default constructor. The binary heap implementation is used.
 	 *
 	 * @since 0.2.0
 	 */
 	public FutureEventList()
 	{
-		futureEventList = new PriorityQueue<SimEvent>();
+		this(Implementation.HEAP);
+	}
+
+	/**
+	 * Constructor that allows to choose the implementation of the future event list.
+	 *
+	 * @param implementation Implementation of the future event list
+	 * @since 0.6.6
+	 */
+	public FutureEventList(Implementation implementation)
+	{
+		setImplementation(implementation);
 		reset();
 	}
-	
+
+	/**
+	 * Compares two events according to the order of the future event list: time, then priority, then insertion order.
+	 *
+	 * @param e1 First event
+	 * @param sequenceNumber1 Insertion sequence number of the first event
+	 * @param e2 Second event
+	 * @param sequenceNumber2 Insertion sequence number of the second event
+	 * @return A negative integer, zero, or a positive integer as the first event goes before, at the same position, or after the second one
+	 */
+	static int compare(SimEvent e1, long sequenceNumber1, SimEvent e2, long sequenceNumber2)
+	{
+		final int compareTimeAndPriority = e1.compareTo(e2);
+		if (compareTimeAndPriority != 0) return compareTimeAndPriority;
+		return Long.compare(sequenceNumber1, sequenceNumber2);
+	}
+
 	@Override
 	public String toString()
 	{
 		StringBuilder out = new StringBuilder();
 		
-		Iterator<SimEvent> it = futureEventList.iterator();
-		while(it.hasNext()) out.append(it.next());
+		for (SimEvent event : futureEventList.toSortedList()) out.append(event);
 		
 		return out.toString();
 	}
@@ -90,7 +160,7 @@ public final class FutureEventList
 			throw new Net2PlanException(String.format("Event cannot be scheduled before the current simulation time (sim. time = %s, event time = %s)", StringUtils.secondsToYearsDaysHoursMinutesSeconds(currentTime), StringUtils.secondsToYearsDaysHoursMinutesSeconds(event.getEventTime())));
 		}
 
-		futureEventList.add(event);
+		futureEventList.add(event, eventsAdded++);
 	}
 
 	/**
@@ -186,17 +256,46 @@ public final class FutureEventList
 	}
 
 	/**
-	 * <p>Returns the whole future event list.</p>
+	 * Returns the implementation of the future event list.
 	 *
-	 * <p><b>Important</b>: It is the original future event list, changes by user
-	 * are not checked, so it is discouraged at all.</p>
+	 * @return Implementation of the future event list
+	 * @since 0.6.6
+	 */
+	public Implementation getImplementation()
+	{
+		return implementation;
+	}
+
+	/**
+	 * <p>Returns the pending events in the future event list, in the order in which they will be processed.</p>
+	 *
+	 * <p><b>Important</b>: It is a read-only copy, changes in the future event list are not reflected in it.</p>
+	 *
+	 * @return Pending events
+	 * @since 0.6.6
+	 */
+	public List<SimEvent> getPendingEventList()
+	{
+		return Collections.unmodifiableList(futureEventList.toSortedList());
+	}
+
+	/**
+	 * <p>Returns the pending events in the future event list, as a priority queue ordered by time and priority.</p>
 	 *
-	 * @return Future event list
+	 * <p><b>Important</b>: Since 0.6.6 it is a copy, changes in the returned queue are not reflected in the future event list,
+	 * and vice versa. Events with the same time and priority are not guaranteed to be polled in insertion order.</p>
+	 *
+	 * @return Pending events
 	 * @since 0.2.0
+	 * @deprecated Use {@link #getPendingEventList()} instead, which returns the events in the order in which they will be processed
 	 */
+	@Deprecated
 	public PriorityQueue<SimEvent> getPendingEvents()
 	{
-		return futureEventList;
+		final List<SimEvent> pendingEvents = futureEventList.toSortedList();
+		final PriorityQueue<SimEvent> res = new PriorityQueue<SimEvent>(Math.max(1, pendingEvents.size()));
+		res.addAll(pendingEvents);
+		return res;
 	}
 
 	/**
@@ -230,6 +329,29 @@ public final class FutureEventList
 	{
 		currentTime = 0;
 		eventsProcessed = 0;
+		eventsAdded = 0;
 		clear();
 	}
+
+	/**
+	 * <p>Sets the implementation of the future event list.</p>
+	 *
+	 * <p><b>Important</b>: This method only can be executed when there are no pending events.</p>
+	 *
+	 * @param implementation Implementation of the future event list
+	 * @since 0.6.6
+	 */
+	public void setImplementation(Implementation implementation)
+	{
+		if (futureEventList != null && !futureEventList.isEmpty()) throw new Net2PlanException("The implementation of the future event list cannot be changed when there are pending events");
+		if (implementation == null) throw new Net2PlanException("The implementation of the future event list cannot be null");
+
+		switch (implementation)
+		{
+			case HEAP: futureEventList = new HeapFutureEventQueue(); break;
+			case CALENDAR: futureEventList = new CalendarFutureEventQueue(); break;
+			default: throw new RuntimeException("Bad");
+		}
+		this.implementation = implementation;
+	}
 }
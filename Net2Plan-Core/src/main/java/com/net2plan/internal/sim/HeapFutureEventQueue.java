@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+/**
+ * <p>Future event queue based on an array-backed binary heap. Insertions and extractions
+ * take O(log n) time, where n is the number of pending events.</p>
+ *
+ * @since 0.6.6
+ */
+public final class HeapFutureEventQueue implements IFutureEventQueue
+{
+	private SimEvent[] events;
+	private long[] sequenceNumbers;
+	private int size;
+
+	/**
+	 * Default constructor.
+	 */
+	public HeapFutureEventQueue()
+	{
+		events = new SimEvent[16];
+		sequenceNumbers = new long[16];
+		size = 0;
+	}
+
+	@Override
+	public void add(SimEvent event, long sequenceNumber)
+	{
+		if (size == events.length)
+		{
+			events = Arrays.copyOf(events, 2 * size);
+			sequenceNumbers = Arrays.copyOf(sequenceNumbers, 2 * size);
+		}
+		siftUp(size++, event, sequenceNumber);
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(events, 0, size, null);
+		size = 0;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public SimEvent peek()
+	{
+		return size == 0 ? null : events[0];
+	}
+
+	@Override
+	public SimEvent poll()
+	{
+		if (size == 0) return null;
+		final SimEvent first = events[0];
+		removeAt(0);
+		return first;
+	}
+
+	@Override
+	public boolean remove(SimEvent event)
+	{
+		for (int pos = 0; pos < size; pos++)
+		{
+			if (events[pos] == event)
+			{
+				removeAt(pos);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public List<SimEvent> toSortedList()
+	{
+		final HeapFutureEventQueue copy = new HeapFutureEventQueue();
+		copy.events = Arrays.copyOf(events, Math.max(1, size));
+		copy.sequenceNumbers = Arrays.copyOf(sequenceNumbers, Math.max(1, size));
+		copy.size = size;
+		final List<SimEvent> res = new ArrayList<SimEvent>(size);
+		while (!copy.isEmpty()) res.add(copy.poll());
+		return res;
+	}
+
+	private void removeAt(int pos)
+	{
+		size--;
+		final SimEvent lastEvent = events[size];
+		final long lastSequenceNumber = sequenceNumbers[size];
+		events[size] = null;
+		if (pos == size) return;
+		siftDown(pos, lastEvent, lastSequenceNumber);
+		if (events[pos] == lastEvent) siftUp(pos, lastEvent, lastSequenceNumber);
+	}
+
+	private void siftUp(int pos, SimEvent event, long sequenceNumber)
+	{
+		while (pos > 0)
+		{
+			final int parent = (pos - 1) >>> 1;
+			if (FutureEventList.compare(event, sequenceNumber, events[parent], sequenceNumbers[parent]) >= 0) break;
+			events[pos] = events[parent];
+			sequenceNumbers[pos] = sequenceNumbers[parent];
+			pos = parent;
+		}
+		events[pos] = event;
+		sequenceNumbers[pos] = sequenceNumber;
+	}
+
+	private void siftDown(int pos, SimEvent event, long sequenceNumber)
+	{
+		final int half = size >>> 1;
+		while (pos < half)
+		{
+			int child = 2 * pos + 1;
+			final int right = child + 1;
+			if (right < size && FutureEventList.compare(events[right], sequenceNumbers[right], events[child], sequenceNumbers[child]) < 0) child = right;
+			if (FutureEventList.compare(event, sequenceNumber, events[child], sequenceNumbers[child]) <= 0) break;
+			events[pos] = events[child];
+			sequenceNumbers[pos] = sequenceNumbers[child];
+			pos = child;
+		}
+		events[pos] = event;
+		sequenceNumbers[pos] = sequenceNumber;
+	}
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import java.util.List;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+/**
+ * <p>Contract that must be fulfilled by the data structures storing the pending events of the
+ * {@link com.net2plan.internal.sim.FutureEventList FutureEventList}.</p>
+ *
+ * <p>Events are returned in the following order:</p>
+ * <ul>
+ * <li>1. Event time (the lower value, the first event), if equal</li>
+ * <li>2. Event priority (the higher value, the higher priority), if equal</li>
+ * <li>3. Insertion sequence number (the lower value, the first event)</li>
+ * </ul>
+ *
+ * @since 0.6.6
+ */
+public interface IFutureEventQueue
+{
+	/**
+	 * Adds an event to the queue.
+	 *
+	 * @param event Event to be added
+	 * @param sequenceNumber Insertion sequence number, used to break ties between events with the same time and priority
+	 */
+	public void add(SimEvent event, long sequenceNumber);
+
+	/**
+	 * Removes all the events from the queue.
+	 */
+	public void clear();
+
+	/**
+	 * Returns {@code true} if the queue has no events.
+	 *
+	 * @return see above
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Returns the first event in the queue, without removing it.
+	 *
+	 * @return The first event (or null, if the queue is empty)
+	 */
+	public SimEvent peek();
+
+	/**
+	 * Removes and returns the first event in the queue.
+	 *
+	 * @return The first event (or null, if the queue is empty)
+	 */
+	public SimEvent poll();
+
+	/**
+	 * Removes the given event from the queue, if present.
+	 *
+	 * @param event Event to be removed
+	 * @return {@code true} if the event was in the queue
+	 */
+	public boolean remove(SimEvent event);
+
+	/**
+	 * Returns the number of events in the queue.
+	 *
+	 * @return see above
+	 */
+	public int size();
+
+	/**
+	 * Returns a new list with the events in the queue, in the order in which they would be returned.
+	 *
+	 * @return see above
+	 */
+	public List<SimEvent> toSortedList();
+}
@@ -21,6 +21,7 @@ package com.net2plan.internal.sim;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.simulation.SimEvent;
 import com.net2plan.internal.Constants.UserInterface;
+import com.net2plan.internal.Instrumentation;
 import com.net2plan.internal.SystemUtils;
 
 /**
@@ -182,6 +183,7 @@ public final class SimCore implements Runnable
 					long end = System.nanoTime();
 
 					cpuTime += ((double) (end - start)) / 1e9;
+					Instrumentation.record(Instrumentation.Timer.SIMULATION_EVENT_DISPATCH, end - start);
 
 					if (cpuTime - timeSinceLastRefresh >= refreshTimeInSeconds)
 					{
@@ -317,6 +319,21 @@ public final class SimCore implements Runnable
 		setSimulationState(SimState.NOT_STARTED);
 	}
 	
+	/**
+	 * <p>Sets the implementation of the future event list.</p>
+	 *
+	 * <p><b>Important</b>: This method only can be executed before the simulation starts.</p>
+	 * 
+	 * @param implementation Implementation of the future event list
+	 * @since 0.6.6
+	 */
+	public void setFutureEventListImplementation(FutureEventList.Implementation implementation)
+	{
+		checkSimulationNotStartedYet();
+
+		futureEventList.setImplementation(implementation);
+	}
+
 	/**
 	 * <p>Sets the time to refresh the simulation log.</p>
 	 *
@@ -21,12 +21,18 @@ package com.net2plan.internal.sim;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.jom.JOMException;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
@@ -189,6 +195,9 @@ public class SimKernel implements IEventCallback
 		if (!simulationParameters.containsKey("simTime")) throw new Net2PlanException("'simTime' parameter is not configured");
 		double simTime = Double.parseDouble(simulationParameters.get("simTime"));
 		simCore.setTotalSimulationTime(simTime);
+
+		String futureEventList = simulationParameters.get("futureEventList");
+		simCore.setFutureEventListImplementation(futureEventList == null ? FutureEventList.Implementation.HEAP : FutureEventList.Implementation.fromName(futureEventList));
 		
 		if (!getEventGeneratorClass().isAssignableFrom(eventGenerator.getClass())) throw new RuntimeException("Bad - Event generator is not an instance of " + getEventGeneratorClass().getName());
 		if (!getEventProcessorClass().isAssignableFrom(eventProcessor.getClass())) throw new RuntimeException("Bad - Event processor is not an instance of " + getEventProcessorClass().getName());
@@ -336,6 +345,7 @@ public class SimKernel implements IEventCallback
 		parameters.add(Triple.of("transitoryEvents", "-1", "Number of events for transitory period (-1 means no transitory period). In case that 'transitoryTime' and 'transitoryEvents' are specified, the transitory period will finish when one of the previous values is reached"));
 		parameters.add(Triple.of("simTime", "-1", "Total simulation time (in seconds, including transitory period) (-1 means no limit). In case that 'simTime' and 'simEvents' are specified, the transitory period will finish when one of the previous values is reached"));
 		parameters.add(Triple.of("transitoryTime", "-1", "Transitory time (in seconds) (-1 means no transitory period). In case that 'transitoryTime' and 'transitoryEvents' are specified, the transitory period will finish when one of the previous values is reached"));
+		parameters.add(Triple.of("futureEventList", "#select# heap calendar", "Implementation of the future event list: a binary heap ('heap'), or a calendar queue ('calendar'), faster for simulations with a large number of pending events"));
 
 		return parameters;
 	}
@@ -433,6 +443,7 @@ public class SimKernel implements IEventCallback
 		((ISimExternal) eventGenerator).initialize(currentNetPlan, eventGeneratorParameters, simulationParameters, net2planParameters);
 		((ISimExternal) eventProcessor).initialize(currentNetPlan, eventProcessorParameters, simulationParameters, net2planParameters);
 		//if (!disableStatistics) stats = new SimStats(initialNetPlan, currentNetPlan.unmodifiableView(), simulationParameters, net2planParameters);
+		if (stats != null) stats.detach();
 		if (!disableStatistics) stats = new SimStats(currentNetPlan, simulationParameters, net2planParameters);
 	}
 
@@ -460,6 +471,7 @@ public class SimKernel implements IEventCallback
 		simCore.reset();
 		initializeNetState();
 		lastReason = null;
+		if (stats != null) stats.detach();
 		stats = null;
 	}
 
@@ -528,6 +540,134 @@ public class SimKernel implements IEventCallback
 		return Pair.of(simKernel.getCurrentNetPlan(), simKernel.getSimulationReport());
 	}
 	
+	/**
+	 * <p>Runs several independent replications of the same simulation in parallel, and aggregates their statistics
+	 * (see {@link com.net2plan.internal.sim.SimReplicationStats SimReplicationStats}). Each replication runs in its own
+	 * simulation kernel, over its own copy of the input network design, and with its own instances of the event generator
+	 * and processor (created using the public no-argument constructor of their classes).</p>
+	 *
+	 * <p>Replications are made different by their random seeds: if the event generator or processor have a parameter
+	 * named as {@code seedParameterName}, replication {@code i} (starting in zero) uses the seed configured for the
+	 * simulation plus {@code i}. A seed equal to -1 (random seed) is kept as is.</p>
+	 *
+	 * @param netPlan Input network design (not modified)
+	 * @param eventGenerator Event generator (only its class is used)
+	 * @param customEventGeneratorParameters Custom event generator parameters (null means empty)
+	 * @param eventProcessor Event processor (only its class is used)
+	 * @param customEventProcessorParameters Custom event processor parameters (null means empty)
+	 * @param customSimulatorParameters Custom simulator parameters (null means empty)
+	 * @param net2planParameters Net2Plan parameters
+	 * @param numReplications Number of replications
+	 * @param numThreads Maximum number of replications running at the same time
+	 * @param seedParameterName Name of the parameter with the random seed in the event generator and/or processor
+	 * @param confidenceLevel Confidence level of the intervals in the aggregated results (e.g. 0.95)
+	 * @return Aggregated statistics, and simulation report
+	 * @since 0.6.6
+	 */
+	public static Pair<SimReplicationStats, String> runReplications(final NetPlan netPlan, IExternal eventGenerator, Properties customEventGeneratorParameters, IExternal eventProcessor, Properties customEventProcessorParameters, Properties customSimulatorParameters, final Map<String, String> net2planParameters, int numReplications, int numThreads, final String seedParameterName, double confidenceLevel)
+	{
+		if (numReplications < 1) throw new Net2PlanException("The number of replications must be greater than zero");
+		if (numThreads < 1) throw new Net2PlanException("The number of threads must be greater than zero");
+
+		List<Triple<String, String, String>> defaultEventGeneratorParameters = null;
+		try { defaultEventGeneratorParameters = eventGenerator.getParameters(); }
+		catch(UnsupportedOperationException ex) { }
+
+		List<Triple<String, String, String>> defaultEventProcessorParameters = null;
+		try { defaultEventProcessorParameters = eventProcessor.getParameters(); }
+		catch(UnsupportedOperationException ex) { }
+
+		final Map<String, String> eventGeneratorParameters = CommandLineParser.getParameters(defaultEventGeneratorParameters, customEventGeneratorParameters);
+		final Map<String, String> eventProcessorParameters = CommandLineParser.getParameters(defaultEventProcessorParameters, customEventProcessorParameters);
+		final Map<String, String> simulationParameters = CommandLineParser.getParameters(new SimKernel().getSimulationParameters(), customSimulatorParameters);
+		if (Boolean.parseBoolean(simulationParameters.get("disableStatistics"))) throw new Net2PlanException("Statistics cannot be disabled when running replications");
+		if (!eventGeneratorParameters.containsKey(seedParameterName) && !eventProcessorParameters.containsKey(seedParameterName))
+			System.out.println(String.format("Warning: parameter '%s' not found in the event generator or the event processor. All the replications use the same random seeds", seedParameterName));
+
+		final Class<? extends IExternal> eventGeneratorClass = eventGenerator.getClass();
+		final Class<? extends IExternal> eventProcessorClass = eventProcessor.getClass();
+		final int numThreadsUsed = Math.min(numThreads, numReplications);
+		System.out.println(String.format("Running %d replications in %d threads...", numReplications, numThreadsUsed));
+
+		long init = System.nanoTime();
+		SimReplicationStats replicationStats = new SimReplicationStats(confidenceLevel);
+		double totalCpuTime = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(numThreadsUsed);
+		try
+		{
+			List<Future<Pair<Map<String, Double>, Double>>> replications = new ArrayList<Future<Pair<Map<String, Double>, Double>>>();
+			for (int replication = 0; replication < numReplications; replication++)
+			{
+				final int thisReplication = replication;
+				replications.add(executor.submit(new Callable<Pair<Map<String, Double>, Double>>()
+				{
+					@Override
+					public Pair<Map<String, Double>, Double> call() throws Exception
+					{
+						NetPlan replicationNetPlan;
+						synchronized (netPlan) { replicationNetPlan = netPlan.copy(); }
+
+						SimKernel simKernel = new SimKernel();
+						simKernel.setGUIListener(new ReplicationListener());
+						simKernel.setNetPlan(replicationNetPlan);
+						simKernel.configureSimulation(simulationParameters, net2planParameters,
+								eventGeneratorClass.getConstructor().newInstance(), getReplicationParameters(eventGeneratorParameters, seedParameterName, thisReplication),
+								eventProcessorClass.getConstructor().newInstance(), getReplicationParameters(eventProcessorParameters, seedParameterName, thisReplication));
+						simKernel.initialize();
+						simKernel.getSimCore().setSimulationState(SimCore.SimState.RUNNING);
+						simKernel.getSimCore().run();
+						if (simKernel.lastReason != null && !(simKernel.lastReason instanceof EndSimulationException)) throw new ReplicationException(simKernel.lastReason);
+
+						double simTime = simKernel.getSimCore().getFutureEventList().getCurrentSimulationTime();
+						return Pair.of(simKernel.stats.getSummary(simTime), simKernel.getSimCore().getCPUTime());
+					}
+				}));
+			}
+
+			for (Future<Pair<Map<String, Double>, Double>> replication : replications)
+			{
+				Pair<Map<String, Double>, Double> result = replication.get();
+				replicationStats.addReplication(result.getFirst());
+				totalCpuTime += result.getSecond();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new Net2PlanException("Simulation interrupted");
+		}
+		catch (ExecutionException e)
+		{
+			Throwable reason = e.getCause() instanceof ReplicationException ? e.getCause().getCause() : e.getCause();
+			if (reason instanceof Net2PlanException) throw (Net2PlanException) reason;
+			throw new RuntimeException(reason);
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		long end = System.nanoTime();
+
+		double totalSimTimeInSeconds = (end - init) / 1.0e9;
+		System.out.println(String.format("%n%nSimulation finished successfully in %s", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalSimTimeInSeconds)));
+
+		StringBuilder info = new StringBuilder();
+		info.append("<html><head><title>Simulation report</title></head>");
+		info.append("<body>");
+		info.append("<h1>Simulation information</h1>");
+		info.append("<center><table border='1'><tr><th>Parameter</th><th>Value</th></tr>");
+		info.append(String.format("<tr><td>Number of replications</td><td>%d</td></tr>", numReplications));
+		info.append(String.format("<tr><td>Number of threads</td><td>%d</td></tr>", numThreadsUsed));
+		info.append(String.format("<tr><td>Total running time</td><td>%s</td></tr>", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalSimTimeInSeconds)));
+		info.append(String.format("<tr><td>Average CPU time per replication</td><td>%s</td></tr>", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalCpuTime / numReplications)));
+		info.append("</table></center>");
+		info.append("<h1>General results</h1>");
+		info.append(replicationStats.getResults());
+		info.append("</body></html>");
+
+		return Pair.of(replicationStats, info.toString());
+	}
+
 	/**
 	 *
 	 * @param stateListener State listener
@@ -586,4 +726,36 @@ public class SimKernel implements IEventCallback
 
 		if (!disableStatistics) stats.computeNextState(event.getEventTime());
 	}
+
+	/* Returns a copy of the parameters of the event generator or processor for the given replication, with the seed increased in the replication number */
+	private static Map<String, String> getReplicationParameters(Map<String, String> parameters, String seedParameterName, int replication)
+	{
+		Map<String, String> replicationParameters = new LinkedHashMap<String, String>(parameters);
+		String seed = parameters.get(seedParameterName);
+		if (seed == null) return replicationParameters;
+
+		long baseSeed;
+		try { baseSeed = Long.parseLong(seed.trim()); }
+		catch (NumberFormatException e) { throw new Net2PlanException("Parameter '" + seedParameterName + "' is not a valid random seed: " + seed); }
+		if (baseSeed != -1) replicationParameters.put(seedParameterName, Long.toString(baseSeed + replication));
+		return replicationParameters;
+	}
+
+	/* Listener used in the replications, so that the progress of each simulation is not printed */
+	private static final class ReplicationListener implements IGUISimulationListener
+	{
+		@Override
+		public void refresh(boolean forceRefresh) { }
+
+		@Override
+		public void simulationStateChanged(SimCore.SimState simulationState, Throwable reason) { }
+	}
+
+	/* Wraps the reason why a replication stopped with an error */
+	private static final class ReplicationException extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		private ReplicationException(Throwable reason) { super(reason); }
+	}
 }
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.math3.distribution.TDistribution;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+
+/**
+ * <p>Aggregates the results of independent replications of the same simulation. For each result (see {@link SimStats#getSummary(double) getSummary}),
+ * the mean among the replications, its confidence interval (using the Student's t-distribution), and several percentiles are computed.</p>
+ *
+ * @since 0.6.6
+ */
+public class SimReplicationStats
+{
+	private final double confidenceLevel;
+	private final Map<String, DescriptiveStatistics> results;
+	private int numReplications;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param confidenceLevel Confidence level of the intervals (e.g. 0.95)
+	 */
+	public SimReplicationStats(double confidenceLevel)
+	{
+		if (confidenceLevel <= 0 || confidenceLevel >= 1) throw new Net2PlanException("The confidence level must be between 0 and 1");
+		this.confidenceLevel = confidenceLevel;
+		this.results = new LinkedHashMap<String, DescriptiveStatistics>();
+		this.numReplications = 0;
+	}
+
+	/**
+	 * Adds the results of one replication. Results not present in previous replications (e.g. layers created during the simulation) are added at the end.
+	 *
+	 * @param summary Results of the replication
+	 */
+	public void addReplication(Map<String, Double> summary)
+	{
+		for (Entry<String, Double> result : summary.entrySet())
+		{
+			DescriptiveStatistics stats = results.get(result.getKey());
+			if (stats == null) { stats = new DescriptiveStatistics(); results.put(result.getKey(), stats); }
+			stats.addValue(result.getValue());
+		}
+		numReplications++;
+	}
+
+	/**
+	 * Returns the confidence level of the intervals.
+	 *
+	 * @return see above
+	 */
+	public double getConfidenceLevel()
+	{
+		return confidenceLevel;
+	}
+
+	/**
+	 * Returns the number of replications added.
+	 *
+	 * @return see above
+	 */
+	public int getNumberOfReplications()
+	{
+		return numReplications;
+	}
+
+	/**
+	 * Returns the names of the results, in the order they were added.
+	 *
+	 * @return see above
+	 */
+	public List<String> getResultNames()
+	{
+		return new ArrayList<String>(results.keySet());
+	}
+
+	/**
+	 * Returns the mean value of a result among the replications.
+	 *
+	 * @param name Result name
+	 * @return see above
+	 */
+	public double getMean(String name)
+	{
+		return getStats(name).getMean();
+	}
+
+	/**
+	 * Returns the half-width of the confidence interval of the mean value of a result. If the result is available in less than two replications, {@code Double.NaN} is returned.
+	 *
+	 * @param name Result name
+	 * @return see above
+	 */
+	public double getConfidenceIntervalHalfWidth(String name)
+	{
+		DescriptiveStatistics stats = getStats(name);
+		long n = stats.getN();
+		if (n < 2) return Double.NaN;
+		double t = new TDistribution(n - 1).inverseCumulativeProbability(1 - (1 - confidenceLevel) / 2);
+		return t * stats.getStandardDeviation() / Math.sqrt(n);
+	}
+
+	/**
+	 * Returns a percentile of a result among the replications.
+	 *
+	 * @param name Result name
+	 * @param percentile Percentile (in the range (0, 100])
+	 * @return see above
+	 */
+	public double getPercentile(String name, double percentile)
+	{
+		return getStats(name).getPercentile(percentile);
+	}
+
+	/**
+	 * Returns a HTML {@code String} with the aggregated results.
+	 *
+	 * @return Aggregated results in HTML format
+	 */
+	public String getResults()
+	{
+		StringBuilder out = new StringBuilder();
+		out.append(String.format("<p>Results of %d replications. Confidence intervals of the mean at %.1f%% confidence level</p>", numReplications, 100 * confidenceLevel));
+		out.append("<center><table border='1'>");
+		out.append("<tr><th>Result</th><th>Replications</th><th>Mean</th><th>Confidence interval</th><th>Std. deviation</th><th>Minimum</th><th>Percentile 5</th><th>Median</th><th>Percentile 95</th><th>Maximum</th></tr>");
+		for (Entry<String, DescriptiveStatistics> result : results.entrySet())
+		{
+			String name = result.getKey();
+			DescriptiveStatistics stats = result.getValue();
+			double mean = stats.getMean();
+			double halfWidth = getConfidenceIntervalHalfWidth(name);
+			out.append("<tr>");
+			out.append(String.format("<td>%s</td><td>%d</td><td>%.6f</td>", name, stats.getN(), mean));
+			out.append(Double.isNaN(halfWidth) ? "<td>-</td>" : String.format("<td>[%.6f, %.6f]</td>", mean - halfWidth, mean + halfWidth));
+			out.append(String.format("<td>%.6f</td><td>%.6f</td><td>%.6f</td><td>%.6f</td><td>%.6f</td><td>%.6f</td>", stats.getN() < 2 ? 0 : stats.getStandardDeviation(), stats.getMin(), stats.getPercentile(5), stats.getPercentile(50), stats.getPercentile(95), stats.getMax()));
+			out.append("</tr>");
+		}
+		out.append("</table></center>");
+		return out.toString();
+	}
+
+	private DescriptiveStatistics getStats(String name)
+	{
+		DescriptiveStatistics stats = results.get(name);
+		if (stats == null) throw new Net2PlanException("Unknown result: " + name);
+		return stats;
+	}
+}
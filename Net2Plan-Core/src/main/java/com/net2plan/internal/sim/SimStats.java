@@ -1,7 +1,7 @@
 /*******************************************************************************
  * Copyright (c) 2017 Pablo Pavon Marino and others.
  * All rights reserved. This program and the accompanying materials
- * are made available under the terms of the 2-clause BSD License 
+ * are made available under the terms of the 2-clause BSD License
  * which accompanies this distribution, and is available at
  * https://opensource.org/licenses/BSD-2-Clause
  *
@@ -11,7 +11,7 @@
 
 
 
- 
+
 
 
 
@@ -21,7 +21,6 @@ package com.net2plan.internal.sim;
 import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.utils.HTMLUtils;
 import com.net2plan.utils.StringUtils;
-import org.apache.commons.lang3.mutable.MutableDouble;
 import org.codehaus.stax2.XMLOutputFactory2;
 import org.codehaus.stax2.XMLStreamWriter2;
 
@@ -29,61 +28,57 @@ import javax.xml.stream.XMLOutputFactory;
 import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.LongFunction;
 
 /**
  * Abstract class defining a template for statistics classes for simulations.
  *
+ * <p>Statistics are updated incrementally. This object is registered as a {@link com.net2plan.interfaces.networkDesign.INetPlanChangeListener listener}
+ * of the network state, so that after each event only the accumulators of the nodes, links and demands changed by the event are updated. The
+ * accumulators of the rest of the elements are brought up to date when the results are requested. The whole network is only traversed after events
+ * adding or removing layers, nodes, links or demands.</p>
+ *
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  * @since 0.2.3
  */
-public class SimStats
+public class SimStats implements INetPlanChangeListener
 {
+	/* Node metrics */
+	private final static int NODE_UP = 0, NODE_TOTALTIME = 1, NUMBER_OF_NODE_METRICS = 2;
+
+	/* Node metrics (per layer) */
+	private final static int NODE_INDEGREE = 0, NODE_OUTDEGREE = 1, NODE_INGRESSTRAFFIC = 2, NODE_EGRESSTRAFFIC = 3, NUMBER_OF_NODELAYER_METRICS = 4;
+
+	/* Link metrics */
+	private final static int LINK_LENGTHINKM = 0, LINK_CAPACITY = 1, LINK_OCCUPIEDCAPACITY = 2, LINK_UTILIZATION = 3, LINK_OVERSUBSCRIBEDCAPACITY = 4, LINK_OVERSUBSCRIBED = 5, LINK_UP = 6, LINK_TOTALTIME = 7, NUMBER_OF_LINK_METRICS = 8;
+
+	/* Demand metrics */
+	private final static int DEMAND_OFFEREDTRAFFIC = 0, DEMAND_CARRIEDTRAFFIC = 1, DEMAND_BLOCKEDTRAFFIC = 2, DEMAND_EXCESSCARRIEDTRAFFIC = 3, DEMAND_AVAILABILITYCLASSIC = 4, DEMAND_AVAILABILITYWEIGHTED = 5, DEMAND_EXCESSCARRIEDTRAFFIC_ACTIVE = 6, DEMAND_TOTALTIME = 7, NUMBER_OF_DEMAND_METRICS = 8;
+
 	/* Input and Net2Plan-wide parameters */
 	private final double precisionFactor;
-	
+
 	private final NetPlan netState;
 
 	private double lastEventTime, transitoryTime;
-	
-	private Set<Long> previousState_layerIds;
-	private Set<Long> previousState_nodeIds, previousState_nodeDownIds;
-	private Map<Long, Set<Long>> previousState_linkIds, previousState_linkDownIds, previousState_demandIds;
-	
+
+	/* If true, elements were added or removed since the last update, and the indexes of the statistics must be rebuilt */
+	private boolean structureChanged;
+
 	/* Network information */
+	private int previousState_numLayers, previousState_numNodes;
 	private double accum_avgNumLayers, accum_avgNumNodes;
 	private int maxNumLayers, maxNumNodes, minNumLayers, minNumNodes;
-	
-	/* Layer information */
-	private Map<Long, MutableDouble> accum_layerTotalTime, accum_avgNumLinks, accum_avgNumDemands, accum_avgTotalOfferedTraffic, maxTotalOfferedTraffic, minTotalOfferedTraffic, accum_avgTotalCarriedTraffic, maxTotalCarriedTraffic, minTotalCarriedTraffic, accum_avgTotalCapacity, maxTotalCapacity, minTotalCapacity, accum_avgCongestion, maxCongestion, minCongestion, accum_availabilityClassic, accum_availabilityWeighted, worstDemandAvailabilityClassic, worstDemandAvailabilityWeighted;
-	private Map<Long, Integer> maxNumLinks, minNumLinks, maxNumDemands, minNumDemands;
-	
+
 	/* Node information */
-	private Map<Long, MutableDouble> accum_nodeUpTime, accum_nodeTotalTime;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgNodeInDegree, accum_avgNodeOutDegree, accum_avgNodeIngressTraffic, accum_avgNodeEgressTraffic;
-	private Map<Long, Map<Long, Double>> previousState_nodeIngressTraffic, previousState_nodeEgressTraffic, maxNodeIngressTraffic, minNodeIngressTraffic, maxNodeEgressTraffic, minNodeEgressTraffic;
-	private Map<Long, Map<Long, Integer>> previousState_nodeInDegree, previousState_nodeOutDegree, maxNodeInDegree, maxNodeOutDegree, minNodeInDegree, minNodeOutDegree;
-	
-	/* Link information */
-	private Map<Long, Map<Long, Double>> previousState_linkLengthInKm, previousState_linkCapacity, previousState_linkOccupiedCapacity;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgLinkLengthInKm, minLinkLengthInKm, maxLinkLengthInKm;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgCapacity, minCapacity, maxCapacity;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgLinkOccupiedCapacity, minLinkOccupiedCapacity, maxLinkOccupiedCapacity;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgUtilization, minUtilization, maxUtilization;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgOversubscribedCapacity, minOversubscribedCapacity, maxOversubscribedCapacity;
-	private Map<Long, Map<Long, MutableDouble>> accum_linkOversubscribedTime, accum_linkUpTime, accum_linkTotalTime;
-	
-	/* Demand information */
-	private Map<Long, Map<Long, Double>> previousState_demandOfferedTraffic, previousState_demandCarriedTraffic;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgDemandOfferedTraffic, minDemandOfferedTraffic, maxDemandOfferedTraffic;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgDemandCarriedTraffic, minDemandCarriedTraffic, maxDemandCarriedTraffic;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgDemandBlockedTraffic, minDemandBlockedTraffic, maxDemandBlockedTraffic;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgExcessCarriedTraffic, minDemandExcessCarriedTraffic, maxDemandExcessCarriedTraffic;
-	private Map<Long, Map<Long, MutableDouble>> accum_demandAvailabilityClassic, accum_demandAvailabilityWeighted;
-	private Map<Long, Map<Long, MutableDouble>> excessDemandCarriedTrafficTime, demandTotalTime;
-	
+	private ElementStats nodeStats;
+
+	/* Layer, and per-layer node, link and demand information (indexed by layer index) */
+	private LayerStats[] layerStats;
+
 	/**
 	 * Default constructor.
-	 * 
+	 *
 	 * @param netState Reference to the current network state
 	 * @param simulationParameters A key-value map with simulation options
 	 * @param net2planParameters A key-value map with {@code Net2Plan}-wide configuration options
@@ -93,172 +88,50 @@ public class SimStats
 	{
 		this.netState = netState;
 		precisionFactor = Double.parseDouble(net2planParameters.get("precisionFactor"));
-		
+
 		reset(0);
+		netState.addChangeListener(this);
 	}
-	
-	private void checkAndCreateDemand(long layerId, long demandId)
+
+	/**
+	 * Stops receiving the changes in the network state. Statistics cannot be updated anymore, but results can still be retrieved.
+	 *
+	 * @since 0.6.6
+	 */
+	public void detach()
 	{
-		if (!accum_avgDemandOfferedTraffic.get(layerId).containsKey(demandId))
-		{
-			/* Initialize demand information */
-			accum_avgDemandOfferedTraffic.get(layerId).put(demandId, new MutableDouble());
-			minDemandOfferedTraffic.get(layerId).put(demandId, new MutableDouble(Double.MAX_VALUE));
-			maxDemandOfferedTraffic.get(layerId).put(demandId, new MutableDouble());
-			accum_avgDemandCarriedTraffic.get(layerId).put(demandId, new MutableDouble());
-			minDemandCarriedTraffic.get(layerId).put(demandId, new MutableDouble(Double.MAX_VALUE));
-			maxDemandCarriedTraffic.get(layerId).put(demandId, new MutableDouble());
-			accum_avgDemandBlockedTraffic.get(layerId).put(demandId, new MutableDouble());
-			minDemandBlockedTraffic.get(layerId).put(demandId, new MutableDouble(Double.MAX_VALUE));
-			maxDemandBlockedTraffic.get(layerId).put(demandId, new MutableDouble());
-			accum_avgExcessCarriedTraffic.get(layerId).put(demandId, new MutableDouble());
-			minDemandExcessCarriedTraffic.get(layerId).put(demandId, new MutableDouble(Double.MAX_VALUE));
-			maxDemandExcessCarriedTraffic.get(layerId).put(demandId, new MutableDouble());
-			accum_demandAvailabilityClassic.get(layerId).put(demandId, new MutableDouble());
-			accum_demandAvailabilityWeighted.get(layerId).put(demandId, new MutableDouble());
-			excessDemandCarriedTrafficTime.get(layerId).put(demandId, new MutableDouble());
-			demandTotalTime.get(layerId).put(demandId, new MutableDouble());
-		}
+		netState.removeChangeListener(this);
 	}
 
-	private void checkAndCreateLayer(long layerId)
+	@Override
+	public void linkChanged(Link link)
 	{
-		if (!accum_avgLinkLengthInKm.containsKey(layerId))
-		{
-			/* Initialize layer information */
-			accum_layerTotalTime.put(layerId, new MutableDouble());
-			accum_avgNumLinks.put(layerId, new MutableDouble());
-			accum_avgNumDemands.put(layerId, new MutableDouble());
-			accum_avgTotalOfferedTraffic.put(layerId, new MutableDouble());
-			maxTotalOfferedTraffic.put(layerId, new MutableDouble());
-			minTotalOfferedTraffic.put(layerId, new MutableDouble(Double.MAX_VALUE));
-			accum_avgTotalCarriedTraffic.put(layerId, new MutableDouble());
-			maxTotalCarriedTraffic.put(layerId, new MutableDouble());
-			minTotalCarriedTraffic.put(layerId, new MutableDouble(Double.MAX_VALUE));
-			accum_avgTotalCapacity.put(layerId, new MutableDouble());
-			maxTotalCapacity.put(layerId, new MutableDouble());
-			minTotalCapacity.put(layerId, new MutableDouble(Double.MAX_VALUE));
-			accum_avgCongestion.put(layerId, new MutableDouble());
-			maxCongestion.put(layerId, new MutableDouble());
-			minCongestion.put(layerId, new MutableDouble(Double.MAX_VALUE));
-			accum_availabilityClassic.put(layerId, new MutableDouble());
-			accum_availabilityWeighted.put(layerId, new MutableDouble());
-			worstDemandAvailabilityClassic.put(layerId, new MutableDouble(1));
-			worstDemandAvailabilityWeighted.put(layerId, new MutableDouble(1));
-			maxNumLinks.put(layerId, 0);
-			minNumLinks.put(layerId, Integer.MAX_VALUE);
-			maxNumDemands.put(layerId, 0);
-			minNumDemands.put(layerId, Integer.MAX_VALUE);
-
-			/* Initialize node information in this layer */
-			accum_avgNodeInDegree.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minNodeInDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			maxNodeInDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			accum_avgNodeOutDegree.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minNodeOutDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			maxNodeOutDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			accum_avgNodeIngressTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxNodeIngressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			minNodeIngressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			accum_avgNodeEgressTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxNodeEgressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			minNodeEgressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-
-			/* Initialize link information in this layer */
-			accum_avgLinkLengthInKm.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minLinkLengthInKm.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxLinkLengthInKm.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgLinkOccupiedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minLinkOccupiedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxLinkOccupiedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgUtilization.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minUtilization.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxUtilization.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgOversubscribedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minOversubscribedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxOversubscribedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_linkOversubscribedTime.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_linkUpTime.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_linkTotalTime.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-
-			/* Initialize demand information in this layer */
-			accum_avgDemandOfferedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minDemandOfferedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxDemandOfferedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgDemandCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minDemandCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxDemandCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgDemandBlockedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minDemandBlockedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxDemandBlockedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgExcessCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minDemandExcessCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxDemandExcessCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_demandAvailabilityClassic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_demandAvailabilityWeighted.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			excessDemandCarriedTrafficTime.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			demandTotalTime.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-		}
+		if (structureChanged) return;
+		final LayerStats layer = getLayerStats(link.getLayer());
+		if (layer == null || !layer.links.markChanged(link.getIndex(), link.getId())) structureChanged = true;
 	}
 
-	private void checkAndCreateLink(long layerId, long linkId)
+	@Override
+	public void demandChanged(Demand demand)
 	{
-		if (!accum_avgLinkLengthInKm.get(layerId).containsKey(linkId))
-		{
-			/* Initialize link information */
-			accum_avgLinkLengthInKm.get(layerId).put(linkId, new MutableDouble());
-			minLinkLengthInKm.get(layerId).put(linkId, new MutableDouble(Double.MAX_VALUE));
-			maxLinkLengthInKm.get(layerId).put(linkId, new MutableDouble());
-			accum_avgCapacity.get(layerId).put(linkId, new MutableDouble());
-			minCapacity.get(layerId).put(linkId, new MutableDouble(Double.MAX_VALUE));
-			maxCapacity.get(layerId).put(linkId, new MutableDouble());
-			accum_avgLinkOccupiedCapacity.get(layerId).put(linkId, new MutableDouble());
-			minLinkOccupiedCapacity.get(layerId).put(linkId, new MutableDouble(Double.MAX_VALUE));
-			maxLinkOccupiedCapacity.get(layerId).put(linkId, new MutableDouble());
-			accum_avgUtilization.get(layerId).put(linkId, new MutableDouble());
-			minUtilization.get(layerId).put(linkId, new MutableDouble(Double.MAX_VALUE));
-			maxUtilization.get(layerId).put(linkId, new MutableDouble());
-			accum_avgOversubscribedCapacity.get(layerId).put(linkId, new MutableDouble());
-			minOversubscribedCapacity.get(layerId).put(linkId, new MutableDouble(Double.MAX_VALUE));
-			maxOversubscribedCapacity.get(layerId).put(linkId, new MutableDouble());
-			accum_linkOversubscribedTime.get(layerId).put(linkId, new MutableDouble());
-			accum_linkUpTime.get(layerId).put(linkId, new MutableDouble());
-			accum_linkTotalTime.get(layerId).put(linkId, new MutableDouble());
-		}
+		if (structureChanged) return;
+		final LayerStats layer = getLayerStats(demand.getLayer());
+		if (layer == null || !layer.demands.markChanged(demand.getIndex(), demand.getId())) structureChanged = true;
 	}
-	
-	private void checkAndCreateNode(long nodeId)
+
+	@Override
+	public void nodeChanged(Node node)
 	{
-		if (!accum_nodeUpTime.containsKey(nodeId))
-		{
-			/* Initialize node information */
-			accum_nodeUpTime.put(nodeId, new MutableDouble());
-			accum_nodeTotalTime.put(nodeId, new MutableDouble());
-		}
+		if (structureChanged) return;
+		if (!nodeStats.markChanged(node.getIndex(), node.getId())) structureChanged = true;
 	}
-	
-	private void checkAndCreateNode(long layerId, long nodeId)
+
+	@Override
+	public void structureChanged()
 	{
-		if (!accum_avgNodeInDegree.get(layerId).containsKey(nodeId))
-		{
-			accum_avgNodeInDegree.get(layerId).put(nodeId, new MutableDouble());
-			minNodeInDegree.get(layerId).put(nodeId, Integer.MAX_VALUE);
-			maxNodeInDegree.get(layerId).put(nodeId, 0);
-			accum_avgNodeOutDegree.get(layerId).put(nodeId, new MutableDouble());
-			minNodeOutDegree.get(layerId).put(nodeId, Integer.MAX_VALUE);
-			maxNodeOutDegree.get(layerId).put(nodeId, 0);
-			accum_avgNodeIngressTraffic.get(layerId).put(nodeId, new MutableDouble());
-			maxNodeIngressTraffic.get(layerId).put(nodeId, 0.0);
-			minNodeIngressTraffic.get(layerId).put(nodeId, Double.MAX_VALUE);
-			accum_avgNodeEgressTraffic.get(layerId).put(nodeId, new MutableDouble());
-			maxNodeEgressTraffic.get(layerId).put(nodeId, 0.0);
-			minNodeEgressTraffic.get(layerId).put(nodeId, Double.MAX_VALUE);
-		}
+		structureChanged = true;
 	}
-	
+
 	/**
 	 * Computes statistics for the current simulation time.
 	 *
@@ -271,413 +144,46 @@ public class SimStats
 		if (simTime > lastEventTime)
 		{
 			/*
-			 * Update metrics:
+			 * Update network and layer metrics:
 			 * - Cumulative metrics: accum += previous * timeInterval
 			 * - Max/min metrics: metric = max/min(metric, previous)
+			 *
+			 * Node, link and demand metrics are updated in the same way, but only when they change
 			 */
 			double timeInterval = simTime - lastEventTime;
 
 			/* Network metrics */
-			int numLayers = previousState_layerIds.size();
+			int numLayers = previousState_numLayers;
 			accum_avgNumLayers += numLayers * timeInterval;
 			minNumLayers = Math.min(numLayers, minNumLayers);
 			maxNumLayers = Math.max(numLayers, maxNumLayers);
 
-			int numNodes = previousState_nodeIds.size();
+			int numNodes = previousState_numNodes;
 			accum_avgNumNodes += numNodes * timeInterval;
 			minNumNodes = Math.min(numNodes, minNumNodes);
 			maxNumNodes = Math.max(numNodes, maxNumNodes);
-			
-			for(long nodeId : previousState_nodeIds)
-			{
-				checkAndCreateNode(nodeId);
-
-				if (netState.getNodeFromId (nodeId) != null)
-				{
-					if (!previousState_nodeDownIds.contains(nodeId)) accum_nodeUpTime.get(nodeId).add(timeInterval);
-					accum_nodeTotalTime.get(nodeId).add(timeInterval);
-				}
-				else
-				{
-					accum_nodeUpTime.remove(nodeId);
-					accum_nodeTotalTime.remove(nodeId);
-				}
-			}
 
-			for(long layerId : previousState_layerIds)
-			{
-				checkAndCreateLayer(layerId);
-
-				if (netState.getNetworkLayerFromId (layerId) != null)
-				{
-					accum_layerTotalTime.get(layerId).add(timeInterval);
-
-					for(long nodeId : previousState_nodeIds)
-					{
-						checkAndCreateNode(layerId, nodeId);
-
-						if (netState.getNodeFromId (nodeId) != null)
-						{
-							int nodeInDegree = previousState_nodeInDegree.get(layerId).get(nodeId);
-							accum_avgNodeInDegree.get(layerId).get(nodeId).add(nodeInDegree * timeInterval);
-							minNodeInDegree.get(layerId).put(nodeId, Math.min(nodeInDegree, minNodeInDegree.get(layerId).get(nodeId)));
-							maxNodeInDegree.get(layerId).put(nodeId, Math.max(nodeInDegree, maxNodeInDegree.get(layerId).get(nodeId)));
-
-							int nodeOutDegree = previousState_nodeOutDegree.get(layerId).get(nodeId);
-							accum_avgNodeOutDegree.get(layerId).get(nodeId).add(nodeOutDegree * timeInterval);
-							minNodeOutDegree.get(layerId).put(nodeId, Math.min(nodeInDegree, minNodeOutDegree.get(layerId).get(nodeId)));
-							maxNodeOutDegree.get(layerId).put(nodeId, Math.max(nodeInDegree, maxNodeOutDegree.get(layerId).get(nodeId)));
-
-							double nodeIngressTraffic = previousState_nodeIngressTraffic.get(layerId).get(nodeId);
-							accum_avgNodeIngressTraffic.get(layerId).get(nodeId).add(nodeIngressTraffic * timeInterval);
-							minNodeIngressTraffic.get(layerId).put(nodeId, Math.min(nodeIngressTraffic, minNodeIngressTraffic.get(layerId).get(nodeId)));
-							maxNodeIngressTraffic.get(layerId).put(nodeId, Math.max(nodeIngressTraffic, maxNodeIngressTraffic.get(layerId).get(nodeId)));
-
-							double nodeEgressTraffic = previousState_nodeEgressTraffic.get(layerId).get(nodeId);
-							accum_avgNodeEgressTraffic.get(layerId).get(nodeId).add(nodeEgressTraffic * timeInterval);
-							minNodeEgressTraffic.get(layerId).put(nodeId, Math.min(nodeEgressTraffic, minNodeEgressTraffic.get(layerId).get(nodeId)));
-							maxNodeEgressTraffic.get(layerId).put(nodeId, Math.max(nodeEgressTraffic, maxNodeEgressTraffic.get(layerId).get(nodeId)));
-
-						}
-						else
-						{
-							accum_avgNodeInDegree.get(layerId).remove(nodeId);
-							minNodeInDegree.get(layerId).remove(nodeId);
-							maxNodeInDegree.get(layerId).remove(nodeId);
-							accum_avgNodeOutDegree.get(layerId).remove(nodeId);
-							minNodeOutDegree.get(layerId).remove(nodeId);
-							maxNodeOutDegree.get(layerId).remove(nodeId);
-							accum_avgNodeIngressTraffic.get(layerId).remove(nodeId);
-							maxNodeIngressTraffic.get(layerId).remove(nodeId);
-							minNodeIngressTraffic.get(layerId).remove(nodeId);
-							accum_avgNodeEgressTraffic.get(layerId).remove(nodeId);
-							maxNodeEgressTraffic.get(layerId).remove(nodeId);
-							minNodeEgressTraffic.get(layerId).remove(nodeId);
-						}
-					}
-					
-					Set<Long> previousState_linkIds_thisLayer = previousState_linkIds.get(layerId);
-					int numLinks = previousState_linkIds_thisLayer.size();
-					accum_avgNumLinks.get(layerId).add(numLinks * timeInterval);
-					maxNumLinks.put(layerId, Math.max(numLinks, maxNumLinks.get(layerId)));
-					minNumLinks.put(layerId, Math.min(numLinks, minNumLinks.get(layerId)));
-					
-					Set<Long> previousState_demandIds_thisLayer = previousState_demandIds.get(layerId);
-					int numDemands = previousState_demandIds_thisLayer.size();
-					accum_avgNumDemands.get(layerId).add(numDemands * timeInterval);
-					maxNumDemands.put(layerId, Math.max(numDemands, maxNumDemands.get(layerId)));
-					minNumDemands.put(layerId, Math.min(numDemands, minNumDemands.get(layerId)));
-
-					double totalCapacityInstalled = 0;
-					double congestion = 0;
-					
-					Set<Long> previousState_linkDownIds_thisLayer = previousState_linkDownIds.get(layerId);
-					Map<Long, Double> previousState_linkCapacity_thisLayer = previousState_linkCapacity.get(layerId);
-					Map<Long, Double> previousState_linkOccupiedCapacity_thisLayer = previousState_linkOccupiedCapacity.get(layerId);
-					Map<Long, Double> previousState_linkLengthInKm_thisLayer = previousState_linkLengthInKm.get(layerId);
-					for(long linkId : previousState_linkIds_thisLayer)
-					{
-						double u_e = previousState_linkCapacity_thisLayer.get(linkId);
-						double y_e = previousState_linkOccupiedCapacity_thisLayer.get(linkId);
-						double rho_e = y_e == 0 ? 0 : Math.max(y_e / u_e, 0);
-						
-						totalCapacityInstalled += u_e;
-						congestion = Math.max(congestion, rho_e);
-						
-						checkAndCreateLink(layerId, linkId);
-
-						if (netState.getLinkFromId (linkId) != null)
-						{
-							double l_e = previousState_linkLengthInKm_thisLayer.get(linkId);
-							double oversubscribedCapacity = y_e - u_e; if (oversubscribedCapacity < precisionFactor) oversubscribedCapacity = 0;
-
-							accum_avgLinkLengthInKm.get(layerId).get(linkId).add(l_e * timeInterval);
-							minLinkLengthInKm.get(layerId).get(linkId).setValue(Math.min(minLinkLengthInKm.get(layerId).get(linkId).doubleValue(), l_e));
-							maxLinkLengthInKm.get(layerId).get(linkId).setValue(Math.max(maxLinkLengthInKm.get(layerId).get(linkId).doubleValue(), l_e));
-							accum_avgCapacity.get(layerId).get(linkId).add(u_e * timeInterval);
-							minCapacity.get(layerId).get(linkId).setValue(Math.min(minCapacity.get(layerId).get(linkId).doubleValue(), u_e));
-							maxCapacity.get(layerId).get(linkId).setValue(Math.max(maxCapacity.get(layerId).get(linkId).doubleValue(), u_e));
-							accum_avgLinkOccupiedCapacity.get(layerId).get(linkId).add(y_e * timeInterval);
-							minLinkOccupiedCapacity.get(layerId).get(linkId).setValue(Math.min(minLinkOccupiedCapacity.get(layerId).get(linkId).doubleValue(), y_e));
-							maxLinkOccupiedCapacity.get(layerId).get(linkId).setValue(Math.max(maxLinkOccupiedCapacity.get(layerId).get(linkId).doubleValue(), y_e));
-							accum_avgUtilization.get(layerId).get(linkId).add(rho_e * timeInterval);
-							minUtilization.get(layerId).get(linkId).setValue(Math.min(minUtilization.get(layerId).get(linkId).doubleValue(), rho_e));
-							maxUtilization.get(layerId).get(linkId).setValue(Math.max(maxUtilization.get(layerId).get(linkId).doubleValue(), rho_e));
-							accum_avgOversubscribedCapacity.get(layerId).get(linkId).add(oversubscribedCapacity * timeInterval);
-							minOversubscribedCapacity.get(layerId).get(linkId).setValue(Math.min(minOversubscribedCapacity.get(layerId).get(linkId).doubleValue(), oversubscribedCapacity));
-							maxOversubscribedCapacity.get(layerId).get(linkId).setValue(Math.max(maxOversubscribedCapacity.get(layerId).get(linkId).doubleValue(), oversubscribedCapacity));
-							if (oversubscribedCapacity > 0) accum_linkOversubscribedTime.get(layerId).get(linkId).add(timeInterval);
-							if (!previousState_linkDownIds_thisLayer.contains(linkId)) accum_linkUpTime.get(layerId).get(linkId).add(timeInterval);
-							accum_linkTotalTime.get(layerId).get(linkId).add(timeInterval);
-						}
-						else
-						{
-							accum_avgLinkLengthInKm.get(layerId).remove(linkId);
-							minLinkLengthInKm.get(layerId).remove(linkId);
-							maxLinkLengthInKm.get(layerId).remove(linkId);
-							accum_avgCapacity.get(layerId).remove(linkId);
-							minCapacity.get(layerId).remove(linkId);
-							maxCapacity.get(layerId).remove(linkId);
-							accum_avgLinkOccupiedCapacity.get(layerId).remove(linkId);
-							minLinkOccupiedCapacity.get(layerId).remove(linkId);
-							maxLinkOccupiedCapacity.get(layerId).remove(linkId);
-							accum_avgUtilization.get(layerId).remove(linkId);
-							minUtilization.get(layerId).remove(linkId);
-							maxUtilization.get(layerId).remove(linkId);
-							accum_avgOversubscribedCapacity.get(layerId).remove(linkId);
-							minOversubscribedCapacity.get(layerId).remove(linkId);
-							maxOversubscribedCapacity.get(layerId).remove(linkId);
-							accum_linkOversubscribedTime.get(layerId).remove(linkId);
-							accum_linkUpTime.get(layerId).remove(linkId);
-							accum_linkTotalTime.get(layerId).remove(linkId);
-						}
-					}
-					
-					accum_avgTotalCapacity.get(layerId).add(totalCapacityInstalled * timeInterval);
-					maxTotalCapacity.get(layerId).setValue(Math.max(totalCapacityInstalled, maxTotalCapacity.get(layerId).doubleValue()));
-					minTotalCapacity.get(layerId).setValue(Math.min(totalCapacityInstalled, minTotalCapacity.get(layerId).doubleValue()));
-					accum_avgCongestion.get(layerId).add(congestion * timeInterval);
-					maxCongestion.get(layerId).setValue(Math.max(congestion, maxCongestion.get(layerId).doubleValue()));
-					minCongestion.get(layerId).setValue(Math.min(congestion, minCongestion.get(layerId).doubleValue()));
-					
-					double totalOfferedTraffic = 0;
-					double totalCarriedTraffic = 0;
-					double totalBlockedTraffic = 0;
-
-					double worstDemandAvailabilityClassic_thisLayer = 1;
-					double worstDemandAvailabilityWeighted_thisLayer = 1;
-
-					Map<Long, Double> previousState_demandOfferedTraffic_thislayer = previousState_demandOfferedTraffic.get(layerId);
-					Map<Long, Double> previousState_demandCarriedTraffic_thisLayer = previousState_demandCarriedTraffic.get(layerId);
-					for(long demandId : previousState_demandIds_thisLayer)
-					{
-						double h_d = previousState_demandOfferedTraffic_thislayer.get(demandId);
-						double r_d = previousState_demandCarriedTraffic_thisLayer.get(demandId);
-						double blockedTraffic_d = h_d - r_d; if (blockedTraffic_d < precisionFactor) blockedTraffic_d = 0;
-						totalOfferedTraffic += h_d;
-						totalCarriedTraffic += r_d;
-						totalBlockedTraffic += blockedTraffic_d;
-						
-						checkAndCreateDemand(layerId, demandId);
-							
-						if (netState.getDemandFromId (demandId) != null)
-						{
-							double excessCarriedTraffic_d = r_d - h_d; if (excessCarriedTraffic_d < precisionFactor) excessCarriedTraffic_d = 0;
-
-							accum_avgDemandOfferedTraffic.get(layerId).get(demandId).add(h_d * timeInterval);
-							minDemandOfferedTraffic.get(layerId).get(demandId).setValue(Math.min(minDemandOfferedTraffic.get(layerId).get(demandId).doubleValue(), h_d));
-							maxDemandOfferedTraffic.get(layerId).get(demandId).setValue(Math.max(maxDemandOfferedTraffic.get(layerId).get(demandId).doubleValue(), h_d));
-							accum_avgDemandCarriedTraffic.get(layerId).get(demandId).add(r_d * timeInterval);
-							minDemandCarriedTraffic.get(layerId).get(demandId).setValue(Math.min(minDemandCarriedTraffic.get(layerId).get(demandId).doubleValue(), r_d));
-							maxDemandCarriedTraffic.get(layerId).get(demandId).setValue(Math.max(maxDemandCarriedTraffic.get(layerId).get(demandId).doubleValue(), r_d));
-							accum_avgDemandBlockedTraffic.get(layerId).get(demandId).add(blockedTraffic_d * timeInterval);
-							minDemandBlockedTraffic.get(layerId).get(demandId).setValue(Math.min(minDemandBlockedTraffic.get(layerId).get(demandId).doubleValue(), blockedTraffic_d));
-							maxDemandBlockedTraffic.get(layerId).get(demandId).setValue(Math.max(maxDemandBlockedTraffic.get(layerId).get(demandId).doubleValue(), blockedTraffic_d));
-							if (blockedTraffic_d == 0) accum_demandAvailabilityClassic.get(layerId).get(demandId).add(timeInterval);
-							accum_demandAvailabilityWeighted.get(layerId).get(demandId).add(h_d > 0 ? (1 - blockedTraffic_d / h_d) * timeInterval : timeInterval);
-							accum_avgExcessCarriedTraffic.get(layerId).get(demandId).add(excessCarriedTraffic_d * timeInterval);
-							minDemandExcessCarriedTraffic.get(layerId).get(demandId).setValue(Math.min(minDemandExcessCarriedTraffic.get(layerId).get(demandId).doubleValue(), excessCarriedTraffic_d));
-							maxDemandExcessCarriedTraffic.get(layerId).get(demandId).setValue(Math.max(maxDemandExcessCarriedTraffic.get(layerId).get(demandId).doubleValue(), excessCarriedTraffic_d));
-							if (excessCarriedTraffic_d > 0) excessDemandCarriedTrafficTime.get(layerId).get(demandId).add(timeInterval);
-							demandTotalTime.get(layerId).get(demandId).add(timeInterval);
-						}
-						else
-						{
-							double totalTime_thisDemand = demandTotalTime.get(layerId).get(demandId).doubleValue();
-							if (totalTime_thisDemand > 0)
-							{
-								worstDemandAvailabilityClassic_thisLayer = Math.min(worstDemandAvailabilityClassic_thisLayer, accum_demandAvailabilityClassic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand);
-								worstDemandAvailabilityWeighted_thisLayer = Math.min(worstDemandAvailabilityWeighted_thisLayer, accum_demandAvailabilityWeighted.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand);
-							}
-							
-							accum_avgDemandOfferedTraffic.get(layerId).remove(demandId);
-							minDemandOfferedTraffic.get(layerId).remove(demandId);
-							maxDemandOfferedTraffic.get(layerId).remove(demandId);
-							accum_avgDemandCarriedTraffic.get(layerId).remove(demandId);
-							minDemandCarriedTraffic.get(layerId).remove(demandId);
-							maxDemandCarriedTraffic.get(layerId).remove(demandId);
-							accum_avgDemandBlockedTraffic.get(layerId).remove(demandId);
-							minDemandBlockedTraffic.get(layerId).remove(demandId);
-							maxDemandBlockedTraffic.get(layerId).remove(demandId);
-							accum_demandAvailabilityClassic.get(layerId).remove(demandId);
-							accum_demandAvailabilityWeighted.get(layerId).remove(demandId);
-							accum_avgExcessCarriedTraffic.get(layerId).remove(demandId);
-							minDemandExcessCarriedTraffic.get(layerId).remove(demandId);
-							maxDemandExcessCarriedTraffic.get(layerId).remove(demandId);
-							excessDemandCarriedTrafficTime.get(layerId).remove(demandId);
-							demandTotalTime.get(layerId).remove(demandId);
-						}
-					}
-					
-					accum_avgTotalOfferedTraffic.get(layerId).add(totalOfferedTraffic * timeInterval);
-					maxTotalOfferedTraffic.get(layerId).setValue(Math.max(totalOfferedTraffic, maxTotalOfferedTraffic.get(layerId).doubleValue()));
-					minTotalOfferedTraffic.get(layerId).setValue(Math.min(totalOfferedTraffic, minTotalOfferedTraffic.get(layerId).doubleValue()));
-					accum_avgTotalCarriedTraffic.get(layerId).add(totalCarriedTraffic * timeInterval);
-					maxTotalCarriedTraffic.get(layerId).setValue(Math.max(totalCarriedTraffic, maxTotalCarriedTraffic.get(layerId).doubleValue()));
-					minTotalCarriedTraffic.get(layerId).setValue(Math.min(totalCarriedTraffic, minTotalCarriedTraffic.get(layerId).doubleValue()));
-					if (totalBlockedTraffic < precisionFactor) accum_availabilityClassic.get(layerId).add(timeInterval);
-					accum_availabilityWeighted.get(layerId).add(totalOfferedTraffic > 0 ? Math.min(1, 1 - totalBlockedTraffic / totalOfferedTraffic) * timeInterval : timeInterval);
-					worstDemandAvailabilityClassic.get(layerId).setValue(Math.min(worstDemandAvailabilityClassic_thisLayer, worstDemandAvailabilityClassic.get(layerId).doubleValue()));
-					worstDemandAvailabilityWeighted.get(layerId).setValue(Math.min(worstDemandAvailabilityWeighted_thisLayer, worstDemandAvailabilityWeighted.get(layerId).doubleValue()));
-				}
-				else
-				{
-					/* Remove layer information */
-					accum_layerTotalTime.remove(layerId);
-					accum_avgNumLinks.remove(layerId);
-					accum_avgNumDemands.remove(layerId);
-					accum_avgTotalOfferedTraffic.remove(layerId);
-					maxTotalOfferedTraffic.remove(layerId);
-					minTotalOfferedTraffic.remove(layerId);
-					accum_avgTotalCarriedTraffic.remove(layerId);
-					maxTotalCarriedTraffic.remove(layerId);
-					minTotalCarriedTraffic.remove(layerId);
-					accum_avgTotalCapacity.remove(layerId);
-					maxTotalCapacity.remove(layerId);
-					minTotalCapacity.remove(layerId);
-					accum_avgCongestion.remove(layerId);
-					maxCongestion.remove(layerId);
-					minCongestion.remove(layerId);
-					accum_availabilityClassic.remove(layerId);
-					accum_availabilityWeighted.remove(layerId);
-					worstDemandAvailabilityClassic.remove(layerId);
-					worstDemandAvailabilityWeighted.remove(layerId);
-					maxNumLinks.remove(layerId);
-					minNumLinks.remove(layerId);
-					maxNumDemands.remove(layerId);
-					minNumDemands.remove(layerId);
-
-					/* Remove node information in this layer */
-					accum_avgNodeInDegree.remove(layerId);
-					minNodeInDegree.remove(layerId);
-					maxNodeInDegree.remove(layerId);
-					accum_avgNodeOutDegree.remove(layerId);
-					minNodeOutDegree.remove(layerId);
-					maxNodeOutDegree.remove(layerId);
-					accum_avgNodeIngressTraffic.remove(layerId);
-					maxNodeIngressTraffic.remove(layerId);
-					minNodeIngressTraffic.remove(layerId);
-					accum_avgNodeEgressTraffic.remove(layerId);
-					maxNodeEgressTraffic.remove(layerId);
-					minNodeEgressTraffic.remove(layerId);
-
-					/* Remove link information in this layer */
-					accum_avgLinkLengthInKm.remove(layerId);
-					minLinkLengthInKm.remove(layerId);
-					maxLinkLengthInKm.remove(layerId);
-					accum_avgCapacity.remove(layerId);
-					minCapacity.remove(layerId);
-					maxCapacity.remove(layerId);
-					accum_avgLinkOccupiedCapacity.remove(layerId);
-					minLinkOccupiedCapacity.remove(layerId);
-					maxLinkOccupiedCapacity.remove(layerId);
-					accum_avgUtilization.remove(layerId);
-					minUtilization.remove(layerId);
-					maxUtilization.remove(layerId);
-					accum_avgOversubscribedCapacity.remove(layerId);
-					minOversubscribedCapacity.remove(layerId);
-					maxOversubscribedCapacity.remove(layerId);
-					accum_linkOversubscribedTime.remove(layerId);
-					accum_linkUpTime.remove(layerId);
-					accum_linkTotalTime.remove(layerId);
-
-					/* Remove demand information in this layer */
-					accum_avgDemandOfferedTraffic.remove(layerId);
-					minDemandOfferedTraffic.remove(layerId);
-					maxDemandOfferedTraffic.remove(layerId);
-					accum_avgDemandCarriedTraffic.remove(layerId);
-					minDemandCarriedTraffic.remove(layerId);
-					maxDemandCarriedTraffic.remove(layerId);
-					accum_avgDemandBlockedTraffic.remove(layerId);
-					minDemandBlockedTraffic.remove(layerId);
-					maxDemandBlockedTraffic.remove(layerId);
-					accum_avgExcessCarriedTraffic.remove(layerId);
-					minDemandExcessCarriedTraffic.remove(layerId);
-					maxDemandExcessCarriedTraffic.remove(layerId);
-					accum_demandAvailabilityClassic.remove(layerId);
-					accum_demandAvailabilityWeighted.remove(layerId);
-					excessDemandCarriedTrafficTime.remove(layerId);
-					demandTotalTime.remove(layerId);
-				}
-			}
+			for (LayerStats layer : layerStats)
+				layer.update(timeInterval, precisionFactor);
 		}
-		
+
 		/* Update previous state (previous = current) */
-		previousState_layerIds = new LinkedHashSet<Long>(netState.getNetworkLayerIds());
-		previousState_nodeIds = new LinkedHashSet<Long>(netState.getNodeIds());
-		previousState_nodeDownIds = new LinkedHashSet<Long>(NetPlan.getIds (netState.getNodesDown()));
-		previousState_nodeInDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		previousState_nodeOutDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		previousState_nodeIngressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_nodeEgressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_linkIds = new LinkedHashMap<Long, Set<Long>>();
-		previousState_linkDownIds = new LinkedHashMap<Long, Set<Long>>();
-		previousState_linkLengthInKm = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_linkCapacity = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_linkOccupiedCapacity = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_demandIds = new LinkedHashMap<Long, Set<Long>>();
-		previousState_demandOfferedTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_demandCarriedTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		
-		/* Compute node, link metrics */
-		for(long layerId : previousState_layerIds)
-		{
-			NetworkLayer netStateLayer = netState.getNetworkLayerFromId (layerId);
-			previousState_nodeInDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			previousState_nodeOutDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			previousState_nodeIngressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			previousState_nodeEgressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			for(long nodeId : previousState_nodeIds)
-			{
-				Node netStateNode = netState.getNodeFromId (nodeId);
-				previousState_nodeInDegree.get(layerId).put(nodeId, netStateNode.getIncomingLinks(netStateLayer).size());
-				previousState_nodeOutDegree.get(layerId).put(nodeId, netStateNode.getOutgoingLinks(netStateLayer).size());
-				previousState_nodeIngressTraffic.get(layerId).put(nodeId, netStateNode.getIngressCarriedTraffic(netStateLayer));
-				previousState_nodeEgressTraffic.get(layerId).put(nodeId, netStateNode.getEgressCarriedTraffic(netStateLayer));
-			}
+		if (structureChanged) synchronize(simTime);
+		else updateChangedElements(simTime);
 
-			previousState_linkIds.put(layerId, new LinkedHashSet<Long>(netState.getLinkIds(netStateLayer)));
-			previousState_linkDownIds.put(layerId, new LinkedHashSet<Long>(NetPlan.getIds (netState.getLinksDown(netStateLayer))));
-			previousState_linkCapacity.put(layerId, new LinkedHashMap<Long, Double>());
-			previousState_linkOccupiedCapacity.put(layerId, new LinkedHashMap<Long, Double>());
-			previousState_linkLengthInKm.put(layerId, new LinkedHashMap<Long, Double>());
-			for(long linkId : previousState_linkIds.get(layerId))
-			{
-				Link netStateLink = netState.getLinkFromId (linkId);
-				previousState_linkCapacity.get(layerId).put(linkId, netStateLink.getCapacity());
-				previousState_linkOccupiedCapacity.get(layerId).put(linkId, netStateLink.getOccupiedCapacity());
-				previousState_linkLengthInKm.get(layerId).put(linkId, netStateLink.getLengthInKm());
-			}
-		}
-		
-		/* Compute demand metrics */
-		for(long layerId : previousState_layerIds)
-		{
-			NetworkLayer netStateLayer = netState.getNetworkLayerFromId (layerId);
-			previousState_demandIds.put(layerId, new LinkedHashSet<Long>(netState.getDemandIds(netStateLayer)));
-			previousState_demandOfferedTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			previousState_demandCarriedTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			for(long demandId : previousState_demandIds.get(layerId))
-			{
-				Demand netStateDemand = netState.getDemandFromId (demandId);
-				previousState_demandOfferedTraffic.get(layerId).put(demandId, netStateDemand.getOfferedTraffic());
-				previousState_demandCarriedTraffic.get(layerId).put(demandId, netStateDemand.getCarriedTraffic());
-			}
-		}
-		
 		lastEventTime = simTime;
 	}
-	
+
 	/**
 	 * Resets the statistics.
-	 * 
+	 *
 	 * @param simTime Current simulation time
 	 * @since 0.2.3
 	 */
 	public void reset(double simTime)
 	{
 		lastEventTime = simTime;
-		
+
 		/* Network information */
 		accum_avgNumLayers = 0;
 		accum_avgNumNodes = 0;
@@ -686,92 +192,18 @@ public class SimStats
 		minNumLayers = Integer.MAX_VALUE;
 		minNumNodes = Integer.MAX_VALUE;
 
-		/* Layer information */
-		accum_layerTotalTime = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgNumLinks = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgNumDemands = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgTotalOfferedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		maxTotalOfferedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		minTotalOfferedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgTotalCarriedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		maxTotalCarriedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		minTotalCarriedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgTotalCapacity = new LinkedHashMap<Long, MutableDouble>();
-		maxTotalCapacity = new LinkedHashMap<Long, MutableDouble>();
-		minTotalCapacity = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgCongestion = new LinkedHashMap<Long, MutableDouble>();
-		maxCongestion = new LinkedHashMap<Long, MutableDouble>();
-		minCongestion = new LinkedHashMap<Long, MutableDouble>();
-		accum_availabilityClassic = new LinkedHashMap<Long, MutableDouble>();
-		accum_availabilityWeighted = new LinkedHashMap<Long, MutableDouble>();
-		worstDemandAvailabilityClassic = new LinkedHashMap<Long, MutableDouble>();
-		worstDemandAvailabilityWeighted = new LinkedHashMap<Long, MutableDouble>();
-		maxNumLinks = new LinkedHashMap<Long, Integer>();
-		minNumLinks = new LinkedHashMap<Long, Integer>();
-		maxNumDemands = new LinkedHashMap<Long, Integer>();
-		minNumDemands = new LinkedHashMap<Long, Integer>();
-	
-		/* Node information */
-		accum_nodeUpTime = new LinkedHashMap<Long, MutableDouble>();
-		accum_nodeTotalTime = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgNodeInDegree = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxNodeInDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		minNodeInDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		accum_avgNodeOutDegree = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxNodeOutDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		minNodeOutDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		accum_avgNodeIngressTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxNodeIngressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		minNodeIngressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		accum_avgNodeEgressTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxNodeEgressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		minNodeEgressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		
-		/* Link information */
-		accum_avgLinkLengthInKm = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minLinkLengthInKm = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxLinkLengthInKm = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgLinkOccupiedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minLinkOccupiedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxLinkOccupiedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgUtilization = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minUtilization = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxUtilization = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgOversubscribedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minOversubscribedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxOversubscribedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_linkOversubscribedTime = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_linkUpTime = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_linkTotalTime = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-
-		/* Demand information */
-		accum_avgDemandOfferedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minDemandOfferedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxDemandOfferedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgDemandCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minDemandCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxDemandCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgDemandBlockedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minDemandBlockedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxDemandBlockedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgExcessCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minDemandExcessCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxDemandExcessCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_demandAvailabilityClassic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_demandAvailabilityWeighted = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		excessDemandCarriedTrafficTime = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		demandTotalTime = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		
+		/* Node and layer information */
+		nodeStats = null;
+		layerStats = new LayerStats[0];
+		structureChanged = true;
+
 		computeNextState(simTime);
 		transitoryTime = simTime;
 	}
 
 	/**
 	 * Returns a HTML {@code String} with statistics.
-	 * 
+	 *
 	 * @param simTime Current simulation time
 	 * @return Statistics in HTML format
 	 * @since 0.2.3
@@ -779,275 +211,235 @@ public class SimStats
 	public String getResults(double simTime)
 	{
 		if (lastEventTime == 0) return "<p>No event was processed</p>";
-		
+
 		double totalSimulationTime = simTime - transitoryTime;
 		if (totalSimulationTime == 0) return "<p>Simulation time equal to zero. No results</p>";
-		
-//		computeNextState(simTime+0.0000000000001);
+
+		/* Bring the accumulators of the elements not changed recently up to date */
+		nodeStats.updateAll(lastEventTime);
+		for (LayerStats layer : layerStats)
+		{
+			layer.nodes.updateAll(lastEventTime);
+			layer.links.updateAll(lastEventTime);
+			layer.demands.updateAll(lastEventTime);
+		}
+
 		try (ByteArrayOutputStream os = new ByteArrayOutputStream())
 		{
 			XMLOutputFactory2 output = (XMLOutputFactory2) XMLOutputFactory.newFactory();
 			XMLStreamWriter2 writer = (XMLStreamWriter2) output.createXMLStreamWriter(os);
-			
+
 			writer.writeStartDocument("UTF-8", "1.0");
-			
+
 			/* Write network information */
 			writer.writeStartElement("network");
 			writer.writeAttribute("avgNumLayers", String.format("%.3f", totalSimulationTime > 0 ? accum_avgNumLayers / totalSimulationTime : 0));
-			
+
 			int minNumLayers_thisNetwork = minNumLayers;
 			if (minNumLayers_thisNetwork == Integer.MAX_VALUE) minNumLayers_thisNetwork = 0;
 			writer.writeAttribute("minNumLayers", Integer.toString(minNumLayers_thisNetwork));
 			writer.writeAttribute("maxNumLayers", Integer.toString(maxNumLayers));
 			writer.writeAttribute("avgNumNodes", String.format("%.3f", totalSimulationTime > 0 ? accum_avgNumNodes / totalSimulationTime : 0));
-			
+
 			int minNumNodes_thisNetwork = minNumNodes;
 			if (minNumNodes_thisNetwork == Integer.MAX_VALUE) minNumNodes_thisNetwork = 0;
 			writer.writeAttribute("minNumNodes", Integer.toString(minNumNodes_thisNetwork));
 			writer.writeAttribute("maxNumNodes", Integer.toString(maxNumNodes));
-			
+
 			/* Write node information */
-			Collection<Long> nodeIds = netState.getNodeIds();
-			for(long nodeId : nodeIds)
+			List<Node> nodes = netState.getNodes();
+			for(Node netStateNode : nodes)
 			{
-				checkAndCreateNode(nodeId);
-				
-				double upTime_thisNode = accum_nodeUpTime.get(nodeId).doubleValue();
-				double totalTime_thisNode = accum_nodeTotalTime.get(nodeId).doubleValue();
+				final int nodeIndex = nodeStats.indexOf(netStateNode);
+
+				double upTime_thisNode = nodeStats.getAccumulated(NODE_UP, nodeIndex);
+				double totalTime_thisNode = nodeStats.getAccumulated(NODE_TOTALTIME, nodeIndex);
 				double upTimePercentage_thisNode = totalTime_thisNode > 0 ? 100 * upTime_thisNode / totalTime_thisNode : 0;
-				
+
 				writer.writeStartElement("node");
-				writer.writeAttribute("id", Long.toString(nodeId));
-				writer.writeAttribute("name", netState.getNodeFromId(nodeId).getName ());
+				writer.writeAttribute("id", Long.toString(netStateNode.getId()));
+				writer.writeAttribute("name", netStateNode.getName ());
 				writer.writeAttribute("upTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(upTime_thisNode));
 				writer.writeAttribute("upTimePercentage", String.format("%.3f", upTimePercentage_thisNode));
 				writer.writeAttribute("totalTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalTime_thisNode));
-				writer.writeEndElement();	
-			}			
-			
+				writer.writeEndElement();
+			}
+
 			/* Write layer information */
-			for(long layerId : netState.getNetworkLayerIds ())
+			for(NetworkLayer netStateLayer : netState.getNetworkLayers ())
 			{
-				checkAndCreateLayer(layerId);
-				
-				double totalTime_thisLayer = accum_layerTotalTime.get(layerId).doubleValue();
-				
-				NetworkLayer netStateLayer = netState.getNetworkLayerFromId (layerId);
-				
+				LayerStats layer = getLayerStats(netStateLayer);
+				if (layer == null) layer = new LayerStats(netStateLayer.getId());
+
+				double totalTime_thisLayer = layer.accum_layerTotalTime;
+
 				String trafficUnitsName = netState.getDemandTrafficUnitsName(netStateLayer);
 				if (trafficUnitsName.isEmpty()) trafficUnitsName = "none";
 				String capacityUnitsName = netState.getLinkCapacityUnitsName(netStateLayer);
 				if (capacityUnitsName.isEmpty()) capacityUnitsName = "none";
-				
+
 				writer.writeStartElement("layer");
-				writer.writeAttribute("id", Long.toString(layerId));
+				writer.writeAttribute("id", Long.toString(netStateLayer.getId()));
 				writer.writeAttribute("name", netStateLayer.getName ());
-				writer.writeAttribute("avgNumLinks", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgNumLinks.get(layerId).doubleValue() / totalTime_thisLayer : 0));
+				writer.writeAttribute("avgNumLinks", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgNumLinks / totalTime_thisLayer : 0));
 
-				int minNumLinks_thisLayer = minNumLinks.get(layerId);
+				int minNumLinks_thisLayer = layer.minNumLinks;
 				if (minNumLinks_thisLayer == Integer.MAX_VALUE) minNumLinks_thisLayer = 0;
 				writer.writeAttribute("minNumLinks", Integer.toString(minNumLinks_thisLayer));
-				writer.writeAttribute("maxNumLinks", Integer.toString(maxNumLinks.get(layerId)));
-				writer.writeAttribute("avgNumDemands", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgNumDemands.get(layerId).doubleValue() / totalTime_thisLayer : 0));
+				writer.writeAttribute("maxNumLinks", Integer.toString(layer.maxNumLinks));
+				writer.writeAttribute("avgNumDemands", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgNumDemands / totalTime_thisLayer : 0));
 
-				int minNumDemands_thisLayer = minNumDemands.get(layerId);
+				int minNumDemands_thisLayer = layer.minNumDemands;
 				if (minNumDemands_thisLayer == Integer.MAX_VALUE) minNumDemands_thisLayer = 0;
 				writer.writeAttribute("minNumDemands", Integer.toString(minNumDemands_thisLayer));
-				writer.writeAttribute("maxNumDemands", Integer.toString(maxNumDemands.get(layerId)));
+				writer.writeAttribute("maxNumDemands", Integer.toString(layer.maxNumDemands));
 				writer.writeAttribute("totalTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalTime_thisLayer));
 				writer.writeAttribute("trafficUnitsName", trafficUnitsName);
-				writer.writeAttribute("avgOfferedTraffic", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgTotalOfferedTraffic.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				
-				double minTotalOfferedTraffic_thisLayer = minTotalOfferedTraffic.get(layerId).doubleValue();
+				writer.writeAttribute("avgOfferedTraffic", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgTotalOfferedTraffic / totalTime_thisLayer : 0));
+
+				double minTotalOfferedTraffic_thisLayer = layer.minTotalOfferedTraffic;
 				if (minTotalOfferedTraffic_thisLayer == Double.MAX_VALUE) minTotalOfferedTraffic_thisLayer = 0;
 				writer.writeAttribute("minOfferedTraffic", String.format("%.3f", minTotalOfferedTraffic_thisLayer));
-				writer.writeAttribute("maxOfferedTraffic", String.format("%.3f", maxTotalOfferedTraffic.get(layerId).doubleValue()));
-				writer.writeAttribute("avgCarriedTraffic", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgTotalCarriedTraffic.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				
-				double minTotalCarriedTraffic_thisLayer = minTotalCarriedTraffic.get(layerId).doubleValue();
+				writer.writeAttribute("maxOfferedTraffic", String.format("%.3f", layer.maxTotalOfferedTraffic));
+				writer.writeAttribute("avgCarriedTraffic", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgTotalCarriedTraffic / totalTime_thisLayer : 0));
+
+				double minTotalCarriedTraffic_thisLayer = layer.minTotalCarriedTraffic;
 				if (minTotalCarriedTraffic_thisLayer == Double.MAX_VALUE) minTotalCarriedTraffic_thisLayer = 0;
 				writer.writeAttribute("minCarriedTraffic", String.format("%.3f", minTotalCarriedTraffic_thisLayer));
-				writer.writeAttribute("maxCarriedTraffic", String.format("%.3f", maxTotalCarriedTraffic.get(layerId).doubleValue()));
+				writer.writeAttribute("maxCarriedTraffic", String.format("%.3f", layer.maxTotalCarriedTraffic));
 				writer.writeAttribute("capacityUnitsName", capacityUnitsName);
-				writer.writeAttribute("avgTotalCapacity", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgTotalCapacity.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				
-				double minTotalCapacity_thisLayer = minTotalCapacity.get(layerId).doubleValue();
+				writer.writeAttribute("avgTotalCapacity", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgTotalCapacity / totalTime_thisLayer : 0));
+
+				double minTotalCapacity_thisLayer = layer.minTotalCapacity;
 				if (minTotalCapacity_thisLayer == Double.MAX_VALUE) minTotalCapacity_thisLayer = 0;
 				writer.writeAttribute("minTotalCapacity", String.format("%.3f", minTotalCapacity_thisLayer));
-				writer.writeAttribute("maxTotalCapacity", String.format("%.3f", maxTotalCapacity.get(layerId).doubleValue()));
-				writer.writeAttribute("avgCongestion", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgCongestion.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				
-				double minCongestion_thisLayer = minCongestion.get(layerId).doubleValue();
+				writer.writeAttribute("maxTotalCapacity", String.format("%.3f", layer.maxTotalCapacity));
+				writer.writeAttribute("avgCongestion", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgCongestion / totalTime_thisLayer : 0));
+
+				double minCongestion_thisLayer = layer.minCongestion;
 				if (minCongestion_thisLayer == Double.MAX_VALUE) minCongestion_thisLayer = 0;
 				writer.writeAttribute("minCongestion", String.format("%.3f", minCongestion_thisLayer));
-				writer.writeAttribute("maxCongestion", String.format("%.3f", maxCongestion.get(layerId).doubleValue()));
-				writer.writeAttribute("availabilityClassic", String.format("%.6f", totalTime_thisLayer > 0 ? accum_availabilityClassic.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				writer.writeAttribute("availabilityWeighted", String.format("%.6f", totalTime_thisLayer > 0 ? accum_availabilityWeighted.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				
-				double worstDemandAvailabilityClassic_thisLayer = worstDemandAvailabilityClassic.get(layerId).doubleValue();
-				double worstDemandAvailabilityWeighted_thisLayer = worstDemandAvailabilityWeighted.get(layerId).doubleValue();
+				writer.writeAttribute("maxCongestion", String.format("%.3f", layer.maxCongestion));
+				writer.writeAttribute("availabilityClassic", String.format("%.6f", totalTime_thisLayer > 0 ? layer.accum_availabilityClassic / totalTime_thisLayer : 0));
+				writer.writeAttribute("availabilityWeighted", String.format("%.6f", totalTime_thisLayer > 0 ? layer.accum_availabilityWeighted / totalTime_thisLayer : 0));
 
-				/* Write demand information */
-				Collection<Long> demandIds_thisLayer = netState.getDemandIds(netStateLayer);
-				for(long demandId : netState.getDemandIds (netStateLayer))
-				{
-					checkAndCreateDemand(layerId, demandId);
-					
-					double totalTime_thisDemand = demandTotalTime.get(layerId).get(demandId).doubleValue();
-					worstDemandAvailabilityClassic_thisLayer = Math.min(worstDemandAvailabilityClassic_thisLayer, totalTime_thisDemand > 0 ? accum_demandAvailabilityClassic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0);
-					worstDemandAvailabilityWeighted_thisLayer = Math.min(worstDemandAvailabilityWeighted_thisLayer, totalTime_thisDemand > 0 ? accum_demandAvailabilityWeighted.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0);
-				}
+				List<Demand> demands_thisLayer = netState.getDemands(netStateLayer);
+				double[] worstDemandAvailability_thisLayer = getWorstDemandAvailability(layer, demands_thisLayer);
+				writer.writeAttribute("worstDemandAvailabilityClassic", String.format("%.6f", worstDemandAvailability_thisLayer[0]));
+				writer.writeAttribute("worstDemandAvailabilityWeighted", String.format("%.6f", worstDemandAvailability_thisLayer[1]));
 
-				writer.writeAttribute("worstDemandAvailabilityClassic", String.format("%.6f", worstDemandAvailabilityClassic_thisLayer));
-				writer.writeAttribute("worstDemandAvailabilityWeighted", String.format("%.6f", worstDemandAvailabilityWeighted_thisLayer));
-				
 				/* Write node information */
-				for(long nodeId : nodeIds)
+				for(Node netStateNode : nodes)
 				{
-					checkAndCreateNode(layerId, nodeId);
-					
-					double totalTime_thisNode_thisLayer = Math.min(accum_nodeTotalTime.get(nodeId).doubleValue(), totalTime_thisLayer);
+					final int nodeIndex = layer.nodes.indexOf(netStateNode);
+
+					double totalTime_thisNode_thisLayer = Math.min(nodeStats.getAccumulated(NODE_TOTALTIME, nodeStats.indexOf(netStateNode)), totalTime_thisLayer);
 					writer.writeStartElement("node");
-					writer.writeAttribute("id", Long.toString(nodeId));
-					writer.writeAttribute("name", netState.getNodeFromId(nodeId).getName ());
-					writer.writeAttribute("avgInDegree", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? accum_avgNodeInDegree.get(layerId).get(nodeId).doubleValue() / totalTime_thisNode_thisLayer : 0));
-					
-					int minNodeInDegree_thisNode_thisLayer = minNodeInDegree.get(layerId).get(nodeId);
-					if (minNodeInDegree_thisNode_thisLayer == Integer.MAX_VALUE) minNodeInDegree_thisNode_thisLayer = 0;
+					writer.writeAttribute("id", Long.toString(netStateNode.getId()));
+					writer.writeAttribute("name", netStateNode.getName ());
+					writer.writeAttribute("avgInDegree", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? layer.nodes.getAccumulated(NODE_INDEGREE, nodeIndex) / totalTime_thisNode_thisLayer : 0));
+
+					int minNodeInDegree_thisNode_thisLayer = (int) layer.nodes.getMinimum(NODE_INDEGREE, nodeIndex);
 					writer.writeAttribute("minInDegree", Integer.toString(minNodeInDegree_thisNode_thisLayer));
-					writer.writeAttribute("maxInDegree", Integer.toString(maxNodeInDegree.get(layerId).get(nodeId)));
-					writer.writeAttribute("avgOutDegree", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? accum_avgNodeOutDegree.get(layerId).get(nodeId).doubleValue() / totalTime_thisNode_thisLayer : 0));
-					
-					int minNodeOutDegree_thisNode_thisLayer = minNodeOutDegree.get(layerId).get(nodeId);
-					if (minNodeOutDegree_thisNode_thisLayer == Integer.MAX_VALUE) minNodeOutDegree_thisNode_thisLayer = 0;
+					writer.writeAttribute("maxInDegree", Integer.toString((int) layer.nodes.getMaximum(NODE_INDEGREE, nodeIndex)));
+					writer.writeAttribute("avgOutDegree", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? layer.nodes.getAccumulated(NODE_OUTDEGREE, nodeIndex) / totalTime_thisNode_thisLayer : 0));
+
+					int minNodeOutDegree_thisNode_thisLayer = (int) layer.nodes.getMinimum(NODE_OUTDEGREE, nodeIndex);
 					writer.writeAttribute("minOutDegree", Integer.toString(minNodeOutDegree_thisNode_thisLayer));
-					writer.writeAttribute("maxOutDegree", Integer.toString(maxNodeOutDegree.get(layerId).get(nodeId)));
-					writer.writeAttribute("avgIngressTraffic", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? accum_avgNodeIngressTraffic.get(layerId).get(nodeId).doubleValue() / totalTime_thisNode_thisLayer : 0));
-					
-					double minNodeIngressTraffic_thisNode_thisLayer = minNodeIngressTraffic.get(layerId).get(nodeId);
-					if (minNodeIngressTraffic_thisNode_thisLayer == Double.MAX_VALUE) minNodeIngressTraffic_thisNode_thisLayer = 0;
-					writer.writeAttribute("minIngressTraffic", String.format("%.3f", minNodeIngressTraffic.get(layerId).get(nodeId)));
-					writer.writeAttribute("maxIngressTraffic", String.format("%.3f", maxNodeIngressTraffic.get(layerId).get(nodeId)));
-					writer.writeAttribute("avgEgressTraffic", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? accum_avgNodeEgressTraffic.get(layerId).get(nodeId).doubleValue() / totalTime_thisNode_thisLayer : 0));
-					
-					double minNodeEgressTraffic_thisNode_thisLayer = minNodeEgressTraffic.get(layerId).get(nodeId);
-					if (minNodeEgressTraffic_thisNode_thisLayer == Double.MAX_VALUE) minNodeEgressTraffic_thisNode_thisLayer = 0;
+					writer.writeAttribute("maxOutDegree", Integer.toString((int) layer.nodes.getMaximum(NODE_OUTDEGREE, nodeIndex)));
+					writer.writeAttribute("avgIngressTraffic", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? layer.nodes.getAccumulated(NODE_INGRESSTRAFFIC, nodeIndex) / totalTime_thisNode_thisLayer : 0));
+
+					double minNodeIngressTraffic_thisNode_thisLayer = layer.nodes.getMinimum(NODE_INGRESSTRAFFIC, nodeIndex);
+					writer.writeAttribute("minIngressTraffic", String.format("%.3f", minNodeIngressTraffic_thisNode_thisLayer));
+					writer.writeAttribute("maxIngressTraffic", String.format("%.3f", layer.nodes.getMaximum(NODE_INGRESSTRAFFIC, nodeIndex)));
+					writer.writeAttribute("avgEgressTraffic", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? layer.nodes.getAccumulated(NODE_EGRESSTRAFFIC, nodeIndex) / totalTime_thisNode_thisLayer : 0));
+
+					double minNodeEgressTraffic_thisNode_thisLayer = layer.nodes.getMinimum(NODE_EGRESSTRAFFIC, nodeIndex);
 					writer.writeAttribute("minEgressTraffic", String.format("%.3f", minNodeEgressTraffic_thisNode_thisLayer));
-					writer.writeAttribute("maxEgressTraffic", String.format("%.3f", maxNodeEgressTraffic.get(layerId).get(nodeId)));
-					
-					writer.writeEndElement();	
-				}			
-				
+					writer.writeAttribute("maxEgressTraffic", String.format("%.3f", layer.nodes.getMaximum(NODE_EGRESSTRAFFIC, nodeIndex)));
+
+					writer.writeEndElement();
+				}
+
 				/* Write link information */
-				Collection<Long> linkIds_thisLayer = netState.getLinkIds(netState.getNetworkLayerFromId (layerId));
-				for(long linkId : linkIds_thisLayer)
+				for(Link netStateLink : netState.getLinks(netStateLayer))
 				{
-					checkAndCreateLink(layerId, linkId);
-					Link netStateLink = netState.getLinkFromId (linkId);
+					final int linkIndex = layer.links.indexOf(netStateLink);
 					long originNodeId_thisLink = netStateLink.getOriginNode().getId ();
 					long destinationNodeId_thisLink = netStateLink.getDestinationNode().getId ();
 					String originNodeName = netStateLink.getOriginNode().getName ();
 					String destinationNodeName = netStateLink.getDestinationNode().getName ();
-					double upTime_thisLink = accum_linkUpTime.get(layerId).get(linkId).doubleValue();
-					double totalTime_thisLink = accum_linkTotalTime.get(layerId).get(linkId).doubleValue();
+					double upTime_thisLink = layer.links.getAccumulated(LINK_UP, linkIndex);
+					double totalTime_thisLink = layer.links.getAccumulated(LINK_TOTALTIME, linkIndex);
 					double upTimePercentage_thisLink = totalTime_thisLink > 0 ? 100 * upTime_thisLink / totalTime_thisLink : 0;
-					double oversubscribedTime_thisLink = accum_linkOversubscribedTime.get(layerId).get(linkId).doubleValue();
+					double oversubscribedTime_thisLink = layer.links.getAccumulated(LINK_OVERSUBSCRIBED, linkIndex);
 					double oversubscribedTimePercentage_thisLink = totalTime_thisLink > 0 ? 100 * oversubscribedTime_thisLink / totalTime_thisLink : 0;
-					
+
 					writer.writeStartElement("link");
-					writer.writeAttribute("id", Long.toString(linkId));
+					writer.writeAttribute("id", Long.toString(netStateLink.getId()));
 					writer.writeAttribute("originNode", originNodeName.isEmpty() ? Long.toString(originNodeId_thisLink) : String.format("%d (%s)", originNodeId_thisLink, originNodeName));
 					writer.writeAttribute("destinationNode", destinationNodeName.isEmpty() ? Long.toString(destinationNodeId_thisLink) : String.format("%d (%s)", destinationNodeId_thisLink, destinationNodeName));
-					writer.writeAttribute("avgLengthInKm", String.format("%.3f", totalTime_thisLink > 0 ? accum_avgLinkLengthInKm.get(layerId).get(linkId).doubleValue() / totalTime_thisLink : 0));
-					
-					double minLinkLengthInKm_thisLink = minLinkLengthInKm.get(layerId).get(linkId).doubleValue();
-					if (minLinkLengthInKm_thisLink == Double.MAX_VALUE) minLinkLengthInKm_thisLink = 0;
-					writer.writeAttribute("minLengthInKm", String.format("%.3f", minLinkLengthInKm_thisLink));
-					writer.writeAttribute("maxLengthInKm", String.format("%.3f", maxLinkLengthInKm.get(layerId).get(linkId).doubleValue()));
-					writer.writeAttribute("avgCapacity", String.format("%.3f", totalTime_thisLink > 0 ? accum_avgCapacity.get(layerId).get(linkId).doubleValue() / totalTime_thisLink : 0));
-					
-					double minCapacity_thisLayer = minCapacity.get(layerId).get(linkId).doubleValue();
-					if (minCapacity_thisLayer == Double.MAX_VALUE) minCapacity_thisLayer = 0;
-					writer.writeAttribute("minCapacity", String.format("%.3f", minCapacity_thisLayer));
-					writer.writeAttribute("maxCapacity", String.format("%.3f", maxCapacity.get(layerId).get(linkId).doubleValue()));
-					writer.writeAttribute("avgOccupiedCapacity", String.format("%.3f", totalTime_thisLink > 0 ? accum_avgLinkOccupiedCapacity.get(layerId).get(linkId).doubleValue() / totalTime_thisLink : 0));
-					
-					double minCarriedTraffic_thisLink = minLinkOccupiedCapacity.get(layerId).get(linkId).doubleValue();
-					if (minCarriedTraffic_thisLink == Double.MAX_VALUE) minCarriedTraffic_thisLink = 0;
-					writer.writeAttribute("minOccupiedCapacity", String.format("%.3f", minCarriedTraffic_thisLink));
-					writer.writeAttribute("maxOccupiedCapacity", String.format("%.3f", maxLinkOccupiedCapacity.get(layerId).get(linkId).doubleValue()));
-					
-					writer.writeAttribute("avgUtilization", String.format("%.3f", totalTime_thisLink > 0 ? accum_avgUtilization.get(layerId).get(linkId).doubleValue() / totalTime_thisLink : 0));
-					
-					double minUtilization_thisLink = minUtilization.get(layerId).get(linkId).doubleValue();
-					if (minUtilization_thisLink == Double.MAX_VALUE) minUtilization_thisLink = 0;
-					writer.writeAttribute("minUtilization", String.format("%.3f", minUtilization_thisLink));
-					writer.writeAttribute("maxUtilization", String.format("%.3f", maxUtilization.get(layerId).get(linkId).doubleValue()));
-					
-					writer.writeAttribute("avgOversubscribedCapacity", String.format("%.3f", totalTime_thisLink > 0 ? accum_avgOversubscribedCapacity.get(layerId).get(linkId).doubleValue() / totalTime_thisLink : 0));
-					
-					double minOversubscribedCapacity_thisLink = minOversubscribedCapacity.get(layerId).get(linkId).doubleValue();
-					if (minOversubscribedCapacity_thisLink == Double.MAX_VALUE) minOversubscribedCapacity_thisLink = 0;
-					writer.writeAttribute("minOversubscribedCapacity", String.format("%.3f", minOversubscribedCapacity_thisLink));
-					writer.writeAttribute("maxOversubscribedCapacity", String.format("%.3f", maxOversubscribedCapacity.get(layerId).get(linkId).doubleValue()));
+					writer.writeAttribute("avgLengthInKm", String.format("%.3f", totalTime_thisLink > 0 ? layer.links.getAccumulated(LINK_LENGTHINKM, linkIndex) / totalTime_thisLink : 0));
+					writer.writeAttribute("minLengthInKm", String.format("%.3f", layer.links.getMinimum(LINK_LENGTHINKM, linkIndex)));
+					writer.writeAttribute("maxLengthInKm", String.format("%.3f", layer.links.getMaximum(LINK_LENGTHINKM, linkIndex)));
+					writer.writeAttribute("avgCapacity", String.format("%.3f", totalTime_thisLink > 0 ? layer.links.getAccumulated(LINK_CAPACITY, linkIndex) / totalTime_thisLink : 0));
+					writer.writeAttribute("minCapacity", String.format("%.3f", layer.links.getMinimum(LINK_CAPACITY, linkIndex)));
+					writer.writeAttribute("maxCapacity", String.format("%.3f", layer.links.getMaximum(LINK_CAPACITY, linkIndex)));
+					writer.writeAttribute("avgOccupiedCapacity", String.format("%.3f", totalTime_thisLink > 0 ? layer.links.getAccumulated(LINK_OCCUPIEDCAPACITY, linkIndex) / totalTime_thisLink : 0));
+					writer.writeAttribute("minOccupiedCapacity", String.format("%.3f", layer.links.getMinimum(LINK_OCCUPIEDCAPACITY, linkIndex)));
+					writer.writeAttribute("maxOccupiedCapacity", String.format("%.3f", layer.links.getMaximum(LINK_OCCUPIEDCAPACITY, linkIndex)));
+					writer.writeAttribute("avgUtilization", String.format("%.3f", totalTime_thisLink > 0 ? layer.links.getAccumulated(LINK_UTILIZATION, linkIndex) / totalTime_thisLink : 0));
+					writer.writeAttribute("minUtilization", String.format("%.3f", layer.links.getMinimum(LINK_UTILIZATION, linkIndex)));
+					writer.writeAttribute("maxUtilization", String.format("%.3f", layer.links.getMaximum(LINK_UTILIZATION, linkIndex)));
+					writer.writeAttribute("avgOversubscribedCapacity", String.format("%.3f", totalTime_thisLink > 0 ? layer.links.getAccumulated(LINK_OVERSUBSCRIBEDCAPACITY, linkIndex) / totalTime_thisLink : 0));
+					writer.writeAttribute("minOversubscribedCapacity", String.format("%.3f", layer.links.getMinimum(LINK_OVERSUBSCRIBEDCAPACITY, linkIndex)));
+					writer.writeAttribute("maxOversubscribedCapacity", String.format("%.3f", layer.links.getMaximum(LINK_OVERSUBSCRIBEDCAPACITY, linkIndex)));
 					writer.writeAttribute("oversubscribedTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(oversubscribedTime_thisLink));
 					writer.writeAttribute("oversubscribedTimePercentage", String.format("%.3f", oversubscribedTimePercentage_thisLink));
 					writer.writeAttribute("upTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(upTime_thisLink));
 					writer.writeAttribute("upTimePercentage", String.format("%.3f", upTimePercentage_thisLink));
 					writer.writeAttribute("totalTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalTime_thisLink));
-					writer.writeEndElement();	
+					writer.writeEndElement();
 				}
-				
+
 				/* Write demand information */
-				for(long demandId : demandIds_thisLayer)
+				for(Demand netStateDemand : demands_thisLayer)
 				{
-					Demand netStateDemand = netState.getDemandFromId (demandId);
+					final int demandIndex = layer.demands.indexOf(netStateDemand);
 					long ingressNodeId_thisDemand = netStateDemand.getIngressNode().getId ();
 					long egressNodeId_thisDemand = netStateDemand.getEgressNode().getId ();
 					String ingressNodeName = netStateDemand.getIngressNode().getName ();
 					String egressNodeName = netStateDemand.getEgressNode().getName ();
-					double totalTime_thisDemand = demandTotalTime.get(layerId).get(demandId).doubleValue();
-					double excessCarriedTrafficTime_thisDemand = excessDemandCarriedTrafficTime.get(layerId).get(demandId).doubleValue();
+					double totalTime_thisDemand = layer.demands.getAccumulated(DEMAND_TOTALTIME, demandIndex);
+					double excessCarriedTrafficTime_thisDemand = layer.demands.getAccumulated(DEMAND_EXCESSCARRIEDTRAFFIC_ACTIVE, demandIndex);
 					double excessCarriedTrafficTimePercentage_thisDemand = totalTime_thisDemand > 0 ? 100 * excessCarriedTrafficTime_thisDemand / totalTime_thisDemand : 0;
 
 					writer.writeStartElement("demand");
-					writer.writeAttribute("id", Long.toString(demandId));
+					writer.writeAttribute("id", Long.toString(netStateDemand.getId()));
 					writer.writeAttribute("ingressNode", ingressNodeName.isEmpty() ? Long.toString(ingressNodeId_thisDemand) : String.format("%d (%s)", ingressNodeId_thisDemand, ingressNodeName));
 					writer.writeAttribute("egressNode", egressNodeName.isEmpty() ? Long.toString(egressNodeId_thisDemand) : String.format("%d (%s)", egressNodeId_thisDemand, egressNodeName));
-					writer.writeAttribute("avgOfferedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? accum_avgDemandOfferedTraffic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					
-					double minOfferedTraffic_thisDemand = minDemandOfferedTraffic.get(layerId).get(demandId).doubleValue();
-					if (minOfferedTraffic_thisDemand == Double.MAX_VALUE) minOfferedTraffic_thisDemand = 0;
-					writer.writeAttribute("minOfferedTraffic", String.format("%.3f", minOfferedTraffic_thisDemand));
-					writer.writeAttribute("maxOfferedTraffic", String.format("%.3f", maxDemandOfferedTraffic.get(layerId).get(demandId).doubleValue()));
-					writer.writeAttribute("avgCarriedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? accum_avgDemandCarriedTraffic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					
-					double minCarriedTraffic_thisDemand = minDemandCarriedTraffic.get(layerId).get(demandId).doubleValue();
-					if (minCarriedTraffic_thisDemand == Double.MAX_VALUE) minCarriedTraffic_thisDemand = 0;
-					writer.writeAttribute("minCarriedTraffic", String.format("%.3f", minCarriedTraffic_thisDemand));
-					writer.writeAttribute("maxCarriedTraffic", String.format("%.3f", maxDemandCarriedTraffic.get(layerId).get(demandId).doubleValue()));
-					writer.writeAttribute("avgBlockedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? accum_avgDemandBlockedTraffic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					
-					double minBlockedTraffic_thisDemand = minDemandBlockedTraffic.get(layerId).get(demandId).doubleValue();
-					if (minBlockedTraffic_thisDemand == Double.MAX_VALUE) minBlockedTraffic_thisDemand = 0;
-					writer.writeAttribute("minBlockedTraffic", String.format("%.3f", minBlockedTraffic_thisDemand));
-					writer.writeAttribute("maxBlockedTraffic", String.format("%.3f", maxDemandBlockedTraffic.get(layerId).get(demandId).doubleValue()));
-					writer.writeAttribute("availabilityClassic", String.format("%.6f", totalTime_thisDemand > 0 ? accum_demandAvailabilityClassic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					writer.writeAttribute("availabilityWeighted", String.format("%.6f", totalTime_thisDemand > 0 ? accum_demandAvailabilityWeighted.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					writer.writeAttribute("avgExcessCarriedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? accum_avgExcessCarriedTraffic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					
-					double minExcessCarriedTraffic_thisDemand = minDemandExcessCarriedTraffic.get(layerId).get(demandId).doubleValue();
-					if (minExcessCarriedTraffic_thisDemand == Double.MAX_VALUE) minExcessCarriedTraffic_thisDemand = 0;
-					writer.writeAttribute("minExcessCarriedTraffic", String.format("%.3f", minExcessCarriedTraffic_thisDemand));
-					writer.writeAttribute("maxExcessCarriedTraffic", String.format("%.3f", maxDemandExcessCarriedTraffic.get(layerId).get(demandId).doubleValue()));
+					writer.writeAttribute("avgOfferedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? layer.demands.getAccumulated(DEMAND_OFFEREDTRAFFIC, demandIndex) / totalTime_thisDemand : 0));
+					writer.writeAttribute("minOfferedTraffic", String.format("%.3f", layer.demands.getMinimum(DEMAND_OFFEREDTRAFFIC, demandIndex)));
+					writer.writeAttribute("maxOfferedTraffic", String.format("%.3f", layer.demands.getMaximum(DEMAND_OFFEREDTRAFFIC, demandIndex)));
+					writer.writeAttribute("avgCarriedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? layer.demands.getAccumulated(DEMAND_CARRIEDTRAFFIC, demandIndex) / totalTime_thisDemand : 0));
+					writer.writeAttribute("minCarriedTraffic", String.format("%.3f", layer.demands.getMinimum(DEMAND_CARRIEDTRAFFIC, demandIndex)));
+					writer.writeAttribute("maxCarriedTraffic", String.format("%.3f", layer.demands.getMaximum(DEMAND_CARRIEDTRAFFIC, demandIndex)));
+					writer.writeAttribute("avgBlockedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? layer.demands.getAccumulated(DEMAND_BLOCKEDTRAFFIC, demandIndex) / totalTime_thisDemand : 0));
+					writer.writeAttribute("minBlockedTraffic", String.format("%.3f", layer.demands.getMinimum(DEMAND_BLOCKEDTRAFFIC, demandIndex)));
+					writer.writeAttribute("maxBlockedTraffic", String.format("%.3f", layer.demands.getMaximum(DEMAND_BLOCKEDTRAFFIC, demandIndex)));
+					writer.writeAttribute("availabilityClassic", String.format("%.6f", totalTime_thisDemand > 0 ? layer.demands.getAccumulated(DEMAND_AVAILABILITYCLASSIC, demandIndex) / totalTime_thisDemand : 0));
+					writer.writeAttribute("availabilityWeighted", String.format("%.6f", totalTime_thisDemand > 0 ? layer.demands.getAccumulated(DEMAND_AVAILABILITYWEIGHTED, demandIndex) / totalTime_thisDemand : 0));
+					writer.writeAttribute("avgExcessCarriedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? layer.demands.getAccumulated(DEMAND_EXCESSCARRIEDTRAFFIC, demandIndex) / totalTime_thisDemand : 0));
+					writer.writeAttribute("minExcessCarriedTraffic", String.format("%.3f", layer.demands.getMinimum(DEMAND_EXCESSCARRIEDTRAFFIC, demandIndex)));
+					writer.writeAttribute("maxExcessCarriedTraffic", String.format("%.3f", layer.demands.getMaximum(DEMAND_EXCESSCARRIEDTRAFFIC, demandIndex)));
 					writer.writeAttribute("excessCarriedTrafficTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(excessCarriedTrafficTime_thisDemand));
 					writer.writeAttribute("excessCarriedTrafficTimePercentage", String.format("%.3f", excessCarriedTrafficTimePercentage_thisDemand));
 					writer.writeAttribute("totalTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalTime_thisDemand));
-					writer.writeEndElement();	
+					writer.writeEndElement();
 				}
-				
-				writer.writeEndElement();	
-			}			
+
+				writer.writeEndElement();
+			}
 
 			writer.writeEndElement();
 			writer.writeEndDocument();
@@ -1062,4 +454,429 @@ public class SimStats
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * Returns the main results of the simulation for each layer (average traffic, blocked traffic, availability and congestion),
+	 * so that they can be aggregated among independent replications of the same simulation. The names of the results include
+	 * the layer identifier, and are returned in a fixed order.
+	 *
+	 * @param simTime Current simulation time
+	 * @return Map of result name to value (empty if no event was processed, or if the simulation time is zero)
+	 * @since 0.6.6
+	 */
+	public Map<String, Double> getSummary(double simTime)
+	{
+		Map<String, Double> summary = new LinkedHashMap<String, Double>();
+		if (lastEventTime == 0 || simTime - transitoryTime == 0) return summary;
+
+		for (NetworkLayer netStateLayer : netState.getNetworkLayers ())
+		{
+			LayerStats layer = getLayerStats(netStateLayer);
+			if (layer == null) layer = new LayerStats(netStateLayer.getId());
+			layer.demands.updateAll(lastEventTime);
+
+			double totalTime_thisLayer = layer.accum_layerTotalTime;
+			double[] worstDemandAvailability_thisLayer = getWorstDemandAvailability(layer, netState.getDemands(netStateLayer));
+			String prefix = String.format("Layer %d (%s): ", netStateLayer.getId(), netStateLayer.getName());
+			summary.put(prefix + "average offered traffic", totalTime_thisLayer > 0 ? layer.accum_avgTotalOfferedTraffic / totalTime_thisLayer : 0);
+			summary.put(prefix + "average carried traffic", totalTime_thisLayer > 0 ? layer.accum_avgTotalCarriedTraffic / totalTime_thisLayer : 0);
+			summary.put(prefix + "blocked traffic (%)", layer.accum_avgTotalOfferedTraffic > 0 ? 100 * layer.accum_avgTotalBlockedTraffic / layer.accum_avgTotalOfferedTraffic : 0);
+			summary.put(prefix + "average total capacity", totalTime_thisLayer > 0 ? layer.accum_avgTotalCapacity / totalTime_thisLayer : 0);
+			summary.put(prefix + "average congestion", totalTime_thisLayer > 0 ? layer.accum_avgCongestion / totalTime_thisLayer : 0);
+			summary.put(prefix + "maximum congestion", layer.maxCongestion);
+			summary.put(prefix + "availability (classic)", totalTime_thisLayer > 0 ? layer.accum_availabilityClassic / totalTime_thisLayer : 0);
+			summary.put(prefix + "availability (weighted)", totalTime_thisLayer > 0 ? layer.accum_availabilityWeighted / totalTime_thisLayer : 0);
+			summary.put(prefix + "worst demand availability (classic)", worstDemandAvailability_thisLayer[0]);
+			summary.put(prefix + "worst demand availability (weighted)", worstDemandAvailability_thisLayer[1]);
+		}
+
+		return summary;
+	}
+
+	/* Returns the worst classic and weighted availability among the current and the removed demands of the layer. The demand accumulators must be up to date */
+	private static double[] getWorstDemandAvailability(LayerStats layer, List<Demand> demands)
+	{
+		double worstDemandAvailabilityClassic = layer.worstDemandAvailabilityClassic;
+		double worstDemandAvailabilityWeighted = layer.worstDemandAvailabilityWeighted;
+		for(Demand netStateDemand : demands)
+		{
+			final int demandIndex = layer.demands.indexOf(netStateDemand);
+
+			double totalTime_thisDemand = layer.demands.getAccumulated(DEMAND_TOTALTIME, demandIndex);
+			worstDemandAvailabilityClassic = Math.min(worstDemandAvailabilityClassic, totalTime_thisDemand > 0 ? layer.demands.getAccumulated(DEMAND_AVAILABILITYCLASSIC, demandIndex) / totalTime_thisDemand : 0);
+			worstDemandAvailabilityWeighted = Math.min(worstDemandAvailabilityWeighted, totalTime_thisDemand > 0 ? layer.demands.getAccumulated(DEMAND_AVAILABILITYWEIGHTED, demandIndex) / totalTime_thisDemand : 0);
+		}
+		return new double[] { worstDemandAvailabilityClassic, worstDemandAvailabilityWeighted };
+	}
+
+	private LayerStats getLayerStats(NetworkLayer layer)
+	{
+		final int index = layer.getIndex();
+		if (index >= layerStats.length || layerStats[index].id != layer.getId()) return null;
+		return layerStats[index];
+	}
+
+	/* Updates the accumulators and the previous state of the elements changed since the last update */
+	private void updateChangedElements(double simTime)
+	{
+		for (int cont = 0; cont < nodeStats.numChanged; cont++)
+		{
+			final Node node = netState.getNode(nodeStats.changedIndexes[cont]);
+			nodeStats.update(node.getIndex(), simTime);
+			readNodeState(node);
+		}
+		nodeStats.clearChanged();
+
+		for (NetworkLayer netStateLayer : netState.getNetworkLayers())
+		{
+			final LayerStats layer = layerStats[netStateLayer.getIndex()];
+			for (int cont = 0; cont < layer.links.numChanged; cont++)
+			{
+				final Link link = netState.getLink(layer.links.changedIndexes[cont], netStateLayer);
+				layer.links.update(link.getIndex(), simTime);
+				readLinkState(layer, link);
+			}
+			layer.links.clearChanged();
+			if (layer.congestionToRecompute) layer.recomputeCongestion();
+
+			for (int cont = 0; cont < layer.demands.numChanged; cont++)
+			{
+				final Demand demand = netState.getDemand(layer.demands.changedIndexes[cont], netStateLayer);
+				layer.demands.update(demand.getIndex(), simTime);
+				readDemandState(layer, demand, simTime, true);
+			}
+			layer.demands.clearChanged();
+		}
+	}
+
+	/* Rebuilds the statistics of all the elements, keeping the accumulators of the elements that still exist */
+	private void synchronize(double simTime)
+	{
+		/* Node information */
+		final List<Node> nodes = netState.getNodes();
+		final long[] nodeIds = getIds(nodes);
+		final ElementStats previousNodeStats = nodeStats;
+		nodeStats = new ElementStats(nodeIds, NUMBER_OF_NODE_METRICS, simTime);
+		nodeStats.copyAccumulatorsFrom(previousNodeStats, netState::getNodeFromId, simTime);
+		for (Node node : nodes) readNodeState(node);
+		previousState_numNodes = nodes.size();
+
+		/* Layer information */
+		final Map<Long, LayerStats> previousLayerStats = new HashMap<Long, LayerStats>();
+		for (LayerStats layer : layerStats) previousLayerStats.put(layer.id, layer);
+		final List<NetworkLayer> layers = netState.getNetworkLayers();
+		layerStats = new LayerStats[layers.size()];
+		for (NetworkLayer netStateLayer : layers)
+		{
+			LayerStats layer = previousLayerStats.get(netStateLayer.getId());
+			if (layer == null) layer = new LayerStats(netStateLayer.getId());
+			layerStats[netStateLayer.getIndex()] = layer;
+
+			/* Node information in this layer */
+			final ElementStats previousLayerNodeStats = layer.nodes;
+			layer.nodes = new ElementStats(nodeIds, NUMBER_OF_NODELAYER_METRICS, simTime);
+			layer.nodes.copyAccumulatorsFrom(previousLayerNodeStats, netState::getNodeFromId, simTime);
+
+			/* Link information in this layer */
+			final List<Link> links = netState.getLinks(netStateLayer);
+			final ElementStats previousLinkStats = layer.links;
+			layer.links = new ElementStats(getIds(links), NUMBER_OF_LINK_METRICS, simTime);
+			layer.links.copyAccumulatorsFrom(previousLinkStats, netState::getLinkFromId, simTime);
+			layer.numLinks = links.size();
+			layer.totalCapacity = 0;
+			layer.congestion = 0;
+			layer.congestionToRecompute = false;
+			for (Link link : links)
+			{
+				readLinkState(layer, link);
+				layer.nodes.previousState[NODE_OUTDEGREE][link.getOriginNode().getIndex()]++;
+				layer.nodes.previousState[NODE_INDEGREE][link.getDestinationNode().getIndex()]++;
+			}
+
+			/* Demand information in this layer. The availability of the removed demands is taken into account in the worst demand availability */
+			final List<Demand> demands = netState.getDemands(netStateLayer);
+			final ElementStats previousDemandStats = layer.demands;
+			layer.demands = new ElementStats(getIds(demands), NUMBER_OF_DEMAND_METRICS, simTime);
+			for (int index = 0; index < previousDemandStats.ids.length; index++)
+			{
+				if (layer.demands.indexOf(netState.getDemandFromId(previousDemandStats.ids[index])) != -1) continue;
+				previousDemandStats.update(index, lastEventTime);
+				double totalTime_thisDemand = previousDemandStats.accum[DEMAND_TOTALTIME][index];
+				if (totalTime_thisDemand > 0)
+				{
+					layer.worstDemandAvailabilityClassic = Math.min(layer.worstDemandAvailabilityClassic, previousDemandStats.accum[DEMAND_AVAILABILITYCLASSIC][index] / totalTime_thisDemand);
+					layer.worstDemandAvailabilityWeighted = Math.min(layer.worstDemandAvailabilityWeighted, previousDemandStats.accum[DEMAND_AVAILABILITYWEIGHTED][index] / totalTime_thisDemand);
+				}
+			}
+			layer.demands.copyAccumulatorsFrom(previousDemandStats, netState::getDemandFromId, simTime);
+			layer.numDemands = demands.size();
+			layer.totalOfferedTraffic = 0;
+			layer.totalCarriedTraffic = 0;
+			layer.totalBlockedTraffic = 0;
+			for (Demand demand : demands)
+			{
+				readDemandState(layer, demand, simTime, false);
+				layer.nodes.previousState[NODE_INGRESSTRAFFIC][demand.getIngressNode().getIndex()] += demand.getCarriedTraffic();
+				layer.nodes.previousState[NODE_EGRESSTRAFFIC][demand.getEgressNode().getIndex()] += demand.getCarriedTraffic();
+			}
+		}
+		previousState_numLayers = layers.size();
+
+		structureChanged = false;
+	}
+
+	private void readNodeState(Node node)
+	{
+		final int index = node.getIndex();
+		nodeStats.previousState[NODE_UP][index] = node.isUp() ? 1 : 0;
+		nodeStats.previousState[NODE_TOTALTIME][index] = 1;
+	}
+
+	/* Sets the previous state of the link to the current one, updating the aggregated values of the layer */
+	private void readLinkState(LayerStats layer, Link link)
+	{
+		final ElementStats links = layer.links;
+		final int index = link.getIndex();
+
+		double u_e = link.getCapacity();
+		double y_e = link.getOccupiedCapacity();
+		double rho_e = y_e == 0 ? 0 : Math.max(y_e / u_e, 0);
+		double oversubscribedCapacity = y_e - u_e; if (oversubscribedCapacity < precisionFactor) oversubscribedCapacity = 0;
+
+		layer.totalCapacity += u_e - links.previousState[LINK_CAPACITY][index];
+		final double previousRho_e = links.previousState[LINK_UTILIZATION][index];
+		if (rho_e >= layer.congestion) layer.congestion = rho_e;
+		else if (previousRho_e == layer.congestion) layer.congestionToRecompute = true;
+
+		links.previousState[LINK_LENGTHINKM][index] = link.getLengthInKm();
+		links.previousState[LINK_CAPACITY][index] = u_e;
+		links.previousState[LINK_OCCUPIEDCAPACITY][index] = y_e;
+		links.previousState[LINK_UTILIZATION][index] = rho_e;
+		links.previousState[LINK_OVERSUBSCRIBEDCAPACITY][index] = oversubscribedCapacity;
+		links.previousState[LINK_OVERSUBSCRIBED][index] = oversubscribedCapacity > 0 ? 1 : 0;
+		links.previousState[LINK_UP][index] = link.isUp() ? 1 : 0;
+		links.previousState[LINK_TOTALTIME][index] = 1;
+	}
+
+	/* Sets the previous state of the demand to the current one, updating the aggregated values of the layer, and optionally the ingress and egress traffic of its end nodes */
+	private void readDemandState(LayerStats layer, Demand demand, double simTime, boolean updateEndNodes)
+	{
+		final ElementStats demands = layer.demands;
+		final int index = demand.getIndex();
+
+		double h_d = demand.getOfferedTraffic();
+		double r_d = demand.getCarriedTraffic();
+		double blockedTraffic_d = h_d - r_d; if (blockedTraffic_d < precisionFactor) blockedTraffic_d = 0;
+		double excessCarriedTraffic_d = r_d - h_d; if (excessCarriedTraffic_d < precisionFactor) excessCarriedTraffic_d = 0;
+
+		final double previousR_d = demands.previousState[DEMAND_CARRIEDTRAFFIC][index];
+		layer.totalOfferedTraffic += h_d - demands.previousState[DEMAND_OFFEREDTRAFFIC][index];
+		layer.totalCarriedTraffic += r_d - previousR_d;
+		layer.totalBlockedTraffic += blockedTraffic_d - demands.previousState[DEMAND_BLOCKEDTRAFFIC][index];
+		if (updateEndNodes && r_d != previousR_d)
+		{
+			final int ingressNodeIndex = demand.getIngressNode().getIndex();
+			final int egressNodeIndex = demand.getEgressNode().getIndex();
+			layer.nodes.update(ingressNodeIndex, simTime);
+			layer.nodes.previousState[NODE_INGRESSTRAFFIC][ingressNodeIndex] += r_d - previousR_d;
+			layer.nodes.update(egressNodeIndex, simTime);
+			layer.nodes.previousState[NODE_EGRESSTRAFFIC][egressNodeIndex] += r_d - previousR_d;
+		}
+
+		demands.previousState[DEMAND_OFFEREDTRAFFIC][index] = h_d;
+		demands.previousState[DEMAND_CARRIEDTRAFFIC][index] = r_d;
+		demands.previousState[DEMAND_BLOCKEDTRAFFIC][index] = blockedTraffic_d;
+		demands.previousState[DEMAND_EXCESSCARRIEDTRAFFIC][index] = excessCarriedTraffic_d;
+		demands.previousState[DEMAND_AVAILABILITYCLASSIC][index] = blockedTraffic_d == 0 ? 1 : 0;
+		demands.previousState[DEMAND_AVAILABILITYWEIGHTED][index] = h_d > 0 ? 1 - blockedTraffic_d / h_d : 1;
+		demands.previousState[DEMAND_EXCESSCARRIEDTRAFFIC_ACTIVE][index] = excessCarriedTraffic_d > 0 ? 1 : 0;
+		demands.previousState[DEMAND_TOTALTIME][index] = 1;
+	}
+
+	private static long[] getIds(List<? extends NetworkElement> elements)
+	{
+		final long[] ids = new long[elements.size()];
+		for (NetworkElement e : elements) ids[e.getIndex()] = e.getId();
+		return ids;
+	}
+
+	/* Time-weighted statistics of a set of elements of the same type, stored in arrays indexed by element index (and metric). For each element, the value
+	 * of the metrics in the previous state is kept, together with the simulation time when its accumulators were updated for the last time. Then, the
+	 * accumulators of an element only need to be updated when the previous state changes, or when the results are requested */
+	private static final class ElementStats
+	{
+		private final long[] ids;
+		private final double[] lastUpdateTime;
+		private final double[][] previousState, accum, min, max;
+		private final boolean[] changed;
+		private final int[] changedIndexes;
+		private int numChanged;
+
+		private ElementStats(long[] ids, int numMetrics, double simTime)
+		{
+			final int numElements = ids.length;
+			this.ids = ids;
+			this.lastUpdateTime = new double[numElements];
+			Arrays.fill(lastUpdateTime, simTime);
+			this.previousState = new double[numMetrics][numElements];
+			this.accum = new double[numMetrics][numElements];
+			this.min = new double[numMetrics][numElements];
+			this.max = new double[numMetrics][numElements];
+			for (double[] min_thisMetric : min) Arrays.fill(min_thisMetric, Double.MAX_VALUE);
+			this.changed = new boolean[numElements];
+			this.changedIndexes = new int[numElements];
+			this.numChanged = 0;
+		}
+
+		/* Copies the accumulators of the elements which are also in the given statistics, after updating them to the given time. The elements 
+		 * are found in the current network state from their identifiers */
+		private void copyAccumulatorsFrom(ElementStats previous, LongFunction<? extends NetworkElement> idToElement, double simTime)
+		{
+			if (previous == null) return;
+			for (int previousIndex = 0; previousIndex < previous.ids.length; previousIndex++)
+			{
+				final int index = indexOf(idToElement.apply(previous.ids[previousIndex]));
+				if (index == -1) continue;
+				previous.update(previousIndex, simTime);
+				for (int metric = 0; metric < accum.length; metric++)
+				{
+					accum[metric][index] = previous.accum[metric][previousIndex];
+					min[metric][index] = previous.min[metric][previousIndex];
+					max[metric][index] = previous.max[metric][previousIndex];
+				}
+			}
+		}
+
+		/* Returns the index of the element in these statistics (its index when they were built), or -1 if it is null or not in them */
+		private int indexOf(NetworkElement element)
+		{
+			if (element == null) return -1;
+			final int index = element.getIndex();
+			return index >= 0 && index < ids.length && ids[index] == element.getId() ? index : -1;
+		}
+
+		/* Marks the element as changed. Returns false if the element is not the one expected in that index */
+		private boolean markChanged(int index, long id)
+		{
+			if (index >= ids.length || ids[index] != id) return false;
+			if (!changed[index])
+			{
+				changed[index] = true;
+				changedIndexes[numChanged++] = index;
+			}
+			return true;
+		}
+
+		private void clearChanged()
+		{
+			for (int cont = 0; cont < numChanged; cont++) changed[changedIndexes[cont]] = false;
+			numChanged = 0;
+		}
+
+		/* Accumulates the previous state of the element since its last update until the given time */
+		private void update(int index, double simTime)
+		{
+			final double timeInterval = simTime - lastUpdateTime[index];
+			if (timeInterval <= 0) return;
+			for (int metric = 0; metric < previousState.length; metric++)
+			{
+				final double value = previousState[metric][index];
+				accum[metric][index] += value * timeInterval;
+				if (value < min[metric][index]) min[metric][index] = value;
+				if (value > max[metric][index]) max[metric][index] = value;
+			}
+			lastUpdateTime[index] = simTime;
+		}
+
+		private void updateAll(double simTime)
+		{
+			for (int index = 0; index < ids.length; index++) update(index, simTime);
+		}
+
+		private double getAccumulated(int metric, int index)
+		{
+			return index == -1 ? 0 : accum[metric][index];
+		}
+
+		private double getMinimum(int metric, int index)
+		{
+			return index == -1 || min[metric][index] == Double.MAX_VALUE ? 0 : min[metric][index];
+		}
+
+		private double getMaximum(int metric, int index)
+		{
+			return index == -1 ? 0 : max[metric][index];
+		}
+	}
+
+	/* Statistics of a layer: the aggregated values for the whole layer, and the statistics of the nodes, links and demands in the layer */
+	private static final class LayerStats
+	{
+		private final long id;
+		private ElementStats nodes, links, demands;
+
+		/* Previous state of the layer */
+		private int numLinks, numDemands;
+		private double totalOfferedTraffic, totalCarriedTraffic, totalBlockedTraffic, totalCapacity, congestion;
+		private boolean congestionToRecompute;
+
+		/* Layer accumulators */
+		private double accum_layerTotalTime, accum_avgNumLinks, accum_avgNumDemands, accum_avgTotalOfferedTraffic, accum_avgTotalCarriedTraffic, accum_avgTotalBlockedTraffic, accum_avgTotalCapacity, accum_avgCongestion, accum_availabilityClassic, accum_availabilityWeighted;
+		private double maxTotalOfferedTraffic, minTotalOfferedTraffic, maxTotalCarriedTraffic, minTotalCarriedTraffic, maxTotalCapacity, minTotalCapacity, maxCongestion, minCongestion;
+		private double worstDemandAvailabilityClassic, worstDemandAvailabilityWeighted;
+		private int maxNumLinks, minNumLinks, maxNumDemands, minNumDemands;
+
+		private LayerStats(long id)
+		{
+			this.id = id;
+			this.nodes = new ElementStats(new long[0], NUMBER_OF_NODELAYER_METRICS, 0);
+			this.links = new ElementStats(new long[0], NUMBER_OF_LINK_METRICS, 0);
+			this.demands = new ElementStats(new long[0], NUMBER_OF_DEMAND_METRICS, 0);
+			this.minTotalOfferedTraffic = Double.MAX_VALUE;
+			this.minTotalCarriedTraffic = Double.MAX_VALUE;
+			this.minTotalCapacity = Double.MAX_VALUE;
+			this.minCongestion = Double.MAX_VALUE;
+			this.worstDemandAvailabilityClassic = 1;
+			this.worstDemandAvailabilityWeighted = 1;
+			this.minNumLinks = Integer.MAX_VALUE;
+			this.minNumDemands = Integer.MAX_VALUE;
+		}
+
+		private void recomputeCongestion()
+		{
+			congestion = 0;
+			for (double rho_e : links.previousState[LINK_UTILIZATION]) congestion = Math.max(congestion, rho_e);
+			congestionToRecompute = false;
+		}
+
+		private void update(double timeInterval, double precisionFactor)
+		{
+			accum_layerTotalTime += timeInterval;
+
+			accum_avgNumLinks += numLinks * timeInterval;
+			maxNumLinks = Math.max(numLinks, maxNumLinks);
+			minNumLinks = Math.min(numLinks, minNumLinks);
+
+			accum_avgNumDemands += numDemands * timeInterval;
+			maxNumDemands = Math.max(numDemands, maxNumDemands);
+			minNumDemands = Math.min(numDemands, minNumDemands);
+
+			accum_avgTotalCapacity += totalCapacity * timeInterval;
+			maxTotalCapacity = Math.max(totalCapacity, maxTotalCapacity);
+			minTotalCapacity = Math.min(totalCapacity, minTotalCapacity);
+			accum_avgCongestion += congestion * timeInterval;
+			maxCongestion = Math.max(congestion, maxCongestion);
+			minCongestion = Math.min(congestion, minCongestion);
+
+			accum_avgTotalOfferedTraffic += totalOfferedTraffic * timeInterval;
+			maxTotalOfferedTraffic = Math.max(totalOfferedTraffic, maxTotalOfferedTraffic);
+			minTotalOfferedTraffic = Math.min(totalOfferedTraffic, minTotalOfferedTraffic);
+			accum_avgTotalCarriedTraffic += totalCarriedTraffic * timeInterval;
+			maxTotalCarriedTraffic = Math.max(totalCarriedTraffic, maxTotalCarriedTraffic);
+			minTotalCarriedTraffic = Math.min(totalCarriedTraffic, minTotalCarriedTraffic);
+			accum_avgTotalBlockedTraffic += totalBlockedTraffic * timeInterval;
+			if (totalBlockedTraffic < precisionFactor) accum_availabilityClassic += timeInterval;
+			accum_availabilityWeighted += totalOfferedTraffic > 0 ? Math.min(1, 1 - totalBlockedTraffic / totalOfferedTraffic) * timeInterval : timeInterval;
+		}
+	}
 }
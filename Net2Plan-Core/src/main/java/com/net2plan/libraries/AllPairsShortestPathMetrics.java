@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.Node;
+
+/** Metrics computed from the shortest paths between all the node pairs of a graph: average shortest path length, diameter, heterogeneity, and node and link
+ * betweenness centrality. They are computed in one shortest path tree search per origin node in a {@link CompactGraph}, followed by the dependency accumulation
+ * of Brandes' algorithm. The origin nodes are processed in parallel in the common fork-join pool (with one workspace per thread), in blocks of consecutive nodes whose
+ * results are merged in order, so the results do not depend on the number of threads.
+ * The last results computed are kept through soft references, and reused while the metrics are requested for the same nodes and links (the same objects,
+ * in the same order) and the same link costs.
+ */
+final class AllPairsShortestPathMetrics
+{
+	private static final int MAXNUMBLOCKS = 64;
+	private static final int MINNUMORIGINNODESPERBLOCK = 16;
+	private static final int NUMCACHEDRESULTS = 4;
+	private static final LinkedList<SoftReference<AllPairsShortestPathMetrics>> lastResults = new LinkedList<> ();
+
+	private final Node [] nodes;
+	private final Link [] links;
+	private final double [] linkCosts;
+
+	/* the graph (arc index = link index), and the arc costs, where the self-loops are not traversed */
+	private final int N;
+	private final CompactGraph graph;
+	private final double [] arcCosts;
+	private final int [][] inArcsPerNode;
+
+	private final double averageShortestPathLength, diameter, heterogeneity;
+	private final double [] nodeBetweennessCentrality, linkBetweennessCentrality;
+
+	/** Returns the metrics of the given graph, reusing the last ones computed for the same graph, if any
+	 * @param nodes the nodes
+	 * @param links the links
+	 * @param linkCostMap the cost of each link (if {@code null}, all the links have cost one)
+	 * @return see above
+	 */
+	static AllPairsShortestPathMetrics get (List<Node> nodes , List<Link> links , Map<Link,Double> linkCostMap)
+	{
+		final double [] linkCosts = new double [links.size()];
+		int e = 0;
+		for (Link link : links)
+		{
+			if (linkCostMap == null) { linkCosts [e ++] = 1.0; continue; }
+			final Double value = linkCostMap.get(link);
+			if (value == null) throw new Net2PlanException("Bad - No weight for link " + link);
+			linkCosts [e ++] = value;
+		}
+		synchronized (lastResults)
+		{
+			for (Iterator<SoftReference<AllPairsShortestPathMetrics>> it = lastResults.iterator() ; it.hasNext() ; )
+			{
+				final SoftReference<AllPairsShortestPathMetrics> ref = it.next();
+				final AllPairsShortestPathMetrics res = ref.get();
+				if (res == null) { it.remove(); continue; }
+				if (!res.isComputedFor(nodes , links , linkCosts)) continue;
+				it.remove();
+				lastResults.addFirst(ref);
+				return res;
+			}
+		}
+		final AllPairsShortestPathMetrics res = new AllPairsShortestPathMetrics(nodes , links , linkCosts);
+		synchronized (lastResults)
+		{
+			lastResults.addFirst(new SoftReference<> (res));
+			while (lastResults.size() > NUMCACHEDRESULTS) lastResults.removeLast();
+		}
+		return res;
+	}
+
+	private AllPairsShortestPathMetrics (List<Node> nodeList , List<Link> linkList , double [] linkCosts)
+	{
+		this.nodes = nodeList.toArray(new Node [nodeList.size()]);
+		this.links = linkList.toArray(new Link [linkList.size()]);
+		this.linkCosts = linkCosts;
+		this.N = nodes.length;
+		this.graph = new CompactGraph(nodeList , linkList , null);
+		this.arcCosts = new double [links.length];
+		for (int e = 0; e < links.length ; e ++)
+			arcCosts [e] = graph.getArcOrigin(e) == graph.getArcDestination(e)? Double.MAX_VALUE : linkCosts [e];
+		this.inArcsPerNode = new int [N][];
+		for (int n = 0; n < N ; n ++)
+			inArcsPerNode [n] = Arrays.stream(graph.getIncomingArcs(n)).filter(a -> arcCosts [a] != Double.MAX_VALUE).toArray();
+
+		/* one search per origin node, in blocks of consecutive origin nodes, merged in order */
+		final int numOriginsPerBlock = Math.max(MINNUMORIGINNODESPERBLOCK , (N + MAXNUMBLOCKS - 1) / MAXNUMBLOCKS);
+		final int numBlocks = (N + numOriginsPerBlock - 1) / numOriginsPerBlock;
+		final ThreadLocal<CompactGraph.Workspace> workspacePerThread = ThreadLocal.withInitial(graph::createWorkspace);
+		final List<BlockResult> blockResults = IntStream.range(0 , numBlocks).parallel().
+				mapToObj(b -> computeBlock(workspacePerThread.get() , b * numOriginsPerBlock , Math.min(N , (b + 1) * numOriginsPerBlock))).collect(Collectors.toList());
+		final BlockResult total = new BlockResult(N , links.length);
+		for (BlockResult blockResult : blockResults) total.add(blockResult);
+
+		this.diameter = total.numPaths == 0? 0 : total.maxDistance;
+		this.averageShortestPathLength = total.numPaths == 0? 0 : total.sumDistances / total.numPaths;
+		this.heterogeneity = total.numPaths == 0 || averageShortestPathLength == 0? 0 : Math.sqrt(total.sumSquaredDeviations / total.numPaths) / averageShortestPathLength;
+		this.nodeBetweennessCentrality = total.nodeBetweenness;
+		this.linkBetweennessCentrality = total.linkBetweenness;
+	}
+
+	/** Returns the average shortest path length among the node pairs connected by a path
+	 * @return see above
+	 */
+	double getAverageShortestPathLength () { return averageShortestPathLength; }
+
+	/** Returns the longest shortest path length among the node pairs connected by a path
+	 * @return see above
+	 */
+	double getDiameter () { return diameter; }
+
+	/** Returns the standard deviation of the shortest path length among the node pairs connected by a path, divided by its average
+	 * @return see above
+	 */
+	double getHeterogeneity () { return heterogeneity; }
+
+	/** Returns the betweenness centrality of each node, in the order of the list of nodes
+	 * @return see above
+	 */
+	double [] getNodeBetweennessCentrality () { return nodeBetweennessCentrality; }
+
+	/** Returns the betweenness centrality of each link, in the order of the list of links
+	 * @return see above
+	 */
+	double [] getLinkBetweennessCentrality () { return linkBetweennessCentrality; }
+
+	private boolean isComputedFor (List<Node> otherNodes , List<Link> otherLinks , double [] otherLinkCosts)
+	{
+		if (otherNodes.size() != nodes.length || otherLinks.size() != links.length) return false;
+		if (!Arrays.equals(linkCosts , otherLinkCosts)) return false;
+		int cont = 0;
+		for (Node n : otherNodes) if (n != nodes [cont ++]) return false;
+		cont = 0;
+		for (Link e : otherLinks) if (e != links [cont ++]) return false;
+		return true;
+	}
+
+	private BlockResult computeBlock (CompactGraph.Workspace ws , int firstOrigin , int lastOriginExcluded)
+	{
+		final BlockResult res = new BlockResult(N , links.length);
+		final double [] numShortestPaths = new double [N];
+		final double [] dependency = new double [N];
+		for (int s = firstOrigin ; s < lastOriginExcluded ; s ++)
+		{
+			/* search, where the nodes are settled in non-decreasing distance */
+			graph.computeShortestPathTree(ws , arcCosts , s , -1);
+			final int numSettled = ws.getNumberOfSettledNodes();
+
+			/* number of shortest paths, and shortest path distances */
+			numShortestPaths [s] = 1;
+			for (int cont = 1; cont < numSettled ; cont ++)
+			{
+				final int w = ws.getSettledNode(cont);
+				final double dist_w = ws.getDistance(w);
+				double sigma = 0;
+				for (int a : inArcsPerNode [w])
+				{
+					final int v = graph.getArcOrigin(a);
+					if (ws.isSettled(v) && ws.getDistance(v) + arcCosts [a] == dist_w) sigma += numShortestPaths [v];
+				}
+				numShortestPaths [w] = sigma;
+				res.addPathDistance(dist_w);
+			}
+
+			/* accumulation of the dependencies, in reverse order */
+			for (int cont = numSettled - 1; cont >= 1 ; cont --)
+			{
+				final int w = ws.getSettledNode(cont);
+				final double dist_w = ws.getDistance(w);
+				final double coef = (1 + dependency [w]) / numShortestPaths [w];
+				for (int a : inArcsPerNode [w])
+				{
+					final int v = graph.getArcOrigin(a);
+					if (!ws.isSettled(v) || ws.getDistance(v) + arcCosts [a] != dist_w) continue;
+					final double partialDependency = numShortestPaths [v] * coef;
+					dependency [v] += partialDependency;
+					res.linkBetweenness [a] += partialDependency;
+				}
+				res.nodeBetweenness [w] += dependency [w];
+			}
+
+			for (int cont = 0; cont < numSettled ; cont ++)
+			{
+				final int n = ws.getSettledNode(cont);
+				numShortestPaths [n] = 0;
+				dependency [n] = 0;
+			}
+		}
+		return res;
+	}
+
+	/* The sums over the origin nodes of a block */
+	private static final class BlockResult
+	{
+		private final double [] nodeBetweenness;
+		private final double [] linkBetweenness;
+		private long numPaths;
+		private double sumDistances, maxDistance, meanDistance, sumSquaredDeviations;
+
+		private BlockResult (int N , int E)
+		{
+			this.nodeBetweenness = new double [N];
+			this.linkBetweenness = new double [E];
+		}
+
+		/* Welford's update of the mean and the sum of squared deviations */
+		private void addPathDistance (double distance)
+		{
+			numPaths ++;
+			sumDistances += distance;
+			if (distance > maxDistance) maxDistance = distance;
+			final double previousMean = meanDistance;
+			meanDistance += (distance - previousMean) / numPaths;
+			sumSquaredDeviations += (distance - previousMean) * (distance - meanDistance);
+		}
+
+		/* Chan's merge of the mean and the sum of squared deviations */
+		private void add (BlockResult other)
+		{
+			for (int n = 0; n < nodeBetweenness.length ; n ++) nodeBetweenness [n] += other.nodeBetweenness [n];
+			for (int e = 0; e < linkBetweenness.length ; e ++) linkBetweenness [e] += other.linkBetweenness [e];
+			if (other.numPaths == 0) return;
+			final long totalNumPaths = numPaths + other.numPaths;
+			final double delta = other.meanDistance - meanDistance;
+			sumSquaredDeviations += other.sumSquaredDeviations + delta * delta * ((double) numPaths * other.numPaths / totalNumPaths);
+			meanDistance += delta * other.numPaths / totalNumPaths;
+			numPaths = totalNumPaths;
+			sumDistances += other.sumDistances;
+			maxDistance = Math.max(maxDistance , other.maxDistance);
+		}
+	}
+}
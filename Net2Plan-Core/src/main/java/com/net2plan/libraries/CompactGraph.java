@@ -0,0 +1,834 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.Node;
+
+/** <p>Compact representation of a directed multigraph, based on primitive arrays. The graph is built once from a collection of nodes and links,
+ * and then can be queried as many times as needed (e.g. once per node pair) without rebuilding any graph structure.</p>
+ *
+ * <p>Nodes and arcs are identified by integer indexes: the position of the node in the collection of nodes given, and the position of the link among the
+ * links included in the graph. Links with a cost of {@code Double.MAX_VALUE} are not included in the graph. The outgoing and incoming arcs of each node are
+ * stored in compressed sparse row (CSR) form. A graph can also be built directly from the end nodes of each arc, for the algorithms that do not work with
+ * {@link Node} and {@link Link} objects.</p>
+ *
+ * <p>Objects of this class are not modified after construction, and can be shared among threads. The mutable state needed by the
+ * shortest path searches is kept in {@link Workspace} objects, that can be reused among searches, but should be used by one thread at a time.</p>
+ *
+ * @since 0.6.6 */
+public class CompactGraph
+{
+	private final Node [] nodes;
+	private final Link [] arcLinks;
+	private final Map<Node,Integer> nodeIndexes;
+	private final Map<Link,Integer> arcIndexes;
+
+	private final int [] arcOrigin;
+	private final int [] arcDestination;
+	private final double [] arcCost;
+	private final double [] arcLengthInKm;
+	private final double [] arcPropagationDelayInMs;
+	private final int [] outStart;
+	private final int [] outArcs;
+	private final int [] inStart;
+	private final int [] inArcs;
+
+	/** Builds the graph from the given nodes and links. If the cost map is {@code null}, all the links have cost one. Links with cost {@code Double.MAX_VALUE} are not included in the graph.
+	 * @param nodes the nodes of the graph
+	 * @param links the links of the graph. The end nodes of the links must be in the collection of nodes
+	 * @param linkCostMap the cost of each link (if {@code null}, all the links have cost one)
+	 */
+	public CompactGraph (Collection<Node> nodes , Collection<Link> links , Map<Link,Double> linkCostMap)
+	{
+		this.nodes = nodes.toArray(new Node [nodes.size()]);
+		this.nodeIndexes = new HashMap<> (2 * this.nodes.length);
+		for (int n = 0; n < this.nodes.length ; n ++) this.nodeIndexes.put(this.nodes [n] , n);
+
+		final List<Link> includedLinks = new ArrayList<> (links.size());
+		final List<Double> includedCosts = new ArrayList<> (links.size());
+		for (Link e : links)
+		{
+			final double cost;
+			if (linkCostMap == null) cost = 1.0;
+			else
+			{
+				final Double value = linkCostMap.get(e);
+				if (value == null) throw new Net2PlanException("Bad - No weight for link " + e);
+				cost = value;
+			}
+			if (cost == Double.MAX_VALUE) continue;
+			includedLinks.add(e);
+			includedCosts.add(cost);
+		}
+		final int E = includedLinks.size();
+		final int N = this.nodes.length;
+		this.arcLinks = includedLinks.toArray(new Link [E]);
+		this.arcIndexes = new HashMap<> (2 * E);
+		this.arcOrigin = new int [E];
+		this.arcDestination = new int [E];
+		this.arcCost = new double [E];
+		this.arcLengthInKm = new double [E];
+		this.arcPropagationDelayInMs = new double [E];
+		this.outStart = new int [N+1];
+		this.inStart = new int [N+1];
+		for (int a = 0; a < E ; a ++)
+		{
+			final Link e = arcLinks [a];
+			final Integer a_o = nodeIndexes.get(e.getOriginNode());
+			final Integer a_d = nodeIndexes.get(e.getDestinationNode());
+			if (a_o == null || a_d == null) throw new Net2PlanException("Bad - The end nodes of link " + e + " are not in the graph");
+			arcIndexes.put(e , a);
+			arcOrigin [a] = a_o;
+			arcDestination [a] = a_d;
+			arcCost [a] = includedCosts.get(a);
+			arcLengthInKm [a] = e.getLengthInKm();
+			arcPropagationDelayInMs [a] = e.getPropagationDelayInMs();
+			outStart [a_o + 1] ++;
+			inStart [a_d + 1] ++;
+		}
+		this.outArcs = new int [E];
+		this.inArcs = new int [E];
+		buildAdjacency();
+	}
+
+	/** Builds the graph from the end nodes of each arc, with no associated {@link Node} and {@link Link} objects: {@link #getNode(int)} and {@link #getLink(int)} return {@code null},
+	 * and the arcs have cost one, and zero length and propagation delay. It is intended for the searches with the arc costs given in each call.
+	 * @param numNodes the number of nodes, indexed from 0 to {@code numNodes - 1}
+	 * @param arcOrigin the origin node index of each arc
+	 * @param arcDestination the destination node index of each arc
+	 */
+	public CompactGraph (int numNodes , int [] arcOrigin , int [] arcDestination)
+	{
+		final int E = arcOrigin.length;
+		if (arcDestination.length != E) throw new Net2PlanException("Bad - The arrays of origin and destination nodes have different sizes");
+		this.nodes = new Node [numNodes];
+		this.nodeIndexes = Collections.emptyMap();
+		this.arcLinks = new Link [E];
+		this.arcIndexes = Collections.emptyMap();
+		this.arcOrigin = Arrays.copyOf(arcOrigin , E);
+		this.arcDestination = Arrays.copyOf(arcDestination , E);
+		this.arcCost = new double [E];
+		Arrays.fill(arcCost , 1.0);
+		this.arcLengthInKm = new double [E];
+		this.arcPropagationDelayInMs = new double [E];
+		this.outStart = new int [numNodes+1];
+		this.inStart = new int [numNodes+1];
+		for (int a = 0; a < E ; a ++)
+		{
+			if (arcOrigin [a] < 0 || arcOrigin [a] >= numNodes || arcDestination [a] < 0 || arcDestination [a] >= numNodes) throw new Net2PlanException("Bad - The end nodes of arc " + a + " are not in the graph");
+			outStart [arcOrigin [a] + 1] ++;
+			inStart [arcDestination [a] + 1] ++;
+		}
+		this.outArcs = new int [E];
+		this.inArcs = new int [E];
+		buildAdjacency();
+	}
+
+	/* Fills the CSR arrays of outgoing and incoming arcs, from the number of arcs per node counted in outStart and inStart */
+	private void buildAdjacency ()
+	{
+		final int N = nodes.length;
+		for (int n = 0; n < N ; n ++) { outStart [n+1] += outStart [n]; inStart [n+1] += inStart [n]; }
+		final int [] outFill = Arrays.copyOf(outStart, N);
+		final int [] inFill = Arrays.copyOf(inStart, N);
+		for (int a = 0; a < arcOrigin.length ; a ++)
+		{
+			outArcs [outFill [arcOrigin [a]] ++] = a;
+			inArcs [inFill [arcDestination [a]] ++] = a;
+		}
+	}
+
+	/** Returns the number of nodes in the graph
+	 * @return see above
+	 */
+	public int getNumberOfNodes () { return nodes.length; }
+
+	/** Returns the number of arcs in the graph (the links with cost {@code Double.MAX_VALUE} are not included)
+	 * @return see above
+	 */
+	public int getNumberOfArcs () { return arcLinks.length; }
+
+	/** Returns the index of the given node in the graph, or -1 if the node is not in the graph
+	 * @param n the node
+	 * @return see above
+	 */
+	public int getNodeIndex (Node n) { final Integer index = nodeIndexes.get(n); return index == null? -1 : index; }
+
+	/** Returns the index of the arc associated to the given link, or -1 if the link is not in the graph
+	 * @param e the link
+	 * @return see above
+	 */
+	public int getArcIndex (Link e) { final Integer index = arcIndexes.get(e); return index == null? -1 : index; }
+
+	/** Returns the node with the given index
+	 * @param nodeIndex the node index
+	 * @return see above
+	 */
+	public Node getNode (int nodeIndex) { return nodes [nodeIndex]; }
+
+	/** Returns the link associated to the arc with the given index
+	 * @param arcIndex the arc index
+	 * @return see above
+	 */
+	public Link getLink (int arcIndex) { return arcLinks [arcIndex]; }
+
+	/** Returns the index of the origin node of the given arc
+	 * @param arcIndex the arc index
+	 * @return see above
+	 */
+	public int getArcOrigin (int arcIndex) { return arcOrigin [arcIndex]; }
+
+	/** Returns the index of the destination node of the given arc
+	 * @param arcIndex the arc index
+	 * @return see above
+	 */
+	public int getArcDestination (int arcIndex) { return arcDestination [arcIndex]; }
+
+	/** Returns the cost of the given arc
+	 * @param arcIndex the arc index
+	 * @return see above
+	 */
+	public double getArcCost (int arcIndex) { return arcCost [arcIndex]; }
+
+	/** Returns the length in km of the link of the given arc
+	 * @param arcIndex the arc index
+	 * @return see above
+	 */
+	public double getArcLengthInKm (int arcIndex) { return arcLengthInKm [arcIndex]; }
+
+	/** Returns the propagation delay in ms of the link of the given arc
+	 * @param arcIndex the arc index
+	 * @return see above
+	 */
+	public double getArcPropagationDelayInMs (int arcIndex) { return arcPropagationDelayInMs [arcIndex]; }
+
+	/** Returns the sequence of links associated to the given sequence of arcs
+	 * @param arcPath the sequence of arc indexes
+	 * @return see above
+	 */
+	public List<Link> toLinkPath (int [] arcPath)
+	{
+		final List<Link> res = new ArrayList<> (arcPath.length);
+		for (int a : arcPath) res.add(arcLinks [a]);
+		return res;
+	}
+
+	/** Returns the sum of the costs of the arcs in the path
+	 * @param arcPath the sequence of arc indexes
+	 * @return see above
+	 */
+	public double getPathCost (int [] arcPath)
+	{
+		return getPathCost(arcPath , arcCost);
+	}
+
+	private static double getPathCost (int [] arcPath , double [] arcCosts)
+	{
+		double cost = 0;
+		for (int a : arcPath) cost += arcCosts [a];
+		return cost;
+	}
+
+	/** Creates a new workspace, with the mutable state needed for the searches in this graph
+	 * @return see above
+	 */
+	public Workspace createWorkspace () { return new Workspace(nodes.length , arcOrigin); }
+
+	/** Computes the shortest paths from the origin node, using the Dijkstra algorithm with an indexed binary heap.
+	 * The search is stopped when the destination node is reached, or when all the reachable nodes are settled if the destination is -1.
+	 * The nodes and arcs blocked in the workspace are not traversed.
+	 * After the call, the distances and predecessor arcs in the tree can be read from the workspace, and the path to a settled node obtained with {@link Workspace#getPathTo(int)}.
+	 * @param ws the workspace
+	 * @param origin the index of the origin node
+	 * @param destination the index of the destination node, or -1 to compute the full shortest path tree
+	 */
+	public void computeShortestPathTree (Workspace ws , int origin , int destination)
+	{
+		computeShortestPathTree(ws , arcCost , origin , destination);
+	}
+
+	/** Computes the shortest paths from the origin node as {@link #computeShortestPathTree(Workspace, int, int)}, but using the given arc costs instead of
+	 * the ones given when the graph was built. Arcs with cost {@code Double.MAX_VALUE} are not traversed. This way, the same graph can be used for different link costs.
+	 * @param ws the workspace
+	 * @param arcCosts the cost of each arc, indexed by the arc index
+	 * @param origin the index of the origin node
+	 * @param destination the index of the destination node, or -1 to compute the full shortest path tree
+	 */
+	public void computeShortestPathTree (Workspace ws , double [] arcCosts , int origin , int destination)
+	{
+		ws.startSearch();
+		if (ws.isNodeBlocked(origin)) return;
+		ws.relax(origin , 0 , -1);
+		while (ws.heapSize > 0)
+		{
+			final int n = ws.pollMin();
+			if (n == destination) return;
+			final double dist_n = ws.dist [n];
+			for (int i = outStart [n] ; i < outStart [n+1] ; i ++)
+			{
+				final int a = outArcs [i];
+				if (arcCosts [a] == Double.MAX_VALUE || ws.arcBlocked [a] == ws.blockStamp) continue;
+				final int m = arcDestination [a];
+				if (ws.nodeBlocked [m] == ws.blockStamp) continue;
+				ws.relax(m , dist_n + arcCosts [a] , a);
+			}
+		}
+	}
+
+	/** Computes the shortest paths from all the nodes to the destination node, using the Dijkstra algorithm on the incoming arcs. Arcs with cost {@code Double.MAX_VALUE},
+	 * and the nodes and arcs blocked in the workspace, are not traversed. After the call, {@link Workspace#getDistance(int)} returns the distance from each node
+	 * to the destination, and {@link Workspace#getPredecessorArc(int)} the first arc in the shortest path from the node to the destination (-1 for the destination).
+	 * @param ws the workspace
+	 * @param arcCosts the cost of each arc, indexed by the arc index
+	 * @param destination the index of the destination node
+	 */
+	public void computeShortestPathTreeToDestination (Workspace ws , double [] arcCosts , int destination)
+	{
+		ws.startSearch();
+		if (ws.isNodeBlocked(destination)) return;
+		ws.relax(destination , 0 , -1);
+		while (ws.heapSize > 0)
+		{
+			final int n = ws.pollMin();
+			final double dist_n = ws.dist [n];
+			for (int i = inStart [n] ; i < inStart [n+1] ; i ++)
+			{
+				final int a = inArcs [i];
+				if (arcCosts [a] == Double.MAX_VALUE || ws.arcBlocked [a] == ws.blockStamp) continue;
+				final int m = arcOrigin [a];
+				if (ws.nodeBlocked [m] == ws.blockStamp) continue;
+				ws.relax(m , dist_n + arcCosts [a] , a);
+			}
+		}
+	}
+
+	/** Computes the shortest paths from a set of origin nodes (that is, from each node to its closest origin node), as {@link #computeShortestPathTree(Workspace, double[], int, int)}
+	 * with a virtual node connected to all the origins with zero cost. The search is stopped when a node marked in {@code stopNodes} is settled, or when all the reachable
+	 * nodes are settled. After the call, the path from the closest origin to a settled node is obtained with {@link Workspace#getPathTo(int)}.
+	 * @param ws the workspace
+	 * @param arcCosts the cost of each arc, indexed by the arc index
+	 * @param origins the indexes of the origin nodes, in the first {@code numOrigins} positions of the array
+	 * @param numOrigins the number of origin nodes
+	 * @param stopNodes the nodes that stop the search when settled, indexed by the node index (if {@code null}, the full shortest path tree is computed)
+	 * @return the index of the node in {@code stopNodes} that stopped the search, or -1 if the search was not stopped
+	 */
+	public int computeShortestPathTreeFromNodes (Workspace ws , double [] arcCosts , int [] origins , int numOrigins , boolean [] stopNodes)
+	{
+		ws.startSearch();
+		for (int cont = 0; cont < numOrigins ; cont ++)
+			if (!ws.isNodeBlocked(origins [cont])) ws.relax(origins [cont] , 0 , -1);
+		while (ws.heapSize > 0)
+		{
+			final int n = ws.pollMin();
+			if (stopNodes != null && stopNodes [n]) return n;
+			final double dist_n = ws.dist [n];
+			for (int i = outStart [n] ; i < outStart [n+1] ; i ++)
+			{
+				final int a = outArcs [i];
+				if (arcCosts [a] == Double.MAX_VALUE || ws.arcBlocked [a] == ws.blockStamp) continue;
+				final int m = arcDestination [a];
+				if (ws.nodeBlocked [m] == ws.blockStamp) continue;
+				ws.relax(m , dist_n + arcCosts [a] , a);
+			}
+		}
+		return -1;
+	}
+
+	/** Computes the shortest paths from all the nodes to a set of destination nodes (that is, from each node to its closest destination node), as
+	 * {@link #computeShortestPathTreeToDestination(Workspace, double[], int)} with a virtual node connected from all the destinations with zero cost.
+	 * @param ws the workspace
+	 * @param arcCosts the cost of each arc, indexed by the arc index
+	 * @param destinations the indexes of the destination nodes
+	 */
+	public void computeShortestPathTreeToNodes (Workspace ws , double [] arcCosts , int [] destinations)
+	{
+		ws.startSearch();
+		for (int destination : destinations)
+			if (!ws.isNodeBlocked(destination)) ws.relax(destination , 0 , -1);
+		while (ws.heapSize > 0)
+		{
+			final int n = ws.pollMin();
+			final double dist_n = ws.dist [n];
+			for (int i = inStart [n] ; i < inStart [n+1] ; i ++)
+			{
+				final int a = inArcs [i];
+				if (arcCosts [a] == Double.MAX_VALUE || ws.arcBlocked [a] == ws.blockStamp) continue;
+				final int m = arcOrigin [a];
+				if (ws.nodeBlocked [m] == ws.blockStamp) continue;
+				ws.relax(m , dist_n + arcCosts [a] , a);
+			}
+		}
+	}
+
+	/** <p>Returns the pair of link-disjoint paths between two nodes with the minimum total cost, using the Suurballe-Tarjan algorithm. The paths are returned in increasing
+	 * order of cost. If the destination is not reachable, no path is returned, and if there is no pair of link-disjoint paths, only the shortest path is returned.
+	 * Arcs with cost {@code Double.MAX_VALUE} are not used.</p>
+	 * <p>The blocked nodes and arcs in the workspace are cleared.</p>
+	 * @param ws the workspace
+	 * @param arcCosts the cost of each arc, indexed by the arc index
+	 * @param origin the origin node index
+	 * @param destination the destination node index
+	 * @return the list of paths, each one a sequence of arc indexes
+	 */
+	public List<int []> getTwoLinkDisjointPaths (Workspace ws , double [] arcCosts , int origin , int destination)
+	{
+		final List<int []> paths = new ArrayList<> (2);
+		if (origin < 0 || destination < 0 || origin == destination) return paths;
+		ws.clearBlocked();
+		computeShortestPathTree(ws , arcCosts , origin , -1);
+		if (!ws.isSettled(destination)) return paths;
+		final int [] sp = ws.getPathTo(destination);
+		paths.add(sp);
+
+		/* Costs reduced with the distances from the origin: they are non-negative, and zero in the arcs of the shortest path */
+		final double [] reducedCosts = ws.getArcAuxiliaryArray();
+		for (int a = 0; a < arcCosts.length ; a ++)
+		{
+			if (arcCosts [a] == Double.MAX_VALUE || !ws.isSettled(arcOrigin [a])) { reducedCosts [a] = Double.MAX_VALUE; continue; }
+			final double reducedCost = arcCosts [a] + ws.dist [arcOrigin [a]] - ws.dist [arcDestination [a]];
+			reducedCosts [a] = reducedCost < 0? 0 : reducedCost; /* numerical errors */
+		}
+
+		/* Shortest path in the graph where the arcs of the shortest path are reversed. Reversed arcs are stored as -2-arcIndex */
+		for (int a : sp) ws.blockArc(a);
+		ws.startSearch();
+		ws.relax(origin , 0 , -1);
+		while (ws.heapSize > 0)
+		{
+			final int n = ws.pollMin();
+			if (n == destination) break;
+			final double dist_n = ws.dist [n];
+			for (int i = outStart [n] ; i < outStart [n+1] ; i ++)
+			{
+				final int a = outArcs [i];
+				if (reducedCosts [a] == Double.MAX_VALUE || ws.arcBlocked [a] == ws.blockStamp) continue;
+				ws.relax(arcDestination [a] , dist_n + reducedCosts [a] , a);
+			}
+			for (int i = inStart [n] ; i < inStart [n+1] ; i ++)
+			{
+				final int a = inArcs [i];
+				if (ws.arcBlocked [a] == ws.blockStamp) ws.relax(arcOrigin [a] , dist_n , -2 - a);
+			}
+		}
+		ws.clearBlocked();
+		if (!ws.isSettled(destination)) return paths;
+		int numHops = 0;
+		for (int n = destination ; n != origin ; numHops ++) { final int a = ws.predArc [n]; n = a >= 0? arcOrigin [a] : arcDestination [-2 - a]; }
+		final int [] secondPath = new int [numHops];
+		for (int n = destination ; n != origin ; ) { final int a = ws.predArc [n]; secondPath [-- numHops] = a; n = a >= 0? arcOrigin [a] : arcDestination [-2 - a]; }
+
+		/* The solution arcs: the ones in the shortest path not traversed in reverse by the second path, and the other arcs in the second path */
+		final int [] unionArcs = new int [sp.length + secondPath.length];
+		int numUnionArcs = 0;
+		for (int a : sp)
+		{
+			boolean reversed = false;
+			for (int b : secondPath) if (b == -2 - a) { reversed = true; break; }
+			if (!reversed) unionArcs [numUnionArcs ++] = a;
+			else if (a == sp [0] || a == sp [sp.length - 1]) return paths;
+		}
+		final int numUnionArcsFirstPath = numUnionArcs;
+		for (int a : secondPath) if (a >= 0) unionArcs [numUnionArcs ++] = a;
+		if (numUnionArcsFirstPath == 0 || numUnionArcs == numUnionArcsFirstPath) return paths;
+		final boolean [] used = new boolean [numUnionArcs];
+		final int [] p1 = recombinePath(unionArcs , numUnionArcs , used , 0 , destination);
+		final int [] p2 = p1 == null? null : recombinePath(unionArcs , numUnionArcs , used , numUnionArcsFirstPath , destination);
+		if (p2 == null) return paths;
+		paths.clear();
+		final boolean p1First = getPathCost(p1 , arcCosts) <= getPathCost(p2 , arcCosts);
+		paths.add(p1First? p1 : p2);
+		paths.add(p1First? p2 : p1);
+		return paths;
+	}
+
+	/* Builds a path starting with the given arc, and then the first unused arc in the list leaving the end node of the last arc, until the destination is reached */
+	private int [] recombinePath (int [] arcs , int numArcs , boolean [] used , int firstArcPosition , int destination)
+	{
+		final int [] path = new int [numArcs];
+		int length = 0;
+		path [length ++] = arcs [firstArcPosition];
+		used [firstArcPosition] = true;
+		while (arcDestination [path [length - 1]] != destination)
+		{
+			final int n = arcDestination [path [length - 1]];
+			int next = -1;
+			for (int i = 0; i < numArcs ; i ++) if (!used [i] && arcOrigin [arcs [i]] == n) { next = i; break; }
+			if (next == -1) return null;
+			used [next] = true;
+			path [length ++] = arcs [next];
+		}
+		return Arrays.copyOf(path, length);
+	}
+
+	/** <p>Returns the (loopless) K-shortest simple paths between two nodes in increasing order of cost, using Yen's algorithm. If only n &lt; K paths
+	 * can be found, only such n paths are returned. This follows the same rules as {@link GraphUtils#getKLooplessShortestPaths(List, List, Node, Node, Map, int, double, int, double, double, double, double)}:
+	 * if the shortest path does not satisfy the length, hops or propagation delay constraints, no path is returned. Non-positive limits mean no limit.</p>
+	 * <p>Among the candidate paths with the same cost, the ones with more hops are returned first, and then the ones with lower arc indexes, so the result is deterministic.</p>
+	 * @param ws the workspace
+	 * @param origin the origin node index
+	 * @param destination the destination node index
+	 * @param shortestPath the shortest path between the origin and the destination, if already known (e.g. from a shortest path tree computed before), or {@code null}
+	 * @param K the number of paths to return
+	 * @param maxLengthInKm Maximum length of the path. If non-positive, no maximum limit is assumed
+	 * @param maxNumHops Maximum number of hops. If non-positive, no maximum limit is assumed
+	 * @param maxPropDelayInMs Maximum propagation delay of the path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCost Maximum route cost. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostFactorRespectToShortestPath Maximum route cost factor respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostRespectToShortestPath Maximum route cost respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @return the list of paths, each one a sequence of arc indexes
+	 */
+	public List<int []> getKLooplessShortestPaths (Workspace ws , int origin , int destination , int [] shortestPath , int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost, double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath)
+	{
+		if (maxLengthInKm <= 0) maxLengthInKm = Double.MAX_VALUE;
+		if (maxNumHops <= 0) maxNumHops = Integer.MAX_VALUE;
+		if (maxPropDelayInMs <= 0) maxPropDelayInMs = Double.MAX_VALUE;
+		if (maxRouteCost <= 0) maxRouteCost = Double.MAX_VALUE;
+		if (maxRouteCostFactorRespectToShortestPath <= 0) maxRouteCostFactorRespectToShortestPath = Double.MAX_VALUE;
+		if (maxRouteCostRespectToShortestPath <= 0) maxRouteCostRespectToShortestPath = Double.MAX_VALUE;
+
+		final List<int []> paths = new ArrayList<> ();
+		if (origin < 0 || destination < 0 || origin == destination) return paths;
+		if (shortestPath == null)
+		{
+			ws.clearBlocked();
+			computeShortestPathTree(ws , origin , destination);
+			if (!ws.isSettled(destination)) return paths;
+			shortestPath = ws.getPathTo(destination);
+		}
+		if (!acceptPath(shortestPath , maxLengthInKm , maxNumHops , maxPropDelayInMs)) return paths;
+		paths.add(shortestPath);
+		final double shortestPathCost = getPathCost(shortestPath);
+
+		final PriorityQueue<CandidatePath> candidates = new PriorityQueue<> ();
+		final Set<CandidatePath> candidatesEverFound = new HashSet<> ();
+		while (paths.size() < K)
+		{
+			final int [] lastPath = paths.get(paths.size() - 1);
+			for (int deviationId = 0; deviationId < lastPath.length ; deviationId ++)
+			{
+				final int deviationNode = deviationId == 0? origin : arcDestination [lastPath [deviationId - 1]];
+
+				/* Block the nodes in the head, and the arcs leaving the deviation node of the paths already found with the same head */
+				ws.clearBlocked();
+				for (int i = 0; i < deviationId ; i ++) ws.blockNode(arcOrigin [lastPath [i]]);
+				for (int [] path : paths)
+					if (path.length > deviationId && isSamePrefix(path , lastPath , deviationId))
+						ws.blockArc(path [deviationId]);
+
+				computeShortestPathTree(ws , deviationNode , destination);
+				if (!ws.isSettled(destination)) continue;
+				final int [] tail = ws.getPathTo(destination);
+				final int [] candidatePath = new int [deviationId + tail.length];
+				System.arraycopy(lastPath, 0, candidatePath, 0, deviationId);
+				System.arraycopy(tail, 0, candidatePath, deviationId, tail.length);
+				final CandidatePath candidate = new CandidatePath(candidatePath , getPathCost(candidatePath));
+				if (candidatesEverFound.contains(candidate)) continue;
+				if (!acceptPath(candidatePath , maxLengthInKm , maxNumHops , maxPropDelayInMs)) continue;
+				if (candidate.cost > maxRouteCost) continue;
+				if (maxRouteCostFactorRespectToShortestPath != Double.MAX_VALUE && candidate.cost > shortestPathCost * maxRouteCostFactorRespectToShortestPath) continue;
+				if (maxRouteCostRespectToShortestPath != Double.MAX_VALUE && candidate.cost > shortestPathCost + maxRouteCostRespectToShortestPath) continue;
+				candidatesEverFound.add(candidate);
+				candidates.add(candidate);
+			}
+			if (candidates.isEmpty()) break;
+			paths.add(candidates.poll().path);
+		}
+		ws.clearBlocked();
+		return paths;
+	}
+
+	private boolean acceptPath (int [] path , double maxLengthInKm, int maxNumHops, double maxPropDelayInMs)
+	{
+		if (maxNumHops != Integer.MAX_VALUE && path.length > maxNumHops) return false;
+		if (maxLengthInKm == Double.MAX_VALUE && maxPropDelayInMs == Double.MAX_VALUE) return true;
+		double pathLengthInKm = 0;
+		double pathPropDelayInMs = 0;
+		for (int a : path)
+		{
+			pathLengthInKm += arcLengthInKm [a];
+			pathPropDelayInMs += arcPropagationDelayInMs [a];
+		}
+		return pathLengthInKm <= maxLengthInKm && pathPropDelayInMs <= maxPropDelayInMs;
+	}
+
+	private static boolean isSamePrefix (int [] p1 , int [] p2 , int length)
+	{
+		for (int i = 0; i < length ; i ++) if (p1 [i] != p2 [i]) return false;
+		return true;
+	}
+
+	/** Returns the indexes of the arcs leaving the given node
+	 * @param nodeIndex the node index
+	 * @return see above
+	 */
+	public int [] getOutgoingArcs (int nodeIndex) { return Arrays.copyOfRange(outArcs, outStart [nodeIndex], outStart [nodeIndex + 1]); }
+
+	/** Returns the indexes of the arcs entering the given node
+	 * @param nodeIndex the node index
+	 * @return see above
+	 */
+	public int [] getIncomingArcs (int nodeIndex) { return Arrays.copyOfRange(inArcs, inStart [nodeIndex], inStart [nodeIndex + 1]); }
+
+	/** Returns the nodes of the graph, in the order of their indexes
+	 * @return see above
+	 */
+	public List<Node> getNodes () { return Collections.unmodifiableList(Arrays.asList(nodes)); }
+
+	private static class CandidatePath implements Comparable<CandidatePath>
+	{
+		private final int [] path;
+		private final double cost;
+
+		private CandidatePath (int [] path , double cost) { this.path = path; this.cost = cost; }
+
+		@Override
+		public int compareTo (CandidatePath o)
+		{
+			final int compareCost = Double.compare(cost , o.cost);
+			if (compareCost != 0) return compareCost;
+			if (path.length != o.path.length) return path.length > o.path.length? -1 : 1;
+			for (int i = 0; i < path.length ; i ++)
+				if (path [i] != o.path [i]) return Integer.compare(path [i], o.path [i]);
+			return 0;
+		}
+
+		@Override
+		public boolean equals (Object o)
+		{
+			if (o == this) return true;
+			if (!(o instanceof CandidatePath)) return false;
+			return Arrays.equals(path, ((CandidatePath) o).path);
+		}
+
+		@Override
+		public int hashCode () { return Arrays.hashCode(path); }
+	}
+
+	/** <p>Mutable state used by the searches in a {@link CompactGraph}: the distances and predecessor arcs of the last shortest path tree computed,
+	 * the heap of the Dijkstra algorithm, and the sets of blocked nodes and arcs. The arrays are allocated once, and are not cleared between searches:
+	 * a search counter (stamp) is used to know which entries are valid.</p>
+	 * <p>A workspace should be used by one thread at a time.</p> */
+	public static class Workspace
+	{
+		private final double [] dist;
+		private final int [] predArc;
+		private final int [] reachedStamp;
+		private final int [] settledStamp;
+		private final int [] settledNodes;
+		private final int [] heap;
+		private final int [] heapPos;
+		private final int [] nodeBlocked;
+		private final int [] arcBlocked;
+		private final int [] arcOrigin;
+		private double [] arcAuxiliaryArray;
+		private int heapSize;
+		private int numSettledNodes;
+		private int searchStamp;
+		private int blockStamp;
+
+		private Workspace (int N , int [] arcOrigin)
+		{
+			this.arcOrigin = arcOrigin;
+			this.dist = new double [N];
+			this.predArc = new int [N];
+			this.reachedStamp = new int [N];
+			this.settledStamp = new int [N];
+			this.settledNodes = new int [N];
+			this.heap = new int [N];
+			this.heapPos = new int [N];
+			this.nodeBlocked = new int [N];
+			this.arcBlocked = new int [arcOrigin.length];
+			this.searchStamp = 0;
+			this.blockStamp = 1;
+		}
+
+		/** Unblocks all the nodes and arcs */
+		public void clearBlocked ()
+		{
+			/* the stamp would overflow, and old blocked entries would read as current: the arrays are cleared, and the counter restarts */
+			if (blockStamp == Integer.MAX_VALUE)
+			{
+				Arrays.fill(nodeBlocked , 0);
+				Arrays.fill(arcBlocked , 0);
+				blockStamp = 0;
+			}
+			blockStamp ++;
+		}
+
+		/** Blocks the given node, so it is not traversed in next searches, until {@link #clearBlocked()} is called
+		 * @param nodeIndex the node index
+		 */
+		public void blockNode (int nodeIndex) { nodeBlocked [nodeIndex] = blockStamp; }
+
+		/** Blocks the given arc, so it is not traversed in next searches, until {@link #clearBlocked()} is called
+		 * @param arcIndex the arc index
+		 */
+		public void blockArc (int arcIndex) { arcBlocked [arcIndex] = blockStamp; }
+
+		/** Indicates if the given node is blocked
+		 * @param nodeIndex the node index
+		 * @return see above
+		 */
+		public boolean isNodeBlocked (int nodeIndex) { return nodeBlocked [nodeIndex] == blockStamp; }
+
+		/** Indicates if the given arc is blocked
+		 * @param arcIndex the arc index
+		 * @return see above
+		 */
+		public boolean isArcBlocked (int arcIndex) { return arcBlocked [arcIndex] == blockStamp; }
+
+		/** Indicates if the given node was settled (its shortest path was found) in the last search
+		 * @param nodeIndex the node index
+		 * @return see above
+		 */
+		public boolean isSettled (int nodeIndex) { return settledStamp [nodeIndex] == searchStamp; }
+
+		/** Returns the number of nodes settled in the last search
+		 * @return see above
+		 */
+		public int getNumberOfSettledNodes () { return numSettledNodes; }
+
+		/** Returns the node settled in the given position in the last search. The nodes are settled in non-decreasing order of distance
+		 * @param position the position, from 0 to {@link #getNumberOfSettledNodes()} - 1
+		 * @return the node index
+		 */
+		public int getSettledNode (int position) { return settledNodes [position]; }
+
+		/** Returns the distance from the origin to the given node in the last search, or {@code Double.MAX_VALUE} if the node was not settled
+		 * @param nodeIndex the node index
+		 * @return see above
+		 */
+		public double getDistance (int nodeIndex) { return isSettled(nodeIndex)? dist [nodeIndex] : Double.MAX_VALUE; }
+
+		/** Returns the arc entering the given node in the shortest path tree of the last search, or -1 if the node is the origin or was not settled
+		 * @param nodeIndex the node index
+		 * @return see above
+		 */
+		public int getPredecessorArc (int nodeIndex) { return isSettled(nodeIndex)? predArc [nodeIndex] : -1; }
+
+		/** Returns the sequence of arcs from the origin of the last search to the given node, which must have been settled. Not valid after
+		 * {@link CompactGraph#computeShortestPathTreeToDestination(Workspace, double[], int)}
+		 * @param nodeIndex the node index
+		 * @return see above
+		 */
+		public int [] getPathTo (int nodeIndex)
+		{
+			int numHops = 0;
+			for (int a = predArc [nodeIndex] ; a != -1 ; a = predArc [arcOrigin [a]]) numHops ++;
+			final int [] path = new int [numHops];
+			for (int a = predArc [nodeIndex] ; a != -1 ; a = predArc [arcOrigin [a]]) path [-- numHops] = a;
+			return path;
+		}
+
+		private double [] getArcAuxiliaryArray ()
+		{
+			if (arcAuxiliaryArray == null) arcAuxiliaryArray = new double [arcBlocked.length];
+			return arcAuxiliaryArray;
+		}
+
+		private void startSearch ()
+		{
+			if (searchStamp == Integer.MAX_VALUE)
+			{
+				Arrays.fill(reachedStamp , 0);
+				Arrays.fill(settledStamp , 0);
+				searchStamp = 0;
+			}
+			searchStamp ++;
+			heapSize = 0;
+			numSettledNodes = 0;
+		}
+
+		private void relax (int n , double newDist , int arc)
+		{
+			if (settledStamp [n] == searchStamp) return;
+			if (reachedStamp [n] != searchStamp)
+			{
+				reachedStamp [n] = searchStamp;
+				dist [n] = newDist;
+				predArc [n] = arc;
+				heap [heapSize] = n;
+				heapPos [n] = heapSize;
+				siftUp(heapSize ++);
+			}
+			else if (newDist < dist [n])
+			{
+				dist [n] = newDist;
+				predArc [n] = arc;
+				siftUp(heapPos [n]);
+			}
+		}
+
+		private int pollMin ()
+		{
+			final int min = heap [0];
+			settledStamp [min] = searchStamp;
+			settledNodes [numSettledNodes ++] = min;
+			heapSize --;
+			if (heapSize > 0)
+			{
+				heap [0] = heap [heapSize];
+				heapPos [heap [0]] = 0;
+				siftDown(0);
+			}
+			return min;
+		}
+
+		private boolean isLess (int n1 , int n2) { return dist [n1] < dist [n2] || (dist [n1] == dist [n2] && n1 < n2); }
+
+		private void siftUp (int pos)
+		{
+			final int n = heap [pos];
+			while (pos > 0)
+			{
+				final int parentPos = (pos - 1) >>> 1;
+				final int parent = heap [parentPos];
+				if (!isLess(n , parent)) break;
+				heap [pos] = parent;
+				heapPos [parent] = pos;
+				pos = parentPos;
+			}
+			heap [pos] = n;
+			heapPos [n] = pos;
+		}
+
+		private void siftDown (int pos)
+		{
+			final int n = heap [pos];
+			while (true)
+			{
+				int childPos = 2 * pos + 1;
+				if (childPos >= heapSize) break;
+				if (childPos + 1 < heapSize && isLess(heap [childPos + 1] , heap [childPos])) childPos ++;
+				final int child = heap [childPos];
+				if (!isLess(child , n)) break;
+				heap [pos] = child;
+				heapPos [child] = pos;
+				pos = childPos;
+			}
+			heap [pos] = n;
+			heapPos [n] = pos;
+		}
+	}
+}
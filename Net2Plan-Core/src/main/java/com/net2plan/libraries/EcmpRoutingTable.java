@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Node;
+
+/** OSPF/ECMP routing table of the given nodes and links, used by the ECMP methods in {@link IPUtils}: for each destination node, the shortest path distance from each node,
+ * and the splitting factors of the arcs of the shortest path DAG to it, for the last link weights given. The last table of each thread is kept through a soft reference,
+ * while the methods are called with the same nodes and links (the same objects, in the same order), e.g. after each failure or weight change in a simulation.
+ * When new weights are given, only the destinations whose DAG can be affected by the arcs with a different weight are recomputed, as in incremental SPF: the ones where the arc was
+ * in the DAG and its weight increased, or where its new weight makes it part of a shortest path. Arcs with weight {@code Double.MAX_VALUE} (e.g. down links) are not used.
+ * Among parallel links, only the ones with the minimum weight are used.
+ */
+final class EcmpRoutingTable
+{
+	private static final ThreadLocal<SoftReference<EcmpRoutingTable>> lastTablePerThread = new ThreadLocal<> ();
+	private static final double PRECISION = 1E-10;
+
+	private final Node [] nodes;
+	private final Link [] links;
+	private final CompactGraph graph;
+	private final CompactGraph.Workspace ws;
+	private final double [] weights;
+	private final boolean [] isMinimumWeightAmongParallelLinks;
+	private final double [][] distanceToDestination;
+	private final int [][] dagArcsPerDestination;
+	private final double [][] dagSplittingFactorsPerDestination;
+	private final int [][] outArcsPerNode;
+	private final double [] minWeightToNeighbor;
+	private final int [] auxiliaryArcs;
+	private final double [] auxiliarySplittingFactors;
+	private boolean initialized;
+	private int numDestinationsRecomputedInLastUpdate;
+
+	private EcmpRoutingTable (Collection<Node> nodes , Collection<Link> links)
+	{
+		final int N = nodes.size();
+		final int E = links.size();
+		this.nodes = nodes.toArray(new Node [N]);
+		this.links = links.toArray(new Link [E]);
+		this.graph = new CompactGraph(nodes , links , null);
+		this.ws = graph.createWorkspace();
+		this.weights = new double [E];
+		this.isMinimumWeightAmongParallelLinks = new boolean [E];
+		this.distanceToDestination = new double [N][];
+		this.dagArcsPerDestination = new int [N][];
+		this.dagSplittingFactorsPerDestination = new double [N][];
+		this.outArcsPerNode = new int [N][];
+		for (int n = 0; n < N ; n ++) outArcsPerNode [n] = graph.getOutgoingArcs(n);
+		this.minWeightToNeighbor = new double [N];
+		this.auxiliaryArcs = new int [E];
+		this.auxiliarySplittingFactors = new double [E];
+		this.initialized = false;
+	}
+
+	/** Returns the routing table of the given nodes and links for this thread, building it only if the last one used in this thread was built from other nodes or links
+	 * @param nodes the nodes
+	 * @param links the links
+	 * @return see above
+	 */
+	static EcmpRoutingTable get (Collection<Node> nodes , Collection<Link> links)
+	{
+		if (links == null) links = Collections.emptyList();
+		final SoftReference<EcmpRoutingTable> ref = lastTablePerThread.get();
+		final EcmpRoutingTable last = ref == null? null : ref.get();
+		if (last != null && SharedCompactGraph.isSameSequence(last.nodes , nodes) && SharedCompactGraph.isSameSequence(last.links , links)) return last;
+		final EcmpRoutingTable res = new EcmpRoutingTable(nodes , links);
+		lastTablePerThread.set(new SoftReference<> (res));
+		return res;
+	}
+
+	/** Updates the table to the given link weights (indexed as the links), recomputing only the affected destinations
+	 * @param linkWeights the weight of each link
+	 */
+	void update (double [] linkWeights)
+	{
+		final int N = nodes.length;
+		final boolean [] isDestinationAffected = new boolean [N];
+		if (!initialized)
+		{
+			System.arraycopy(linkWeights , 0 , weights , 0 , weights.length);
+			for (int n = 0; n < N ; n ++) updateParallelLinks(n);
+			Arrays.fill(isDestinationAffected , true);
+			initialized = true;
+		}
+		else
+		{
+			final boolean [] isNodeWithChangedOutArc = new boolean [N];
+			for (int a = 0; a < weights.length ; a ++)
+			{
+				if (linkWeights [a] == weights [a]) continue;
+				final int u = graph.getArcOrigin(a);
+				final int v = graph.getArcDestination(a);
+				for (int t = 0; t < N ; t ++)
+				{
+					if (isDestinationAffected [t]) continue;
+					final double [] dist = distanceToDestination [t];
+					if (dist [v] == Double.MAX_VALUE) continue; // the arc cannot be in a path to t
+					final boolean wasInDag = weights [a] != Double.MAX_VALUE && dist [u] != Double.MAX_VALUE && Math.abs(dist [u] - (weights [a] + dist [v])) < PRECISION;
+					final boolean canBeInDag = linkWeights [a] != Double.MAX_VALUE && (dist [u] == Double.MAX_VALUE || linkWeights [a] + dist [v] < dist [u] + PRECISION);
+					if (wasInDag || canBeInDag) isDestinationAffected [t] = true;
+				}
+				weights [a] = linkWeights [a];
+				isNodeWithChangedOutArc [u] = true;
+			}
+			for (int n = 0; n < N ; n ++) if (isNodeWithChangedOutArc [n]) updateParallelLinks(n);
+		}
+		numDestinationsRecomputedInLastUpdate = 0;
+		ws.clearBlocked();
+		for (int t = 0; t < N ; t ++)
+			if (isDestinationAffected [t]) { computeDestination(t); numDestinationsRecomputedInLastUpdate ++; }
+	}
+
+	/** Returns the number of destinations recomputed in the last update
+	 * @return see above
+	 */
+	int getNumberOfDestinationsRecomputedInLastUpdate () { return numDestinationsRecomputedInLastUpdate; }
+
+	/** Returns the indexes of the links with non-zero splitting factor for the traffic to the given destination
+	 * @param destinationIndex the index of the destination node (its position in the collection of nodes)
+	 * @return see above
+	 */
+	int [] getDagLinks (int destinationIndex) { return dagArcsPerDestination [destinationIndex]; }
+
+	/** Returns the splitting factors of the links returned by {@link #getDagLinks(int)}, for the traffic to the given destination
+	 * @param destinationIndex the index of the destination node (its position in the collection of nodes)
+	 * @return see above
+	 */
+	double [] getDagSplittingFactors (int destinationIndex) { return dagSplittingFactorsPerDestination [destinationIndex]; }
+
+	/** Returns the index of the destination node in the table, or -1 if the node is not in the table
+	 * @param n the node
+	 * @return see above
+	 */
+	int getNodeIndex (Node n) { return graph.getNodeIndex(n); }
+
+	/* Among the out arcs of the node to the same neighbor, only the ones with the minimum weight can carry traffic */
+	private void updateParallelLinks (int n)
+	{
+		final int [] outArcs = outArcsPerNode [n];
+		for (int a : outArcs) minWeightToNeighbor [graph.getArcDestination(a)] = Double.MAX_VALUE;
+		for (int a : outArcs) minWeightToNeighbor [graph.getArcDestination(a)] = Math.min(minWeightToNeighbor [graph.getArcDestination(a)], weights [a]);
+		for (int a : outArcs) isMinimumWeightAmongParallelLinks [a] = weights [a] != Double.MAX_VALUE && weights [a] == minWeightToNeighbor [graph.getArcDestination(a)];
+	}
+
+	private void computeDestination (int t)
+	{
+		final int N = nodes.length;
+		graph.computeShortestPathTreeToDestination(ws , weights , t);
+		final double [] dist = distanceToDestination [t] == null? new double [N] : distanceToDestination [t];
+		for (int n = 0; n < N ; n ++) dist [n] = ws.getDistance(n);
+		distanceToDestination [t] = dist;
+		int numDagArcs = 0;
+		for (int n = 0; n < N ; n ++)
+		{
+			if (n == t || dist [n] == Double.MAX_VALUE) continue;
+			final int firstArc = numDagArcs;
+			for (int a : outArcsPerNode [n])
+			{
+				if (!isMinimumWeightAmongParallelLinks [a]) continue;
+				final double costFromIntermediateToEnd = dist [graph.getArcDestination(a)];
+				if (costFromIntermediateToEnd == Double.MAX_VALUE) continue;
+				if (Math.abs(dist [n] - (weights [a] + costFromIntermediateToEnd)) < PRECISION) auxiliaryArcs [numDagArcs ++] = a;
+			}
+			final int outdegree = numDagArcs - firstArc;
+			for (int i = firstArc; i < numDagArcs ; i ++) auxiliarySplittingFactors [i] = 1.0 / outdegree;
+		}
+		dagArcsPerDestination [t] = Arrays.copyOf(auxiliaryArcs , numDagArcs);
+		dagSplittingFactorsPerDestination [t] = Arrays.copyOf(auxiliarySplittingFactors , numDagArcs);
+	}
+}
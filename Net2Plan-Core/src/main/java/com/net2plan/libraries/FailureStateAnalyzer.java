@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.net2plan.interfaces.networkDesign.LinksAndNodesFailureState;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.SharedRiskGroup;
+
+/**
+ * <p>Evaluates a design in a list of failure states (e.g. the ones returned by {@link SRGUtils#enumerateFailureStates(java.util.Collection, boolean, boolean) enumerateFailureStates}),
+ * using a pool of worker threads.</p>
+ *
+ * <p>Each worker makes one copy of the design when it starts, and then evaluates the failure states on it, depending on how the evaluation changes the
+ * design (see {@link DesignModification}):</p>
+ * <ul>
+ * <li>If the evaluation does not modify the design, the failure state is applied to the worker design, and the previous one restored after the evaluation
+ * (see {@link NetPlan#setSrgsFailureState(java.util.Collection, java.util.Collection) setSrgsFailureState}). Then, no copy is made per failure state.</li>
+ * <li>If the evaluation applies the failure state itself and undoes its changes afterwards (e.g. an event processor reacting to the failure and the repair
+ * events), it receives the worker design as is. No copy is made per failure state either.</li>
+ * <li>If the evaluation may modify the design in any way (e.g. it runs a restoration algorithm), each failure state is evaluated in a copy of the worker design,
+ * since a failure state snapshot cannot undo the changes in the routing or the capacities.</li>
+ * </ul>
+ *
+ * <p>The results are passed to a consumer as they are produced, always from one thread at a time and in the order of the failure states, so the aggregated
+ * statistics can be updated without storing the results of all the states. The failure states are started in order, so if the analysis is stopped because
+ * its time budget is exhausted, the results received correspond to the first failure states in the list. A worker does not start a failure state more than
+ * two times the number of threads positions ahead of the next result to pass, so a slow failure state does not make the workers keep the results of all the
+ * later ones (e.g. one design copy each, if the evaluation modifies the design) while they wait for their turn.</p>
+ *
+ * @since 0.6.6
+ */
+public class FailureStateAnalyzer
+{
+	private FailureStateAnalyzer () { }
+
+	/**
+	 * The changes that the evaluation of a failure state makes in the design it receives
+	 */
+	public enum DesignModification
+	{
+		/** The evaluation does not modify the design. The analyzer sets the nodes and links of the failing SRGs as down before the evaluation, and restores
+		 * their previous state afterwards */
+		NONE,
+		/** The evaluation sets the nodes and links of the failing SRGs as down itself, and leaves the design as it received it. The analyzer does not apply the
+		 * failure state, and restores the failure state of the nodes and links after the evaluation, in case it differs */
+		UNDONE_BY_EVALUATOR,
+		/** The evaluation may modify the design in any way. Each failure state is evaluated in a new copy of the design, where the analyzer sets the nodes and
+		 * links of the failing SRGs as down */
+		ANY
+	}
+
+	/**
+	 * Evaluation of one failure state. One object is created for each worker thread, so implementations do not need to be thread-safe.
+	 *
+	 * @param <R> Type of the result
+	 */
+	public interface FailureStateEvaluator<R>
+	{
+		/**
+		 * Evaluates the design in one failure state.
+		 *
+		 * @param netPlan The design, where the nodes and links of the failing SRGs are down (unless the design modification is {@link DesignModification#UNDONE_BY_EVALUATOR})
+		 * @param failingSrgs The failing SRGs (elements of the given design)
+		 * @return The result of the evaluation. It should not keep references to the design if this is not modified by the evaluation
+		 */
+		public R evaluate (NetPlan netPlan , Set<SharedRiskGroup> failingSrgs);
+	}
+
+	/**
+	 * Receiver of the results of the failure states.
+	 *
+	 * @param <R> Type of the result
+	 */
+	public interface FailureStateResultConsumer<R>
+	{
+		/**
+		 * Called with the result of each failure state, in the order of the failure states.
+		 *
+		 * @param failureStateIndex Index of the failure state in the input list
+		 * @param failingSrgs The failing SRGs (elements of the original design)
+		 * @param result The result of the evaluation
+		 */
+		public void accept (int failureStateIndex , Set<SharedRiskGroup> failingSrgs , R result);
+	}
+
+	/**
+	 * <p>Evaluates the given failure states in parallel, and passes the results to the consumer. The original design is not modified.</p>
+	 *
+	 * @param <R> Type of the result
+	 * @param netPlan The design
+	 * @param failureStates Each failure state is given by the set of failing SRGs (elements of the given design)
+	 * @param evaluatorFactory Creates the evaluator of each worker thread, receiving the design copy of the worker (in a non-failure state of the failing SRGs)
+	 * @param designModification The changes that the evaluation makes in the design it receives
+	 * @param numThreads Maximum number of threads
+	 * @param maxExecutionTimeInSeconds Once this time is exceeded, no more failure states are started (a non-positive value means no limit)
+	 * @param resultConsumer Receiver of the results
+	 * @return The number of failure states evaluated (always the first ones in the list)
+	 */
+	public static <R> int evaluateFailureStates (NetPlan netPlan , List<? extends Set<SharedRiskGroup>> failureStates , Function<NetPlan , FailureStateEvaluator<R>> evaluatorFactory ,
+			DesignModification designModification , int numThreads , double maxExecutionTimeInSeconds , FailureStateResultConsumer<R> resultConsumer)
+	{
+		if (numThreads < 1) throw new Net2PlanException("The number of threads must be greater than zero");
+		final int numStates = failureStates.size();
+		if (numStates == 0) return 0;
+		final List<Set<SharedRiskGroup>> failureStatesList = new ArrayList<Set<SharedRiskGroup>> (failureStates);
+		final int [][] srgIndexes = new int [numStates][];
+		for (int state = 0; state < numStates ; state ++)
+		{
+			final Set<SharedRiskGroup> srgs = failureStatesList.get(state);
+			srgIndexes [state] = new int [srgs.size()];
+			int counter = 0;
+			for (SharedRiskGroup srg : srgs)
+			{
+				if (srg.getNetPlan() != netPlan) throw new Net2PlanException("The SRGs must belong to the given design");
+				srgIndexes [state][counter ++] = srg.getIndex();
+			}
+		}
+
+		final long deadline = maxExecutionTimeInSeconds > 0? System.nanoTime() + (long) (maxExecutionTimeInSeconds * 1e9) : Long.MAX_VALUE;
+		final AtomicInteger nextStateToStart = new AtomicInteger(0);
+		final AtomicBoolean stop = new AtomicBoolean(false);
+		final int numThreadsUsed = Math.min(numThreads, numStates);
+		final ResultSequencer<R> sequencer = new ResultSequencer<R>(failureStatesList, resultConsumer, 2 * numThreadsUsed);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(numThreadsUsed);
+		try
+		{
+			final List<Future<Void>> workers = new ArrayList<Future<Void>> ();
+			for (int thread = 0; thread < numThreadsUsed ; thread ++)
+			{
+				workers.add(executor.submit(new Callable<Void>()
+				{
+					@Override
+					public Void call()
+					{
+						try
+						{
+							NetPlan workerNetPlan;
+							synchronized (netPlan) { workerNetPlan = netPlan.copy(); }
+							final FailureStateEvaluator<R> evaluator = evaluatorFactory.apply(workerNetPlan);
+							while (!stop.get())
+							{
+								final int state = nextStateToStart.getAndIncrement();
+								if (state >= numStates) break;
+								if (!sequencer.waitForTurnToStart(state , stop)) break;
+								if (System.nanoTime() > deadline)
+								{
+									/* this state is not evaluated, so the later ones cannot be delivered: all the workers stop */
+									stop.set(true);
+									sequencer.wakeUpWaitingWorkers();
+									break;
+								}
+								final R result = evaluateFailureState(workerNetPlan , srgIndexes [state] , evaluator , designModification);
+								sequencer.add(state , result);
+							}
+							return null;
+						}
+						catch (RuntimeException | Error e)
+						{
+							stop.set(true);
+							sequencer.wakeUpWaitingWorkers();
+							throw e;
+						}
+					}
+				}));
+			}
+			for (Future<Void> worker : workers) worker.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new Net2PlanException("Failure state analysis interrupted");
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error) throw (Error) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		return sequencer.getNumberOfDeliveredResults();
+	}
+
+	private static <R> R evaluateFailureState (NetPlan workerNetPlan , int [] srgIndexes , FailureStateEvaluator<R> evaluator , DesignModification designModification)
+	{
+		final NetPlan netPlan = designModification == DesignModification.ANY? workerNetPlan.copy() : workerNetPlan;
+		final Set<SharedRiskGroup> failingSrgs = new HashSet<SharedRiskGroup> ();
+		for (int srgIndex : srgIndexes) failingSrgs.add(netPlan.getSRG(srgIndex));
+		final LinksAndNodesFailureState previousFailureState = designModification == DesignModification.UNDONE_BY_EVALUATOR?
+				netPlan.getLinksAndNodesFailureState() : netPlan.setSrgsFailureState(null , failingSrgs);
+		final R result = evaluator.evaluate(netPlan , failingSrgs);
+		if (designModification != DesignModification.ANY) netPlan.setLinksAndNodesFailureState(previousFailureState);
+		return result;
+	}
+
+	/* Passes the results to the consumer in the order of the failure states, keeping the ones that arrive before their turn. The failure states
+	 * are started at most maxStatesAhead positions ahead of the next one to deliver, so at most this number of results are kept */
+	private static class ResultSequencer<R>
+	{
+		private final List<Set<SharedRiskGroup>> failureStates;
+		private final FailureStateResultConsumer<R> resultConsumer;
+		private final int maxStatesAhead;
+		private final Map<Integer , R> pendingResults = new HashMap<Integer , R> ();
+		private int nextStateToDeliver = 0;
+
+		private ResultSequencer (List<Set<SharedRiskGroup>> failureStates , FailureStateResultConsumer<R> resultConsumer , int maxStatesAhead)
+		{
+			this.failureStates = failureStates;
+			this.resultConsumer = resultConsumer;
+			this.maxStatesAhead = maxStatesAhead;
+		}
+
+		/* Waits until the state is close enough to the next one to deliver. The worker with the next state to deliver never waits, so the others are
+		 * woken up when it delivers. Returns false if the analysis was stopped (or the thread interrupted) while waiting */
+		private synchronized boolean waitForTurnToStart (int state , AtomicBoolean stop)
+		{
+			try
+			{
+				while (state - nextStateToDeliver > maxStatesAhead && !stop.get()) wait();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				stop.set(true);
+				notifyAll();
+				return false;
+			}
+			return !stop.get();
+		}
+
+		private synchronized void wakeUpWaitingWorkers ()
+		{
+			notifyAll();
+		}
+
+		private synchronized void add (int state , R result)
+		{
+			pendingResults.put(state , result);
+			if (!pendingResults.containsKey(nextStateToDeliver)) return;
+			while (pendingResults.containsKey(nextStateToDeliver))
+			{
+				final R nextResult = pendingResults.remove(nextStateToDeliver);
+				resultConsumer.accept(nextStateToDeliver , failureStates.get(nextStateToDeliver) , nextResult);
+				nextStateToDeliver ++;
+			}
+			notifyAll();
+		}
+
+		private synchronized int getNumberOfDeliveredResults ()
+		{
+			return nextStateToDeliver;
+		}
+	}
+}
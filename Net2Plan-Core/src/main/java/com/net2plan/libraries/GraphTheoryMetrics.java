@@ -25,15 +25,12 @@ import com.net2plan.libraries.GraphUtils.JUNGUtils;
 import com.net2plan.utils.CollectionUtils;
 import com.net2plan.utils.Constants;
 import com.net2plan.utils.DoubleUtils;
-import edu.uci.ics.jung.algorithms.scoring.BetweennessCentrality;
-import edu.uci.ics.jung.graph.DirectedGraph;
 import edu.uci.ics.jung.graph.Graph;
-import org.apache.commons.collections15.Transformer;
 import org.jgrapht.alg.connectivity.GabowStrongConnectivityInspector;
 import org.jgrapht.alg.flow.EdmondsKarpMFImpl;
-import org.jgrapht.graph.DefaultDirectedGraph;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 //import org.jgrapht.DirectedGraph;
 //import org.jgrapht.alg.EdmondsKarpMaximumFlow;
@@ -57,12 +54,11 @@ public class GraphTheoryMetrics
 	private DoubleMatrix2D adjacencyMatrix;
 	private double[] adjacencyMatrixEigenvalues;
 	private double averageSPLength, diameter, heterogeneity;
-	private DefaultDirectedGraph<Node, Link> graph_jgrapht;
+	private org.jgrapht.Graph<Node, Link> graph_jgrapht;
 	private Graph<Node, Link> graph_jung;
 	private DoubleMatrix2D incidenceMatrix;
 	private DoubleMatrix2D laplacianMatrix;
 	private double[] laplacianMatrixEigenvalues;
-	private Transformer<Link, Double> nev;
 	
 	private DoubleMatrix1D linkBetweenessCentrality;
 	private DoubleMatrix1D nodeBetweenessCentrality;
@@ -89,107 +85,28 @@ public class GraphTheoryMetrics
 		laplacianMatrix = null;
 		laplacianMatrixEigenvalues = null;
 		linkBetweenessCentrality = null;
-		nev = null;
 		nodeBetweenessCentrality = null;
 		outNodeDegree = null;
 
 		configureLinkCostMap(linkCostMap);
 	}
 
-	private void computeBetweenessCentrality()
+	private void computeShortestPathMetrics()
 	{
-		Graph<Node, Link> aux_graph = getGraph_JUNG();
-		BetweennessCentrality bc = new BetweennessCentrality(aux_graph, getCostTransformer());			
+		final AllPairsShortestPathMetrics metrics = AllPairsShortestPathMetrics.get(nodes , linkMap , costMap);
+		diameter = metrics.getDiameter();
+		averageSPLength = metrics.getAverageShortestPathLength();
+		heterogeneity = metrics.getHeterogeneity();
 
+		final double [] nodeScores = metrics.getNodeBetweennessCentrality();
 		nodeBetweenessCentrality = DoubleFactory1D.dense.make (N);
-		for (Node node : this.nodes) nodeBetweenessCentrality.set(node.getIndex () , bc.getVertexScore(node));
+		int cont = 0;
+		for (Node node : this.nodes) nodeBetweenessCentrality.set(node.getIndex () , nodeScores [cont ++]);
 
+		final double [] linkScores = metrics.getLinkBetweennessCentrality();
 		linkBetweenessCentrality = DoubleFactory1D.dense.make (E);
-		for (Link link : linkMap) linkBetweenessCentrality.set(link.getIndex (), bc.getEdgeScore(link));
-	}
-	
-	private void computeSPDistanceMetrics()
-	{
-		diameter = 0;
-		averageSPLength = 0;
-		heterogeneity = 0;
-		
-		Graph<Node, Link> aux_graph = getGraph_JUNG();
-		Transformer<Link, Double> aux_nev = getCostTransformer();
-
-		/* Compute network diameter using naïve Floyd-Warshall algorithm */
-		double[][] costMatrix = new double[N][N];
-		for(int n = 0; n < N; n++)
-		{
-			Arrays.fill(costMatrix[n], Double.MAX_VALUE);
-			costMatrix[n][n] = 0;
-		}
-		
-		for(Link edge : aux_graph.getEdges())
-		{
-			int a_e = edge.getOriginNode().getIndex ();
-			int b_e = edge.getDestinationNode().getIndex ();
-			double newCost = aux_nev.transform(edge);
-			if (newCost < costMatrix[a_e][b_e]) costMatrix[a_e][b_e] = newCost;
-		}
-		
-		for(int k = 0; k < N; k++)
-		{
-			for(int i = 0; i < N; i++)
-			{
-				if (i == k) continue;
-				
-				for(int j = 0; j < N; j++)
-				{
-					if (j == k || j == i) continue;
-					
-					double newValue = costMatrix[i][k] + costMatrix[k][j];
-					if (newValue < costMatrix[i][j]) costMatrix[i][j] = newValue;
-				}
-			}
-		}
-		
-		int numPaths = 0;
-		double sum = 0;
-		double M = 0.0;
-		double S = 0.0;
-
-		for(int i = 0; i < N; i++)
-		{
-			for(int j = i + 1; j < N; j++)
-			{
-				double dist_ij = costMatrix[i][j];
-				if (dist_ij < Double.MAX_VALUE)
-				{
-					sum += dist_ij;
-					numPaths++;
-
-					double tmpM = M;
-					M += (dist_ij - tmpM) / numPaths;
-					S += (dist_ij - tmpM) * (dist_ij - M);
-
-					if (dist_ij > diameter) diameter = dist_ij;
-				}
-				
-				double dist_ji = costMatrix[j][i];
-				if (dist_ji < Double.MAX_VALUE)
-				{
-					sum += dist_ji;
-					numPaths++;
-
-					double tmpM = M;
-					M += (dist_ji - tmpM) / numPaths;
-					S += (dist_ji - tmpM) * (dist_ji - M);
-					
-					if (dist_ji > diameter) diameter = dist_ji;
-				}
-			}
-		}
-		
-		if (numPaths == 0) return;
-		
-		averageSPLength = numPaths == 0 ? 0 : sum / numPaths;
-		heterogeneity = averageSPLength == 0 ? 0 : Math.sqrt(S / numPaths) / averageSPLength;
+		cont = 0;
+		for (Link link : linkMap) linkBetweenessCentrality.set(link.getIndex (), linkScores [cont ++]);
 	}
 
 	/**
@@ -205,7 +122,8 @@ public class GraphTheoryMetrics
 		averageSPLength = -1;
 		diameter = -1;
 		heterogeneity = -1;
-		nev = null;
+		linkBetweenessCentrality = null;
+		nodeBetweenessCentrality = null;
 	}
 
 	/**
@@ -359,7 +277,7 @@ public class GraphTheoryMetrics
 	 */
 	public double getAverageShortestPathDistance()
 	{
-		if (averageSPLength == -1) computeSPDistanceMetrics();
+		if (averageSPLength == -1) computeShortestPathMetrics();
 		return averageSPLength;
 	}
 
@@ -375,7 +293,7 @@ public class GraphTheoryMetrics
 	{
 		if (E == 0) return 0;
 
-		DefaultDirectedGraph<Node, Link> graph = getGraph_JGraphT();
+		org.jgrapht.Graph<Node, Link> graph = getGraph_JGraphT();
 		GabowStrongConnectivityInspector<Node, Link> ci = new GabowStrongConnectivityInspector<Node, Link>(graph);
 		List<Set<Node>> connectedComponents = ci.stronglyConnectedSets();
 
@@ -435,13 +353,6 @@ public class GraphTheoryMetrics
 		return DoubleUtils.average(clusteringCoefficient);
 	}
 
-	private Transformer<Link, Double> getCostTransformer()
-	{
-		if (nev == null) nev = JUNGUtils.getEdgeWeightTransformer(costMap);
-
-		return nev;
-	}
-
 	/**
 	 * Returns the density of the network. The density represents the ratio
 	 * between the number of links in the network and the number of links needed
@@ -465,13 +376,13 @@ public class GraphTheoryMetrics
 	 */
 	public double getDiameter()
 	{
-		if (diameter == -1) computeSPDistanceMetrics();
+		if (diameter == -1) computeShortestPathMetrics();
 		return diameter;
 	}
 
-	private DefaultDirectedGraph<Node, Link> getGraph_JGraphT()
+	private org.jgrapht.Graph<Node, Link> getGraph_JGraphT()
 	{
-		if (graph_jgrapht == null) graph_jgrapht = (DefaultDirectedGraph<Node, Link>) JGraphTUtils.getGraphFromLinkMap(nodes , linkMap);
+		if (graph_jgrapht == null) graph_jgrapht = JGraphTUtils.getGraphFromLinkMap(nodes , linkMap);
 		return graph_jgrapht;
 	}
 
@@ -491,7 +402,7 @@ public class GraphTheoryMetrics
 	 */
 	public double getHeterogeneity()
 	{
-		if (heterogeneity == -1) computeSPDistanceMetrics();
+		if (heterogeneity == -1) computeShortestPathMetrics();
 		return heterogeneity;
 	}
 
@@ -565,13 +476,13 @@ public class GraphTheoryMetrics
 	 * centrality of a link is equal to the number of node-pair shortest paths which traverses
 	 * the link.</p>
 	 *
-	 * <p>Internally it makes use of the Brandes' algorithm.</p>
+	 * <p>Internally it makes use of the Brandes' algorithm, with the origin nodes processed in parallel. It is computed together with the diameter, the average shortest path distance and the heterogeneity.</p>
 	 *
 	 * @return Betweeness centrality of each link
 	 */
 	public DoubleMatrix1D getLinkBetweenessCentrality()
 	{
-		if (linkBetweenessCentrality == null) computeBetweenessCentrality();
+		if (linkBetweenessCentrality == null) computeShortestPathMetrics();
 
 		return linkBetweenessCentrality;
 	}
@@ -581,32 +492,27 @@ public class GraphTheoryMetrics
 	 * number of link-disjoint paths between each node pair.</p>
 	 *
 	 * <p>Internally it makes use of the Edmonds-Karp algorithm to compute the maximum
-	 * flow between each node pair, assuming a link capacity equal to one for every link.</p>
+	 * flow from and to the first node, to and from each other node, assuming a link capacity equal to one for every link (the
+	 * smallest set of links that disconnects the network, separates the first node from some other node, in one direction). The
+	 * maximum flows are computed in parallel.</p>
 	 *
 	 * @return Link connectivity
 	 */
 	public int getLinkConnectivity()
 	{
-		if (E == 0) return 0;
-
-		DefaultDirectedGraph<Node, Link> graph = getGraph_JGraphT();
-        EdmondsKarpMFImpl<Node, Node> ek = new EdmondsKarpMFImpl(graph);
-		int k = Integer.MAX_VALUE;
+		if (E == 0 || N < 2) return 0;
 
-		for (Node originNode : nodes)
+		final org.jgrapht.Graph<Node, Link> graph = getGraph_JGraphT();
+		final Node firstNode = nodes.get(0);
+		final int k = IntStream.range(1 , N).parallel().map(n ->
 		{
-			for (Node destinationNode : nodes)
-			{
-				if (originNode.equals(destinationNode)) continue;
-
-				ek.calculateMaximumFlow(originNode, destinationNode);
-				k = Math.min(k, new Double(ek.getMaximumFlowValue()).intValue());
-
-				if (k == 0) break;
-			}
-		}
+			final EdmondsKarpMFImpl<Node, Link> ek = new EdmondsKarpMFImpl<> (graph);
+			final double flowFromFirstNode = ek.calculateMaximumFlow(firstNode, nodes.get(n));
+			if (flowFromFirstNode == 0) return 0;
+			return (int) Math.min(flowFromFirstNode , ek.calculateMaximumFlow(nodes.get(n), firstNode));
+		}).min().getAsInt();
 
-		return k == Integer.MAX_VALUE ? 0 : k;
+		return k;
 	}
 	
 	/**
@@ -625,13 +531,13 @@ public class GraphTheoryMetrics
 	 * centrality of a node is equal to the number of node-pair shortest paths which traverses
 	 * the node.</p>
 	 *
-	 * <p>Internally it makes use of the Brandes' algorithm.</p>
+	 * <p>Internally it makes use of the Brandes' algorithm, with the origin nodes processed in parallel. It is computed together with the diameter, the average shortest path distance and the heterogeneity.</p>
 	 *
 	 * @return Betweeness centrality of each node
 	 */
 	public DoubleMatrix1D getNodeBetweenessCentrality()
 	{
-		if (nodeBetweenessCentrality == null) computeBetweenessCentrality();
+		if (nodeBetweenessCentrality == null) computeShortestPathMetrics();
 
 		return nodeBetweenessCentrality;
 	}
@@ -647,27 +553,26 @@ public class GraphTheoryMetrics
 	 */
 	public int getNodeConnectivity()
 	{
-		if (E == 0) return 0;
+		if (E == 0 || N < 2) return 0;
 		
-		DefaultDirectedGraph<Node, Link> graph = getGraph_JGraphT();
-		int k = Integer.MAX_VALUE;
-
-		for (Node originNode : nodes)
+		final org.jgrapht.Graph<Node, Link> graph = getGraph_JGraphT();
+		final int k = nodes.parallelStream().mapToInt(originNode ->
 		{
+			int k_thisOrigin = Integer.MAX_VALUE;
 			for (Node destinationNode : nodes)
 			{
 				if (originNode.equals(destinationNode)) continue;
 				
-				DefaultDirectedGraph<Node, Link> auxGraph = (DefaultDirectedGraph<Node, Link>) JGraphTUtils.buildAuxiliaryNodeDisjointGraph(graph, originNode, destinationNode);
-                EdmondsKarpMFImpl<Node, Node> ek = new EdmondsKarpMFImpl(auxGraph);
-				ek.calculateMaximumFlow(originNode, destinationNode);
-				k = Math.min(k, new Double(ek.getMaximumFlowValue()).intValue());
+				final org.jgrapht.Graph<Node, Link> auxGraph = JGraphTUtils.buildAuxiliaryNodeDisjointGraph(graph, originNode, destinationNode);
+				final EdmondsKarpMFImpl<Node, Link> ek = new EdmondsKarpMFImpl<> (auxGraph);
+				k_thisOrigin = Math.min(k_thisOrigin, (int) ek.calculateMaximumFlow(originNode, destinationNode));
 
-				if (k == 0) break;
+				if (k_thisOrigin == 0) break;
 			}
-		}
+			return k_thisOrigin;
+		}).min().getAsInt();
 
-		return k == Integer.MAX_VALUE ? 0 : k;
+		return k;
 	}
 
 	/**
@@ -679,12 +584,11 @@ public class GraphTheoryMetrics
 	{
 		if (outNodeDegree == null)
 		{
-			Graph<Node, Link> aux_graph = getGraph_JUNG();
-			
 			outNodeDegree = DoubleFactory1D.dense.make (N);
-			for (Node node : nodes) 
-			{ 
-				outNodeDegree.set(node.getIndex (), aux_graph.outDegree(node));
+			for (Link link : linkMap)
+			{
+				final int a_e = link.getOriginNode().getIndex ();
+				outNodeDegree.setQuick(a_e, outNodeDegree.getQuick(a_e) + 1);
 			}
 		}
 
@@ -45,6 +45,7 @@ import java.util.TreeSet;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.swing.JComponent;
 
@@ -845,14 +846,17 @@ public class GraphUtils
 			for (Link e : links)
 				linkSpareCapacityMap.put(e, Math.max(0, e.getCapacity() - e.getOccupiedCapacity()));
 		}
-		final SortedMap<Link,Double> auxMapLinkCost = linkSpareCapacityMap;
-		final List<Link> validLinks = linkCostMap == null? links.stream().filter(e->auxMapLinkCost.get(e) >= capacityGoal).collect(Collectors.toList()) : 
-			links.stream().filter(e->auxMapLinkCost.get(e) >= capacityGoal && linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, validLinks);
-		if (!graph.containsVertex(originNode)) return new LinkedList<Link>();
-		if (!graph.containsVertex(destinationNode)) return new LinkedList<Link>();
-		Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-		return JUNGUtils.getShortestPath(graph, nev, originNode, destinationNode);
+		final SharedCompactGraph g = SharedCompactGraph.get(nodes, links);
+		final int origin = g.graph.getNodeIndex(originNode);
+		final int destination = g.graph.getNodeIndex(destinationNode);
+		if (origin == -1 || destination == -1) return new LinkedList<Link>();
+		final double [] arcCosts = g.setArcCosts(linkCostMap);
+		for (int a = 0; a < arcCosts.length ; a ++)
+			if (linkSpareCapacityMap.get(g.getLink(a)) < capacityGoal) arcCosts [a] = Double.MAX_VALUE;
+		g.ws.clearBlocked();
+		g.graph.computeShortestPathTree(g.ws, arcCosts, origin, destination);
+		if (!g.ws.isSettled(destination)) return new LinkedList<Link>();
+		return g.getLinkPathTo(destination);
 	}
 
 	
@@ -872,49 +876,69 @@ public class GraphUtils
 	 * @return K-shortest paths */
 	public static List<List<Link>> getKLooplessShortestPaths(List<Node> nodes, List<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap, int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost, double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath)
 	{
-		if (maxLengthInKm <= 0) maxLengthInKm = Double.MAX_VALUE;
-		if (maxNumHops <= 0) maxNumHops = Integer.MAX_VALUE;
-		if (maxPropDelayInMs <= 0) maxPropDelayInMs = Double.MAX_VALUE;
-		if (maxRouteCost <= 0) maxRouteCost = Double.MAX_VALUE;
-		if (maxRouteCostFactorRespectToShortestPath <= 0) maxRouteCostFactorRespectToShortestPath = Double.MAX_VALUE;
-		if (maxRouteCostRespectToShortestPath <= 0) maxRouteCostRespectToShortestPath = Double.MAX_VALUE;
-
-		final List<Link> filteredListLinks = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> g = JUNGUtils.getGraphFromLinkMap(nodes, filteredListLinks);
-		YenAlgorithm<Node, Link> paths = new YenAlgorithm<Node, Link>(g, 
-				JUNGUtils.getEdgeWeightTransformer(linkCostMap), 
-				K, maxNumHops, maxLengthInKm, maxPropDelayInMs, maxRouteCost, 
-				maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath)
-		{
-			@Override
-			public boolean acceptPath(GraphPath<Link> candidate)
-			{
-				if (maxNumHops != Integer.MAX_VALUE && candidate.getPathLength() > maxNumHops) return false;
-
-				if (maxLengthInKm == Double.MAX_VALUE && maxPropDelayInMs == Double.MAX_VALUE) return true;
-
-				double pathLengthInKm = 0;
-				double pathPropDelayInMs = 0;
-				for (Link link : candidate.getPath())
-				{
-					pathLengthInKm += link.getLengthInKm();
-					pathPropDelayInMs += link.getPropagationDelayInMs();
-				}
-
-				return pathLengthInKm <= maxLengthInKm && pathPropDelayInMs <= maxPropDelayInMs;
-			}
-
-			@Override
-			public boolean compareCandidateToShortestPath(GraphPath<Link> candidate, GraphPath<Link> shortestPath)
-			{
-				if (maxRouteCost != Double.MAX_VALUE && candidate.getPathWeight() > maxRouteCost) { return false; }
-
-				if (maxRouteCostFactorRespectToShortestPath != Double.MAX_VALUE && candidate.getPathWeight() > shortestPath.getPathWeight() * maxRouteCostFactorRespectToShortestPath) { return false; }
+		final CompactGraph g = new CompactGraph(nodes, links, linkCostMap);
+		final List<int []> paths = g.getKLooplessShortestPaths(g.createWorkspace(), g.getNodeIndex(originNode), g.getNodeIndex(destinationNode), null, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath);
+		final List<List<Link>> res = new ArrayList<List<Link>> (paths.size());
+		for (int [] path : paths) res.add(g.toLinkPath(path));
+		return res;
+	}
 
-				return !(maxRouteCostRespectToShortestPath != Double.MAX_VALUE && candidate.getPathWeight() > shortestPath.getPathWeight() + maxRouteCostRespectToShortestPath);
-			}
-		};
-		return paths.getPaths(originNode, destinationNode, K);
+	/** Returns for each of the given node pairs the K-loopless shortest paths between them, satisfying some user-defined constraints. If only <i>n</i> shortest path are found (n&lt;K), those are returned.
+	 * The result is the same as calling {@link #getKLooplessShortestPaths(List, List, Node, Node, Map, int, double, int, double, double, double, double)} for each node pair, but the graph is built only once
+	 * and shared by all the node pairs, a single shortest path tree is computed per origin node, and the origin nodes are processed in parallel in the common fork-join pool.
+	 * @param nodes List of nodes
+	 * @param links List of links
+	 * @param nodePairs the node pairs (origin and destination) to compute the paths for
+	 * @param linkCostMap Cost per link, where the key is the link identifier and the value is the cost of traversing the link. No special iteration-order (i.e. ascending) is required. If {@code null}, all links have weight one. A value of Double.MAX_VALUE means that the link cannot be used
+	 * @param K Desired nummber of paths (a lower number of paths may be returned if there are less than {@code K} loop-less paths admissible)
+	 * @param maxLengthInKm Maximum length of the path. If non-positive, no maximum limit is assumed
+	 * @param maxNumHops Maximum number of hops. If non-positive, no maximum limit is assumed
+	 * @param maxPropDelayInMs Maximum propagation delay of the path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCost Maximum route cost. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostFactorRespectToShortestPath Maximum route cost factor respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostRespectToShortestPath Maximum route cost respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @return the K-shortest paths (values) per node pairs (keys), for all the given node pairs
+	 */
+	public static SortedMap<Pair<Node,Node>,List<List<Link>>> getKLooplessShortestPaths(List<Node> nodes, List<Link> links, Collection<Pair<Node,Node>> nodePairs, Map<Link, Double> linkCostMap, int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost, double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath)
+	{
+		final CompactGraph g = new CompactGraph(nodes, links, linkCostMap);
+		final List<Pair<Node,Node>> pairs = new ArrayList<> (nodePairs);
+		final SortedMap<Integer,List<Integer>> pairIndexesPerOrigin = new TreeMap<> ();
+		for (int cont = 0; cont < pairs.size() ; cont ++)
+		{
+			final int originIndex = g.getNodeIndex(pairs.get(cont).getFirst());
+			List<Integer> pairIndexes = pairIndexesPerOrigin.get(originIndex);
+			if (pairIndexes == null) { pairIndexes = new ArrayList<> (); pairIndexesPerOrigin.put(originIndex, pairIndexes); }
+			pairIndexes.add(cont);
+		}
+		final List<List<Integer>> tasks = new ArrayList<> (pairIndexesPerOrigin.values());
+		@SuppressWarnings({"unchecked","rawtypes"})
+		final List<List<Link>> [] pathsPerPair = new List [pairs.size()];
+		final ThreadLocal<CompactGraph.Workspace> workspaces = ThreadLocal.withInitial(g::createWorkspace);
+		tasks.parallelStream().forEach(pairIndexes ->
+		{
+			final CompactGraph.Workspace ws = workspaces.get();
+			final int originIndex = g.getNodeIndex(pairs.get(pairIndexes.get(0)).getFirst());
+			final int [][] shortestPaths = new int [g.getNumberOfNodes()][];
+			if (originIndex != -1)
+			{
+				ws.clearBlocked();
+				g.computeShortestPathTree(ws, originIndex, -1);
+				for (int n = 0; n < g.getNumberOfNodes() ; n ++) if (ws.isSettled(n)) shortestPaths [n] = ws.getPathTo(n);
+			}
+			for (int pairIndex : pairIndexes)
+			{
+				final int destinationIndex = g.getNodeIndex(pairs.get(pairIndex).getSecond());
+				final List<List<Link>> res = new ArrayList<> ();
+				if (originIndex != -1 && destinationIndex != -1 && shortestPaths [destinationIndex] != null)
+					for (int [] path : g.getKLooplessShortestPaths(ws, originIndex, destinationIndex, shortestPaths [destinationIndex], K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath))
+						res.add(g.toLinkPath(path));
+				pathsPerPair [pairIndex] = res;
+			}
+		});
+		final SortedMap<Pair<Node,Node>,List<List<Link>>> res = new TreeMap<> ();
+		for (int cont = 0; cont < pairs.size() ; cont ++) res.put(pairs.get(cont), pathsPerPair [cont]);
+		return res;
 	}
 
 	/** Returns the K minimum cost service chains between two nodes (summing costs of links and resources traversed), traversing a given set of resource types, satisfying some user-defined constraints.
@@ -1108,10 +1132,13 @@ public class GraphUtils
 	 * @return Shortest pair of link-disjoint paths */
 	public static List<List<Link>> getTwoLinkDisjointPaths(Collection<Node> nodes, Collection<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap)
 	{
-		final Collection<Link> linksToUse = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, linksToUse);
-		final Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-		final List<List<Link>> linkDisjointSPs = JUNGUtils.getTwoLinkDisjointPaths(graph, nev, originNode, destinationNode);
+		final SharedCompactGraph g = SharedCompactGraph.get(nodes, links);
+		final List<List<Link>> linkDisjointSPs = new LinkedList<List<Link>>();
+		final int origin = g.graph.getNodeIndex(originNode);
+		final int destination = g.graph.getNodeIndex(destinationNode);
+		if (origin == -1 || destination == -1) return linkDisjointSPs;
+		for (int [] path : g.graph.getTwoLinkDisjointPaths(g.ws, g.setArcCosts(linkCostMap), origin, destination))
+			linkDisjointSPs.add(g.graph.toLinkPath(path));
 		return linkDisjointSPs;
 	}
 
@@ -1487,14 +1514,14 @@ public class GraphUtils
 	 * @return Sequence of links in the shortest path (empty, if destination not reachable from origin) */
 	public static List<Link> getShortestPath(Collection<Node> nodes, Collection<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap)
 	{
-		final Collection<Link> linksToUse = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, linksToUse);
-		if (!graph.containsVertex(originNode)) return new LinkedList<>();
-		if (!graph.containsVertex(destinationNode)) return new LinkedList<>();
-		final Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-		final DijkstraShortestPath<Node, Link> dsp = new DijkstraShortestPath<Node, Link>(graph, nev);
-		final List<Link> path = dsp.getPath(originNode, destinationNode);
-		return path;
+		final SharedCompactGraph g = SharedCompactGraph.get(nodes, links);
+		final int origin = g.graph.getNodeIndex(originNode);
+		final int destination = g.graph.getNodeIndex(destinationNode);
+		if (origin == -1 || destination == -1) return new LinkedList<>();
+		g.ws.clearBlocked();
+		g.graph.computeShortestPathTree(g.ws, g.setArcCosts(linkCostMap), origin, destination);
+		if (!g.ws.isSettled(destination)) return new LinkedList<>();
+		return g.getLinkPathTo(destination);
 	}
 
 	
@@ -1651,6 +1678,59 @@ public class GraphUtils
 		return result;
 	}
 
+	/**
+	 * Returns for each of the given multicast demands (origin node and set of destination nodes) the K-minimum cost multicast trees satisfying some user-defined constraints,
+	 * as {@link #getKMinimumCostMulticastTrees(NetworkLayer, Node, SortedSet, DoubleMatrix2D, DoubleMatrix2D, DoubleMatrix1D, String, String, double, int, int, double, int, double, double, double, double)},
+	 * but computing each tree with a heuristic of {@link MulticastTreeEngine} instead of solving an ILP. Then, no solver is needed, but the trees returned are not guaranteed to be the
+	 * K-minimum cost ones. The graph is built once and shared by all the demands, and the demands are processed in parallel in the common fork-join pool.
+	 * @param nodes List of nodes
+	 * @param links List of links
+	 * @param originAndDestinationNodes the origin node and the destination nodes of each multicast demand
+	 * @param linkCostMap Cost per link. If {@code null}, all links have weight one. A value of Double.MAX_VALUE means that the link cannot be used
+	 * @param algorithm the heuristic used to compute each tree
+	 * @param K Desired number of trees (a lower number of trees may be returned)
+	 * @param maxCopyCapability the maximum number of copies of an input traffic a node can make. Then, a node can have at most this number of output links carrying traffic of a multicast tree. If non-positive, no maximum limit is assumed
+	 * @param maxE2ELengthInKm Maximum path length measured in kilometers allowed for any tree, from the origin node, to any destination node. If non-positive, no maximum limit is assumed
+	 * @param maxE2ENumHops Maximum number of hops allowed for any tree, from the origin node, to any destination node. If non-positive, no maximum limit is assumed
+	 * @param maxE2EPropDelayInMs Maximum propagation delay in milliseconds allowed for any tree, from the origin node, to any destination node. If non-positive, no maximum limit is assumed
+	 * @param maxTreeCost Maximum tree weight allowed, summing the weights of the links. If non-positive, no maximum limit is assumed
+	 * @param maxTreeCostFactorRespectToMinimumCostTree Trees with higher weight (cost) than the cost of the minimum cost tree, multiplied by this factor, are not returned. If non-positive, no maximum limit is assumed
+	 * @param maxTreeCostRespectToMinimumCostTree Trees with higher weight (cost) than the cost of the minimum cost tree, plus this factor, are not returned. If non-positive, no maximum limit is assumed
+	 * @return the list of trees of each multicast demand, in the same order as the demands, and the trees of each demand in increasing order of cost
+	 */
+	public static List<List<SortedSet<Link>>> getKMinimumCostMulticastTrees(List<Node> nodes, List<Link> links, List<Pair<Node,Set<Node>>> originAndDestinationNodes, Map<Link, Double> linkCostMap,
+			MulticastTreeEngine.Algorithm algorithm, int K, int maxCopyCapability, double maxE2ELengthInKm, int maxE2ENumHops, double maxE2EPropDelayInMs, double maxTreeCost,
+			double maxTreeCostFactorRespectToMinimumCostTree, double maxTreeCostRespectToMinimumCostTree)
+	{
+		if (K <= 0) throw new Net2PlanException("'K' parameter must be greater than zero");
+		final CompactGraph g = new CompactGraph(nodes, links, linkCostMap);
+		final MulticastTreeEngine engine = new MulticastTreeEngine(g, algorithm);
+		@SuppressWarnings({"unchecked","rawtypes"})
+		final List<SortedSet<Link>> [] treesPerDemand = new List [originAndDestinationNodes.size()];
+		final ThreadLocal<CompactGraph.Workspace> workspaces = ThreadLocal.withInitial(g::createWorkspace);
+		IntStream.range(0, treesPerDemand.length).parallel().forEach(index ->
+		{
+			final Node originNode = originAndDestinationNodes.get(index).getFirst();
+			final Set<Node> destinationNodes = originAndDestinationNodes.get(index).getSecond();
+			final List<SortedSet<Link>> res = new ArrayList<> ();
+			treesPerDemand [index] = res;
+			final int originIndex = g.getNodeIndex(originNode);
+			final int [] destinationIndexes = new int [destinationNodes.size()];
+			int counter = 0;
+			for (Node n : destinationNodes)
+				if ((destinationIndexes [counter ++] = g.getNodeIndex(n)) == -1) return;
+			if (originIndex == -1) return;
+			for (int [] tree : engine.getKMinimumCostTrees(workspaces.get(), originIndex, destinationIndexes, K, maxCopyCapability, maxE2ELengthInKm, maxE2ENumHops, maxE2EPropDelayInMs,
+					maxTreeCost, maxTreeCostFactorRespectToMinimumCostTree, maxTreeCostRespectToMinimumCostTree))
+			{
+				final SortedSet<Link> linkSet = new TreeSet<Link> ();
+				for (int a : tree) linkSet.add(g.getLink(a));
+				res.add(linkSet);
+			}
+		});
+		return Arrays.asList(treesPerDemand);
+	}
+
 	public static SortedSet<Link> getMinimumCostMulticastTree(NetworkLayer layer, DoubleMatrix2D Aout_ne, DoubleMatrix2D Ain_ne, DoubleMatrix1D linkCost, Node originNode, Set<Node> destinationNodes, int maxCopyCapability, int maxE2ENumHops, double maxE2ELengthInKm, double maxE2EPropDelayInMs, String solverName, String solverLibraryName, double maxSolverTimeInSeconds, String... solverParam)
 	{
 		if (layer == null) layer = originNode.getNetPlan().getNetworkLayerDefault();
@@ -0,0 +1,392 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.stream.IntStream;
+
+import com.net2plan.interfaces.networkDesign.Configuration;
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+
+/** <p>Evaluates the traffic carried by each link when the demands of a layer are routed according to the OSPF/ECMP scheme, for
+ * a given IGP link weight setting. The carried traffic per link is the same as the one returned by
+ * {@link IPUtils#computeCarriedTrafficFromIGPWeights(NetPlan, DoubleMatrix1D, NetworkLayer...) computeCarriedTrafficFromIGPWeights},
+ * but this object is intended for the algorithms that evaluate many weight settings in the same network (e.g. weight optimization heuristics).</p>
+ *
+ * <p>The topology (as a {@link CompactGraph}) and the offered traffic of the demands are indexed once into primitive arrays, when the object is created. Then, the object keeps
+ * the shortest path distances and the traffic carried per link for each destination node. When the weight of one link changes, only the destinations
+ * whose shortest path graph can be affected by the change are recomputed. In addition, several weight settings can be evaluated in parallel
+ * (see {@link #computeCarriedTrafficPerLink(List) computeCarriedTrafficPerLink}).</p>
+ *
+ * <p>The design is not modified by this object, and changes in the design made after creating it are not reflected. Objects of this class should be used by one thread at a time.</p>
+ *
+ * @since 0.6.6 */
+public class IGPWeightEvaluator
+{
+	private static final double TOLERANCE = 1E-10;
+
+	/* Topology and traffic (never modified, shared among copies) */
+	private final int N;
+	private final int E;
+	private final CompactGraph graph;
+	private final int [][] outLinksPerNode;
+	private final int [] parallelGroupStart; // the links from the same origin to the same destination node, are consecutive in parallelGroupLinks
+	private final int [] parallelGroupLinks;
+	private final int [] parallelGroupOfLink;
+	private final int [] destinations; // the nodes that are the egress node of at least one demand
+	private final int [][] demandIngressPerDestination;
+	private final double [][] demandOfferedTrafficPerDestination;
+	private final double precisionFactor;
+
+	/* The state for the current weights */
+	private final double [] linkWeight;
+	private final double [] parallelGroupMinWeight;
+	private final double [][] distanceToDestination_tn;
+	private final double [][] carriedTrafficPerDestination_te;
+	private final double [] carriedTraffic_e;
+
+	/* Workspace for the computations */
+	private final CompactGraph.Workspace ws;
+	private final int [] numOutLinksInDag;
+	private final double [] fractionOfTrafficInNode;
+	private final boolean [] isLinkToUpdate;
+
+	/* Copies of this object used in the parallel evaluations, kept for the next ones */
+	private final ConcurrentLinkedDeque<IGPWeightEvaluator> copiesForParallelEvaluations = new ConcurrentLinkedDeque<IGPWeightEvaluator> ();
+
+	/**
+	 * Creates the evaluator for the demands of the given layer, and the given link weights.
+	 *
+	 * @param netPlan Network design
+	 * @param linkWeightVector Weight per link (if {@code null}, the current IGP weights of the links are used). Links with weight {@code Double.MAX_VALUE} are not considered
+	 * @param optionalLayer Network layer (optional)
+	 */
+	public IGPWeightEvaluator (NetPlan netPlan , DoubleMatrix1D linkWeightVector , NetworkLayer ... optionalLayer)
+	{
+		final NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter (optionalLayer);
+		if (linkWeightVector == null) linkWeightVector = IPUtils.getLinkWeightVector (netPlan, layer);
+		final List<Link> links = netPlan.getLinks(layer);
+		final List<Demand> demands = netPlan.getDemands(layer);
+		if (linkWeightVector.size () != links.size ()) throw new Net2PlanException ("Wrong array size");
+		this.N = netPlan.getNumberOfNodes();
+		this.E = links.size();
+		this.precisionFactor = Double.parseDouble(Configuration.getOption("precisionFactor"));
+
+		/* The arc indexes in the graph are the link indexes */
+		this.graph = new CompactGraph(netPlan.getNodes() , links , null);
+		this.outLinksPerNode = new int [N][];
+		for (int n = 0; n < N ; n ++) outLinksPerNode [n] = graph.getOutgoingArcs(n);
+
+		/* Groups of parallel links: ECMP only considers the ones of minimum weight in each group */
+		this.parallelGroupOfLink = new int [E];
+		final int [] groupStartAux = new int [E+1];
+		this.parallelGroupLinks = new int [E];
+		Arrays.fill(parallelGroupOfLink, -1);
+		int numGroups = 0;
+		int numLinksInGroups = 0;
+		for (int e = 0; e < E ; e ++)
+		{
+			if (parallelGroupOfLink [e] != -1) continue;
+			groupStartAux [numGroups] = numLinksInGroups;
+			for (int parallelLink : outLinksPerNode [graph.getArcOrigin(e)])
+			{
+				if (graph.getArcDestination(parallelLink) != graph.getArcDestination(e)) continue;
+				parallelGroupOfLink [parallelLink] = numGroups;
+				parallelGroupLinks [numLinksInGroups ++] = parallelLink;
+			}
+			numGroups ++;
+		}
+		groupStartAux [numGroups] = numLinksInGroups;
+		this.parallelGroupStart = Arrays.copyOf(groupStartAux, numGroups + 1);
+
+		/* Demands grouped by egress node */
+		final int [] numDemandsPerNode = new int [N];
+		for (Demand d : demands) numDemandsPerNode [d.getEgressNode().getIndex()] ++;
+		final int [] destinationIndexOfNode = new int [N];
+		int T = 0;
+		for (int n = 0; n < N ; n ++) destinationIndexOfNode [n] = numDemandsPerNode [n] > 0? T ++ : -1;
+		this.destinations = new int [T];
+		this.demandIngressPerDestination = new int [T][];
+		this.demandOfferedTrafficPerDestination = new double [T][];
+		for (int n = 0; n < N ; n ++)
+		{
+			final int t = destinationIndexOfNode [n];
+			if (t == -1) continue;
+			destinations [t] = n;
+			demandIngressPerDestination [t] = new int [numDemandsPerNode [n]];
+			demandOfferedTrafficPerDestination [t] = new double [numDemandsPerNode [n]];
+		}
+		final int [] demandFill = new int [T];
+		for (Demand d : demands)
+		{
+			final int t = destinationIndexOfNode [d.getEgressNode().getIndex()];
+			demandIngressPerDestination [t][demandFill [t]] = d.getIngressNode().getIndex();
+			demandOfferedTrafficPerDestination [t][demandFill [t] ++] = d.getOfferedTraffic();
+		}
+
+		this.linkWeight = new double [E];
+		this.parallelGroupMinWeight = new double [numGroups];
+		this.distanceToDestination_tn = new double [T][N];
+		this.carriedTrafficPerDestination_te = new double [T][E];
+		this.carriedTraffic_e = new double [E];
+		this.ws = graph.createWorkspace();
+		this.numOutLinksInDag = new int [N];
+		this.fractionOfTrafficInNode = new double [N];
+		this.isLinkToUpdate = new boolean [E];
+
+		setLinkWeights(linkWeightVector , true);
+	}
+
+	/* Creates a copy of the given evaluator, sharing with it the topology information */
+	private IGPWeightEvaluator (IGPWeightEvaluator other)
+	{
+		this.N = other.N;
+		this.E = other.E;
+		this.graph = other.graph;
+		this.outLinksPerNode = other.outLinksPerNode;
+		this.parallelGroupStart = other.parallelGroupStart;
+		this.parallelGroupLinks = other.parallelGroupLinks;
+		this.parallelGroupOfLink = other.parallelGroupOfLink;
+		this.destinations = other.destinations;
+		this.demandIngressPerDestination = other.demandIngressPerDestination;
+		this.demandOfferedTrafficPerDestination = other.demandOfferedTrafficPerDestination;
+		this.precisionFactor = other.precisionFactor;
+
+		this.linkWeight = Arrays.copyOf(other.linkWeight, E);
+		this.parallelGroupMinWeight = Arrays.copyOf(other.parallelGroupMinWeight, other.parallelGroupMinWeight.length);
+		this.distanceToDestination_tn = new double [destinations.length][];
+		this.carriedTrafficPerDestination_te = new double [destinations.length][];
+		for (int t = 0; t < destinations.length ; t ++)
+		{
+			distanceToDestination_tn [t] = Arrays.copyOf(other.distanceToDestination_tn [t], N);
+			carriedTrafficPerDestination_te [t] = Arrays.copyOf(other.carriedTrafficPerDestination_te [t], E);
+		}
+		this.carriedTraffic_e = Arrays.copyOf(other.carriedTraffic_e, E);
+		this.ws = graph.createWorkspace();
+		this.numOutLinksInDag = new int [N];
+		this.fractionOfTrafficInNode = new double [N];
+		this.isLinkToUpdate = new boolean [E];
+	}
+
+	/**
+	 * Returns the current weight of each link.
+	 *
+	 * @return see above
+	 */
+	public DoubleMatrix1D getLinkWeights ()
+	{
+		return DoubleFactory1D.dense.make(linkWeight);
+	}
+
+	/**
+	 * Returns the traffic carried by each link for the current weights.
+	 *
+	 * @return see above
+	 */
+	public DoubleMatrix1D getCarriedTrafficPerLink ()
+	{
+		return DoubleFactory1D.dense.make(Arrays.copyOf(carriedTraffic_e, E));
+	}
+
+	/**
+	 * Returns the traffic carried by the link of the given index, for the current weights.
+	 *
+	 * @param linkIndex Link index
+	 * @return see above
+	 */
+	public double getCarriedTraffic (int linkIndex)
+	{
+		return carriedTraffic_e [linkIndex];
+	}
+
+	/**
+	 * Changes the weight of one link, and updates the carried traffic. Only the destinations whose shortest path graph may be changed are recomputed.
+	 *
+	 * @param linkIndex Link index
+	 * @param weight New weight (strictly positive, {@code Double.MAX_VALUE} means that the link is not used)
+	 */
+	public void setLinkWeight (int linkIndex , double weight)
+	{
+		if (weight <= 0) throw new Net2PlanException ("Link weights must be strictly positive");
+		final double oldWeight = linkWeight [linkIndex];
+		if (oldWeight == weight) return;
+		linkWeight [linkIndex] = weight;
+		updateParallelGroupMinWeight(parallelGroupOfLink [linkIndex]);
+
+		final int a_e = graph.getArcOrigin(linkIndex);
+		final int b_e = graph.getArcDestination(linkIndex);
+		boolean anyDestinationUpdated = false;
+		for (int t = 0; t < destinations.length ; t ++)
+		{
+			final double [] distance_n = distanceToDestination_tn [t];
+			if (distance_n [b_e] == Double.MAX_VALUE) continue; // the link cannot be in a path to the destination, whatever its weight
+			final boolean wasInShortestPath = oldWeight != Double.MAX_VALUE && Math.abs(distance_n [a_e] - (oldWeight + distance_n [b_e])) < TOLERANCE;
+			final boolean canBeInShortestPath = weight != Double.MAX_VALUE && weight + distance_n [b_e] < distance_n [a_e] + TOLERANCE;
+			if (!wasInShortestPath && !canBeInShortestPath) continue;
+			updateDestination(t);
+			anyDestinationUpdated = true;
+		}
+		if (anyDestinationUpdated) updateCarriedTrafficOfMarkedLinks();
+	}
+
+	/**
+	 * Changes the weights of the links, and updates the carried traffic. If only a few weights change, the update is incremental (see {@link #setLinkWeight(int, double) setLinkWeight}).
+	 *
+	 * @param linkWeightVector Weight per link (strictly positive, {@code Double.MAX_VALUE} means that the link is not used)
+	 */
+	public void setLinkWeights (DoubleMatrix1D linkWeightVector)
+	{
+		setLinkWeights(linkWeightVector , false);
+	}
+
+	/**
+	 * Computes the traffic carried by each link, for each of the given link weight settings. The list is split in consecutive blocks of weight settings, which are
+	 * evaluated in parallel, each block by a copy of this object (so consecutive settings that differ in a few weights are updated incrementally). The copies are kept for the next calls.
+	 * The state of this object is not modified.
+	 *
+	 * @param linkWeightVectors The weight settings to evaluate
+	 * @return The carried traffic per link, for each weight setting, in the same order
+	 */
+	public List<DoubleMatrix1D> computeCarriedTrafficPerLink (List<DoubleMatrix1D> linkWeightVectors)
+	{
+		final int numWeightSettings = linkWeightVectors.size();
+		final int numBlocks = Math.max(1 , Math.min(numWeightSettings , Runtime.getRuntime().availableProcessors()));
+		final DoubleMatrix1D [] res = new DoubleMatrix1D [numWeightSettings];
+		IntStream.range(0 , numBlocks).parallel().forEach(block ->
+		{
+			IGPWeightEvaluator evaluator = copiesForParallelEvaluations.pollFirst();
+			if (evaluator == null) evaluator = new IGPWeightEvaluator(this);
+			for (int cont = block * numWeightSettings / numBlocks; cont < (block + 1) * numWeightSettings / numBlocks ; cont ++)
+			{
+				evaluator.setLinkWeights(linkWeightVectors.get(cont));
+				res [cont] = evaluator.getCarriedTrafficPerLink();
+			}
+			copiesForParallelEvaluations.addFirst(evaluator);
+		});
+		return new ArrayList<DoubleMatrix1D> (Arrays.asList(res));
+	}
+
+	private void setLinkWeights (DoubleMatrix1D linkWeightVector , boolean forceFullUpdate)
+	{
+		if (linkWeightVector.size () != E) throw new Net2PlanException ("Wrong array size");
+		int numChanges = 0;
+		for (int e = 0; e < E ; e ++)
+		{
+			final double w = linkWeightVector.get(e);
+			if (w <= 0) throw new Net2PlanException ("Link weights must be strictly positive");
+			if (w != linkWeight [e]) numChanges ++;
+		}
+		if (numChanges == 0 && !forceFullUpdate) return;
+		if (!forceFullUpdate && numChanges <= 1 + E / 16)
+		{
+			for (int e = 0; e < E ; e ++) setLinkWeight(e , linkWeightVector.get(e));
+			return;
+		}
+		for (int e = 0; e < E ; e ++) linkWeight [e] = linkWeightVector.get(e);
+		for (int group = 0; group < parallelGroupMinWeight.length ; group ++) updateParallelGroupMinWeight(group);
+		for (int t = 0; t < destinations.length ; t ++) updateDestination(t);
+		updateCarriedTrafficOfMarkedLinks();
+	}
+
+	private void updateParallelGroupMinWeight (int group)
+	{
+		double minWeight = Double.MAX_VALUE;
+		for (int cont = parallelGroupStart [group]; cont < parallelGroupStart [group + 1] ; cont ++)
+			minWeight = Math.min(minWeight, linkWeight [parallelGroupLinks [cont]]);
+		parallelGroupMinWeight [group] = minWeight;
+	}
+
+	/* Recomputes the shortest path distances to the destination, and the traffic carried by the links of the demands to the destination. The links whose carried traffic changes are marked */
+	private void updateDestination (int t)
+	{
+		final int egressNode = destinations [t];
+		final double [] distance_n = distanceToDestination_tn [t];
+		final double [] carriedTraffic_e = carriedTrafficPerDestination_te [t];
+
+		/* Dijkstra from the destination, through the incoming links. The settled nodes are in increasing distance to the destination */
+		graph.computeShortestPathTreeToDestination(ws , linkWeight , egressNode);
+		for (int n = 0; n < N ; n ++) distance_n [n] = ws.getDistance(n);
+		final int numSettledNodes = ws.getNumberOfSettledNodes();
+
+		/* The links in the shortest path graph (ECMP splits the traffic equally among them) */
+		for (int cont = 0; cont < numSettledNodes ; cont ++)
+		{
+			final int n = ws.getSettledNode(cont);
+			int numOutLinks = 0;
+			for (int e : outLinksPerNode [n])
+				if (isInShortestPathGraph(e, distance_n)) numOutLinks ++;
+			numOutLinksInDag [n] = numOutLinks;
+		}
+
+		/* Remove the previous traffic of the destination */
+		for (int e = 0; e < E ; e ++)
+			if (carriedTraffic_e [e] != 0) { carriedTraffic_e [e] = 0; isLinkToUpdate [e] = true; }
+
+		/* Propagate the traffic of each demand, visiting the nodes in decreasing distance to the destination */
+		final int [] ingressNodes = demandIngressPerDestination [t];
+		final double [] offeredTraffic = demandOfferedTrafficPerDestination [t];
+		for (int d = 0; d < ingressNodes.length ; d ++)
+		{
+			final double h_d = offeredTraffic [d];
+			if (distance_n [ingressNodes [d]] == Double.MAX_VALUE) continue;
+			for (int cont = 0; cont < numSettledNodes ; cont ++) fractionOfTrafficInNode [ws.getSettledNode(cont)] = 0;
+			fractionOfTrafficInNode [ingressNodes [d]] = 1;
+			for (int cont = numSettledNodes - 1; cont > 0 ; cont --)
+			{
+				final int n = ws.getSettledNode(cont);
+				final double fractionInNode = fractionOfTrafficInNode [n];
+				if (fractionInNode == 0) continue;
+				final double splittingFactor = 1.0 / numOutLinksInDag [n];
+				for (int e : outLinksPerNode [n])
+				{
+					if (!isInShortestPathGraph(e, distance_n)) continue;
+					final double x_de = h_d * fractionInNode * splittingFactor;
+					if (x_de >= precisionFactor) { carriedTraffic_e [e] += x_de; isLinkToUpdate [e] = true; }
+					fractionOfTrafficInNode [graph.getArcDestination(e)] += fractionInNode * splittingFactor;
+				}
+			}
+		}
+	}
+
+	private boolean isInShortestPathGraph (int e , double [] distance_n)
+	{
+		final double w_e = linkWeight [e];
+		if (w_e == Double.MAX_VALUE) return false;
+		if (w_e != parallelGroupMinWeight [parallelGroupOfLink [e]]) return false;
+		final int a_e = graph.getArcOrigin(e);
+		final int b_e = graph.getArcDestination(e);
+		if (a_e == b_e || distance_n [b_e] == Double.MAX_VALUE) return false;
+		return Math.abs(distance_n [a_e] - (w_e + distance_n [b_e])) < TOLERANCE;
+	}
+
+	/* The carried traffic of a link is the sum of the traffic per destination, always added in the same order, so it only depends on the current weights */
+	private void updateCarriedTrafficOfMarkedLinks ()
+	{
+		for (int e = 0; e < E ; e ++)
+		{
+			if (!isLinkToUpdate [e]) continue;
+			isLinkToUpdate [e] = false;
+			double y_e = 0;
+			for (int t = 0; t < destinations.length ; t ++) y_e += carriedTrafficPerDestination_te [t][e];
+			carriedTraffic_e [e] = y_e;
+		}
+	}
+}
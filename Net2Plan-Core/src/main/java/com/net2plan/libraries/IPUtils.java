@@ -12,6 +12,7 @@
 package com.net2plan.libraries;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -135,15 +136,11 @@ public class IPUtils
 	public static Quadruple<DoubleMatrix2D, DoubleMatrix2D, DoubleMatrix1D, DoubleMatrix1D> computeCarriedTrafficFromIGPWeights(NetPlan netPlan, DoubleMatrix1D linkWeightVector , NetworkLayer ... optionalLayer)
 	{
 		final NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter (optionalLayer);
-		if (linkWeightVector == null) linkWeightVector = IPUtils.getLinkWeightVector (netPlan, layer);
-		for (int cont = 0; cont < linkWeightVector.size() ; cont ++) if (linkWeightVector.get(cont) <= 0) throw new Net2PlanException ("Link weights must be strictly possitive");
-		
 		final List<Node> nodes = netPlan.getNodes();
 		final List<Link> links = netPlan.getLinks(layer);
 		final List<Demand> demands = netPlan.getDemands(layer);
 		final DoubleMatrix1D h_d = netPlan.getVectorDemandOfferedTraffic(layer);
-		final DoubleMatrix2D f_te = IPUtils.computeECMPRoutingTableMatrix_fte (nodes, links , linkWeightVector);
-		final DoubleMatrix2D f_de = GraphUtils.convert_fte2fde(demands.size() , new TreeSet<> (demands), f_te);
+		final DoubleMatrix2D f_de = computeECMPForwardingRules_fde(netPlan, linkWeightVector, layer);
 		final Quadruple<DoubleMatrix2D , DoubleMatrix1D, DoubleMatrix1D, List<Constants.RoutingCycleType>> q_noFailure = 
 				GraphUtils.convert_fde2xde(nodes.size(), links, new TreeSet<> (demands), h_d, f_de);
 		final DoubleMatrix2D x_de = q_noFailure.getFirst();
@@ -152,6 +149,60 @@ public class IPUtils
 		return Quadruple.of(f_de, x_de, r_d, y_e);
 	}
 
+	/* Returns the OSPF/ECMP forwarding rules of the demands of the layer, without computing the traffic they carry */
+	private static DoubleMatrix2D computeECMPForwardingRules_fde (NetPlan netPlan, DoubleMatrix1D linkWeightVector , NetworkLayer layer)
+	{
+		final List<Demand> demands = netPlan.getDemands(layer);
+		final List<Link> links = netPlan.getLinks(layer);
+		final EcmpRoutingTable table = getECMPRoutingTable(netPlan, linkWeightVector, layer);
+		final DoubleMatrix2D f_de = DoubleFactory2D.sparse.make(demands.size() , links.size());
+		for (Demand d : demands)
+		{
+			final int t = table.getNodeIndex(d.getEgressNode());
+			final int [] dagLinks = table.getDagLinks(t);
+			final double [] splittingFactors = table.getDagSplittingFactors(t);
+			for (int i = 0; i < dagLinks.length ; i ++)
+				f_de.set(d.getIndex() , links.get(dagLinks [i]).getIndex() , splittingFactors [i]);
+		}
+		return f_de;
+	}
+
+	/* Returns the OSPF/ECMP routing table of this thread for the nodes and links of the layer, updated to the given weights */
+	private static EcmpRoutingTable getECMPRoutingTable (NetPlan netPlan, DoubleMatrix1D linkWeightVector , NetworkLayer layer)
+	{
+		if (linkWeightVector == null) linkWeightVector = IPUtils.getLinkWeightVector (netPlan, layer);
+		for (int cont = 0; cont < linkWeightVector.size() ; cont ++) if (linkWeightVector.get(cont) <= 0) throw new Net2PlanException ("Link weights must be strictly possitive");
+		final EcmpRoutingTable table = EcmpRoutingTable.get(netPlan.getNodes(), netPlan.getLinks(layer));
+		table.update(linkWeightVector.toArray());
+		return table;
+	}
+
+	/* Sets the OSPF/ECMP forwarding rules of the given demands (all the layer demands if null). The hop-by-hop demands whose current rules are already the ones
+	 * of the routing table are not updated, since their routing would not change */
+	private static void setECMPForwardingRules (NetPlan netPlan, DoubleMatrix1D linkWeightVector , Collection<Demand> demandsToUpdate , NetworkLayer layer)
+	{
+		final List<Link> links = netPlan.getLinks(layer);
+		final EcmpRoutingTable table = getECMPRoutingTable(netPlan, linkWeightVector, layer);
+		if (demandsToUpdate == null) demandsToUpdate = netPlan.getDemands(layer);
+		final DoubleMatrix2D f_de = DoubleFactory2D.sparse.make(netPlan.getNumberOfDemands(layer) , links.size());
+		final Set<Demand> demandsWithNewRules = new HashSet<> ();
+		for (Demand d : demandsToUpdate)
+		{
+			final int t = table.getNodeIndex(d.getEgressNode());
+			final int [] dagLinks = table.getDagLinks(t);
+			final double [] splittingFactors = table.getDagSplittingFactors(t);
+			boolean sameRules = !d.isSourceRouting() && d.getNumberOfForwardingRules() == dagLinks.length;
+			for (int i = 0; sameRules && i < dagLinks.length ; i ++)
+				sameRules = Math.abs(d.getForwardingRuleSplittingFactor(links.get(dagLinks [i])) - splittingFactors [i]) < 1E-9;
+			if (sameRules) continue;
+			demandsWithNewRules.add(d);
+			for (int i = 0; i < dagLinks.length ; i ++)
+				f_de.set(d.getIndex() , links.get(dagLinks [i]).getIndex() , splittingFactors [i]);
+		}
+		if (demandsWithNewRules.isEmpty()) return;
+		netPlan.setForwardingRules(f_de , demandsWithNewRules , layer);
+	}
+
 //	/**
 //	 *
 //	 * @param nodes List of nodes
@@ -255,7 +306,8 @@ public class IPUtils
 
 	/**
 	 * Computes the routing table matrix according to an OSPF/ECMP scheme. 
-	 * Links with a weight of Double.MAX_VALUE are not considered
+	 * Links with a weight of Double.MAX_VALUE are not considered. The table of the last call in the same thread, for the same nodes and links,
+	 * is reused, recomputing only the destinations affected by the links with a different weight.
 	 * For each destination node <i>t</i>, and each link <i>e</i>, {@code f_te[t][e]}
 	 * sets the fraction of the traffic targeted to node <i>t</i> that arrives
 	 * (or is generated in) node <i>a(e)</i> (the initial node of link <i>e</i>),
@@ -271,64 +323,16 @@ public class IPUtils
 	 */
 	public static DoubleMatrix2D computeECMPRoutingTableMatrix_fte (List<Node> nodes, List<Link> links, DoubleMatrix1D linkWeightVector)
 	{
-		final int N = nodes.size();
-		final int E = links.size();
-
-		final SortedMap<Link,Double> linkWeightMap = CollectionUtils.toMap(links, linkWeightVector);
-		final Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkWeightMap);
-		final List<Link> linksToConsider = links.stream().filter(e->linkWeightMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, linksToConsider);
-		final DijkstraDistance<Node,Link> shortestDistanceMatrix = new DijkstraDistance<Node,Link> (graph, nev); 
-		
-		final DoubleMatrix2D f_te = DoubleFactory2D.sparse.make(N,E);
-		
-		final SortedMap<Pair<Node, Node>, Pair<SortedSet<Link>,Double>> linksPerNodeSameMinimumCost = new TreeMap<>();
-		for(Link link : linksToConsider)
-		{
-			final double newLinkCost = linkWeightMap.get(link);
-			final Pair<Node,Node> nodePair_thisLink = Pair.of(link.getOriginNode() , link.getDestinationNode());
-			final Pair<SortedSet<Link>,Double> links_thisNodePair = linksPerNodeSameMinimumCost.get(nodePair_thisLink);
-			if (links_thisNodePair == null)
-			{
-				final SortedSet<Link> setForLinkThisNodePair = new TreeSet<Link>();
-				setForLinkThisNodePair.add(link);
-				linksPerNodeSameMinimumCost.put(nodePair_thisLink, Pair.of(setForLinkThisNodePair , newLinkCost));
-			}
-			else
-			{
-				final double previousLinksCost = links_thisNodePair.getSecond();
-				if (newLinkCost < previousLinksCost) { links_thisNodePair.getFirst().clear(); links_thisNodePair.getFirst().add(link); links_thisNodePair.setSecond(newLinkCost); }
-				else if (newLinkCost == previousLinksCost) { links_thisNodePair.getFirst().add(link); }
-				else if (newLinkCost > previousLinksCost) { continue; }
-			}
-		}
-
-		for (Node egressNode : nodes)
+		final EcmpRoutingTable table = EcmpRoutingTable.get(nodes, links);
+		table.update(linkWeightVector.toArray());
+		final DoubleMatrix2D f_te = DoubleFactory2D.sparse.make(nodes.size() , links.size());
+		for (int egressNodeIndex = 0; egressNodeIndex < nodes.size() ; egressNodeIndex ++)
 		{
-			final int t = egressNode.getIndex();
-			for (Node sourceNode : nodes)
-			{
-				final int n = sourceNode.getIndex ();
-				if (n == t) continue;
-				final Number shortestPathDistance_ij = shortestDistanceMatrix.getDistance(sourceNode, egressNode);
-				if (shortestPathDistance_ij == null) continue; // egress not reachable
-				final SortedSet<Link> minCostLinks = new TreeSet<> (); 
-				for (Node intermediateNode : graph.getNeighbors(sourceNode))
-				{
-					final Pair<SortedSet<Link>,Double> nodePairLinks = linksPerNodeSameMinimumCost.get(Pair.of(sourceNode, intermediateNode));
-					if (nodePairLinks == null) continue;
-					if (nodePairLinks.getFirst().isEmpty()) continue;
-					final Number costFromIntermediateToEnd = shortestDistanceMatrix.getDistance(intermediateNode, egressNode);
-					if (costFromIntermediateToEnd == null) continue;
-					final double costThroghThisIntermediate = nodePairLinks.getSecond() + costFromIntermediateToEnd.doubleValue();
-					if (Math.abs(shortestPathDistance_ij.doubleValue() - costThroghThisIntermediate) < 1E-10)
-						minCostLinks.addAll(nodePairLinks.getFirst());
-				}
-				final int outdegree = minCostLinks.size();
-				if (outdegree > 0)
-					for (Link link : minCostLinks)
-						f_te.set (t , link.getIndex () , 1.0 / outdegree);
-			}
+			final int t = nodes.get(egressNodeIndex).getIndex();
+			final int [] dagLinks = table.getDagLinks(egressNodeIndex);
+			final double [] splittingFactors = table.getDagSplittingFactors(egressNodeIndex);
+			for (int i = 0; i < dagLinks.length ; i ++)
+				f_te.set (t , links.get(dagLinks [i]).getIndex () , splittingFactors [i]);
 		}
 		return f_te;
 	}
@@ -645,6 +649,8 @@ public class IPUtils
 	 * given IGP weight setting. Any previous routing information (either source 
 	 * routing or hop-by-hop routing) will be removed. This method calls 
 	 * sequentually to {@code computeECMPForwardingRules} and {@code setForwardingRules} methods.
+	 * The routing table of the last call in the same thread, for the same nodes and links, is reused: only the destinations
+	 * affected by the links with a different weight are recomputed, and the hop-by-hop demands whose forwarding rules do not change are not updated.
 	 * 
 	 * @param netPlan Network design
 	 * @param optionalLayer Network layer (optional)
@@ -653,10 +659,7 @@ public class IPUtils
 	public static void setECMPForwardingRulesFromLinkWeights(NetPlan netPlan, DoubleMatrix1D linkWeightMap , NetworkLayer ... optionalLayer)
 	{
 		final NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayer);
-		final Quadruple<DoubleMatrix2D, DoubleMatrix2D, DoubleMatrix1D, DoubleMatrix1D> q = 
-				computeCarriedTrafficFromIGPWeights(netPlan, linkWeightMap , layer);
-		final DoubleMatrix2D f_de = q.getFirst ();
-		netPlan.setForwardingRules(f_de , new HashSet<> (netPlan.getDemandsHopByHopRouted(layer)) , layer);
+		setECMPForwardingRules(netPlan, linkWeightMap , netPlan.getDemandsHopByHopRouted(layer) , layer);
 	}
 	
 	/**
@@ -664,6 +667,8 @@ public class IPUtils
 	 * given IGP weight setting. Any previous routing information (either source 
 	 * routing or hop-by-hop routing) will be removed. This method calls 
 	 * sequentually to {@code computeECMPForwardingRules} and {@code setForwardingRules} methods.
+	 * The routing table of the last call in the same thread, for the same nodes and links, is reused: only the destinations
+	 * affected by the links with a different weight are recomputed, and the hop-by-hop demands whose forwarding rules do not change are not updated.
 	 * 
 	 * @param netPlan Network design
 	 * @param demandsToUpdate the demands to update. If null, all the layer demands
@@ -673,10 +678,7 @@ public class IPUtils
 	public static void setECMPForwardingRulesFromLinkWeights(NetPlan netPlan, DoubleMatrix1D linkWeightMap , Set<Demand> demandsToUpdate , NetworkLayer ... optionalLayer)
 	{
 		final NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayer);
-		final Quadruple<DoubleMatrix2D, DoubleMatrix2D, DoubleMatrix1D, DoubleMatrix1D> q = 
-				computeCarriedTrafficFromIGPWeights(netPlan, linkWeightMap , layer);
-		final DoubleMatrix2D f_de = q.getFirst ();
-		netPlan.setForwardingRules(f_de , demandsToUpdate , layer);
+		setECMPForwardingRules(netPlan, linkWeightMap , demandsToUpdate , layer);
 	}
 
 	
@@ -0,0 +1,596 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+
+/** <p>Heuristic computation of minimum cost multicast trees (directed Steiner trees) in a {@link CompactGraph}, without solving any optimization problem. A multicast tree
+ * is a set of arcs forming an arborescence rooted at the origin node that reaches all the destination nodes, and whose leaves are destination nodes. Its cost is the sum of the costs of its arcs.
+ * The available heuristics are:</p>
+ * <ul>
+ * <li>{@link Algorithm#SHORTEST_PATH_TREE}: the union of the shortest paths from the origin to each destination. One shortest path tree computation per tree</li>
+ * <li>{@link Algorithm#TAKAHASHI_MATSUYAMA}: starting from the origin, the tree is grown adding each time the shortest path from the tree to the closest destination not yet in it.
+ * One (partial) shortest path tree computation per destination</li>
+ * <li>{@link Algorithm#KMB}: Kou-Markowsky-Berman heuristic, adapted to directed graphs: the minimum cost arborescence is computed in the complete graph of the shortest path distances
+ * between the origin and the destinations, its arcs are expanded into the shortest paths, and the tree is the shortest path tree from the origin in the resulting subgraph.
+ * One shortest path tree computation per destination</li>
+ * <li>{@link Algorithm#MEHLHORN}: Mehlhorn's variant of the KMB heuristic, where the complete distance graph is replaced by the distances between neighbouring shortest path regions
+ * (the nodes that are closest to the same origin or destination node), obtained with two shortest path tree computations (one forward and one backward) whatever the number of destinations</li>
+ * </ul>
+ * <p>The K-minimum cost trees are searched by edge-exclusion branching (as in Lawler's scheme): the subproblems derived from a tree exclude, besides the arcs excluded in the
+ * subproblem where it was found, one of its arcs. The subproblems are explored in increasing order of the cost of their tree, found by the heuristic.
+ * Since the trees are heuristic, the trees returned are not guaranteed to be the K-minimum cost ones.</p>
+ *
+ * <p>Objects of this class are not modified after construction, and can be shared among threads, as the graph, so the trees of different multicast demands can be computed
+ * in parallel. Each thread should use its own {@link CompactGraph.Workspace}.</p>
+ *
+ * @since 0.6.6 */
+public class MulticastTreeEngine
+{
+	/**
+	 * The heuristic used to compute each tree.
+	 *
+	 * @since 0.6.6
+	 */
+	public enum Algorithm
+	{
+		SHORTEST_PATH_TREE ("shortestPathTree"),
+		TAKAHASHI_MATSUYAMA ("takahashiMatsuyama"),
+		KMB ("kmb"),
+		MEHLHORN ("mehlhorn");
+
+		private final String name;
+
+		Algorithm (String name) { this.name = name; }
+
+		/**
+		 * Returns the name of the algorithm, as used in the parameters of the candidate tree list computation
+		 * @return see above
+		 */
+		public String getName () { return name; }
+	}
+
+	/* Maximum number of trees computed in the branching, per tree requested and arc of the first tree */
+	private static final int MAXTREECOMPUTATIONSPERTREEANDARC = 4;
+
+	private final CompactGraph graph;
+	private final Algorithm algorithm;
+	private final double [] arcCosts;
+
+	/** Creates the engine for the given graph, using the arc costs of the graph
+	 * @param graph the graph
+	 * @param algorithm the heuristic used to compute each tree
+	 */
+	public MulticastTreeEngine (CompactGraph graph , Algorithm algorithm)
+	{
+		if (algorithm == null) throw new Net2PlanException("The multicast tree algorithm cannot be null");
+		this.graph = graph;
+		this.algorithm = algorithm;
+		this.arcCosts = new double [graph.getNumberOfArcs()];
+		for (int a = 0; a < arcCosts.length ; a ++) arcCosts [a] = graph.getArcCost(a);
+	}
+
+	/** Returns the graph of the engine
+	 * @return see above
+	 */
+	public CompactGraph getGraph () { return graph; }
+
+	/** Returns the heuristic used to compute each tree
+	 * @return see above
+	 */
+	public Algorithm getAlgorithm () { return algorithm; }
+
+	/** Returns the sum of the costs of the arcs in the tree
+	 * @param tree the arc indexes of the tree
+	 * @return see above
+	 */
+	public double getTreeCost (int [] tree)
+	{
+		double cost = 0;
+		for (int a : tree) cost += arcCosts [a];
+		return cost;
+	}
+
+	/** Returns the multicast tree from the origin node to the destination nodes computed by the heuristic, as a sorted array of arc indexes, or {@code null} if some destination is not reachable.
+	 * The nodes and arcs blocked in the workspace are not used.
+	 * @param ws the workspace
+	 * @param origin the index of the origin node
+	 * @param destinations the indexes of the destination nodes (the origin cannot be a destination node)
+	 * @return see above
+	 */
+	public int [] getMinimumCostTree (CompactGraph.Workspace ws , int origin , int [] destinations)
+	{
+		final int [] dests = getDistinctDestinations(origin , destinations);
+		if (dests == null) return null;
+		return computeTree(new Search(ws) , origin , dests);
+	}
+
+	/** Returns the K-minimum cost multicast trees from the origin node to the destination nodes found by edge-exclusion branching, satisfying some user-defined constraints,
+	 * in increasing order of cost. If only <i>n</i> trees are found (n&lt;K), those are returned. The blocked nodes and arcs in the workspace are cleared.
+	 * @param ws the workspace
+	 * @param origin the index of the origin node
+	 * @param destinations the indexes of the destination nodes. If the origin node is a destination node, no tree is returned
+	 * @param K Desired number of trees (a lower number of trees may be returned)
+	 * @param maxCopyCapability the maximum number of output arcs of a node in the tree. If non-positive, no maximum limit is assumed
+	 * @param maxE2ELengthInKm Maximum length in km of the path in the tree from the origin node to any destination node. If non-positive, no maximum limit is assumed
+	 * @param maxE2ENumHops Maximum number of hops of the path in the tree from the origin node to any destination node. If non-positive, no maximum limit is assumed
+	 * @param maxE2EPropDelayInMs Maximum propagation delay in ms of the path in the tree from the origin node to any destination node. If non-positive, no maximum limit is assumed
+	 * @param maxTreeCost Maximum tree cost. If non-positive, no maximum limit is assumed
+	 * @param maxTreeCostFactorRespectToMinimumCostTree Trees with higher cost than the cost of the first tree, multiplied by this factor, are not returned. If non-positive, no maximum limit is assumed
+	 * @param maxTreeCostRespectToMinimumCostTree Trees with higher cost than the cost of the first tree, plus this factor, are not returned. If non-positive, no maximum limit is assumed
+	 * @return the list of trees, each one a sorted array of arc indexes
+	 */
+	public List<int []> getKMinimumCostTrees (CompactGraph.Workspace ws , int origin , int [] destinations , int K , int maxCopyCapability , double maxE2ELengthInKm , int maxE2ENumHops ,
+			double maxE2EPropDelayInMs , double maxTreeCost , double maxTreeCostFactorRespectToMinimumCostTree , double maxTreeCostRespectToMinimumCostTree)
+	{
+		if (K <= 0) throw new Net2PlanException("'K' parameter must be greater than zero");
+		if (maxTreeCost <= 0) maxTreeCost = Double.MAX_VALUE;
+		if (maxTreeCostFactorRespectToMinimumCostTree <= 0) maxTreeCostFactorRespectToMinimumCostTree = Double.MAX_VALUE;
+		if (maxTreeCostRespectToMinimumCostTree <= 0) maxTreeCostRespectToMinimumCostTree = Double.MAX_VALUE;
+		final List<int []> res = new ArrayList<> (K);
+		final int [] dests = getDistinctDestinations(origin , destinations);
+		if (dests == null) return res;
+		final Search s = new Search(ws);
+		s.maxCopyCapability = maxCopyCapability <= 0? Integer.MAX_VALUE : maxCopyCapability;
+		s.maxE2ELengthInKm = maxE2ELengthInKm <= 0? Double.MAX_VALUE : maxE2ELengthInKm;
+		s.maxE2ENumHops = maxE2ENumHops <= 0? Integer.MAX_VALUE : maxE2ENumHops;
+		s.maxE2EPropDelayInMs = maxE2EPropDelayInMs <= 0? Double.MAX_VALUE : maxE2EPropDelayInMs;
+
+		ws.clearBlocked();
+		final int [] firstTree = computeTree(s , origin , dests);
+		if (firstTree == null) return res;
+		final PriorityQueue<Candidate> candidates = new PriorityQueue<> ();
+		final Set<ArcSet> treesFound = new HashSet<> ();
+		final Set<ArcSet> exclusionsExplored = new HashSet<> ();
+		candidates.add(new Candidate(firstTree , getTreeCost(firstTree) , new int [0]));
+		treesFound.add(new ArcSet(firstTree));
+		final int maxNumTreeComputations = MAXTREECOMPUTATIONSPERTREEANDARC * K * (firstTree.length + 1);
+		int numTreeComputations = 1;
+		double maxCost = maxTreeCost;
+		while (!candidates.isEmpty())
+		{
+			final Candidate candidate = candidates.poll();
+			if (candidate.cost > maxCost) break;
+			if (isAdmissible(s , candidate.tree , origin , dests))
+			{
+				if (res.isEmpty())
+				{
+					if (maxTreeCostFactorRespectToMinimumCostTree < Double.MAX_VALUE) maxCost = Math.min(maxCost , candidate.cost * maxTreeCostFactorRespectToMinimumCostTree);
+					if (maxTreeCostRespectToMinimumCostTree < Double.MAX_VALUE) maxCost = Math.min(maxCost , candidate.cost + maxTreeCostRespectToMinimumCostTree);
+				}
+				res.add(candidate.tree);
+				if (res.size() == K) break;
+			}
+			for (int a : candidate.tree)
+			{
+				if (numTreeComputations >= maxNumTreeComputations) break;
+				final int [] excludedArcs = Arrays.copyOf(candidate.excludedArcs , candidate.excludedArcs.length + 1);
+				excludedArcs [excludedArcs.length - 1] = a;
+				Arrays.sort(excludedArcs);
+				if (!exclusionsExplored.add(new ArcSet(excludedArcs))) continue;
+				ws.clearBlocked();
+				for (int b : excludedArcs) ws.blockArc(b);
+				final int [] tree = computeTree(s , origin , dests);
+				numTreeComputations ++;
+				if (tree == null || !treesFound.add(new ArcSet(tree))) continue;
+				candidates.add(new Candidate(tree , getTreeCost(tree) , excludedArcs));
+			}
+		}
+		ws.clearBlocked();
+		return res;
+	}
+
+	/* Returns the destinations without repetitions, or null if the origin is one of them */
+	private static int [] getDistinctDestinations (int origin , int [] destinations)
+	{
+		final int [] res = Arrays.stream(destinations).distinct().toArray();
+		for (int d : res) if (d == origin) return null;
+		return res;
+	}
+
+	private int [] computeTree (Search s , int origin , int [] destinations)
+	{
+		switch (algorithm)
+		{
+			case SHORTEST_PATH_TREE: return computeShortestPathTree(s , origin , destinations);
+			case TAKAHASHI_MATSUYAMA: return computeTakahashiMatsuyamaTree(s , origin , destinations);
+			case KMB: return computeKmbTree(s , origin , destinations);
+			case MEHLHORN: return computeMehlhornTree(s , origin , destinations);
+			default: throw new RuntimeException("Bad");
+		}
+	}
+
+	private int [] computeShortestPathTree (Search s , int origin , int [] destinations)
+	{
+		graph.computeShortestPathTree(s.ws , arcCosts , origin , -1);
+		s.startTree();
+		for (int d : destinations)
+		{
+			if (!s.ws.isSettled(d)) return null;
+			s.addPathTo(d);
+		}
+		return s.getTree();
+	}
+
+	private int [] computeTakahashiMatsuyamaTree (Search s , int origin , int [] destinations)
+	{
+		final int [] treeNodes = s.nodeAuxiliaryArray;
+		treeNodes [0] = origin;
+		int numTreeNodes = 1;
+		for (int d : destinations) s.nodeFlag [d] = true;
+		int numDestinationsNotInTree = destinations.length;
+		s.startTree();
+		try
+		{
+			while (numDestinationsNotInTree > 0)
+			{
+				final int closestDestination = graph.computeShortestPathTreeFromNodes(s.ws , arcCosts , treeNodes , numTreeNodes , s.nodeFlag);
+				if (closestDestination == -1) return null;
+				for (int n = closestDestination , a = s.ws.getPredecessorArc(n) ; a != -1 ; n = graph.getArcOrigin(a) , a = s.ws.getPredecessorArc(n))
+				{
+					s.addArc(a);
+					treeNodes [numTreeNodes ++] = n;
+					if (s.nodeFlag [n]) { s.nodeFlag [n] = false; numDestinationsNotInTree --; }
+				}
+			}
+			return s.getTree();
+		}
+		finally
+		{
+			for (int d : destinations) s.nodeFlag [d] = false;
+		}
+	}
+
+	private int [] computeKmbTree (Search s , int origin , int [] destinations)
+	{
+		final int T = destinations.length + 1;
+		final int [] terminals = getTerminals(origin , destinations);
+		final double [][] distances = new double [T][T];
+		final int [][][] paths = new int [T][T][];
+		for (int i = 0; i < T ; i ++)
+		{
+			Arrays.fill(distances [i] , Double.MAX_VALUE);
+			graph.computeShortestPathTree(s.ws , arcCosts , terminals [i] , -1);
+			for (int j = 1; j < T ; j ++)
+			{
+				if (i == j || !s.ws.isSettled(terminals [j])) continue;
+				distances [i][j] = s.ws.getDistance(terminals [j]);
+				paths [i][j] = s.ws.getPathTo(terminals [j]);
+			}
+		}
+		final int [] parent = getMinimumCostArborescence(distances , 0);
+		if (parent == null) return null;
+		s.startSubgraph();
+		for (int j = 1; j < T ; j ++)
+			for (int a : paths [parent [j]][j]) s.addSubgraphArc(a , arcCosts);
+		return computeShortestPathTreeInSubgraph(s , origin , destinations);
+	}
+
+	private int [] computeMehlhornTree (Search s , int origin , int [] destinations)
+	{
+		final int N = graph.getNumberOfNodes();
+		final int T = destinations.length + 1;
+		final int [] terminals = getTerminals(origin , destinations);
+
+		/* The closest terminal from which each node is reached, and the closest destination reached from each node */
+		graph.computeShortestPathTreeFromNodes(s.ws , arcCosts , terminals , T , null);
+		final double [] distanceFromTerminal = new double [N];
+		final int [] predecessorArcFromTerminal = new int [N];
+		for (int n = 0; n < N ; n ++) { distanceFromTerminal [n] = s.ws.getDistance(n); predecessorArcFromTerminal [n] = s.ws.getPredecessorArc(n); }
+		graph.computeShortestPathTreeToNodes(s.ws , arcCosts , destinations);
+		final double [] distanceToDestination = new double [N];
+		final int [] successorArcToDestination = new int [N];
+		for (int n = 0; n < N ; n ++) { distanceToDestination [n] = s.ws.getDistance(n); successorArcToDestination [n] = s.ws.getPredecessorArc(n); }
+		final int [] terminalIndexOfNode = new int [N];
+		Arrays.fill(terminalIndexOfNode , -1);
+		for (int t = 0; t < T ; t ++) terminalIndexOfNode [terminals [t]] = t;
+		final int [] closestTerminalFrom = getClosestTerminals(distanceFromTerminal , predecessorArcFromTerminal , terminalIndexOfNode , true);
+		final int [] closestDestinationTo = getClosestTerminals(distanceToDestination , successorArcToDestination , terminalIndexOfNode , false);
+
+		/* Each arc between two regions gives a path between their terminals */
+		final double [][] distances = new double [T][T];
+		final int [][] connectingArc = new int [T][T];
+		for (double [] row : distances) Arrays.fill(row , Double.MAX_VALUE);
+		for (int a = 0; a < arcCosts.length ; a ++)
+		{
+			if (arcCosts [a] == Double.MAX_VALUE || s.ws.isArcBlocked(a)) continue;
+			final int i = closestTerminalFrom [graph.getArcOrigin(a)];
+			final int j = closestDestinationTo [graph.getArcDestination(a)];
+			if (i == -1 || j == -1 || i == j) continue;
+			final double distance = distanceFromTerminal [graph.getArcOrigin(a)] + arcCosts [a] + distanceToDestination [graph.getArcDestination(a)];
+			if (distance < distances [i][j]) { distances [i][j] = distance; connectingArc [i][j] = a; }
+		}
+		final int [] parent = getMinimumCostArborescence(distances , 0);
+		if (parent == null) return computeKmbTree(s , origin , destinations); // the regions do not always connect the terminals in directed graphs
+		s.startSubgraph();
+		for (int j = 1; j < T ; j ++)
+		{
+			final int a = connectingArc [parent [j]][j];
+			s.addSubgraphArc(a , arcCosts);
+			for (int b = predecessorArcFromTerminal [graph.getArcOrigin(a)] ; b != -1 ; b = predecessorArcFromTerminal [graph.getArcOrigin(b)]) s.addSubgraphArc(b , arcCosts);
+			for (int b = successorArcToDestination [graph.getArcDestination(a)] ; b != -1 ; b = successorArcToDestination [graph.getArcDestination(b)]) s.addSubgraphArc(b , arcCosts);
+		}
+		return computeShortestPathTreeInSubgraph(s , origin , destinations);
+	}
+
+	/* The shortest path tree from the origin to the destinations, using only the arcs in the subgraph of the search, which is then cleared */
+	private int [] computeShortestPathTreeInSubgraph (Search s , int origin , int [] destinations)
+	{
+		try
+		{
+			graph.computeShortestPathTree(s.ws , s.subgraphArcCosts , origin , -1);
+			s.startTree();
+			for (int d : destinations)
+			{
+				if (!s.ws.isSettled(d)) return null;
+				s.addPathTo(d);
+			}
+			return s.getTree();
+		}
+		finally
+		{
+			s.clearSubgraph();
+		}
+	}
+
+	/* For each node, the index of the terminal at the root of its branch in the last shortest path tree, following the given arcs (the predecessor arcs if forward, the successor arcs if not) */
+	private int [] getClosestTerminals (double [] distances , int [] arcs , int [] terminalIndexOfNode , boolean forward)
+	{
+		final int N = distances.length;
+		final int [] res = new int [N];
+		Arrays.fill(res , -2);
+		final int [] branch = new int [N];
+		for (int n = 0; n < N ; n ++)
+		{
+			if (res [n] != -2) continue;
+			if (distances [n] == Double.MAX_VALUE) { res [n] = -1; continue; }
+			int length = 0;
+			int m = n;
+			while (res [m] == -2 && arcs [m] != -1)
+			{
+				branch [length ++] = m;
+				m = forward? graph.getArcOrigin(arcs [m]) : graph.getArcDestination(arcs [m]);
+			}
+			if (res [m] == -2) res [m] = terminalIndexOfNode [m];
+			for (int cont = 0; cont < length ; cont ++) res [branch [cont]] = res [m];
+		}
+		return res;
+	}
+
+	private static int [] getTerminals (int origin , int [] destinations)
+	{
+		final int [] terminals = new int [destinations.length + 1];
+		terminals [0] = origin;
+		System.arraycopy(destinations , 0 , terminals , 1 , destinations.length);
+		return terminals;
+	}
+
+	private boolean isAdmissible (Search s , int [] tree , int origin , int [] destinations)
+	{
+		if (s.maxCopyCapability != Integer.MAX_VALUE)
+		{
+			boolean admissible = true;
+			for (int a : tree) if (++ s.nodeCounter [graph.getArcOrigin(a)] > s.maxCopyCapability) admissible = false;
+			for (int a : tree) s.nodeCounter [graph.getArcOrigin(a)] = 0;
+			if (!admissible) return false;
+		}
+		if (s.maxE2ENumHops == Integer.MAX_VALUE && s.maxE2ELengthInKm == Double.MAX_VALUE && s.maxE2EPropDelayInMs == Double.MAX_VALUE) return true;
+		final int [] incomingArc = s.nodeAuxiliaryArray;
+		for (int a : tree) incomingArc [graph.getArcDestination(a)] = a;
+		for (int d : destinations)
+		{
+			int numHops = 0;
+			double lengthInKm = 0;
+			double propDelayInMs = 0;
+			for (int n = d ; n != origin ; n = graph.getArcOrigin(incomingArc [n]))
+			{
+				numHops ++;
+				lengthInKm += graph.getArcLengthInKm(incomingArc [n]);
+				propDelayInMs += graph.getArcPropagationDelayInMs(incomingArc [n]);
+			}
+			if (numHops > s.maxE2ENumHops || lengthInKm > s.maxE2ELengthInKm || propDelayInMs > s.maxE2EPropDelayInMs) return false;
+		}
+		return true;
+	}
+
+	/* The minimum cost arborescence rooted at the given node (Chu-Liu/Edmonds algorithm) in the complete graph with the given arc costs (Double.MAX_VALUE if the arc does not exist).
+	 * Returns the parent of each node (-1 for the root), or null if some node is not reachable from the root */
+	static int [] getMinimumCostArborescence (double [][] costs , int root)
+	{
+		final int n = costs.length;
+		final int [] parent = new int [n];
+		for (int v = 0; v < n ; v ++)
+		{
+			parent [v] = -1;
+			if (v == root) continue;
+			for (int u = 0; u < n ; u ++)
+				if (u != v && costs [u][v] != Double.MAX_VALUE && (parent [v] == -1 || costs [u][v] < costs [parent [v]][v])) parent [v] = u;
+			if (parent [v] == -1) return null;
+		}
+
+		/* Look for a cycle in the cheapest incoming arcs */
+		final boolean [] inCycle = new boolean [n];
+		final int [] visitedFrom = new int [n];
+		Arrays.fill(visitedFrom , -1);
+		boolean cycleFound = false;
+		for (int v = 0; v < n && !cycleFound ; v ++)
+		{
+			int u = v;
+			while (u != -1 && visitedFrom [u] == -1) { visitedFrom [u] = v; u = parent [u]; }
+			if (u == -1 || visitedFrom [u] != v) continue;
+			cycleFound = true;
+			for (int w = u ; !inCycle [w] ; w = parent [w]) inCycle [w] = true;
+		}
+		if (!cycleFound) return parent;
+
+		/* Contract the cycle into a new node, and solve the contracted problem */
+		final int [] newIndex = new int [n];
+		final int [] oldIndex = new int [n];
+		int m = 0;
+		for (int v = 0; v < n ; v ++) if (!inCycle [v]) { newIndex [v] = m; oldIndex [m ++] = v; }
+		final int cycleNode = m;
+		final double [][] contractedCosts = new double [m + 1][m + 1];
+		for (double [] row : contractedCosts) Arrays.fill(row , Double.MAX_VALUE);
+		final int [] cycleNodeEnteredFrom = new int [n];
+		final int [] cycleNodeLeftTo = new int [n];
+		for (int u = 0; u < n ; u ++)
+		{
+			if (inCycle [u]) continue;
+			for (int v = 0; v < n ; v ++)
+			{
+				if (u == v || costs [u][v] == Double.MAX_VALUE) continue;
+				if (!inCycle [v]) { contractedCosts [newIndex [u]][newIndex [v]] = costs [u][v]; continue; }
+				final double cost = costs [u][v] - costs [parent [v]][v];
+				if (cost < contractedCosts [newIndex [u]][cycleNode]) { contractedCosts [newIndex [u]][cycleNode] = cost; cycleNodeEnteredFrom [u] = v; }
+			}
+			for (int w = 0; w < n ; w ++)
+			{
+				if (!inCycle [w] || costs [w][u] == Double.MAX_VALUE) continue;
+				if (costs [w][u] < contractedCosts [cycleNode][newIndex [u]]) { contractedCosts [cycleNode][newIndex [u]] = costs [w][u]; cycleNodeLeftTo [u] = w; }
+			}
+		}
+		final int [] contractedParent = getMinimumCostArborescence(contractedCosts , newIndex [root]);
+		if (contractedParent == null) return null;
+
+		/* Expand the cycle: all its arcs are kept, but the one entering the node where the arborescence enters the cycle */
+		final int [] res = new int [n];
+		for (int v = 0; v < n ; v ++)
+		{
+			if (inCycle [v]) { res [v] = parent [v]; continue; }
+			final int p = contractedParent [newIndex [v]];
+			res [v] = p == -1? -1 : p == cycleNode? cycleNodeLeftTo [v] : oldIndex [p];
+		}
+		final int enteringNode = oldIndex [contractedParent [cycleNode]];
+		res [cycleNodeEnteredFrom [enteringNode]] = enteringNode;
+		return res;
+	}
+
+	/* The mutable state of a tree computation, besides the workspace: the arcs of the tree being built, the costs of the subgraph for the KMB-like heuristics,
+	 * and auxiliary arrays indexed by node. Arrays are restored to their initial values after each use */
+	private final class Search
+	{
+		private final CompactGraph.Workspace ws;
+		private final int [] arcStamp;
+		private final double [] subgraphArcCosts;
+		private final boolean [] nodeFlag;
+		private final int [] nodeCounter;
+		private final int [] nodeAuxiliaryArray;
+		private int [] treeArcs;
+		private int numTreeArcs;
+		private int [] subgraphArcs;
+		private int numSubgraphArcs;
+		private int stamp;
+		private int maxCopyCapability = Integer.MAX_VALUE;
+		private double maxE2ELengthInKm = Double.MAX_VALUE;
+		private int maxE2ENumHops = Integer.MAX_VALUE;
+		private double maxE2EPropDelayInMs = Double.MAX_VALUE;
+
+		private Search (CompactGraph.Workspace ws)
+		{
+			final int N = graph.getNumberOfNodes();
+			final int E = graph.getNumberOfArcs();
+			this.ws = ws;
+			this.arcStamp = new int [E];
+			this.subgraphArcCosts = new double [E];
+			Arrays.fill(subgraphArcCosts , Double.MAX_VALUE);
+			this.nodeFlag = new boolean [N];
+			this.nodeCounter = new int [N];
+			this.nodeAuxiliaryArray = new int [N];
+			this.treeArcs = new int [16];
+			this.subgraphArcs = new int [16];
+		}
+
+		private void startTree () { numTreeArcs = 0; stamp ++; }
+
+		private boolean addArc (int a)
+		{
+			if (arcStamp [a] == stamp) return false;
+			arcStamp [a] = stamp;
+			if (numTreeArcs == treeArcs.length) treeArcs = Arrays.copyOf(treeArcs , 2 * numTreeArcs);
+			treeArcs [numTreeArcs ++] = a;
+			return true;
+		}
+
+		/* Adds the path to the node in the last shortest path tree computed, until an arc already in the tree is found (then, the rest of the path is also in the tree) */
+		private void addPathTo (int n)
+		{
+			for (int a = ws.getPredecessorArc(n) ; a != -1 && addArc(a) ; a = ws.getPredecessorArc(graph.getArcOrigin(a))) { }
+		}
+
+		private int [] getTree ()
+		{
+			final int [] res = Arrays.copyOf(treeArcs , numTreeArcs);
+			Arrays.sort(res);
+			return res;
+		}
+
+		private void startSubgraph () { numSubgraphArcs = 0; }
+
+		private void addSubgraphArc (int a , double [] costs)
+		{
+			if (numSubgraphArcs == subgraphArcs.length) subgraphArcs = Arrays.copyOf(subgraphArcs , 2 * numSubgraphArcs);
+			subgraphArcs [numSubgraphArcs ++] = a;
+			subgraphArcCosts [a] = costs [a];
+		}
+
+		private void clearSubgraph ()
+		{
+			for (int cont = 0; cont < numSubgraphArcs ; cont ++) subgraphArcCosts [subgraphArcs [cont]] = Double.MAX_VALUE;
+			numSubgraphArcs = 0;
+		}
+	}
+
+	/* A tree found in the branching, with the arcs excluded in the subproblem where it was found */
+	private static final class Candidate implements Comparable<Candidate>
+	{
+		private final int [] tree;
+		private final double cost;
+		private final int [] excludedArcs;
+
+		private Candidate (int [] tree , double cost , int [] excludedArcs) { this.tree = tree; this.cost = cost; this.excludedArcs = excludedArcs; }
+
+		@Override
+		public int compareTo (Candidate o)
+		{
+			final int compareCost = Double.compare(cost , o.cost);
+			if (compareCost != 0) return compareCost;
+			for (int i = 0; i < Math.min(tree.length , o.tree.length) ; i ++)
+				if (tree [i] != o.tree [i]) return Integer.compare(tree [i] , o.tree [i]);
+			return Integer.compare(tree.length , o.tree.length);
+		}
+	}
+
+	/* A sorted array of arc indexes, as a key in hash sets */
+	private static final class ArcSet
+	{
+		private final int [] arcs;
+
+		private ArcSet (int [] arcs) { this.arcs = arcs; }
+
+		@Override
+		public boolean equals (Object o)
+		{
+			if (o == this) return true;
+			if (!(o instanceof ArcSet)) return false;
+			return Arrays.equals(arcs , ((ArcSet) o).arcs);
+		}
+
+		@Override
+		public int hashCode () { return Arrays.hashCode(arcs); }
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.Node;
+
+/** {@link CompactGraph} with all the given links, together with a workspace and an array of arc costs, kept per thread and reused by the shortest path methods in
+ * {@link GraphUtils} and {@link IPUtils} while they are called with the same nodes and links (the same objects, in the same order), e.g. once per demand.
+ * Since all the links are included, the index of the arc of a link is its position in the collection of links. Each call sets its link costs in the array of arc costs.
+ * The last graph of each thread is kept through a soft reference, so it does not prevent the design from being garbage collected.
+ */
+final class SharedCompactGraph
+{
+	private static final ThreadLocal<SoftReference<SharedCompactGraph>> lastGraphPerThread = new ThreadLocal<> ();
+
+	private final Node [] nodes;
+	private final Link [] links;
+	final CompactGraph graph;
+	final CompactGraph.Workspace ws;
+	final double [] arcCosts;
+
+	private SharedCompactGraph (Collection<Node> nodes , Collection<Link> links)
+	{
+		this.nodes = nodes.toArray(new Node [nodes.size()]);
+		this.links = links.toArray(new Link [links.size()]);
+		this.graph = new CompactGraph(nodes , links , null);
+		this.ws = graph.createWorkspace();
+		this.arcCosts = new double [this.links.length];
+	}
+
+	/** Returns the graph of the given nodes and links for this thread, building it only if the last one used in this thread was built from other nodes or links
+	 * @param nodes the nodes
+	 * @param links the links (if {@code null}, no links)
+	 * @return see above
+	 */
+	static SharedCompactGraph get (Collection<Node> nodes , Collection<Link> links)
+	{
+		if (links == null) links = Collections.emptyList();
+		final SoftReference<SharedCompactGraph> ref = lastGraphPerThread.get();
+		final SharedCompactGraph last = ref == null? null : ref.get();
+		if (last != null && isSameSequence(last.nodes , nodes) && isSameSequence(last.links , links)) return last;
+		final SharedCompactGraph res = new SharedCompactGraph(nodes , links);
+		lastGraphPerThread.set(new SoftReference<> (res));
+		return res;
+	}
+
+	/** Sets the cost of each arc from the given map, and returns the array of arc costs
+	 * @param linkCostMap the cost of each link (if {@code null}, all the links have cost one)
+	 * @return see above
+	 */
+	double [] setArcCosts (Map<Link,Double> linkCostMap)
+	{
+		for (int a = 0; a < links.length ; a ++)
+		{
+			if (linkCostMap == null) { arcCosts [a] = 1.0; continue; }
+			final Double value = linkCostMap.get(links [a]);
+			if (value == null) throw new Net2PlanException("Bad - No weight for link " + links [a]);
+			arcCosts [a] = value;
+		}
+		return arcCosts;
+	}
+
+	/** Returns the link of the given arc
+	 * @param arcIndex the arc index
+	 * @return see above
+	 */
+	Link getLink (int arcIndex) { return links [arcIndex]; }
+
+	/** Returns the sequence of links from the origin of the last search in the workspace to the given node, which must have been settled
+	 * @param nodeIndex the node index
+	 * @return see above
+	 */
+	List<Link> getLinkPathTo (int nodeIndex)
+	{
+		final List<Link> res = new ArrayList<> ();
+		for (int a = ws.getPredecessorArc(nodeIndex) ; a != -1 ; a = ws.getPredecessorArc(graph.getArcOrigin(a))) res.add(links [a]);
+		Collections.reverse(res);
+		return res;
+	}
+
+	static <T> boolean isSameSequence (T [] array , Collection<? extends T> col)
+	{
+		if (array.length != col.size()) return false;
+		final Iterator<? extends T> it = col.iterator();
+		for (T elem : array) if (elem != it.next()) return false;
+		return true;
+	}
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.stream.IntStream;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.MulticastDemand;
+
+/** Estimator of the offered traffic of the demands and multicast demands of a layer, from the monitored traffic of some links and (optionally) some
+ * demands. The estimation minimizes (1-a) times the sum of the squared errors in the monitored links, plus a times the sum of the squared errors in the
+ * monitored demands, with non-negative traffics. The routing is stored as a sparse matrix in compressed row form, with one row per demand followed by
+ * one row per multicast demand, containing the traversed links and the fraction of the offered traffic carried in each. The problem is solved by cyclic
+ * coordinate descent, projecting each traffic to the non-negative values, and keeping the residuals of the monitored links updated.
+ * Several dates are solved in parallel in the common fork-join pool, in blocks of consecutive dates: each date starts from the solution of the previous
+ * date of its block, so the results do not depend on the number of threads.
+ */
+final class TrafficMatrixLeastSquaresEstimator
+{
+	private static final int NUMDATESPERBLOCK = 16;
+	private static final int MAXNUMSWEEPS = 100000;
+	private static final double RELATIVETOLERANCE = 1e-10;
+
+	private final int E;
+	private final int numVariables;
+	private final int [] rowStart;
+	private final int [] rowLink;
+	private final double [] rowFraction;
+
+	/** Creates the estimator for the current routing of the given demands and multicast demands
+	 * @param links the links of the layer
+	 * @param demands the demands of the layer (the variables first in the solutions)
+	 * @param mdemands the multicast demands of the layer (the variables after the demands in the solutions)
+	 */
+	TrafficMatrixLeastSquaresEstimator (List<Link> links , List<Demand> demands , List<MulticastDemand> mdemands)
+	{
+		this.E = links.size();
+		this.numVariables = demands.size() + mdemands.size();
+		this.rowStart = new int [numVariables + 1];
+		final List<SortedMap<Link,Double>> rows = new ArrayList<> (numVariables);
+		for (int j = 0; j < numVariables ; j ++)
+		{
+			rows.add(j < demands.size()? demands.get(j).getTraversedLinksAndCarriedTraffic(true) : mdemands.get(j - demands.size()).getTraversedLinksAndCarriedTraffic(true));
+			rowStart [j + 1] = rowStart [j] + rows.get(j).size();
+		}
+		this.rowLink = new int [rowStart [numVariables]];
+		this.rowFraction = new double [rowStart [numVariables]];
+		for (int j = 0; j < numVariables ; j ++)
+		{
+			int pos = rowStart [j];
+			for (Entry<Link,Double> entry : rows.get(j).entrySet())
+			{
+				rowLink [pos] = entry.getKey().getIndex();
+				rowFraction [pos ++] = entry.getValue();
+			}
+		}
+	}
+
+	/** Returns the estimated traffic of each variable (demands followed by multicast demands) in each date
+	 * @param monitTraffic_e the monitored traffic of each link in each date ([date][link index]), NaN for the links not monitored
+	 * @param monitTraffic_j the monitored traffic of each variable in each date ([date][variable]), NaN for the variables not monitored
+	 * @param coeff_preferFitRouting0PreferFitDemand1 the weight a of the demand errors, and 1-a of the link errors
+	 * @return see above
+	 */
+	double [][] estimate (double [][] monitTraffic_e , double [][] monitTraffic_j , double coeff_preferFitRouting0PreferFitDemand1)
+	{
+		final int numDates = monitTraffic_e.length;
+		final double [][] res = new double [numDates][];
+		final int numBlocks = (numDates + NUMDATESPERBLOCK - 1) / NUMDATESPERBLOCK;
+		(numBlocks > 1? IntStream.range(0, numBlocks).parallel() : IntStream.range(0, numBlocks)).forEach(b ->
+		{
+			double [] previousSolution = null;
+			for (int t = b * NUMDATESPERBLOCK; t < Math.min(numDates , (b + 1) * NUMDATESPERBLOCK) ; t ++)
+				res [t] = previousSolution = estimate (monitTraffic_e [t] , monitTraffic_j [t] , coeff_preferFitRouting0PreferFitDemand1 , previousSolution);
+		});
+		return res;
+	}
+
+	/** Returns the traffic in each link, when the variables take the given traffics
+	 * @param traffic_j the traffic of each variable
+	 * @return see above
+	 */
+	double [] getLinkTraffic (double [] traffic_j)
+	{
+		final double [] res = new double [E];
+		for (int j = 0; j < numVariables ; j ++)
+			for (int pos = rowStart [j]; pos < rowStart [j + 1] ; pos ++)
+				res [rowLink [pos]] += rowFraction [pos] * traffic_j [j];
+		return res;
+	}
+
+	private double [] estimate (double [] monitTraffic_e , double [] monitTraffic_j , double a , double [] initialSolution)
+	{
+		final double [] h = initialSolution == null? new double [numVariables] : Arrays.copyOf(initialSolution , numVariables);
+		final double [] linkTraffic = getLinkTraffic (h);
+		/* residual of the monitored links, zero for the rest */
+		final double [] residual_e = new double [E];
+		double scale = 0;
+		for (int e = 0; e < E ; e ++)
+		{
+			if (Double.isNaN(monitTraffic_e [e])) continue;
+			residual_e [e] = linkTraffic [e] - monitTraffic_e [e];
+			scale = Math.max(scale , Math.abs(monitTraffic_e [e]));
+		}
+		/* second derivative of the objective function respect to each variable (constant), zero if the variable does not appear in it */
+		final double [] curvature_j = new double [numVariables];
+		for (int j = 0; j < numVariables ; j ++)
+		{
+			for (int pos = rowStart [j]; pos < rowStart [j + 1] ; pos ++)
+				if (!Double.isNaN(monitTraffic_e [rowLink [pos]])) curvature_j [j] += (1 - a) * rowFraction [pos] * rowFraction [pos];
+			if (!Double.isNaN(monitTraffic_j [j])) { curvature_j [j] += a; scale = Math.max(scale , Math.abs(monitTraffic_j [j])); }
+			if (curvature_j [j] == 0) h [j] = 0; // undetermined traffic
+		}
+		final double tolerance = RELATIVETOLERANCE * Math.max(scale , 1);
+		for (int sweep = 0; sweep < MAXNUMSWEEPS ; sweep ++)
+		{
+			double maxChange = 0;
+			for (int j = 0; j < numVariables ; j ++)
+			{
+				if (curvature_j [j] == 0) continue;
+				double gradient = Double.isNaN(monitTraffic_j [j])? 0 : a * (h [j] - monitTraffic_j [j]);
+				for (int pos = rowStart [j]; pos < rowStart [j + 1] ; pos ++)
+					gradient += (1 - a) * rowFraction [pos] * residual_e [rowLink [pos]];
+				final double newValue = Math.max(0 , h [j] - gradient / curvature_j [j]);
+				final double change = newValue - h [j];
+				if (change == 0) continue;
+				h [j] = newValue;
+				for (int pos = rowStart [j]; pos < rowStart [j + 1] ; pos ++)
+					if (!Double.isNaN(monitTraffic_e [rowLink [pos]])) residual_e [rowLink [pos]] += rowFraction [pos] * change;
+				maxChange = Math.max(maxChange , Math.abs(change));
+			}
+			if (maxChange <= tolerance) break;
+		}
+		return h;
+	}
+}
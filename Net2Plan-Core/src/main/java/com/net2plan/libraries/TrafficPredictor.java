@@ -3,10 +3,10 @@ package com.net2plan.libraries;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.SortedMap;
 import java.util.function.Function;
+import java.util.function.LongToDoubleFunction;
 import java.util.stream.Collectors;
 
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
@@ -77,6 +77,16 @@ public abstract class TrafficPredictor
 	    }
 	}
     public static Optional<TrafficPredictor> createFromMonitData (TRAFFICPREDICTORTYPE trafPredType , SortedMap<Date, Double> inputDataApplied)
+    {
+    	return createFromMonitData (trafPredType , new TrafficSeries (inputDataApplied));
+    }
+    /** Fits a monitoring-based predictor of the given type to the samples of the series
+     * @param trafPredType the predictor type: {@link TRAFFICPREDICTORTYPE#LINEARFIT} or {@link TRAFFICPREDICTORTYPE#EXPONENTIALFIT}
+     * @param inputDataApplied the samples
+     * @return see above (empty if there are not enough samples)
+     * @since 0.6.6
+     */
+    public static Optional<TrafficPredictor> createFromMonitData (TRAFFICPREDICTORTYPE trafPredType , TrafficSeries inputDataApplied)
     {
         switch (trafPredType)
         {
@@ -162,16 +172,21 @@ public abstract class TrafficPredictor
 		
 		protected Statistics (SortedMap<Date,Double> inputDataApplied , Function<Date,Double> pred)
 		{
-			this.N = inputDataApplied.size();
-            this.initialDate = inputDataApplied.firstKey();
+			this (new TrafficSeries (inputDataApplied) , d -> pred.apply(new Date (d)));
+		}
+		/* The prediction function receives the sample date in miliseconds since the epoch */
+		protected Statistics (TrafficSeries inputDataApplied , LongToDoubleFunction pred)
+		{
+			this.N = inputDataApplied.getSize();
+            this.initialDate = inputDataApplied.getFirstDate();
             final double initialDateDouble = initialDate.getTime();
-            this.endDate = inputDataApplied.lastKey();
-			for (Entry<Date,Double> sample : inputDataApplied.entrySet())
+            this.endDate = inputDataApplied.getLastDate();
+			for (int cont = 0; cont < N ; cont ++)
 			{
-				final Date xDate = sample.getKey();
-				final double x = xDate.getTime() - initialDateDouble;
-				final double y = sample.getValue();
-				final double yPred = pred.apply(xDate);
+				final long xDate = inputDataApplied.getDateInMiliseconds(cont);
+				final double x = xDate - initialDateDouble;
+				final double y = inputDataApplied.getValue(cont);
+				final double yPred = pred.applyAsDouble(xDate);
 				final double residual = y - yPred;
 				sum_x += x;
 				sum_x2 += Math.pow(x, 2);
@@ -1,13 +1,11 @@
 package com.net2plan.libraries;
 
 import java.util.Date;
-import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.function.Function;
 
 import org.apache.commons.math3.distribution.TDistribution;
+import org.apache.commons.math3.stat.regression.RegressionResults;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
@@ -38,30 +36,29 @@ public class TrafficPredictor_fromMonit_exponential extends TrafficPredictor
         } catch (Exception e) { return Optional.empty(); }
     }
     
-    static Optional<TrafficPredictor_fromMonit_exponential> createFromData (SortedMap<Date, Double> inputDataApplied)
+    static Optional<TrafficPredictor_fromMonit_exponential> createFromData (TrafficSeries inputDataApplied)
     {
-    	final SortedMap<Date, Double> inputDataAppliedFiltered = new TreeMap<>();
-    	inputDataApplied.entrySet().stream().filter(e->e.getValue() > 0).forEach(e->inputDataAppliedFiltered.put(e.getKey(), e.getValue()));
-        final int N = inputDataAppliedFiltered.size();
+        int N = 0;
+        double intialDateConsidered = 0;
+        for (int cont = 0; cont < inputDataApplied.getSize() ; cont ++)
+        {
+            if (!(inputDataApplied.getValue(cont) > 0)) continue;
+            if (N ++ == 0) intialDateConsidered = inputDataApplied.getDateInMiliseconds(cont);
+        }
         if (N < 3) return Optional.empty();
-        final double intialDateConsidered = inputDataAppliedFiltered.firstKey().getTime();
         final SimpleRegression reg = new SimpleRegression(true);
-        final double [][] data = new double [N][];
-        int cont = 0;
-        for (Entry<Date,Double> entry : inputDataAppliedFiltered.entrySet())
+        for (int cont = 0; cont < inputDataApplied.getSize() ; cont ++)
         {
-            final double [] vals = new double [2];
-            vals [0] = entry.getKey().getTime() - intialDateConsidered;
-            if (entry.getValue() <= 0) continue; // 0 samples are removed in exponential fitting
-            vals [1] = Math.log(entry.getValue());
-            data [cont ++] = vals;
+            final double value = inputDataApplied.getValue(cont);
+            if (value <= 0) continue; // 0 samples are removed in exponential fitting
+            reg.addData(inputDataApplied.getDateInMiliseconds(cont) - intialDateConsidered , Math.log(value));
         }
-        reg.addData(data);
-        final double aCoefOfLog = reg.regress().getParameterEstimate(0);
-        final double bCoefOfLog = reg.regress().getParameterEstimate(1);
-        final double sumOfResidualsSquaredOfLinear = reg.regress().getErrorSumSquares();
-        final Function<Date,Double> predictionAverage = d ->Math.exp(aCoefOfLog + bCoefOfLog * (d.getTime() - intialDateConsidered));
-        final Statistics stat = new Statistics (inputDataApplied , predictionAverage);
+        final RegressionResults regression = reg.regress();
+        final double aCoefOfLog = regression.getParameterEstimate(0);
+        final double bCoefOfLog = regression.getParameterEstimate(1);
+        final double sumOfResidualsSquaredOfLinear = regression.getErrorSumSquares();
+        final double initialDate = intialDateConsidered;
+        final Statistics stat = new Statistics (inputDataApplied , d ->Math.exp(aCoefOfLog + bCoefOfLog * (d - initialDate)));
         final TrafficPredictor_fromMonit_exponential res = new TrafficPredictor_fromMonit_exponential (intialDateConsidered , aCoefOfLog , bCoefOfLog , sumOfResidualsSquaredOfLinear , stat);
         return Optional.of (res);
     }
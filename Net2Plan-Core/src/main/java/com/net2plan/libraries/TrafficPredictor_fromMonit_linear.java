@@ -1,13 +1,11 @@
 package com.net2plan.libraries;
 
 import java.util.Date;
-import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.function.Function;
 
 import org.apache.commons.math3.distribution.TDistribution;
+import org.apache.commons.math3.stat.regression.RegressionResults;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
@@ -36,26 +34,18 @@ public class TrafficPredictor_fromMonit_linear extends TrafficPredictor
         } catch (Exception e) { return Optional.empty(); }
     }
     
-    static Optional<TrafficPredictor_fromMonit_linear> createFromData (SortedMap<Date, Double> inputDataApplied)
+    static Optional<TrafficPredictor_fromMonit_linear> createFromData (TrafficSeries inputDataApplied)
     {
-        final int N = inputDataApplied.size();
+        final int N = inputDataApplied.getSize();
         if (N < 3) return Optional.empty();
-        final double intialDateConsidered = inputDataApplied.firstKey().getTime();
+        final double intialDateConsidered = inputDataApplied.getDateInMiliseconds(0);
         final SimpleRegression reg = new SimpleRegression(true);
-        final double [][] data = new double [N][];
-        int cont = 0;
-        for (Entry<Date,Double> entry : inputDataApplied.entrySet())
-        {
-            final double [] vals = new double [2];
-            vals [0] = entry.getKey().getTime() - intialDateConsidered;
-            vals [1] = entry.getValue();
-            data [cont ++] = vals;
-        }
-        reg.addData(data);
-        final double aCoef = reg.regress().getParameterEstimate(0);
-        final double bCoef = reg.regress().getParameterEstimate(1);
-        final Function<Date,Double> predictionAverage = d ->aCoef + bCoef * (d.getTime() - intialDateConsidered);
-        final Statistics stat = new Statistics (inputDataApplied , predictionAverage);
+        for (int cont = 0; cont < N ; cont ++)
+            reg.addData(inputDataApplied.getDateInMiliseconds(cont) - intialDateConsidered , inputDataApplied.getValue(cont));
+        final RegressionResults regression = reg.regress();
+        final double aCoef = regression.getParameterEstimate(0);
+        final double bCoef = regression.getParameterEstimate(1);
+        final Statistics stat = new Statistics (inputDataApplied , d ->aCoef + bCoef * (d - intialDateConsidered));
         final TrafficPredictor_fromMonit_linear res = new TrafficPredictor_fromMonit_linear (intialDateConsidered , aCoef , bCoef , stat);
         return Optional.of (res);
     }
@@ -1,11 +1,12 @@
 package com.net2plan.libraries;
 
-import java.time.Instant;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -17,7 +18,7 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.math3.distribution.TDistribution;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
@@ -36,38 +37,107 @@ public class TrafficSeries
 		public boolean isLinear () { return this == LINEAR; }
 		public boolean isExponential () { return this == EXPONENTIAL; }
 	}
-	private SortedMap<Date , Double> monitValues = new TreeMap<> ();
+	private static final long [] NO_DATES = new long [0];
+	private static final double [] NO_VALUES = new double [0];
+
+	/* The samples are stored in two parallel arrays, sorted by date (in miliseconds since the epoch), without repeated dates. Only the first
+	 * size positions are used */
+	private long [] dates = NO_DATES;
+	private double [] values = NO_VALUES;
+	private int size = 0;
+
 	public TrafficSeries () { }
-	public TrafficSeries (SortedMap<Date , Double> monitValues) { this.monitValues.putAll (monitValues);  }
-	
+	public TrafficSeries (SortedMap<Date , Double> monitValues) { addValues (monitValues);  }
+
+	/** Creates a series from the given dates (in miliseconds since the epoch) and values. The arrays are copied, and do not need to be sorted.
+	 * If a date is repeated, the last value is kept
+	 * @param datesInMiliseconds the dates
+	 * @param values the values, in the same order as the dates
+	 * @since 0.6.6
+	 */
+	public TrafficSeries (long [] datesInMiliseconds , double [] values) { addValues (datesInMiliseconds , values , datesInMiliseconds.length); }
+
 	public TrafficSeries addValues (Collection<Date> dates , Collection<Double> values) 
 	{ 
 		if (dates.size() != values.size()) throw new Net2PlanException ("Wrong format");
+		final long [] newDates = new long [dates.size()];
+		final double [] newValues = new double [values.size()];
 		final Iterator<Date> itdate = dates.iterator();
 		final Iterator<Double> itvals = values.iterator();
-		while (itdate.hasNext())
+		for (int cont = 0; cont < newDates.length ; cont ++)
 		{
-			final Date d = itdate.next();
-			final Double val = itvals.next();
-			this.monitValues.put(d, val);
+			newDates [cont] = itdate.next().getTime();
+			newValues [cont] = itvals.next();
 		}
-		return this;
+		return addValues (newDates , newValues , newDates.length);
 	}
 	public TrafficSeries addValues (Collection<Pair<Date,Double>> pairs) 
 	{ 
-		pairs.forEach(p->monitValues.put(p.getFirst(), p.getSecond()));
-		return this;
+		final long [] newDates = new long [pairs.size()];
+		final double [] newValues = new double [pairs.size()];
+		int cont = 0;
+		for (Pair<Date,Double> p : pairs) { newDates [cont] = p.getFirst().getTime(); newValues [cont ++] = p.getSecond(); }
+		return addValues (newDates , newValues , newDates.length);
 	}
 	public TrafficSeries addValues (SortedMap<Date,Double> values) 
 	{ 
-		this.monitValues.putAll(values);
+		final long [] newDates = new long [values.size()];
+		final double [] newValues = new double [values.size()];
+		int cont = 0;
+		for (Entry<Date,Double> entry : values.entrySet()) { newDates [cont] = entry.getKey().getTime(); newValues [cont ++] = entry.getValue(); }
+		return addValues (newDates , newValues , newDates.length);
+	}
+
+	/* Adds the first num samples of the given arrays in one pass: the new samples are sorted if needed, and merged with the existing ones.
+	 * For repeated dates, the last value added is kept */
+	private TrafficSeries addValues (long [] newDates , double [] newValues , int num)
+	{
+		if (newValues.length < num) throw new Net2PlanException ("Wrong format");
+		boolean sorted = true;
+		for (int cont = 1; cont < num && sorted ; cont ++) sorted = newDates [cont - 1] <= newDates [cont];
+		if (!sorted)
+		{
+			/* stable sort of the indexes by date, so the last value of a repeated date is the last one in the order */
+			final long [] unsortedDates = newDates;
+			final int [] order = IntStream.range(0, num).boxed().sorted((i1,i2)->Long.compare(unsortedDates [i1], unsortedDates [i2])).mapToInt(i->i).toArray();
+			final long [] sortedDates = new long [num];
+			final double [] sortedValues = new double [num];
+			for (int cont = 0; cont < num ; cont ++) { sortedDates [cont] = newDates [order [cont]]; sortedValues [cont] = newValues [order [cont]]; }
+			newDates = sortedDates; newValues = sortedValues;
+		}
+		if (size == 0 || num == 0 || newDates [0] > dates [size - 1])
+		{
+			/* all the samples go after the existing ones */
+			ensureCapacity (size + num);
+			for (int cont = 0; cont < num ; cont ++)
+			{
+				if (size > 0 && dates [size - 1] == newDates [cont]) { values [size - 1] = newValues [cont]; continue; }
+				dates [size] = newDates [cont]; values [size ++] = newValues [cont];
+			}
+			return this;
+		}
+		final long [] mergedDates = new long [size + num];
+		final double [] mergedValues = new double [size + num];
+		int mergedSize = 0;
+		int i = 0, j = 0;
+		while (i < size || j < num)
+		{
+			final boolean takeNew = i == size || (j < num && newDates [j] <= dates [i]);
+			final long date = takeNew? newDates [j] : dates [i];
+			final double value = takeNew? newValues [j ++] : values [i ++];
+			if (mergedSize > 0 && mergedDates [mergedSize - 1] == date) { if (takeNew) mergedValues [mergedSize - 1] = value; continue; }
+			mergedDates [mergedSize] = date; mergedValues [mergedSize ++] = value;
+		}
+		this.dates = mergedDates;
+		this.values = mergedValues;
+		this.size = mergedSize;
 		return this;
 	}
 
 	public void applyPercentileFiltering (Date initDate , Date endDate , String intervalTimeType , double percentile)
 	{
 		if (percentile <= 0 || percentile > 1) throw new Net2PlanException("Percentil info must be between 0 (non-inclusive) and one (inclusive)");
-		final SortedMap<Date , Double> newMonitValues = new TreeMap<> ();
+		final TrafficSeries newMonitValues = new TrafficSeries ();
 		LocalDateTime currentDateLt = null;
 		final LocalDateTime initDateLt = dateToLocalDateTime(initDate);
 		final LocalDateTime endDateLt = dateToLocalDateTime(endDate);
@@ -90,92 +160,186 @@ public class TrafficSeries
 			currentDateLt = initDateLt.with(LocalDateTime.of(initDateLt.getYear(), 1 , 1 , 0, 0));
 		}
 		else throw new Net2PlanException ("Wrong percentile interval type: " + intervalTimeType);
+		/* The intervals are consecutive: the samples of each one are located with a binary search, and sorted by value in a reused array */
+		double [] sortedValuesThisInterval = NO_VALUES;
 		while (!currentDateLt.isAfter(endDateLt))
 		{
 			final LocalDateTime endTimeThisIntervalLt = currentDateLt.plus(1, unitToAdd);
-			final Instant endTimeThisInterval = localDateTimeToDate(endTimeThisIntervalLt).toInstant();
-			final Date currentDate = localDateTimeToDate(currentDateLt);
-			final List<Entry<Date,Double>> vals = monitValues.tailMap(currentDate).entrySet ().stream().
-					filter(e->e.getKey().toInstant().isBefore(endTimeThisInterval)).
-					sorted((e1,e2)->Double.compare(e1.getValue (), e2.getValue())).
-					collect (Collectors.toCollection(ArrayList::new));
+			final int firstIndex = getIndexOfFirstDateAfterOrEqual(localDateTimeToDate(currentDateLt).getTime());
+			final int endIndex = Math.max(firstIndex , getIndexOfFirstDateAfterOrEqual(localDateTimeToDate(endTimeThisIntervalLt).getTime()));
 			currentDateLt = endTimeThisIntervalLt;
-			
-			if (vals.isEmpty()) continue;
-			final double positionOfSample = vals.size() * percentile;
+
+			final int numValues = endIndex - firstIndex;
+			if (numValues == 0) continue;
+			if (sortedValuesThisInterval.length < numValues) sortedValuesThisInterval = new double [Math.max(numValues , 2 * sortedValuesThisInterval.length)];
+			System.arraycopy(values, firstIndex, sortedValuesThisInterval, 0, numValues);
+			Arrays.sort(sortedValuesThisInterval, 0, numValues);
+			final double positionOfSample = numValues * percentile;
 			final double remainder = positionOfSample - Math.floor(positionOfSample);
 			final int prevIndex = (int) Math.max(0, Math.floor(positionOfSample) - 1);
-			final int nextIndex = (int) Math.min(Math.ceil(positionOfSample) - 1 , vals.size() - 1);
+			final int nextIndex = (int) Math.min(Math.ceil(positionOfSample) - 1 , numValues - 1);
+			final long d1 = dates [getIndexOfSampleInSortedPosition(firstIndex, endIndex, sortedValuesThisInterval, prevIndex)];
+			final double v1 = sortedValuesThisInterval [prevIndex];
 			if (prevIndex == nextIndex) 
 			{
-				newMonitValues.put(vals.get(prevIndex).getKey(), vals.get(prevIndex).getValue());
+				newMonitValues.addValue(d1, v1);
 			} else
 			{
-				final Date d1 = vals.get(prevIndex).getKey();
-				final Date d2 = vals.get(nextIndex).getKey();
-				final double v1 = vals.get(prevIndex).getValue();
-				final double v2 = vals.get(nextIndex).getValue();
-				final Date midDate = new Date ((long) ((1-remainder)*d1.getTime() + remainder * d2.getTime()));
+				final long d2 = dates [getIndexOfSampleInSortedPosition(firstIndex, endIndex, sortedValuesThisInterval, nextIndex)];
+				final double v2 = sortedValuesThisInterval [nextIndex];
+				final long midDate = (long) ((1-remainder)*d1 + remainder * d2);
 				final double midVal = (1-remainder) * v1 + remainder * v2;
-				newMonitValues.put(midDate, midVal);
+				newMonitValues.addValue(midDate, midVal);
 			}
 		}
-		this.monitValues = newMonitValues;
+		this.dates = newMonitValues.dates;
+		this.values = newMonitValues.values;
+		this.size = newMonitValues.size;
+	}
+
+	/* Index of the sample in [firstIndex, endIndex) that occupies the given position when these samples are sorted by value. Samples with the
+	 * same value are ordered by date */
+	private int getIndexOfSampleInSortedPosition (int firstIndex , int endIndex , double [] sortedValues , int position)
+	{
+		final double value = sortedValues [position];
+		int firstPositionWithValue = position;
+		while (firstPositionWithValue > 0 && Double.compare(sortedValues [firstPositionWithValue - 1] , value) == 0) firstPositionWithValue --;
+		int numToSkip = position - firstPositionWithValue;
+		for (int index = firstIndex; index < endIndex ; index ++)
+			if (Double.compare(values [index] , value) == 0 && numToSkip -- == 0) return index;
+		throw new IllegalStateException ("The sorted value " + value + " was not found in the samples of the interval [" + firstIndex + ", " + endIndex + ")");
+	}
+
+	/* Index of the first sample with a date after or equal to the given one (size if none) */
+	private int getIndexOfFirstDateAfterOrEqual (long dateInMiliseconds)
+	{
+		final int pos = Arrays.binarySearch(dates, 0, size, dateInMiliseconds);
+		return pos >= 0? pos : -pos - 1;
+	}
+	private int getIndex (long dateInMiliseconds) { return size == 0? -1 : Arrays.binarySearch(dates, 0, size, dateInMiliseconds); }
+	private void ensureCapacity (int capacity)
+	{
+		if (dates.length >= capacity) return;
+		final int newCapacity = Math.max(capacity , Math.max(16 , dates.length + (dates.length >> 1)));
+		this.dates = Arrays.copyOf(dates, newCapacity);
+		this.values = Arrays.copyOf(values, newCapacity);
 	}
 	
-	public SortedSet<Date> getDatesWithValue () { return new TreeSet<>(monitValues.keySet()); }
-	public SortedMap<Date , Double> getValues () { return Collections.unmodifiableSortedMap(monitValues); }
-	public int getSize () { return monitValues.size(); }
-	public Double getValueOrNull (Date d) { return monitValues.get(d); }
-	public boolean hasValue (Date d) { return monitValues.containsKey(d); }
-	public Date getFirstDate () { return monitValues.isEmpty()? null : monitValues.firstKey(); }
-	public Date getLastDate () { return monitValues.isEmpty()? null : monitValues.lastKey(); }
-	public TrafficSeries addValue (Date date , Double val) { if (val == null) throw new Net2PlanException ("Null values are not accepted");  this.monitValues.put(date, val); return this; }
-	public TrafficSeries removeValue (Date date) { this.monitValues.remove(date); return this; }
-	public TrafficSeries removeAllValues () { this.monitValues.clear(); return this; }
+	public SortedSet<Date> getDatesWithValue () 
+	{
+		final SortedSet<Date> res = new TreeSet<> ();
+		for (int cont = 0; cont < size ; cont ++) res.add(new Date (dates [cont]));
+		return res;
+	}
+	public SortedMap<Date , Double> getValues () 
+	{
+		final SortedMap<Date , Double> res = new TreeMap<> ();
+		for (int cont = 0; cont < size ; cont ++) res.put(new Date (dates [cont]) , values [cont]);
+		return Collections.unmodifiableSortedMap(res);
+	}
+	public int getSize () { return size; }
+	public Double getValueOrNull (Date d) { final int index = getIndex (d.getTime()); return index >= 0? values [index] : null; }
+	public boolean hasValue (Date d) { return getIndex (d.getTime()) >= 0; }
+	public Date getFirstDate () { return size == 0? null : new Date (dates [0]); }
+	public Date getLastDate () { return size == 0? null : new Date (dates [size - 1]); }
+
+	/** Returns the date of the sample in the given position, in miliseconds since the epoch. The samples are ordered by date
+	 * @param index the sample position, between 0 and {@link #getSize()} - 1
+	 * @return see above
+	 * @since 0.6.6
+	 */
+	public long getDateInMiliseconds (int index) { if (index < 0 || index >= size) throw new IndexOutOfBoundsException (); return dates [index]; }
+
+	/** Returns the value of the sample in the given position. The samples are ordered by date
+	 * @param index the sample position, between 0 and {@link #getSize()} - 1
+	 * @return see above
+	 * @since 0.6.6
+	 */
+	public double getValue (int index) { if (index < 0 || index >= size) throw new IndexOutOfBoundsException (); return values [index]; }
+
+	/** Returns a copy of the sample dates, in miliseconds since the epoch, in increasing order
+	 * @return see above
+	 * @since 0.6.6
+	 */
+	public long [] getDatesInMilisecondsAsArray () { return Arrays.copyOf(dates, size); }
+
+	/** Returns a copy of the sample values, ordered by date
+	 * @return see above
+	 * @since 0.6.6
+	 */
+	public double [] getValuesAsArray () { return Arrays.copyOf(values, size); }
+
+	public TrafficSeries addValue (Date date , Double val) { if (val == null) throw new Net2PlanException ("Null values are not accepted");  return addValue (date.getTime() , val); }
+
+	/** Adds a sample, replacing the previous value if the date already had one. Adding samples in increasing date order takes constant
+	 * amortized time
+	 * @param dateInMiliseconds the date, in miliseconds since the epoch
+	 * @param val the value
+	 * @return this object
+	 * @since 0.6.6
+	 */
+	public TrafficSeries addValue (long dateInMiliseconds , double val) 
+	{
+		if (size == 0 || dateInMiliseconds > dates [size - 1])
+		{
+			ensureCapacity (size + 1);
+			dates [size] = dateInMiliseconds; values [size ++] = val;
+			return this;
+		}
+		final int pos = Arrays.binarySearch(dates, 0, size, dateInMiliseconds);
+		if (pos >= 0) { values [pos] = val; return this; }
+		final int insertionPoint = -pos - 1;
+		ensureCapacity (size + 1);
+		System.arraycopy(dates, insertionPoint, dates, insertionPoint + 1, size - insertionPoint);
+		System.arraycopy(values, insertionPoint, values, insertionPoint + 1, size - insertionPoint);
+		dates [insertionPoint] = dateInMiliseconds; values [insertionPoint] = val;
+		size ++;
+		return this;
+	}
+	public TrafficSeries removeValue (Date date) 
+	{
+		final int index = getIndex (date.getTime());
+		if (index < 0) return this;
+		System.arraycopy(dates, index + 1, dates, index, size - index - 1);
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		size --;
+		return this; 
+	}
+	public TrafficSeries removeAllValues () { this.dates = NO_DATES; this.values = NO_VALUES; this.size = 0; return this; }
 	public TrafficSeries removeAllValuesBeforeOrEqual (Date d) 
 	{ 
-		this.monitValues.remove(d);
-		for (Date beforeDate : new ArrayList<> (monitValues.headMap(d).keySet()))
-			monitValues.remove(beforeDate);
+		final int firstIndexToKeep = getIndexOfFirstDateAfterOrEqual(d.getTime()) + (hasValue (d)? 1 : 0);
+		System.arraycopy(dates, firstIndexToKeep, dates, 0, size - firstIndexToKeep);
+		System.arraycopy(values, firstIndexToKeep, values, 0, size - firstIndexToKeep);
+		size -= firstIndexToKeep;
 		return this;
 	}
 	public TrafficSeries removeAllValuesAfterOrEqual (Date d) 
 	{ 
-		for (Date beforeDate : new ArrayList<> (monitValues.tailMap(d).keySet()))
-			monitValues.remove(beforeDate);
+		this.size = getIndexOfFirstDateAfterOrEqual(d.getTime());
 		return this;
 	}
-	public TrafficSeries getCopy () { return new TrafficSeries (this.monitValues); }
+	public TrafficSeries getCopy () { return new TrafficSeries (dates , values , size); }
+	private TrafficSeries (long [] dates , double [] values , int size) { this.dates = Arrays.copyOf(dates, size); this.values = Arrays.copyOf(values, size); this.size = size; }
+
+	/** Returns the value in the given date, or the linear interpolation (or extrapolation, for dates outside the series) of the two closest 
+	 * samples. Returns null if the series has less than two samples
+	 * @param d the date
+	 * @return see above
+	 */
 	public Double getValueOrInterpolation (Date d) 
 	{
 		if (this.getSize() < 2) return null;
-		final Double valExact = this.getValueOrNull(d); if (valExact != null) return valExact;
-		Date firstDate = null; double firstVal = 0;
-		Date secondDate = null; double secondVal = 0;
-		if (d.getTime() < getFirstDate().getTime())
-		{
-			for (Entry<Date,Double> entry : this.monitValues.entrySet())
-			{
-				if (firstDate == null) { firstDate = entry.getKey(); firstVal = entry.getValue(); }
-				else if (secondDate == null) {  secondDate = entry.getKey(); secondVal = entry.getValue(); break; }
-			}
-		}
-		else if (d.getTime() > getLastDate().getTime())
-		{
-			secondDate = this.monitValues.lastKey(); secondVal = this.getValueOrNull(secondDate);
-			firstDate = this.monitValues.headMap(d).lastKey(); firstVal = this.getValueOrNull(firstDate);
-		}
-		else
-		{
-			firstDate = this.monitValues.headMap(d).lastKey(); firstVal = this.getValueOrNull(firstDate);
-			secondDate = this.monitValues.tailMap(d).lastKey(); firstVal = this.getValueOrNull(firstDate);
-		}
-		assert !firstDate.equals(secondDate); assert firstDate.getTime() < secondDate.getTime();
-		final double deltaY = secondVal - firstVal;
-		final double deltaX = secondDate.getTime() - firstDate.getTime();
+		final long time = d.getTime();
+		final int pos = getIndex (time); 
+		if (pos >= 0) return values [pos];
+		/* first sample of the two to use: the previous sample in the series, or the first (last) two if the date is before (after) the series */
+		final int firstIndex = Math.max(0 , Math.min(size - 2 , -pos - 2));
+		final double firstVal = values [firstIndex];
+		final double deltaY = values [firstIndex + 1] - firstVal;
+		final double deltaX = dates [firstIndex + 1] - dates [firstIndex];
 		final double slope = deltaY / deltaX;
-		return firstVal + slope * (d.getTime() - firstDate.getTime());
+		return firstVal + slope * (time - dates [firstIndex]);
 	}
 
 	public static void main (String [] args)
@@ -199,24 +363,93 @@ public class TrafficSeries
 	
 	public List<String> toStringList () 
 	{
-		final List<String> res = new ArrayList<> (monitValues.size());
-		for (Entry<Date , Double> entry : monitValues.entrySet())
-			res.add(entry.getKey().getTime() + " " + entry.getValue());
+		final List<String> res = new ArrayList<> (size);
+		for (int cont = 0; cont < size ; cont ++)
+			res.add(dates [cont] + " " + values [cont]);
 		return res;
 	}
 	public static TrafficSeries createFromStringList (List<String> stringList) 
 	{
-		final TrafficSeries res = new TrafficSeries ();
+		final long [] dates = new long [stringList.size()];
+		final double [] values = new double [stringList.size()];
+		int num = 0;
 		for (String st : stringList)
 		{
 			try 
 			{ 			
-				final String [] vals = st.split(" ");
-				res.addValue(new Date (Long.parseLong(vals [0])), Double.parseDouble(vals [1]));
+				final int firstSpace = st.indexOf(' ');
+				final int secondSpace = st.indexOf(' ' , firstSpace + 1);
+				final long date = Long.parseLong(st.substring(0, firstSpace));
+				values [num] = Double.parseDouble(secondSpace == -1? st.substring(firstSpace + 1) : st.substring(firstSpace + 1, secondSpace));
+				dates [num ++] = date;
 			} catch (Exception e) { }
 		}
+		return new TrafficSeries ().addValues(dates, values, num);
+	}
+
+	/** Returns the series as a compact array of bytes, that can be read with {@link #createFromByteArray(byte[])}. The number of samples
+	 * and the dates are written as variable-length integers (the dates as the difference with the previous date), followed by the values
+	 * as 8-byte doubles
+	 * @return see above
+	 * @since 0.6.6
+	 */
+	public byte [] toByteArray ()
+	{
+		int numBytes = getVarLongNumBytes (size) + 8 * size;
+		for (int cont = 0; cont < size ; cont ++) numBytes += getVarLongNumBytes (getDeltaEncodedDate (cont));
+		final ByteBuffer res = ByteBuffer.allocate(numBytes);
+		putVarLong (res , size);
+		for (int cont = 0; cont < size ; cont ++) putVarLong (res , getDeltaEncodedDate (cont));
+		for (int cont = 0; cont < size ; cont ++) res.putDouble(values [cont]);
+		return res.array();
+	}
+
+	/** Creates a series from an array of bytes produced by {@link #toByteArray()}
+	 * @param bytes the bytes
+	 * @return see above
+	 * @since 0.6.6
+	 */
+	public static TrafficSeries createFromByteArray (byte [] bytes)
+	{
+		try
+		{
+			final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			final int num = (int) getVarLong (buffer);
+			final long [] dates = new long [num];
+			long previousDate = 0;
+			for (int cont = 0; cont < num ; cont ++) 
+				dates [cont] = previousDate = (cont == 0? zigZagDecode (getVarLong (buffer)) : previousDate + getVarLong (buffer));
+			final double [] values = new double [num];
+			buffer.asDoubleBuffer().get(values);
+			return new TrafficSeries (dates , values , num);
+		} catch (RuntimeException e) { throw new Net2PlanException ("Wrong format"); }
+	}
+
+	/* The first date can be negative, and is zigzag encoded. The rest are written as the (positive) increment respect to the previous one */
+	private long getDeltaEncodedDate (int index) { return index == 0? (dates [0] << 1) ^ (dates [0] >> 63) : dates [index] - dates [index - 1]; }
+	private static long zigZagDecode (long val) { return (val >>> 1) ^ -(val & 1); }
+	private static int getVarLongNumBytes (long val)
+	{
+		int res = 1;
+		while ((val >>>= 7) != 0) res ++;
 		return res;
 	}
+	private static void putVarLong (ByteBuffer buffer , long val)
+	{
+		while ((val & ~0x7FL) != 0) { buffer.put((byte) ((val & 0x7F) | 0x80)); val >>>= 7; }
+		buffer.put((byte) val);
+	}
+	private static long getVarLong (ByteBuffer buffer)
+	{
+		long res = 0;
+		for (int shift = 0; shift < 64 ; shift += 7)
+		{
+			final byte b = buffer.get();
+			res |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return res;
+		}
+		throw new Net2PlanException ("Wrong format");
+	}
 	public static TrafficSeries createFromValuesAndInterval (Date initialTime , long intervalInMiliseconds , double [] values) 
 	{
 		final TrafficSeries res = new TrafficSeries ();
@@ -236,7 +469,8 @@ public class TrafficSeries
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((monitValues == null) ? 0 : monitValues.hashCode());
+		for (int cont = 0; cont < size ; cont ++)
+			result = prime * result + (Long.hashCode(dates [cont]) ^ Double.hashCode(values [cont]));
 		return result;
 	}
 	@Override
@@ -248,11 +482,11 @@ public class TrafficSeries
 		if (getClass() != obj.getClass())
 			return false;
 		TrafficSeries other = (TrafficSeries) obj;
-		if (monitValues == null) {
-			if (other.monitValues != null)
-				return false;
-		} else if (!monitValues.equals(other.monitValues))
+		if (size != other.size)
 			return false;
+		for (int cont = 0; cont < size ; cont ++)
+			if (dates [cont] != other.dates [cont] || Double.doubleToLongBits(values [cont]) != Double.doubleToLongBits(other.values [cont]))
+				return false;
 		return true;
 	}
 
@@ -293,10 +293,10 @@ public class WDMUtils
 			{
 				if (!isNonNegativeInteger(r.getOccupiedCapacity())) throw new WDMException ("");
 				if (!isNonNegativeInteger(r.getOccupiedCapacityInNoFailureState())) throw new WDMException ("");
-				final IntMatrix2D candidateSeqFreqSlots = StringUtils.readIntMatrix
-						(r.getAttribute(initializeWithTheInitialState? WDMUtils.SEQUENCE_OF_FREQUENCYSLOTS_INITIAL_ROUTE_ATTRIBUTE_NAME : WDMUtils.SEQUENCE_OF_FREQUENCYSLOTS_ATTRIBUTE_NAME));
+				final RSAAttributeCache cachedRSA = RSAAttributeCache.get(r , initializeWithTheInitialState);
+				final IntMatrix2D candidateSeqFreqSlots = cachedRSA.getSeqFrequencySlots();
 				this.seqFrequencySlots_se = candidateSeqFreqSlots.rows() > 0? candidateSeqFreqSlots : IntFactory2D.dense.make(0,this.seqLinks.size());
-				final int[] candidateSeqRegenerators = r.getAttribute(initializeWithTheInitialState? WDMUtils.SEQUENCE_OF_REGENERATORS_INITIAL_ROUTE_ATTRIBUTE_NAME : WDMUtils.SEQUENCE_OF_REGENERATORS_ATTRIBUTE_NAME) == null? new int [seqLinks.size()] : StringUtils.toIntArray(StringUtils.split(initializeWithTheInitialState? r.getAttribute(SEQUENCE_OF_REGENERATORS_INITIAL_ROUTE_ATTRIBUTE_NAME): r.getAttribute(SEQUENCE_OF_REGENERATORS_ATTRIBUTE_NAME), " "));
+				final int[] candidateSeqRegenerators = cachedRSA.seqRegenerators_e == null? new int [seqLinks.size()] : Arrays.copyOf(cachedRSA.seqRegenerators_e , cachedRSA.seqRegenerators_e.length);
 				this.seqRegeneratorsOccupancy_e = candidateSeqRegenerators.length == 0 ? new int[this.seqLinks.size()] : candidateSeqRegenerators;
 			} catch (Exception e) { throw new WDMException("RSA not correctly defined"); }
 
@@ -663,6 +663,53 @@ public class WDMUtils
 	 */
 	private final static String SEQUENCE_OF_REGENERATORS_INITIAL_ROUTE_ATTRIBUTE_NAME = "seqRegeneratorsInitialRoute";
 
+	/* The RSA information parsed from the attributes of a lightpath, kept in the route (see NetworkElement.getAttributesDerivedObject) so the attributes are only 
+	 * parsed the first time they are read (or never, if they were written by setLightpathRSAAttributes). The route discards it when its attributes change */
+	private static final class RSAAttributeCache
+	{
+		private static final String KEY_CURRENT_ROUTE = "WDMUtils.RSA";
+		private static final String KEY_INITIAL_ROUTE = "WDMUtils.RSAInitialRoute";
+
+		private final int numSlots;
+		private final int numLinks;
+		private final int [] seqFrequencySlots_se; // row-major
+		private final int [] seqRegenerators_e; // null if the attribute does not exist
+
+		private RSAAttributeCache (IntMatrix2D seqFrequencySlots_se , int [] seqRegenerators_e)
+		{
+			this.numSlots = seqFrequencySlots_se.rows();
+			this.numLinks = seqFrequencySlots_se.columns();
+			this.seqFrequencySlots_se = new int [numSlots * numLinks];
+			for (int s = 0; s < numSlots ; s ++) for (int e = 0; e < numLinks ; e ++) this.seqFrequencySlots_se [s * numLinks + e] = seqFrequencySlots_se.getQuick(s , e);
+			this.seqRegenerators_e = seqRegenerators_e == null? null : Arrays.copyOf(seqRegenerators_e , seqRegenerators_e.length);
+		}
+
+		private IntMatrix2D getSeqFrequencySlots ()
+		{
+			final IntMatrix2D res = IntFactory2D.dense.make(numSlots , numLinks);
+			for (int s = 0; s < numSlots ; s ++) for (int e = 0; e < numLinks ; e ++) res.setQuick(s , e , seqFrequencySlots_se [s * numLinks + e]);
+			return res;
+		}
+
+		private static RSAAttributeCache get (Route r , boolean initialRoute)
+		{
+			return r.getAttributesDerivedObject(initialRoute? KEY_INITIAL_ROUTE : KEY_CURRENT_ROUTE , e -> 
+			{
+				final String slotsAtt = e.getAttribute(initialRoute? SEQUENCE_OF_FREQUENCYSLOTS_INITIAL_ROUTE_ATTRIBUTE_NAME : SEQUENCE_OF_FREQUENCYSLOTS_ATTRIBUTE_NAME);
+				final String regAtt = e.getAttribute(initialRoute? SEQUENCE_OF_REGENERATORS_INITIAL_ROUTE_ATTRIBUTE_NAME : SEQUENCE_OF_REGENERATORS_ATTRIBUTE_NAME);
+				final IntMatrix2D seqFrequencySlots_se = StringUtils.readIntMatrix(slotsAtt);
+				final int [] seqRegenerators_e = regAtt == null? null : StringUtils.toIntArray(StringUtils.split(regAtt, " "));
+				return new RSAAttributeCache(seqFrequencySlots_se , seqRegenerators_e);
+			});
+		}
+
+		/* Stores the RSA just written in the attributes of the route, so it is not parsed back */
+		private static void put (Route r , boolean initialRoute , RSAAttributeCache entry)
+		{
+			r.getAttributesDerivedObject(initialRoute? KEY_INITIAL_ROUTE : KEY_CURRENT_ROUTE , e -> entry);
+		}
+	}
+
 	private static class WDMException extends Net2PlanException
 	{
 		public WDMException(String message)
@@ -1035,8 +1082,11 @@ public class WDMUtils
 			attNameSE = SEQUENCE_OF_FREQUENCYSLOTS_ATTRIBUTE_NAME;
 			attNameREG = SEQUENCE_OF_REGENERATORS_ATTRIBUTE_NAME;
 		}
-		lp.setAttribute(attNameSE, StringUtils.writeMatrix(rsa.seqFrequencySlots_se));
-		lp.setAttribute(attNameREG, IntUtils.join(rsa.seqRegeneratorsOccupancy_e, " "));
+		final String valueSE = StringUtils.writeMatrix(rsa.seqFrequencySlots_se);
+		final String valueREG = IntUtils.join(rsa.seqRegeneratorsOccupancy_e, " ");
+		lp.setAttribute(attNameSE, valueSE);
+		lp.setAttribute(attNameREG, valueREG);
+		RSAAttributeCache.put(lp , initializeThePrimaryRoute , new RSAAttributeCache(rsa.seqFrequencySlots_se , rsa.seqRegeneratorsOccupancy_e));
 	}
 
 	/**
@@ -6,29 +6,46 @@ package com.net2plan.niw;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellValue;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 import com.google.common.collect.Maps;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.utils.Pair;
 
 /**
  * Generic Excel reader.
  *
- * Reads the contents of a Excel file and transforms it into a generic bi-dimensional array of {@code Object}.
+ * Reads the contents of a Excel file and transforms it into a generic bi-dimensional array of {@code Object}, or passes its rows one by one to the caller.
+ * The OOXML (xlsx) files are read with a SAX parser, without loading the whole workbook in memory. Then, the value of the formula cells is the one cached
+ * in the file by the application that saved it.
  *
  * @author Jorge San Emeterio
  */
@@ -48,7 +65,7 @@ public final class ExcelReader
 
 		public static ExcelExtension parseString(final String txt)
 		{
-			return Arrays.asList(ExcelExtension.values()).stream().filter(e -> e.text.equals(txt)).findFirst().orElseThrow(() -> new Net2PlanException());
+			return Arrays.asList(ExcelExtension.values()).stream().filter(e -> e.text.equalsIgnoreCase(txt)).findFirst().orElseThrow(() -> new Net2PlanException());
 		}
 
 		@Override
@@ -98,6 +115,21 @@ public final class ExcelReader
 		return excelReader.read(file, sheetName).get(sheetName);
 	}
 
+	/**
+	 * Reads the given sheets of the Excel file, in the given order, passing each row to the consumer associated to its sheet, together with the index of the
+	 * row (starting in zero). The rows are the ones that {@link #readFile(File)} would return for the sheet, but they are not kept in memory by the reader,
+	 * so that large files can be processed as they are parsed
+	 * @param file the Excel file
+	 * @param sheetNameAndRowConsumer for each sheet to read, its name and the consumer of its rows
+	 */
+	public static void readSheetsRowByRow(File file, List<Pair<String, ObjIntConsumer<Object[]>>> sheetNameAndRowConsumer)
+	{
+		final Map<String, ObjIntConsumer<Object[]>> rowConsumerPerSheet = new LinkedHashMap<>();
+		for (Pair<String, ObjIntConsumer<Object[]>> pair : sheetNameAndRowConsumer)
+			if (rowConsumerPerSheet.put(pair.getFirst(), pair.getSecond()) != null) throw new Net2PlanException("Sheet " + pair.getFirst() + " is read twice");
+		ExcelReader.getInstance().read(file, new ArrayList<>(rowConsumerPerSheet.keySet()), rowConsumerPerSheet::get);
+	}
+
 	private static ExcelReader getInstance()
 	{
 		if (reader == null) reader = new ExcelReader();
@@ -112,6 +144,29 @@ public final class ExcelReader
 	 * @return Read-only map of: Sheet name - Sheet data
 	 */
 	private Map<String, Object[][]> read(File file, String sheetName)
+	{
+		final Map<String, List<Object[]>> dataMap = Maps.newHashMap();
+		read(file, sheetName == null ? null : Arrays.asList(sheetName), s ->
+		{
+			final List<Object[]> sheetData = new ArrayList<>();
+			dataMap.put(s, sheetData);
+			return (row, rowIndex) -> sheetData.add(row);
+		});
+
+		final Map<String, Object[][]> res = Maps.newHashMap();
+		for (Map.Entry<String, List<Object[]>> entry : dataMap.entrySet())
+			res.put(entry.getKey(), entry.getValue().toArray(new Object[entry.getValue().size()][]));
+		return Collections.unmodifiableMap(res);
+	}
+
+	/**
+	 * Parse an Excel file, passing the rows of each sheet read to the consumer returned for it
+	 *
+	 * @param file Excel file
+	 * @param sheetNames Names of the sheets to be read, in this order. {@code null} reads all sheets in the Excel file, in the order of the file.
+	 * @param rowConsumerPerSheet Returns the consumer of the rows of a sheet, given its name
+	 */
+	private void read(File file, List<String> sheetNames, Function<String, ObjIntConsumer<Object[]>> rowConsumerPerSheet)
 	{
 		if (file == null) throw new IllegalArgumentException("Target file cannot be null");
 
@@ -123,44 +178,87 @@ public final class ExcelReader
 			switch (fileExtension)
 			{
 				case OLE2:
-					return Collections.unmodifiableMap(readWorkbook(new HSSFWorkbook(new FileInputStream(file)), sheetName));
+					try (InputStream in = new FileInputStream(file); Workbook workbook = new HSSFWorkbook(in))
+					{
+						readWorkbook(workbook, sheetNames, rowConsumerPerSheet);
+					}
+					break;
 				case OOXML:
-					return Collections.unmodifiableMap(readWorkbook(new XSSFWorkbook(new FileInputStream(file)), sheetName));
+					final OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+					try
+					{
+						readWorkbook(pkg, sheetNames, rowConsumerPerSheet);
+					} finally
+					{
+						pkg.revert();
+					}
+					break;
 				default:
 					throw new Net2PlanException("Unknown file extension");
 			}
+		} catch (Net2PlanException e)
+		{
+			throw e;
 		} catch (Exception e)
 		{
+			if (e.getCause() instanceof Net2PlanException) throw (Net2PlanException) e.getCause();
 			throw new Net2PlanException(e.getMessage());
 		}
 	}
 
-	private Map<String, Object[][]> readWorkbook(Workbook workbook, String sheetName)
+	private void readWorkbook(Workbook workbook, List<String> sheetNames, Function<String, ObjIntConsumer<Object[]>> rowConsumerPerSheet)
 	{
-		final Map<String, Object[][]> dataMap = Maps.newHashMap();
-
-		if (sheetName == null)
+		if (sheetNames == null)
 		{
 			for (Sheet sheet : workbook)
-				dataMap.put(sheet.getSheetName(), getSheetData(sheet));
+				readSheetData(sheet, rowConsumerPerSheet.apply(sheet.getSheetName()));
 		} else
 		{
-			final Sheet sheet = workbook.getSheet(sheetName);
-			if (sheet == null) throw new Net2PlanException("Unknown sheet: " + sheet);
-			dataMap.put(sheet.getSheetName(), getSheetData(sheet));
+			for (String sheetName : sheetNames)
+				if (workbook.getSheet(sheetName) == null) throw new Net2PlanException("Unknown sheet: " + sheetName);
+			for (String sheetName : sheetNames)
+				readSheetData(workbook.getSheet(sheetName), rowConsumerPerSheet.apply(sheetName));
 		}
+	}
 
-		return dataMap;
+	private void readWorkbook(OPCPackage pkg, List<String> sheetNames, Function<String, ObjIntConsumer<Object[]>> rowConsumerPerSheet) throws Exception
+	{
+		final XSSFReader xssfReader = new XSSFReader(pkg);
+		final ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+
+		final Map<String, PackagePart> sheetPartPerName = new LinkedHashMap<>();
+		final XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+		while (it.hasNext())
+		{
+			it.next().close();
+			sheetPartPerName.put(it.getSheetName(), it.getSheetPart());
+		}
+		if (sheetNames != null)
+			for (String sheetName : sheetNames)
+				if (!sheetPartPerName.containsKey(sheetName)) throw new Net2PlanException("Unknown sheet: " + sheetName);
+
+		final XMLReader xmlReader = SAXHelper.newXMLReader();
+		for (String sheetName : sheetNames == null ? sheetPartPerName.keySet() : sheetNames)
+		{
+			final SheetContentsHandler handler = new SheetContentsHandler(sharedStrings, rowConsumerPerSheet.apply(sheetName));
+			xmlReader.setContentHandler(handler);
+			try (InputStream in = sheetPartPerName.get(sheetName).getInputStream())
+			{
+				xmlReader.parse(new InputSource(in));
+			} catch (EndOfSheetException e)
+			{
+			}
+		}
 	}
 
-	private Object[][] getSheetData(Sheet sheet)
+	private void readSheetData(Sheet sheet, ObjIntConsumer<Object[]> rowConsumer)
 	{
 		if (sheet == null) throw new Net2PlanException("Invalid sheet name...");
-		if (sheet.getFirstRowNum() == -1) return new Object[0][0];
+		if (sheet.getFirstRowNum() == -1) return;
 
 		final FormulaEvaluator ev = sheet.getWorkbook().getCreationHelper().createFormulaEvaluator();
 
-		final List<Object[]> sheetData = new ArrayList<>();
+		int numRowsRead = 0;
 		for (int i = sheet.getFirstRowNum(); i <= sheet.getLastRowNum(); i++)
 		{
 			final Row row = sheet.getRow(i);
@@ -196,13 +294,133 @@ public final class ExcelReader
 				}
 			}
 
-			sheetData.add(dataVector);
+			rowConsumer.accept(dataVector, numRowsRead++);
+		}
+	}
+
+	/* Thrown to stop parsing a sheet when a missing row is found, since the rows after it are not read */
+	private static final class EndOfSheetException extends SAXException
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	/* SAX handler of the XML of an OOXML sheet, producing the same rows as readSheetData with the values cached for the formula cells */
+	private static final class SheetContentsHandler extends DefaultHandler
+	{
+		private final ReadOnlySharedStringsTable sharedStrings;
+		private final ObjIntConsumer<Object[]> rowConsumer;
+		private final List<Object> rowData = new ArrayList<>();
+		private final StringBuilder text = new StringBuilder();
+		private int numRowsRead = 0;
+		private int rowNum = -1;
+		private int columnNum = -1;
+		private String cellType = null;
+		private boolean isCellWithValue = false;
+		private boolean isInInlineString = false;
+		private boolean isReadingText = false;
+
+		private SheetContentsHandler(ReadOnlySharedStringsTable sharedStrings, ObjIntConsumer<Object[]> rowConsumer)
+		{
+			this.sharedStrings = sharedStrings;
+			this.rowConsumer = rowConsumer;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException
+		{
+			switch (localName)
+			{
+				case "row":
+					final String rowReference = attributes.getValue("r");
+					final int thisRowNum = rowReference == null ? rowNum + 1 : Integer.parseInt(rowReference) - 1;
+					if (rowNum != -1 && thisRowNum > rowNum + 1) throw new EndOfSheetException();
+					rowNum = thisRowNum;
+					columnNum = -1;
+					rowData.clear();
+					break;
+				case "c":
+					final String cellReference = attributes.getValue("r");
+					columnNum = cellReference == null ? columnNum + 1 : getColumnIndex(cellReference);
+					cellType = attributes.getValue("t");
+					isCellWithValue = false;
+					text.setLength(0);
+					break;
+				case "v":
+					isReadingText = true;
+					break;
+				case "is":
+					isInInlineString = true;
+					break;
+				case "t":
+					if (isInInlineString) isReadingText = true;
+					break;
+				default:
+					break;
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException
+		{
+			switch (localName)
+			{
+				case "v":
+					isReadingText = false;
+					isCellWithValue = true;
+					break;
+				case "t":
+					if (isInInlineString) { isReadingText = false; isCellWithValue = true; }
+					break;
+				case "is":
+					isInInlineString = false;
+					break;
+				case "c":
+					while (rowData.size() <= columnNum) rowData.add(null);
+					rowData.set(columnNum, getCellValue());
+					break;
+				case "row":
+					if (!rowData.isEmpty()) rowConsumer.accept(rowData.toArray(), numRowsRead++);
+					break;
+				default:
+					break;
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) throws SAXException
+		{
+			if (isReadingText) text.append(ch, start, length);
 		}
 
-		final Object[][] dataObject = new Object[sheetData.size()][];
-		for (int i = 0; i < dataObject.length; i++)
-			dataObject[i] = sheetData.get(i);
+		private Object getCellValue()
+		{
+			if (!isCellWithValue) return null;
+			if (cellType == null) return Double.parseDouble(text.toString());
+			switch (cellType)
+			{
+				case "s":
+					return sharedStrings.getEntryAt(Integer.parseInt(text.toString().trim()));
+				case "b":
+					return text.length() > 0 && text.charAt(0) == '1';
+				case "e":
+					return null;
+				case "n":
+					return Double.parseDouble(text.toString());
+				default:
+					return text.toString();
+			}
+		}
 
-		return dataObject;
+		private static int getColumnIndex(String cellReference)
+		{
+			int res = 0;
+			for (int i = 0; i < cellReference.length(); i++)
+			{
+				final char c = cellReference.charAt(i);
+				if (c < 'A' || c > 'Z') break;
+				res = res * 26 + (c - 'A' + 1);
+			}
+			return res - 1;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -8,16 +8,20 @@ package com.net2plan.niw;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.SortedMap;
+import java.util.Set;
 import java.util.SortedSet;
-import java.util.TreeMap;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import com.net2plan.interfaces.networkDesign.Link;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.utils.Pair;
-import com.net2plan.utils.Quadruple;
 
 
 /** This class is used to account for the occupation of the optical spectrum in the network.  
@@ -90,13 +94,18 @@ public class OpticalSimulationModule
    /** Planck constant m^2 kg/sec */
    public final static double constant_h = 6.62607004E-34; 
 	private final WNet wNet;
-	final private SortedMap<WLightpath,LpSignalState> perLpPerMetric_valAtDropTransponderEnd = new TreeMap<> ();
-	final private SortedMap<WFiber,SortedMap<WLightpath,Pair<LpSignalState,LpSignalState>>> perFiberPerLp_valStartAfterBoosterEndBeforePreampl = new TreeMap<> ();
-	final private SortedMap<WFiber,Quadruple<Double,Double,List<Double>,List<Double>>> perFiberTotalPower_valStartEndAndAtEachOlaInputOutput = new TreeMap<> ();
-	final private SortedMap<WFiber,SortedMap<WLightpath,SortedMap<Integer , Pair<LpSignalState,LpSignalState>>>> perFiberPerLpPerOla_valInputOutputOla = new TreeMap<> ();
-	final private SortedMap<WFiber,SortedMap<WLightpath,Optional<LpSignalState>>> perFiberPerLp_valInputBooster = new TreeMap<> ();
-	final private SortedMap<WFiber,SortedMap<WLightpath,Optional<LpSignalState>>> perFiberPerLp_valOutputPreamplifier = new TreeMap<> ();
+	/* Per lightpath, the signal states along its fibers, stored in flat arrays */
+	final private Map<WLightpath,LpPropagation> perLp_propagation = new HashMap<> ();
+	/* Per fiber, the total power at the fiber start (after the booster), at the fiber end (before the pre-amplifier), and at the input and output of each OLA */
+	final private Map<WFiber,FiberTotalPower> perFiber_totalPower = new HashMap<> ();
+	/* Per node, the number of changes in its attributes (e.g. OADM settings) when the information was last updated */
+	final private Map<WNode,Long> perNode_numAttributeChanges = new HashMap<> ();
+	/* The number of changes in the attributes of the design (e.g. the optical slot size) when the information was last updated */
+	private long numNetAttributeChanges;
 	
+	/** Creates the module, and computes the optical performance information of all the lightpaths in the network
+	 * @param wNet see above
+	 */
 	public OpticalSimulationModule (WNet wNet) 
 	{
 		this.wNet = wNet;
@@ -128,121 +137,198 @@ public class OpticalSimulationModule
         return addedOSNRThisOA_linear;
     }
 
+    /** Computes from scratch the optical performance information of all the lightpaths and fibers in the network
+     * @return this object
+     */
     public OpticalSimulationModule updateAllPerformanceInfo ()
     {
-    	System.out.println("Update all performance info");
-   	 for (WFiber e : wNet.getFibers())
-   	 {
-   		 perFiberPerLp_valStartAfterBoosterEndBeforePreampl.put(e, new TreeMap<> ());
-   		 perFiberPerLpPerOla_valInputOutputOla.put(e, new TreeMap <> ());
-   		perFiberPerLp_valInputBooster.put(e , new TreeMap<> ());
-   		perFiberPerLp_valOutputPreamplifier.put(e , new TreeMap<> ());
-   		 for (WLightpath lp : e.getTraversingLps())
-   			perFiberPerLpPerOla_valInputOutputOla.get(e).put(lp, new TreeMap<> ());
-   	 }
-   	 for (WLightpath lp : wNet.getLightpaths())
+    	perLp_propagation.clear();
+    	perFiber_totalPower.clear();
+    	for (WLightpath lp : wNet.getLightpaths())
+    		perLp_propagation.put(lp, propagateLightpath(lp));
+    	for (WFiber e : wNet.getFibers())
+    		perFiber_totalPower.put(e, computeFiberTotalPower(e));
+    	updateNumAttributeChangesOfNodesAndNet();
+    	assert wNet.getFibers().stream().allMatch(e->e.getTraversingLps().stream().allMatch(lp->perLp_propagation.get(lp).getNumOlas(e) == e.getNumberOfOpticalLineAmplifiersTraversed()));
+    	return this;
+    }
+
+    /** Updates the optical performance information, propagating again only the lightpaths affected by the changes since the last update. 
+     * These are the lightpaths added, the lightpaths with a different sequence of fibers or with changes in their attributes (e.g. optical slots, 
+     * injection power, add/drop modules), and the lightpaths traversing the fibers with a different length or with changes in their attributes 
+     * (e.g. coefficients, amplifiers), or the nodes with changes in their attributes (e.g. OADM settings). 
+     * Adding or removing a fiber affects the lightpaths at its end nodes, since the OADM losses depend on the node degree. 
+     * The changes are detected comparing the number of attribute changes of the elements (see {@link com.net2plan.interfaces.networkDesign.NetworkElement#getNumberOfAttributeChanges()}) 
+     * with the ones when the information was computed. 
+     * The total power is recomputed only for the fibers where some lightpath was added, removed or propagated again. 
+     * Any change in the attributes of the design (e.g. the optical slot size) makes all the information to be computed again.
+     * The result is the same as the one of {@link #updateAllPerformanceInfo()}.
+     * @return this object
+     * @since 0.6.6
+     */
+    public OpticalSimulationModule updatePerformanceInfo ()
+    {
+    	if (wNet.getNe().getNumberOfAttributeChanges() != numNetAttributeChanges) return updateAllPerformanceInfo();
+    	final Set<WFiber> fibersToUpdateTotalPower = new HashSet<> ();
+    	final Set<WLightpath> lpsToPropagate = new HashSet<> ();
+    	final Set<WFiber> modifiedFibers = new HashSet<> ();
+    	final Set<WNode> modifiedNodes = new HashSet<> ();
+
+    	/* Nodes with changes in their attributes */
+    	for (WNode n : wNet.getNodes())
+    	{
+    		final Long numAttributeChanges = perNode_numAttributeChanges.get(n);
+    		if (numAttributeChanges == null || numAttributeChanges != n.getNe().getNumberOfAttributeChanges()) modifiedNodes.add(n);
+    	}
+
+    	/* Fibers added, removed, or with changes */
+    	final List<WFiber> fibers = wNet.getFibers();
+    	final Set<WFiber> fibersSet = new HashSet<> (fibers);
+    	for (Iterator<Map.Entry<WFiber,FiberTotalPower>> it = perFiber_totalPower.entrySet().iterator(); it.hasNext() ; )
+    	{
+    		final Map.Entry<WFiber,FiberTotalPower> entry = it.next();
+    		if (fibersSet.contains(entry.getKey())) continue;
+    		modifiedNodes.add(entry.getValue().a);
+    		modifiedNodes.add(entry.getValue().b);
+    		it.remove();
+    	}
+    	for (WFiber e : fibers)
+    	{
+    		final FiberTotalPower info = perFiber_totalPower.get(e);
+    		if (info == null)
+    		{
+    			modifiedNodes.add(e.getA());
+    			modifiedNodes.add(e.getB());
+    			fibersToUpdateTotalPower.add(e);
+    		}
+    		else if (!info.isUpToDate(e)) modifiedFibers.add(e);
+    	}
+
+    	/* Lightpaths traversing modified fibers or nodes */
+    	final Set<WFiber> fibersWithLpsToPropagate = new HashSet<> (modifiedFibers);
+    	fibersToUpdateTotalPower.addAll(modifiedFibers);
+    	for (WNode n : modifiedNodes)
+    	{
+    		if (n.getNe().wasRemoved()) continue;
+    		fibersWithLpsToPropagate.addAll(n.getIncomingFibers());
+    		fibersWithLpsToPropagate.addAll(n.getOutgoingFibers());
+    	}
+    	for (WFiber e : fibersWithLpsToPropagate)
+    		lpsToPropagate.addAll(e.getTraversingLps());
+
+    	/* Lightpaths added, removed, or with changes */
+    	final List<WLightpath> lps = wNet.getLightpaths();
+    	final Set<WLightpath> lpsSet = new HashSet<> (lps);
+    	for (Iterator<Map.Entry<WLightpath,LpPropagation>> it = perLp_propagation.entrySet().iterator(); it.hasNext() ; )
+    	{
+    		final Map.Entry<WLightpath,LpPropagation> entry = it.next();
+    		if (lpsSet.contains(entry.getKey())) continue;
+    		fibersToUpdateTotalPower.addAll(Arrays.asList(entry.getValue().seqFibers));
+    		it.remove();
+    	}
+    	for (WLightpath lp : lps)
+    	{
+    		final LpPropagation info = perLp_propagation.get(lp);
+    		if (info == null || !info.isUpToDate(lp)) lpsToPropagate.add(lp);
+    	}
+
+    	for (WLightpath lp : lpsToPropagate)
+    	{
+    		final LpPropagation previousInfo = perLp_propagation.get(lp);
+    		if (previousInfo != null) fibersToUpdateTotalPower.addAll(Arrays.asList(previousInfo.seqFibers));
+    		final LpPropagation info = propagateLightpath(lp);
+    		perLp_propagation.put(lp, info);
+    		fibersToUpdateTotalPower.addAll(Arrays.asList(info.seqFibers));
+    	}
+    	for (WFiber e : fibersToUpdateTotalPower)
+    		if (fibersSet.contains(e)) perFiber_totalPower.put(e, computeFiberTotalPower(e));
+    	updateNumAttributeChangesOfNodesAndNet();
+    	return this;
+    }
+
+    /* Called at the end of an update, since reading the OADM settings of a node may set its default values */
+    private void updateNumAttributeChangesOfNodesAndNet ()
+    {
+    	perNode_numAttributeChanges.clear();
+    	for (WNode n : wNet.getNodes()) perNode_numAttributeChanges.put(n, n.getNe().getNumberOfAttributeChanges());
+    	numNetAttributeChanges = wNet.getNe().getNumberOfAttributeChanges();
+    }
+
+    private static LpPropagation propagateLightpath (WLightpath lp)
+    {
+   	 final int numOpticalSlots = lp.getOpticalSlotIds().size();
+   	 final double centralFrequency_hz = 1e12 * lp.getCentralFrequencyThz();
+   	 final List<WFiber> lpSeqFibers = lp.getSeqFibers();
+   	 final List<List<OpticalAmplifierInfo>> olasPerFiber = new ArrayList<> (lpSeqFibers.size());
+   	 for (WFiber fiber : lpSeqFibers) olasPerFiber.add(fiber.getOpticalLineAmplifiersInfo());
+   	 final LpPropagation res = new LpPropagation(lpSeqFibers, olasPerFiber);
+   	 LpSignalState state_afterPreamplPreviousFiber = null;
+   	 for (int contFiber = 0; contFiber < lpSeqFibers.size() ; contFiber ++)
    	 {
-   		 final int numOpticalSlots = lp.getOpticalSlotIds().size();
-   		 final double centralFrequency_hz = 1e12 * lp.getCentralFrequencyThz();
-   		 Optional<Pair<LpSignalState,LpSignalState>> previousFiberInfo = Optional.empty();
-   		 final List<WFiber> lpSeqFibers = lp.getSeqFibers();
-   		 for (int contFiber = 0; contFiber < lpSeqFibers.size() ; contFiber ++)
+   		 final WFiber fiber = lpSeqFibers.get(contFiber);
+   		 final IOadmArchitecture oadm_a = fiber.getA().getOpticalSwitchingArchitecture();
+   		 final LpSignalState state_startFiberBeforeBooster = contFiber == 0? 
+   				 oadm_a.getOutLpStateForAddedLp(new LpSignalState(lp.getAddTransponderInjectionPower_dBm() , 0.0, 0.0, Double.MAX_VALUE), lp.getDirectionlessAddModuleIndexInOrigin(), fiber , numOpticalSlots) :
+   					 oadm_a.getOutLpStateForExpressLp(state_afterPreamplPreviousFiber, lpSeqFibers.get(contFiber-1), fiber , numOpticalSlots);
+   		 final int firstState = res.firstStatePerFiber [contFiber];
+   		 res.setState(firstState + LpPropagation.STATE_INPUTBOOSTER, state_startFiberBeforeBooster);
+   		 final Optional<OpticalAmplifierInfo> boosterAmplifierInfo = fiber.getOriginBoosterAmplifierInfo();
+   		 final LpSignalState state_startFiberAfterBooster = boosterAmplifierInfo.isPresent()? 
+   				 getStateAfterOpticalAmplifier (centralFrequency_hz , state_startFiberBeforeBooster , boosterAmplifierInfo.get()) : 
+   					 state_startFiberBeforeBooster.getCopy();
+   		 res.setState(firstState + LpPropagation.STATE_STARTFIBER, state_startFiberAfterBooster);
+   		 LpSignalState stateOutputLastOlaOrInitialOadmAfterBooster = state_startFiberAfterBooster;
+   		 final List<OpticalAmplifierInfo> olasTraversed = olasPerFiber.get(contFiber);
+   		 final int numOlas = olasTraversed.size();
+   		 for (int contOla = 0; contOla < numOlas ; contOla ++)
    		 {
-   			 final WFiber fiber = lpSeqFibers.get(contFiber);
-   	   		 final boolean firstFiber = contFiber == 0;
-   			 final Pair<LpSignalState,LpSignalState> infoToAdd = Pair.of(new LpSignalState(), new LpSignalState());
-   			 final SortedMap<Integer , Pair<LpSignalState,LpSignalState>> infoToAddPerOla = new TreeMap<> ();
-   			 perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(fiber).put(lp, infoToAdd);
-   			 perFiberPerLpPerOla_valInputOutputOla.get(fiber).put(lp, infoToAddPerOla);
-   			
-   			 final IOadmArchitecture oadm_a = fiber.getA().getOpticalSwitchingArchitecture();
-   			 final LpSignalState state_startFiberBeforeBooster;
-   			 final WFiber previousFiber = contFiber == 0? null : lpSeqFibers.get(contFiber-1);
-   			 if (firstFiber)
-   				state_startFiberBeforeBooster = oadm_a.getOutLpStateForAddedLp(new LpSignalState(lp.getAddTransponderInjectionPower_dBm() , 0.0, 0.0, Double.MAX_VALUE), lp.getDirectionlessAddModuleIndexInOrigin(), lp.getSeqFibers().get(0) , numOpticalSlots);
-   			 else
-   			 {
-   				 final LpSignalState beforePreviousFiberEndPreampl = previousFiberInfo.get().getSecond();
-   				 final LpSignalState afterPreviousFiberEndPreampl = previousFiber.getDestinationPreAmplifierInfo().isPresent()? 
-   						getStateAfterOpticalAmplifier (centralFrequency_hz , beforePreviousFiberEndPreampl , previousFiber.getDestinationPreAmplifierInfo().get()) : 
-   							beforePreviousFiberEndPreampl.getCopy();
-				state_startFiberBeforeBooster = oadm_a.getOutLpStateForExpressLp(afterPreviousFiberEndPreampl, previousFiber, fiber , numOpticalSlots);
-   			 }
-   			 final Optional<OpticalAmplifierInfo> boosterAmplifierInfo = fiber.getOriginBoosterAmplifierInfo();
-   			 perFiberPerLp_valInputBooster.get(fiber).put(lp, boosterAmplifierInfo.isPresent()? Optional.of(state_startFiberBeforeBooster) : Optional.empty());
-   			 final LpSignalState state_startFiberAfterBooster = boosterAmplifierInfo.isPresent()? 
-	   						getStateAfterOpticalAmplifier (centralFrequency_hz , state_startFiberBeforeBooster , boosterAmplifierInfo.get()) : 
-	   							state_startFiberBeforeBooster.getCopy();
-	   		infoToAdd.setFirst(state_startFiberAfterBooster);
-			 LpSignalState stateOutputLastOlaOrInitialOadmAfterBooster = state_startFiberAfterBooster;
-			 final List<OpticalAmplifierInfo> olasTraversed = fiber.getOpticalLineAmplifiersInfo();
-			 final int numOlas = olasTraversed.size();
-			 for (int contOla = 0; contOla < numOlas ; contOla ++)
-			 {
-				 final OpticalAmplifierInfo thisOla = olasTraversed.get(contOla);
-				 final double distFromLastOlaOrInitialOadm_km = thisOla.getOlaPositionInKm().get() - (contOla == 0? 0 : olasTraversed.get(contOla-1).getOlaPositionInKm().get());
-				 assert distFromLastOlaOrInitialOadm_km >= 0;
-				 final LpSignalState stateBeforeTheOla = getStateAfterFiberKm (stateOutputLastOlaOrInitialOadmAfterBooster , fiber , distFromLastOlaOrInitialOadm_km);
-				 final LpSignalState stateAfterTheOla = getStateAfterOpticalAmplifier(centralFrequency_hz, stateBeforeTheOla, thisOla);
-				 final Pair<LpSignalState,LpSignalState> infoThisOla = Pair.of(stateBeforeTheOla, stateAfterTheOla);
-				infoToAddPerOla.put(contOla, infoThisOla);
-				stateOutputLastOlaOrInitialOadmAfterBooster = stateAfterTheOla;
-			 }
-			 final double distFromLastOlaOrInitialOadm_km = fiber.getLengthInKm() - (numOlas == 0? 0 : olasTraversed.get(numOlas-1).getOlaPositionInKm().get());
-			 final LpSignalState stateAtTheEndOfFiberBeforePreamplifier = getStateAfterFiberKm (stateOutputLastOlaOrInitialOadmAfterBooster , fiber , distFromLastOlaOrInitialOadm_km);
-   			 infoToAdd.setSecond(stateAtTheEndOfFiberBeforePreamplifier);
-   			 final Optional<OpticalAmplifierInfo> preamlInfo = fiber.getDestinationPreAmplifierInfo();
-   			 final LpSignalState state_afterPreampl = preamlInfo.isPresent()? 
-						getStateAfterOpticalAmplifier (centralFrequency_hz , stateAtTheEndOfFiberBeforePreamplifier , fiber.getDestinationPreAmplifierInfo().get()) : 
-							stateAtTheEndOfFiberBeforePreamplifier.getCopy();
-   			 this.perFiberPerLp_valOutputPreamplifier.get(fiber).put(lp, preamlInfo.isPresent()? Optional.of(state_afterPreampl) : Optional.empty());
-   			 previousFiberInfo = Optional.of(infoToAdd);
+   			 final OpticalAmplifierInfo thisOla = olasTraversed.get(contOla);
+   			 final double distFromLastOlaOrInitialOadm_km = thisOla.getOlaPositionInKm().get() - (contOla == 0? 0 : olasTraversed.get(contOla-1).getOlaPositionInKm().get());
+   			 assert distFromLastOlaOrInitialOadm_km >= 0;
+   			 final LpSignalState stateBeforeTheOla = getStateAfterFiberKm (stateOutputLastOlaOrInitialOadmAfterBooster , fiber , distFromLastOlaOrInitialOadm_km);
+   			 final LpSignalState stateAfterTheOla = getStateAfterOpticalAmplifier(centralFrequency_hz, stateBeforeTheOla, thisOla);
+   			 res.setState(firstState + LpPropagation.STATE_FIRSTOLA + 2 * contOla, stateBeforeTheOla);
+   			 res.setState(firstState + LpPropagation.STATE_FIRSTOLA + 2 * contOla + 1, stateAfterTheOla);
+   			 stateOutputLastOlaOrInitialOadmAfterBooster = stateAfterTheOla;
    		 }
+   		 final double distFromLastOlaOrInitialOadm_km = fiber.getLengthInKm() - (numOlas == 0? 0 : olasTraversed.get(numOlas-1).getOlaPositionInKm().get());
+   		 final LpSignalState stateAtTheEndOfFiberBeforePreamplifier = getStateAfterFiberKm (stateOutputLastOlaOrInitialOadmAfterBooster , fiber , distFromLastOlaOrInitialOadm_km);
+   		 res.setState(firstState + LpPropagation.STATE_FIRSTOLA + 2 * numOlas, stateAtTheEndOfFiberBeforePreamplifier);
+   		 final Optional<OpticalAmplifierInfo> preamlInfo = fiber.getDestinationPreAmplifierInfo();
+   		 final LpSignalState state_afterPreampl = preamlInfo.isPresent()? 
+   				 getStateAfterOpticalAmplifier (centralFrequency_hz , stateAtTheEndOfFiberBeforePreamplifier , preamlInfo.get()) : 
+   					 stateAtTheEndOfFiberBeforePreamplifier.getCopy();
+   		 res.setState(firstState + LpPropagation.STATE_FIRSTOLA + 2 * numOlas + 1, state_afterPreampl);
+   		 state_afterPreamplPreviousFiber = state_afterPreampl;
    	 }
    	 
-   	 assert perFiberPerLpPerOla_valInputOutputOla.keySet().containsAll(wNet.getFibers());
-   	 assert wNet.getFibers().stream().allMatch(e->e.getTraversingLps().equals(perFiberPerLpPerOla_valInputOutputOla.get(e).keySet()));
-   	 assert wNet.getFibers().stream().allMatch(e->e.getTraversingLps().stream().allMatch(lp->perFiberPerLpPerOla_valInputOutputOla.get(e).get(lp).size() == e.getNumberOfOpticalLineAmplifiersTraversed()));
-   	 
-   	 /* Update the per lp information at add and end */
-   	 for (WLightpath lp : wNet.getLightpaths())
-   	 {
-   		 final double centralFrequency_hz = 1e12 * lp.getCentralFrequencyThz();
-   		 final WFiber lastFiber = lp.getSeqFibers().get(lp.getSeqFibers().size()-1);
-   		 final WNode lastOadm = lastFiber.getB();
-   		 final LpSignalState state_beforePreamplLastFiber = perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(lastFiber).get(lp).getSecond();
-		 final LpSignalState state_afterPreamplLastFiber = lastFiber.getDestinationPreAmplifierInfo().isPresent()? 
-						getStateAfterOpticalAmplifier (centralFrequency_hz , state_beforePreamplLastFiber , lastFiber.getDestinationPreAmplifierInfo().get()) : 
-							state_beforePreamplLastFiber.getCopy();
-		final LpSignalState state_afterOadm = lastOadm.getOpticalSwitchingArchitecture().getOutLpStateForDroppedLp(state_afterPreamplLastFiber, lastFiber, lp.getDirectionlessDropModuleIndexInDestination());
-   		 perLpPerMetric_valAtDropTransponderEnd.put(lp, state_afterOadm);
-   	 }
-   	 
-   	 
-   	 /* Update the total power per fiber */
-   	 for (WFiber fiber : wNet.getFibers())
+   	 /* The state at the drop transponder end */
+   	 final WFiber lastFiber = lpSeqFibers.get(lpSeqFibers.size()-1);
+   	 final LpSignalState state_afterOadm = lastFiber.getB().getOpticalSwitchingArchitecture().getOutLpStateForDroppedLp(state_afterPreamplPreviousFiber, lastFiber, lp.getDirectionlessDropModuleIndexInDestination());
+   	 res.setState(res.getNumStates() - 1, state_afterOadm);
+   	 res.numAttributeChanges = lp.getNe().getNumberOfAttributeChanges();
+   	 return res;
+    }
+
+    private FiberTotalPower computeFiberTotalPower (WFiber fiber)
+    {
+   	 final SortedSet<WLightpath> lps = fiber.getTraversingLps();
+   	 final double powerAtStart_dBm = linear2dB(lps.stream().mapToDouble(lp->dB2linear(perLp_propagation.get(lp).getPowerAtFiberStartOrEnd_dbm(fiber , true))).sum ());
+   	 final double powerAtEnd_dBm = linear2dB(lps.stream().mapToDouble(lp->dB2linear(perLp_propagation.get(lp).getPowerAtFiberStartOrEnd_dbm(fiber , false))).sum ());
+   	 final List<OpticalAmplifierInfo> olas = fiber.getOpticalLineAmplifiersInfo();
+   	 final FiberTotalPower res = new FiberTotalPower(fiber, olas.size());
+   	 res.power_dBm [0] = powerAtStart_dBm;
+   	 res.power_dBm [1] = powerAtEnd_dBm;
+   	 for (int contOla = 0; contOla < olas.size() ; contOla ++)
    	 {
-   		 final double powerAtStart_dBm = linear2dB(fiber.getTraversingLps().stream().map(lp->perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(fiber).get(lp).getFirst().getPower_dbm()).
-   				 mapToDouble (v->dB2linear(v)).sum ());
-   		 final double powerAtEnd_dBm = linear2dB(fiber.getTraversingLps().stream().map(lp->perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(fiber).get(lp).getSecond().getPower_dbm()).
-   				 mapToDouble (v->dB2linear(v)).sum ());
-   		 
-   		 final List<Double> powerInputOla_dBm = new ArrayList<> ();
-   		 final List<Double> powerOutputOla_dBm = new ArrayList<> ();
-   		 final List<OpticalAmplifierInfo> olas = fiber.getOpticalLineAmplifiersInfo();
-		 for (int contOla = 0; contOla < olas.size() ; contOla ++)
-		 {
-			 final double kmFromStartFiber = olas.get(contOla).getOlaPositionInKm().get();
-			 final double sumGainsTraversedAmplifiersBeforeThisOla_db = IntStream.range(0, contOla).mapToDouble(olaIndex -> olas.get(olaIndex).getGainDb()).sum();
-			 final double powerAtInputThisOla_dBm = powerAtStart_dBm - kmFromStartFiber * fiber.getAttenuationCoefficient_dbPerKm() + sumGainsTraversedAmplifiersBeforeThisOla_db;
-			 final double powerAtOutputThisOla_dBm = powerAtInputThisOla_dBm + olas.get(contOla).getGainDb();
-			 powerInputOla_dBm.add(powerAtInputThisOla_dBm);
-			 powerOutputOla_dBm.add(powerAtOutputThisOla_dBm);
-		 }
-   		 perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.put(fiber, Quadruple.of(powerAtStart_dBm, powerAtEnd_dBm , powerInputOla_dBm , powerOutputOla_dBm));
+   		 final double kmFromStartFiber = olas.get(contOla).getOlaPositionInKm().get();
+   		 final double sumGainsTraversedAmplifiersBeforeThisOla_db = IntStream.range(0, contOla).mapToDouble(olaIndex -> olas.get(olaIndex).getGainDb()).sum();
+   		 final double powerAtInputThisOla_dBm = powerAtStart_dBm - kmFromStartFiber * fiber.getAttenuationCoefficient_dbPerKm() + sumGainsTraversedAmplifiersBeforeThisOla_db;
+   		 final double powerAtOutputThisOla_dBm = powerAtInputThisOla_dBm + olas.get(contOla).getGainDb();
+   		 res.power_dBm [2 + 2 * contOla] = powerAtInputThisOla_dBm;
+   		 res.power_dBm [2 + 2 * contOla + 1] = powerAtOutputThisOla_dBm;
    	 }
-   	 
-   	 return this;
+   	 return res;
     }
         
 	public Optional<Double> getMaxtoMinPerPowerDensityRatioAmongTraversingLightpathsAtFiberInput_dB (WFiber fiber)
@@ -266,46 +352,53 @@ public class OpticalSimulationModule
     
     public List<Double> getTotalPowerAtLineAmplifierInputs_dBm (WFiber fiber)
     {
-    	return perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.get(fiber).getThird();
+    	final FiberTotalPower info = perFiber_totalPower.get(fiber);
+    	return IntStream.range(0, info.getNumOlas()).mapToObj(cont->info.power_dBm [2 + 2 * cont]).collect(Collectors.toList());
     }
     public List<Double> getTotalPowerAtLineAmplifierOutputs_dBm (WFiber fiber)
     {
-    	return perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.get(fiber).getFourth();
+    	final FiberTotalPower info = perFiber_totalPower.get(fiber);
+    	return IntStream.range(0, info.getNumOlas()).mapToObj(cont->info.power_dBm [2 + 2 * cont + 1]).collect(Collectors.toList());
     }
     public double getTotalPowerAtLineAmplifierInput_dBm (WFiber fiber , int indexAmplifierInFiber)
     {
    	 if (indexAmplifierInFiber < 0 || indexAmplifierInFiber >= fiber.getNumberOfOpticalLineAmplifiersTraversed()) throw new Net2PlanException ("Wrong index");
-   	 return perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.get(fiber).getThird().get(indexAmplifierInFiber);
+   	 return perFiber_totalPower.get(fiber).power_dBm [2 + 2 * indexAmplifierInFiber];
     }
     public double getTotalPowerAtLineAmplifierOutput_dBm (WFiber fiber , int indexAmplifierInFiber)
     {
    	 if (indexAmplifierInFiber < 0 || indexAmplifierInFiber >= fiber.getNumberOfOpticalLineAmplifiersTraversed()) throw new Net2PlanException ("Wrong index");
-   	 return perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.get(fiber).getFourth().get(indexAmplifierInFiber);
+   	 return perFiber_totalPower.get(fiber).power_dBm [2 + 2 * indexAmplifierInFiber + 1];
     }
     public Pair<LpSignalState,LpSignalState> getOpticalPerformanceOfLightpathAtFiberEndsAfterBoosterBeforePreamplifier (WFiber fiber , WLightpath lp)
     {
-   	 if (!perFiberPerLp_valStartAfterBoosterEndBeforePreampl.containsKey(fiber)) return null;
-   	 if (!perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(fiber).containsKey(lp)) return null;
-   	 return perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(fiber).get(lp);
+   	 final LpPropagation info = perLp_propagation.get(lp);
+   	 if (info == null) return null;
+   	 final int firstState = info.getFirstState(fiber);
+   	 if (firstState < 0) return null;
+   	 return Pair.of(info.getState(firstState + LpPropagation.STATE_STARTFIBER), info.getState(firstState + LpPropagation.STATE_FIRSTOLA + 2 * info.getNumOlas(fiber)));
     }
     public Pair<Double,Double> getTotalPowerAtFiberEndsAfterBoosterBeforePreamplifier_dBm (WFiber fiber)
     {
-   	 if (!perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.containsKey(fiber)) return null;
-   	 return Pair.of(
-   			perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.get(fiber).getFirst (), 
-   			perFiberTotalPower_valStartEndAndAtEachOlaInputOutput.get(fiber).getSecond ());
+   	 final FiberTotalPower info = perFiber_totalPower.get(fiber);
+   	 if (info == null) return null;
+   	 return Pair.of(info.power_dBm [0], info.power_dBm [1]);
     }
     public LpSignalState getOpticalPerformanceAtTransponderReceiverEnd (WLightpath lp)
     {
-    	return perLpPerMetric_valAtDropTransponderEnd.get(lp);
+   	 final LpPropagation info = perLp_propagation.get(lp);
+   	 if (info == null) return null;
+   	 return info.getState(info.getNumStates() - 1);
     }
     public Pair<LpSignalState,LpSignalState> getOpticalPerformanceOfLightpathAtLineAmplifierInputAndOutput (WLightpath lp , WFiber e , int olaIndex)
     {
     	if (olaIndex >= e.getNumberOfOpticalLineAmplifiersTraversed()) throw new Net2PlanException ("Wrong amplifier index");
     	if (!lp.getSeqFibers().contains(e)) throw new Net2PlanException ("Wrong amplifier fiber");
-    	final  Pair<LpSignalState,LpSignalState> res = perFiberPerLpPerOla_valInputOutputOla.getOrDefault(e , new TreeMap<> ()).getOrDefault(lp, new TreeMap<> ()).get(olaIndex); 
-    	if (res == null) throw new Net2PlanException ("Unknown value");
-    	return res;
+    	final LpPropagation info = perLp_propagation.get(lp);
+    	final int firstState = info == null? -1 : info.getFirstState(e);
+    	if (firstState < 0 || olaIndex < 0 || olaIndex >= info.getNumOlas(e)) throw new Net2PlanException ("Unknown value");
+    	final int stateInputOla = firstState + LpPropagation.STATE_FIRSTOLA + 2 * olaIndex;
+    	return Pair.of(info.getState(stateInputOla), info.getState(stateInputOla + 1));
     }
 
     /** Returns the signal performances at the input and the output of the booster amplifier (if exists), of the given fiber, for the given lightpath.
@@ -316,8 +409,10 @@ public class OpticalSimulationModule
     public Optional<Pair<LpSignalState,LpSignalState>> getOpticalPerformanceOfLightpathAtBoosterAmplifierInputAndOutput (WLightpath lp , WFiber e)
     {
     	if (!e.getOriginBoosterAmplifierInfo().isPresent()) return Optional.empty();
-    	if (!e.getTraversingLps().contains(lp)) return Optional.empty();
-    	return Optional.of (Pair.of(this.perFiberPerLp_valInputBooster.get(e).get(lp).get(), this.perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(e).get(lp).getFirst()));
+    	final LpPropagation info = perLp_propagation.get(lp);
+    	final int firstState = info == null? -1 : info.getFirstState(e);
+    	if (firstState < 0) return Optional.empty();
+    	return Optional.of (Pair.of(info.getState(firstState + LpPropagation.STATE_INPUTBOOSTER), info.getState(firstState + LpPropagation.STATE_STARTFIBER)));
     }
 
     /** Returns the signal performances at the input and the output of the pre-amplifier (if exists), of the given fiber, for the given lightpath.
@@ -328,8 +423,11 @@ public class OpticalSimulationModule
     public Optional<Pair<LpSignalState,LpSignalState>> getOpticalPerformanceOfLightpathAtPreAmplifierInputAndOutput (WLightpath lp , WFiber e)
     {
     	if (!e.getDestinationPreAmplifierInfo().isPresent()) return Optional.empty();
-    	if (!e.getTraversingLps().contains(lp)) return Optional.empty();
-    	return Optional.of (Pair.of(this.perFiberPerLp_valStartAfterBoosterEndBeforePreampl.get(e).get(lp).getSecond() , this.perFiberPerLp_valOutputPreamplifier.get(e).get(lp).get()));
+    	final LpPropagation info = perLp_propagation.get(lp);
+    	final int firstState = info == null? -1 : info.getFirstState(e);
+    	if (firstState < 0) return Optional.empty();
+    	final int stateInputPreamplifier = firstState + LpPropagation.STATE_FIRSTOLA + 2 * info.getNumOlas(e);
+    	return Optional.of (Pair.of(info.getState(stateInputPreamplifier) , info.getState(stateInputPreamplifier + 1)));
     }
 
     public static double nm2thz (double wavelengthInNm)
@@ -382,4 +480,98 @@ public class OpticalSimulationModule
     	return new LpSignalState(power_dbm, cd_psPerNm, pmdSquared_ps2, osnrRefBw12_5_dB);
     }
     
+    /* The signal states of a lightpath along its sequence of fibers. Each state takes four consecutive values in a flat array (power, CD, 
+     * PMD squared and OSNR). For each traversed fiber, the states are: at the booster input, at the fiber start after the booster, at the 
+     * input and the output of each OLA, at the fiber end before the pre-amplifier, and after the pre-amplifier. The last state is the one at the receiver end */
+    private static final class LpPropagation
+    {
+    	private static final int STATE_INPUTBOOSTER = 0;
+    	private static final int STATE_STARTFIBER = 1;
+    	private static final int STATE_FIRSTOLA = 2;
+    	private final WFiber [] seqFibers;
+    	private final int [] firstStatePerFiber;
+    	private final int [] numOlasPerFiber;
+    	private final double [] values;
+    	private long numAttributeChanges;
+
+    	private LpPropagation (List<WFiber> seqFibers , List<List<OpticalAmplifierInfo>> olasPerFiber)
+    	{
+    		this.seqFibers = seqFibers.toArray(new WFiber [seqFibers.size()]);
+    		this.firstStatePerFiber = new int [seqFibers.size()];
+    		this.numOlasPerFiber = new int [seqFibers.size()];
+    		int numStates = 0;
+    		for (int cont = 0; cont < seqFibers.size() ; cont ++)
+    		{
+    			firstStatePerFiber [cont] = numStates;
+    			numOlasPerFiber [cont] = olasPerFiber.get(cont).size();
+    			numStates += 4 + 2 * numOlasPerFiber [cont];
+    		}
+    		this.values = new double [4 * (numStates + 1)];
+    	}
+    	private int getNumStates () { return values.length / 4; }
+    	/* If the fiber is traversed more than once, the last time is considered */
+    	private int getIndexInSeqFibers (WFiber e)
+    	{
+    		for (int cont = seqFibers.length - 1; cont >= 0 ; cont --)
+    			if (seqFibers [cont].equals(e)) return cont;
+    		return -1;
+    	}
+    	private int getFirstState (WFiber e)
+    	{
+    		final int index = getIndexInSeqFibers(e);
+    		return index < 0? -1 : firstStatePerFiber [index];
+    	}
+    	private int getNumOlas (WFiber e)
+    	{
+    		final int index = getIndexInSeqFibers(e);
+    		return index < 0? 0 : numOlasPerFiber [index];
+    	}
+    	private double getPowerAtFiberStartOrEnd_dbm (WFiber e , boolean atStart)
+    	{
+    		final int index = getIndexInSeqFibers(e);
+    		final int state = firstStatePerFiber [index] + (atStart? STATE_STARTFIBER : STATE_FIRSTOLA + 2 * numOlasPerFiber [index]);
+    		return values [4 * state];
+    	}
+    	private LpSignalState getState (int state)
+    	{
+    		return new LpSignalState(values [4 * state], values [4 * state + 1], values [4 * state + 2], values [4 * state + 3]);
+    	}
+    	private void setState (int state , LpSignalState val)
+    	{
+    		values [4 * state] = val.getPower_dbm();
+    		values [4 * state + 1] = val.getCd_psPerNm();
+    		values [4 * state + 2] = val.getPmdSquared_ps2();
+    		values [4 * state + 3] = val.getOsnrAt12_5GhzRefBw();
+    	}
+    	/* If the lightpath has the same sequence of fibers and no changes in its attributes since the propagation */
+    	private boolean isUpToDate (WLightpath lp)
+    	{
+    		if (lp.getNe().getNumberOfAttributeChanges() != numAttributeChanges) return false;
+    		final List<Link> seqLinks = lp.getNe().getSeqLinks();
+    		if (seqLinks.size() != seqFibers.length) return false;
+    		for (int cont = 0; cont < seqFibers.length ; cont ++)
+    			if (seqLinks.get(cont) != seqFibers [cont].getNe()) return false;
+    		return true;
+    	}
+    }
+
+    /* The total power in a fiber: at the start, at the end, and then at the input and the output of each OLA. Also, the fiber length and 
+     * the number of changes in its attributes when computed */
+    private static final class FiberTotalPower
+    {
+    	private final WNode a, b;
+    	private final double [] power_dBm;
+    	private final double lengthInKm;
+    	private final long numAttributeChanges;
+    	private FiberTotalPower (WFiber e , int numOlas)
+    	{
+    		this.a = e.getA();
+    		this.b = e.getB();
+    		this.power_dBm = new double [2 + 2 * numOlas];
+    		this.lengthInKm = e.getLengthInKm();
+    		this.numAttributeChanges = e.getNe().getNumberOfAttributeChanges();
+    	}
+    	private boolean isUpToDate (WFiber e) { return e.getLengthInKm() == lengthInKm && e.getNe().getNumberOfAttributeChanges() == numAttributeChanges; }
+    	private int getNumOlas () { return (power_dBm.length - 2) / 2; }
+    }
 }
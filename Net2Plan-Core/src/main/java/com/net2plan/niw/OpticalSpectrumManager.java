@@ -13,7 +13,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -50,11 +49,163 @@ public class OpticalSpectrumManager
 {
 	public enum OpticalSignalOccupationType { LEGITIMATESIGNAL , WASTESIGNAL; public boolean isWaste() { return this == OpticalSignalOccupationType.WASTESIGNAL;} public boolean isLegitimate () { return this == OpticalSignalOccupationType.LEGITIMATESIGNAL;  }  }
 	
+	/* Set of optical slot ids, as a bitset of 64-bit words. Word i covers the slots [64*(firstWord+i), 64*(firstWord+i)+63], so negative slot ids are supported */
+	private static class SlotBitmap
+	{
+		private static final int NONE = Integer.MAX_VALUE;
+		private int firstWord;
+		private long [] words;
+
+		SlotBitmap () { this.firstWord = 0; this.words = new long [0]; }
+		SlotBitmap (SlotBitmap other) { this.firstWord = other.firstWord; this.words = Arrays.copyOf(other.words, other.words.length); }
+
+		static SlotBitmap fromRanges (List<Pair<Integer,Integer>> ranges)
+		{
+			final SlotBitmap res = new SlotBitmap();
+			for (Pair<Integer,Integer> range : ranges)
+			{
+				final int first = range.getFirst();
+				final int last = range.getSecond();
+				if (first > last) continue;
+				res.ensureWord(first >> 6);
+				res.ensureWord(last >> 6);
+				for (int w = first >> 6; w <= last >> 6; w ++)
+				{
+					long mask = -1L;
+					if (w == first >> 6) mask &= -1L << (first & 63);
+					if (w == last >> 6) mask &= -1L >>> (63 - (last & 63));
+					res.words [w - res.firstWord] |= mask;
+				}
+			}
+			return res;
+		}
+
+		private void ensureWord (int word)
+		{
+			if (words.length == 0) { firstWord = word; words = new long [1]; return; }
+			if (word < firstWord)
+			{
+				final long [] newWords = new long [words.length + firstWord - word];
+				System.arraycopy(words, 0, newWords, firstWord - word, words.length);
+				words = newWords;
+				firstWord = word;
+			}
+			else if (word >= firstWord + words.length)
+				words = Arrays.copyOf(words, word - firstWord + 1);
+		}
+		boolean get (int slotId)
+		{
+			final int w = (slotId >> 6) - firstWord;
+			return w >= 0 && w < words.length && (words [w] & (1L << (slotId & 63))) != 0;
+		}
+		void set (int slotId) { ensureWord(slotId >> 6); words [(slotId >> 6) - firstWord] |= 1L << (slotId & 63); }
+		void clear (int slotId)
+		{
+			final int w = (slotId >> 6) - firstWord;
+			if (w >= 0 && w < words.length) words [w] &= ~(1L << (slotId & 63));
+		}
+		boolean isEmpty () { for (long word : words) if (word != 0) return false; return true; }
+		/* Keeps only the slots also in the other bitmap */
+		void and (SlotBitmap other)
+		{
+			if (other == null) { Arrays.fill(words, 0); return; }
+			for (int w = 0; w < words.length ; w ++)
+			{
+				final int otherW = w + firstWord - other.firstWord;
+				words [w] &= otherW >= 0 && otherW < other.words.length? other.words [otherW] : 0;
+			}
+		}
+		/* Removes the slots in the other bitmap */
+		void andNot (SlotBitmap other)
+		{
+			if (other == null) return;
+			for (int w = 0; w < words.length ; w ++)
+			{
+				final int otherW = w + firstWord - other.firstWord;
+				if (otherW >= 0 && otherW < other.words.length) words [w] &= ~other.words [otherW];
+			}
+		}
+		/* Removes the slots of id lower than the given one */
+		void clearBelow (int slotId)
+		{
+			final int w = (slotId >> 6) - firstWord;
+			if (w < 0) return;
+			if (w >= words.length) { Arrays.fill(words, 0); return; }
+			Arrays.fill(words, 0, w, 0);
+			words [w] &= -1L << (slotId & 63);
+		}
+		/* Returns the lowest slot id in the set, equal or higher than the given one, or NONE */
+		int nextSetSlot (int fromSlotId)
+		{
+			int w = (fromSlotId >> 6) - firstWord;
+			if (w >= words.length) return NONE;
+			long word;
+			if (w < 0) { w = 0; word = words [0]; } else word = words [w] & (-1L << (fromSlotId & 63));
+			while (true)
+			{
+				if (word != 0) return ((firstWord + w) << 6) + Long.numberOfTrailingZeros(word);
+				if (++ w == words.length) return NONE;
+				word = words [w];
+			}
+		}
+		/* Returns the lowest slot id not in the set, equal or higher than the given one */
+		int nextClearSlot (int fromSlotId)
+		{
+			int w = (fromSlotId >> 6) - firstWord;
+			if (w < 0 || w >= words.length) return fromSlotId;
+			long word = ~words [w] & (-1L << (fromSlotId & 63));
+			while (true)
+			{
+				if (word != 0) return ((firstWord + w) << 6) + Long.numberOfTrailingZeros(word);
+				if (++ w == words.length) return (firstWord + w) << 6;
+				word = ~words [w];
+			}
+		}
+		/* Returns the initial slot of the lowest-id range of the given number of contiguous slots in the set, or NONE */
+		int firstContiguousRange (int numContiguousSlots)
+		{
+			if (words.length == 0) return NONE;
+			int slot = nextSetSlot(firstWord << 6);
+			while (slot != NONE)
+			{
+				final int end = nextClearSlot(slot);
+				if (end - slot >= numContiguousSlots) return slot;
+				slot = nextSetSlot(end);
+			}
+			return NONE;
+		}
+		/* Returns the initial slots of all the ranges of the given number of contiguous slots in the set */
+		SortedSet<Integer> allContiguousRanges (int numContiguousSlots)
+		{
+			final SortedSet<Integer> res = new TreeSet<> ();
+			if (words.length == 0) return res;
+			int slot = nextSetSlot(firstWord << 6);
+			while (slot != NONE)
+			{
+				final int end = nextClearSlot(slot);
+				for (int initialSlot = slot; initialSlot <= end - numContiguousSlots ; initialSlot ++) res.add(initialSlot);
+				slot = nextSetSlot(end);
+			}
+			return res;
+		}
+		SortedSet<Integer> toSortedSet ()
+		{
+			final SortedSet<Integer> res = new TreeSet<> ();
+			for (int w = 0; w < words.length ; w ++)
+				for (long word = words [w]; word != 0; word &= word - 1)
+					res.add(((firstWord + w) << 6) + Long.numberOfTrailingZeros(word));
+			return res;
+		}
+	}
+
 	private class SlotOccupationManager <T>
 	{
 		final private Map<T,SortedMap<Integer,SortedSet<WLightpath>>> occupation_element_s_ll = new HashMap<> ();
+		final private Map<T,SlotBitmap> occupiedSlots_element = new HashMap<> ();
 		public SlotOccupationManager() {}
-		public void clear () { occupation_element_s_ll.clear();  }
+		public void clear () { occupation_element_s_ll.clear(); occupiedSlots_element.clear(); }
+		/* The slots occupied in the element, or null if none. The returned object must not be modified */
+		public SlotBitmap getOccupiedSlotBitmap (T element) { return occupiedSlots_element.get(element); }
 		public Map<T,SortedMap<Integer,SortedSet<WLightpath>>> getFullPerElementOccupationMap () { return Collections.unmodifiableMap(occupation_element_s_ll); }
 		public SortedMap<Integer,SortedSet<WLightpath>> getOccupiedSlotIds (T element) 
 		{ 
@@ -81,8 +232,11 @@ public class OpticalSpectrumManager
 	    	boolean clashesWithPreviousAllocations = false;
     		SortedMap<Integer,SortedSet<WLightpath>> thisElementInfo = this.occupation_element_s_ll.get(element);
     		if (thisElementInfo == null) { thisElementInfo = new TreeMap<> (); this.occupation_element_s_ll.put(element, thisElementInfo); }
+    		SlotBitmap thisElementBitmap = this.occupiedSlots_element.get(element);
+    		if (thisElementBitmap == null) { thisElementBitmap = new SlotBitmap(); this.occupiedSlots_element.put(element, thisElementBitmap); }
     		for (int slotId : slotIds)
     		{
+    			thisElementBitmap.set(slotId);
     			SortedSet<WLightpath> currentCollidingLps = thisElementInfo.get(slotId);
     			if (currentCollidingLps == null) { currentCollidingLps = new TreeSet<> (); thisElementInfo.put(slotId, currentCollidingLps); }
     			if (!currentCollidingLps.isEmpty()) clashesWithPreviousAllocations = true;
@@ -90,11 +244,10 @@ public class OpticalSpectrumManager
     		}
 	    }
 
-	    public void releaseOccupation (WLightpath lp , Collection<T> occupiedResources)
+	    public void releaseOccupation (WLightpath lp , SortedSet<Integer> slotIds , Collection<T> occupiedResources)
 	    {
 	    	if (occupiedResources == null) return;
-    		final SortedSet<Integer> slotIds = lp.getOpticalSlotIds();
-	    	for (T element : occupiedResources)
+	    	for (T element : new HashSet<> (occupiedResources))
 	    	{
 	    		SortedMap<Integer,SortedSet<WLightpath>> thisFiberInfo = this.occupation_element_s_ll.get(element);
 	    		for (int slotId : slotIds)
@@ -103,10 +256,11 @@ public class OpticalSpectrumManager
 	    			assert thisLpAndOthers != null;
 	    			assert thisLpAndOthers.contains(lp);
 	    			thisLpAndOthers.remove(lp);
-	    			if (thisLpAndOthers.isEmpty()) 
+	    			if (thisLpAndOthers.isEmpty())
 	    			{
 	    				thisFiberInfo.remove(slotId);
-	    				if (thisFiberInfo.isEmpty()) this.occupation_element_s_ll.remove(element);
+	    				this.occupiedSlots_element.get(element).clear(slotId);
+	    				if (thisFiberInfo.isEmpty()) { this.occupation_element_s_ll.remove(element); this.occupiedSlots_element.remove(element); }
 	    			}
 	    		}
 	    	}
@@ -180,15 +334,25 @@ public class OpticalSpectrumManager
     {
     	checkSameWNet(wdmLinks);
         if (wdmLinks.isEmpty()) throw new Net2PlanException ("No WDM links");
+        return getAvailableSlotBitmap(wdmLinks, addNodeDirectionlessBank, dropNodeDirectionlessBank).toSortedSet();
+    }
+
+    private SlotBitmap getAvailableSlotBitmap (Collection<WFiber> wdmLinks , Optional<Pair<WNode,Integer>> addNodeDirectionlessBank , Optional<Pair<WNode,Integer>> dropNodeDirectionlessBank)
+    {
         final Iterator<WFiber> itLink = wdmLinks.iterator();
-        final WFiber firstLink = itLink.next();
-        final SortedSet<Integer> validSlotIds = this.getIdleOpticalSlotIds(firstLink);
+        final SlotBitmap validSlotIds = this.getIdleSlotBitmap(itLink.next());
         while (itLink.hasNext())
-            validSlotIds.retainAll(this.getIdleOpticalSlotIds(itLink.next()));
+            validSlotIds.and(this.getIdleSlotBitmap(itLink.next()));
         if (addNodeDirectionlessBank.isPresent())
-            validSlotIds.removeAll(this.getOccupiedOpticalSlotIdsInDirectionlessAddModule(addNodeDirectionlessBank.get().getFirst() , addNodeDirectionlessBank.get().getSecond()));
+        {
+            validSlotIds.andNot(legitimateSignal_directionlessAddOccupation.getOccupiedSlotBitmap(addNodeDirectionlessBank.get()));
+            validSlotIds.andNot(wasteSignal_directionlessAddOccupation.getOccupiedSlotBitmap(addNodeDirectionlessBank.get()));
+        }
         if (dropNodeDirectionlessBank.isPresent())
-            validSlotIds.removeAll(this.getOccupiedOpticalSlotIdsInDirectionlessDropModule(dropNodeDirectionlessBank.get().getFirst() , dropNodeDirectionlessBank.get().getSecond()));
+        {
+            validSlotIds.andNot(legitimateSignal_directionlessDropOccupation.getOccupiedSlotBitmap(dropNodeDirectionlessBank.get()));
+            validSlotIds.andNot(wasteSignal_directionlessDropOccupation.getOccupiedSlotBitmap(dropNodeDirectionlessBank.get()));
+        }
         return validSlotIds;
     }
 
@@ -202,16 +366,19 @@ public class OpticalSpectrumManager
     {
     	checkSameWNet(wdmLinks);
         if (wdmLinks.isEmpty()) throw new Net2PlanException ("No WDM links");
-        final Iterator<WFiber> itLink = wdmLinks.iterator();
-        final WFiber firstLink = itLink.next();
+        return getAvailableSlotBitmapEmptyOrWithWaste(wdmLinks, addNodeDirectionlessBank, dropNodeDirectionlessBank).toSortedSet();
+    }
 
-        final SortedSet<Integer> validSlotIds = this.getOpticalSlotIdsEmptyOrWithWaste(firstLink);
+    private SlotBitmap getAvailableSlotBitmapEmptyOrWithWaste (Collection<WFiber> wdmLinks , Optional<Pair<WNode,Integer>> addNodeDirectionlessBank , Optional<Pair<WNode,Integer>> dropNodeDirectionlessBank)
+    {
+        final Iterator<WFiber> itLink = wdmLinks.iterator();
+        final SlotBitmap validSlotIds = this.getEmptyOrWithWasteSlotBitmap(itLink.next());
         while (itLink.hasNext())
-            validSlotIds.retainAll(this.getOpticalSlotIdsEmptyOrWithWaste(itLink.next()));
+            validSlotIds.and(this.getEmptyOrWithWasteSlotBitmap(itLink.next()));
         if (addNodeDirectionlessBank.isPresent())
-            validSlotIds.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessAddModule(addNodeDirectionlessBank.get().getFirst() , addNodeDirectionlessBank.get().getSecond()));
+            validSlotIds.andNot(legitimateSignal_directionlessAddOccupation.getOccupiedSlotBitmap(addNodeDirectionlessBank.get()));
         if (dropNodeDirectionlessBank.isPresent())
-            validSlotIds.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessDropModule(dropNodeDirectionlessBank.get().getFirst() , dropNodeDirectionlessBank.get().getSecond()));
+            validSlotIds.andNot(legitimateSignal_directionlessDropOccupation.getOccupiedSlotBitmap(dropNodeDirectionlessBank.get()));
         return validSlotIds;
     }
 
@@ -307,22 +474,26 @@ public class OpticalSpectrumManager
         		return false;
         /* Fibers with waste spectrum are not occupied by legitimate signals */
         for (WFiber e : occupationInformation.getFibersWithWasteSignal())
-        	for (int slotWithLegitimateSignalOtherLps : this.legitimateSignal_perFiberOccupation.getOccupiedOpticalSlotIds(e))
-        		if (slotIds.contains(slotWithLegitimateSignalOtherLps))
-        			return false;
+        	if (isAnySlotOccupied(this.legitimateSignal_perFiberOccupation.getOccupiedSlotBitmap(e) , slotIds))
+        		return false;
         /* Dirless add modules with waste spectrum are not occupied by legitimate signals */
         for (Pair<WNode,Integer> e : occupationInformation.getAddDirectionlessModulesWithWasteSignal())
-        	for (int slotWithLegitimateSignalOtherLps : this.legitimateSignal_directionlessAddOccupation.getOccupiedOpticalSlotIds(e))
-        		if (slotIds.contains(slotWithLegitimateSignalOtherLps))
-        			return false;
+        	if (isAnySlotOccupied(this.legitimateSignal_directionlessAddOccupation.getOccupiedSlotBitmap(e) , slotIds))
+        		return false;
         /* Dirless drop modules with waste spectrum are not occupied by legitimate signals */
         for (Pair<WNode,Integer> e : occupationInformation.getDropDirectionlessModulesWithWasteSignal())
-        	for (int slotWithLegitimateSignalOtherLps : this.legitimateSignal_directionlessDropOccupation.getOccupiedOpticalSlotIds(e))
-        		if (slotIds.contains(slotWithLegitimateSignalOtherLps))
-        			return false;
+        	if (isAnySlotOccupied(this.legitimateSignal_directionlessDropOccupation.getOccupiedSlotBitmap(e) , slotIds))
+        		return false;
         return true;
     }
 
+    private static boolean isAnySlotOccupied (SlotBitmap occupiedSlots , Collection<Integer> slotIds)
+    {
+    	if (occupiedSlots == null) return false;
+    	for (int slotId : slotIds) if (occupiedSlots.get(slotId)) return true;
+    	return false;
+    }
+
     /** Indicates if this lightpath has already been accounted for
      * @param lp see above
      * @return see above
@@ -353,6 +524,7 @@ public class OpticalSpectrumManager
     		wasteSignal_directionlessAddOccupation.allocateOccupation(module , lp, slotIds);
     	for (Pair<WNode,Integer> module : occupationInformation.getDropDirectionlessModulesWithWasteSignal())
     		wasteSignal_directionlessDropOccupation.allocateOccupation(module , lp, slotIds);
+    	lightpathsIncluded.put(lp, occupationInformation);
     }
 
     /** Releases all the optical slots occupied for a given lightpath in this manager
@@ -363,14 +535,16 @@ public class OpticalSpectrumManager
     	checkSameWNet(lp);
     	final OsmLightpathOccupationInfo occup = this.lightpathsIncluded.get(lp);
     	if (occup == null) return;
-		legitimateSignal_perFiberOccupation.releaseOccupation(lp, occup.getSeqFibersLegitimateSignal()); 
+    	final SortedSet<Integer> slotIds = occup.getOccupiedSlotIds().get();
+		legitimateSignal_perFiberOccupation.releaseOccupation(lp, slotIds, occup.getSeqFibersLegitimateSignal()); 
     	if (occup.getDirectionlessAddModule().isPresent())
-    		legitimateSignal_directionlessAddOccupation.releaseOccupation(lp , Arrays.asList(occup.getDirectionlessAddModule().get()));
+    		legitimateSignal_directionlessAddOccupation.releaseOccupation(lp , slotIds , Arrays.asList(occup.getDirectionlessAddModule().get()));
     	if (occup.getDirectionlessDropModule().isPresent())
-    		legitimateSignal_directionlessDropOccupation.releaseOccupation(lp , Arrays.asList(occup.getDirectionlessDropModule().get()));
-		wasteSignal_perFiberOccupation.releaseOccupation(lp, occup.getFibersWithWasteSignal());
-		wasteSignal_directionlessAddOccupation.releaseOccupation(lp, occup.getAddDirectionlessModulesWithWasteSignal());
-		wasteSignal_directionlessDropOccupation.releaseOccupation(lp, occup.getDropDirectionlessModulesWithWasteSignal());
+    		legitimateSignal_directionlessDropOccupation.releaseOccupation(lp , slotIds , Arrays.asList(occup.getDirectionlessDropModule().get()));
+		wasteSignal_perFiberOccupation.releaseOccupation(lp, slotIds, occup.getFibersWithWasteSignal());
+		wasteSignal_directionlessAddOccupation.releaseOccupation(lp, slotIds, occup.getAddDirectionlessModulesWithWasteSignal());
+		wasteSignal_directionlessDropOccupation.releaseOccupation(lp, slotIds, occup.getDropDirectionlessModulesWithWasteSignal());
+		lightpathsIncluded.remove(lp);
     }
 
 //    /** Searches for a first-fit assignment, where in each hop, one fiber is chosen. Given a set of hops (each hop with at least one fiber as an option),
@@ -577,34 +751,37 @@ public class OpticalSpectrumManager
         /* If a fiber is traversed more than once, there is no possible assignment */
         if (lpOccupation.isWithSelfClashing()) return Optional.empty();
 
+        final SlotBitmap validSlots = getAvailableSlotBitmap(lpOccupation, minimumInitialSlotId, forbidenSlotIds);
+        final int initialSlot = validSlots.firstContiguousRange(numContiguousSlotsRequired);
+        if (initialSlot == SlotBitmap.NONE) return Optional.empty();
+        final SortedSet<Integer> res = new TreeSet<> ();
+        for (int cont = 0; cont < numContiguousSlotsRequired ; cont ++) res.add(initialSlot + cont);
+        return Optional.of(res);
+    }
+
+    /* The slots usable for the given lightpath occupation, according to the legitimate and waste signal paths/modules, the minimum slot and the forbidden slots */
+    private SlotBitmap getAvailableSlotBitmap (OsmLightpathOccupationInfo lpOccupation , Optional<Integer> minimumInitialSlotId , SortedSet<Integer> forbidenSlotIds)
+    {
+    	checkSameWNet(lpOccupation.getSeqFibersLegitimateSignal());
+    	checkSameWNet(lpOccupation.getFibersWithWasteSignal());
+        if (lpOccupation.getSeqFibersLegitimateSignal().isEmpty()) throw new Net2PlanException ("No WDM links");
         /* Empty slots for legitimate fibers, and add/drop dirless modules  */
-        SortedSet<Integer> intersectionValidSlots = getAvailableSlotIds(lpOccupation.getSeqFibersLegitimateSignal() , lpOccupation.getDirectionlessAddModule() , lpOccupation.getDirectionlessDropModule());
+        final SlotBitmap validSlots = getAvailableSlotBitmap(lpOccupation.getSeqFibersLegitimateSignal() , lpOccupation.getDirectionlessAddModule() , lpOccupation.getDirectionlessDropModule());
         /* Retain slots without legitimate signal in wasted fibers */
         if (!lpOccupation.getFibersWithWasteSignal().isEmpty())
-        	intersectionValidSlots.retainAll(getAvailableSlotIdsEmptyOrWithWaste(lpOccupation.getFibersWithWasteSignal() , Optional.empty() , Optional.empty()));
+        	validSlots.and(getAvailableSlotBitmapEmptyOrWithWaste(lpOccupation.getFibersWithWasteSignal() , Optional.empty() , Optional.empty()));
         /* Remove slots with legitimate signal in any of the wasted add dirless ports */
         for (Pair<WNode,Integer> module : lpOccupation.getAddDirectionlessModulesWithWasteSignal())
-        	intersectionValidSlots.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessAddModule(module.getFirst(), module.getSecond()));
+        	validSlots.andNot(legitimateSignal_directionlessAddOccupation.getOccupiedSlotBitmap(module));
         /* Remove slots with legitimate signal in any of the wasted drop dirless ports */
         for (Pair<WNode,Integer> module : lpOccupation.getDropDirectionlessModulesWithWasteSignal())
-        	intersectionValidSlots.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessDropModule(module.getFirst(), module.getSecond()));
+        	validSlots.andNot(legitimateSignal_directionlessDropOccupation.getOccupiedSlotBitmap(module));
         /* Remove invalid slots below the mandated threshold */
         if (minimumInitialSlotId.isPresent())
-        	intersectionValidSlots = intersectionValidSlots.tailSet(minimumInitialSlotId.get());
+        	validSlots.clearBelow(minimumInitialSlotId.get());
         /* Remove forbiden slot ids */
-        intersectionValidSlots.removeAll(forbidenSlotIds);
-        if (intersectionValidSlots.size() < numContiguousSlotsRequired) return Optional.empty();
-
-        final LinkedList<Integer> lastXValidSlots = new LinkedList<> ();
-        for (int slotId : intersectionValidSlots)
-        {
-        	if (lastXValidSlots.size() >= numContiguousSlotsRequired) lastXValidSlots.remove(0);
-        	lastXValidSlots.add(slotId);
-        	if (lastXValidSlots.size() != numContiguousSlotsRequired) continue;
-        	if (lastXValidSlots.getLast() - lastXValidSlots.getFirst() == numContiguousSlotsRequired-1) 
-        		return Optional.of(new TreeSet<>(lastXValidSlots));
-        }
-        return Optional.empty();
+        for (int slotId : forbidenSlotIds) validSlots.clear(slotId);
+        return validSlots;
     }
 
     
@@ -626,37 +803,7 @@ public class OpticalSpectrumManager
         /* If a fiber is traversed more than once, there is no possible assignment */
         if (lpOccupation.isWithSelfClashing()) return new TreeSet<> ();
 
-        /* Empty slots for legitimate fibers, and add/drop dirless modules  */
-        SortedSet<Integer> intersectionValidSlots = getAvailableSlotIds(lpOccupation.getSeqFibersLegitimateSignal() , lpOccupation.getDirectionlessAddModule() , lpOccupation.getDirectionlessDropModule());
-        /* Retain slots without legitimate signal in wasted fibers */
-        if (!lpOccupation.getFibersWithWasteSignal().isEmpty())
-        	intersectionValidSlots.retainAll(getAvailableSlotIdsEmptyOrWithWaste(lpOccupation.getFibersWithWasteSignal() , Optional.empty() , Optional.empty()));
-        /* Remove slots with legitimate signal in any of the wasted add dirless ports */
-        for (Pair<WNode,Integer> module : lpOccupation.getAddDirectionlessModulesWithWasteSignal())
-        	intersectionValidSlots.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessAddModule(module.getFirst(), module.getSecond()));
-        /* Remove slots with legitimate signal in any of the wasted drop dirless ports */
-        for (Pair<WNode,Integer> module : lpOccupation.getDropDirectionlessModulesWithWasteSignal())
-        	intersectionValidSlots.removeAll(this.getOccupiedWithLegitimateSignalOpticalSlotIdsInDirectionlessDropModule(module.getFirst(), module.getSecond()));
-        /* Remove invalid slots below the mandated threshold */
-        if (minimumInitialSlotId.isPresent())
-        	intersectionValidSlots = intersectionValidSlots.tailSet(minimumInitialSlotId.get());
-        /* Remove the forbidden slots if any */
-        intersectionValidSlots.removeAll(forbidenSlotIds);
-        
-        if (intersectionValidSlots.size() < numContiguousSlotsRequired) return new TreeSet<> ();
-
-        final SortedSet<Integer> validFirstSlotsOfContiguousRanges = new TreeSet<> ();
-        
-        final LinkedList<Integer> lastXValidSlots = new LinkedList<> ();
-        for (int slotId : intersectionValidSlots)
-        {
-        	if (lastXValidSlots.size() >= numContiguousSlotsRequired) lastXValidSlots.remove(0);
-        	lastXValidSlots.add(slotId);
-        	if (lastXValidSlots.size() != numContiguousSlotsRequired) continue;
-        	if (lastXValidSlots.getLast() - lastXValidSlots.getFirst() == numContiguousSlotsRequired-1) 
-        		validFirstSlotsOfContiguousRanges.add(lastXValidSlots.getFirst());
-        }
-        return validFirstSlotsOfContiguousRanges;
+        return getAvailableSlotBitmap(lpOccupation, minimumInitialSlotId, forbidenSlotIds).allContiguousRanges(numContiguousSlotsRequired);
     }
 
     /** Searches for a first-fit assignment for the two given paths, so optical slots can be different for each. 
@@ -1000,8 +1147,14 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getIdleOpticalSlotIds (WFiber wdmLink)
 	{
 		checkSameWNet(wdmLink);
-		final SortedSet<Integer> res = wdmLink.getValidOpticalSlotIds();
-		res.removeAll(getOccupiedOpticalSlotIds(wdmLink));
+		return getIdleSlotBitmap(wdmLink).toSortedSet();
+	}
+
+	private SlotBitmap getIdleSlotBitmap (WFiber wdmLink)
+	{
+		final SlotBitmap res = SlotBitmap.fromRanges(wdmLink.getValidOpticalSlotRanges());
+		res.andNot(legitimateSignal_perFiberOccupation.getOccupiedSlotBitmap(wdmLink));
+		res.andNot(wasteSignal_perFiberOccupation.getOccupiedSlotBitmap(wdmLink));
 		return res;
 	}
 
@@ -1012,8 +1165,13 @@ public class OpticalSpectrumManager
 	public SortedSet<Integer> getOpticalSlotIdsEmptyOrWithWaste (WFiber wdmLink)
 	{
 		checkSameWNet(wdmLink);
-		final SortedSet<Integer> res = wdmLink.getValidOpticalSlotIds();
-		res.removeAll(getOpticalSlotIdsWithLegitimateSignal(wdmLink));
+		return getEmptyOrWithWasteSlotBitmap(wdmLink).toSortedSet();
+	}
+
+	private SlotBitmap getEmptyOrWithWasteSlotBitmap (WFiber wdmLink)
+	{
+		final SlotBitmap res = SlotBitmap.fromRanges(wdmLink.getValidOpticalSlotRanges());
+		res.andNot(legitimateSignal_perFiberOccupation.getOccupiedSlotBitmap(wdmLink));
 		return res;
 	}
 
@@ -1150,16 +1308,8 @@ public class OpticalSpectrumManager
 	 */
 	public SortedSet<Integer> getIdleOpticalSlotRangesInitialSlots (WFiber wdmLink , int numContiguousSlots)
 	{
-		final SortedSet<Integer> idleSlots = getIdleOpticalSlotIds (wdmLink);
-		final SortedSet<Integer> res = new TreeSet<> ();
-		for (int s : idleSlots)
-		{
-			boolean ok = true;
-			for (int cont = 0; cont < numContiguousSlots ; cont ++)
-				if (!idleSlots.contains(s+cont)) { ok = false; break; }
-			if (ok) res.add(s);
-		}
-		return res;
+		checkSameWNet(wdmLink);
+		return getIdleSlotBitmap(wdmLink).allContiguousRanges(Math.max(1, numContiguousSlots));
 	}
 
 		
@@ -1171,7 +1321,9 @@ public class OpticalSpectrumManager
 	public boolean isOpticalSlotIdsValidAndIdle (WFiber wdmLink , SortedSet<Integer> slotsIds)
 	{
 		checkSameWNet(wdmLink);
-		return getIdleOpticalSlotIds(wdmLink).containsAll(slotsIds);
+		final SlotBitmap idleSlots = getIdleSlotBitmap(wdmLink);
+		for (int slotId : slotsIds) if (!idleSlots.get(slotId)) return false;
+		return true;
 	}
 	
 	/** FA: Indicates if the optical slots are usable (valid and idle, not occupied by waste or legitimate optical signals of any lightpath) in the given add directionless module index
@@ -1183,7 +1335,8 @@ public class OpticalSpectrumManager
 	public boolean isOpticalSlotIdsValidAndIdleInAddDirectionlessModule (WNode node , int directionlessModuleIndex , SortedSet<Integer> slotsIds)
 	{
 		checkSameWNet(node);
-		return getOccupiedOpticalSlotIdsInDirectionlessAddModule(node, directionlessModuleIndex).stream().allMatch(slot->!slotsIds.contains(slot));
+		final Pair<WNode,Integer> id = Pair.of(node, directionlessModuleIndex);
+		return !isAnySlotOccupied(legitimateSignal_directionlessAddOccupation.getOccupiedSlotBitmap(id), slotsIds) && !isAnySlotOccupied(wasteSignal_directionlessAddOccupation.getOccupiedSlotBitmap(id), slotsIds);
 	}
 	
 	/** FA: Indicates if the optical slots are usable (valid and idle, not occupied by waste or legitimate optical signals of any lightpath) in the given drop directionless module index
@@ -1195,7 +1348,8 @@ public class OpticalSpectrumManager
 	public boolean isOpticalSlotIdsValidAndIdleInDropDirectionlessModule (WNode node , int directionlessModuleIndex , SortedSet<Integer> slotsIds)
 	{
 		checkSameWNet(node);
-		return getOccupiedOpticalSlotIdsInDirectionlessDropModule(node, directionlessModuleIndex).stream().allMatch(slot->!slotsIds.contains(slot));
+		final Pair<WNode,Integer> id = Pair.of(node, directionlessModuleIndex);
+		return !isAnySlotOccupied(legitimateSignal_directionlessDropOccupation.getOccupiedSlotBitmap(id), slotsIds) && !isAnySlotOccupied(wasteSignal_directionlessDropOccupation.getOccupiedSlotBitmap(id), slotsIds);
 	}
 	
 
@@ -218,7 +218,7 @@ public abstract class WAbstractIpUnicastOrAnycastDemand extends WAbstractNetwork
 		final SortedMap<WIpLink , Double> res = new TreeMap<> ();
 		for (Entry<Link,Double> entry : getNe ().getTraversedLinksAndCarriedTraffic(normalizedToOfferedTraffic).entrySet())
 		{
-			final WIpLink e = new WIpLink(entry.getKey());
+			final WIpLink e = WNetElementRegistry.getIpLink(entry.getKey());
 			if (e.isBundleMember()) continue;
 			res.put(e, entry.getValue());
 		}
@@ -38,18 +38,20 @@ public abstract class WAbstractNetworkElement implements Comparable<WAbstractNet
 		// if associated element == null, this is a dummy fiber, used in some graphs
 		this.associatedNpElement = associatedNpElement;
 		this.indexIfDummyElement = indexIfDummyElement;
-		if (this.getWType() != WTYPE.WNet)
+		assert this.getWType() == WTYPE.WNet || isTypeOfAssociatedElement();
+	}
+
+	/* Checks that the type of the associated element is the one of this object (only called if assertions are enabled, since it is not cheap) */
+	private boolean isTypeOfAssociatedElement ()
+	{
+		final WTYPE type1 = getNet().getWType(associatedNpElement).orElse(null);
+		final WTYPE type2 = this.getWType();
+		if (type1 != type2) 
 		{
-			final WTYPE type1 = getNet().getWType(associatedNpElement).orElse(null);
-			final WTYPE type2 = this.getWType();
-			if (type1 != type2) 
-			{
-				System.out.println("TYPE ACCORDING TO associtatedElement: " + type1 + " . According to this.getType(): " + type2);
-				System.out.println("associatedNpElement: " + associatedNpElement);
-			}
-			assert type1 == type2;
-			
+			System.out.println("TYPE ACCORDING TO associtatedElement: " + type1 + " . According to this.getType(): " + type2);
+			System.out.println("associatedNpElement: " + associatedNpElement);
 		}
+		return type1 == type2;
 	}
 
 	/**
@@ -17,6 +17,7 @@ import java.util.stream.Collectors;
 
 import com.net2plan.interfaces.networkDesign.Link;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.Route;
 import com.net2plan.niw.WNetConstants.WTYPE;
 import com.net2plan.utils.Pair;
 
@@ -100,7 +101,7 @@ public class WFiber extends WAbstractNetworkElement
 	 */
 	public WNode getA()
 	{
-		return new WNode(getNe().getOriginNode());
+		return WNetElementRegistry.getNode(getNe().getOriginNode());
 	}
 
 	/**
@@ -109,7 +110,7 @@ public class WFiber extends WAbstractNetworkElement
 	 */
 	public WNode getB()
 	{
-		return new WNode(getNe().getDestinationNode());
+		return WNetElementRegistry.getNode(getNe().getDestinationNode());
 	}
 
 	/**
@@ -210,7 +211,7 @@ public class WFiber extends WAbstractNetworkElement
 	public WFiber getBidirectionalPair()
 	{
 		if (!this.isBidirectional()) throw new Net2PlanException("Not a bidirectional link");
-		return new WFiber(getNe().getBidirectionalPair());
+		return WNetElementRegistry.getFiber(getNe().getBidirectionalPair());
 	}
 
 	
@@ -328,7 +329,10 @@ public class WFiber extends WAbstractNetworkElement
 	 */
 	public SortedSet<WLightpath> getTraversingLps()
 	{
-		return getNe().getTraversingRoutes().stream().map(r -> new WLightpath(r)).collect(Collectors.toCollection(TreeSet::new));
+		final WNetElementRegistry registry = WNetElementRegistry.get(getNetPlan());
+		final SortedSet<WLightpath> res = new TreeSet<> ();
+		for (Route r : getNe().getTraversingRoutes()) res.add((WLightpath) registry.getElement(WTYPE.WLightpath, r));
+		return res;
 	}
 
 	/**
@@ -337,7 +341,10 @@ public class WFiber extends WAbstractNetworkElement
 	 */
 	public SortedSet<WLightpathRequest> getTraversingLpRequestsInAtLeastOneLp()
 	{
-		return getNe().getTraversingRoutes().stream().map(r -> new WLightpathRequest(r.getDemand())).collect(Collectors.toCollection(TreeSet::new));
+		final WNetElementRegistry registry = WNetElementRegistry.get(getNetPlan());
+		final SortedSet<WLightpathRequest> res = new TreeSet<> ();
+		for (Route r : getNe().getTraversingRoutes()) res.add((WLightpathRequest) registry.getElement(WTYPE.WLightpathRequest, r.getDemand()));
+		return res;
 	}
 
 	/**
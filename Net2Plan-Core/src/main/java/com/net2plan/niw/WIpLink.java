@@ -44,7 +44,7 @@ public class WIpLink extends WAbstractNetworkElement
 
 	static WIpLink createFromAdd(Link e, double nominalCapacityGbps)
 	{
-		final WIpLink res = new WIpLink(e);
+		final WIpLink res = WNetElementRegistry.getIpLink(e);
 		e.setAttribute(ATTNAMECOMMONPREFIX + ATTNAMESUFFIX_NOMINALCAPACITYGBPS, nominalCapacityGbps);
 		return res;
 	}
@@ -61,7 +61,7 @@ public class WIpLink extends WAbstractNetworkElement
 	 */
 	public WNode getA()
 	{
-		return new WNode(npLink.getOriginNode());
+		return WNetElementRegistry.getNode(npLink.getOriginNode());
 	}
 
 	/**
@@ -70,7 +70,7 @@ public class WIpLink extends WAbstractNetworkElement
 	 */
 	public WNode getB()
 	{
-		return new WNode(npLink.getDestinationNode());
+		return WNetElementRegistry.getNode(npLink.getDestinationNode());
 	}
 
 	/**
@@ -117,7 +117,7 @@ public class WIpLink extends WAbstractNetworkElement
 	public WIpLink getBidirectionalPair()
 	{
 		if (!this.isBidirectional()) throw new Net2PlanException("Not a bidirectional link");
-		return new WIpLink(npLink.getBidirectionalPair());
+		return WNetElementRegistry.getIpLink(npLink.getBidirectionalPair());
 	}
 
 	/**
@@ -268,7 +268,7 @@ public class WIpLink extends WAbstractNetworkElement
 	public WLightpathRequest getCoupledLpRequest()
 	{
 		if (!isCoupledtoLpRequest()) throw new Net2PlanException("Not coupled");
-		return new WLightpathRequest(npLink.getCoupledDemand());
+		return WNetElementRegistry.getLightpathRequest(npLink.getCoupledDemand());
 	}
 
 	/**
@@ -317,7 +317,7 @@ public class WIpLink extends WAbstractNetworkElement
 	public WIpLink getBundleParentIfMember ()
 	{
 		if (!this.isBundleMember()) throw new Net2PlanException ("This IP link is not a bundle member");
-		return new WIpLink (getNe().getTraversingRoutes().first().getDemand().getCoupledLink());
+		return WNetElementRegistry.getIpLink(getNe().getTraversingRoutes().first().getDemand().getCoupledLink());
 	}
 	
 	/** Returns the service chains traversing this IP links
@@ -366,7 +366,7 @@ public class WIpLink extends WAbstractNetworkElement
 		for (Route r : getNe ().getCoupledDemand().getRoutes())
 		{
 			if (r.getSeqLinks().size() != 1) throw new RuntimeException ();
-			res.add(new WIpLink(r.getSeqLinks().get(0)));
+			res.add(WNetElementRegistry.getIpLink(r.getSeqLinks().get(0)));
 		}
 		return res;
 	}
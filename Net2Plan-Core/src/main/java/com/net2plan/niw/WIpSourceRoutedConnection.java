@@ -48,7 +48,7 @@ public class WIpSourceRoutedConnection extends WAbstractNetworkElement
 	 */
 	public List<WIpLink> getSequenceOfTraversedIpLinks () 
 	{
-		return getNe().getSeqLinks().stream().map(ee->new WIpLink (ee)).filter(e->!e.isVirtualLink()).collect(Collectors.toCollection(ArrayList::new));
+		return getNe().getSeqLinks().stream().map(ee->WNetElementRegistry.getIpLink(ee)).filter(e->!e.isVirtualLink()).collect(Collectors.toCollection(ArrayList::new));
 	}
 	
 	public double getWorstCaseLengthInKm ()
@@ -104,14 +104,14 @@ public class WIpSourceRoutedConnection extends WAbstractNetworkElement
 	 */
 	public WNode getA () 
 	{
-		return new WNode (getNe().getIngressNode());
+		return WNetElementRegistry.getNode(getNe().getIngressNode());
 	}
 	/** The destination node of this IP connection
 	 * @return see above
 	 */
 	public WNode getB () 
 	{
-		return new WNode (getNe().getEgressNode());
+		return WNetElementRegistry.getNode(getNe().getEgressNode());
 	}
 
 	@Override
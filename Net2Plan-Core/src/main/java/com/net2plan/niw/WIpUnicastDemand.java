@@ -133,7 +133,7 @@ public class WIpUnicastDemand extends WAbstractIpUnicastOrAnycastDemand
 	 */
 	public WNode getA ()
 	{
-		return new WNode (getNe().getIngressNode());
+		return WNetElementRegistry.getNode(getNe().getIngressNode());
 	}
 
 	/**
@@ -142,7 +142,7 @@ public class WIpUnicastDemand extends WAbstractIpUnicastOrAnycastDemand
 	 */
 	public WNode getB ()
 	{
-		return new WNode (getNe().getEgressNode());
+		return WNetElementRegistry.getNode(getNe().getEgressNode());
 	}
 
 	
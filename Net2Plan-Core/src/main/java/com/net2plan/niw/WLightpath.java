@@ -81,15 +81,15 @@ public class WLightpath extends WAbstractNetworkElement
 	/** The origin node of the lighptath, that must the origin node of the associated lightpath request
 	 * @return see above
 	 */
-	public WNode getA () { return new WNode (getNe().getIngressNode()); }
+	public WNode getA () { return WNetElementRegistry.getNode(getNe().getIngressNode()); }
 	/** The destination node of the lighptath, that must the destination node of the associated lightpath request
 	 * @return see above
 	 */
-	public WNode getB () { return new WNode (getNe().getEgressNode()); }
+	public WNode getB () { return WNetElementRegistry.getNode(getNe().getEgressNode()); }
 	/** Returns the associated lightpath request
 	 * @return see above
 	 */
-	public WLightpathRequest getLightpathRequest () { return new WLightpathRequest(getNe().getDemand()); }
+	public WLightpathRequest getLightpathRequest () { return WNetElementRegistry.getLightpathRequest(getNe().getDemand()); }
 
 	/** Returns the nodes where this lightpath is optically switched: the sequence of nodes removing the first and the last
 	 * @return see above
@@ -211,7 +211,7 @@ public class WLightpath extends WAbstractNetworkElement
 	/** Returns the list of lightpath designated to be backup of this one
 	 * @return see above
 	 */
-	public List<WLightpath> getBackupLightpaths () { return getNe().getBackupRoutes().stream().map(rr->new WLightpath(rr)).collect(Collectors.toList()); }
+	public List<WLightpath> getBackupLightpaths () { return getNe().getBackupRoutes().stream().map(rr->WNetElementRegistry.getLightpath(rr)).collect(Collectors.toList()); }
 	
 	/** Returns the lightpaths from which this is backup, or an empty set
 	 * @return see above
@@ -219,7 +219,7 @@ public class WLightpath extends WAbstractNetworkElement
 	public SortedSet<WLightpath> getPrimaryLightpathsOfThisBackupLightpath () 
 	{
 		if (!this.isBackupLightpath()) return new TreeSet<> ();
-		return getNe().getRoutesIAmBackup().stream().map(rr->new WLightpath(rr)).collect(Collectors.toCollection(TreeSet::new));
+		return getNe().getRoutesIAmBackup().stream().map(rr->WNetElementRegistry.getLightpath(rr)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	
@@ -236,12 +236,12 @@ public class WLightpath extends WAbstractNetworkElement
 	/** Returns the sequence of fibers traversed by this lp
 	 * @return see above
 	 */
-	public List<WNode> getSeqNodes () { return getNe().getSeqNodes().stream().map(e->new WNode(e)).collect(Collectors.toList()); }
+	public List<WNode> getSeqNodes () { return getNe().getSeqNodes().stream().map(e->WNetElementRegistry.getNode(e)).collect(Collectors.toList()); }
 
 	/** Returns the sequence of fibers traversed by this lp
 	 * @return see above
 	 */
-	public List<WFiber> getSeqFibers () { return getNe().getSeqLinks().stream().map(e->new WFiber(e)).collect(Collectors.toList()); }
+	public List<WFiber> getSeqFibers () { return getNe().getSeqLinks().stream().map(e->WNetElementRegistry.getFiber(e)).collect(Collectors.toList()); }
 
 	/** Changes the sequence of fibers traversed by this lightpath
 	 * @param newSeqFibers see above
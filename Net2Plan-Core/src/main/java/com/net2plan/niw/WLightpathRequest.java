@@ -39,11 +39,11 @@ public class WLightpathRequest extends WAbstractNetworkElement
 	/** The lightpath request origin node
 	 * @return see above
 	 */
-	public WNode getA () { return new WNode (getNe().getIngressNode()); }
+	public WNode getA () { return WNetElementRegistry.getNode(getNe().getIngressNode()); }
 	/** The lightpath request destination node
 	 * @return see above
 	 */
-	public WNode getB () { return new WNode (getNe().getEgressNode()); }
+	public WNode getB () { return WNetElementRegistry.getNode(getNe().getEgressNode()); }
 	/** Indicates if the lightpath is part of a bidirectinal pair of lighptaths 
 	 * @return see above
 	 */
@@ -51,7 +51,7 @@ public class WLightpathRequest extends WAbstractNetworkElement
 	/** If the lightpath is part of a bidirectional pair, returns the opposite lightpath request, if not returns null 
 	 * @return see above
 	 */
-	public WLightpathRequest getBidirectionalPair () { assert this.isBidirectional(); return new WLightpathRequest(getNe().getBidirectionalPair()); }
+	public WLightpathRequest getBidirectionalPair () { assert this.isBidirectional(); return WNetElementRegistry.getLightpathRequest(getNe().getBidirectionalPair()); }
 
 	/**
 	 * Sets the given lightpath request as the bidirectional pair of this request
@@ -69,7 +69,7 @@ public class WLightpathRequest extends WAbstractNetworkElement
 	/** Returns the set of lightpaths realizing this request. Typically one in unprotected ligtpaths, two in 1+1 settings
 	 * @return see above
 	 */
-	public List<WLightpath> getLightpaths () { return getNe().getRoutes().stream().map(r->new WLightpath(r)).collect(Collectors.toList()); }
+	public List<WLightpath> getLightpaths () { return getNe().getRoutes().stream().map(r->WNetElementRegistry.getLightpath(r)).collect(Collectors.toList()); }
 	/** Returns the line rate of the lighptath request in Gbps
 	 * @return see above
 	 */
@@ -159,7 +159,7 @@ public class WLightpathRequest extends WAbstractNetworkElement
 		if (numRoutesAlready == 1 && !this.isToBe11Protected()) throw new Net2PlanException ("Already one lightpath");
 		if (numRoutesAlready == 1 && !isBackupRoute) throw new Net2PlanException ("Not a backup lightpath");
 		if (numRoutesAlready == 0 && isBackupRoute) throw new Net2PlanException ("Not a main lightpath yet");
-		final WLightpath lp12 = new WLightpath(getNetPlan().addRoute(getNe(), 
+		final WLightpath lp12 = WNetElementRegistry.getLightpath(getNetPlan().addRoute(getNe(), 
 				this.getLineRateGbps(), 
 				occupiedSlots.size(), sequenceFibers.stream().map(ee->ee.getNe()).collect(Collectors.toList()), 
 				null));
@@ -187,7 +187,7 @@ public class WLightpathRequest extends WAbstractNetworkElement
 	/** Gets the coupled IP links, or raises an exception if none
 	 * @return see above
 	 */
-	public WIpLink getCoupledIpLink () { if (!isCoupledToIpLink()) throw new Net2PlanException ("Not coupled"); return new WIpLink(getNe().getCoupledLink()); }
+	public WIpLink getCoupledIpLink () { if (!isCoupledToIpLink()) throw new Net2PlanException ("Not coupled"); return WNetElementRegistry.getIpLink(getNe().getCoupledLink()); }
 
 	
 	void updateNetPlanObjectAndPropagateUpwards ()
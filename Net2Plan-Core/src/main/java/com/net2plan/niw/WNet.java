@@ -109,12 +109,12 @@ public class WNet extends WAbstractNetworkElement
 			if (!lpr.hasLightpathsAssigned()) continue;
 			if (!lpr.is11Protected())
 			{
-				final WLightpath lp = getLightpaths().get(0);
+				final WLightpath lp = lpr.getLightpaths().get(0);
 				lp.getNe().setCarriedTraffic(lp.isUp()? lpr.getLineRateGbps() : 0.0 , null);
 			}
 			else
 			{
-				final List<WLightpath> lps = getLightpaths();
+				final List<WLightpath> lps = lpr.getLightpaths();
 				if (lps.get(0).isUp()) 
 				{ 
 					lps.get(0).getNe().setCarriedTraffic(lpr.getLineRateGbps(), null);   
@@ -192,120 +192,98 @@ public class WNet extends WAbstractNetworkElement
 	}
 
 	/**
-	 * Returns the list of defined shared risk groups, in increasing order according to its id
+	 * Returns the list of defined shared risk groups, in increasing order according to its id. The list is read-only, and is not updated if the design changes
 	 * @return see above
 	 */
 	public List<WSharedRiskGroup> getSrgs ()
 	{
-		return np.getSRGs().stream().map(n -> new WSharedRiskGroup(n)).collect(Collectors.toCollection(ArrayList::new));
+		return WNetElementRegistry.get(np).getElements(WTYPE.WSharedRiskGroup);
 	}
 	
 	/** Returns the number of nodes in the design, sa returned by getNodes
 	 * @return see above
 	 */
-	public int getNumberOfNodes () { return (int) np.getNodes().stream().map(n -> new WNode(n)).filter(n -> !n.isVirtualNode()).count (); }
+	public int getNumberOfNodes () { return getNodes().size(); }
 	
 	/**
-	 * Returns the list of network nodes, in increasing order according to its id
+	 * Returns the list of network nodes, in increasing order according to its id. The list is read-only, and is not updated if the design changes
 	 * @return see above
 	 */
 	public List<WNode> getNodes()
 	{
-		return np.getNodes().stream().map(n -> new WNode(n)).filter(n -> !n.isVirtualNode()).collect(Collectors.toCollection(ArrayList::new));
+		return WNetElementRegistry.get(np).getElements(WTYPE.WNode);
 	}
 
 	/**
-	 * Returns the list of fibers, in increasing order according to its id
+	 * Returns the list of fibers, in increasing order according to its id. The list is read-only, and is not updated if the design changes
 	 * @return see above
 	 */
 	public List<WFiber> getFibers()
 	{
-		if (!isWithWdmLayer()) return new ArrayList<> ();
-		return np.getLinks(getWdmLayer().get().getNe()).stream().map(n -> new WFiber(n)).collect(Collectors.toCollection(ArrayList::new));
+		return WNetElementRegistry.get(np).getElements(WTYPE.WFiber);
 	}
 
 	/**
-	 * Returns the list of lightpath requests, in increasing order according to its id
+	 * Returns the list of lightpath requests, in increasing order according to its id. The list is read-only, and is not updated if the design changes
 	 * @return see above
 	 */
 	public List<WLightpathRequest> getLightpathRequests()
 	{
-		if (!isWithWdmLayer()) return new ArrayList<> ();
-		return np.getDemands(getWdmLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isLightpathRequest(); }).
-				map(n -> new WLightpathRequest(n)).collect(Collectors.toCollection(ArrayList::new));
+		return WNetElementRegistry.get(np).getElements(WTYPE.WLightpathRequest);
 	}
 
 	/**
-	 * Returns the list of lightpaths, in increasing order according to its id
+	 * Returns the list of lightpaths, in increasing order according to its id. The list is read-only, and is not updated if the design changes
 	 * @return see above
 	 */
 	public List<WLightpath> getLightpaths()
 	{
-		if (!isWithWdmLayer()) return new ArrayList<> ();
-		return np.getRoutes(getWdmLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isLightpath(); }).
-				map(n -> new WLightpath(n)).collect(Collectors.toCollection(ArrayList::new));
+		return WNetElementRegistry.get(np).getElements(WTYPE.WLightpath);
 	}
 
 	/**
-	 * Returns the list of IP links, in increasing order according to its id
+	 * Returns the list of IP links, in increasing order according to its id. The list is read-only, and is not updated if the design changes
 	 * @return see above
 	 */
 	public List<WIpLink> getIpLinks()
 	{
-		if (!isWithIpLayer ()) return new ArrayList<> ();
-		return np.getLinks(getIpLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isIpLink(); }).
-				map(n -> new WIpLink(n)).filter(e -> !e.isVirtualLink()).collect(Collectors.toCollection(ArrayList::new));
+		return WNetElementRegistry.get(np).getElements(WTYPE.WIpLink);
 	}
 
 	/**
-	 * Returns the list of service chain requests, in increasing order according to its id
+	 * Returns the list of service chain requests, in increasing order according to its id. The list is read-only, and is not updated if the design changes
 	 * @return see above
 	 */
 	public List<WServiceChainRequest> getServiceChainRequests()
 	{
-		if (!isWithIpLayer ()) return new ArrayList<> ();
-		return np.getDemands(getIpLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isServiceChainRequest(); }).
-				map(n -> new WServiceChainRequest(n)).collect(Collectors.toCollection(ArrayList::new));
+		return WNetElementRegistry.get(np).getElements(WTYPE.WServiceChainRequest);
 	}
 
 	/**
-	 * Returns the list of IP unicast demands, in increasing order according to its id
+	 * Returns the list of IP unicast demands, in increasing order according to its id. The list is read-only, and is not updated if the design changes
 	 * @return see above
 	 */
 	public List<WIpUnicastDemand> getIpUnicastDemands ()
 	{
-		if (!isWithIpLayer ()) return new ArrayList<> ();
-		return np.getDemands(getIpLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isIpUnicastDemand(); }).
-				map(n -> new WIpUnicastDemand(n)).collect(Collectors.toCollection(ArrayList::new));
+		return WNetElementRegistry.get(np).getElements(WTYPE.WIpUnicastDemand);
 	}
 
 	/**
-	 * Returns the list of service chains, in increasing order according to its id
+	 * Returns the list of service chains, in increasing order according to its id. The list is read-only, and is not updated if the design changes
 	 * @return see above
 	 */
 	public List<WServiceChain> getServiceChains()
 	{
-		if (!isWithIpLayer ()) return new ArrayList<> ();
-		return np.getRoutes(getIpLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isServiceChain(); }).
-				map(n -> new WServiceChain(n)).collect(Collectors.toCollection(ArrayList::new));
+		return WNetElementRegistry.get(np).getElements(WTYPE.WServiceChain);
 	}
 
 	/**
-	 * Returns the list of IP source routed connections, in increasing order according to its id
+	 * Returns the list of IP source routed connections, in increasing order according to its id. The list is read-only, and is not updated if the design changes
 	 * @return see above
 	 */
 	public List<WIpSourceRoutedConnection> getIpSourceRoutedConnections()
 	{
-		if (!isWithIpLayer ()) return new ArrayList<> ();
-		return np.getRoutes(getIpLayer().get().getNe()).stream().
-				filter(d->{ WTYPE t = getWType(d).orElse(null); return t == null? false : t.isIpSourceRoutedConnection(); }).
-				map(n -> new WIpSourceRoutedConnection(n)).collect(Collectors.toCollection(ArrayList::new));
+		return WNetElementRegistry.get(np).getElements(WTYPE.WIpSourceRoutedConnection);
 	}
 
 	/**
@@ -364,10 +342,10 @@ public class WNet extends WAbstractNetworkElement
 		final Set<Node> nodes = getNe ().getTaggedNodes(WNetConstants.TAGNODE_INDICATIONVIRTUALORIGINNODE);
 		assert nodes.size() <= 1;
 		if (nodes.size() == 1)
-			return new WNode (nodes.iterator().next());
+			return WNetElementRegistry.getNode(nodes.iterator().next());
 		final Node n = np.addNode(0, 0, WNetConstants.WNODE_NAMEOFANYCASTORIGINNODE, null);
 		n.addTag(WNetConstants.TAGNODE_INDICATIONVIRTUALORIGINNODE);
-		return new WNode (n);
+		return WNetElementRegistry.getNode(n);
 	}
 
 	WNode getAnycastDestinationNode()
@@ -375,10 +353,10 @@ public class WNet extends WAbstractNetworkElement
 		final Set<Node> nodes = getNe ().getTaggedNodes(WNetConstants.TAGNODE_INDICATIONVIRTUALDESTINATIONNODE);
 		assert nodes.size() <= 1;
 		if (nodes.size() == 1)
-			return new WNode (nodes.iterator().next());
+			return WNetElementRegistry.getNode(nodes.iterator().next());
 		final Node n = np.addNode(0, 0, WNetConstants.WNODE_NAMEOFANYCASTDESTINATION, null);
 		n.addTag(WNetConstants.TAGNODE_INDICATIONVIRTUALDESTINATIONNODE);
-		return new WNode (n);
+		return WNetElementRegistry.getNode(n);
 	}
 
 	public String getUnusedValidNodeName () 
@@ -405,7 +383,7 @@ public class WNet extends WAbstractNetworkElement
 		if (name == null) ex("Names cannot be null");
 		if (name.contains(WNetConstants.LISTSEPARATORANDINVALIDNAMECHARACTER)) throw new Net2PlanException("Names cannot contain the character: " + WNetConstants.LISTSEPARATORANDINVALIDNAMECHARACTER);
 		if (getNodes().stream().anyMatch(n -> n.getName().equals(name))) ex("Names cannot be repeated");
-		final WNode n = new WNode(getNetPlan().addNode(xCoord, yCoord, name, null));
+		final WNode n = WNetElementRegistry.getNode(getNetPlan().addNode(xCoord, yCoord, name, null));
 		n.setType(type);
 		
 		/* Add the virtual links from the anycast nodes to this node */ 
@@ -440,15 +418,15 @@ public class WNet extends WAbstractNetworkElement
 		if (isBidirectional)
 		{
 			final Pair<Link, Link> ee = getNetPlan().addLinkBidirectional(a.getNe(), b.getNe(), opticalSlots.size(), lengthInKm, WNetConstants.WFIBER_DEFAULT_PROPAGATIONSPEEDKMPERSEC, null, getWdmLayer().get().getNe());
-			WFiber fiber1 = new WFiber(ee.getFirst());
+			WFiber fiber1 = WNetElementRegistry.getFiber(ee.getFirst());
 			fiber1.setValidOpticalSlotRanges(validOpticalSlotRanges);
-			WFiber fiber2 = new WFiber(ee.getSecond());
+			WFiber fiber2 = WNetElementRegistry.getFiber(ee.getSecond());
 			fiber2.setValidOpticalSlotRanges(validOpticalSlotRanges);
 			return Pair.of(fiber1, fiber2);
 		} else
 		{
 			final Link ee = getNetPlan().addLink(a.getNe(), b.getNe(), opticalSlots.size(), lengthInKm, WNetConstants.WFIBER_DEFAULT_PROPAGATIONSPEEDKMPERSEC, null, getWdmLayer().get().getNe());
-			WFiber fiber = new WFiber(ee);
+			WFiber fiber = WNetElementRegistry.getFiber(ee);
 			fiber.setValidOpticalSlotRanges(validOpticalSlotRanges);
 			return Pair.of(fiber, null);
 		}
@@ -466,7 +444,7 @@ public class WNet extends WAbstractNetworkElement
 	{
 		if (!isWithWdmLayer ()) throw new Net2PlanException ("WDM layer does not exist");
 		checkInThisWNet(a, b);
-		final WLightpathRequest lpReq = new WLightpathRequest(getNetPlan().addDemand(a.getNe(), b.getNe(), lineRateGbps, RoutingType.SOURCE_ROUTING, null, getWdmLayer().get().getNe()));
+		final WLightpathRequest lpReq = WNetElementRegistry.getLightpathRequest(getNetPlan().addDemand(a.getNe(), b.getNe(), lineRateGbps, RoutingType.SOURCE_ROUTING, null, getWdmLayer().get().getNe()));
 		lpReq.setIsToBe11Protected(isToBe11Protected);
 		return lpReq;
 	}
@@ -898,7 +876,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public SortedSet<WVnfInstance> getVnfInstances(String type)
 	{
-		return np.getResources(type).stream().map(r -> new WVnfInstance(r)).collect(Collectors.toCollection(TreeSet::new));
+		return np.getResources(type).stream().map(r -> (WVnfInstance) WNetElementRegistry.getWrapper(WTYPE.WVnfInstance, r)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/**
@@ -907,7 +885,7 @@ public class WNet extends WAbstractNetworkElement
 	 */
 	public SortedSet<WVnfInstance> getVnfInstances()
 	{
-		return np.getResources().stream().map(r -> new WVnfInstance(r)).filter(e -> !e.isBaseResourceNotAVnf()).collect(Collectors.toCollection(TreeSet::new));
+		return WNetElementRegistry.get(np).getVnfInstances();
 	}
 
 	/**
@@ -940,7 +918,7 @@ public class WNet extends WAbstractNetworkElement
 		final DoubleMatrix1D linkCost = DoubleFactory1D.dense.make(npLinks.size());
 		for (int cont = 0; cont < npLinks.size(); cont++)
 		{
-			final WIpLink e = new WIpLink(npLinks.get(cont));
+			final WIpLink e = WNetElementRegistry.getIpLink(npLinks.get(cont));
 			linkCost.set(cont, optionalCostMapOrElseLatency.isPresent() ? optionalCostMapOrElseLatency.get().get(e) : e.getWorstCasePropagationDelayInMs());
 		}
 		final Map<Resource, Double> resourceCost = new HashMap<>();
@@ -956,7 +934,7 @@ public class WNet extends WAbstractNetworkElement
 		final List<List<WAbstractNetworkElement>> res = new ArrayList<>(kShortest.size());
 		for (Pair<List<NetworkElement>, Double> npPath : kShortest)
 		{
-			final List<WAbstractNetworkElement> wpath = npPath.getFirst().stream().map(e -> e instanceof Link ? new WIpLink((Link) e) : new WVnfInstance((Resource) e)).collect(Collectors.toList());
+			final List<WAbstractNetworkElement> wpath = npPath.getFirst().stream().map(e -> e instanceof Link ? WNetElementRegistry.getIpLink((Link) e) : new WVnfInstance((Resource) e)).collect(Collectors.toList());
 			res.add(wpath);
 		}
 		return res;
@@ -983,7 +961,7 @@ public class WNet extends WAbstractNetworkElement
 		final Node np_b = b.getNe();
 		final Map<Link, Double> linkCostMap = optionalCostMapOrElseLatency.isPresent() ? optionalCostMapOrElseLatency.get().entrySet().stream().collect(Collectors.toMap(e -> e.getKey().getNe(), e -> e.getValue())) : null;
 		final List<List<Link>> kNpPaths = GraphUtils.getKLooplessShortestPaths(npNodes, npLinks, np_a, np_b, linkCostMap, k, -1, -1, -1, -1, -1, -1);
-		return kNpPaths.stream().map(l -> l.stream().map(e -> new WIpLink(e)).collect(Collectors.toList())).collect(Collectors.toList());
+		return kNpPaths.stream().map(l -> l.stream().map(e -> WNetElementRegistry.getIpLink(e)).collect(Collectors.toList())).collect(Collectors.toList());
 	}
 
 	/**
@@ -1009,14 +987,14 @@ public class WNet extends WAbstractNetworkElement
 		for (Link e : links)
 		{
 			final double cost;
-			if (optionalCostMapOrElseLatency.isPresent()) cost = optionalCostMapOrElseLatency.get().getOrDefault(new WFiber(e), e.getPropagationDelayInMs());
+			if (optionalCostMapOrElseLatency.isPresent()) cost = optionalCostMapOrElseLatency.get().getOrDefault(WNetElementRegistry.getFiber(e), e.getPropagationDelayInMs());
 			else cost = e.getPropagationDelayInMs();
 			linkCostMap.put(e, cost);
 		}
 		final List<List<Link>> npRes = GraphUtils.getKLooplessShortestPaths(nodes, links, a.getNe(), b.getNe(), linkCostMap, k, -1, -1, -1, -1, -1, -1);
 		final List<List<WFiber>> res = new ArrayList<>(npRes.size());
 		for (List<Link> npPath : npRes)
-			res.add(npPath.stream().map(e -> new WFiber(e)).collect(Collectors.toList()));
+			res.add(npPath.stream().map(e -> WNetElementRegistry.getFiber(e)).collect(Collectors.toList()));
 		return res;
 	}
 
@@ -1036,12 +1014,12 @@ public class WNet extends WAbstractNetworkElement
 		final SortedMap<Link,Double> costMap = new TreeMap<> ();
 		for (Link e : links) 
 			if (optionalCostMapOrElseLatency.isPresent()) 
-				costMap.put(e, optionalCostMapOrElseLatency.get().get(new WFiber(e)));
+				costMap.put(e, optionalCostMapOrElseLatency.get().get(WNetElementRegistry.getFiber(e)));
 			else
-				costMap.put(e, (new WFiber(e)).getPropagationDelayInMs());
+				costMap.put(e, (WNetElementRegistry.getFiber(e)).getPropagationDelayInMs());
 		final List<List<Link>> sps = GraphUtils.getTwoMaximumLinkAndNodeDisjointPaths(nodes, links, a.getNe(), b.getNe(), costMap);
 		final List<List<WFiber>> res = new ArrayList<> ();
-		for (List<Link> ee : sps) res.add(ee.stream().map(e->new WFiber(e)).collect(Collectors.toList()));
+		for (List<Link> ee : sps) res.add(ee.stream().map(e->WNetElementRegistry.getFiber(e)).collect(Collectors.toList()));
 		return res;
 	}
 
@@ -1138,13 +1116,13 @@ public class WNet extends WAbstractNetworkElement
 	{
 		if (!isWithIpLayer ()) return new TreeSet<> ();
 		final Set<Link> links = getNe().getNodePairLinks(a.getNe(), b.getNe(), false, getIpLayer().get().getNe());
-		return links.stream().map(e -> new WIpLink(e)).collect(Collectors.toCollection(TreeSet::new));
+		return links.stream().map(e -> WNetElementRegistry.getIpLink(e)).collect(Collectors.toCollection(TreeSet::new));
 	}
 	public SortedSet<WFiber> getNodePairFibers (WNode a, WNode b)
 	{
 		if (!isWithWdmLayer ()) return new TreeSet<> ();
 		final Set<Link> links = getNe().getNodePairLinks(a.getNe(), b.getNe(), false, getWdmLayer().get().getNe());
-		return links.stream().map(e -> new WFiber(e)).collect(Collectors.toCollection(TreeSet::new));
+		return links.stream().map(e -> WNetElementRegistry.getFiber(e)).collect(Collectors.toCollection(TreeSet::new));
 	}
 	
 	@Override
@@ -1187,8 +1165,8 @@ public class WNet extends WAbstractNetworkElement
 			assert isIpLayer || isWdmLayer;
 			if (isIpLayer)
 			{
-				if (new WNode (ee.getOriginNode()).isVirtualNode()) return Optional.empty();
-				if (new WNode (ee.getDestinationNode()).isVirtualNode()) return Optional.empty();
+				if (WNode.isVirtualNode(ee.getOriginNode())) return Optional.empty();
+				if (WNode.isVirtualNode(ee.getDestinationNode())) return Optional.empty();
 				return Optional.of (WTYPE.WIpLink);
 			}
 			if (isWdmLayer) return Optional.of (WTYPE.WFiber);
@@ -1205,9 +1183,9 @@ public class WNet extends WAbstractNetworkElement
 				assert ee.hasTag(WNetConstants.TAGDEMANDIP_INDICATIONISBUNDLE);
 				return Optional.empty(); // bundles
 			}
-			if (isIpLayer && new WNode (ee.getIngressNode()).isRegularNode())
+			if (isIpLayer && !WNode.isVirtualNode(ee.getIngressNode()))
 				return Optional.of (WTYPE.WIpUnicastDemand);
-			if (isIpLayer && new WNode (ee.getIngressNode()).isVirtualNode())
+			if (isIpLayer && WNode.isVirtualNode(ee.getIngressNode()))
 				return Optional.of (WTYPE.WServiceChainRequest);
 			if (isWdmLayer) return Optional.of (WTYPE.WLightpathRequest);
 		}
@@ -1220,13 +1198,13 @@ public class WNet extends WAbstractNetworkElement
 			if (isIpLayer)
 			{
 				if (ee.getDemand().isCoupled()) return Optional.empty();
-				if (isIpLayer && new WNode (ee.getIngressNode()).isRegularNode())
+				if (isIpLayer && !WNode.isVirtualNode(ee.getIngressNode()))
 				{
-					assert new WNode (ee.getEgressNode()).isRegularNode();
+					assert !WNode.isVirtualNode(ee.getEgressNode());
 					return Optional.of (WTYPE.WIpSourceRoutedConnection);
 				}
-				assert new WNode (ee.getIngressNode()).isVirtualNode();
-				assert new WNode (ee.getEgressNode()).isVirtualNode();
+				assert WNode.isVirtualNode(ee.getIngressNode());
+				assert WNode.isVirtualNode(ee.getEgressNode());
 				return Optional.of (WTYPE.WServiceChain);
 			}
 			if (isWdmLayer) return Optional.of (WTYPE.WLightpath);
@@ -1252,81 +1230,15 @@ public class WNet extends WAbstractNetworkElement
 	
 	public Optional<WAbstractNetworkElement> getWElement (NetworkElement e)
 	{
-		if (e.getNetPlan() != this.getNe()) return Optional.empty();
-		
-		if (e == getNe ()) return Optional.of (this);
-		
-		if (e instanceof Node) return Optional.of (new WNode ((Node) e));
-		if (e instanceof Link)
-		{
-			final Link ee = (Link) e;
-			final boolean isIpLayer = ee.getLayer().getName ().equals(WNetConstants.ipLayerName);
-			final boolean isWdmLayer = ee.getLayer().getName ().equals(WNetConstants.wdmLayerName);
-			assert isIpLayer || isWdmLayer;
-			if (isIpLayer)
-			{
-				if (new WNode (ee.getOriginNode()).isVirtualNode()) return Optional.empty();
-				if (new WNode (ee.getDestinationNode()).isVirtualNode()) return Optional.empty();
-				return Optional.of (new WIpLink(ee));
-			}
-			if (isWdmLayer) return Optional.of (new WFiber(ee));
-		}
-		if (e instanceof Demand)
+		final WTYPE type = getWType(e).orElse(null);
+		if (type == null) return Optional.empty();
+		switch (type)
 		{
-			final Demand ee = (Demand) e;
-			final boolean isIpLayer = ee.getLayer().getName ().equals(WNetConstants.ipLayerName);
-			final boolean isWdmLayer = ee.getLayer().getName ().equals(WNetConstants.wdmLayerName);
-			assert isIpLayer || isWdmLayer;
-			if (isIpLayer && ee.isCoupled())
-			{
-				assert ee.isCoupledInSameLayer();
-				assert ee.hasTag(WNetConstants.TAGDEMANDIP_INDICATIONISBUNDLE);
-				return Optional.empty(); // bundles
-			}
-			if (isIpLayer && new WNode (ee.getIngressNode()).isRegularNode())
-				return Optional.of (new WIpUnicastDemand(ee));
-			if (isIpLayer && new WNode (ee.getIngressNode()).isVirtualNode())
-				return Optional.of (new WServiceChainRequest(ee));
-			if (isWdmLayer) return Optional.of (new WLightpathRequest(ee));
+			case WNet: return Optional.of (this);
+			case WLayerWdm: return Optional.of (new WLayerWdm((NetworkLayer) e));
+			case WLayerIp: return Optional.of (new WLayerIp((NetworkLayer) e));
+			default: return Optional.of (WNetElementRegistry.get(getNe()).getElement(type, e));
 		}
-		if (e instanceof Route)
-		{
-			final Route ee = (Route) e;
-			final boolean isIpLayer = ee.getLayer().getName ().equals(WNetConstants.ipLayerName);
-			final boolean isWdmLayer = ee.getLayer().getName ().equals(WNetConstants.wdmLayerName);
-			assert isIpLayer || isWdmLayer;
-			if (isIpLayer)
-			{
-				if (ee.getDemand().isCoupled()) return Optional.empty();
-				if (isIpLayer && new WNode (ee.getIngressNode()).isRegularNode())
-				{
-					assert new WNode (ee.getEgressNode()).isRegularNode();
-					return Optional.of (new WIpSourceRoutedConnection(ee));
-				}
-				assert new WNode (ee.getIngressNode()).isVirtualNode();
-				assert new WNode (ee.getEgressNode()).isVirtualNode();
-				return Optional.of (new WServiceChain(ee));
-			}
-			if (isWdmLayer) return Optional.of (new WLightpath(ee));
-		}
-		if (e instanceof Resource)
-		{
-			final Resource ee = (Resource) e;
-			return Optional.of (new WVnfInstance(ee));
-		}
-		if (e instanceof SharedRiskGroup)
-		{
-			final SharedRiskGroup ee = (SharedRiskGroup) e;
-			return Optional.of (new WSharedRiskGroup(ee));
-		}
-		if (e instanceof NetworkLayer)
-		{
-			final NetworkLayer ee = (NetworkLayer) e;
-			if (ee.getName().equals(WNetConstants.wdmLayerName)) return Optional.of(new WLayerWdm(ee));
-			if (ee.getName().equals(WNetConstants.ipLayerName)) return Optional.of(new WLayerIp(ee));
-		}
-		
-		return Optional.empty();
 	}
 	
 	/** Returns the node element with the given id, if any
@@ -1337,7 +1249,7 @@ public class WNet extends WAbstractNetworkElement
 	{
 		final Node n = getNe().getNodeFromId(id);
 		if (n == null) return Optional.empty();
-		if (getWType(n).equals (Optional.of(WTYPE.WNode))) return Optional.of(new WNode (n));
+		if (getWType(n).equals (Optional.of(WTYPE.WNode))) return Optional.of(WNetElementRegistry.getNode(n));
 		return Optional.empty();
 	}
 	
@@ -1349,7 +1261,7 @@ public class WNet extends WAbstractNetworkElement
 	{
 		final Link n = getNe().getLinkFromId(id);
 		if (n == null) return Optional.empty();
-		if (getWType(n).equals (Optional.of(WTYPE.WFiber))) return Optional.of(new WFiber (n));
+		if (getWType(n).equals (Optional.of(WTYPE.WFiber))) return Optional.of(WNetElementRegistry.getFiber(n));
 		return Optional.empty();
 	}
 	
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * This program and the accompanying materials are made available under the terms of the MIT License available at
+ * https://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package com.net2plan.niw;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkElement;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Resource;
+import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.interfaces.networkDesign.SharedRiskGroup;
+import com.net2plan.internal.Constants.NetworkElementType;
+import com.net2plan.niw.WNetConstants.WTYPE;
+
+/**
+ * Registry of the NIW wrappers of the elements of a NetPlan design, attached to it, so all the WNet objects of the same design share it. It keeps one wrapper per
+ * underlying element and type, and the list of the elements of each type, as returned by the WNet methods (e.g. the lightpaths). The lists are read-only, and
+ * are rebuilt only when the number of structural changes in the NetPlan element types they depend on changes (e.g. a route is added or removed, for the
+ * lightpaths), reusing the wrappers of the previous ones. A list already returned is never modified, so it can be traversed while the design is changed.
+ */
+final class WNetElementRegistry
+{
+	private final NetPlan np;
+	private final Map<WTYPE,Map<NetworkElement,WAbstractNetworkElement>> wrapperPerElementPerType = new EnumMap<> (WTYPE.class);
+	private final Map<WTYPE,List<WAbstractNetworkElement>> elementsPerType = new EnumMap<> (WTYPE.class);
+	private final Map<WTYPE,Long> numStructuralChangesWhenComputedPerType = new EnumMap<> (WTYPE.class);
+	private SortedSet<WVnfInstance> vnfInstances = null;
+	private long numStructuralChangesWhenComputedVnfInstances = -1;
+
+	private WNetElementRegistry (NetPlan np)
+	{
+		this.np = np;
+		for (WTYPE type : WTYPE.values()) wrapperPerElementPerType.put(type, new HashMap<> ());
+	}
+
+	/** Returns the registry of the given design, creating it if it does not exist
+	 * @param np the design
+	 * @return see above
+	 */
+	static WNetElementRegistry get (NetPlan np)
+	{
+		WNetElementRegistry res = (WNetElementRegistry) np.getLibraryCache(WNetElementRegistry.class);
+		if (res == null) { res = new WNetElementRegistry(np); np.setLibraryCache(WNetElementRegistry.class, res); }
+		return res;
+	}
+
+	/** Returns the wrapper of the given element as an object of the given type, from the registry of its design. If the element was removed, a new wrapper is returned
+	 * @param type the type
+	 * @param e the element
+	 * @return see above
+	 */
+	static WAbstractNetworkElement getWrapper (WTYPE type , NetworkElement e)
+	{
+		final NetPlan np = e.getNetPlan();
+		return np == null? createWrapper(type, e) : get(np).getElement(type, e);
+	}
+
+	static WNode getNode (Node n) { return (WNode) getWrapper(WTYPE.WNode, n); }
+	static WFiber getFiber (Link e) { return (WFiber) getWrapper(WTYPE.WFiber, e); }
+	static WIpLink getIpLink (Link e) { return (WIpLink) getWrapper(WTYPE.WIpLink, e); }
+	static WLightpathRequest getLightpathRequest (Demand d) { return (WLightpathRequest) getWrapper(WTYPE.WLightpathRequest, d); }
+	static WLightpath getLightpath (Route r) { return (WLightpath) getWrapper(WTYPE.WLightpath, r); }
+
+	/** Returns the wrapper of the given element, as an object of the given type, creating it the first time
+	 * @param type the type
+	 * @param e the element
+	 * @return see above
+	 */
+	synchronized WAbstractNetworkElement getElement (WTYPE type , NetworkElement e)
+	{
+		final Map<NetworkElement,WAbstractNetworkElement> wrapperPerElement = wrapperPerElementPerType.get(type);
+		WAbstractNetworkElement res = wrapperPerElement.get(e);
+		if (res == null) { res = createWrapper(type, e); wrapperPerElement.put(e, res); }
+		return res;
+	}
+
+	/** Returns the read-only list of the elements of the given type, in increasing order of the id of the underlying element. For the nodes, only the
+	 * regular nodes are included, and for the VNF instances, only the resources which are not base resources
+	 * @param type the type
+	 * @return see above
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized <T extends WAbstractNetworkElement> List<T> getElements (WTYPE type)
+	{
+		final long numStructuralChanges = getNumberOfStructuralChanges(type);
+		final Long numStructuralChangesWhenComputed = numStructuralChangesWhenComputedPerType.get(type);
+		if (numStructuralChangesWhenComputed == null || numStructuralChangesWhenComputed != numStructuralChanges)
+		{
+			final WNet net = new WNet(np);
+			final Map<NetworkElement,WAbstractNetworkElement> previousWrappers = wrapperPerElementPerType.get(type);
+			final Map<NetworkElement,WAbstractNetworkElement> wrapperPerElement = new HashMap<> ();
+			final List<WAbstractNetworkElement> elements = new ArrayList<> ();
+			for (NetworkElement e : getCandidateElements(type))
+			{
+				if (net.getWType(e).orElse(null) != type) continue;
+				WAbstractNetworkElement w = previousWrappers.get(e);
+				if (w == null) w = createWrapper(type, e);
+				wrapperPerElement.put(e, w);
+				if (type == WTYPE.WNode && ((WNode) w).isVirtualNode()) continue;
+				if (type == WTYPE.WVnfInstance && ((WVnfInstance) w).isBaseResourceNotAVnf()) continue;
+				elements.add(w);
+			}
+			wrapperPerElementPerType.put(type, wrapperPerElement);
+			elementsPerType.put(type, Collections.unmodifiableList(elements));
+			numStructuralChangesWhenComputedPerType.put(type, numStructuralChanges);
+		}
+		return (List<T>) elementsPerType.get(type);
+	}
+
+	/** Returns the read-only set of VNF instances, as in {@link #getElements(WTYPE)}
+	 * @return see above
+	 */
+	synchronized SortedSet<WVnfInstance> getVnfInstances ()
+	{
+		final List<WVnfInstance> elements = getElements(WTYPE.WVnfInstance);
+		if (numStructuralChangesWhenComputedVnfInstances != numStructuralChangesWhenComputedPerType.get(WTYPE.WVnfInstance))
+		{
+			vnfInstances = Collections.unmodifiableSortedSet(new TreeSet<> (elements));
+			numStructuralChangesWhenComputedVnfInstances = numStructuralChangesWhenComputedPerType.get(WTYPE.WVnfInstance);
+		}
+		return vnfInstances;
+	}
+
+	/* The list of each type must be recomputed when the elements of these types are added, removed or reclassified. The nodes tags say if they are virtual
+	 * nodes, the ones of the IP links, and demands and routes of service chains. The coupling of the demands says if they are bundles of IP links */
+	private long getNumberOfStructuralChanges (WTYPE type)
+	{
+		final long layers = np.getNumberOfStructuralChanges(NetworkElementType.LAYER);
+		switch (type)
+		{
+			case WNode: return np.getNumberOfStructuralChanges(NetworkElementType.NODE);
+			case WFiber: return layers + np.getNumberOfStructuralChanges(NetworkElementType.LINK);
+			case WIpLink: return layers + np.getNumberOfStructuralChanges(NetworkElementType.LINK) + np.getNumberOfStructuralChanges(NetworkElementType.NODE);
+			case WLightpathRequest: return layers + np.getNumberOfStructuralChanges(NetworkElementType.DEMAND);
+			case WLightpath: return layers + np.getNumberOfStructuralChanges(NetworkElementType.ROUTE);
+			case WIpUnicastDemand:
+			case WServiceChainRequest: return layers + np.getNumberOfStructuralChanges(NetworkElementType.DEMAND) + np.getNumberOfStructuralChanges(NetworkElementType.NODE);
+			case WIpSourceRoutedConnection:
+			case WServiceChain: return layers + np.getNumberOfStructuralChanges(NetworkElementType.ROUTE) + np.getNumberOfStructuralChanges(NetworkElementType.DEMAND) + np.getNumberOfStructuralChanges(NetworkElementType.NODE);
+			case WVnfInstance: return np.getNumberOfStructuralChanges(NetworkElementType.RESOURCE);
+			case WSharedRiskGroup: return np.getNumberOfStructuralChanges(NetworkElementType.SRG);
+			default: throw new RuntimeException ("Bad");
+		}
+	}
+
+	private List<? extends NetworkElement> getCandidateElements (WTYPE type)
+	{
+		final NetworkLayer wdmLayer = getLayer(WNetConstants.wdmLayerName);
+		final NetworkLayer ipLayer = getLayer(WNetConstants.ipLayerName);
+		switch (type)
+		{
+			case WNode: return np.getNodes();
+			case WFiber: return wdmLayer == null? Collections.emptyList() : np.getLinks(wdmLayer);
+			case WLightpathRequest: return wdmLayer == null? Collections.emptyList() : np.getDemands(wdmLayer);
+			case WLightpath: return wdmLayer == null? Collections.emptyList() : np.getRoutes(wdmLayer);
+			case WIpLink: return ipLayer == null? Collections.emptyList() : np.getLinks(ipLayer);
+			case WIpUnicastDemand:
+			case WServiceChainRequest: return ipLayer == null? Collections.emptyList() : np.getDemands(ipLayer);
+			case WIpSourceRoutedConnection:
+			case WServiceChain: return ipLayer == null? Collections.emptyList() : np.getRoutes(ipLayer);
+			case WVnfInstance: return np.getResources();
+			case WSharedRiskGroup: return np.getSRGs();
+			default: throw new RuntimeException ("Bad");
+		}
+	}
+
+	private NetworkLayer getLayer (String name)
+	{
+		for (NetworkLayer layer : np.getNetworkLayers()) if (layer.getName().equals(name)) return layer;
+		return null;
+	}
+
+	private static WAbstractNetworkElement createWrapper (WTYPE type , NetworkElement e)
+	{
+		switch (type)
+		{
+			case WNode: return new WNode((Node) e);
+			case WFiber: return new WFiber((Link) e);
+			case WIpLink: return new WIpLink((Link) e);
+			case WLightpathRequest: return new WLightpathRequest((Demand) e);
+			case WIpUnicastDemand: return new WIpUnicastDemand((Demand) e);
+			case WServiceChainRequest: return new WServiceChainRequest((Demand) e);
+			case WLightpath: return new WLightpath((Route) e);
+			case WIpSourceRoutedConnection: return new WIpSourceRoutedConnection((Route) e);
+			case WServiceChain: return new WServiceChain((Route) e);
+			case WVnfInstance: return new WVnfInstance((Resource) e);
+			case WSharedRiskGroup: return new WSharedRiskGroup((SharedRiskGroup) e);
+			default: throw new RuntimeException ("Bad");
+		}
+	}
+}
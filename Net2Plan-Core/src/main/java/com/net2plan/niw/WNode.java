@@ -146,6 +146,12 @@ public class WNode extends WAbstractNetworkElement
 	}
 
 	public boolean isVirtualNode()
+	{
+		return isVirtualNode(n);
+	}
+
+	/* Used to classify the elements without creating their wrappers */
+	static boolean isVirtualNode(Node n)
 	{
 		return n.hasTag(WNetConstants.TAGNODE_INDICATIONVIRTUALORIGINNODE) || n.hasTag(WNetConstants.TAGNODE_INDICATIONVIRTUALDESTINATIONNODE);
 	}
@@ -516,7 +522,7 @@ public class WNode extends WAbstractNetworkElement
 		if (!getNet().isWithWdmLayer()) return new TreeSet<> ();
 		return n.getOutgoingLinks(getNet().getWdmLayer().get().getNe()).stream().
 				filter(d->{ WTYPE t = getNet().getWType(d).orElse(null); return t == null? false : t.isWFiber(); }).
-				map(ee -> new WFiber(ee)).collect(Collectors.toCollection(TreeSet::new));
+				map(ee -> WNetElementRegistry.getFiber(ee)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/**
@@ -528,7 +534,7 @@ public class WNode extends WAbstractNetworkElement
 		if (!getNet().isWithWdmLayer()) return new TreeSet<> ();
 		return n.getIncomingLinks(getNet().getWdmLayer().get().getNe()).stream().
 				filter(d->{ WTYPE t = getNet().getWType(d).orElse(null); return t == null? false : t.isWFiber(); }).
-				map(ee -> new WFiber(ee)).collect(Collectors.toCollection(TreeSet::new));
+				map(ee -> WNetElementRegistry.getFiber(ee)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/**
@@ -540,7 +546,7 @@ public class WNode extends WAbstractNetworkElement
 		if (!getNet().isWithIpLayer()) return new TreeSet<> ();
 		return n.getOutgoingLinks(getNet().getIpLayer().get().getNe()).stream().
 				filter(d->{ WTYPE t = getNet().getWType(d).orElse(null); return t == null? false : t.isIpLink(); }).
-				map(ee -> new WIpLink(ee)).collect(Collectors.toCollection(TreeSet::new));
+				map(ee -> WNetElementRegistry.getIpLink(ee)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/** Returns the IP connections, realizing IP unicast demands, that are initiated in this node 
@@ -575,7 +581,7 @@ public class WNode extends WAbstractNetworkElement
 		if (!getNet().isWithIpLayer()) return new TreeSet<> ();
 		return n.getIncomingLinks(getNet().getIpLayer().get().getNe()).stream().
 				filter(d->{ WTYPE t = getNet().getWType(d).orElse(null); return t == null? false : t.isIpLink(); }).
-				map(ee -> new WIpLink(ee)).collect(Collectors.toCollection(TreeSet::new));
+				map(ee -> WNetElementRegistry.getIpLink(ee)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/**
@@ -587,7 +593,7 @@ public class WNode extends WAbstractNetworkElement
 		if (!getNet().isWithWdmLayer()) return new TreeSet<> ();
 		return n.getOutgoingDemands(getNet().getWdmLayer().get().getNe()).stream().
 				filter(d->{ WTYPE t = getNet().getWType(d).orElse(null); return t == null? false : t.isLightpathRequest(); }).
-				map(ee -> new WLightpathRequest(ee)).collect(Collectors.toCollection(TreeSet::new));
+				map(ee -> WNetElementRegistry.getLightpathRequest(ee)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/**
@@ -618,7 +624,7 @@ public class WNode extends WAbstractNetworkElement
 		if (!getNet().isWithWdmLayer()) return new TreeSet<> ();
 		return n.getIncomingDemands(getNet().getWdmLayer().get().getNe()).stream().
 				filter(d->{ WTYPE t = getNet().getWType(d).orElse(null); return t == null? false : t.isLightpathRequest(); }).
-				map(ee -> new WLightpathRequest(ee)).collect(Collectors.toCollection(TreeSet::new));
+				map(ee -> WNetElementRegistry.getLightpathRequest(ee)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/**
@@ -630,7 +636,7 @@ public class WNode extends WAbstractNetworkElement
 		if (!getNet().isWithWdmLayer()) return new TreeSet<> ();
 		return n.getOutgoingRoutes(getNet().getWdmLayer().get().getNe()).stream().
 				filter(d->{ WTYPE t = getNet().getWType(d).orElse(null); return t == null? false : t.isLightpath(); }).
-				map(ee -> new WLightpath(ee)).collect(Collectors.toCollection(TreeSet::new));
+				map(ee -> WNetElementRegistry.getLightpath(ee)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/**
@@ -642,7 +648,7 @@ public class WNode extends WAbstractNetworkElement
 		if (!getNet().isWithWdmLayer()) return new TreeSet<> ();
 		return n.getAssociatedRoutes(getNet().getWdmLayer().get().getNe()).stream().
 				filter(d->{ WTYPE t = getNet().getWType(d).orElse(null); return t == null? false : t.isLightpath(); }).
-				map(ee -> new WLightpath(ee)).collect(Collectors.toCollection(TreeSet::new));
+				map(ee -> WNetElementRegistry.getLightpath(ee)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/**
@@ -654,7 +660,7 @@ public class WNode extends WAbstractNetworkElement
 		if (!getNet().isWithWdmLayer()) return new TreeSet<> ();
 		return n.getAssociatedRoutes(getNet().getWdmLayer().get().getNe()).stream().
 				filter(d->{ WTYPE t = getNet().getWType(d).orElse(null); return t == null? false : t.isLightpath(); }).
-				map(ee -> new WLightpath(ee)).filter(lp->lp.getNodesWhereThisLightpathIsExpressOpticallySwitched().contains(this)).collect(Collectors.toCollection(TreeSet::new));
+				map(ee -> WNetElementRegistry.getLightpath(ee)).filter(lp->lp.getNodesWhereThisLightpathIsExpressOpticallySwitched().contains(this)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	
@@ -667,7 +673,7 @@ public class WNode extends WAbstractNetworkElement
 		if (!getNet().isWithWdmLayer()) return new TreeSet<> ();
 		return n.getIncomingRoutes(getNet().getWdmLayer().get().getNe()).stream().
 				filter(d->{ WTYPE t = getNet().getWType(d).orElse(null); return t == null? false : t.isLightpath(); }).
-				map(ee -> new WLightpath(ee)).collect(Collectors.toCollection(TreeSet::new));
+				map(ee -> WNetElementRegistry.getLightpath(ee)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/**
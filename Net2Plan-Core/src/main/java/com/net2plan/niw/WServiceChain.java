@@ -53,7 +53,7 @@ public class WServiceChain extends WAbstractNetworkElement
 	{
 		return r.getSeqLinks().stream().
 				filter(ee->getNet().getWElement(ee).equals(Optional.of(WTYPE.WIpLink))).
-				map(ee->new WIpLink (ee)).filter(e->!e.isVirtualLink()).collect(Collectors.toCollection(ArrayList::new));
+				map(ee->WNetElementRegistry.getIpLink(ee)).filter(e->!e.isVirtualLink()).collect(Collectors.toCollection(ArrayList::new));
 	}
 	/** Returns the sequence of traversed VNF instances, filtering out any IP link traversed
 	 * @return see above
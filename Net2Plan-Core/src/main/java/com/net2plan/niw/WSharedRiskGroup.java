@@ -40,7 +40,7 @@ public class WSharedRiskGroup extends WAbstractNetworkElement
 	 */
 	public SortedSet<WNode> getFailingNodes () 
 	{
-		return getNe().getNodes().stream().map(n->new WNode(n)).filter(n->!n.isVirtualNode()).collect(Collectors.toCollection(TreeSet::new));
+		return getNe().getNodes().stream().map(n->WNetElementRegistry.getNode(n)).filter(n->!n.isVirtualNode()).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/** Returns the fibers associated to this SRG
@@ -49,7 +49,7 @@ public class WSharedRiskGroup extends WAbstractNetworkElement
 	public SortedSet<WFiber> getFailingFibers () 
 	{
 		if (!getNet().isWithWdmLayer()) return new TreeSet<> ();
-		return getNe().getLinks(getNet().getWdmNpLayer().get()).stream().map(n->new WFiber(n)).collect(Collectors.toCollection(TreeSet::new));
+		return getNe().getLinks(getNet().getWdmNpLayer().get()).stream().map(n->WNetElementRegistry.getFiber(n)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/** Returns the IP links associated to this SRG
@@ -58,7 +58,7 @@ public class WSharedRiskGroup extends WAbstractNetworkElement
 	public SortedSet<WIpLink> getFailingIpLinks () 
 	{
 		if (!getNet().isWithIpLayer()) return new TreeSet<> ();
-		return getNe().getLinks(getNet().getIpNpLayer().get()).stream().map(n->new WIpLink(n)).collect(Collectors.toCollection(TreeSet::new));
+		return getNe().getLinks(getNet().getIpNpLayer().get()).stream().map(n->WNetElementRegistry.getIpLink(n)).collect(Collectors.toCollection(TreeSet::new));
 	}
 
 	/** Adds a failing node to the SRG 
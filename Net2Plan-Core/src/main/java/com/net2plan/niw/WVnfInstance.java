@@ -44,7 +44,7 @@ public class WVnfInstance extends WAbstractNetworkElement
 	/** Returns the hosting node of the VNF instance
 	 * @return see above
 	 */
-	public WNode getHostingNode () { return new WNode (r.getHostNode().get()); }
+	public WNode getHostingNode () { return WNetElementRegistry.getNode(r.getHostNode().get()); }
 	
 	/** Returns the VNF type of this instance
 	 * @return see above
@@ -1170,7 +1170,7 @@ public class StringUtils
     public static String createEscapedString_asStringList (Collection<String> vals)
     {
         if (vals.isEmpty()) return "";
-        final StringBuffer st = new StringBuffer ();
+        final StringBuilder st = new StringBuilder ();
         boolean firstTime = true;
         for (String val : vals)
         {
@@ -1200,16 +1200,18 @@ public class StringUtils
 
     public static String escapedStringToWrite (String s)
     {
-        String res = s.replaceAll(STRINGESCAPECHARACTER , STRINGESCAPECHARACTER + AFTERSCAPE_ESCAPE);
-        res = res.replaceAll(MATRIX_COLSEPARATOR , STRINGESCAPECHARACTER + AFTERSCAPE_COLSEP);
-        res = res.replaceAll(MATRIX_ROWSEPARATOR , STRINGESCAPECHARACTER + AFTERSCAPE_ROWSEP);
+        if (!s.contains(STRINGESCAPECHARACTER) && !s.contains(MATRIX_COLSEPARATOR) && !s.contains(MATRIX_ROWSEPARATOR)) return s;
+        String res = s.replace(STRINGESCAPECHARACTER , STRINGESCAPECHARACTER + AFTERSCAPE_ESCAPE);
+        res = res.replace(MATRIX_COLSEPARATOR , STRINGESCAPECHARACTER + AFTERSCAPE_COLSEP);
+        res = res.replace(MATRIX_ROWSEPARATOR , STRINGESCAPECHARACTER + AFTERSCAPE_ROWSEP);
         return res;
     }
     public static String unescapedStringRead (String s)
     {
-        String res = s.replaceAll(STRINGESCAPECHARACTER + AFTERSCAPE_COLSEP, MATRIX_COLSEPARATOR);
-        res = res.replaceAll(STRINGESCAPECHARACTER + AFTERSCAPE_ROWSEP, MATRIX_ROWSEPARATOR);
-        res = res.replaceAll(STRINGESCAPECHARACTER + AFTERSCAPE_ESCAPE, STRINGESCAPECHARACTER);
+        if (!s.contains(STRINGESCAPECHARACTER)) return s;
+        String res = s.replace(STRINGESCAPECHARACTER + AFTERSCAPE_COLSEP, MATRIX_COLSEPARATOR);
+        res = res.replace(STRINGESCAPECHARACTER + AFTERSCAPE_ROWSEP, MATRIX_ROWSEPARATOR);
+        res = res.replace(STRINGESCAPECHARACTER + AFTERSCAPE_ESCAPE, STRINGESCAPECHARACTER);
         return res;
     }
 
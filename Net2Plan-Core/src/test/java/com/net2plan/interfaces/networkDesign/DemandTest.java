@@ -158,10 +158,37 @@ public class DemandTest
 		}
 
 	}
-	
-	
+
+	@Test
+	public void testHopByHopRoutingSameEgressNode ()
+	{
+		final Demand hbh13 = np.addDemand(n1 , n3 , 4 , RoutingType.HOP_BY_HOP_ROUTING , null , lowerLayer);
+		final Demand hbh23 = np.addDemand(n2 , n3 , 1 , RoutingType.HOP_BY_HOP_ROUTING , null , lowerLayer);
+		final List<Demand> demands = Arrays.asList(hbh13 , hbh13 , hbh13 , hbh23 , hbh23 , hbh23);
+		final List<Link> links = Arrays.asList(link12 , link13 , link23 , link12 , link13 , link23);
+		np.setForwardingRules(demands , links , Arrays.asList(0.5 , 0.5 , 1.0 , 0.5 , 0.5 , 1.0) , true);
+		assertEquals (hbh13.getCarriedTraffic() , 4 , 1e-8);
+		assertEquals (hbh23.getCarriedTraffic() , 1 , 1e-8);
+		assertEquals (hbh13.getOccupiedCapacity(link12) , 2 , 1e-8);
+		assertEquals (hbh13.getOccupiedCapacity(link13) , 2 , 1e-8);
+		assertEquals (hbh13.getOccupiedCapacity(link23) , 2 , 1e-8);
+		assertEquals (hbh23.getOccupiedCapacity(link12) , 0 , 1e-8);
+		assertEquals (hbh23.getOccupiedCapacity(link23) , 1 , 1e-8);
+		assertEquals (hbh13.getRoutingCycleType() , RoutingCycleType.LOOPLESS);
+		assertEquals (hbh13.getWorstCaseLengthInKm() , link12.getLengthInKm() + link23.getLengthInKm() , 1e-8);
+		assertEquals (hbh13.getWorstCasePropagationTimeInMs() , link12.getPropagationDelayInMs() + link23.getPropagationDelayInMs() , 1e-8);
+		assertEquals (hbh23.getWorstCaseLengthInKm() , link23.getLengthInKm() , 1e-8);
+
+		np.setLinksAndNodesFailureState(null , Arrays.asList(link13) , null , null);
+		assertEquals (hbh13.getCarriedTraffic() , 2 , 1e-8);
+		assertEquals (hbh13.getOccupiedCapacity(link23) , 2 , 1e-8);
+		np.setLinksAndNodesFailureState(Arrays.asList(link13) , null , null , null);
+		assertEquals (hbh13.getCarriedTraffic() , 4 , 1e-8);
+	}
+
+
 	@Test
-	public void testGetRoutes() 
+	public void testGetRoutes()
 	{
 		assertEquals (d13.getRoutes() , new HashSet<Route> (Arrays.asList(r123a , r123b , segm13)));
 		assertEquals (d12.getRoutes() , Collections.singleton(r12));
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ElementSortedMapTest
+{
+	private List<Node> nodes;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		final NetPlan np = new NetPlan ();
+		this.nodes = new ArrayList<> ();
+		for (int n = 0; n < 200 ; n ++) nodes.add(np.addNode(0 , 0 , "n" + n , null));
+	}
+
+	@Test
+	public void testSameBehaviourAsTreeMap()
+	{
+		final Random rng = new Random (1L);
+		for (int test = 0; test < 20 ; test ++)
+		{
+			final int numKeys = test < 10? 6 : nodes.size ();
+			final SortedMap<Node,Integer> map = new ElementSortedMap<> ();
+			final SortedMap<Node,Integer> treeMap = new TreeMap<> ();
+			final SortedSet<Node> set = new ElementSortedSet<> ();
+			final SortedSet<Node> treeSet = new TreeSet<> ();
+			for (int step = 0; step < 3000 ; step ++)
+			{
+				final Node n = nodes.get(rng.nextInt(numKeys));
+				final int op = rng.nextInt(10);
+				if (op < 5)
+				{
+					assertEquals (treeMap.put(n , step) , map.put(n , step));
+					assertEquals (treeSet.add(n) , set.add(n));
+				}
+				else if (op < 8)
+				{
+					assertEquals (treeMap.remove(n) , map.remove(n));
+					assertEquals (treeSet.remove(n) , set.remove(n));
+				}
+				else if (op == 8)
+				{
+					/* remove some elements while iterating */
+					final Iterator<Entry<Node,Integer>> it = map.entrySet().iterator();
+					while (it.hasNext ())
+					{
+						final Entry<Node,Integer> e = it.next ();
+						if (e.getValue() % 3 == 0) { it.remove(); treeMap.remove(e.getKey()); }
+						else e.setValue(e.getValue() + 1);
+					}
+					final Iterator<Node> itSet = set.iterator();
+					while (itSet.hasNext ())
+					{
+						final Node nSet = itSet.next ();
+						if (nSet.getIndex() % 2 == 0) { itSet.remove(); treeSet.remove(nSet); }
+					}
+					for (Entry<Node,Integer> e : treeMap.entrySet()) if (e.getValue() % 3 != 0) e.setValue(e.getValue() + 1);
+				}
+				else
+				{
+					assertEquals (treeMap.get(n) , map.get(n));
+					assertEquals (treeMap.containsKey(n) , map.containsKey(n));
+					assertEquals (treeSet.contains(n) , set.contains(n));
+				}
+				assertEquals (treeMap , map);
+				assertEquals (treeSet , set);
+				assertEquals (new ArrayList<> (treeMap.keySet()) , new ArrayList<> (map.keySet()));
+				assertEquals (new ArrayList<> (treeSet) , new ArrayList<> (set));
+				if (!treeSet.isEmpty ()) { assertTrue (treeSet.first() == set.first()); assertTrue (treeSet.last() == set.last()); }
+				if (!treeMap.isEmpty ()) { assertTrue (treeMap.firstKey() == map.firstKey()); assertTrue (treeMap.lastKey() == map.lastKey()); }
+			}
+		}
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testFirstKeyOfEmptyMap()
+	{
+		final SortedMap<Node,Integer> map = new ElementSortedMap<> ();
+		map.put(nodes.get(0) , 0);
+		map.remove(nodes.get(0));
+		map.firstKey();
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testLastOfEmptySet()
+	{
+		new ElementSortedSet<Node> ().last();
+	}
+
+	@Test
+	public void testConcurrentTraversals() throws Exception
+	{
+		/* keys added out of order, then several threads traversing the map at the same time */
+		final List<Node> shuffledNodes = new ArrayList<> (nodes);
+		Collections.shuffle(shuffledNodes , new Random (2L));
+		final SortedMap<Node,Integer> map = new ElementSortedMap<> ();
+		for (Node n : shuffledNodes) map.put(n , n.getIndex());
+		final SortedSet<Node> set = new ElementSortedSet<> (new HashSet<> (shuffledNodes));
+		final List<Node> expected = new ArrayList<> (new TreeSet<> (nodes));
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			final List<Future<Boolean>> results = new ArrayList<> ();
+			for (int task = 0; task < 100 ; task ++)
+				results.add(executor.submit(() -> expected.equals(new ArrayList<> (map.keySet())) && expected.equals(new ArrayList<> (set)) && (map.firstKey() == expected.get(0)) && (set.last() == expected.get(expected.size() - 1))));
+			for (Future<Boolean> result : results) assertTrue (result.get());
+		} finally { executor.shutdown(); }
+	}
+}
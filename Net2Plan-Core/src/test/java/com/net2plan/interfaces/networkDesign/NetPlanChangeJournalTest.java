@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.utils.Constants.RoutingType;
+
+public class NetPlanChangeJournalTest
+{
+	private NetPlan np;
+	private Node n1, n2, n3;
+	private Link e12, e23;
+	private Demand d13, hbh13;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		this.np = new NetPlan ();
+		this.n1 = np.addNode(0 , 0 , "n1" , null);
+		this.n2 = np.addNode(0 , 0 , "n2" , null);
+		this.n3 = np.addNode(0 , 0 , "n3" , null);
+		this.e12 = np.addLink(n1 , n2 , 100 , 100 , 200000 , null);
+		this.e23 = np.addLink(n2 , n3 , 100 , 100 , 200000 , null);
+		this.d13 = np.addDemand(n1 , n3 , 3 , RoutingType.SOURCE_ROUTING , null);
+		np.addRoute(d13 , 3 , 3 , Arrays.asList(e12 , e23) , null);
+		this.hbh13 = np.addDemand(n1 , n3 , 5 , RoutingType.HOP_BY_HOP_ROUTING , null);
+		hbh13.updateHopByHopRoutingToGivenFrs(new java.util.TreeMap<> (Collections.singletonMap(e12 , 1.0)));
+	}
+
+	@Test
+	public void testUndoRedoJournaledChanges()
+	{
+		final NetPlanChangeJournal journal = new NetPlanChangeJournal(np , 1000);
+		final NetPlan before = np.copy ();
+		n1.setAttribute("a" , "1");
+		e12.setAttribute("b" , 2.0);
+		e12.removeAttribute("b");
+		d13.setAttributeMap(Collections.singletonMap("c" , "3"));
+		n2.setName("newName");
+		np.setDescription("newDescription");
+		n3.addTag("tag");
+		n3.setXYPositionMap(new Point2D.Double(10 , 20));
+		e12.setCapacity(50);
+		e23.setLengthInKm(500);
+		e23.setPropagationSpeedInKmPerSecond(100000);
+		d13.setOfferedTraffic(7);
+		hbh13.setOfferedTraffic(9);
+		final Node n4 = np.addNode(5 , 5 , "n4" , null);
+		np.addLinkBidirectional(n3 , n4 , 10 , 10 , 200000 , null);
+		np.addDemandBidirectional(n1 , n4 , 1 , RoutingType.SOURCE_ROUTING , null);
+		np.setLinksAndNodesFailureState(null , Arrays.asList(e23) , null , Arrays.asList(n1));
+		final NetPlan after = np.copy ();
+
+		final NetPlanChangeJournal.Step step = journal.closeStep();
+		assertTrue (step.isInvertible());
+		assertNull (step.getNetPlanBeforeChanges());
+		assertFalse (journal.hasChanges());
+		step.undo(np);
+		assertTrue (np.isDeepCopy(before));
+		assertFalse (journal.hasChanges());
+		step.redo(np);
+		assertTrue (np.isDeepCopy(after));
+
+		/* the same step can be replayed in a copy of the design */
+		final NetPlan copy = before.copy ();
+		step.redo(copy);
+		assertTrue (copy.isDeepCopy(after));
+		step.undo(copy);
+		assertTrue (copy.isDeepCopy(before));
+	}
+
+	@Test
+	public void testNonJournaledChanges()
+	{
+		final NetPlanChangeJournal journal = new NetPlanChangeJournal(np , 1000);
+		final NetPlan before = np.copy ();
+		n1.setAttribute("a" , "1");
+		assertTrue (journal.hasChanges());
+		d13.getRoutes().first().remove();
+		n1.setAttribute("a" , "2");
+		final NetPlanChangeJournal.Step nonInvertibleStep = journal.closeStep();
+		assertFalse (nonInvertibleStep.isInvertible());
+		/* the copy made before removing the route does not have the attribute set before */
+		assertTrue (nonInvertibleStep.getNetPlanBeforeChanges().isDeepCopy(before));
+
+		/* modifications that change nothing do not make the step not invertible */
+		n1.setFailureState(true);
+		d13.setOfferedTraffic(d13.getOfferedTraffic());
+		assertFalse (journal.hasChanges());
+		n1.setAttribute("a" , "3");
+		assertTrue (journal.closeStep().isInvertible());
+
+		final NetPlanChangeJournal smallJournal = new NetPlanChangeJournal(np , 2);
+		assertFalse (journal.isAttached());
+		final NetPlan beforeSmallJournal = np.copy ();
+		for (int cont = 0; cont < 3 ; cont ++) n1.setAttribute("a" , "" + cont);
+		final NetPlanChangeJournal.Step step = smallJournal.closeStep();
+		assertFalse (step.isInvertible());
+		assertEquals (0 , step.getNumberOfChanges());
+		assertTrue (step.getNetPlanBeforeChanges().isDeepCopy(beforeSmallJournal));
+		smallJournal.detach();
+		n1.setAttribute("a" , "3");
+		assertFalse (smallJournal.hasChanges());
+	}
+}
@@ -10,13 +10,16 @@
  *******************************************************************************/
 package com.net2plan.interfaces.networkDesign;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.awt.geom.Point2D;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -34,6 +37,9 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.net2plan.interfaces.networkDesign.dynamicSrgs.DynamicSrgAllBidiLinksTwoNodes;
@@ -370,6 +376,31 @@ public class NetPlanTest
 		assertTrue (np2.isDeepCopy(np1));
 	}
 
+	@Test
+	public void testNetPlanBinaryFile()
+	{
+		File f = new File (TEST_FILE_DIRECTORY, "test.n2pb");
+		this.np.saveToFile(f);
+		NetPlan readNp = NetPlan.loadFromFile(f);
+		readNp.checkCachesConsistency();
+		assertTrue(readNp.isDeepCopy(np));
+		assertTrue(np.isDeepCopy(readNp));
+
+		/* the binary and the XML formats keep the same information */
+		NetPlan np1 = new NetPlan (new File ("src/main/resources/data/networkTopologies/example7nodes_ipOverWDM.n2p"));
+		np1.saveToFile(f);
+		NetPlan np2 = new NetPlan (f);
+		np2.checkCachesConsistency();
+		assertTrue (np1.isDeepCopy(np2));
+		assertTrue (np2.isDeepCopy(np1));
+		ByteArrayOutputStream xml1 = new ByteArrayOutputStream ();
+		ByteArrayOutputStream xml2 = new ByteArrayOutputStream ();
+		np1.saveToOutputStream(xml1);
+		np2.saveToOutputStream(xml2);
+		assertArrayEquals (xml1.toByteArray() , xml2.toByteArray());
+		f.delete();
+	}
+
 	@Test
 	public void testGetIds()
 	{
@@ -779,6 +810,35 @@ public class NetPlanTest
         }
 	}
 
+	@Test
+	public void testComputeMulticastCandidatePathListHeuristic()
+	{
+		final MulticastDemand d123 = netTriangle.addMulticastDemand(netTriangle_n1, new TreeSet<Node>(Arrays.asList(netTriangle_n2, netTriangle_n3)), 0, null);
+		final List<SortedSet<Link>> allTrees = Arrays.asList(
+				new TreeSet<Link>(Arrays.asList(netTriangle_e12, netTriangle_e13)),
+				new TreeSet<Link>(Arrays.asList(netTriangle_e12, netTriangle_e23)),
+				new TreeSet<Link>(Arrays.asList(netTriangle_e13, netTriangle_e32)));
+		for (String algorithm : new String [] { "shortestPathTree" , "takahashiMatsuyama" , "kmb" , "mehlhorn" })
+		{
+			SortedMap<MulticastDemand, List<SortedSet<Link>>> cpl;
+			cpl = netTriangle.computeMulticastCandidatePathList(null, null, null, -1, "algorithm", algorithm, "K", "100");
+			assertEquals(cpl.get(d123), allTrees);
+			cpl = netTriangle.computeMulticastCandidatePathList(null, null, null, -1, "algorithm", algorithm, "K", "2");
+			assertEquals(cpl.get(d123), allTrees.subList(0, 2));
+			cpl = netTriangle.computeMulticastCandidatePathList(null, null, null, -1, "algorithm", algorithm, "K", "100", "maxCopyCapability", "1");
+			assertEquals(cpl.get(d123), allTrees.subList(1, 3));
+			cpl = netTriangle.computeMulticastCandidatePathList(null, null, null, -1, "algorithm", algorithm, "K", "100", "maxE2ENumHops", "1");
+			assertEquals(cpl.get(d123), allTrees.subList(0, 1));
+			cpl = netTriangle.computeMulticastCandidatePathList(null, null, null, -1, "algorithm", algorithm, "K", "100", "maxTreeCost", "1");
+			assertEquals(cpl.get(d123), Arrays.asList());
+			cpl = netTriangle.computeMulticastCandidatePathList(DoubleFactory1D.dense.make(new double [] { 1, 1, 3, 1, 1, 1 }), null, null, -1, "algorithm", algorithm, "K", "100", "maxTreeCostRespectToMinimumCostTree", "1");
+			assertEquals(cpl.get(d123), allTrees.subList(1, 2));
+		}
+		netTriangle_e12.remove();
+		final SortedMap<MulticastDemand, List<SortedSet<Link>>> cpl = netTriangle.computeMulticastCandidatePathList(null, null, null, -1, "algorithm", "mehlhorn", "K", "100");
+		assertEquals(cpl.get(d123), allTrees.subList(2, 3));
+	}
+
 
 	@Test
 	public void testAddSRG()
@@ -1011,6 +1071,70 @@ public class NetPlanTest
 		assertEquals(np.getNumberOfRoutes() , 5);
 	}
 
+	@Test
+	public void testAddRoutes()
+	{
+		final double link12Traffic = link12.getCarriedTraffic();
+		final double link23Traffic = link23.getCarriedTraffic();
+		final double link13Occupation = link13.getOccupiedCapacity();
+		final int numRoutes = np.getNumberOfRoutes(lowerLayer);
+		final List<Route> routes = np.addRoutes(Arrays.asList(d12 , d13 , d13) , Arrays.asList(2.0 , 0.5 , 1.0) , Arrays.asList(Arrays.asList(link12) , path13 , Arrays.asList(link13)));
+		assertEquals(routes.size() , 3);
+		assertEquals(np.getNumberOfRoutes(lowerLayer) , numRoutes + 3);
+		assertEquals(routes.get(1).getDemand() , d13);
+		assertEquals(routes.get(1).getSeqLinks() , path13);
+		assertEquals(routes.get(1).getCarriedTrafficInNoFailureState() , 0.5 , 0);
+		assertEquals(routes.get(1).getOccupiedCapacityInNoFailureState(link23) , 0.5 , 0);
+		assertEquals(link12.getCarriedTraffic() , link12Traffic + 2.5 , 1e-9);
+		assertEquals(link23.getCarriedTraffic() , link23Traffic + 0.5 , 1e-9);
+		assertEquals(link13.getOccupiedCapacity() , link13Occupation + 1 , 1e-9);
+		/* the capacity of the upper layer link follows the carried traffic of the coupled demand */
+		assertEquals(upperLink12.getCapacity() , d12.getCarriedTraffic() , 1e-9);
+		np.checkCachesConsistency();
+
+		/* if a route is not valid, none is added */
+		final NetPlan npBefore = np.copy();
+		try
+		{
+			np.addRoutes(Arrays.asList(d12 , d12) , Arrays.asList(1.0 , 1.0) , Arrays.asList(Arrays.asList(link12) , Arrays.asList(link23)));
+			fail();
+		} catch (Net2PlanException e) { }
+		assertTrue(np.isDeepCopy(npBefore));
+		try
+		{
+			np.addRoutes(Arrays.asList(d12 , d12) , Arrays.asList(1.0 , -1.0) , Arrays.asList(Arrays.asList(link12) , Arrays.asList(link12)));
+			fail();
+		} catch (Net2PlanException e) { }
+		assertTrue(np.isDeepCopy(npBefore));
+	}
+
+	@Test
+	public void testDeferredLinkTrafficUpdates()
+	{
+		/* the same traffics set route by route in a copy of the design */
+		final NetPlan npRouteByRoute = np.copy();
+		final DoubleMatrix1D carriedTraffic = DoubleFactory1D.dense.make(np.getNumberOfRoutes(lowerLayer));
+		final DoubleMatrix1D occupiedLinkCapacity = DoubleFactory1D.dense.make(np.getNumberOfRoutes(lowerLayer));
+		for (Route r : np.getRoutes(lowerLayer))
+		{
+			carriedTraffic.set(r.getIndex() , r.getIndex() % 3 == 0? 0 : 1 + r.getIndex());
+			occupiedLinkCapacity.set(r.getIndex() , r.getIndex() % 3 == 0? 0 : 2 + r.getIndex());
+			npRouteByRoute.getRoute(r.getIndex() , npRouteByRoute.getNetworkLayer(lowerLayer.getIndex())).setCarriedTraffic(carriedTraffic.get(r.getIndex()) , occupiedLinkCapacity.get(r.getIndex()));
+		}
+		np.setVectorRouteCarriedTrafficAndOccupiedLinkCapacities(carriedTraffic , occupiedLinkCapacity , lowerLayer);
+		np.checkCachesConsistency();
+		assertTrue(np.isDeepCopy(npRouteByRoute));
+
+		/* the same routes removed one by one in the copy */
+		final int numRoutes = np.getNumberOfRoutes(lowerLayer);
+		for (Route r : new ArrayList<> (npRouteByRoute.getRoutes(npRouteByRoute.getNetworkLayer(lowerLayer.getIndex())))) if (r.getCarriedTraffic() < 0.1 && r.getSeqOccupiedCapacitiesIfNotFailing().stream().allMatch(v -> v < 0.1)) r.remove();
+		np.removeAllRoutesUnused(0.1 , lowerLayer);
+		np.checkCachesConsistency();
+		assertTrue(np.getNumberOfRoutes(lowerLayer) < numRoutes);
+		assertTrue(np.isDeepCopy(npRouteByRoute));
+		assertEquals(upperLink12.getCapacity() , d12.getCarriedTraffic() , 1e-9);
+	}
+
 	@Test
 	public void testRemoveAllLinksUnused()
 	{
@@ -12,6 +12,7 @@ package com.net2plan.interfaces.networkDesign;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -266,6 +267,37 @@ public class SharedRiskGroupTest
 		assertTrue(!link13.isDown());
 	}
 
+	@Test
+	public void testSetSrgsFailureState()
+	{
+		final double carriedR123a = r123a.getCarriedTraffic();
+		final double carriedLink12 = link12.getCarriedTraffic();
+		final LinksAndNodesFailureState noFailure = np.setSrgsFailureState(null , Arrays.asList(srgL13 , srgN1L23));
+		assertEquals(noFailure.getNumberOfNodesDown() , 0);
+		assertEquals(noFailure.getNumberOfLinksDown() , 0);
+		assertTrue(link13.isDown() && link23.isDown() && n1.isDown() && !link12.isDown());
+		assertEquals(r123a.getCarriedTraffic() , 0 , 0);
+		assertEquals(link12.getCarriedTraffic() , 0 , 0);
+		assertEquals(np.getLinksAndNodesFailureState().getNumberOfLinksDown() , 2);
+
+		/* the elements in an SRG set as down, are not set as up by other SRG */
+		final LinksAndNodesFailureState twoSrgsDown = np.setSrgsFailureState(Arrays.asList(srgN1L23) , Arrays.asList(srgL13));
+		assertTrue(link13.isDown() && !link23.isDown() && !n1.isDown());
+		assertEquals(twoSrgsDown.getNumberOfNodesDown() , 1);
+		np.checkCachesConsistency();
+
+		np.setLinksAndNodesFailureState(noFailure);
+		assertTrue(!link13.isDown() && !link23.isDown() && !n1.isDown());
+		assertEquals(r123a.getCarriedTraffic() , carriedR123a , 0);
+		assertEquals(link12.getCarriedTraffic() , carriedLink12 , 1e-6);
+		np.checkCachesConsistency();
+
+		np.setLinksAndNodesFailureState(twoSrgsDown);
+		assertTrue(link13.isDown() && link23.isDown() && n1.isDown());
+		np.addNode(0 , 0 , "node4" , null);
+		try { np.setLinksAndNodesFailureState(noFailure); fail(); } catch (Net2PlanException e) { }
+	}
+
 	@Test
 	public void testRemoveLink() 
 	{
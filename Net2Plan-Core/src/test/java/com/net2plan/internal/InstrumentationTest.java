@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.utils.Constants.RoutingType;
+import com.net2plan.internal.Instrumentation.Counter;
+import com.net2plan.internal.Instrumentation.Timer;
+
+public class InstrumentationTest
+{
+	private boolean wasEnabled;
+
+	@Before
+	public void setUp()
+	{
+		this.wasEnabled = Instrumentation.isEnabled();
+		Instrumentation.setEnabled(true);
+		Instrumentation.reset();
+	}
+
+	@After
+	public void tearDown()
+	{
+		Instrumentation.reset();
+		Instrumentation.setEnabled(wasEnabled);
+	}
+
+	@Test
+	public void testNetPlanCounters()
+	{
+		final NetPlan np = new NetPlan ();
+		final Node n1 = np.addNode(0 , 0 , "n1" , null);
+		final Node n2 = np.addNode(0 , 0 , "n2" , null);
+		final Link e12 = np.addLink(n1 , n2 , 10 , 1 , 200000 , null);
+		final Demand d12 = np.addDemand(n1 , n2 , 1 , RoutingType.SOURCE_ROUTING , null);
+		final Demand d12HopByHop = np.addDemand(n1 , n2 , 1 , RoutingType.HOP_BY_HOP_ROUTING , null);
+		final Route r = np.addRoute(d12 , 1 , 1 , Arrays.asList(e12) , null);
+		np.addRoute(d12 , 0 , 0 , Arrays.asList(e12) , null);
+		r.remove();
+		np.setForwardingRules(Arrays.asList(d12HopByHop) , Arrays.asList(e12) , Arrays.asList(1.0) , true);
+		np.checkCachesConsistency();
+
+		assertEquals(2 , Instrumentation.getCount(Counter.ROUTES_ADDED));
+		assertEquals(1 , Instrumentation.getCount(Counter.ROUTES_REMOVED));
+		assertEquals(1 , Instrumentation.getCount(Counter.FORWARDING_RULES_SET));
+		assertEquals(1 , Instrumentation.getCount(Timer.CACHE_CONSISTENCY_CHECK));
+	}
+
+	@Test
+	@SuppressWarnings("try")
+	public void testTimersAndJson()
+	{
+		Instrumentation.record(Timer.SIMULATION_EVENT_DISPATCH , 2000000);
+		Instrumentation.record(Timer.SIMULATION_EVENT_DISPATCH , 4000000);
+		try (Instrumentation.Measurement measurement = Instrumentation.start(Timer.ALGORITHM_EXECUTION , "test")) { }
+
+		assertEquals(2 , Instrumentation.getCount(Timer.SIMULATION_EVENT_DISPATCH));
+		assertEquals(6000000 , Instrumentation.getTotalNanos(Timer.SIMULATION_EVENT_DISPATCH));
+		assertEquals(4000000 , Instrumentation.getMaxNanos(Timer.SIMULATION_EVENT_DISPATCH));
+		assertEquals(1 , Instrumentation.getCount(Timer.ALGORITHM_EXECUTION));
+		assertTrue(Instrumentation.toJson().contains("\"simulation.eventDispatch\" : { \"count\" : 2, \"totalMs\" : 6.000, \"meanMs\" : 3.000, \"maxMs\" : 4.000 }"));
+
+		Instrumentation.setEnabled(false);
+		Instrumentation.record(Timer.SIMULATION_EVENT_DISPATCH , 1000000);
+		Instrumentation.increment(Counter.ROUTES_ADDED);
+		assertEquals(2 , Instrumentation.getCount(Timer.SIMULATION_EVENT_DISPATCH));
+		assertEquals(0 , Instrumentation.getCount(Counter.ROUTES_ADDED));
+	}
+}
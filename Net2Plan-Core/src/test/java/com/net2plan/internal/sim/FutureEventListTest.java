@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+public class FutureEventListTest
+{
+	private static SimEvent event(double time, int priority)
+	{
+		return new SimEvent(time, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, priority, null);
+	}
+
+	@Test
+	public void testOrderTimePriorityAndFifo()
+	{
+		for (FutureEventList.Implementation implementation : FutureEventList.Implementation.values())
+		{
+			final FutureEventList fel = new FutureEventList(implementation);
+			final SimEvent late = event(5, 0);
+			final SimEvent lowPriorityFirst = event(1, 0);
+			final SimEvent highPriority = event(1, 3);
+			final SimEvent lowPrioritySecond = event(1, 0);
+			final SimEvent early = event(0.5, -1);
+			fel.addEvent(late);
+			fel.addEvent(lowPriorityFirst);
+			fel.addEvent(highPriority);
+			fel.addEvent(lowPrioritySecond);
+			fel.addEvent(early);
+
+			assertEquals(5, fel.getNumberOfPendingEvents());
+			assertEquals(0.5, fel.getNextEventSimulationTime(), 0);
+			assertSame(early, fel.getNextEvent());
+			assertSame(highPriority, fel.getNextEvent());
+			assertSame(lowPriorityFirst, fel.getNextEvent());
+			assertSame(lowPrioritySecond, fel.getNextEvent());
+			assertSame(late, fel.getNextEvent());
+			assertNull(fel.getNextEvent());
+			assertEquals(5, fel.getNumberOfProcessedEvents());
+			assertEquals(5, fel.getCurrentSimulationTime(), 0);
+		}
+	}
+
+	@Test
+	public void testHoldModelAgainstHeap()
+	{
+		final Random rng = new Random(1);
+		final FutureEventList heap = new FutureEventList(FutureEventList.Implementation.HEAP);
+		final FutureEventList calendar = new FutureEventList(FutureEventList.Implementation.CALENDAR);
+		final List<SimEvent> removable = new ArrayList<SimEvent>();
+		for (int cont = 0; cont < 2000; cont++)
+		{
+			final SimEvent e = event(rng.nextInt(100) * 0.5, rng.nextInt(3));
+			heap.addEvent(e);
+			calendar.addEvent(e);
+			if (cont % 10 == 0) removable.add(e);
+		}
+		for (SimEvent e : removable) { heap.remove(e); calendar.remove(e); }
+		assertEquals(heap.getPendingEventList(), calendar.getPendingEventList());
+
+		/* the deprecated accessor returns a copy, polled in time and priority order */
+		@SuppressWarnings("deprecation")
+		final PriorityQueue<SimEvent> pendingEvents = calendar.getPendingEvents();
+		assertEquals(heap.getPendingEventList().size(), pendingEvents.size());
+		for (SimEvent e : heap.getPendingEventList())
+			assertEquals(0, e.compareTo(pendingEvents.poll()));
+		assertEquals(heap.getPendingEventList(), calendar.getPendingEventList());
+
+		for (int cont = 0; cont < 20000; cont++)
+		{
+			final SimEvent e = heap.getNextEvent();
+			assertSame(e, calendar.getNextEvent());
+			final double nextTime = e.getEventTime() + (cont % 100 == 0 ? 1000 * rng.nextDouble() : -Math.log(rng.nextDouble()));
+			final SimEvent newEvent = event(nextTime, rng.nextInt(2));
+			heap.addEvent(newEvent);
+			calendar.addEvent(newEvent);
+		}
+		while (heap.hasMoreEvents())
+			assertSame(heap.getNextEvent(), calendar.getNextEvent());
+		assertTrue(!calendar.hasMoreEvents());
+	}
+}
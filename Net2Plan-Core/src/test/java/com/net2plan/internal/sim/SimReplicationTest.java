@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.simulation.IEventGenerator;
+import com.net2plan.interfaces.simulation.IEventProcessor;
+import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.utils.Pair;
+import com.net2plan.utils.Triple;
+import com.net2plan.utils.Constants.RoutingType;
+
+public class SimReplicationTest
+{
+	@Test
+	public void testReplicationStats()
+	{
+		final SimReplicationStats stats = new SimReplicationStats(0.95);
+		for (int value = 1; value <= 5; value++)
+			stats.addReplication(Collections.singletonMap("result", (double) value));
+
+		assertEquals(5, stats.getNumberOfReplications());
+		assertEquals(3, stats.getMean("result"), 1e-9);
+		assertEquals(2.776445 * Math.sqrt(2.5) / Math.sqrt(5), stats.getConfidenceIntervalHalfWidth("result"), 1e-5);
+		assertEquals(3, stats.getPercentile("result", 50), 1e-9);
+
+		final SimReplicationStats oneReplication = new SimReplicationStats(0.95);
+		oneReplication.addReplication(Collections.singletonMap("result", 1.0));
+		assertTrue(Double.isNaN(oneReplication.getConfidenceIntervalHalfWidth("result")));
+	}
+
+	@Test
+	public void testReplicationsAreSeededAndIndependentOfTheThreads()
+	{
+		final NetPlan netPlan = new NetPlan();
+		final Node n1 = netPlan.addNode(0, 0, "n1", null);
+		final Node n2 = netPlan.addNode(1, 0, "n2", null);
+		final Link link = netPlan.addLink(n1, n2, 1, 100, 200000, null);
+		final Demand demand = netPlan.addDemand(n1, n2, 1, RoutingType.SOURCE_ROUTING, null);
+		netPlan.addRoute(demand, 1, 1, Arrays.asList(link), null);
+
+		final Properties simulationParameters = new Properties();
+		simulationParameters.put("simEvents", "2000");
+		simulationParameters.put("refreshTime", "100");
+		final Map<String, String> net2planParameters = new HashMap<String, String>();
+		net2planParameters.put("precisionFactor", "0.001");
+
+		final Pair<SimReplicationStats, String> parallel = SimKernel.runReplications(netPlan, new RandomTrafficGenerator(), null, new NoProcessor(), null, simulationParameters, net2planParameters, 8, 4, "randomSeed", 0.95);
+		final Pair<SimReplicationStats, String> sequential = SimKernel.runReplications(netPlan, new RandomTrafficGenerator(), null, new NoProcessor(), null, simulationParameters, net2planParameters, 8, 1, "randomSeed", 0.95);
+
+		final String blocking = "Layer " + netPlan.getNetworkLayerDefault().getId() + " (" + netPlan.getNetworkLayerDefault().getName() + "): blocked traffic (%)";
+		final SimReplicationStats stats = parallel.getFirst();
+		assertEquals(8, stats.getNumberOfReplications());
+		assertTrue(stats.getResultNames().contains(blocking));
+		assertEquals(sequential.getFirst().getMean(blocking), stats.getMean(blocking), 1e-9);
+		assertEquals(sequential.getFirst().getConfidenceIntervalHalfWidth(blocking), stats.getConfidenceIntervalHalfWidth(blocking), 1e-9);
+		assertTrue(stats.getConfidenceIntervalHalfWidth(blocking) > 0);
+		assertTrue(stats.getMean(blocking) > 0 && stats.getMean(blocking) < 100);
+		assertEquals(1, netPlan.getDemand(0).getOfferedTraffic(), 0);
+	}
+
+	/* Changes the offered traffic of the demands randomly. The carried traffic is the offered one, limited to the link capacity */
+	public static class RandomTrafficGenerator extends IEventGenerator
+	{
+		private Random rng;
+
+		@Override
+		public String getDescription() { return null; }
+
+		@Override
+		public List<Triple<String, String, String>> getParameters()
+		{
+			return Arrays.asList(Triple.of("randomSeed", "1", "Seed for the random generator"));
+		}
+
+		@Override
+		public void initialize(NetPlan initialNetPlan, Map<String, String> algorithmParameters, Map<String, String> simulationParameters, Map<String, String> net2planParameters)
+		{
+			rng = new Random(Long.parseLong(algorithmParameters.get("randomSeed")));
+			scheduleEvent(new SimEvent(rng.nextDouble(), SimEvent.DestinationModule.EVENT_GENERATOR, -1, null));
+		}
+
+		@Override
+		public void processEvent(NetPlan currentNetPlan, SimEvent event)
+		{
+			for (Demand demand : currentNetPlan.getDemands())
+			{
+				demand.setOfferedTraffic(2 * rng.nextDouble());
+				demand.getRoutes().iterator().next().setCarriedTraffic(Math.min(demand.getOfferedTraffic(), 1), 1);
+			}
+			scheduleEvent(new SimEvent(event.getEventTime() + rng.nextDouble(), SimEvent.DestinationModule.EVENT_GENERATOR, -1, null));
+		}
+	}
+
+	public static class NoProcessor extends IEventProcessor
+	{
+		@Override
+		public String getDescription() { return null; }
+
+		@Override
+		public List<Triple<String, String, String>> getParameters() { return null; }
+
+		@Override
+		public void initialize(NetPlan initialNetPlan, Map<String, String> algorithmParameters, Map<String, String> simulationParameters, Map<String, String> net2planParameters) { }
+
+		@Override
+		public void processEvent(NetPlan currentNetPlan, SimEvent event) { }
+	}
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.utils.Constants.RoutingType;
+
+public class SimStatsTest
+{
+	/* Replays a random sequence of events (some of them at the same simulation time) through the incremental statistics and the statistics computed
+	 * traversing the whole network after each event, which must give the same results. Traffics, capacities and times are integers, so that the
+	 * aggregated values do not depend on the order of the sums */
+	@Test
+	public void testSameResultsAsFullRescan()
+	{
+		final Random rng = new Random (1L);
+		final NetPlan np = new NetPlan ();
+		final NetworkLayer secondLayer = np.addLayer("second" , null , null , null , null , null);
+		for (int n = 0; n < 6 ; n ++) np.addNode(n , 0 , "n" + n , null);
+		for (NetworkLayer layer : np.getNetworkLayers())
+		{
+			for (int cont = 0; cont < 10 ; cont ++) addRandomLink(np , layer , rng);
+			for (int cont = 0; cont < 10 ; cont ++) addRandomDemand(np , layer , rng);
+		}
+
+		final Map<String, String> net2planParameters = new HashMap<String, String> ();
+		net2planParameters.put("precisionFactor", "0.001");
+		final SimStats stats = new SimStats (np , new HashMap<String, String> () , net2planParameters);
+		final SimStatsFullRescan reference = new SimStatsFullRescan (np , new HashMap<String, String> () , net2planParameters);
+
+		double simTime = 0;
+		for (int event = 1; event <= 2000 ; event ++)
+		{
+			if (rng.nextInt(4) != 0) simTime += 1 + rng.nextInt(5);
+			final NetworkLayer layer = rng.nextBoolean()? np.getNetworkLayerDefault() : secondLayer;
+			applyRandomChange(np , layer , rng);
+			stats.computeNextState(simTime);
+			reference.computeNextState(simTime);
+
+			if (event % 100 == 0)
+			{
+				assertEquals (reference.getResults(simTime) , stats.getResults(simTime));
+				final Map<String, Double> expectedSummary = reference.getSummary(simTime);
+				final Map<String, Double> summary = stats.getSummary(simTime);
+				assertEquals (new ArrayList<> (expectedSummary.keySet()) , new ArrayList<> (summary.keySet()));
+				for (String name : expectedSummary.keySet()) assertEquals (name , expectedSummary.get(name) , summary.get(name) , 1e-9);
+			}
+			if (event == 1000)
+			{
+				stats.reset(simTime);
+				reference.reset(simTime);
+			}
+		}
+		stats.detach();
+	}
+
+	private static void applyRandomChange (NetPlan np , NetworkLayer layer , Random rng)
+	{
+		final List<Link> links = np.getLinks(layer);
+		final List<Demand> demands = np.getDemands(layer);
+		final List<Route> routes = np.getRoutes(layer);
+		switch (rng.nextInt(12))
+		{
+		case 0: if (!links.isEmpty()) pick(links , rng).setCapacity(rng.nextInt(20)); break;
+		case 1: if (!links.isEmpty()) pick(links , rng).setLengthInKm(1 + rng.nextInt(100)); break;
+		case 2: if (!demands.isEmpty()) pick(demands , rng).setOfferedTraffic(rng.nextInt(10)); break;
+		case 3: if (!routes.isEmpty()) { final double traffic = rng.nextInt(10); pick(routes , rng).setCarriedTraffic(traffic , traffic); } break;
+		case 4: if (!links.isEmpty()) np.setLinksAndNodesFailureState(null , Arrays.asList(pick(links , rng)) , null , null); break;
+		case 5: if (!np.getLinksDownAllLayers().isEmpty()) np.setLinksAndNodesFailureState(new ArrayList<> (np.getLinksDownAllLayers()) , null , null , null); break;
+		case 6:
+			if (rng.nextBoolean()) np.setLinksAndNodesFailureState(null , null , null , Arrays.asList(pick(np.getNodes() , rng)));
+			else np.setLinksAndNodesFailureState(null , null , new ArrayList<> (np.getNodesDown()) , null);
+			break;
+		case 7: addRandomDemand(np , layer , rng); break;
+		case 8: if (!demands.isEmpty()) pick(demands , rng).remove(); break;
+		case 9: addRandomLink(np , layer , rng); break;
+		case 10: if (!links.isEmpty()) pick(links , rng).remove(); break;
+		case 11:
+			if (rng.nextBoolean() && np.getNodesUp().size() > 3) pick(new ArrayList<> (np.getNodesUp()) , rng).remove();
+			else np.addNode(0 , 0 , "new" , null);
+			break;
+		default: throw new RuntimeException ();
+		}
+	}
+
+	/* Adds a link between two random nodes, with random capacity and length */
+	private static void addRandomLink (NetPlan np , NetworkLayer layer , Random rng)
+	{
+		final List<Node> nodes = np.getNodes();
+		final Node a = pick(nodes , rng);
+		final Node b = pick(nodes , rng);
+		if (a == b) return;
+		np.addLink(a , b , rng.nextInt(20) , 1 + rng.nextInt(100) , 200000 , null , layer);
+	}
+
+	/* Adds a demand between two random nodes, carried by a route of one hop if there is a link between them */
+	private static void addRandomDemand (NetPlan np , NetworkLayer layer , Random rng)
+	{
+		final List<Node> nodes = np.getNodes();
+		final Node a = pick(nodes , rng);
+		final Node b = pick(nodes , rng);
+		if (a == b) return;
+		final Demand d = np.addDemand(a , b , rng.nextInt(10) , RoutingType.SOURCE_ROUTING , null , layer);
+		final List<Link> links = new ArrayList<> (a.getOutgoingLinks(layer));
+		links.retainAll(b.getIncomingLinks(layer));
+		if (links.isEmpty()) return;
+		final double traffic = rng.nextInt(10);
+		np.addRoute(d , traffic , traffic , Collections.singletonList(pick(links , rng)) , null);
+	}
+
+	private static <T> T pick (List<T> elements , Random rng)
+	{
+		return elements.get(rng.nextInt(elements.size()));
+	}
+}
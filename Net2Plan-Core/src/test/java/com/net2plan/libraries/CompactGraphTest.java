@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+
+public class CompactGraphTest
+{
+	private NetPlan np;
+	private Node s, a, b, t;
+	private Link sa, ab, bt, sb, at;
+
+	/* the shortest path s - a - b - t blocks the other paths, so a disjoint pair needs to reverse the link a - b */
+	@Before
+	public void setUp() throws Exception
+	{
+		this.np = new NetPlan ();
+		this.s = np.addNode(0 , 0 , "s" , null);
+		this.a = np.addNode(0 , 0 , "a" , null);
+		this.b = np.addNode(0 , 0 , "b" , null);
+		this.t = np.addNode(0 , 0 , "t" , null);
+		this.sa = np.addLink(s , a , 10 , 1 , 200000 , null);
+		this.ab = np.addLink(a , b , 10 , 1 , 200000 , null);
+		this.bt = np.addLink(b , t , 10 , 1 , 200000 , null);
+		this.sb = np.addLink(s , b , 10 , 2 , 200000 , null);
+		this.at = np.addLink(a , t , 10 , 2 , 200000 , null);
+	}
+
+	@Test
+	public void testTwoLinkDisjointPaths()
+	{
+		CompactGraph g = new CompactGraph(np.getNodes() , np.getLinks() , null);
+		final CompactGraph.Workspace ws = g.createWorkspace();
+		final double [] lengths = new double [g.getNumberOfArcs()];
+		for (int arc = 0; arc < lengths.length ; arc ++) lengths [arc] = g.getLink(arc).getLengthInKm();
+
+		List<int []> paths = g.getTwoLinkDisjointPaths(ws , lengths , s.getIndex() , t.getIndex());
+		assertEquals (2 , paths.size());
+		assertEquals (Arrays.asList(sa , at) , g.toLinkPath(paths.get(0)));
+		assertEquals (Arrays.asList(sb , bt) , g.toLinkPath(paths.get(1)));
+
+		/* the blocked arcs do not affect the search, and are cleared */
+		ws.blockArc(g.getArcIndex(sa));
+		paths = g.getTwoLinkDisjointPaths(ws , lengths , s.getIndex() , t.getIndex());
+		assertEquals (2 , paths.size());
+		assertFalse (ws.isArcBlocked(g.getArcIndex(sa)));
+
+		/* no disjoint pair: only the shortest path */
+		lengths [g.getArcIndex(sb)] = Double.MAX_VALUE;
+		lengths [g.getArcIndex(at)] = 3;
+		paths = g.getTwoLinkDisjointPaths(ws , lengths , s.getIndex() , t.getIndex());
+		assertEquals (1 , paths.size());
+		assertEquals (Arrays.asList(sa , ab , bt) , g.toLinkPath(paths.get(0)));
+
+		/* no path */
+		assertTrue (g.getTwoLinkDisjointPaths(ws , lengths , t.getIndex() , s.getIndex()).isEmpty());
+		assertTrue (g.getTwoLinkDisjointPaths(ws , lengths , s.getIndex() , s.getIndex()).isEmpty());
+
+		/* two parallel links are a disjoint pair */
+		final Link st1 = np.addLink(s , t , 10 , 5 , 200000 , null);
+		final Link st2 = np.addLink(s , t , 10 , 5 , 200000 , null);
+		g = new CompactGraph(np.getNodes() , Arrays.asList(sa , ab , bt , st1 , st2) , null);
+		paths = g.getTwoLinkDisjointPaths(g.createWorkspace() , new double [] { 1 , 1 , 1 , 5 , 4 } , s.getIndex() , t.getIndex());
+		assertEquals (2 , paths.size());
+		assertEquals (Arrays.asList(sa , ab , bt) , g.toLinkPath(paths.get(0)));
+		assertArrayEquals (new int [] { g.getArcIndex(st2) } , paths.get(1));
+	}
+
+	@Test
+	public void testKLooplessShortestPaths()
+	{
+		/* b - t has a parallel link, and s - t two parallel links with the same cost */
+		final Link bt2 = np.addLink(b , t , 10 , 10 , 200000 , null);
+		final Link st1 = np.addLink(s , t , 10 , 1 , 200000 , null);
+		final Link st2 = np.addLink(s , t , 10 , 20 , 200000 , null);
+		final List<Link> links = Arrays.asList(sa , ab , bt , sb , at , bt2 , st1 , st2);
+		final Map<Link,Double> linkCostMap = new HashMap<> ();
+		final double [] costs = new double [] { 1 , 1 , 1 , 3 , 3 , 2 , 6 , 6 };
+		for (int cont = 0; cont < links.size() ; cont ++) linkCostMap.put(links.get(cont) , costs [cont]);
+		final CompactGraph g = new CompactGraph(np.getNodes() , links , linkCostMap);
+		final CompactGraph.Workspace ws = g.createWorkspace();
+
+		/* in increasing order of cost, with the paths of the same cost sorted by more hops first, and then by arc index */
+		final List<List<Link>> allPaths = Arrays.asList(Arrays.asList(sa , ab , bt) , Arrays.asList(sa , ab , bt2) , Arrays.asList(sa , at) , Arrays.asList(sb , bt) , Arrays.asList(sb , bt2) , Arrays.asList(st1) , Arrays.asList(st2));
+		assertEquals (allPaths , getKLooplessShortestPaths(g , ws , 10 , -1 , -1 , -1 , -1 , -1 , -1));
+		assertEquals (allPaths.subList(0 , 2) , getKLooplessShortestPaths(g , ws , 2 , -1 , -1 , -1 , -1 , -1 , -1));
+
+		/* length, hops and propagation delay limits. If the shortest path does not satisfy them, no path is returned */
+		final List<List<Link>> shortPaths = Arrays.asList(allPaths.get(0) , allPaths.get(2) , allPaths.get(3) , allPaths.get(5));
+		assertEquals (shortPaths , getKLooplessShortestPaths(g , ws , 10 , 5 , -1 , -1 , -1 , -1 , -1));
+		assertEquals (shortPaths , getKLooplessShortestPaths(g , ws , 10 , -1 , -1 , 0.025 , -1 , -1 , -1));
+		assertEquals (allPaths , getKLooplessShortestPaths(g , ws , 10 , -1 , 3 , -1 , -1 , -1 , -1));
+		assertTrue (getKLooplessShortestPaths(g , ws , 10 , -1 , 2 , -1 , -1 , -1 , -1).isEmpty());
+		assertTrue (getKLooplessShortestPaths(g , ws , 10 , 2 , -1 , -1 , -1 , -1 , -1).isEmpty());
+
+		/* cost limits: absolute, and relative to the shortest path cost (3) */
+		assertEquals (allPaths.subList(0 , 4) , getKLooplessShortestPaths(g , ws , 10 , -1 , -1 , -1 , 4 , -1 , -1));
+		assertEquals (allPaths.subList(0 , 4) , getKLooplessShortestPaths(g , ws , 10 , -1 , -1 , -1 , -1 , 1.5 , -1));
+		assertEquals (allPaths.subList(0 , 5) , getKLooplessShortestPaths(g , ws , 10 , -1 , -1 , -1 , -1 , -1 , 2));
+		assertEquals (allPaths.subList(0 , 3) , getKLooplessShortestPaths(g , ws , 3 , -1 , -1 , -1 , 5 , -1 , -1));
+
+		/* no path, and the shortest path given by the caller */
+		assertTrue (g.getKLooplessShortestPaths(ws , t.getIndex() , s.getIndex() , null , 10 , -1 , -1 , -1 , -1 , -1 , -1).isEmpty());
+		final int [] shortestPath = new int [] { g.getArcIndex(sa) , g.getArcIndex(ab) , g.getArcIndex(bt) };
+		final List<int []> paths = g.getKLooplessShortestPaths(ws , s.getIndex() , t.getIndex() , shortestPath , 3 , -1 , -1 , -1 , -1 , -1 , -1);
+		assertTrue (paths.get(0) == shortestPath);
+		assertEquals (allPaths.get(2) , g.toLinkPath(paths.get(2)));
+
+		/* the same paths from the GraphUtils method */
+		assertEquals (allPaths , GraphUtils.getKLooplessShortestPaths(np.getNodes() , links , s , t , linkCostMap , 10 , -1 , -1 , -1 , -1 , -1 , -1));
+	}
+
+	@Test
+	public void testGraphFromArcEndNodes()
+	{
+		/* the same arcs as the graph of the links, with no Node or Link objects */
+		final CompactGraph g = new CompactGraph(np.getNodes() , np.getLinks() , null);
+		final int [] arcOrigin = new int [g.getNumberOfArcs()];
+		final int [] arcDestination = new int [g.getNumberOfArcs()];
+		final double [] lengths = new double [g.getNumberOfArcs()];
+		for (int arc = 0; arc < lengths.length ; arc ++)
+		{
+			arcOrigin [arc] = g.getArcOrigin(arc);
+			arcDestination [arc] = g.getArcDestination(arc);
+			lengths [arc] = g.getLink(arc).getLengthInKm();
+		}
+		final CompactGraph gIndexes = new CompactGraph(np.getNumberOfNodes() , arcOrigin , arcDestination);
+		assertEquals (np.getNumberOfNodes() , gIndexes.getNumberOfNodes());
+		assertEquals (g.getNumberOfArcs() , gIndexes.getNumberOfArcs());
+		assertTrue (gIndexes.getNode(0) == null && gIndexes.getLink(0) == null);
+		final CompactGraph.Workspace ws = g.createWorkspace();
+		final CompactGraph.Workspace wsIndexes = gIndexes.createWorkspace();
+		for (Node origin : np.getNodes())
+		{
+			g.computeShortestPathTree(ws , lengths , origin.getIndex() , -1);
+			gIndexes.computeShortestPathTree(wsIndexes , lengths , origin.getIndex() , -1);
+			for (Node n : np.getNodes())
+			{
+				assertEquals (ws.getDistance(n.getIndex()) , wsIndexes.getDistance(n.getIndex()) , 0);
+				if (ws.isSettled(n.getIndex())) assertArrayEquals (ws.getPathTo(n.getIndex()) , wsIndexes.getPathTo(n.getIndex()));
+			}
+		}
+		assertArrayEquals (g.getIncomingArcs(t.getIndex()) , gIndexes.getIncomingArcs(t.getIndex()));
+	}
+
+	@Test
+	public void testWorkspaceStampsOverflow() throws Exception
+	{
+		final CompactGraph g = new CompactGraph(np.getNodes() , np.getLinks() , null);
+		final CompactGraph.Workspace ws = g.createWorkspace();
+		final double [] lengths = new double [g.getNumberOfArcs()];
+		for (int arc = 0; arc < lengths.length ; arc ++) lengths [arc] = g.getLink(arc).getLengthInKm();
+
+		/* all the nodes are settled in the first search. When the search counter restarts, they are not read as settled in a later search */
+		g.computeShortestPathTree(ws , lengths , s.getIndex() , -1);
+		assertTrue (ws.isSettled(a.getIndex()));
+		setField(ws , "searchStamp" , Integer.MAX_VALUE - 1);
+		for (int search = 0; search < 3 ; search ++)
+		{
+			g.computeShortestPathTree(ws , lengths , t.getIndex() , -1);
+			assertTrue (ws.isSettled(t.getIndex()));
+			assertFalse (ws.isSettled(a.getIndex()));
+			assertEquals (Double.MAX_VALUE , ws.getDistance(s.getIndex()) , 0);
+		}
+		g.computeShortestPathTree(ws , lengths , s.getIndex() , -1);
+		assertEquals (3 , ws.getDistance(t.getIndex()) , 0);
+
+		/* the same for the blocked nodes and arcs */
+		ws.blockNode(a.getIndex());
+		ws.blockArc(g.getArcIndex(sb));
+		setField(ws , "blockStamp" , Integer.MAX_VALUE);
+		ws.clearBlocked();
+		assertFalse (ws.isNodeBlocked(a.getIndex()));
+		assertFalse (ws.isArcBlocked(g.getArcIndex(sb)));
+		ws.blockNode(b.getIndex());
+		g.computeShortestPathTree(ws , lengths , s.getIndex() , -1);
+		assertEquals (Arrays.asList(sa , at) , g.toLinkPath(ws.getPathTo(t.getIndex())));
+	}
+
+	private static void setField (CompactGraph.Workspace ws , String name , int value) throws Exception
+	{
+		final Field field = CompactGraph.Workspace.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.setInt(ws , value);
+	}
+
+	private List<List<Link>> getKLooplessShortestPaths (CompactGraph g , CompactGraph.Workspace ws , int K , double maxLengthInKm , int maxNumHops , double maxPropDelayInMs , double maxRouteCost , double maxRouteCostFactorRespectToShortestPath , double maxRouteCostRespectToShortestPath)
+	{
+		final List<List<Link>> res = new ArrayList<> ();
+		for (int [] path : g.getKLooplessShortestPaths(ws , s.getIndex() , t.getIndex() , null , K , maxLengthInKm , maxNumHops , maxPropDelayInMs , maxRouteCost , maxRouteCostFactorRespectToShortestPath , maxRouteCostRespectToShortestPath))
+			res.add(g.toLinkPath(path));
+		return res;
+	}
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.interfaces.networkDesign.SharedRiskGroup;
+import com.net2plan.libraries.FailureStateAnalyzer.DesignModification;
+import com.net2plan.libraries.FailureStateAnalyzer.FailureStateEvaluator;
+import com.net2plan.utils.Constants.RoutingType;
+
+public class FailureStateAnalyzerTest
+{
+	private static final int NUMTHREADS = 4;
+
+	private NetPlan np;
+	private NetPlan npBefore;
+	private List<SortedSet<SharedRiskGroup>> failureStates;
+
+	/* a bidirectional ring of five nodes, with one demand per node pair carried half by each of its two shortest paths, and one SRG per link */
+	@Before
+	public void setUp() throws Exception
+	{
+		this.np = new NetPlan ();
+		final List<Node> nodes = new ArrayList<> ();
+		for (int n = 0; n < 5 ; n ++) nodes.add(np.addNode(0 , 0 , "n" + n , null));
+		for (int n = 0; n < 5 ; n ++) np.addLinkBidirectional(nodes.get(n) , nodes.get((n + 1) % 5) , 10 , 1 , 200000 , null);
+		for (Node n1 : nodes) for (Node n2 : nodes) if (n1 != n2) np.addDemand(n1 , n2 , 1 , RoutingType.SOURCE_ROUTING , null);
+		np.addRoutesFromCandidatePathList(np.computeUnicastCandidatePathList(null , 2 , -1 , -1 , -1 , -1 , -1 , -1 , null));
+		for (Route r : np.getRoutes()) r.setCarriedTraffic(0.5 , 0.5);
+		SRGUtils.configureSRGs(np , 1000 , 10 , SRGUtils.SharedRiskModel.PER_LINK , true);
+		this.failureStates = SRGUtils.enumerateFailureStates(np.getSRGs() , true , true);
+		this.npBefore = np.copy();
+	}
+
+	@Test
+	public void testDesignNotModified()
+	{
+		final List<List<Double>> serialResults = new ArrayList<> ();
+		for (Set<SharedRiskGroup> failingSrgs : failureStates)
+		{
+			final NetPlan npState = np.copy();
+			npState.setSrgsFailureState(null , toSrgsOf(npState , failingSrgs));
+			serialResults.add(carriedTrafficAndNumLinksDown(npState));
+		}
+		checkParallelEqualsSerial(serialResults , workerNp -> (npState , failingSrgs) -> carriedTrafficAndNumLinksDown(npState) , DesignModification.NONE);
+	}
+
+	@Test
+	public void testFailureUndoneByEvaluator()
+	{
+		final List<List<Double>> serialResults = new ArrayList<> ();
+		for (Set<SharedRiskGroup> failingSrgs : failureStates)
+		{
+			final NetPlan npState = np.copy();
+			npState.setSrgsFailureState(null , toSrgsOf(npState , failingSrgs));
+			serialResults.add(carriedTrafficAndNumLinksDown(npState));
+		}
+		/* the analyzer does not apply the failure state: the evaluator fails and repairs the SRGs */
+		checkParallelEqualsSerial(serialResults , workerNp -> (npState , failingSrgs) ->
+		{
+			assertTrue (npState.getLinksDownAllLayers().isEmpty());
+			for (SharedRiskGroup srg : failingSrgs) srg.setAsDown();
+			final List<Double> result = carriedTrafficAndNumLinksDown(npState);
+			for (SharedRiskGroup srg : failingSrgs) srg.setAsUp();
+			return result;
+		} , DesignModification.UNDONE_BY_EVALUATOR);
+	}
+
+	@Test
+	public void testDesignModifiedByEvaluator()
+	{
+		final List<List<Double>> serialResults = new ArrayList<> ();
+		for (Set<SharedRiskGroup> failingSrgs : failureStates)
+		{
+			final NetPlan npState = np.copy();
+			npState.setSrgsFailureState(null , toSrgsOf(npState , failingSrgs));
+			serialResults.add(removeFailedRoutes(npState));
+		}
+		/* the evaluator removes the routes traversing failed links, so each state must start from the original routing */
+		checkParallelEqualsSerial(serialResults , workerNp -> (npState , failingSrgs) -> removeFailedRoutes(npState) , DesignModification.ANY);
+	}
+
+	@Test
+	public void testSlowStateDoesNotLetWorkersRunAhead()
+	{
+		/* the first failure state is slow: the other workers only start the states up to two times the number of threads ahead of it */
+		final AtomicInteger numStatesStarted = new AtomicInteger(0);
+		final AtomicInteger numStatesDelivered = new AtomicInteger(0);
+		final AtomicInteger maxStatesAheadOfDelivery = new AtomicInteger(0);
+		final int numStates = FailureStateAnalyzer.evaluateFailureStates(np , failureStates , workerNp -> (npState , failingSrgs) ->
+		{
+			maxStatesAheadOfDelivery.accumulateAndGet(numStatesStarted.incrementAndGet() - numStatesDelivered.get() , Math::max);
+			if (failingSrgs.isEmpty()) try { Thread.sleep(200); } catch (InterruptedException e) { throw new RuntimeException(e); }
+			return removeFailedRoutes(npState);
+		} , DesignModification.ANY , NUMTHREADS , -1 , (state , failingSrgs , result) -> numStatesDelivered.incrementAndGet());
+		assertTrue (failureStates.get(0).isEmpty());
+		assertEquals (failureStates.size() , numStates);
+		assertEquals (failureStates.size() , numStatesDelivered.get());
+		assertTrue (maxStatesAheadOfDelivery.get() <= 2 * NUMTHREADS + 1);
+		assertTrue (np.isDeepCopy(npBefore));
+	}
+
+	@Test
+	public void testTimeBudget()
+	{
+		/* the states after the budget is exhausted are not started, and the results received are the ones of the first states */
+		final List<Integer> stateIndexes = new ArrayList<> ();
+		final int numStates = FailureStateAnalyzer.evaluateFailureStates(np , failureStates , workerNp -> (npState , failingSrgs) ->
+		{
+			try { Thread.sleep(20); } catch (InterruptedException e) { throw new RuntimeException(e); }
+			return carriedTrafficAndNumLinksDown(npState);
+		} , DesignModification.NONE , NUMTHREADS , 0.1 , (state , failingSrgs , result) -> stateIndexes.add(state));
+		assertTrue (numStates < failureStates.size());
+		assertEquals (numStates , stateIndexes.size());
+		for (int state = 0; state < numStates ; state ++) assertEquals (state , (int) stateIndexes.get(state));
+		assertTrue (np.isDeepCopy(npBefore));
+	}
+
+	private void checkParallelEqualsSerial (List<List<Double>> serialResults , Function<NetPlan , FailureStateEvaluator<List<Double>>> evaluatorFactory , DesignModification designModification)
+	{
+		final List<Integer> stateIndexes = new ArrayList<> ();
+		final List<List<Double>> parallelResults = new ArrayList<> ();
+		final int numStates = FailureStateAnalyzer.evaluateFailureStates(np , failureStates , evaluatorFactory , designModification , NUMTHREADS , -1 , (state , failingSrgs , result) ->
+		{
+			assertEquals (failureStates.get(state) , failingSrgs);
+			stateIndexes.add(state);
+			parallelResults.add(result);
+		});
+		assertEquals (failureStates.size() , numStates);
+		for (int state = 0; state < numStates ; state ++) assertEquals (state , (int) stateIndexes.get(state));
+		assertEquals (serialResults , parallelResults);
+		assertTrue (np.isDeepCopy(npBefore));
+	}
+
+	private static Set<SharedRiskGroup> toSrgsOf (NetPlan netPlan , Set<SharedRiskGroup> srgs)
+	{
+		final Set<SharedRiskGroup> res = new HashSet<> ();
+		for (SharedRiskGroup srg : srgs) res.add(netPlan.getSRG(srg.getIndex()));
+		return res;
+	}
+
+	/* carried traffic of each demand, and the number of links down */
+	private static List<Double> carriedTrafficAndNumLinksDown (NetPlan netPlan)
+	{
+		final List<Double> res = new ArrayList<> ();
+		for (Demand d : netPlan.getDemands()) res.add(d.getCarriedTraffic());
+		res.add((double) netPlan.getLinksDownAllLayers().size());
+		return res;
+	}
+
+	/* number of routes after removing the ones traversing failed links, and the carried traffic of each link */
+	private static List<Double> removeFailedRoutes (NetPlan netPlan)
+	{
+		for (Route r : new ArrayList<> (netPlan.getRoutes())) if (r.isDown()) r.remove();
+		final List<Double> res = new ArrayList<> ();
+		res.add((double) netPlan.getNumberOfRoutes());
+		for (Link e : netPlan.getLinks()) res.add(e.getCarriedTraffic());
+		return res;
+	}
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Pair;
+
+public class GraphTheoryMetricsTest
+{
+	private NetPlan np;
+	private Node n0, n1, n2, n3;
+	private Link e03, e30;
+
+	/* a bidirectional ring n0 - n1 - n2 - n3 - n0 */
+	@Before
+	public void setUp() throws Exception
+	{
+		this.np = new NetPlan ();
+		this.n0 = np.addNode(0 , 0 , "n0" , null);
+		this.n1 = np.addNode(0 , 0 , "n1" , null);
+		this.n2 = np.addNode(0 , 0 , "n2" , null);
+		this.n3 = np.addNode(0 , 0 , "n3" , null);
+		np.addLinkBidirectional(n0 , n1 , 1 , 1 , 200000 , null);
+		np.addLinkBidirectional(n1 , n2 , 1 , 1 , 200000 , null);
+		np.addLinkBidirectional(n2 , n3 , 1 , 1 , 200000 , null);
+		final Pair<Link,Link> pair03 = np.addLinkBidirectional(n0 , n3 , 1 , 1 , 200000 , null);
+		this.e03 = pair03.getFirst();
+		this.e30 = pair03.getSecond();
+	}
+
+	@Test
+	public void testUnitCosts()
+	{
+		final GraphTheoryMetrics metrics = new GraphTheoryMetrics(np.getNodes() , np.getLinks() , null);
+		assertEquals (2 , metrics.getDiameter() , 1e-9);
+		assertEquals (16.0 / 12 , metrics.getAverageShortestPathDistance() , 1e-9);
+		assertEquals (2 , metrics.getAverageOutNodeDegree() , 1e-9);
+		/* each node is traversed by half of the shortest paths between its two neighbors, in each direction */
+		for (Node n : np.getNodes()) assertEquals (1 , metrics.getNodeBetweenessCentrality().get(n.getIndex()) , 1e-9);
+		for (Link e : np.getLinks()) assertEquals (2 , metrics.getLinkBetweenessCentrality().get(e.getIndex()) , 1e-9);
+		assertEquals (2 , metrics.getLinkConnectivity());
+		assertEquals (2 , metrics.getNodeConnectivity());
+		assertEquals (1 , metrics.getAverageTwoTermReliability() , 1e-9);
+	}
+
+	@Test
+	public void testLinkCosts()
+	{
+		final SortedMap<Link,Double> linkCostMap = new TreeMap<> ();
+		for (Link e : np.getLinks()) linkCostMap.put(e , e == e03 || e == e30? 10.0 : 1.0);
+		final GraphTheoryMetrics metrics = new GraphTheoryMetrics(np.getNodes() , np.getLinks() , linkCostMap);
+		/* the shortest paths follow the line n0 - n1 - n2 - n3 */
+		assertEquals (3 , metrics.getDiameter() , 1e-9);
+		assertEquals (20.0 / 12 , metrics.getAverageShortestPathDistance() , 1e-9);
+		assertEquals (0 , metrics.getLinkBetweenessCentrality().get(e03.getIndex()) , 1e-9);
+		assertEquals (4 , metrics.getNodeBetweenessCentrality().get(n1.getIndex()) , 1e-9);
+		assertEquals (0 , metrics.getNodeBetweenessCentrality().get(n3.getIndex()) , 1e-9);
+
+		/* the cost of the links does not change the connectivity */
+		metrics.configureLinkCostMap(null);
+		assertEquals (2 , metrics.getDiameter() , 1e-9);
+		assertEquals (1 , metrics.getNodeBetweenessCentrality().get(n3.getIndex()) , 1e-9);
+	}
+
+	@Test
+	public void testSameAsBruteForce()
+	{
+		/* a random multigraph with parallel links and unused links, with enough nodes to be split in several blocks of origin nodes */
+		final Random rng = new Random (1L);
+		final NetPlan npRandom = new NetPlan ();
+		final int N = 50;
+		final List<Node> nodes = new ArrayList<> ();
+		for (int n = 0; n < N ; n ++) nodes.add(npRandom.addNode(0 , 0 , "n" + n , null));
+		for (int cont = 0; cont < 4 * N ; cont ++)
+		{
+			final Node a = nodes.get(rng.nextInt(N)), b = nodes.get(rng.nextInt(N));
+			if (a != b) npRandom.addLink(a , b , 1 , 1 , 200000 , null);
+		}
+		npRandom.addLink(nodes.get(0) , nodes.get(1) , 1 , 1 , 200000 , null);
+		npRandom.addLink(nodes.get(0) , nodes.get(1) , 1 , 1 , 200000 , null);
+		final List<Link> links = npRandom.getLinks();
+		final SortedMap<Link,Double> linkCostMap = new TreeMap<> ();
+		for (Link e : links) linkCostMap.put(e , rng.nextInt(10) == 0? Double.MAX_VALUE : 1.0 + rng.nextInt(3));
+
+		for (SortedMap<Link,Double> costMap : Arrays.asList(null , linkCostMap))
+		{
+			final double [] c_e = new double [links.size()];
+			for (Link e : links) c_e [e.getIndex()] = costMap == null? 1 : costMap.get(e);
+
+			/* distances (Floyd-Warshall) and number of shortest paths, where the nodes are visited in increasing distance */
+			final double [][] dist = new double [N][N];
+			for (int s = 0; s < N ; s ++) { Arrays.fill(dist [s] , Double.MAX_VALUE); dist [s][s] = 0; }
+			for (Link e : links)
+			{
+				final int a = e.getOriginNode().getIndex(), b = e.getDestinationNode().getIndex();
+				if (a != b && c_e [e.getIndex()] != Double.MAX_VALUE) dist [a][b] = Math.min(dist [a][b] , c_e [e.getIndex()]);
+			}
+			for (int k = 0; k < N ; k ++) for (int s = 0; s < N ; s ++) for (int t = 0; t < N ; t ++)
+				if (dist [s][k] != Double.MAX_VALUE && dist [k][t] != Double.MAX_VALUE) dist [s][t] = Math.min(dist [s][t] , dist [s][k] + dist [k][t]);
+			final double [][] sigma = new double [N][N];
+			for (int s = 0; s < N ; s ++)
+			{
+				final int origin = s;
+				final Integer [] order = new Integer [N];
+				for (int n = 0; n < N ; n ++) order [n] = n;
+				Arrays.sort(order , (n1 , n2) -> Double.compare(dist [origin][n1] , dist [origin][n2]));
+				sigma [s][s] = 1;
+				for (int t : order)
+				{
+					if (t == s || dist [s][t] == Double.MAX_VALUE) continue;
+					for (Link e : links)
+						if (e.getDestinationNode().getIndex() == t && isInShortestPath(e , c_e , dist , s , t)) sigma [s][t] += sigma [s][e.getOriginNode().getIndex()];
+				}
+			}
+
+			/* the metrics of each pair of different nodes connected by a path */
+			final double [] nodeBetweenness = new double [N];
+			final double [] linkBetweenness = new double [links.size()];
+			double sumDistances = 0, maxDistance = 0;
+			final List<Double> distances = new ArrayList<> ();
+			for (int s = 0; s < N ; s ++)
+				for (int t = 0; t < N ; t ++)
+				{
+					if (s == t || dist [s][t] == Double.MAX_VALUE) continue;
+					distances.add(dist [s][t]);
+					sumDistances += dist [s][t];
+					maxDistance = Math.max(maxDistance , dist [s][t]);
+					for (int v = 0; v < N ; v ++)
+						if (v != s && v != t && dist [s][v] != Double.MAX_VALUE && dist [v][t] != Double.MAX_VALUE && dist [s][v] + dist [v][t] == dist [s][t])
+							nodeBetweenness [v] += sigma [s][v] * sigma [v][t] / sigma [s][t];
+					for (Link e : links)
+						if (isInShortestPath(e , c_e , dist , s , t)) linkBetweenness [e.getIndex()] += sigma [s][e.getOriginNode().getIndex()] * sigma [e.getDestinationNode().getIndex()][t] / sigma [s][t];
+				}
+			final double average = sumDistances / distances.size();
+			double sumSquaredDeviations = 0;
+			for (double d : distances) sumSquaredDeviations += (d - average) * (d - average);
+
+			final GraphTheoryMetrics metrics = new GraphTheoryMetrics(nodes , links , costMap);
+			assertEquals (maxDistance , metrics.getDiameter() , 1e-9);
+			assertEquals (average , metrics.getAverageShortestPathDistance() , 1e-9);
+			assertEquals (Math.sqrt(sumSquaredDeviations / distances.size()) / average , metrics.getHeterogeneity() , 1e-9);
+			for (int n = 0; n < N ; n ++) assertEquals (nodeBetweenness [n] , metrics.getNodeBetweenessCentrality().get(n) , 1e-6);
+			for (Link e : links) assertEquals (linkBetweenness [e.getIndex()] , metrics.getLinkBetweenessCentrality().get(e.getIndex()) , 1e-6);
+		}
+	}
+
+	/* the link is in a shortest path from s to t */
+	private static boolean isInShortestPath (Link e , double [] c_e , double [][] dist , int s , int t)
+	{
+		final int a = e.getOriginNode().getIndex(), b = e.getDestinationNode().getIndex();
+		if (a == b || c_e [e.getIndex()] == Double.MAX_VALUE || dist [s][a] == Double.MAX_VALUE || dist [b][t] == Double.MAX_VALUE) return false;
+		return dist [s][a] + c_e [e.getIndex()] + dist [b][t] == dist [s][t];
+	}
+}
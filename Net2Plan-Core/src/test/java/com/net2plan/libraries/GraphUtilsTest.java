@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.libraries.GraphUtils.JUNGUtils;
+import com.net2plan.utils.Pair;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+
+public class GraphUtilsTest
+{
+	private NetPlan np;
+	private List<Node> nodes;
+
+	/* a random multigraph of six nodes: some node pairs are not connected, and some have parallel links */
+	@Before
+	public void setUp() throws Exception
+	{
+		final Random rng = new Random (1L);
+		this.np = new NetPlan ();
+		this.nodes = new ArrayList<> ();
+		for (int n = 0; n < 6 ; n ++) nodes.add(np.addNode(0 , 0 , "n" + n , null));
+		for (int cont = 0; cont < 16 ; cont ++)
+		{
+			final Node a = nodes.get(rng.nextInt(5));
+			final Node b = nodes.get(rng.nextInt(5));
+			if (a != b) np.addLink(a , b , 1 + rng.nextInt(10) , 1 + rng.nextInt(100) , 200000 , null);
+		}
+		np.addLink(nodes.get(0) , nodes.get(5) , 10 , 1 , 200000 , null); /* n5 is reachable only from n0, and reaches no node */
+	}
+
+	@Test
+	public void testShortestPath()
+	{
+		final Random rng = new Random (2L);
+		for (int test = 0; test < 20 ; test ++)
+		{
+			final Map<Link,Double> linkCostMap = test == 0? null : randomCosts(rng);
+			for (Node a : nodes) for (Node b : nodes)
+			{
+				if (a == b) continue;
+				final List<Link> path = GraphUtils.getShortestPath(np.getNodes() , np.getLinks() , a , b , linkCostMap);
+				final List<List<Link>> allPaths = getAllSimplePaths(a , b , linkCostMap , null , 0);
+				if (allPaths.isEmpty ()) { assertTrue (path.isEmpty()); continue; }
+				checkPath (path , a , b , linkCostMap , null , 0);
+				assertEquals (getMinCost(allPaths , linkCostMap) , getCost(path , linkCostMap) , 1e-9);
+
+				/* the same cost as the former JUNG implementation */
+				final List<Link> linksToUse = linkCostMap == null? np.getLinks() : np.getLinks().stream().filter(e -> linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
+				final List<Link> jungPath = JUNGUtils.getShortestPath(JUNGUtils.getGraphFromLinkMap(np.getNodes() , linksToUse) , JUNGUtils.getEdgeWeightTransformer(linkCostMap) , a , b);
+				assertEquals (getCost(jungPath , linkCostMap) , getCost(path , linkCostMap) , 1e-9);
+			}
+		}
+		assertTrue (GraphUtils.getShortestPath(np.getNodes() , np.getLinks() , nodes.get(5) , nodes.get(0) , null).isEmpty());
+	}
+
+	@Test
+	public void testCapacitatedShortestPath()
+	{
+		final Random rng = new Random (3L);
+		for (int test = 0; test < 20 ; test ++)
+		{
+			final SortedMap<Link,Double> linkCostMap = randomCosts(rng);
+			final SortedMap<Link,Double> linkSpareCapacityMap = new TreeMap<> ();
+			for (Link e : np.getLinks()) linkSpareCapacityMap.put(e , (double) rng.nextInt(10));
+			final double capacityGoal = rng.nextInt(8);
+			for (Node a : nodes) for (Node b : nodes)
+			{
+				if (a == b) continue;
+				final List<Link> path = GraphUtils.getCapacitatedShortestPath(np.getNodes() , np.getLinks() , a , b , linkCostMap , linkSpareCapacityMap , capacityGoal);
+				final List<List<Link>> allPaths = getAllSimplePaths(a , b , linkCostMap , linkSpareCapacityMap , capacityGoal);
+				if (allPaths.isEmpty ()) { assertTrue (path.isEmpty()); continue; }
+				checkPath (path , a , b , linkCostMap , linkSpareCapacityMap , capacityGoal);
+				assertEquals (getMinCost(allPaths , linkCostMap) , getCost(path , linkCostMap) , 1e-9);
+			}
+		}
+
+		/* with no spare capacity map, the spare capacity is the link capacity minus its occupation */
+		final Node a = nodes.get(0);
+		final Node b = nodes.get(5);
+		assertEquals (1 , GraphUtils.getCapacitatedShortestPath(np.getNodes() , np.getLinks() , a , b , null , null , 10).size());
+		assertTrue (GraphUtils.getCapacitatedShortestPath(np.getNodes() , np.getLinks() , a , b , null , null , 11).isEmpty());
+	}
+
+	@Test
+	public void testTwoLinkDisjointPaths()
+	{
+		final Random rng = new Random (4L);
+		for (int test = 0; test < 20 ; test ++)
+		{
+			final Map<Link,Double> linkCostMap = test == 0? null : randomCosts(rng);
+			for (Node a : nodes) for (Node b : nodes)
+			{
+				if (a == b) continue;
+				final List<List<Link>> paths = GraphUtils.getTwoLinkDisjointPaths(np.getNodes() , np.getLinks() , a , b , linkCostMap);
+				final List<List<Link>> allPaths = getAllSimplePaths(a , b , linkCostMap , null , 0);
+				double bestPairCost = Double.MAX_VALUE;
+				for (int i = 0; i < allPaths.size() ; i ++)
+					for (int j = i + 1; j < allPaths.size() ; j ++)
+						if (Collections.disjoint(allPaths.get(i) , allPaths.get(j)))
+							bestPairCost = Math.min(bestPairCost , getCost(allPaths.get(i) , linkCostMap) + getCost(allPaths.get(j) , linkCostMap));
+				if (allPaths.isEmpty ()) { assertTrue (paths.isEmpty()); continue; }
+				for (List<Link> path : paths) checkPath (path , a , b , linkCostMap , null , 0);
+				if (bestPairCost == Double.MAX_VALUE)
+				{
+					/* no disjoint pair: only the shortest path */
+					assertEquals (1 , paths.size());
+					assertEquals (getMinCost(allPaths , linkCostMap) , getCost(paths.get(0) , linkCostMap) , 1e-9);
+					continue;
+				}
+				assertEquals (2 , paths.size());
+				assertTrue (Collections.disjoint(paths.get(0) , paths.get(1)));
+				assertTrue (getCost(paths.get(0) , linkCostMap) <= getCost(paths.get(1) , linkCostMap));
+				assertEquals (bestPairCost , getCost(paths.get(0) , linkCostMap) + getCost(paths.get(1) , linkCostMap) , 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testKLooplessShortestPaths()
+	{
+		final Random rng = new Random (5L);
+		for (int test = 0; test < 10 ; test ++)
+		{
+			final SortedMap<Link,Double> linkCostMap = randomCosts(rng);
+			final int K = 1 + rng.nextInt(6);
+			final double maxRouteCost = test % 2 == 0? -1 : 3 + rng.nextInt(6);
+			final double maxRouteCostRespectToShortestPath = test % 3 == 0? -1 : rng.nextInt(4);
+			final SortedSet<Pair<Node,Node>> nodePairs = new TreeSet<> ();
+			for (Node a : nodes) for (Node b : nodes) if (a != b) nodePairs.add(Pair.of(a , b));
+			final SortedMap<Pair<Node,Node>,List<List<Link>>> pathsPerPair = GraphUtils.getKLooplessShortestPaths(np.getNodes() , np.getLinks() , nodePairs , linkCostMap , K , -1 , -1 , -1 , maxRouteCost , -1 , maxRouteCostRespectToShortestPath);
+			assertEquals (nodePairs , pathsPerPair.keySet());
+			for (Pair<Node,Node> pair : nodePairs)
+			{
+				final Node a = pair.getFirst();
+				final Node b = pair.getSecond();
+				final List<List<Link>> paths = pathsPerPair.get(pair);
+				assertEquals (paths , GraphUtils.getKLooplessShortestPaths(np.getNodes() , np.getLinks() , a , b , linkCostMap , K , -1 , -1 , -1 , maxRouteCost , -1 , maxRouteCostRespectToShortestPath));
+
+				/* the shortest path, and then the costs of the K-1 next cheapest simple paths within the cost limits, in increasing order (as in the former
+				 * implementation, the shortest path is not checked against the cost limits) */
+				final List<List<Link>> allPaths = getAllSimplePaths(a , b , linkCostMap , null , 0);
+				final List<Double> expectedCosts = allPaths.stream().map(p -> getCost(p , linkCostMap)).sorted().collect(Collectors.toList());
+				if (!expectedCosts.isEmpty ())
+				{
+					final double shortestPathCost = expectedCosts.get(0);
+					expectedCosts.subList(1 , expectedCosts.size()).removeIf(c -> (maxRouteCost > 0 && c > maxRouteCost) || (maxRouteCostRespectToShortestPath > 0 && c > shortestPathCost + maxRouteCostRespectToShortestPath));
+					if (expectedCosts.size() > K) expectedCosts.subList(K , expectedCosts.size()).clear();
+				}
+				assertEquals (expectedCosts , paths.stream().map(p -> getCost(p , linkCostMap)).collect(Collectors.toList()));
+				assertEquals (paths.size() , new HashSet<> (paths).size());
+				for (List<Link> path : paths) checkPath (path , a , b , linkCostMap , null , 0);
+			}
+
+			/* the candidate path list of the design, with a limit in the number of hops, which all the paths satisfy */
+			final DoubleMatrix1D linkCosts = DoubleFactory1D.dense.make(np.getNumberOfLinks());
+			for (Link e : np.getLinks()) linkCosts.set(e.getIndex() , linkCostMap.get(e));
+			final SortedMap<Pair<Node,Node>,List<List<Link>>> cpl = np.computeUnicastCandidatePathList(linkCosts , K , -1 , -1 , -1 , maxRouteCost , -1 , maxRouteCostRespectToShortestPath , null);
+			assertEquals (pathsPerPair , cpl);
+			final int maxNumHops = 1 + rng.nextInt(3);
+			for (List<List<Link>> paths : np.computeUnicastCandidatePathList(linkCosts , K , -1 , maxNumHops , -1 , -1 , -1 , -1 , null).values())
+				for (List<Link> path : paths) assertTrue (path.size() <= maxNumHops);
+		}
+	}
+
+	@Test
+	public void testGraphRebuiltWhenLinksChange()
+	{
+		final Node n0 = nodes.get(0);
+		final Node n5 = nodes.get(5);
+		final Node n4 = nodes.get(4);
+		final SharedCompactGraph g = SharedCompactGraph.get(np.getNodes() , np.getLinks());
+		assertTrue (g == SharedCompactGraph.get(new ArrayList<> (np.getNodes()) , new ArrayList<> (np.getLinks())));
+		assertTrue (GraphUtils.getShortestPath(np.getNodes() , np.getLinks() , n5 , n4 , null).isEmpty());
+
+		/* a new link is used in the next call */
+		final Link e54 = np.addLink(n5 , n4 , 10 , 1 , 200000 , null);
+		assertEquals (Arrays.asList(e54) , GraphUtils.getShortestPath(np.getNodes() , np.getLinks() , n5 , n4 , null));
+		assertEquals (1 , GraphUtils.getTwoLinkDisjointPaths(np.getNodes() , np.getLinks() , n5 , n4 , null).size());
+		assertFalse (g == SharedCompactGraph.get(np.getNodes() , np.getLinks()));
+
+		/* a removed link is not */
+		final Link e05 = np.getNodePairLinks(n0 , n5 , false).first();
+		e54.remove();
+		assertTrue (GraphUtils.getShortestPath(np.getNodes() , np.getLinks() , n5 , n4 , null).isEmpty());
+		e05.remove();
+		assertTrue (GraphUtils.getShortestPath(np.getNodes() , np.getLinks() , n0 , n5 , null).isEmpty());
+		assertTrue (GraphUtils.getCapacitatedShortestPath(np.getNodes() , np.getLinks() , n0 , n5 , null , null , 0).isEmpty());
+
+		/* the same number of links, but not the same ones */
+		final Link new05 = np.addLink(n0 , n5 , 10 , 1 , 200000 , null);
+		assertEquals (Arrays.asList(new05) , GraphUtils.getShortestPath(np.getNodes() , np.getLinks() , n0 , n5 , null));
+	}
+
+	/* integer costs, with some links not usable */
+	private SortedMap<Link,Double> randomCosts (Random rng)
+	{
+		final SortedMap<Link,Double> res = new TreeMap<> ();
+		for (Link e : np.getLinks()) res.put(e , rng.nextInt(8) == 0? Double.MAX_VALUE : 1 + rng.nextInt(4));
+		return res;
+	}
+
+	private static boolean isUsable (Link e , Map<Link,Double> linkCostMap , Map<Link,Double> linkSpareCapacityMap , double capacityGoal)
+	{
+		if (linkCostMap != null && linkCostMap.get(e) == Double.MAX_VALUE) return false;
+		return linkSpareCapacityMap == null || linkSpareCapacityMap.get(e) >= capacityGoal;
+	}
+
+	private static double getCost (List<Link> path , Map<Link,Double> linkCostMap)
+	{
+		double res = 0;
+		for (Link e : path) res += linkCostMap == null? 1 : linkCostMap.get(e);
+		return res;
+	}
+
+	private static double getMinCost (List<List<Link>> paths , Map<Link,Double> linkCostMap)
+	{
+		double res = Double.MAX_VALUE;
+		for (List<Link> path : paths) res = Math.min(res , getCost(path , linkCostMap));
+		return res;
+	}
+
+	private static void checkPath (List<Link> path , Node a , Node b , Map<Link,Double> linkCostMap , Map<Link,Double> linkSpareCapacityMap , double capacityGoal)
+	{
+		assertFalse (path.isEmpty());
+		assertTrue (path.get(0).getOriginNode() == a);
+		assertTrue (path.get(path.size() - 1).getDestinationNode() == b);
+		for (int cont = 0; cont < path.size() ; cont ++)
+		{
+			assertTrue (isUsable(path.get(cont) , linkCostMap , linkSpareCapacityMap , capacityGoal));
+			if (cont > 0) assertTrue (path.get(cont - 1).getDestinationNode() == path.get(cont).getOriginNode());
+		}
+	}
+
+	/* all the paths from a to b that do not repeat nodes, by brute force */
+	private List<List<Link>> getAllSimplePaths (Node a , Node b , Map<Link,Double> linkCostMap , Map<Link,Double> linkSpareCapacityMap , double capacityGoal)
+	{
+		final List<List<Link>> res = new ArrayList<> ();
+		final Set<Node> visited = new HashSet<> ();
+		visited.add(a);
+		addSimplePaths (a , b , new ArrayList<> () , visited , linkCostMap , linkSpareCapacityMap , capacityGoal , res);
+		return res;
+	}
+
+	private void addSimplePaths (Node n , Node b , List<Link> head , Set<Node> visited , Map<Link,Double> linkCostMap , Map<Link,Double> linkSpareCapacityMap , double capacityGoal , List<List<Link>> res)
+	{
+		if (n == b) { res.add(new ArrayList<> (head)); return; }
+		for (Link e : n.getOutgoingLinks(np.getNetworkLayerDefault()))
+		{
+			if (!isUsable(e , linkCostMap , linkSpareCapacityMap , capacityGoal) || visited.contains(e.getDestinationNode())) continue;
+			visited.add(e.getDestinationNode());
+			head.add(e);
+			addSimplePaths (e.getDestinationNode() , b , head , visited , linkCostMap , linkSpareCapacityMap , capacityGoal , res);
+			head.remove(head.size() - 1);
+			visited.remove(e.getDestinationNode());
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Constants.RoutingType;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+
+public class IGPWeightEvaluatorTest
+{
+	private NetPlan np;
+
+	/* a ring of six nodes with two chords and two parallel links, and one demand per node pair */
+	@Before
+	public void setUp() throws Exception
+	{
+		this.np = new NetPlan ();
+		final List<Node> nodes = new ArrayList<> ();
+		for (int n = 0; n < 6 ; n ++) nodes.add(np.addNode(0 , 0 , "n" + n , null));
+		for (int n = 0; n < 6 ; n ++) np.addLinkBidirectional(nodes.get(n) , nodes.get((n + 1) % 6) , 100 , 1 , 200000 , null);
+		np.addLinkBidirectional(nodes.get(0) , nodes.get(3) , 100 , 1 , 200000 , null);
+		np.addLinkBidirectional(nodes.get(1) , nodes.get(4) , 100 , 1 , 200000 , null);
+		np.addLinkBidirectional(nodes.get(0) , nodes.get(1) , 100 , 1 , 200000 , null);
+		for (Node n1 : nodes) for (Node n2 : nodes) if (n1 != n2) np.addDemand(n1 , n2 , 1 + n1.getIndex() + 2 * n2.getIndex() , RoutingType.HOP_BY_HOP_ROUTING , null);
+	}
+
+	@Test
+	public void testIncrementalUpdates()
+	{
+		final Random rng = new Random (1L);
+		final int E = np.getNumberOfLinks();
+		final DoubleMatrix1D w = DoubleFactory1D.dense.make(E , 1.0);
+		final IGPWeightEvaluator evaluator = new IGPWeightEvaluator(np , w);
+		checkCarriedTraffic(evaluator.getCarriedTrafficPerLink() , w);
+
+		/* single weight changes, with ties among paths (small integer weights) and links that are not used */
+		for (int change = 0; change < 200 ; change ++)
+		{
+			final int e = rng.nextInt(E);
+			final double weight = rng.nextInt(10) == 0? Double.MAX_VALUE : 1 + rng.nextInt(3);
+			w.set(e , weight);
+			evaluator.setLinkWeight(e , weight);
+			checkCarriedTraffic(evaluator.getCarriedTrafficPerLink() , w);
+			for (int cont = 0; cont < E ; cont ++) assertEquals (evaluator.getCarriedTrafficPerLink().get(cont) , evaluator.getCarriedTraffic(cont) , 0);
+		}
+
+		/* changes in several weights at once, which may be incremental or a full recomputation */
+		for (int change = 0; change < 20 ; change ++)
+		{
+			final int numChangedWeights = 1 + rng.nextInt(change < 10? 2 : E);
+			for (int cont = 0; cont < numChangedWeights ; cont ++) w.set(rng.nextInt(E) , 1 + rng.nextInt(3));
+			evaluator.setLinkWeights(w);
+			checkCarriedTraffic(evaluator.getCarriedTrafficPerLink() , w);
+		}
+	}
+
+	@Test
+	public void testParallelEvaluation()
+	{
+		final Random rng = new Random (2L);
+		final int E = np.getNumberOfLinks();
+		final IGPWeightEvaluator evaluator = new IGPWeightEvaluator(np , DoubleFactory1D.dense.make(E , 1.0));
+		final DoubleMatrix1D carriedTrafficBefore = evaluator.getCarriedTrafficPerLink();
+
+		/* two calls, so the second one reuses the copies of the first one, in another state */
+		for (int call = 0; call < 2 ; call ++)
+		{
+			final List<DoubleMatrix1D> weightSettings = new ArrayList<> ();
+			for (int setting = 0; setting < 50 ; setting ++)
+			{
+				final DoubleMatrix1D w = DoubleFactory1D.dense.make(E , 1.0);
+				for (int e = 0; e < E ; e ++) w.set(e , 1 + rng.nextInt(4));
+				weightSettings.add(w);
+			}
+			final List<DoubleMatrix1D> carriedTraffic = evaluator.computeCarriedTrafficPerLink(weightSettings);
+			assertEquals (weightSettings.size() , carriedTraffic.size());
+			for (int setting = 0; setting < weightSettings.size() ; setting ++)
+				checkCarriedTraffic(carriedTraffic.get(setting) , weightSettings.get(setting));
+		}
+		assertEquals (carriedTrafficBefore , evaluator.getCarriedTrafficPerLink());
+	}
+
+	private void checkCarriedTraffic (DoubleMatrix1D y_e , DoubleMatrix1D w)
+	{
+		final DoubleMatrix1D expected_y_e = IPUtils.computeCarriedTrafficFromIGPWeights(np , w).getFourth();
+		for (int e = 0; e < np.getNumberOfLinks() ; e ++)
+			assertEquals (expected_y_e.get(e) , y_e.get(e) , 1e-6);
+	}
+}
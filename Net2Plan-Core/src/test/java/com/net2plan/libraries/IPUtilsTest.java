@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Constants.RoutingType;
+import com.net2plan.utils.Pair;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+public class IPUtilsTest
+{
+	private NetPlan np;
+	private Node n0, n1, n2, n3;
+	private Link e01, e03;
+	private Demand d02;
+
+	/* a bidirectional ring n0 - n1 - n2 - n3 - n0 */
+	@Before
+	public void setUp() throws Exception
+	{
+		this.np = new NetPlan ();
+		this.n0 = np.addNode(0 , 0 , "n0" , null);
+		this.n1 = np.addNode(0 , 0 , "n1" , null);
+		this.n2 = np.addNode(0 , 0 , "n2" , null);
+		this.n3 = np.addNode(0 , 0 , "n3" , null);
+		final Pair<Link,Link> pair01 = np.addLinkBidirectional(n0 , n1 , 10 , 1 , 200000 , null);
+		np.addLinkBidirectional(n1 , n2 , 10 , 1 , 200000 , null);
+		np.addLinkBidirectional(n2 , n3 , 10 , 1 , 200000 , null);
+		final Pair<Link,Link> pair03 = np.addLinkBidirectional(n0 , n3 , 10 , 1 , 200000 , null);
+		this.e01 = pair01.getFirst();
+		this.e03 = pair03.getFirst();
+		this.d02 = np.addDemand(n0 , n2 , 4 , RoutingType.HOP_BY_HOP_ROUTING , null);
+	}
+
+	@Test
+	public void testECMPRoutingTableAfterWeightChanges()
+	{
+		final DoubleMatrix1D w = DoubleFactory1D.dense.make(np.getNumberOfLinks() , 1.0);
+		DoubleMatrix2D f_te = IPUtils.computeECMPRoutingTableMatrix_fte(np.getNodes() , np.getLinks() , w);
+		assertEquals (0.5 , f_te.get(n2.getIndex() , e01.getIndex()) , 1e-9);
+		assertEquals (0.5 , f_te.get(n2.getIndex() , e03.getIndex()) , 1e-9);
+
+		/* the incremental update gives the same table as a new computation */
+		w.set(e03.getIndex() , 5.0);
+		f_te = IPUtils.computeECMPRoutingTableMatrix_fte(np.getNodes() , np.getLinks() , w);
+		assertEquals (1.0 , f_te.get(n2.getIndex() , e01.getIndex()) , 1e-9);
+		assertEquals (0 , f_te.get(n2.getIndex() , e03.getIndex()) , 1e-9);
+		assertEquals (1.0 , f_te.get(n3.getIndex() , e01.getIndex()) , 1e-9);
+		/* only the destinations n2 and n3 used the link n0 - n3 */
+		final EcmpRoutingTable table = EcmpRoutingTable.get(np.getNodes() , np.getLinks());
+		assertEquals (2 , table.getNumberOfDestinationsRecomputedInLastUpdate());
+
+		/* the link is no longer used, so removing it changes nothing */
+		w.set(e03.getIndex() , Double.MAX_VALUE);
+		f_te = IPUtils.computeECMPRoutingTableMatrix_fte(np.getNodes() , np.getLinks() , w);
+		assertEquals (1.0 , f_te.get(n3.getIndex() , e01.getIndex()) , 1e-9);
+		assertEquals (0 , table.getNumberOfDestinationsRecomputedInLastUpdate());
+
+		/* back to the original weights */
+		w.set(e03.getIndex() , 1.0);
+		f_te = IPUtils.computeECMPRoutingTableMatrix_fte(np.getNodes() , np.getLinks() , w);
+		assertEquals (0.5 , f_te.get(n2.getIndex() , e03.getIndex()) , 1e-9);
+		assertEquals (1.0 , f_te.get(n3.getIndex() , e03.getIndex()) , 1e-9);
+	}
+
+	@Test
+	public void testSetECMPForwardingRulesFromLinkWeights()
+	{
+		final DoubleMatrix1D w = DoubleFactory1D.dense.make(np.getNumberOfLinks() , 1.0);
+		IPUtils.setECMPForwardingRulesFromLinkWeights(np , w);
+		assertEquals (2 , e01.getCarriedTraffic() , 1e-9);
+		assertEquals (2 , e03.getCarriedTraffic() , 1e-9);
+		assertEquals (0.5 , d02.getForwardingRuleSplittingFactor(e01) , 1e-9);
+
+		w.set(e03.getIndex() , 5.0);
+		IPUtils.setECMPForwardingRulesFromLinkWeights(np , w);
+		assertEquals (4 , e01.getCarriedTraffic() , 1e-9);
+		assertEquals (0 , e03.getCarriedTraffic() , 1e-9);
+		assertEquals (3 , d02.getNumberOfForwardingRules());
+	}
+
+	@Test
+	public void testECMPRoutingTableSameAsBruteForce()
+	{
+		/* a random multigraph with small integer weights (many ties), parallel links, unusable links and nodes that do not reach some destinations */
+		final Random rng = new Random (1L);
+		final NetPlan netPlan = new NetPlan ();
+		for (int n = 0; n < 7 ; n ++) netPlan.addNode(0 , 0 , "n" + n , null);
+		for (int cont = 0; cont < 20 ; cont ++)
+		{
+			final Node a = netPlan.getNode(rng.nextInt(6));
+			final Node b = netPlan.getNode(rng.nextInt(6));
+			if (a != b) netPlan.addLink(a , b , 10 , 1 , 200000 , null);
+		}
+		netPlan.addLink(netPlan.getNode(0) , netPlan.getNode(6) , 10 , 1 , 200000 , null);
+		final int N = netPlan.getNumberOfNodes();
+		final int E = netPlan.getNumberOfLinks();
+		final DoubleMatrix1D w = DoubleFactory1D.dense.make(E , 1.0);
+		for (int test = 0; test < 30 ; test ++)
+		{
+			/* consecutive calls, with a few weights changed each time, so the table is updated incrementally */
+			if (test > 0) for (int cont = 0; cont < 1 + rng.nextInt(3) ; cont ++) w.set(rng.nextInt(E) , rng.nextInt(6) == 0? Double.MAX_VALUE : 1 + rng.nextInt(3));
+			final DoubleMatrix2D f_te = IPUtils.computeECMPRoutingTableMatrix_fte(netPlan.getNodes() , netPlan.getLinks() , w);
+
+			/* distances between all the node pairs (Floyd-Warshall), and equal split among the outgoing links in a shortest path */
+			final double [][] dist = new double [N][N];
+			for (int i = 0; i < N ; i ++) { Arrays.fill(dist [i] , Double.MAX_VALUE); dist [i][i] = 0; }
+			for (Link e : netPlan.getLinks())
+				if (w.get(e.getIndex()) != Double.MAX_VALUE)
+					dist [e.getOriginNode().getIndex()][e.getDestinationNode().getIndex()] = Math.min(dist [e.getOriginNode().getIndex()][e.getDestinationNode().getIndex()] , w.get(e.getIndex()));
+			for (int k = 0; k < N ; k ++) for (int i = 0; i < N ; i ++) for (int j = 0; j < N ; j ++)
+				if (dist [i][k] != Double.MAX_VALUE && dist [k][j] != Double.MAX_VALUE) dist [i][j] = Math.min(dist [i][j] , dist [i][k] + dist [k][j]);
+			for (int t = 0; t < N ; t ++)
+			{
+				final DoubleMatrix1D expected_e = DoubleFactory1D.dense.make(E);
+				for (Node n : netPlan.getNodes())
+				{
+					final int i = n.getIndex();
+					if (i == t || dist [i][t] == Double.MAX_VALUE) continue;
+					final List<Link> minCostLinks = new ArrayList<> ();
+					for (Link e : n.getOutgoingLinks())
+					{
+						final int j = e.getDestinationNode().getIndex();
+						if (w.get(e.getIndex()) != Double.MAX_VALUE && dist [j][t] != Double.MAX_VALUE && Math.abs(w.get(e.getIndex()) + dist [j][t] - dist [i][t]) < 1e-10) minCostLinks.add(e);
+					}
+					for (Link e : minCostLinks) expected_e.set(e.getIndex() , 1.0 / minCostLinks.size());
+				}
+				for (int e = 0; e < E ; e ++) assertEquals (expected_e.get(e) , f_te.get(t , e) , 1e-9);
+			}
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetPlanChangeJournal;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.libraries.WDMUtils.RSA;
+import com.net2plan.utils.Constants.RoutingType;
+import com.net2plan.utils.StringUtils;
+
+import cern.colt.matrix.tint.IntFactory2D;
+import cern.colt.matrix.tint.IntMatrix2D;
+
+public class WDMUtilsTest
+{
+	private NetPlan np;
+	private Link e01, e12, e02;
+	private Route lp;
+
+	/* three nodes with two fibers in a line and a direct fiber, and a lightpath of two slots from the first to the last node along the line */
+	@Before
+	public void setUp() throws Exception
+	{
+		this.np = new NetPlan ();
+		final Node n0 = np.addNode(0 , 0 , "n0" , null);
+		final Node n1 = np.addNode(0 , 0 , "n1" , null);
+		final Node n2 = np.addNode(0 , 0 , "n2" , null);
+		this.e01 = np.addLink(n0 , n1 , 10 , 1 , 200000 , null);
+		this.e12 = np.addLink(n1 , n2 , 10 , 1 , 200000 , null);
+		this.e02 = np.addLink(n0 , n2 , 10 , 1 , 200000 , null);
+		final Demand d = np.addDemand(n0 , n2 , 10 , RoutingType.SOURCE_ROUTING , null);
+		this.lp = WDMUtils.addLightpath(d , new RSA (Arrays.asList(e01 , e12) , 2 , 2) , 10);
+	}
+
+	@Test
+	public void testCacheHit()
+	{
+		final RSA rsa1 = new RSA (lp , false);
+		assertTrue (rsa1.equals(new RSA (Arrays.asList(e01 , e12) , 2 , 2)));
+
+		/* the RSA objects read do not share their matrices with the parsed information kept in the route */
+		rsa1.seqFrequencySlots_se.set(0 , 0 , 7);
+		rsa1.seqRegeneratorsOccupancy_e [0] = 1;
+		final RSA rsa2 = new RSA (lp , false);
+		assertTrue (rsa2.equals(new RSA (Arrays.asList(e01 , e12) , 2 , 2)));
+		assertNotSame (rsa2.seqFrequencySlots_se , new RSA (lp , false).seqFrequencySlots_se);
+
+		/* the derived object is computed once, and kept until the attributes change */
+		final AtomicInteger numComputations = new AtomicInteger ();
+		final Object derived = lp.getAttributesDerivedObject("test" , e -> { numComputations.incrementAndGet(); return new Object (); });
+		assertSame (derived , lp.getAttributesDerivedObject("test" , e -> { numComputations.incrementAndGet(); return new Object (); }));
+		assertEquals (1 , numComputations.get());
+		lp.setAttribute("anotherAttribute" , "1");
+		assertNotSame (derived , lp.getAttributesDerivedObject("test" , e -> { numComputations.incrementAndGet(); return new Object (); }));
+		assertEquals (2 , numComputations.get());
+	}
+
+	@Test
+	public void testDirectAttributeEdit()
+	{
+		new RSA (lp , false); // the attributes are parsed and kept
+		final IntMatrix2D slots = IntFactory2D.dense.make(new int [][] { { 5 , 6 } , { 6 , 7 } });
+		lp.setAttribute("seqFrequencySlots_se" , StringUtils.writeMatrix(slots));
+		assertTrue (new RSA (lp , false).equals(new RSA (Arrays.asList(e01 , e12) , slots)));
+
+		lp.setAttribute("seqRegenerators" , "0 1");
+		assertTrue (new RSA (lp , false).equals(new RSA (Arrays.asList(e01 , e12) , slots , new int [] { 0 , 1 })));
+
+		lp.setAttributeMap(new TreeMap<> (lp.getAttributes()));
+		lp.removeAttribute("seqRegenerators");
+		assertTrue (new RSA (lp , false).equals(new RSA (Arrays.asList(e01 , e12) , slots)));
+
+		/* undoing the edits through the journal also discards the parsed information */
+		final NetPlanChangeJournal journal = new NetPlanChangeJournal(np , 1000);
+		WDMUtils.setLightpathRSAAttributes(lp , new RSA (Arrays.asList(e01 , e12) , 0 , 2) , false);
+		assertTrue (new RSA (lp , false).equals(new RSA (Arrays.asList(e01 , e12) , 0 , 2)));
+		journal.closeStep().undo(np);
+		assertTrue (new RSA (lp , false).equals(new RSA (Arrays.asList(e01 , e12) , slots)));
+	}
+
+	@Test
+	public void testCopiedDesign()
+	{
+		new RSA (lp , false);
+		final NetPlan npCopy = np.copy();
+		final Route lpCopy = npCopy.getRouteFromId(lp.getId());
+		final Link e01Copy = npCopy.getLinkFromId(e01.getId());
+		final Link e12Copy = npCopy.getLinkFromId(e12.getId());
+		assertTrue (new RSA (lpCopy , false).equals(new RSA (Arrays.asList(e01Copy , e12Copy) , 2 , 2)));
+
+		/* changing the RSA of the copy does not change the RSA of the original design, and the other way round */
+		WDMUtils.setLightpathRSAAttributes(lpCopy , new RSA (Arrays.asList(e01Copy , e12Copy) , 4 , 2) , false);
+		assertTrue (new RSA (lpCopy , false).equals(new RSA (Arrays.asList(e01Copy , e12Copy) , 4 , 2)));
+		assertTrue (new RSA (lp , false).equals(new RSA (Arrays.asList(e01 , e12) , 2 , 2)));
+		WDMUtils.setLightpathRSAAttributes(lp , new RSA (Arrays.asList(e01 , e12) , 6 , 2) , false);
+		assertTrue (new RSA (lpCopy , false).equals(new RSA (Arrays.asList(e01Copy , e12Copy) , 4 , 2)));
+		assertTrue (new RSA (lp , false).equals(new RSA (Arrays.asList(e01 , e12) , 6 , 2)));
+	}
+
+	@Test
+	public void testInitialAndCurrentRSA()
+	{
+		final RSA initialRSA = new RSA (Arrays.asList(e01 , e12) , 2 , 2);
+		assertTrue (new RSA (lp , true).equals(initialRSA));
+		assertTrue (new RSA (lp , false).equals(initialRSA));
+
+		/* the lightpath is moved to the direct fiber: the current RSA changes, and the initial one is kept */
+		final RSA currentRSA = new RSA (Arrays.asList(e02) , 0 , 2);
+		lp.setPath(lp.getCarriedTraffic() , currentRSA.seqLinks , Collections.nCopies(1 , 2.0));
+		WDMUtils.setLightpathRSAAttributes(lp , currentRSA , false);
+		assertTrue (new RSA (lp , false).equals(currentRSA));
+		assertTrue (new RSA (lp , true).equals(initialRSA));
+
+		WDMUtils.revertToInitialRSA(lp);
+		assertTrue (new RSA (lp , false).equals(initialRSA));
+		assertTrue (new RSA (lp , true).equals(initialRSA));
+	}
+}
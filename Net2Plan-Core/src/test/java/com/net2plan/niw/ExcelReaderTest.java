@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * This program and the accompanying materials are made available under the terms of the MIT License available at
+ * https://opensource.org/licenses/MIT
+ *******************************************************************************/
+package com.net2plan.niw;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.utils.Pair;
+
+public class ExcelReaderTest
+{
+	public static final String TEST_FILE_DIRECTORY = "src/test/resources/temp";
+
+	@Before
+	public void setUp() throws Exception
+	{
+		File resourcesDir = new File(TEST_FILE_DIRECTORY);
+		if (!resourcesDir.exists()) resourcesDir.mkdirs();
+	}
+
+	@Test
+	public void testReadOoxmlAndOle2Files() throws Exception
+	{
+		for (Workbook workbook : Arrays.asList(new XSSFWorkbook(), new HSSFWorkbook()))
+		{
+			final File file = new File(TEST_FILE_DIRECTORY, "test." + (workbook instanceof XSSFWorkbook ? "xlsx" : "xls"));
+			final Sheet first = workbook.createSheet("First");
+			Row row = first.createRow(0);
+			row.createCell(0).setCellValue("name");
+			row.createCell(2).setCellValue(true);
+			row = first.createRow(1);
+			row.createCell(1).setCellValue(2.5);
+			row.createCell(2).setCellFormula("B2*2");
+			row.createCell(3);
+			/* the rows after a missing row are not read */
+			first.createRow(3).createCell(0).setCellValue("not read");
+			workbook.createSheet("Second").createRow(0).createCell(0).setCellValue("second");
+			workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+			try (FileOutputStream out = new FileOutputStream(file)) { workbook.write(out); }
+			workbook.close();
+
+			final Object[][] expected = new Object[][] { { "name", null, true }, { null, 2.5, 5.0, null } };
+			final Object[][] firstSheet = ExcelReader.readFile(file).get("First");
+			assertEquals(2, firstSheet.length);
+			for (int i = 0; i < expected.length; i++) assertArrayEquals(expected[i], firstSheet[i]);
+
+			/* the sheets are read row by row in the given order */
+			final List<String> rowsRead = new ArrayList<>();
+			final ObjIntConsumer<Object[]> consumer = (r, i) -> rowsRead.add(i + ":" + Arrays.toString(r));
+			ExcelReader.readSheetsRowByRow(file, Arrays.asList(Pair.of("Second", consumer), Pair.of("First", consumer)));
+			assertEquals(Arrays.asList("0:[second]", "0:[name, null, true]", "1:[null, 2.5, 5.0, null]"), rowsRead);
+
+			try
+			{
+				ExcelReader.readSheetsRowByRow(file, Arrays.asList(Pair.of("Third", consumer)));
+				fail();
+			} catch (Net2PlanException e) {}
+			file.delete();
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.net2plan.niw.networkModel;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -10,6 +11,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.apache.xmlbeans.impl.tool.XSTCTester.TestCase;
@@ -213,6 +217,29 @@ public class NiwModelTest extends TestCase
 
 	}
 
+	@Test
+	public void testElementRegistry ()
+	{
+		/* the wrappers are unique per element, and the lists are shared while the design is not changed */
+		final List<WLightpath> lps = net.getLightpaths();
+		assertTrue(lps == net.getLightpaths());
+		assertTrue(lps == new WNet (net.getNe()).getLightpaths());
+		assertTrue(lps.get(0) == l12);
+		assertTrue(f12.getFirst().getTraversingLps().first() == l12);
+		try { lps.add(l12); fail (); } catch (UnsupportedOperationException e) {}
+
+		/* removing an element gives a new list, and the previous one is not changed */
+		l13.remove();
+		assertEquals(6 , lps.size());
+		assertEquals(net.getLightpaths(), Arrays.asList(l12, l21, l31, l14, l41));
+		assertTrue(lr13.getLightpaths().isEmpty());
+
+		/* the carried traffic of each lightpath is the line rate of its request */
+		l14.getNe().setCarriedTraffic(0.0 , null);
+		net.updateNetPlanObjectInternalState();
+		assertEquals(lr14.getLineRateGbps() , l14.getNe().getCarriedTraffic() , 1e-9);
+	}
+
    @Test
    public void testAlgorithm ()
    {
@@ -225,7 +252,38 @@ public class NiwModelTest extends TestCase
    	netIp.saveToFile(new File ("c:\\Dropbox\\niw_example7nodes_ip.n2p"));
    	netIpOverWdm.saveToFile(new File ("c:\\Dropbox\\niw_example7nodes_ipOverWdm.n2p"));
    }
-    
+
+ 	@Test
+ 	public void testSpectrumOccupation ()
+ 	{
+ 		final List<WFiber> path = Arrays.asList(f12.getFirst(), f23.getFirst());
+ 		final SortedSet<Integer> idleSlots = f12.getFirst().getValidOpticalSlotIds();
+ 		for (WFiber e : path) for (WLightpath lp : e.getTraversingLps()) idleSlots.removeAll(lp.getOpticalSlotIds());
+ 		assertEquals(idleSlots, osm.getAvailableSlotIds(path, Optional.empty(), Optional.empty()));
+
+ 		/* first fit starting at slot 3, with slot 8 forbidden */
+ 		final SortedSet<Integer> forbidden = new TreeSet<> (Arrays.asList(8));
+ 		int firstSlot = 3;
+ 		while (!idleSlots.containsAll(Arrays.asList(firstSlot, firstSlot + 1, firstSlot + 2)) || (firstSlot <= 8 && firstSlot + 2 >= 8)) firstSlot ++;
+ 		final OsmLightpathOccupationInfo info = new OsmLightpathOccupationInfo(path, Optional.empty(), Optional.empty(), Optional.empty());
+ 		final SortedSet<Integer> slots = osm.spectrumAssignment_firstFit(info, 3, Optional.of(3), forbidden).get();
+ 		assertEquals(new TreeSet<> (Arrays.asList(firstSlot, firstSlot + 1, firstSlot + 2)), slots);
+ 		assertTrue(osm.spectrumAssignment_getAllPotentialFirstSlots(info, 3, Optional.of(3), forbidden).first() == firstSlot);
+
+ 		/* allocate and release a lightpath */
+ 		final OsmLightpathOccupationInfo infoWithSlots = new OsmLightpathOccupationInfo(path, Optional.empty(), Optional.empty(), Optional.of(slots));
+ 		assertTrue(osm.isAllocatable(infoWithSlots));
+ 		final WLightpath lp = net.addLightpathRequest(n1, n3, 10.0, false).addLightpathUnregenerated(path, slots, false);
+ 		osm.allocateOccupation(lp, Optional.empty());
+ 		assertTrue(osm.isAlreadyAllocated(lp));
+ 		assertTrue(!osm.isAllocatable(infoWithSlots));
+ 		assertTrue(!osm.isOpticalSlotIdsValidAndIdle(f12.getFirst(), slots));
+ 		assertTrue(osm.getAvailableSlotIds(path, Optional.empty(), Optional.empty()).stream().noneMatch(s -> slots.contains(s)));
+ 		osm.releaseOccupation(lp);
+ 		assertTrue(!osm.isAlreadyAllocated(lp));
+ 		assertEquals(idleSlots, osm.getAvailableSlotIds(path, Optional.empty(), Optional.empty()));
+ 	}
+
  	@Test
  	public void testBase()
  	{
@@ -399,6 +457,43 @@ public class NiwModelTest extends TestCase
 			
 		}
 
+		/* The incremental update detects the changes made through the public API, and gives the same results as computing everything again */
+		final double powerBefore = osm.getOpticalPerformanceAtTransponderReceiverEnd(lps.get(0)).getPower_dbm();
+		lps.get(0).setAddTransponderInjectionPower_dBm(2.0);
+		assertEquals (powerBefore + 2.0 , checkIncrementalUpdate(net, osm).getOpticalPerformanceAtTransponderReceiverEnd(lps.get(0)).getPower_dbm() , 1e-6);
+		ola.setGainDb(18.0);
+		bc.setOlaTraversedInfo(Arrays.asList (ola));
+		checkIncrementalUpdate(net, osm);
+		ab.setLenghtInKm(90.0);
+		checkIncrementalUpdate(net, osm);
+		final SortedMap<String,String> oadmParameters = new TreeMap<> (b.getOpticalSwitchingArchitecture().getCurrentParameters().orElse(b.getOpticalSwitchingArchitecture().getDefaultParameters()));
+		oadmParameters.put(OadmArchitecture_generic.PARAMNAMES.DegreeSplitterCombinerOptionalLoss_dB.name(), "4.0");
+		b.getOpticalSwitchingArchitecture().updateCurrentParameters(oadmParameters);
+		checkIncrementalUpdate(net, osm);
+		lps.get(1).remove();
+		net.addLightpathRequest(a, b, 100.0, false).addLightpathUnregenerated(Arrays.asList(ab), new TreeSet<> (Arrays.asList(60 , 61)), false);
+		checkIncrementalUpdate(net, osm);
+	}
+
+	private static OpticalSimulationModule checkIncrementalUpdate (WNet net , OpticalSimulationModule osm)
+	{
+		osm.updatePerformanceInfo();
+		final OpticalSimulationModule osmFull = new OpticalSimulationModule (net);
+		for (WLightpath lp : net.getLightpaths())
+		{
+			assertEquals (osmFull.getOpticalPerformanceAtTransponderReceiverEnd(lp).getPower_dbm() , osm.getOpticalPerformanceAtTransponderReceiverEnd(lp).getPower_dbm() , 0);
+			assertEquals (osmFull.getOpticalPerformanceAtTransponderReceiverEnd(lp).getOsnrAt12_5GhzRefBw() , osm.getOpticalPerformanceAtTransponderReceiverEnd(lp).getOsnrAt12_5GhzRefBw() , 0);
+			assertEquals (osmFull.getOpticalPerformanceAtTransponderReceiverEnd(lp).getCd_psPerNm() , osm.getOpticalPerformanceAtTransponderReceiverEnd(lp).getCd_psPerNm() , 0);
+			assertEquals (osmFull.getOpticalPerformanceAtTransponderReceiverEnd(lp).getPmdSquared_ps2() , osm.getOpticalPerformanceAtTransponderReceiverEnd(lp).getPmdSquared_ps2() , 0);
+			for (WFiber e : lp.getSeqFibers())
+				assertEquals (osmFull.getOpticalPerformanceOfLightpathAtLineAmplifierInputAndOutput(lp, e, 0).getSecond().getPower_dbm() , osm.getOpticalPerformanceOfLightpathAtLineAmplifierInputAndOutput(lp, e, 0).getSecond().getPower_dbm() , 0);
+		}
+		for (WFiber e : net.getFibers())
+		{
+			assertEquals (osmFull.getTotalPowerAtFiberEndsAfterBoosterBeforePreamplifier_dBm(e) , osm.getTotalPowerAtFiberEndsAfterBoosterBeforePreamplifier_dBm(e));
+			assertEquals (osmFull.getTotalPowerAtLineAmplifierOutputs_dBm(e) , osm.getTotalPowerAtLineAmplifierOutputs_dBm(e));
+		}
+		return osm;
 	}
 
     public static double dB2linear(double dB)
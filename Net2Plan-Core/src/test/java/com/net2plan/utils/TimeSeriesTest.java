@@ -1,12 +1,17 @@
 package com.net2plan.utils;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.SortedMap;
+import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.junit.After;
@@ -175,6 +180,32 @@ public class TimeSeriesTest
 	}
 
 	
+	@Test
+	public void testTrafficForecast_multipleDates ()
+	{
+		final NetworkLayer layer = np.getNetworkLayerDefault();
+		final SortedMap<Demand,Double> originalDemandOffered = new TreeMap<> (np.getDemands().stream().collect(Collectors.toMap(e->e, e->e.getOfferedTraffic())));
+		final Function<Date,Double> factor = date -> 1 + date.getTime() / 36000000.0;
+		final Function<Date,Map<Link,Double>> linkCarried = date -> np.getLinks().stream().collect(Collectors.toMap(e->e, e->e.getCarriedTraffic() * factor.apply(date)));
+		final Function<Date,Map<Demand,Double>> evenDemandOffered = date -> np.getDemands().stream().filter(d->d.getIndex()%2 == 0).collect(Collectors.toMap(e->e, e->e.getOfferedTraffic() * factor.apply(date)));
+		final SortedSet<Date> dates = new TreeSet<> ();
+		for (int t = 0; t < 40 ; t ++) dates.add(new Date (t * 3600000L));
+
+		/* The traffic in each date is the original one scaled, the same as estimating each date separately, and the design is not modified */
+		final SortedMap<Date,TmEstimationResults> tmPerDate = TrafficMatrixForecastUtils.getTmEstimation_minErrorSquares(layer, dates, linkCarried, evenDemandOffered, null, 0.5);
+		assertEquals (dates , tmPerDate.keySet());
+		for (Date date : dates)
+		{
+			final TmEstimationResults tm = TrafficMatrixForecastUtils.getTmEstimation_minErrorSquares(layer, linkCarried.apply(date), evenDemandOffered.apply(date), null, 0.5);
+			for (Demand d : np.getDemands())
+			{
+				assertEquals (originalDemandOffered.get(d) * factor.apply(date) , tmPerDate.get(date).getEstimationDemand(d) , 0.01);
+				assertEquals (tm.getEstimationDemand(d) , tmPerDate.get(date).getEstimationDemand(d) , 0.0001);
+			}
+		}
+		for (Demand d : np.getDemands()) assertEquals (originalDemandOffered.get(d) , d.getOfferedTraffic() , 0.0);
+	}
+
 	@Test
 	public void testSetMaximumLatencyE2E ()
 	{
@@ -261,4 +292,33 @@ public class TimeSeriesTest
 		assertEquals (tp.getPredictorFunctionNoConfidenceInterval().apply(twoYearsAfterInitialDate) , tp.getPredictorFunction(0.5).apply(twoYearsAfterInitialDate) , 0.1);
 	}
 
+	@Test
+	public void testTrafficSeriesStorage ()
+	{
+		final TrafficSeries tts = new TrafficSeries ();
+		tts.addValue(new Date (300), 3.0).addValue(new Date (100), 1.0).addValue(new Date (200), 5.0).addValue(new Date (300), 2.0);
+		tts.addValues(new TrafficSeries (new long [] { 500 , 400 , 100 } , new double [] { 6.0 , 4.0 , 1.5 }).getValues());
+		assertArrayEquals (new long [] { 100 , 200 , 300 , 400 , 500 } , tts.getDatesInMilisecondsAsArray());
+		assertArrayEquals (new double [] { 1.5 , 5.0 , 2.0 , 4.0 , 6.0 } , tts.getValuesAsArray() , 0);
+		assertEquals (tts , TrafficSeries.createFromByteArray(tts.toByteArray()));
+		assertEquals (tts , TrafficSeries.createFromStringList(tts.toStringList()));
+		assertEquals (new TrafficSeries (tts.getValues()) , tts);
+
+		/* interpolation with the neighbor samples, or the first (last) two outside the series */
+		assertEquals (3.0 , tts.getValueOrInterpolation(new Date (350)) , 1e-9);
+		assertEquals (-2.0 , tts.getValueOrInterpolation(new Date (0)) , 1e-9);
+		assertEquals (8.0 , tts.getValueOrInterpolation(new Date (600)) , 1e-9);
+
+		/* the median of each interval, interpolating the dates and values of the two closest samples */
+		final TrafficSeries filtered = tts.getCopy();
+		filtered.applyPercentileFiltering(new Date (0), new Date (500), "hour", 0.5);
+		assertArrayEquals (new long [] { 350 } , filtered.getDatesInMilisecondsAsArray());
+		assertArrayEquals (new double [] { 3.0 } , filtered.getValuesAsArray() , 1e-9);
+		assertEquals (5 , tts.getSize());
+
+		tts.removeValue(new Date (300)).removeAllValuesBeforeOrEqual(new Date (100)).removeAllValuesAfterOrEqual(new Date (450));
+		assertArrayEquals (new long [] { 200 , 400 } , tts.getDatesInMilisecondsAsArray());
+		assertEquals (0 , TrafficSeries.createFromByteArray(new TrafficSeries ().toByteArray()).getSize());
+	}
+
 }
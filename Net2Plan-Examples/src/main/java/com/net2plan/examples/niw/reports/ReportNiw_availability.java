@@ -25,6 +25,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -39,6 +41,7 @@ import com.net2plan.interfaces.networkDesign.NetPlan;
 import com.net2plan.interfaces.networkDesign.NetworkElement;
 import com.net2plan.interfaces.networkDesign.NetworkLayer;
 import com.net2plan.interfaces.networkDesign.SharedRiskGroup;
+import com.net2plan.libraries.FailureStateAnalyzer;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.niw.WNet;
 import com.net2plan.niw.WNode;
@@ -48,8 +51,6 @@ import com.net2plan.utils.Pair;
 import com.net2plan.utils.StringUtils;
 import com.net2plan.utils.Triple;
 
-import cern.colt.list.tdouble.DoubleArrayList;
-import cern.colt.list.tint.IntArrayList;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 
@@ -69,6 +70,8 @@ public class ReportNiw_availability implements IReport
 	private InputParameter linkCapacityPlanning_updateLinkCapacitiesInDesign = new InputParameter ("linkCapacityPlanning_updateLinkCapacitiesInDesign" , false , "If true, the link capacities are updated with the fault-tolerant link capacities estimated, removing any previous capacity values");
 	private InputParameter linkCapacityPlanning_maximumLinkUtilization = new InputParameter ("linkCapacityPlanning_maximumLinkUtilization" , 0.9 , "For dimensioning the link capacities: the required capacity of each link is computed as the minimum multiple of the capacity module, that makes that the link utilization is not above this limit an ANY FAILURE OR NON-FAILURE SITUATION, in the two link directions (is bidirectional). This means that in bidirectional links, the link capacity is the same in both directions" , 0 , false , Double.MAX_VALUE , true);
 	private InputParameter linkCapacityPlanning_capacityModuleAndCostGbps = new InputParameter ("linkCapacityPlanning_bidirectionalCapacityModuleGbps" , 10.0 , "For dimensioning the link capacities: the required capacity of each link is computed as the minimum multiple of the capacity module, that makes that the link utilization is not above this limit an ANY FAILURE OR NON-FAILURE SITUATION, in the two link directions (is bidirectional). This means that in bidirectional links, the link capacity is the same in both directions" , 0 , false , Double.MAX_VALUE , true);
+	private InputParameter numberOfThreads = new InputParameter ("numberOfThreads" , (int) 1 , "Number of failure states evaluated in parallel (a non-positive value means one per available processor). Each thread uses its own instance of the provisioning algorithm");
+	private InputParameter maxExecutionTimeInSeconds = new InputParameter ("maxExecutionTimeInSeconds" , (double) -1 , "Once this time is exceeded, no more failure states are evaluated, and the probability of the non-evaluated states is added to the estimation error (a non-positive value means no limit)");
 	
 	private Map<Long , PerDemandInfo> info_d = new HashMap<> ();
 	private Map<Long , PerDemandInfo> info_md = new HashMap<> ();
@@ -105,12 +108,10 @@ public class ReportNiw_availability implements IReport
 		final DoubleMatrix1D A_f = netPlan.getVectorSRGAvailability();
 		final List<SharedRiskGroup> srgs = netPlan.getSRGs();
 		final DoubleMatrix2D F_s = SRGUtils.getMatrixFailureState2SRG(srgs, true, analyzeDoubleFailures.getBoolean());
+		final List<SortedSet<SharedRiskGroup>> failureStates = SRGUtils.enumerateFailureStates(srgs, true, analyzeDoubleFailures.getBoolean());
 		
 		/* Compute state probabilities (pi_s) */
 		final DoubleMatrix1D pi_s = SRGUtils.computeStateProbabilities(F_s , A_f);
-		final double sum_pi_s = pi_s.zSum();
-		final double pi_s0 = pi_s.get(0); 
-		pi_excess = 1 - sum_pi_s;
 
 		/* Initialize statistics variables */
 		for(NetworkLayer layer : netPlan.getNetworkLayers())
@@ -125,27 +126,42 @@ public class ReportNiw_availability implements IReport
 
 		this.algorithm_alg = ClassLoaderUtils.getInstance(new File(algorithmFile_alg), algorithmName_alg, IAlgorithm.class , null);
 
-		for (int failureState = 0 ; failureState < F_s.rows () ; failureState ++) // first failure state (no failure) was already considered
+		/* The failure states are evaluated in parallel, each thread with its own algorithm instance. The results are received in order */
+		final int numThreads = numberOfThreads.getInt() > 0? numberOfThreads.getInt() : Runtime.getRuntime().availableProcessors();
+		final AtomicInteger numAlgorithmInstances = new AtomicInteger(0);
+		final double [] sum_pi_s = new double [1];
+		try
+		{
+			FailureStateAnalyzer.<NetPlan>evaluateFailureStates(netPlan , failureStates , workerNetPlan ->
+			{
+				final IAlgorithm algorithm = numAlgorithmInstances.getAndIncrement() == 0? algorithm_alg : newAlgorithmInstance(algorithm_alg);
+				return (auxNetPlan , srgsThisFs_auxNp) -> { algorithm.executeAlgorithm(auxNetPlan , algorithmParameters , net2planParameters); return auxNetPlan; };
+			} , FailureStateAnalyzer.DesignModification.ANY , numThreads , maxExecutionTimeInSeconds.getDouble() , (failureState , srgsThisFs_thisNp , auxNetPlan) ->
+			{
+				final double pi_s_thisState = pi_s.get (failureState);
+				sum_pi_s [0] += pi_s_thisState;
+				for(int indexLayer = 0 ; indexLayer < auxNetPlan.getNumberOfLayers() ; indexLayer ++)
+				{
+					final NetworkLayer layer = auxNetPlan.getNetworkLayer (indexLayer);
+			    	final SortedMap<Link,SortedMap<String,Pair<Double,Double>>> perLink_qos2occupationAndViolationMap = auxNetPlan.getAllLinksPerQosOccupationAndQosViolationMap(layer);
+			    	for (Demand d : auxNetPlan.getDemands(layer))
+			    		info_d.get(d.getId()).update(d, pi_s_thisState, srgsThisFs_thisNp, perLink_qos2occupationAndViolationMap);
+			    	for (MulticastDemand d : auxNetPlan.getMulticastDemands(layer))
+			    		info_md.get(d.getId()).update(d, pi_s_thisState, srgsThisFs_thisNp, perLink_qos2occupationAndViolationMap);
+			    	for (Link d : auxNetPlan.getLinks(layer))
+			    		info_e.get(d.getId()).update(d, srgsThisFs_thisNp);
+				}
+			});
+		}
+		finally
 		{
-			final IntArrayList srgs_thisState = new IntArrayList (); 
-			F_s.viewRow (failureState).getNonZeros (srgs_thisState , new DoubleArrayList ());
-			final Set<SharedRiskGroup> srgsThisFs_thisNp = ((ArrayList<Integer>) srgs_thisState.toList()).stream().map(i->netPlan.getSRG(i)).collect(Collectors.toSet ());
-			final double pi_s_thisState = failureState == 0? pi_s0 : pi_s.get (failureState);
-
-			final NetPlan auxNetPlan = testFailureStateAndRunProvisioningAlgorithmAndReturnNpCopy(netPlan , srgsThisFs_thisNp  , algorithmParameters , reportParameters , net2planParameters);
-			
-			for(int indexLayer = 0 ; indexLayer < auxNetPlan.getNumberOfLayers() ; indexLayer ++)
+			/* Only close the class loader if it is a different one than this class. If problems: just do not close the class loader, and wait for garbage collection*/
+			if (!this.getClass().getClassLoader().equals(algorithm_alg.getClass().getClassLoader()))
 			{
-				final NetworkLayer layer = auxNetPlan.getNetworkLayer (indexLayer);
-		    	final SortedMap<Link,SortedMap<String,Pair<Double,Double>>> perLink_qos2occupationAndViolationMap = auxNetPlan.getAllLinksPerQosOccupationAndQosViolationMap(layer);
-		    	for (Demand d : auxNetPlan.getDemands(layer))
-		    		info_d.get(d.getId()).update(d, pi_s_thisState, srgsThisFs_thisNp, perLink_qos2occupationAndViolationMap);
-		    	for (MulticastDemand d : auxNetPlan.getMulticastDemands(layer))
-		    		info_md.get(d.getId()).update(d, pi_s_thisState, srgsThisFs_thisNp, perLink_qos2occupationAndViolationMap);
-		    	for (Link d : auxNetPlan.getLinks(layer))
-		    		info_e.get(d.getId()).update(d, srgsThisFs_thisNp);
+				try { ((Closeable) algorithm_alg.getClass().getClassLoader()).close();	} catch (Throwable e1) { }					
 			}
 		}
+		pi_excess = 1 - sum_pi_s [0];
 
 		final String report = printReport(netPlan , reportParameters);
 
@@ -455,33 +471,10 @@ public class ReportNiw_availability implements IReport
 		public Set<Set<SharedRiskGroup>> getFailureStates_wcOccupiedCapacity () { return failureStates_wcOccupiedCapacity; }
 	}
 
-	private NetPlan testFailureStateAndRunProvisioningAlgorithmAndReturnNpCopy (NetPlan thisNetPlan , Set<SharedRiskGroup> srgsThisFs_thisNp , Map<String,String> algorithmParameters , Map<String,String> reportParameters , Map<String,String> net2planParameters)
+	private static IAlgorithm newAlgorithmInstance (IAlgorithm algorithm)
 	{
-		final NetPlan auxNetPlan = thisNetPlan.getNetPlan().copy();
-		for (SharedRiskGroup srgThisNp : srgsThisFs_thisNp)
-		{
-			final SharedRiskGroup srgCopy = auxNetPlan.getSRGFromId(srgThisNp.getId());
-			srgCopy.setAsDown();
-		}
-
-		try
-		{
-			this.algorithm_alg.executeAlgorithm(auxNetPlan , algorithmParameters , net2planParameters);
-		}
-		catch (Throwable e)
-		{
-			try { ((Closeable) algorithm_alg.getClass().getClassLoader()).close();  }
-			catch (Throwable e1) { e.printStackTrace();}					
-			throw (e);
-		}
-		
-		/* Only close the class loader if it is a different one than this class. If problems: just do not close the class loader, and wait for garbage collection*/
-		if (!this.getClass().getClassLoader().equals(algorithm_alg.getClass().getClassLoader()))
-		{
-			try { ((Closeable) algorithm_alg.getClass().getClassLoader()).close();	} catch (Throwable e1) { }					
-		}
-		
-		return auxNetPlan;
+		try { return algorithm.getClass().getDeclaredConstructor().newInstance(); }
+		catch (ReflectiveOperationException e) { throw new RuntimeException(e); }
 	}
 	
 }
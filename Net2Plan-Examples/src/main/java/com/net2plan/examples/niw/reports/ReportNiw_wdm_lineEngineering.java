@@ -111,7 +111,6 @@ public class ReportNiw_wdm_lineEngineering implements IReport
 		StringBuilder out = new StringBuilder();
 		final OpticalSpectrumManager osm = OpticalSpectrumManager.createFromRegularLps(wNet); 
 		final OpticalSimulationModule osim = new OpticalSimulationModule (wNet);
-		osim.updateAllPerformanceInfo();
 		
 		out.append("<html><body>");
 		out.append("<head><title>WDM line engineering in multilayer (lightpath based) networks</title></head>");
@@ -13,13 +13,11 @@ package com.net2plan.examples.ocnbook.offline;
 
 import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
-import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import com.net2plan.interfaces.networkDesign.Link;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.networkDesign.NetPlan;
-import com.net2plan.libraries.IPUtils;
+import com.net2plan.libraries.IGPWeightEvaluator;
 import com.net2plan.utils.Pair;
-import com.net2plan.utils.Quadruple;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -32,6 +30,7 @@ class OSPFHeuristicUtils
 	final int maxLinkWeight;
 	final double weightOfMaxUtilizationInObjectiveFunction;
 	final Random rng;
+	final IGPWeightEvaluator igpEvaluator;
 	
 	OSPFHeuristicUtils (NetPlan netPlan , int maxLinkWeight , double weightOfMaxUtilizationInObjectiveFunction , Random rng)
 	{
@@ -39,6 +38,7 @@ class OSPFHeuristicUtils
 		this.maxLinkWeight = maxLinkWeight;
 		this.weightOfMaxUtilizationInObjectiveFunction = weightOfMaxUtilizationInObjectiveFunction;
 		this.rng = rng;
+		this.igpEvaluator = new IGPWeightEvaluator(netPlan, DoubleFactory1D.dense.make (netPlan.getNumberOfLinks (), 1.0));
 	}
 	
 	Pair<DoubleMatrix1D,Double> getInitialSolution (String initializationType)
@@ -154,8 +154,23 @@ class OSPFHeuristicUtils
 	
 	Pair<Double,DoubleMatrix1D> computeObjectiveFunction (DoubleMatrix1D sol)
 	{
-		Quadruple<DoubleMatrix2D, DoubleMatrix2D, DoubleMatrix1D, DoubleMatrix1D> q = IPUtils.computeCarriedTrafficFromIGPWeights(netPlan, sol);
-		DoubleMatrix1D y_e = q.getFourth();
+		igpEvaluator.setLinkWeights(sol);
+		DoubleMatrix1D y_e = igpEvaluator.getCarriedTrafficPerLink();
+		return Pair.of(computeObjectiveFunctionFromCarriedTraffic(y_e), y_e);
+	}
+
+	/* Evaluates the solutions in parallel, returning the objective function of each */
+	double [] computeObjectiveFunctions (List<DoubleMatrix1D> sols)
+	{
+		final List<DoubleMatrix1D> y_es = igpEvaluator.computeCarriedTrafficPerLink(sols);
+		double [] objFuncs = new double [sols.size ()];
+		for (int cont = 0 ; cont < objFuncs.length ; cont ++)
+			objFuncs [cont] = computeObjectiveFunctionFromCarriedTraffic(y_es.get(cont));
+		return objFuncs;
+	}
+
+	private double computeObjectiveFunctionFromCarriedTraffic (DoubleMatrix1D y_e)
+	{
 		double congestion = 0;
 		double accumUtilization = 0;
 		for (Link e : netPlan.getLinks ())
@@ -167,6 +182,6 @@ class OSPFHeuristicUtils
 			congestion = Math.max(congestion, utilization);
 		}
 		final double objFunc = weightOfMaxUtilizationInObjectiveFunction * congestion + (1-weightOfMaxUtilizationInObjectiveFunction) * accumUtilization / netPlan.getNumberOfLinks();
-		return Pair.of(objFunc, y_e);
+		return objFunc;
 	}
 }
@@ -220,9 +220,8 @@ public class Offline_fa_ospfWeightOptimization_EA implements IAlgorithm
 		final int ea_populationSize = costs.length;
 		double [] combinedCosts = Arrays.copyOf(costs, ea_populationSize + offspring.size());
 		population.addAll(offspring);
-		int counter = ea_populationSize;
-		for (DoubleMatrix1D descendant : offspring)
-			combinedCosts[counter ++] = ospfEngine.computeObjectiveFunction(descendant).getFirst();
+		final double [] offspringCosts = ospfEngine.computeObjectiveFunctions(offspring);
+		System.arraycopy(offspringCosts, 0, combinedCosts, ea_populationSize, offspring.size());
 
 		int [] sortedPopulationIds = DoubleUtils.sortIndexes(combinedCosts, OrderingType.ASCENDING); 
 
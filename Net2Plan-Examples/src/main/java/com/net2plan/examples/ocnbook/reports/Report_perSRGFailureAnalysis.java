@@ -22,6 +22,7 @@ package com.net2plan.examples.ocnbook.reports;
 import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.interfaces.simulation.IEventProcessor;
 import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.libraries.FailureStateAnalyzer;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.utils.ClassLoaderUtils;
 import com.net2plan.utils.InputParameter;
@@ -31,6 +32,7 @@ import com.net2plan.utils.Triple;
 import java.io.File;
 import java.text.DecimalFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This report receives as an input a network design, the network recovery scheme algorithm, and a set of network risks (SRGs), and computes 
@@ -48,6 +50,7 @@ public class Report_perSRGFailureAnalysis implements IReport
 	private InputParameter maximumE2ELatencyMs = new InputParameter ("maximumE2ELatencyMs", (double) -1 , "Maximum end-to-end latency of the traffic of any demand (a non-positive value means no limit). All the traffic of demands where a fraction of its traffic can exceed this value, are considered as lost, as they are supposed to fail to satisfy QoS agreements");
 	private InputParameter failureModel = new InputParameter ("failureModel" , "#select# perBidirectionalLinkBundle SRGfromNetPlan perNode perLink perDirectionalLinkBundle" , "Failure model selection: SRGfromNetPlan, perNode, perLink, perDirectionalLinkBundle, perBidirectionalLinkBundle");
 	private InputParameter rootNameOfOutFiles = new InputParameter ("rootNameOfOutFiles" , "./reportPerSRGFailure" , "For each single-SRG failure state and for the no-failure state, a n2p file is produced with the result of the network in that state. The file is named XXX_srgIndex.n2p, and XXX_noFailure.n2p, where XXX is this parameter");
+	private InputParameter numberOfThreads = new InputParameter ("numberOfThreads" , (int) 1 , "Number of failure states evaluated in parallel (a non-positive value means one per available processor). Each thread uses its own instance of the provisioning algorithm");
 
 	private IEventProcessor algorithm;
 	private double PRECISION_FACTOR;
@@ -98,42 +101,49 @@ public class Report_perSRGFailureAnalysis implements IReport
 		NetPlan npNoFailure = netPlan.copy ();
 		npNoFailure.saveToFile(new File (rootNameOfOutFiles.getString () + "_noFailure"));
 
-		/* Initialize the provisioning algorithm */
-		NetPlan npForProducingAllFailures = netPlan.copy ();
-		Set<Link> npForProducingAllFailures_linksAllLayers = new HashSet<Link> (); for (NetworkLayer layer : npForProducingAllFailures.getNetworkLayers()) npForProducingAllFailures_linksAllLayers.addAll (npForProducingAllFailures.getLinks (layer));
-
+		/* Compute the other network states. Each thread initializes its own algorithm instance in its own copy of the design, and makes it fail and repair the SRGs */
 		this.algorithm = ClassLoaderUtils.getInstance(new File(algorithmFile), algorithmName, IEventProcessor.class , null);
-		this.algorithm.initialize(npForProducingAllFailures , algorithmParameters , reportParameters , net2planParameters);
-
-		/* Compute the other network states */
-		List<NetPlan> npsFailureStates = new ArrayList<NetPlan> (netPlan.getNumberOfSRGs());
-		for (int srgIndex = 0 ; srgIndex < netPlan.getNumberOfSRGs() ; srgIndex ++)
+		final int numThreads = numberOfThreads.getInt() > 0? numberOfThreads.getInt() : Runtime.getRuntime().availableProcessors();
+		final AtomicInteger numAlgorithmInstances = new AtomicInteger(0);
+		final List<NetPlan> npsFailureStates = new ArrayList<NetPlan> (netPlan.getNumberOfSRGs());
+		FailureStateAnalyzer.<NetPlan>evaluateFailureStates(netPlan , SRGUtils.enumerateFailureStates(netPlan.getSRGs(), false, false) , npForProducingAllFailures ->
 		{
-			if (!npForProducingAllFailures.getLinksDownAllLayers().isEmpty() || !npForProducingAllFailures.getNodesDown().isEmpty()) throw new RuntimeException ("Bad");
-
-			/* Fail this SRG */
-			final SharedRiskGroup srg = npForProducingAllFailures.getSRG(srgIndex);
-			Set<Link> linksToSetAsDown = new HashSet<Link> ();
-			Set<Node> nodesToSetAsDown = new HashSet<Node> ();
-			nodesToSetAsDown.addAll (srg.getNodes ());
-			linksToSetAsDown.addAll (srg.getLinksAllLayers ());
-			
-			/* Make the algorithm process the event of nodes and links down */
-			SimEvent.NodesAndLinksChangeFailureState failureInfo = new SimEvent.NodesAndLinksChangeFailureState(null , nodesToSetAsDown , null , linksToSetAsDown);
-			algorithm.processEvent(npForProducingAllFailures, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , failureInfo)); 
-		
-			/* Save a coy of the new state */
-			npForProducingAllFailures.saveToFile(new File (rootNameOfOutFiles.getString () + "_srgIndex_" + srgIndex));
-			npsFailureStates.add (npForProducingAllFailures.copy ());
+			final IEventProcessor algorithm = numAlgorithmInstances.getAndIncrement() == 0? this.algorithm : newAlgorithmInstance(this.algorithm);
+			final Set<Link> npForProducingAllFailures_linksAllLayers = new HashSet<Link> (); for (NetworkLayer layer : npForProducingAllFailures.getNetworkLayers()) npForProducingAllFailures_linksAllLayers.addAll (npForProducingAllFailures.getLinks (layer));
+			algorithm.initialize(npForProducingAllFailures , algorithmParameters , reportParameters , net2planParameters);
+			return (np , failingSrgs) ->
+			{
+				/* Fail this SRG: the algorithm is the one that processes the failure */
+				final SharedRiskGroup srg = failingSrgs.iterator().next();
+				Set<Link> linksToSetAsDown = new HashSet<Link> ();
+				Set<Node> nodesToSetAsDown = new HashSet<Node> ();
+				nodesToSetAsDown.addAll (srg.getNodes ());
+				linksToSetAsDown.addAll (srg.getLinksAllLayers ());
+				
+				/* Make the algorithm process the event of nodes and links down */
+				SimEvent.NodesAndLinksChangeFailureState failureInfo = new SimEvent.NodesAndLinksChangeFailureState(null , nodesToSetAsDown , null , linksToSetAsDown);
+				algorithm.processEvent(np, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , failureInfo)); 
 			
-			/* Go back to the no failure state */
-			SimEvent.NodesAndLinksChangeFailureState repairInfo = new SimEvent.NodesAndLinksChangeFailureState(npForProducingAllFailures.getNodes() , null , npForProducingAllFailures_linksAllLayers , null);
-			algorithm.processEvent(npForProducingAllFailures, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , repairInfo));
-		}
+				/* Save a coy of the new state */
+				np.saveToFile(new File (rootNameOfOutFiles.getString () + "_srgIndex_" + srg.getIndex ()));
+				final NetPlan npThisFailureState = np.copy ();
+				
+				/* Go back to the no failure state */
+				SimEvent.NodesAndLinksChangeFailureState repairInfo = new SimEvent.NodesAndLinksChangeFailureState(np.getNodes() , null , npForProducingAllFailures_linksAllLayers , null);
+				algorithm.processEvent(np, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , repairInfo));
+				return npThisFailureState;
+			};
+		} , FailureStateAnalyzer.DesignModification.UNDONE_BY_EVALUATOR , numThreads , -1 , (srgIndex , failingSrgs , npThisFailureState) -> npsFailureStates.add (npThisFailureState));
 		
 		return printReport(npNoFailure , npsFailureStates , reportParameters);
 	}
 	
+	private static IEventProcessor newAlgorithmInstance (IEventProcessor algorithm)
+	{
+		try { return algorithm.getClass().getDeclaredConstructor().newInstance(); }
+		catch (ReflectiveOperationException e) { throw new RuntimeException(e); }
+	}
+
 	@Override
 	public String getDescription()
 	{
@@ -11,11 +11,12 @@
 
 package com.net2plan.examples.smartCity.utn;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.jom.OptimizationProblem;
 import com.net2plan.interfaces.networkDesign.Demand;
 import com.net2plan.interfaces.networkDesign.IAlgorithm;
 import com.net2plan.interfaces.networkDesign.Link;
@@ -23,17 +24,21 @@ import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.networkDesign.NetPlan;
 import com.net2plan.interfaces.networkDesign.Route;
 import com.net2plan.libraries.GraphUtils;
+import com.net2plan.utils.DoubleUtils;
 import com.net2plan.utils.InputParameter;
 import com.net2plan.utils.Triple;
 
+import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 
 /** This algorithm implements several methods for estimating the urban traffic in a city, according to two models: User Equilibrium (UE) and Stochastic User Equilibrium( SUE). 
  * The city is modeled as links (streets) between nodes (interconnections of streets). 
  * The models are solved by finding a numerical solution to the related convex formulations that model the equilibrium equations for 
- * the traffic in the roads.
+ * the traffic in the roads: the UE with the (conjugate) Frank-Wolfe algorithm or path-based gradient projection, and the SUE with the method of successive averages. 
+ * The routes of each demand are the candidate routes given, or the ones generated by the algorithm as the shortest paths for the link costs in each iteration.
+ * The convergence gap of each iteration is stored in the design attribute "UTNConvergenceGaps".
  * @net2plan.description 
- * @net2plan.keywords SmartCity, JOM
+ * @net2plan.keywords SmartCity
  * @net2plan.inputParameters 
  * @author Pablo Pavon-Marino, Victoria Bueno-Delgado, Pilar Jimenez-Gomez 
  */
@@ -43,10 +48,12 @@ public class Offline_urbanTransportationNetworkAssignmentAlgorithm implements IA
 	private InputParameter alpha = new InputParameter ("alpha", (double) 1 , "Alpha parameter in the BPR arc model" , 0 , true , Double.MAX_VALUE , true);
 	private InputParameter beta = new InputParameter ("beta", (double) 4 , "Beta parameter in the BPR arc model" , 0 , true , Double.MAX_VALUE , true);
 	private InputParameter defaultC0PRTLinkParameter = new InputParameter ("defaultC0PRTLinkParameter", (double) 30 , "The default value of the C0 parameter in the model (minimum possible traversing time for the link), for those links which do not have the appropriate attribute already set." , 0 , false , Double.MAX_VALUE , true);
-	private InputParameter numberOfRoutesPerDemand = new InputParameter ("numberOfRoutesPerDemand", (int) 10 , "Set the number of routes created per demand, if the user selects to override the routes of the input design. The shortest path routes are computed according to the V0PRT parameter." , 1 , Integer.MAX_VALUE);
-	private InputParameter solverLibraryName = new InputParameter ("solverLibraryName", "", "The solver library full or relative path, to be used by JOM. Leave blank to use JOM default.");
-	private InputParameter maxSolverTimeInSeconds = new InputParameter ("maxSolverTimeInSeconds", (double) -1 , "Maximum time granted to the solver to solve the problem. If this time expires, the solver returns the best solution found so far (if a feasible solution is found)");
+	private InputParameter numberOfRoutesPerDemand = new InputParameter ("numberOfRoutesPerDemand", (int) 10 , "Set the number of routes created per demand, if the user selects to override the routes of the input design. The shortest path routes are computed according to the V0PRT parameter. If zero, the routes are not limited to a candidate set: they are generated during the algorithm as the shortest paths for the link costs in each iteration (recommended for large networks)." , 0 , Integer.MAX_VALUE);
+	private InputParameter maxNumIterations = new InputParameter ("maxNumIterations", (int) 1000 , "Maximum number of iterations of the algorithm" , 1 , Integer.MAX_VALUE);
+	private InputParameter relativeGapTolerance = new InputParameter ("relativeGapTolerance", (double) 1e-4 , "The algorithm stops when the convergence gap is equal or below this value. In the UE model, the gap is the total cost of the vehicles minus the one if all of them took the cheapest route, divided by the total cost. In the SUE model, the sum of the absolute differences between the route traffics and the ones of the logit model for the current costs, divided by the total traffic" , 0 , true , Double.MAX_VALUE , true);
+	private InputParameter maxSolverTimeInSeconds = new InputParameter ("maxSolverTimeInSeconds", (double) -1 , "Maximum time granted to the algorithm. If this time expires, the algorithm returns the solution of the last iteration. A non-positive value means no limit");
 	private InputParameter optimizationModel = new InputParameter ("optimizationModel", "#select# User-Equilibrium(UE) Stochastic-User-Equilibrium(SUE) Blind-free-speed-only" , "The model used for predicting the user routes. User equilibrium (Wardrop), and its stochastic version. In the blind free speed, the cars take the shortest path taking as cost of a street the free speed, without considering the traffic in each street");
+	private InputParameter ueAlgorithm = new InputParameter ("ueAlgorithm", "#select# Gradient-projection Conjugate-Frank-Wolfe Frank-Wolfe" , "(only in UE model) The algorithm used for computing the user equilibrium. The path-based gradient projection converges faster to precise solutions. The conjugate version of the Frank-Wolfe algorithm converges faster than the original one");
 	private InputParameter sueModel_theta = new InputParameter ("sueModel_theta", (double) 0.4 , "(only in SUE model) Parameter to model the exactitude in the perception from the user of the possible paths. Low values mean bad perception, which means more chances to use longer routes" , 0 , true , Double.MAX_VALUE , true);
 
 	@Override
@@ -56,86 +63,62 @@ public class Offline_urbanTransportationNetworkAssignmentAlgorithm implements IA
 		/* Initialize all InputParameter objects defined in this object (this uses Java reflection) */
 		InputParameter.initializeAllInputParameterFieldsOfObject(this, algorithmParameters);
 
-		final int E = netPlan.getNumberOfLinks();
 		double [] c0_a = NetPlan.getAttributeValues (netPlan.getLinks() , UtnConstants.ATTRNAME_C0A, defaultC0PRTLinkParameter.getDouble()).toArray();
 		double [] Q_a = netPlan.getVectorLinkCapacity().toArray();
+		for (Link e : netPlan.getLinks()) if (Q_a [e.getIndex()] <= 0) throw new Net2PlanException ("The capacity of the link " + e + " must be positive");
 		
-		/* Create the set of candidate paths, or use the existing ones */
+		/* Create the set of candidate paths, or use the existing ones. If the number of routes per demand is zero, the routes are generated in the algorithm */
+		final boolean generateRoutes = !useExistingRoutes.getBoolean() && numberOfRoutesPerDemand.getInt() == 0;
 		createCandidateRoutes (netPlan , c0_a);
-		final int K = netPlan.getNumberOfRoutes();
 
-		OptimizationProblem op = new OptimizationProblem ();
-		
-		op.setInputParameter("Q_a", Q_a , "row");
-		op.setInputParameter("alpha", alpha.getDouble());
-		op.setInputParameter("beta", beta.getDouble());
-		op.setInputParameter("c0_a", c0_a , "row");
-		op.setInputParameter("t_i", netPlan.getVectorDemandOfferedTraffic() , "row");
-		op.setInputParameter("A_ik", netPlan.getMatrixDemand2RouteAssignment());
-		op.setInputParameter("A_ki", netPlan.getMatrixDemand2RouteAssignment().viewDice());
-		op.setInputParameter("A_ak", netPlan.getMatrixLink2RouteAssignment());
-		
-		
-		double [] r_a = new double [E];
-		for (Link e : netPlan.getLinks ())
-			r_a [e.getIndex()] = c0_a [e.getIndex()] / ((beta.getDouble()+1) * Math.pow(e.getCapacity(),beta.getDouble()));
-		op.setInputParameter("r_a", r_a , "row");
-
-		
-		op.addDecisionVariable("f_k", false, new int [] {1 , K} , 0 , Double.MAX_VALUE);
-		op.addDecisionVariable("v_a", false, new int [] {1,E} , 0 , Double.MAX_VALUE);
+		final List<Demand> demands = netPlan.getDemands();
+		final UtnTrafficAssignment assignment = new UtnTrafficAssignment (netPlan.getNumberOfNodes() , 
+				netPlan.getLinks().stream().mapToInt(e -> e.getOriginNode().getIndex()).toArray() , 
+				netPlan.getLinks().stream().mapToInt(e -> e.getDestinationNode().getIndex()).toArray() , 
+				c0_a , Q_a , alpha.getDouble() , beta.getDouble() , 
+				demands.stream().mapToInt(d -> d.getIngressNode().getIndex()).toArray() , 
+				demands.stream().mapToInt(d -> d.getEgressNode().getIndex()).toArray() , 
+				netPlan.getVectorDemandOfferedTraffic().toArray() , generateRoutes);
+		for (Route r : netPlan.getRoutes())
+			assignment.addPath(r.getDemand().getIndex() , r.getSeqLinks().stream().mapToInt(e -> e.getIndex()).toArray());
 
-		if (optimizationModel.getString().equals("User-Equilibrium(UE)"))
-		{
-			op.setObjectiveFunction("minimize", "c0_a * v_a' + alpha * sum (r_a .* v_a^(beta+1))");
-		}
+		if (optimizationModel.getString().equals("User-Equilibrium(UE)") && ueAlgorithm.getString().equals("Gradient-projection"))
+			assignment.solveUserEquilibriumByGradientProjection(maxNumIterations.getInt() , relativeGapTolerance.getDouble() , maxSolverTimeInSeconds.getDouble());
+		else if (optimizationModel.getString().equals("User-Equilibrium(UE)"))
+			assignment.solveUserEquilibrium(ueAlgorithm.getString().equals("Conjugate-Frank-Wolfe") , maxNumIterations.getInt() , relativeGapTolerance.getDouble() , maxSolverTimeInSeconds.getDouble());
 		else if (optimizationModel.getString().equals("Stochastic-User-Equilibrium(SUE)"))
-		{
-			op.addDecisionVariable("C_a", false, new int [] {1,E} , 0 , Double.MAX_VALUE);
-			op.setInputParameter("theta", sueModel_theta.getDouble());
-			op.setObjectiveFunction("minimize", " (theta * sum (t_i .* (exp(-theta * C_a * A_ak)*A_ki))) + (v_a * C_a') - (c0_a * v_a') - (alpha * sum (r_a .* v_a^(beta+1)))");
-			op.addConstraint("C_a == c0_a.*(1+(alpha*((v_a./Q_a)^beta)))");
-		}
+			assignment.solveStochasticUserEquilibrium(sueModel_theta.getDouble() , maxNumIterations.getInt() , relativeGapTolerance.getDouble() , maxSolverTimeInSeconds.getDouble());
 		else if (optimizationModel.getString().equals("Blind-free-speed-only"))
+			assignment.solveFreeFlow();
+		else throw new Net2PlanException ("Unknown optimization model: " + optimizationModel.getString());
+
+		/* The candidate routes are the first paths in the assignment, in the same order, followed by the ones generated (added if carrying traffic) */
+		final double [] f_k = assignment.getPathTraffics();
+		final int numCandidateRoutes = netPlan.getNumberOfRoutes();
+		final DoubleMatrix1D candidateRoutesTraffic = DoubleFactory1D.dense.make(Arrays.copyOf(f_k , numCandidateRoutes));
+		netPlan.setVectorRouteCarriedTrafficAndOccupiedLinkCapacities(candidateRoutesTraffic , candidateRoutesTraffic);
+		final List<Demand> newRoutesDemands = new ArrayList<> ();
+		final List<Double> newRoutesTraffics = new ArrayList<> ();
+		final List<List<Link>> newRoutesSeqLinks = new ArrayList<> ();
+		for (int k = numCandidateRoutes; k < f_k.length ; k ++)
 		{
-			op.setObjectiveFunction("minimize", "c0_a * v_a'");
-		}
-		
-		op.addConstraint("A_ak * f_k' == v_a'");
-		op.addConstraint("A_ik * f_k' == t_i'");
-		
-		op.solve("ipopt", "solverLibraryName", solverLibraryName.getString () , "maxSolverTimeInSeconds" , maxSolverTimeInSeconds.getDouble ());
-
-		/* If no solution is found, quit */
-		if (op.feasibleSolutionDoesNotExist()) throw new Net2PlanException("The problem has no feasible solution");
-		if (!op.solutionIsFeasible()) throw new Net2PlanException("A feasible solution was not found");
-
-		DoubleMatrix1D f_k = op.getPrimalSolution("f_k").view1D();
-		DoubleMatrix1D v_a = op.getPrimalSolution("v_a").view1D();
-		
-		netPlan.setVectorRouteCarriedTrafficAndOccupiedLinkCapacities(f_k, f_k);
-		
-		System.out.println("** Optimum cost: " + op.getOptimalCost() + ", solution is optimal: " + op.solutionIsOptimal());
-		
-		double [] c_a = new double [E];
-		for (Link e : netPlan.getLinks())
-		{
-			c_a [e.getIndex()] = UtnConstants.bprCaComputation (c0_a [e.getIndex()] , alpha.getDouble() , v_a.get(e.getIndex()) , e.getCapacity() , beta.getDouble());
-			System.out.println ("Link " + e.getOriginNode().getIndex() + " -> " + e.getDestinationNode().getIndex() + ": " + c_a [e.getIndex()]);
-		}
-		
-		for (Route r : netPlan.getRoutes())
-		{
-			double cost = 0;
-			for (Link e : r.getSeqLinks()) cost += c_a [e.getIndex()];
-			System.out.println ("Node " + r.getIngressNode().getIndex() + " -> " + r.getEgressNode().getIndex() + ": Cost: " + cost + ", traffic: " + r.getCarriedTraffic());
+			if (f_k [k] == 0) continue;
+			final List<Link> seqLinks = new ArrayList<> ();
+			for (int e : assignment.getPathLinks(k)) seqLinks.add(netPlan.getLink(e));
+			newRoutesDemands.add(demands.get(assignment.getPathDemand(k)));
+			newRoutesTraffics.add(f_k [k]);
+			newRoutesSeqLinks.add(seqLinks);
 		}
+		netPlan.addRoutes(newRoutesDemands , newRoutesTraffics , newRoutesSeqLinks);
 
-		netPlan.setAttribute("UTNCost" , "" + op.getOptimalCost());
+		final double optimumCost = assignment.getObjectiveFunction();
+		final double [] convergenceGaps = assignment.getConvergenceGaps();
+		netPlan.setAttribute("UTNCost" , "" + optimumCost);
+		netPlan.setAttributeAsNumberList("UTNConvergenceGaps" , DoubleUtils.toList(convergenceGaps));
 		
 		netPlan.removeAllRoutesUnused(0.001); // routes carrying less than this traffic are removed
 		
-		return "Ok! Optimum cost: " + op.getOptimalCost() + ", Number of routes carrying traffic: " + netPlan.getNumberOfRoutes(); // this is the message that will be shown in the screen at the end of the algorithm
+		return "Ok! Optimum cost: " + optimumCost + ", convergence gap: " + convergenceGaps [convergenceGaps.length - 1] + " (" + convergenceGaps.length + " iterations), Number of routes carrying traffic: " + netPlan.getNumberOfRoutes(); // this is the message that will be shown in the screen at the end of the algorithm
 	}
 
 	@Override
@@ -161,6 +144,7 @@ public class Offline_urbanTransportationNetworkAssignmentAlgorithm implements IA
 		else
 		{
 			netPlan.removeAllRoutes();
+			if (numberOfRoutesPerDemand.getInt() == 0) return; // the routes are generated by the algorithm
 			Map<Link,Double> linkCostMap = new HashMap<Link,Double> (); for (Link e : netPlan.getLinks()) linkCostMap.put(e , c0 [e.getIndex()]); 
 			for (Demand d : netPlan.getDemands())
 			{
@@ -0,0 +1,543 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.examples.smartCity.utn;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.libraries.CompactGraph;
+
+/** Traffic assignment in an urban transportation network, where the cost (travel time) of each link follows the BPR model
+ * C_a = c0_a (1 + alpha (v_a / Q_a)^beta). The traffic of each OD pair is kept per path, where the paths of an OD pair are either a given set of candidate
+ * paths, or generated during the iterations as the cheapest paths for the link costs at each moment. Three models are solved:
+ * <ul>
+ * <li>User equilibrium (UE): the Beckmann function is minimized by the Frank-Wolfe algorithm, or by its conjugate version (Mitradjieva and Lindberg), where
+ * each direction is conjugate to the previous one respect to the Hessian of the objective function. The step is found by bisection on the derivative of the
+ * objective function along the direction. The convergence gap is the relative gap: the total cost of the vehicles minus the one if all of them took the
+ * cheapest path, divided by the total cost. The UE can also be computed by path-based gradient projection (Jayakrishnan et al.): for each OD pair in turn,
+ * traffic is moved from each path to the cheapest one, in the amount given by Newton's method for equalizing their costs. It converges much faster than the
+ * Frank-Wolfe variants to precise solutions, where the unused paths carry no traffic.</li>
+ * <li>Stochastic user equilibrium (SUE) with logit route choice among the paths of each OD pair: method of successive averages (MSA), where in the n-th
+ * iteration the path traffics move 1/n towards the logit assignment for the current link costs. The convergence gap is the sum of the absolute differences
+ * between the path traffics and the logit assignment, divided by the total traffic.</li>
+ * <li>Free flow: all the traffic of each OD pair is carried by its cheapest path for the costs c0_a.</li>
+ * </ul>
+ * The all-or-nothing assignment of each iteration (the cheapest path of each OD pair) is computed in parallel in the common fork-join pool, with one shortest
+ * path tree search in a {@link CompactGraph} per origin node when the paths are generated (one workspace per thread), in blocks of consecutive origin nodes. The new paths are added in the order of the OD pairs, so the
+ * results do not depend on the number of threads.
+ */
+final class UtnTrafficAssignment
+{
+	private static final int MAXNUMBLOCKS = 64;
+	private static final int MINNUMELEMENTSPERBLOCK = 16;
+	private static final int NUMBISECTIONSTEPS = 50;
+	private static final double CONJUGATEMAXCOEFFICIENT = 0.99;
+
+	private final int E, D;
+	private final double [] c0_a, Q_a;
+	private final double alpha, beta;
+	private final int [] demandOrigin, demandDestination;
+	private final double [] t_d;
+	private final boolean generatePaths;
+
+	/* the graph (arc index = link index), the workspace of each thread for its searches, and the OD pairs of each origin node, in compressed form */
+	private final CompactGraph graph;
+	private final ThreadLocal<CompactGraph.Workspace> workspacePerThread;
+	private final int [] originNode, originStart, originDemand;
+
+	/* the paths: OD pair, sequence of links (in compressed form), and traffic. The paths of each OD pair */
+	private int numPaths;
+	private int [] pathDemand = new int [16];
+	private int [] pathStart = new int [17];
+	private int [] pathLinks = new int [64];
+	private double [] pathTraffic = new double [16];
+	private final int [][] demandPaths;
+	private final int [] numDemandPaths;
+
+	private final double [] v_a;
+	private double objectiveFunction;
+	private int numIterations;
+	private double [] convergenceGaps = new double [16];
+	private double [] elapsedTimesInSeconds = new double [16];
+
+	/** Creates the assignment engine
+	 * @param N the number of nodes
+	 * @param linkOrigin the origin node of each link
+	 * @param linkDestination the destination node of each link
+	 * @param c0_a the cost of each link with no traffic (free flow)
+	 * @param Q_a the capacity of each link
+	 * @param alpha the alpha parameter of the BPR model
+	 * @param beta the beta parameter of the BPR model
+	 * @param demandOrigin the origin node of each OD pair
+	 * @param demandDestination the destination node of each OD pair
+	 * @param t_d the traffic of each OD pair
+	 * @param generatePaths if true, the cheapest path of each OD pair at each iteration is added to its paths, if not already there. If false, the paths
+	 * are only the ones added with {@link #addPath(int, int[])}
+	 */
+	UtnTrafficAssignment (int N , int [] linkOrigin , int [] linkDestination , double [] c0_a , double [] Q_a , double alpha , double beta , int [] demandOrigin , int [] demandDestination , double [] t_d , boolean generatePaths)
+	{
+		this.E = linkOrigin.length;
+		this.D = demandOrigin.length;
+		this.c0_a = c0_a;
+		this.Q_a = Q_a;
+		this.alpha = alpha;
+		this.beta = beta;
+		this.demandOrigin = demandOrigin;
+		this.demandDestination = demandDestination;
+		this.t_d = t_d;
+		this.generatePaths = generatePaths;
+		this.v_a = new double [E];
+		this.demandPaths = new int [D][1];
+		this.numDemandPaths = new int [D];
+
+		this.graph = new CompactGraph(N , linkOrigin , linkDestination);
+		this.workspacePerThread = ThreadLocal.withInitial(graph::createWorkspace);
+
+		final int [] numDemandsPerNode = new int [N];
+		for (int d = 0; d < D ; d ++) numDemandsPerNode [demandOrigin [d]] ++;
+		final int numOrigins = (int) Arrays.stream(numDemandsPerNode).filter(n -> n > 0).count();
+		this.originNode = new int [numOrigins];
+		this.originStart = new int [numOrigins + 1];
+		this.originDemand = new int [D];
+		final int [] originIndexOfNode = new int [N];
+		for (int n = 0, o = 0; n < N ; n ++)
+		{
+			if (numDemandsPerNode [n] == 0) continue;
+			originNode [o] = n;
+			originIndexOfNode [n] = o;
+			originStart [o + 1] = originStart [o] + numDemandsPerNode [n];
+			o ++;
+		}
+		final int [] nextDemand = Arrays.copyOf(originStart , numOrigins);
+		for (int d = 0; d < D ; d ++) originDemand [nextDemand [originIndexOfNode [demandOrigin [d]]] ++] = d;
+	}
+
+	/** Adds a candidate path to the given OD pair, with no traffic
+	 * @param d the OD pair index
+	 * @param seqLinks the sequence of links of the path
+	 * @return the path index
+	 */
+	int addPath (int d , int [] seqLinks)
+	{
+		if (numPaths == pathDemand.length)
+		{
+			pathDemand = Arrays.copyOf(pathDemand , 2 * numPaths);
+			pathStart = Arrays.copyOf(pathStart , 2 * numPaths + 1);
+			pathTraffic = Arrays.copyOf(pathTraffic , 2 * numPaths);
+		}
+		final int firstLink = pathStart [numPaths];
+		if (firstLink + seqLinks.length > pathLinks.length) pathLinks = Arrays.copyOf(pathLinks , Math.max(2 * pathLinks.length , firstLink + seqLinks.length));
+		System.arraycopy(seqLinks , 0 , pathLinks , firstLink , seqLinks.length);
+		pathDemand [numPaths] = d;
+		pathStart [numPaths + 1] = firstLink + seqLinks.length;
+		pathTraffic [numPaths] = 0;
+		if (numDemandPaths [d] == demandPaths [d].length) demandPaths [d] = Arrays.copyOf(demandPaths [d] , 2 * numDemandPaths [d]);
+		demandPaths [d][numDemandPaths [d] ++] = numPaths;
+		return numPaths ++;
+	}
+
+	/** Assigns all the traffic of each OD pair to its cheapest path for the free flow costs c0_a
+	 */
+	void solveFreeFlow ()
+	{
+		final long initialTime = System.nanoTime();
+		numIterations = 0;
+		final int [] cheapestPath_d = computeCheapestPaths (c0_a);
+		Arrays.fill(pathTraffic , 0);
+		for (int d = 0; d < D ; d ++) pathTraffic [cheapestPath_d [d]] += t_d [d];
+		updateLinkTraffics ();
+		addIteration (0 , initialTime);
+		objectiveFunction = 0;
+		for (int e = 0; e < E ; e ++) objectiveFunction += c0_a [e] * v_a [e];
+	}
+
+	/** Computes the user equilibrium, by the (conjugate) Frank-Wolfe algorithm, starting from the free flow solution
+	 * @param conjugate if true, the conjugate Frank-Wolfe algorithm is used, if false the Frank-Wolfe algorithm
+	 * @param maxNumIterations the maximum number of iterations
+	 * @param relativeGapTolerance the algorithm stops when the relative gap is equal or below this value
+	 * @param maxTimeInSeconds the algorithm stops after this time (non-positive for no limit)
+	 */
+	void solveUserEquilibrium (boolean conjugate , int maxNumIterations , double relativeGapTolerance , double maxTimeInSeconds)
+	{
+		final long initialTime = System.nanoTime();
+		numIterations = 0;
+		solveFreeFlow ();
+		numIterations = 0;
+		final double [] cost_a = new double [E];
+		final double [] cheapestTraffic_a = new double [E];
+		final double [] target_a = new double [E];
+		final double [] direction_a = new double [E];
+		double [] targetTraffic_p = new double [pathTraffic.length];
+		boolean existsPreviousTarget = false;
+		while (true)
+		{
+			for (int e = 0; e < E ; e ++) cost_a [e] = getLinkCost (e , v_a [e]);
+			final int [] cheapestPath_d = computeCheapestPaths (cost_a);
+			final double relativeGap = getRelativeGap (cost_a , cheapestPath_d);
+			if (addIteration (relativeGap , initialTime) >= maxNumIterations || relativeGap <= relativeGapTolerance) break;
+			if (maxTimeInSeconds > 0 && elapsedTimesInSeconds [numIterations - 1] >= maxTimeInSeconds) break;
+
+			/* the target is the all-or-nothing solution, or in the conjugate version, a combination with the previous target */
+			Arrays.fill(cheapestTraffic_a , 0);
+			for (int d = 0; d < D ; d ++)
+				for (int cont = pathStart [cheapestPath_d [d]]; cont < pathStart [cheapestPath_d [d] + 1] ; cont ++) cheapestTraffic_a [pathLinks [cont]] += t_d [d];
+			double conjugateCoefficient = 0;
+			if (conjugate && existsPreviousTarget)
+			{
+				double num = 0, den = 0;
+				for (int e = 0; e < E ; e ++)
+				{
+					final double aux = (target_a [e] - v_a [e]) * getLinkCostDerivative (e , v_a [e]);
+					num += aux * (cheapestTraffic_a [e] - v_a [e]);
+					den += aux * (cheapestTraffic_a [e] - target_a [e]);
+				}
+				if (den != 0 && num / den > 0 && num / den <= CONJUGATEMAXCOEFFICIENT) conjugateCoefficient = num / den; // if not, restart with the Frank-Wolfe direction
+				double slope = 0;
+				for (int e = 0; e < E ; e ++) slope += cost_a [e] * (conjugateCoefficient * target_a [e] + (1 - conjugateCoefficient) * cheapestTraffic_a [e] - v_a [e]);
+				if (slope >= 0) conjugateCoefficient = 0; // not a descent direction
+			}
+			if (targetTraffic_p.length < numPaths) targetTraffic_p = Arrays.copyOf(targetTraffic_p , pathTraffic.length);
+			for (int p = 0; p < numPaths ; p ++) targetTraffic_p [p] *= conjugateCoefficient;
+			for (int d = 0; d < D ; d ++) targetTraffic_p [cheapestPath_d [d]] += (1 - conjugateCoefficient) * t_d [d];
+			for (int e = 0; e < E ; e ++)
+			{
+				target_a [e] = conjugateCoefficient * target_a [e] + (1 - conjugateCoefficient) * cheapestTraffic_a [e];
+				direction_a [e] = target_a [e] - v_a [e];
+			}
+			existsPreviousTarget = true;
+
+			/* move to the point of the segment with the lowest objective function */
+			final double step = getStepMinimizingObjectiveFunction (direction_a);
+			for (int p = 0; p < numPaths ; p ++) pathTraffic [p] += step * (targetTraffic_p [p] - pathTraffic [p]);
+			for (int e = 0; e < E ; e ++) v_a [e] += step * direction_a [e];
+		}
+		updateLinkTraffics ();
+		objectiveFunction = 0;
+		for (int e = 0; e < E ; e ++) objectiveFunction += getLinkCostIntegral (e , v_a [e]);
+	}
+
+	/** Computes the user equilibrium by path-based gradient projection, starting from the free flow solution
+	 * @param maxNumIterations the maximum number of iterations
+	 * @param relativeGapTolerance the algorithm stops when the relative gap is equal or below this value
+	 * @param maxTimeInSeconds the algorithm stops after this time (non-positive for no limit)
+	 */
+	void solveUserEquilibriumByGradientProjection (int maxNumIterations , double relativeGapTolerance , double maxTimeInSeconds)
+	{
+		final long initialTime = System.nanoTime();
+		numIterations = 0;
+		solveFreeFlow ();
+		numIterations = 0;
+		final double [] cost_a = new double [E];
+		final int [] cheapestPathLinkMark_a = new int [E];
+		final int [] pathLinkMark_a = new int [E];
+		int mark = 0;
+		while (true)
+		{
+			for (int e = 0; e < E ; e ++) cost_a [e] = getLinkCost (e , v_a [e]);
+			final int [] cheapestPath_d = computeCheapestPaths (cost_a);
+			final double relativeGap = getRelativeGap (cost_a , cheapestPath_d);
+			if (addIteration (relativeGap , initialTime) >= maxNumIterations || relativeGap <= relativeGapTolerance) break;
+			if (maxTimeInSeconds > 0 && elapsedTimesInSeconds [numIterations - 1] >= maxTimeInSeconds) break;
+
+			/* each OD pair in turn, moving traffic to the cheapest path among the one of this iteration and the ones with traffic, path by path,
+			 * with the link traffics (and then the path costs) updated after each movement */
+			for (int d = 0; d < D ; d ++)
+			{
+				if (numDemandPaths [d] < 2) continue;
+				int b = cheapestPath_d [d];
+				double cost_b = getPathCost (b);
+				for (int cont = 0; cont < numDemandPaths [d] ; cont ++)
+				{
+					final int p = demandPaths [d][cont];
+					if (p == b || pathTraffic [p] == 0) continue;
+					final double cost_p = getPathCost (p);
+					if (cost_p < cost_b) { b = p; cost_b = cost_p; }
+				}
+				final int cheapestPathMark = ++ mark;
+				for (int pos = pathStart [b]; pos < pathStart [b + 1] ; pos ++) cheapestPathLinkMark_a [pathLinks [pos]] = cheapestPathMark;
+				for (int cont = 0; cont < numDemandPaths [d] ; cont ++)
+				{
+					final int p = demandPaths [d][cont];
+					if (p == b || pathTraffic [p] == 0) continue;
+					final double costDifference = getPathCost (p) - getPathCost (b);
+					if (costDifference <= 0) continue;
+					/* second derivative of the objective function when moving traffic from p to b: the links in only one of them */
+					final int pathMark = ++ mark;
+					double secondDerivative = 0;
+					for (int pos = pathStart [p]; pos < pathStart [p + 1] ; pos ++)
+					{
+						final int e = pathLinks [pos];
+						pathLinkMark_a [e] = pathMark;
+						if (cheapestPathLinkMark_a [e] != cheapestPathMark) secondDerivative += getLinkCostDerivative (e , v_a [e]);
+					}
+					for (int pos = pathStart [b]; pos < pathStart [b + 1] ; pos ++)
+						if (pathLinkMark_a [pathLinks [pos]] != pathMark) secondDerivative += getLinkCostDerivative (pathLinks [pos] , v_a [pathLinks [pos]]);
+					final double traffic = secondDerivative <= 0? pathTraffic [p] : Math.min(pathTraffic [p] , costDifference / secondDerivative);
+					pathTraffic [p] -= traffic;
+					pathTraffic [b] += traffic;
+					for (int pos = pathStart [p]; pos < pathStart [p + 1] ; pos ++) v_a [pathLinks [pos]] -= traffic;
+					for (int pos = pathStart [b]; pos < pathStart [b + 1] ; pos ++) v_a [pathLinks [pos]] += traffic;
+				}
+			}
+			for (int e = 0; e < E ; e ++) if (v_a [e] < 0) v_a [e] = 0; // rounding errors
+		}
+		updateLinkTraffics ();
+		objectiveFunction = 0;
+		for (int e = 0; e < E ; e ++) objectiveFunction += getLinkCostIntegral (e , v_a [e]);
+	}
+
+	/** Computes the stochastic user equilibrium with logit route choice among the paths of each OD pair, by the method of successive averages
+	 * @param theta the theta parameter of the logit model (the higher, the better the perception of the path costs by the users)
+	 * @param maxNumIterations the maximum number of iterations
+	 * @param relativeGapTolerance the algorithm stops when the convergence gap is equal or below this value
+	 * @param maxTimeInSeconds the algorithm stops after this time (non-positive for no limit)
+	 */
+	void solveStochasticUserEquilibrium (double theta , int maxNumIterations , double relativeGapTolerance , double maxTimeInSeconds)
+	{
+		final long initialTime = System.nanoTime();
+		numIterations = 0;
+		Arrays.fill(pathTraffic , 0);
+		Arrays.fill(v_a , 0);
+		final double [] cost_a = new double [E];
+		final double totalTraffic = Arrays.stream(t_d).sum();
+		double [] cost_p = new double [pathTraffic.length];
+		double [] logitTraffic_p = new double [pathTraffic.length];
+		while (true)
+		{
+			for (int e = 0; e < E ; e ++) cost_a [e] = getLinkCost (e , v_a [e]);
+			if (generatePaths) computeCheapestPaths (cost_a);
+			if (cost_p.length < numPaths) { cost_p = new double [pathTraffic.length]; logitTraffic_p = new double [pathTraffic.length]; }
+			computeLogitAssignment (theta , cost_a , cost_p , logitTraffic_p);
+			double sumDifferences = 0;
+			for (int p = 0; p < numPaths ; p ++) sumDifferences += Math.abs(logitTraffic_p [p] - pathTraffic [p]);
+			final double gap = totalTraffic <= 0? 0 : sumDifferences / totalTraffic;
+			if (addIteration (gap , initialTime) >= maxNumIterations || gap <= relativeGapTolerance) break;
+			if (maxTimeInSeconds > 0 && elapsedTimesInSeconds [numIterations - 1] >= maxTimeInSeconds) break;
+			for (int p = 0; p < numPaths ; p ++) pathTraffic [p] += (logitTraffic_p [p] - pathTraffic [p]) / numIterations;
+			updateLinkTraffics ();
+		}
+
+		/* Sheffi's objective function: the expected perceived cost of the OD pairs, and the link costs */
+		objectiveFunction = 0;
+		for (int e = 0; e < E ; e ++) objectiveFunction += v_a [e] * cost_a [e] - getLinkCostIntegral (e , v_a [e]);
+		for (int d = 0; d < D ; d ++)
+		{
+			double minCost = Double.MAX_VALUE;
+			for (int cont = 0; cont < numDemandPaths [d] ; cont ++) minCost = Math.min(minCost , cost_p [demandPaths [d][cont]]);
+			double sum = 0;
+			for (int cont = 0; cont < numDemandPaths [d] ; cont ++) sum += Math.exp(-theta * (cost_p [demandPaths [d][cont]] - minCost));
+			objectiveFunction -= t_d [d] * (minCost - Math.log(sum) / theta);
+		}
+	}
+
+	/** Returns the number of paths
+	 * @return see above
+	 */
+	int getNumberOfPaths () { return numPaths; }
+
+	/** Returns the OD pair of the given path
+	 * @param p the path index
+	 * @return see above
+	 */
+	int getPathDemand (int p) { return pathDemand [p]; }
+
+	/** Returns the sequence of links of the given path
+	 * @param p the path index
+	 * @return see above
+	 */
+	int [] getPathLinks (int p) { return Arrays.copyOfRange(pathLinks , pathStart [p] , pathStart [p + 1]); }
+
+	/** Returns the traffic of each path
+	 * @return see above
+	 */
+	double [] getPathTraffics () { return Arrays.copyOf(pathTraffic , numPaths); }
+
+	/** Returns the traffic of each link
+	 * @return see above
+	 */
+	double [] getLinkTraffics () { return Arrays.copyOf(v_a , E); }
+
+	/** Returns the objective function of the model in the solution: the Beckmann function in the UE model, Sheffi's function in the SUE model, and the
+	 * sum of the free flow costs of the vehicles in the free flow model
+	 * @return see above
+	 */
+	double getObjectiveFunction () { return objectiveFunction; }
+
+	/** Returns the convergence gap in each iteration of the last model solved (the last one corresponds to the solution)
+	 * @return see above
+	 */
+	double [] getConvergenceGaps () { return Arrays.copyOf(convergenceGaps , numIterations); }
+
+	/** Returns the time in seconds since the beginning of the last model solved, at the end of each iteration
+	 * @return see above
+	 */
+	double [] getElapsedTimesInSeconds () { return Arrays.copyOf(elapsedTimesInSeconds , numIterations); }
+
+	private int addIteration (double gap , long initialTime)
+	{
+		if (numIterations == convergenceGaps.length)
+		{
+			convergenceGaps = Arrays.copyOf(convergenceGaps , 2 * numIterations);
+			elapsedTimesInSeconds = Arrays.copyOf(elapsedTimesInSeconds , 2 * numIterations);
+		}
+		convergenceGaps [numIterations] = gap;
+		elapsedTimesInSeconds [numIterations] = (System.nanoTime() - initialTime) / 1e9;
+		return ++ numIterations;
+	}
+
+	/* the total cost of the vehicles minus the one if all of them took the cheapest path, divided by the total cost */
+	private double getRelativeGap (double [] cost_a , int [] cheapestPath_d)
+	{
+		double totalCost = 0, totalCostCheapestPaths = 0;
+		for (int e = 0; e < E ; e ++) totalCost += v_a [e] * cost_a [e];
+		for (int d = 0; d < D ; d ++)
+			for (int cont = pathStart [cheapestPath_d [d]]; cont < pathStart [cheapestPath_d [d] + 1] ; cont ++) totalCostCheapestPaths += t_d [d] * cost_a [pathLinks [cont]];
+		return totalCost <= 0? 0 : Math.max(0 , (totalCost - totalCostCheapestPaths) / totalCost);
+	}
+
+	private double getPathCost (int p)
+	{
+		double cost = 0;
+		for (int pos = pathStart [p]; pos < pathStart [p + 1] ; pos ++) cost += getLinkCost (pathLinks [pos] , v_a [pathLinks [pos]]);
+		return cost;
+	}
+
+	private double getLinkCost (int e , double v)
+	{
+		return v == 0? c0_a [e] : c0_a [e] * (1 + alpha * Math.pow(v / Q_a [e] , beta));
+	}
+
+	private double getLinkCostDerivative (int e , double v)
+	{
+		if (v == 0) return beta == 1? c0_a [e] * alpha / Q_a [e] : 0;
+		return c0_a [e] * alpha * beta * Math.pow(v / Q_a [e] , beta - 1) / Q_a [e];
+	}
+
+	private double getLinkCostIntegral (int e , double v)
+	{
+		return v == 0? 0 : c0_a [e] * v * (1 + alpha * Math.pow(v / Q_a [e] , beta) / (beta + 1));
+	}
+
+	private void updateLinkTraffics ()
+	{
+		Arrays.fill(v_a , 0);
+		for (int p = 0; p < numPaths ; p ++)
+			if (pathTraffic [p] != 0)
+				for (int cont = pathStart [p]; cont < pathStart [p + 1] ; cont ++) v_a [pathLinks [cont]] += pathTraffic [p];
+	}
+
+	/* the derivative of the objective function in the segment is increasing: bisection on it */
+	private double getStepMinimizingObjectiveFunction (double [] direction_a)
+	{
+		if (getObjectiveFunctionDerivative (direction_a , 1) <= 0) return 1;
+		double low = 0, high = 1;
+		for (int cont = 0; cont < NUMBISECTIONSTEPS ; cont ++)
+		{
+			final double step = (low + high) / 2;
+			if (getObjectiveFunctionDerivative (direction_a , step) > 0) high = step; else low = step;
+		}
+		return (low + high) / 2;
+	}
+
+	private double getObjectiveFunctionDerivative (double [] direction_a , double step)
+	{
+		double res = 0;
+		for (int e = 0; e < E ; e ++)
+			if (direction_a [e] != 0) res += direction_a [e] * getLinkCost (e , Math.max(0 , v_a [e] + step * direction_a [e]));
+		return res;
+	}
+
+	private void computeLogitAssignment (double theta , double [] cost_a , double [] cost_p , double [] logitTraffic_p)
+	{
+		for (int p = 0; p < numPaths ; p ++)
+		{
+			double cost = 0;
+			for (int cont = pathStart [p]; cont < pathStart [p + 1] ; cont ++) cost += cost_a [pathLinks [cont]];
+			cost_p [p] = cost;
+		}
+		for (int d = 0; d < D ; d ++)
+		{
+			if (numDemandPaths [d] == 0) throw new Net2PlanException ("There are no paths available for the OD pair of index " + d);
+			double minCost = Double.MAX_VALUE;
+			for (int cont = 0; cont < numDemandPaths [d] ; cont ++) minCost = Math.min(minCost , cost_p [demandPaths [d][cont]]);
+			double sum = 0;
+			for (int cont = 0; cont < numDemandPaths [d] ; cont ++)
+			{
+				final int p = demandPaths [d][cont];
+				logitTraffic_p [p] = Math.exp(-theta * (cost_p [p] - minCost));
+				sum += logitTraffic_p [p];
+			}
+			for (int cont = 0; cont < numDemandPaths [d] ; cont ++) logitTraffic_p [demandPaths [d][cont]] *= t_d [d] / sum;
+		}
+	}
+
+	/* the index of the cheapest path of each OD pair, for the given link costs */
+	private int [] computeCheapestPaths (double [] cost_a)
+	{
+		final int [] res = new int [D];
+		if (!generatePaths)
+		{
+			final int numDemandsPerBlock = Math.max(MINNUMELEMENTSPERBLOCK , (D + MAXNUMBLOCKS - 1) / MAXNUMBLOCKS);
+			IntStream.range(0 , (D + numDemandsPerBlock - 1) / numDemandsPerBlock).parallel().forEach(b ->
+			{
+				for (int d = b * numDemandsPerBlock ; d < Math.min(D , (b + 1) * numDemandsPerBlock) ; d ++)
+				{
+					if (numDemandPaths [d] == 0) throw new Net2PlanException ("There are no paths available for the OD pair of index " + d);
+					double minCost = Double.MAX_VALUE;
+					for (int cont = 0; cont < numDemandPaths [d] ; cont ++)
+					{
+						final int p = demandPaths [d][cont];
+						double cost = 0;
+						for (int pos = pathStart [p]; pos < pathStart [p + 1] ; pos ++) cost += cost_a [pathLinks [pos]];
+						if (cost < minCost) { minCost = cost; res [d] = p; }
+					}
+				}
+			});
+			return res;
+		}
+
+		/* one search per origin node, then the paths not existing are added in the order of the OD pairs */
+		final int numOrigins = originNode.length;
+		final int [][] cheapestPathLinks_d = new int [D][];
+		final int numOriginsPerBlock = Math.max(MINNUMELEMENTSPERBLOCK , (numOrigins + MAXNUMBLOCKS - 1) / MAXNUMBLOCKS);
+		IntStream.range(0 , (numOrigins + numOriginsPerBlock - 1) / numOriginsPerBlock).parallel().forEach(b ->
+		{
+			final CompactGraph.Workspace ws = workspacePerThread.get();
+			for (int o = b * numOriginsPerBlock ; o < Math.min(numOrigins , (b + 1) * numOriginsPerBlock) ; o ++)
+			{
+				graph.computeShortestPathTree(ws , cost_a , originNode [o] , -1);
+				for (int cont = originStart [o]; cont < originStart [o + 1] ; cont ++)
+				{
+					final int d = originDemand [cont];
+					if (!ws.isSettled(demandDestination [d])) throw new Net2PlanException ("There are no paths available for the OD pair of index " + d);
+					cheapestPathLinks_d [d] = ws.getPathTo(demandDestination [d]);
+				}
+			}
+		});
+		for (int d = 0; d < D ; d ++)
+		{
+			res [d] = -1;
+			for (int cont = 0; cont < numDemandPaths [d] && res [d] == -1 ; cont ++)
+			{
+				final int p = demandPaths [d][cont];
+				if (pathStart [p + 1] - pathStart [p] != cheapestPathLinks_d [d].length) continue;
+				boolean samePath = true;
+				for (int pos = 0; pos < cheapestPathLinks_d [d].length && samePath ; pos ++) samePath = pathLinks [pathStart [p] + pos] == cheapestPathLinks_d [d][pos];
+				if (samePath) res [d] = p;
+			}
+			if (res [d] == -1) res [d] = addPath (d , cheapestPathLinks_d [d]);
+		}
+		return res;
+	}
+}
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.examples.smartCity.utn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.libraries.GraphUtils;
+import com.net2plan.utils.InputParameter;
+
+public class UtnTrafficAssignmentTest
+{
+	/* two parallel links from node 0 to node 1, and an OD pair of 300 vehicles. With alpha = beta = 1, the costs are 10 + 0.1 v_0 and 20 + 0.2 v_1 */
+	private static final double [] C0 = new double [] { 10 , 20 };
+	private static final double [] Q = new double [] { 100 , 100 };
+	private static final double T = 300;
+
+	private NetPlan np;
+
+	/* the Nguyen-Dupuis network */
+	@Before
+	public void setUp() throws Exception
+	{
+		this.np = new NetPlan ();
+		new Offline_utnNguyenDupuisNetworkTopologyCreator().executeAlgorithm(np , new HashMap<> () , new HashMap<> ());
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		np.checkCachesConsistency();
+	}
+
+	@Test
+	public void testTwoRoutesUserEquilibrium()
+	{
+		/* the UE: equal costs 10 + 0.1 v_0 = 20 + 0.2 (300 - v_0), so v_0 = 700 / 3 */
+		final double ue_v0 = 700.0 / 3;
+		for (boolean generatePaths : new boolean [] { false , true })
+		{
+			UtnTrafficAssignment assignment = createTwoRoutesAssignment (generatePaths);
+			assignment.solveUserEquilibriumByGradientProjection(1000 , 1e-12 , -1);
+			assertEquals (ue_v0 , assignment.getLinkTraffics() [0] , 1e-6);
+			assertEquals (T - ue_v0 , assignment.getLinkTraffics() [1] , 1e-6);
+			assertEquals (getBeckmannFunction(ue_v0) , assignment.getObjectiveFunction() , 1e-6);
+			final double [] gaps = assignment.getConvergenceGaps();
+			assertTrue (gaps [gaps.length - 1] <= 1e-12);
+
+			for (boolean conjugate : new boolean [] { false , true })
+			{
+				assignment = createTwoRoutesAssignment (generatePaths);
+				assignment.solveUserEquilibrium(conjugate , 10000 , 1e-9 , -1);
+				assertEquals (ue_v0 , assignment.getLinkTraffics() [0] , 1e-3);
+				assertEquals (T , assignment.getLinkTraffics() [0] + assignment.getLinkTraffics() [1] , 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void testTwoRoutesStochasticUserEquilibrium()
+	{
+		/* the logit split for the costs at the equilibrium: v_0 = T / (1 + exp(-theta (C_1 - C_0))), solved by bisection */
+		final double theta = 0.1;
+		double low = 0, high = T;
+		for (int cont = 0; cont < 100 ; cont ++)
+		{
+			final double v0 = (low + high) / 2;
+			final double logit_v0 = T / (1 + Math.exp(-theta * (getCost(1 , T - v0) - getCost(0 , v0))));
+			if (logit_v0 > v0) low = v0; else high = v0;
+		}
+		final double sue_v0 = (low + high) / 2;
+		final UtnTrafficAssignment assignment = createTwoRoutesAssignment (false);
+		assignment.solveStochasticUserEquilibrium(theta , 100000 , 1e-6 , -1);
+		assertEquals (sue_v0 , assignment.getPathTraffics() [0] , 1e-2);
+		assertEquals (T - sue_v0 , assignment.getPathTraffics() [1] , 1e-2);
+	}
+
+	@Test
+	public void testTwoRoutesFreeFlow()
+	{
+		for (boolean generatePaths : new boolean [] { false , true })
+		{
+			final UtnTrafficAssignment assignment = createTwoRoutesAssignment (generatePaths);
+			assignment.solveFreeFlow();
+			assertEquals (T , assignment.getLinkTraffics() [0] , 0);
+			assertEquals (0 , assignment.getLinkTraffics() [1] , 0);
+			assertEquals (C0 [0] * T , assignment.getObjectiveFunction() , 1e-9);
+		}
+	}
+
+	@Test
+	public void testNguyenDupuisUserEquilibrium()
+	{
+		/* the routes in use of each OD pair have the same cost. If the routes are generated, there is no cheaper path. If not, the equilibrium is among the 10
+		 * candidate routes, and there may be cheaper paths not in the candidate set */
+		for (String numberOfRoutesPerDemand : new String [] { "0" , "10" })
+		{
+			final Map<String,String> params = InputParameter.getDefaultParameters(new Offline_urbanTransportationNetworkAssignmentAlgorithm().getParameters());
+			params.put("optimizationModel" , "User-Equilibrium(UE)");
+			params.put("numberOfRoutesPerDemand" , numberOfRoutesPerDemand);
+			params.put("relativeGapTolerance" , "1e-10");
+			params.put("maxNumIterations" , "10000");
+			new Offline_urbanTransportationNetworkAssignmentAlgorithm().executeAlgorithm(np , params , new HashMap<> ());
+			final double alpha = Double.parseDouble(params.get("alpha"));
+			final double beta = Double.parseDouble(params.get("beta"));
+			final Map<Link,Double> linkCostMap = new HashMap<> ();
+			for (Link e : np.getLinks()) linkCostMap.put(e , UtnConstants.bprCaComputation(getC0(e) , alpha , e.getCarriedTraffic() , e.getCapacity() , beta));
+			for (Demand d : np.getDemands())
+			{
+				assertEquals (d.getOfferedTraffic() , d.getCarriedTraffic() , 1e-2);
+				final double shortestPathCost = numberOfRoutesPerDemand.equals("0")? getCost(GraphUtils.getShortestPath(np.getNodes() , np.getLinks() , d.getIngressNode() , d.getEgressNode() , linkCostMap) , linkCostMap) :
+					d.getRoutes().stream().mapToDouble(r -> getCost(r.getSeqLinks() , linkCostMap)).min().getAsDouble();
+				for (Route r : d.getRoutes())
+				{
+					assertTrue (r.getCarriedTraffic() > 0);
+					assertEquals (shortestPathCost , getCost(r.getSeqLinks() , linkCostMap) , 1e-3 * shortestPathCost);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNguyenDupuisFreeFlow()
+	{
+		/* one route per OD pair, the shortest path for the free flow costs */
+		final Map<String,String> params = InputParameter.getDefaultParameters(new Offline_urbanTransportationNetworkAssignmentAlgorithm().getParameters());
+		params.put("optimizationModel" , "Blind-free-speed-only");
+		params.put("numberOfRoutesPerDemand" , "0");
+		new Offline_urbanTransportationNetworkAssignmentAlgorithm().executeAlgorithm(np , params , new HashMap<> ());
+		final Map<Link,Double> linkCostMap = new HashMap<> ();
+		for (Link e : np.getLinks()) linkCostMap.put(e , getC0(e));
+		for (Demand d : np.getDemands())
+		{
+			assertEquals (1 , d.getRoutes().size());
+			final Route r = d.getRoutes().first();
+			assertEquals (d.getOfferedTraffic() , r.getCarriedTraffic() , 1e-9);
+			assertEquals (getCost(GraphUtils.getShortestPath(np.getNodes() , np.getLinks() , d.getIngressNode() , d.getEgressNode() , linkCostMap) , linkCostMap) , getCost(r.getSeqLinks() , linkCostMap) , 1e-9);
+		}
+	}
+
+	private static UtnTrafficAssignment createTwoRoutesAssignment (boolean generatePaths)
+	{
+		final UtnTrafficAssignment assignment = new UtnTrafficAssignment(2 , new int [] { 0 , 0 } , new int [] { 1 , 1 } , C0 , Q , 1 , 1 , new int [] { 0 } , new int [] { 1 } , new double [] { T } , generatePaths);
+		if (!generatePaths) { assignment.addPath(0 , new int [] { 0 }); assignment.addPath(0 , new int [] { 1 }); }
+		return assignment;
+	}
+
+	private static double getCost (int e , double v) { return UtnConstants.bprCaComputation(C0 [e] , 1 , v , Q [e] , 1); }
+
+	private static double getBeckmannFunction (double v0)
+	{
+		final double v1 = T - v0;
+		return C0 [0] * v0 * (1 + v0 / Q [0] / 2) + C0 [1] * v1 * (1 + v1 / Q [1] / 2);
+	}
+
+	private static double getC0 (Link e) { return Double.parseDouble(e.getAttribute(UtnConstants.ATTRNAME_C0A)); }
+
+	private static double getCost (List<Link> seqLinks , Map<Link,Double> linkCostMap)
+	{
+		double res = 0;
+		for (Link e : seqLinks) res += linkCostMap.get(e);
+		return res;
+	}
+}
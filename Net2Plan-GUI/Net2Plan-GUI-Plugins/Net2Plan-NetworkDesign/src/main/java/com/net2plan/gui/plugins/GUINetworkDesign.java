@@ -102,7 +102,7 @@ import com.net2plan.utils.Triple;
 public class GUINetworkDesign extends IGUIModule
 {
     private static String TITLE = "Offline network design & Online network simulation";
-    private final static int MAXSIZEUNDOLISTCHANGES = 0; // deactivate, not robust yet
+    private final static int MAXSIZEUNDOLISTCHANGES = 50; // steps store the journaled changes, or a design copy if the changes cannot be undone
     private final static int MAXSIZEUNDOLISTPICK = 10;
 
     private TopologyPanel topologyPanel;
@@ -122,6 +122,7 @@ public class GUINetworkDesign extends IGUIModule
     private WindowController windowController;
     private GUIWindow tableControlWindow;
     private Optional<Quadruple<Boolean,WNet,OpticalSpectrumManager,OpticalSimulationModule>> niwInformationCurrentDesign;
+    private boolean niwInformationUpToDate; // false after the design is modified, until the information is updated in the next getNiwInfo call
     private SortedSet<String> typesForVisibleColumns;
     
     
@@ -184,6 +185,7 @@ public class GUINetworkDesign extends IGUIModule
 
         this.currentNetPlan = new NetPlan();
         this.niwInformationCurrentDesign = Optional.empty();
+        this.niwInformationUpToDate = false;
         this.typesForVisibleColumns = new TreeSet<> ();
         
         BidiMap<NetworkLayer, Integer> mapLayer2VisualizationOrder = new DualHashBidiMap<>();
@@ -443,26 +445,41 @@ public class GUINetworkDesign extends IGUIModule
 
     public void addNetPlanChange()
     {
+        this.niwInformationUpToDate = false;
         undoRedoManager.addNetPlanChange();
     }
 
+    /** Returns the NIW information of the current design. It is computed the first time for each design, and after a change in the same design, 
+     * the optical performance information is updated incrementally (only the lightpaths affected by the changes are propagated again)
+     * @return if the design is a valid NIW design, and if so, the NIW network, spectrum manager and optical simulation module
+     */
     public Quadruple<Boolean,WNet,OpticalSpectrumManager,OpticalSimulationModule> getNiwInfo ()
     {
-    	if (niwInformationCurrentDesign.isPresent()) return niwInformationCurrentDesign.get();
+    	if (niwInformationCurrentDesign.isPresent() && niwInformationUpToDate) return niwInformationCurrentDesign.get();
     	final boolean isOk = WNet.isNiwValidDesign(getDesign());
     	if (isOk)
     	{
-    		final WNet wNet = new WNet (getDesign());
+    		final Quadruple<Boolean,WNet,OpticalSpectrumManager,OpticalSimulationModule> previousInfo = niwInformationCurrentDesign.orElse(null);
+    		final boolean sameDesign = previousInfo != null && previousInfo.getFirst() && previousInfo.getSecond().getNe() == getDesign();
+    		final WNet wNet = sameDesign? previousInfo.getSecond() : new WNet (getDesign());
     		wNet.updateNetPlanObjectInternalState();
-    		final OpticalSpectrumManager osm = OpticalSpectrumManager.createFromRegularLps(wNet);
-    		final OpticalSimulationModule osi = new OpticalSimulationModule (wNet);
-    		osi.updateAllPerformanceInfo();
-    		this.niwInformationCurrentDesign = Optional.of(Quadruple.of(true, wNet , osm , osi));
+    		if (sameDesign)
+    		{
+    			previousInfo.getThird().resetFromRegularLps(wNet);
+    			previousInfo.getFourth().updatePerformanceInfo();
+    		}
+    		else
+    		{
+    			final OpticalSpectrumManager osm = OpticalSpectrumManager.createFromRegularLps(wNet);
+    			final OpticalSimulationModule osi = new OpticalSimulationModule (wNet);
+    			this.niwInformationCurrentDesign = Optional.of(Quadruple.of(true, wNet , osm , osi));
+    		}
     		for (WNode n : wNet.getNodes())
     			if (n.getOpticalSwitchingArchitecture().isPotentiallyWastingSpectrum())
     				n.setWdmIcon(VisualizationConstants.FILTERLESS_ICON_URL, 1.0);
     	}
     	else this.niwInformationCurrentDesign = Optional.of(Quadruple.of(false, null , null , null));
+    	this.niwInformationUpToDate = true;
     	return this.niwInformationCurrentDesign.get(); 
     }
     
@@ -478,7 +495,7 @@ public class GUINetworkDesign extends IGUIModule
         final Triple<NetPlan, Map<NetworkLayer, Integer>, Map<NetworkLayer, Boolean>> back = undoRedoManager.getNavigationBackElement();
         if (back == null) return;
         this.currentNetPlan = back.getFirst();
-        this.niwInformationCurrentDesign = Optional.empty();
+        this.niwInformationUpToDate = false;
         this.vs.setCanvasLayerVisibilityAndOrder(this.currentNetPlan, back.getSecond(), back.getThird());
         updateVisualizationAfterNewTopology();
     }
@@ -490,7 +507,7 @@ public class GUINetworkDesign extends IGUIModule
         final Triple<NetPlan, Map<NetworkLayer, Integer>, Map<NetworkLayer, Boolean>> forward = undoRedoManager.getNavigationForwardElement();
         if (forward == null) return;
         this.currentNetPlan = forward.getFirst();
-        this.niwInformationCurrentDesign = Optional.empty();
+        this.niwInformationUpToDate = false;
         this.vs.setCanvasLayerVisibilityAndOrder(this.currentNetPlan, forward.getSecond(), forward.getThird());
         updateVisualizationAfterNewTopology();
     }
@@ -499,7 +516,7 @@ public class GUINetworkDesign extends IGUIModule
     {
         if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
         this.currentNetPlan = netPlan;
-        this.niwInformationCurrentDesign = Optional.empty();
+        this.niwInformationUpToDate = false;
         if (getVisualizationState().isWhatIfAnalysisActive())
             getWhatIfAnalysisPane().whatIfSomethingModified();
     }
@@ -26,6 +26,7 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 /**
@@ -39,6 +40,8 @@ public class ExcelWriter
     private static String sheetName;
     private static ExcelExtension fileExtension;
 
+    private static final int SXSSF_ROWS_IN_MEMORY = 100;
+
     public static void writeToFile( File file,  String sheetName,  Object[][] data) throws ExcelParserException
     {
         // Reboot
@@ -85,7 +88,7 @@ public class ExcelWriter
 
     private static void writeOOXML()
     {
-        Workbook workbook;
+        XSSFWorkbook workbook;
         try
         {
             workbook = new XSSFWorkbook(new FileInputStream(file.getAbsoluteFile()));
@@ -94,7 +97,8 @@ public class ExcelWriter
             // No file was found
             workbook = new XSSFWorkbook();
         }
-        doWrite(workbook);
+        // The rows of the new sheet are flushed to a temporary file as they are written, keeping in memory only the last ones
+        doWrite(new SXSSFWorkbook(workbook, SXSSF_ROWS_IN_MEMORY));
     }
 
     private static void doWrite(Workbook workbook)
@@ -112,6 +116,9 @@ public class ExcelWriter
         else
             sheet = workbook.createSheet();
 
+        final CellStyle cellStyle = workbook.createCellStyle();
+        cellStyle.setDataFormat(helper.createDataFormat().getFormat("m/d/yy h:mm"));
+
         int rowNum = 0;
         if (data != null)
         {
@@ -120,9 +127,6 @@ public class ExcelWriter
                 final Row row = sheet.createRow(rowNum++);
 
                 int colNum = 0;
-            	final CellStyle cellStyle = workbook.createCellStyle();
-            	final CreationHelper createHelper = workbook.getCreationHelper();
-            	cellStyle.setDataFormat(createHelper.createDataFormat().getFormat("m/d/yy h:mm"));
                 for (Object field : dataRow)
                 {
                     final Cell cell = row.createCell(colNum++);
@@ -163,6 +167,8 @@ public class ExcelWriter
             try
             {
                 workbook.close();
+                if (workbook instanceof SXSSFWorkbook)
+                    ((SXSSFWorkbook) workbook).dispose();
 
                 if (fileOut != null)
                     fileOut.close();
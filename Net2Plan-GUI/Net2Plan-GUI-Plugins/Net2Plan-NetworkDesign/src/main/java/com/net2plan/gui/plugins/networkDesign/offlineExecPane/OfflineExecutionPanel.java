@@ -20,6 +20,7 @@ import com.net2plan.interfaces.networkDesign.IAlgorithm;
 import com.net2plan.interfaces.networkDesign.NetPlan;
 import com.net2plan.interfaces.networkDesign.NetworkLayer;
 import com.net2plan.internal.ErrorHandling;
+import com.net2plan.internal.Instrumentation;
 import com.net2plan.internal.SystemUtils;
 import com.net2plan.internal.plugins.IGUIModule;
 import com.net2plan.utils.ClassLoaderUtils;
@@ -81,6 +82,7 @@ public class OfflineExecutionPanel extends JPanel implements ThreadExecutionCont
 	}
 
 	@Override
+	@SuppressWarnings("try")
 	public Object execute(ThreadExecutionController controller) 
 	{
         start = System.nanoTime();
@@ -91,7 +93,11 @@ public class OfflineExecutionPanel extends JPanel implements ThreadExecutionCont
         final NetPlan netPlan = mainWindow.getDesign().copy();
         IAlgorithm instance = ClassLoaderUtils.getInstance(algorithm.getFirst(), algorithm.getSecond(), IAlgorithm.class , null);
 //		System.out.println ("BEFORE EXECUTING");
-        String out = instance.executeAlgorithm(netPlan, algorithmParameters, net2planParameters);
+        String out;
+        try (Instrumentation.Measurement measurement = Instrumentation.start(Instrumentation.Timer.ALGORITHM_EXECUTION, instance.getClass().getName()))
+        {
+            out = instance.executeAlgorithm(netPlan, algorithmParameters, net2planParameters);
+        }
 //		System.out.println ("AFTER EXECUTING");
         try {
             ((Closeable) instance.getClass().getClassLoader()).close();
@@ -19,6 +19,7 @@ import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.internal.Constants;
 import com.net2plan.internal.CustomHTMLEditorKit;
 import com.net2plan.libraries.TrafficPredictor;
+import com.net2plan.libraries.TrafficSeries;
 import com.net2plan.utils.Pair;
 import net.miginfocom.swing.MigLayout;
 import org.jfree.chart.ChartFactory;
@@ -43,7 +44,6 @@ import java.awt.event.ActionListener;
 import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.function.Function;
 
 public class MonitoringGraphPane extends JPanel
@@ -157,9 +157,9 @@ public class MonitoringGraphPane extends JPanel
 		if (e.getMonitoredOrForecastedCarriedTraffic().getSize () > 0)
 		{
 			ts_monitoringInformation = new TimeSeries ("Monitoring samples");
-			final SortedMap<Date , Double> values = e.getMonitoredOrForecastedCarriedTraffic().getValues();
-			for (Entry<Date,Double> val : values.entrySet())
-				ts_monitoringInformation.add (new FixedMillisecond(val.getKey().getTime()) , val.getValue());
+			final TrafficSeries values = e.getMonitoredOrForecastedCarriedTraffic();
+			for (int cont = 0; cont < values.getSize() ; cont ++)
+				ts_monitoringInformation.add (new FixedMillisecond(values.getDateInMiliseconds(cont)) , values.getValue(cont));
 		}
 		TimeSeries ts_predictorInformation_average = null;
 		TimeSeries ts_predictorInformation_95 = null;
@@ -18,6 +18,7 @@ import java.util.SortedSet;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.swing.JFileChooser;
@@ -249,9 +250,9 @@ public class MonitoringUtils
                 final List<T> selectedElements = new ArrayList<>(table.getSelectedElements());
                 final List<Date> allDates = new ArrayList<> (table.getSelectedElements().stream().map(ee->
                 {
-                    if (isLinkTable) return ((Link) ee).getMonitoredOrForecastedCarriedTraffic().getValues().keySet();
-                    else if (isDemandTable) return ((Demand) ee).getMonitoredOrForecastedOfferedTraffic().getValues().keySet();
-                    else if (isMDemandTable) return ((MulticastDemand) ee).getMonitoredOrForecastedOfferedTraffic().getValues().keySet();
+                    if (isLinkTable) return ((Link) ee).getMonitoredOrForecastedCarriedTraffic().getDatesWithValue();
+                    else if (isDemandTable) return ((Demand) ee).getMonitoredOrForecastedOfferedTraffic().getDatesWithValue();
+                    else if (isMDemandTable) return ((MulticastDemand) ee).getMonitoredOrForecastedOfferedTraffic().getDatesWithValue();
                     return null;
                 }).filter(ee->ee != null).flatMap(ee->ee.stream()).collect(Collectors.toCollection(TreeSet::new)));
                 final int nDates = allDates.size();
@@ -519,7 +520,7 @@ public class MonitoringUtils
                         final TrafficSeries tm = ((IMonitorizableElement) ee).getMonitoredOrForecastedCarriedTraffic();
                         assert tm != null;                                      
                         if (tm.getSize() < 3) { numberOfIgnoredElements ++; continue; }
-                        final TrafficPredictor tp = TrafficPredictor.createFromMonitData(TRAFFICPREDICTORTYPE.EXPONENTIALFIT, tm.getValues()).orElse(null);
+                        final TrafficPredictor tp = TrafficPredictor.createFromMonitData(TRAFFICPREDICTORTYPE.EXPONENTIALFIT, tm).orElse(null);
                         if (tp == null) { numberOfIgnoredElements ++; continue; }
                         varianceExplained.put(ee, tp.getStatistics().getRsquared());
                         ((IMonitorizableElement) ee).setTrafficPredictor(tp);
@@ -546,7 +547,7 @@ public class MonitoringUtils
                         final TrafficSeries tm = ((IMonitorizableElement) ee).getMonitoredOrForecastedCarriedTraffic();
                         assert tm != null;                                      
                         if (tm.getSize() < 3) { numberOfIgnoredElements ++; continue; }
-                        final TrafficPredictor tp = TrafficPredictor.createFromMonitData(TRAFFICPREDICTORTYPE.LINEARFIT, tm.getValues()).orElse(null);
+                        final TrafficPredictor tp = TrafficPredictor.createFromMonitData(TRAFFICPREDICTORTYPE.LINEARFIT, tm).orElse(null);
                         if (tp == null) { numberOfIgnoredElements ++; continue; }
                         varianceExplained.put(ee, tp.getStatistics().getRsquared());
                         ((IMonitorizableElement) ee).setTrafficPredictor(tp);
@@ -897,38 +898,41 @@ public class MonitoringUtils
                         if (indexSelectionInputDemandMonit == 1)
                             datesToApplyEstimation.retainAll(TrafficMatrixForecastUtils.getDatesWhereGravityModelCanBeApplied(layer));
                         if (datesToApplyEstimation.isEmpty()) throw new Net2PlanException ("No dates are eligible for traffic matrix estimations are performed");
-                        for (Date date : datesToApplyEstimation)
+                        final Function<Date,Map<Link,Double>> inputMonitInfo_someLinks = date -> np.getLinks(layer).stream().filter(ee->ee.getMonitoredOrForecastedCarriedTraffic().hasValue(date)).collect(Collectors.toMap(ee->ee, ee->ee.getMonitoredOrForecastedCarriedTraffic().getValueOrNull(date)));
+                        final Function<Date,Map<Demand,Double>> demandEstim;
+                        final Function<Date,Map<MulticastDemand,Double>> mdemandEstim;
+                        if (indexSelectionInputDemandMonit == 0)
                         {
-                            final SortedMap<Link,Double> inputMonitInfo_someLinks = new TreeMap<> (np.getLinks(layer).stream().filter(ee->ee.getMonitoredOrForecastedCarriedTraffic().hasValue(date)).collect(Collectors.toMap(ee->ee, ee->ee.getMonitoredOrForecastedCarriedTraffic().getValueOrNull(date))));
-                            final TrafficMatrixForecastUtils.TmEstimationResults esimRes;
-                            if (indexSelectionInputDemandMonit == 0)
-                            {
-                                /* No demand information is used */
-                                esimRes = TrafficMatrixForecastUtils.getTmEstimation_minErrorSquares(layer, inputMonitInfo_someLinks, null, null, coeff_preferFitRouting0PreferFitDemand1);
-                            } else if (indexSelectionInputDemandMonit == 1)
-                            {
-                                /* Use gravity model */
-                                final SortedMap<Demand,Double> gravityModelEstim = TrafficMatrixForecastUtils.getGravityModelEstimationFromMonitorTraffic(layer, date);
-                                esimRes = TrafficMatrixForecastUtils.getTmEstimation_minErrorSquares(layer, inputMonitInfo_someLinks, gravityModelEstim, null, coeff_preferFitRouting0PreferFitDemand1);
-                            } else if (indexSelectionInputDemandMonit == 2)
-                            {
-                                /* Same date demand monitoring info */
-                                final Map<Demand,Double> demandEstim = np.getDemands(layer).stream().filter(ee->ee.getMonitoredOrForecastedOfferedTraffic().hasValue(date)).collect(Collectors.toMap(ee->ee, ee->ee.getMonitoredOrForecastedOfferedTraffic().getValueOrNull(date)));
-                                final Map<MulticastDemand,Double> mdemandEstim = np.getMulticastDemands(layer).stream().filter(ee->ee.getMonitoredOrForecastedOfferedTraffic().hasValue(date)).collect(Collectors.toMap(ee->ee, ee->ee.getMonitoredOrForecastedOfferedTraffic().getValueOrNull(date)));
-                                esimRes = TrafficMatrixForecastUtils.getTmEstimation_minErrorSquares(layer, inputMonitInfo_someLinks, demandEstim, mdemandEstim, coeff_preferFitRouting0PreferFitDemand1);
-                            } else if (indexSelectionInputDemandMonit == 3)
-                            {
-                                /* Demand is zero traffic */
-                                final Map<Demand,Double> demandEstim = np.getDemands(layer).stream().collect(Collectors.toMap(ee->ee, ee->0.0));
-                                final Map<MulticastDemand,Double> mdemandEstim = np.getMulticastDemands(layer).stream().collect(Collectors.toMap(ee->ee, ee->0.0));
-                                esimRes = TrafficMatrixForecastUtils.getTmEstimation_minErrorSquares(layer, inputMonitInfo_someLinks, demandEstim, mdemandEstim, coeff_preferFitRouting0PreferFitDemand1);
-                            } else throw new RuntimeException ();
+                            /* No demand information is used */
+                            demandEstim = null;
+                            mdemandEstim = null;
+                        } else if (indexSelectionInputDemandMonit == 1)
+                        {
+                            /* Use gravity model */
+                            demandEstim = date -> TrafficMatrixForecastUtils.getGravityModelEstimationFromMonitorTraffic(layer, date);
+                            mdemandEstim = null;
+                        } else if (indexSelectionInputDemandMonit == 2)
+                        {
+                            /* Same date demand monitoring info */
+                            demandEstim = date -> np.getDemands(layer).stream().filter(ee->ee.getMonitoredOrForecastedOfferedTraffic().hasValue(date)).collect(Collectors.toMap(ee->ee, ee->ee.getMonitoredOrForecastedOfferedTraffic().getValueOrNull(date)));
+                            mdemandEstim = date -> np.getMulticastDemands(layer).stream().filter(ee->ee.getMonitoredOrForecastedOfferedTraffic().hasValue(date)).collect(Collectors.toMap(ee->ee, ee->ee.getMonitoredOrForecastedOfferedTraffic().getValueOrNull(date)));
+                        } else if (indexSelectionInputDemandMonit == 3)
+                        {
+                            /* Demand is zero traffic */
+                            final Map<Demand,Double> zeroDemands = np.getDemands(layer).stream().collect(Collectors.toMap(ee->ee, ee->0.0));
+                            final Map<MulticastDemand,Double> zeroMDemands = np.getMulticastDemands(layer).stream().collect(Collectors.toMap(ee->ee, ee->0.0));
+                            demandEstim = date -> zeroDemands;
+                            mdemandEstim = date -> zeroMDemands;
+                        } else throw new RuntimeException ();
 
-                            /* Store the information */
+                        /* All the dates are estimated at once, and then the information is stored */
+                        final SortedMap<Date,TrafficMatrixForecastUtils.TmEstimationResults> esimResPerDate = TrafficMatrixForecastUtils.getTmEstimation_minErrorSquares(layer, datesToApplyEstimation, inputMonitInfo_someLinks, demandEstim, mdemandEstim, coeff_preferFitRouting0PreferFitDemand1);
+                        for (Map.Entry<Date,TrafficMatrixForecastUtils.TmEstimationResults> esimRes : esimResPerDate.entrySet())
+                        {
                             for (Demand d : np.getDemands(layer))
-                                d.getMonitoredOrForecastedOfferedTraffic().addValue(date , esimRes.getEstimationDemand(d));
+                                d.getMonitoredOrForecastedOfferedTraffic().addValue(esimRes.getKey() , esimRes.getValue().getEstimationDemand(d));
                             for (MulticastDemand d : np.getMulticastDemands(layer))
-                                d.getMonitoredOrForecastedOfferedTraffic().addValue(date , esimRes.getEstimationMDemand(d));
+                                d.getMonitoredOrForecastedOfferedTraffic().addValue(esimRes.getKey() , esimRes.getValue().getEstimationMDemand(d));
                         }
                         JOptionPane.showMessageDialog(null, "Estimation applied to " + datesToApplyEstimation.size() + " dates", "Output info", JOptionPane.INFORMATION_MESSAGE);
                     }
@@ -46,6 +46,7 @@ import com.net2plan.interfaces.networkDesign.IReport;
 import com.net2plan.interfaces.networkDesign.NetPlan;
 import com.net2plan.interfaces.networkDesign.NetworkLayer;
 import com.net2plan.internal.ErrorHandling;
+import com.net2plan.internal.Instrumentation;
 import com.net2plan.internal.SystemUtils;
 import com.net2plan.internal.plugins.IGUIModule;
 import com.net2plan.utils.ClassLoaderUtils;
@@ -148,6 +149,7 @@ public class ViewReportPane extends JSplitPane implements ThreadExecutionControl
 	}
 	
 	@Override
+	@SuppressWarnings("try")
 	public Object execute(ThreadExecutionController controller) 
 	{
 		/************** report test ***/
@@ -173,7 +175,12 @@ public class ViewReportPane extends JSplitPane implements ThreadExecutionControl
         }
         if (title == null) title = "Untitled";
 
-        Pair<String, ? extends JPanel> aux = Pair.of(title, new ReportBrowser(instance.executeReport(netPlan, reportParameters, net2planParameters)));
+        String html;
+        try (Instrumentation.Measurement measurement = Instrumentation.start(Instrumentation.Timer.REPORT_EXECUTION, instance.getClass().getName()))
+        {
+            html = instance.executeReport(netPlan, reportParameters, net2planParameters);
+        }
+        Pair<String, ? extends JPanel> aux = Pair.of(title, new ReportBrowser(html));
         try {
             ((Closeable) instance.getClass().getClassLoader()).close();
         } catch (Throwable e) {
@@ -12,27 +12,37 @@ package com.net2plan.gui.plugins.networkDesign.visualizationControl;
 
 import com.net2plan.gui.plugins.GUINetworkDesign;
 import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetPlanChangeJournal;
 import com.net2plan.interfaces.networkDesign.NetworkLayer;
 import com.net2plan.utils.Triple;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Manages the undo/redo information, tracking the current netPlan and the visualization state
+ * Manages the undo/redo information, tracking the current netPlan and the visualization state.
+ * The changes in the design are recorded in a {@link NetPlanChangeJournal}, and each step in the timeline keeps only the changes made (that are undone and
+ * redone in the current design). Only when the changes cannot be inverted (e.g. elements were removed), the step keeps the copy of the design before them
+ * made by the journal, or the previous design object if the design was replaced. No other copy of the design is kept.
  */
 public class UndoRedoManager
 {
+    private final static int MAXNUMCHANGESPERSTEP = 10000;
+
     private final GUINetworkDesign callback;
-    private LinkedList<VisualizationSnapshot> timeline;
+    private final List<TimelineStep> timeline;
+    private final List<LayerVisualizationInfo> timelineStates;
     private int timelineCursor;
     private int listMaxSize;
 
-    private VisualizationSnapshot backupState;
+    private NetPlanChangeJournal journal;
 
     public UndoRedoManager(GUINetworkDesign callback, int listMaxSize)
     {
-        this.timeline = new LinkedList<>();
+        this.timeline = new ArrayList<>();
+        this.timelineStates = new ArrayList<>();
         this.timelineCursor = -1;
         this.callback = callback;
         this.listMaxSize = listMaxSize;
@@ -43,31 +53,48 @@ public class UndoRedoManager
         if (this.listMaxSize <= 1) return; // nothing is stored since nothing will be retrieved
         if (callback.inOnlineSimulationMode()) return;
 
-        final VisualizationSnapshot snapshot = callback.getVisualizationState().getSnapshot().copy();
+        final NetPlan currentNetPlan = callback.getDesign();
+        final LayerVisualizationInfo currentLayerInfo = new LayerVisualizationInfo(callback.getVisualizationState().getSnapshot());
 
-        // Removing all changes made after the one at the cursor
-        if (timelineCursor != timeline.size() - 1)
+        if (timelineCursor == -1)
         {
-            timeline.subList(timelineCursor, timeline.size()).clear();
+            this.journal = new NetPlanChangeJournal(currentNetPlan, MAXNUMCHANGESPERSTEP);
+            timelineStates.add(currentLayerInfo);
+            timelineCursor = 0;
+            return;
+        }
 
-            // Adding a copy of the current state before it was modified
-            timeline.add(backupState);
+        // The step from the state at the cursor to the current state
+        final TimelineStep step;
+        if (isJournaled(currentNetPlan))
+        {
+            final NetPlanChangeJournal.Step changes = journal.closeStep();
+            step = changes.isInvertible() ? new TimelineStep(changes) : new TimelineStep(changes.getNetPlanBeforeChanges());
+        } else
+        {
+            step = new TimelineStep(closeStepAndGetNetPlanAtCursor());
+            setCurrentNetPlan(currentNetPlan);
         }
-        timeline.add(snapshot);
+
+        // Removing all changes made after the one at the cursor
+        timeline.subList(timelineCursor, timeline.size()).clear();
+        timelineStates.subList(timelineCursor + 1, timelineStates.size()).clear();
+        timeline.add(step);
+        timelineStates.add(currentLayerInfo);
+        timelineCursor++;
 
         // Remove the older changes so that the list does not bloat.
-        while (timeline.size() > listMaxSize)
+        while (timelineStates.size() > listMaxSize)
         {
             timeline.remove(0);
+            timelineStates.remove(0);
             timelineCursor--;
         }
-
-        timelineCursor++;
     }
 
     /**
-     * Returns the undo info in the navigation. Returns null if we are already in the first element. The NetPlan object returned is null if
-     * there is no change respect to the current one
+     * Returns the undo info in the navigation. Returns null if we are already in the first element. The NetPlan object returned is the
+     * current design, after undoing the changes, or the design that replaces it
      *
      * @return see above
      */
@@ -76,35 +103,133 @@ public class UndoRedoManager
         if (!checkMovementValidity()) return null;
         if (timelineCursor == 0) return null;
 
+        revertChangesNotAdded();
         this.timelineCursor--;
+        timeline.get(timelineCursor).undo();
 
-        final VisualizationSnapshot currentState = timeline.get(this.timelineCursor);
-        this.backupState = currentState.copy();
-
-        return currentState.getSnapshotDefinition();
+        return timelineStates.get(timelineCursor).getSnapshotDefinition(journal.getNetPlan());
     }
 
     /**
-     * Returns the forward info in the navigation. Returns null if we are already in the head. The NetPlan object returned is null if
-     * there is no change respect to the current one
+     * Returns the forward info in the navigation. Returns null if we are already in the head. The NetPlan object returned is the
+     * current design, after redoing the changes, or the design that replaces it
      *
      * @return see above
      */
     public Triple<NetPlan, Map<NetworkLayer, Integer>, Map<NetworkLayer, Boolean>> getNavigationForwardElement()
     {
         if (!checkMovementValidity()) return null;
-        if (timelineCursor == timeline.size() - 1) return null;
+        if (timelineCursor == timelineStates.size() - 1) return null;
 
+        revertChangesNotAdded();
+        timeline.get(timelineCursor).redo();
         this.timelineCursor++;
 
-        final VisualizationSnapshot currentState = timeline.get(this.timelineCursor);
-        this.backupState = currentState.copy();
-
-        return currentState.getSnapshotDefinition();
+        return timelineStates.get(timelineCursor).getSnapshotDefinition(journal.getNetPlan());
     }
 
     private boolean checkMovementValidity()
     {
-        return !(timeline.isEmpty() || this.listMaxSize <= 1 || callback.inOnlineSimulationMode());
+        return !(timelineStates.isEmpty() || this.listMaxSize <= 1 || callback.inOnlineSimulationMode());
+    }
+
+    private boolean isJournaled(NetPlan netPlan)
+    {
+        return journal.getNetPlan() == netPlan && journal.isAttached();
+    }
+
+    /* The design is set back to the state at the cursor, if it was modified (or replaced) after the last call to addNetPlanChange */
+    private void revertChangesNotAdded()
+    {
+        if (isJournaled(callback.getDesign()) && !journal.hasChanges()) return;
+        final NetPlan netPlanAtCursor = closeStepAndGetNetPlanAtCursor();
+        if (netPlanAtCursor != journal.getNetPlan()) setCurrentNetPlan(netPlanAtCursor);
+    }
+
+    /* Returns the design in the state at the cursor: the journaled design after undoing the changes made since the last step, or the copy of the design
+     * made by the journal before them, if they cannot be undone */
+    private NetPlan closeStepAndGetNetPlanAtCursor()
+    {
+        final NetPlanChangeJournal.Step changes = journal.closeStep();
+        if (!changes.isInvertible()) return changes.getNetPlanBeforeChanges();
+        changes.undo(journal.getNetPlan());
+        return journal.getNetPlan();
+    }
+
+    private void setCurrentNetPlan(NetPlan netPlan)
+    {
+        journal.detach();
+        this.journal = new NetPlanChangeJournal(netPlan, MAXNUMCHANGESPERSTEP);
+    }
+
+    /* The changes between two consecutive states in the timeline: the journaled changes, or the design in the other state */
+    private class TimelineStep
+    {
+        private final NetPlanChangeJournal.Step changes;
+        private NetPlan otherNetPlan;
+
+        private TimelineStep(NetPlanChangeJournal.Step changes)
+        {
+            this.changes = changes;
+            this.otherNetPlan = null;
+        }
+
+        private TimelineStep(NetPlan otherNetPlan)
+        {
+            this.changes = null;
+            this.otherNetPlan = otherNetPlan;
+        }
+
+        private void undo()
+        {
+            if (changes != null) changes.undo(journal.getNetPlan());
+            else swapNetPlan();
+        }
+
+        private void redo()
+        {
+            if (changes != null) changes.redo(journal.getNetPlan());
+            else swapNetPlan();
+        }
+
+        private void swapNetPlan()
+        {
+            final NetPlan newCurrentNetPlan = otherNetPlan;
+            this.otherNetPlan = journal.getNetPlan();
+            setCurrentNetPlan(newCurrentNetPlan);
+        }
+    }
+
+    /* The order and visibility of the layers in the canvas, by layer identifier, so it applies to any design with the same layers */
+    private static class LayerVisualizationInfo
+    {
+        private final Map<Long, Integer> layerOrder;
+        private final Map<Long, Boolean> layerVisibility;
+
+        private LayerVisualizationInfo(VisualizationSnapshot snapshot)
+        {
+            this.layerOrder = new HashMap<>();
+            this.layerVisibility = new HashMap<>();
+            for (Map.Entry<NetworkLayer, Integer> entry : snapshot.getMapCanvasLayerVisualizationOrder().entrySet())
+                layerOrder.put(entry.getKey().getId(), entry.getValue());
+            for (Map.Entry<NetworkLayer, Boolean> entry : snapshot.getMapCanvasLayerVisibility().entrySet())
+                layerVisibility.put(entry.getKey().getId(), entry.getValue());
+        }
+
+        private Triple<NetPlan, Map<NetworkLayer, Integer>, Map<NetworkLayer, Boolean>> getSnapshotDefinition(NetPlan netPlan)
+        {
+            final Map<NetworkLayer, Integer> order = new HashMap<>();
+            final Map<NetworkLayer, Boolean> visibility = new HashMap<>();
+            for (NetworkLayer layer : netPlan.getNetworkLayers())
+            {
+                final Integer layerOrderThisLayer = layerOrder.get(layer.getId());
+                final Boolean layerVisibilityThisLayer = layerVisibility.get(layer.getId());
+                if (layerOrderThisLayer == null || layerVisibilityThisLayer == null)
+                    return Triple.unmodifiableOf(netPlan, null, null);
+                order.put(layer, layerOrderThisLayer);
+                visibility.put(layer, layerVisibilityThisLayer);
+            }
+            return Triple.unmodifiableOf(netPlan, order, visibility);
+        }
     }
 }
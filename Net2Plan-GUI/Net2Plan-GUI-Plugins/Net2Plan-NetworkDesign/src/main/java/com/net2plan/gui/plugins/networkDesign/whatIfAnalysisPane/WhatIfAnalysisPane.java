@@ -33,6 +33,7 @@ import com.net2plan.gui.utils.RunnableSelector;
 import com.net2plan.interfaces.networkDesign.Configuration;
 import com.net2plan.interfaces.networkDesign.IAlgorithm;
 import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.internal.Instrumentation;
 import com.net2plan.internal.SystemUtils;
 import com.net2plan.internal.plugins.IGUIModule;
 import com.net2plan.internal.sim.SimKernel;
@@ -128,6 +129,7 @@ public class WhatIfAnalysisPane extends JPanel implements ActionListener
         this.add(aux_Panel, BorderLayout.CENTER);
     }
 
+    @SuppressWarnings("try")
     public void whatIfSomethingModified() 
     {
     	final NetPlan originalNpCopy = callback.getDesign().copy();
@@ -138,14 +140,20 @@ public class WhatIfAnalysisPane extends JPanel implements ActionListener
 	    	if (callback.getVisualizationState().isNiwDesignButtonActive() && callback.getVisualizationState().isWhatIfAnalysisUseDefaultNiwSimulatorActive())
 	    	{
 	            final IAlgorithm algorithmInstance = new DefaultStatelessSimulator();
-	            algorithmInstance.executeAlgorithm(np, InputParameter.getDefaultParameters(algorithmInstance.getParameters()), net2planParameters);
+	            try (Instrumentation.Measurement measurement = Instrumentation.start(Instrumentation.Timer.ALGORITHM_EXECUTION, algorithmInstance.getClass().getName()))
+	            {
+	            	algorithmInstance.executeAlgorithm(np, InputParameter.getDefaultParameters(algorithmInstance.getParameters()), net2planParameters);
+	            }
 	    	}
 	    	else
 	    	{
 	            final Triple<File, String, Class> aux = statelessSimulatorPanel.getRunnable();
 	            final IAlgorithm algorithmInstance = ClassLoaderUtils.getInstance(aux.getFirst(), aux.getSecond(), IAlgorithm.class , null);
 	            Map<String, String> eventProcessorParameters = statelessSimulatorPanel.getRunnableParameters();
-	            algorithmInstance.executeAlgorithm(np, eventProcessorParameters, net2planParameters);
+	            try (Instrumentation.Measurement measurement = Instrumentation.start(Instrumentation.Timer.ALGORITHM_EXECUTION, algorithmInstance.getClass().getName()))
+	            {
+	            	algorithmInstance.executeAlgorithm(np, eventProcessorParameters, net2planParameters);
+	            }
 	    	}
         } catch (Throwable ex)
         {